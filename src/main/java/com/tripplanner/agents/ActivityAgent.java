@@ -122,6 +122,26 @@ public class ActivityAgent extends BaseAgent {
         }
     }
     
+    /**
+     * Populate the attraction nodes of a single day in place, without saving.
+     * Used by the per-day pipeline, which persists each day once all its stages are done.
+     * 
+     * @param context Itinerary providing destination, interests and constraints; must contain the day
+     * @return number of attractions populated
+     */
+    public int populateDayAttractions(NormalizedItinerary context, NormalizedDay day) {
+        List<AttractionContext> attractionContexts = extractAttractionNodes(day);
+        if (attractionContexts.isEmpty()) {
+            return 0;
+        }
+        
+        List<PopulatedAttraction> populatedAttractions = populateAttractionsWithAI(context, attractionContexts);
+        applyAttractions(context, List.of(day), populatedAttractions);
+        
+        logger.info("Populated {} attractions for day {}", populatedAttractions.size(), day.getDayNumber());
+        return populatedAttractions.size();
+    }
+    
     /**
      * Extract attraction nodes from skeleton with context.
      */
@@ -129,17 +149,27 @@ public class ActivityAgent extends BaseAgent {
         List<AttractionContext> contexts = new ArrayList<>();
         
         for (NormalizedDay day : skeleton.getDays()) {
-            if (day.getNodes() == null) continue;
-            
-            for (NormalizedNode node : day.getNodes()) {
-                if ("attraction".equals(node.getType())) {
-                    contexts.add(new AttractionContext(
-                        node.getId(),
-                        day.getDayNumber(),
-                        day.getLocation(),
-                        node.getTiming()
-                    ));
-                }
+            contexts.addAll(extractAttractionNodes(day));
+        }
+        
+        return contexts;
+    }
+    
+    /**
+     * Extract attraction nodes of one day with context.
+     */
+    private List<AttractionContext> extractAttractionNodes(NormalizedDay day) {
+        List<AttractionContext> contexts = new ArrayList<>();
+        if (day.getNodes() == null) return contexts;
+        
+        for (NormalizedNode node : day.getNodes()) {
+            if ("attraction".equals(node.getType())) {
+                contexts.add(new AttractionContext(
+                    node.getId(),
+                    day.getDayNumber(),
+                    day.getLocation(),
+                    node.getTiming()
+                ));
             }
         }
         
@@ -194,12 +224,30 @@ public class ActivityAgent extends BaseAgent {
     private void updateItineraryWithAttractions(String itineraryId, NormalizedItinerary skeleton,
                                                 List<PopulatedAttraction> populatedAttractions) {
         
+        applyAttractions(skeleton, skeleton.getDays(), populatedAttractions);
+        
+        // Save updated itinerary
+        try {
+            skeleton.setUpdatedAt(System.currentTimeMillis());
+            itineraryJsonService.updateItinerary(skeleton);
+            logger.info("Saved itinerary with populated attractions");
+        } catch (Exception e) {
+            logger.error("Failed to save itinerary with attractions: {}", e.getMessage());
+        }
+    }
+    
+    /**
+     * Apply populated attraction data to the nodes of the given days.
+     */
+    private void applyAttractions(NormalizedItinerary skeleton, List<NormalizedDay> days,
+                                  List<PopulatedAttraction> populatedAttractions) {
+        
         // Create a map for quick lookup
         Map<String, PopulatedAttraction> attractionMap = populatedAttractions.stream()
             .collect(Collectors.toMap(PopulatedAttraction::getNodeId, a -> a));
         
         // Update nodes in skeleton
-        for (NormalizedDay day : skeleton.getDays()) {
+        for (NormalizedDay day : days) {
             if (day.getNodes() == null) continue;
             
             for (NormalizedNode node : day.getNodes()) {
@@ -237,15 +285,6 @@ public class ActivityAgent extends BaseAgent {
                 }
             }
         }
-        
-        // Save updated itinerary
-        try {
-            skeleton.setUpdatedAt(System.currentTimeMillis());
-            itineraryJsonService.updateItinerary(skeleton);
-            logger.info("Saved itinerary with populated attractions");
-        } catch (Exception e) {
-            logger.error("Failed to save itinerary with attractions: {}", e.getMessage());
-        }
     }
     
     private String buildActivitySystemPrompt() {
@@ -183,6 +183,8 @@ public abstract class BaseAgent {
                 return "explain";
             case ENRICHMENT:
                 return "enrich";
+            case ROUTE_OPTIMIZER:
+                return "optimize_route";
             default:
                 // For others, lowercase the kind name
                 return kind.name().toLowerCase();
@@ -193,7 +195,14 @@ public abstract class BaseAgent {
      * Emit progress update during execution.
      */
     protected void emitProgress(String itineraryId, int progress, String message, String step) {
-        emitEvent(itineraryId, AgentEvent.AgentStatus.running, progress, message, step);
+        emitEvent(itineraryId, AgentEvent.AgentStatus.running, progress, message, step, null);
+    }
+    
+    /**
+     * Emit progress update carrying intermediate results, such as the best search results so far.
+     */
+    protected void emitProgress(String itineraryId, int progress, String message, String step, Object data) {
+        emitEvent(itineraryId, AgentEvent.AgentStatus.running, progress, message, step, data);
     }
     
     /**
@@ -201,6 +210,11 @@ public abstract class BaseAgent {
      */
     private void emitEvent(String itineraryId, AgentEvent.AgentStatus status, 
                           Integer progress, String message, String step) {
+        emitEvent(itineraryId, status, progress, message, step, null);
+    }
+    
+    private void emitEvent(String itineraryId, AgentEvent.AgentStatus status, 
+                          Integer progress, String message, String step, Object data) {
         AgentEvent event = new AgentEvent(
                 agentId,
                 agentKind,
@@ -209,7 +223,8 @@ public abstract class BaseAgent {
                 message,
                 step,
                 Instant.now(),
-                itineraryId
+                itineraryId,
+                data
         );
         
         eventBus.publish(itineraryId, event);
@@ -2,8 +2,10 @@ package com.tripplanner.agents;
 
 import com.tripplanner.dto.*;
 import com.tripplanner.service.*;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.time.LocalDateTime;
@@ -11,6 +13,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * BookingAgent for handling hotel, flight, and activity bookings.
@@ -21,11 +25,24 @@ public class BookingAgent extends BaseAgent {
     
     private static final Logger logger = LoggerFactory.getLogger(BookingAgent.class);
     
+    private static final int MAX_CONCURRENT_SEARCHES = 8;
+    
     private final BookingComService bookingComService;
     private final ExpediaService expediaService;
     private final RazorpayService razorpayService;
     private final ItineraryJsonService itineraryJsonService;
     
+    // Provider searches of all booking requests run here, so they can proceed concurrently
+    private final ExecutorService searchExecutor = Executors.newFixedThreadPool(MAX_CONCURRENT_SEARCHES, r -> {
+        Thread t = new Thread(r);
+        t.setName("Booking-Search-" + t.getId());
+        t.setDaemon(true);
+        return t;
+    });
+    
+    @Value("${booking.search.top-k:20}")
+    private int searchTopK = 20;
+    
     public BookingAgent(AgentEventBus eventBus,
                        BookingComService bookingComService,
                        ExpediaService expediaService,
@@ -38,6 +55,11 @@ public class BookingAgent extends BaseAgent {
         this.itineraryJsonService = itineraryJsonService;
     }
     
+    @PreDestroy
+    public void shutdown() {
+        searchExecutor.shutdownNow();
+    }
+    
     @Override
     public AgentCapabilities getCapabilities() {
         AgentCapabilities capabilities = new AgentCapabilities();
@@ -96,13 +118,13 @@ public class BookingAgent extends BaseAgent {
             BookingResult result;
             switch (bookingRequest.getBookingType().toLowerCase()) {
                 case "hotel":
-                    result = bookHotel(bookingRequest);
+                    result = bookHotel(itineraryId, bookingRequest);
                     break;
                 case "flight":
-                    result = bookFlight(bookingRequest);
+                    result = bookFlight(itineraryId, bookingRequest);
                     break;
                 case "activity":
-                    result = bookActivity(bookingRequest);
+                    result = bookActivity(itineraryId, bookingRequest);
                     break;
                 default:
                     throw new IllegalArgumentException("Unsupported booking type: " + bookingRequest.getBookingType());
@@ -147,25 +169,32 @@ public class BookingAgent extends BaseAgent {
     /**
      * Book a hotel using BookingComService.
      */
-    private BookingResult bookHotel(BookingRequest request) {
+    private BookingResult bookHotel(String itineraryId, BookingRequest request) {
         logger.info("Booking hotel for location: {}", request.getLocation());
         
         try {
-            emitProgress(null, 30, "Searching for hotels", "search");
-            
-            // Search hotels using BookingComService
-            HotelSearchResponse searchResponse = bookingComService.searchHotels(request);
-            
-            if (!searchResponse.isSuccessful() || !searchResponse.hasHotels()) {
+            emitProgress(itineraryId, 30, "Searching for hotels", "search");
+            
+            // Search all hotel providers at once, keeping the best results by hotel score
+            ProviderFanOut.Result<Hotel> search = new ProviderFanOut<>(BookingComService.HOTEL_RANKING, searchTopK)
+                    .provider("Booking.com", bookingComService.getSearchTimeoutMs(), () -> {
+                        HotelSearchResponse response = bookingComService.searchHotels(request);
+                        return response.isSuccessful() && response.hasHotels() ? response.getHotels() : List.of();
+                    })
+                    .search(searchExecutor, (provider, best) ->
+                            emitProgress(itineraryId, 40, "Found " + best.size() + " hotels so far (" + provider + ")", "search", best));
+            search.rethrowIfAllFailed();
+            
+            if (search.getResults().isEmpty()) {
                 return createErrorResult("NO_HOTELS_FOUND", "No hotels found for the specified criteria");
             }
             
-            emitProgress(null, 50, "Selecting best hotel", "select");
+            emitProgress(itineraryId, 50, "Selecting best hotel", "select");
             
             // Rank and select best hotel
-            Hotel selectedHotel = rankAndSelectHotel(searchResponse.getHotels(), request);
+            Hotel selectedHotel = rankAndSelectHotel(search.getResults(), request);
             
-            emitProgress(null, 60, "Processing payment", "payment");
+            emitProgress(itineraryId, 60, "Processing payment", "payment");
             
             // Process payment using RazorpayService
             PaymentRequest paymentRequest = createHotelPaymentRequest(selectedHotel, request);
@@ -179,7 +208,7 @@ public class BookingAgent extends BaseAgent {
                 return createErrorResult("PAYMENT_FAILED", "Payment failed: " + paymentResult.getErrorMessage());
             }
             
-            emitProgress(null, 80, "Confirming hotel booking", "confirm");
+            emitProgress(itineraryId, 80, "Confirming hotel booking", "confirm");
             
             // Confirm booking using BookingComService
             BookingConfirmation confirmation = bookingComService.confirmBooking(selectedHotel, paymentResult);
@@ -229,25 +258,32 @@ public class BookingAgent extends BaseAgent {
     /**
      * Book a flight using ExpediaService.
      */
-    private BookingResult bookFlight(BookingRequest request) {
+    private BookingResult bookFlight(String itineraryId, BookingRequest request) {
         logger.info("Booking flight from {} to {}", request.getOrigin(), request.getDestination());
         
         try {
-            emitProgress(null, 30, "Searching for flights", "search");
-            
-            // Search flights using ExpediaService
-            FlightSearchResponse searchResponse = expediaService.searchFlights(request);
-            
-            if (!searchResponse.isSuccessful() || !searchResponse.hasFlights()) {
+            emitProgress(itineraryId, 30, "Searching for flights", "search");
+            
+            // Search all flight providers at once, keeping the best results by price and duration
+            ProviderFanOut.Result<Flight> search = new ProviderFanOut<>(ExpediaService.FLIGHT_ORDER, searchTopK)
+                    .provider("Expedia", expediaService.getSearchTimeoutMs(), () -> {
+                        FlightSearchResponse response = expediaService.searchFlights(request);
+                        return response.isSuccessful() && response.hasFlights() ? response.getFlights() : List.of();
+                    })
+                    .search(searchExecutor, (provider, best) ->
+                            emitProgress(itineraryId, 40, "Found " + best.size() + " flights so far (" + provider + ")", "search", best));
+            search.rethrowIfAllFailed();
+            
+            if (search.getResults().isEmpty()) {
                 return createErrorResult("NO_FLIGHTS_FOUND", "No flights found for the specified criteria");
             }
             
-            emitProgress(null, 50, "Selecting best flight", "select");
+            emitProgress(itineraryId, 50, "Selecting best flight", "select");
             
             // Select best flight (first in ranked list)
-            Flight selectedFlight = searchResponse.getFlights().get(0);
+            Flight selectedFlight = search.getResults().get(0);
             
-            emitProgress(null, 60, "Processing payment", "payment");
+            emitProgress(itineraryId, 60, "Processing payment", "payment");
             
             // Process payment using RazorpayService
             PaymentRequest paymentRequest = createFlightPaymentRequest(selectedFlight, request);
@@ -261,7 +297,7 @@ public class BookingAgent extends BaseAgent {
                 return createErrorResult("PAYMENT_FAILED", "Payment failed: " + paymentResult.getErrorMessage());
             }
             
-            emitProgress(null, 80, "Confirming flight booking", "confirm");
+            emitProgress(itineraryId, 80, "Confirming flight booking", "confirm");
             
             // Confirm flight booking using ExpediaService
             BookingConfirmation confirmation = expediaService.confirmFlightBooking(selectedFlight, paymentResult);
@@ -308,25 +344,32 @@ public class BookingAgent extends BaseAgent {
     /**
      * Book an activity using ExpediaService.
      */
-    private BookingResult bookActivity(BookingRequest request) {
+    private BookingResult bookActivity(String itineraryId, BookingRequest request) {
         logger.info("Booking activity in {} for type: {}", request.getLocation(), request.getActivityType());
         
         try {
-            emitProgress(null, 30, "Searching for activities", "search");
-            
-            // Search activities using ExpediaService
-            ActivitySearchResponse searchResponse = expediaService.searchActivities(request);
-            
-            if (!searchResponse.isSuccessful() || !searchResponse.hasActivities()) {
+            emitProgress(itineraryId, 30, "Searching for activities", "search");
+            
+            // Search all activity providers at once, keeping the best results by rating and price
+            ProviderFanOut.Result<Activity> search = new ProviderFanOut<>(ExpediaService.ACTIVITY_ORDER, searchTopK)
+                    .provider("Expedia", expediaService.getSearchTimeoutMs(), () -> {
+                        ActivitySearchResponse response = expediaService.searchActivities(request);
+                        return response.isSuccessful() && response.hasActivities() ? response.getActivities() : List.of();
+                    })
+                    .search(searchExecutor, (provider, best) ->
+                            emitProgress(itineraryId, 40, "Found " + best.size() + " activities so far (" + provider + ")", "search", best));
+            search.rethrowIfAllFailed();
+            
+            if (search.getResults().isEmpty()) {
                 return createErrorResult("NO_ACTIVITIES_FOUND", "No activities found for the specified criteria");
             }
             
-            emitProgress(null, 50, "Selecting best activity", "select");
+            emitProgress(itineraryId, 50, "Selecting best activity", "select");
             
             // Select best activity (first in sorted list)
-            Activity selectedActivity = searchResponse.getActivities().get(0);
+            Activity selectedActivity = search.getResults().get(0);
             
-            emitProgress(null, 60, "Processing payment", "payment");
+            emitProgress(itineraryId, 60, "Processing payment", "payment");
             
             // Process payment using RazorpayService
             PaymentRequest paymentRequest = createActivityPaymentRequest(selectedActivity, request);
@@ -2,6 +2,7 @@ package com.tripplanner.agents;
 
 import com.tripplanner.dto.*;
 import com.tripplanner.service.AgentEventBus;
+import com.tripplanner.service.CostEstimationService;
 import com.tripplanner.service.ItineraryJsonService;
 import org.springframework.stereotype.Component;
 
@@ -10,60 +11,25 @@ import java.util.*;
 /**
  * CostEstimatorAgent - Adds realistic cost estimates to all nodes.
  * 
- * This agent uses a combination of lookup tables and heuristics to estimate costs
- * based on node type, destination, and budget tier.
+ * This agent uses per-destination cost tables (see CostModel) to estimate costs
+ * based on node type, enriched price level, destination, and budget tier.
  * 
  * Responsibilities:
- * - Add cost estimates to all nodes
- * - Adjust for budget tier (budget, medium, luxury)
- * - Use reasonable defaults for different node types
- * - Ensure currency consistency
+ * - Add cost estimates to nodes that have none
+ * - Adjust for price level, or budget tier (budget, medium, luxury) when it is unknown
+ * - Learn destination prices from booked nodes
+ * - Ensure currency consistency within an itinerary
+ * 
+ * Estimation is one pass over the nodes that produces cost-only deltas; the itinerary is
+ * only saved when they change something.
  * 
- * Processing Time: 3-5 seconds (rule-based, no AI needed)
  * todo: Future improvement - integrate with places/maps APIs for real-time data
  */
 @Component
-public class CostEstimatorAgent extends BaseAgent {
+public class CostEstimatorAgent extends BaseAgent implements CostEstimationService {
     
     private final ItineraryJsonService itineraryJsonService;
     
-    // Cost estimation tables (INR)
-    private static final Map<String, Integer> BASE_COSTS = Map.ofEntries(
-        // Attractions
-        Map.entry("attraction_museum", 500),
-        Map.entry("attraction_landmark", 300),
-        Map.entry("attraction_park", 200),
-        Map.entry("attraction_temple_shrine", 100),
-        Map.entry("attraction_entertainment", 1500),
-        Map.entry("attraction_shopping", 0),
-        Map.entry("attraction_experience", 2000),
-        Map.entry("attraction_nature", 500),
-        Map.entry("attraction_default", 400),
-        
-        // Meals
-        Map.entry("meal_breakfast", 300),
-        Map.entry("meal_lunch", 600),
-        Map.entry("meal_dinner", 1000),
-        Map.entry("meal_snack", 200),
-        Map.entry("meal_default", 600),
-        
-        // Transport
-        Map.entry("transport_walk", 0),
-        Map.entry("transport_taxi", 400),
-        Map.entry("transport_rideshare", 350),
-        Map.entry("transport_bus", 50),
-        Map.entry("transport_metro", 80),
-        Map.entry("transport_train", 500),
-        Map.entry("transport_tram", 60),
-        Map.entry("transport_ferry", 300),
-        Map.entry("transport_flight", 5000),
-        Map.entry("transport_car_rental", 2000),
-        Map.entry("transport_default", 300),
-        
-        // Accommodation
-        Map.entry("accommodation_default", 3000)
-    );
-    
     // Budget tier multipliers
     private static final Map<String, Double> BUDGET_MULTIPLIERS = Map.of(
         "budget", 0.6,
@@ -71,6 +37,10 @@ public class CostEstimatorAgent extends BaseAgent {
         "luxury", 2.0
     );
     
+    private static final int MAX_CACHED_DESTINATIONS = 256;
+    
+    private final CostModel costModel = new CostModel(MAX_CACHED_DESTINATIONS);
+    
     public CostEstimatorAgent(AgentEventBus eventBus, ItineraryJsonService itineraryJsonService) {
         super(eventBus, AgentEvent.AgentKind.ENRICHMENT);
         this.itineraryJsonService = itineraryJsonService;
@@ -100,66 +70,32 @@ public class CostEstimatorAgent extends BaseAgent {
         try {
             emitProgress(itineraryId, 10, "Loading cost data", "loading");
             
-            double budgetMultiplier = BUDGET_MULTIPLIERS.getOrDefault(
-                budgetTier != null ? budgetTier.toLowerCase() : "medium", 1.0);
-            
-            int totalNodes = 0;
-            double totalCost = 0;
             int totalDays = itinerary.getDays().size();
-            int processedDays = 0;
-            
             emitProgress(itineraryId, 30, 
                 String.format("Estimating costs for %d days", totalDays), 
                 "estimating");
             
-            for (NormalizedDay day : itinerary.getDays()) {
-                if (day.getNodes() == null) continue;
-                
-                double dayCost = 0.0;
-                
-                for (NormalizedNode node : day.getNodes()) {
-                    if (node.getCost() == null || node.getCost().getAmountPerPerson() == null) {
-                        int estimatedCost = estimateNodeCost(node, budgetMultiplier);
-                        
-                        if (node.getCost() == null) {
-                            node.setCost(new NodeCost());
-                        }
-                        node.getCost().setAmountPerPerson((double) estimatedCost);
-                        node.getCost().setCurrency("INR");
-                        
-                        dayCost += estimatedCost;
-                        totalCost += estimatedCost;
-                        totalNodes++;
-                    } else {
-                        // Node already has cost, add to day total
-                        dayCost += node.getCost().getAmountPerPerson();
-                    }
-                }
-                
-                // Set day total cost
-                day.setTotalCost(dayCost);
+            CostDeltas deltas = estimate(itinerary, budgetTier, null, null);
+            
+            if (deltas.isEmpty()) {
+                logger.info("Costs already up to date for itinerary: {}", itineraryId);
+            } else {
+                emitProgress(itineraryId, 70, "Saving cost data", "saving");
                 
-                // Send progress update
-                processedDays++;
-                int progress = 30 + (int) ((processedDays / (double) totalDays) * 40);
-                emitProgress(itineraryId, progress, 
-                    String.format("Estimated costs for day %d/%d", processedDays, totalDays), 
-                    "estimating");
+                // Save updated itinerary
+                deltas.applyTo(itinerary);
+                itinerary.setUpdatedAt(System.currentTimeMillis());
+                itineraryJsonService.updateItinerary(itinerary);
             }
             
-            emitProgress(itineraryId, 70, "Saving cost data", "saving");
-            
-            // Save updated itinerary
-            itinerary.setUpdatedAt(System.currentTimeMillis());
-            itineraryJsonService.updateItinerary(itinerary);
-            
             emitProgress(itineraryId, 100, 
-                String.format("Estimated costs for %d nodes", totalNodes), 
+                String.format("Estimated costs for %d nodes", deltas.getNodeCosts().size()), 
                 "complete");
             
             logger.info("=== COST ESTIMATOR COMPLETE ===");
-            logger.info("Estimated costs for {} nodes", totalNodes);
-            logger.info("Total estimated cost: ₹{} per person", String.format("%.0f", totalCost));
+            logger.info("Estimated costs for {} nodes", deltas.getNodeCosts().size());
+            logger.info("Total estimated cost: {} {} per person", 
+                String.format("%.0f", deltas.getEstimatedTotal()), deltas.getCurrency());
             
         } catch (Exception e) {
             logger.error("Failed to estimate costs for itinerary: {}", itineraryId, e);
@@ -169,26 +105,92 @@ public class CostEstimatorAgent extends BaseAgent {
     }
     
     /**
-     * Estimate cost for a single node.
+     * Estimate costs for edited nodes that have none and recompute the edited days' totals.
+     * Existing costs are left alone.
      */
-    private int estimateNodeCost(NormalizedNode node, double budgetMultiplier) {
-        String nodeType = node.getType();
-        String category = node.getDetails() != null ? node.getDetails().getCategory() : null;
+    @Override
+    public int estimateChangedNodes(NormalizedItinerary itinerary, Collection<String> nodeIds,
+                                    Collection<Integer> dayNumbers) {
+        if (itinerary == null || itinerary.getDays() == null || dayNumbers == null || dayNumbers.isEmpty()) {
+            return 0;
+        }
+        CostDeltas deltas = estimate(itinerary, null,
+            nodeIds != null ? new HashSet<>(nodeIds) : Collections.emptySet(), new HashSet<>(dayNumbers));
+        deltas.applyTo(itinerary);
+        logger.debug("Estimated costs for {} edited nodes in itinerary {}", 
+            deltas.getNodeCosts().size(), itinerary.getItineraryId());
+        return deltas.getNodeCosts().size();
+    }
+    
+    /**
+     * Work out the cost changes for an itinerary without modifying it. Booked nodes are read
+     * first so their prices inform the estimates; then every node without a cost (limited to
+     * onlyNodeIds when given) is estimated and day totals are recomputed. When onlyDays is given,
+     * days outside it are skipped entirely.
+     */
+    CostDeltas estimate(NormalizedItinerary itinerary, String budgetTier, Set<String> onlyNodeIds,
+                        Set<Integer> onlyDays) {
+        double budgetMultiplier = BUDGET_MULTIPLIERS.getOrDefault(
+            budgetTier != null ? budgetTier.toLowerCase() : "medium", 1.0);
+        String currency = CostModel.currencyFor(itinerary.getCurrency());
+        CostModel.CostTable table = costModel.table(itinerary.getDestination(), currency);
+        CostDeltas deltas = new CostDeltas(currency);
         
-        // Build lookup key
-        String lookupKey = nodeType + "_" + (category != null ? category : "default");
-        String fallbackKey = nodeType + "_default";
+        List<NormalizedDay> days = new ArrayList<>();
+        for (NormalizedDay day : itinerary.getDays()) {
+            if (day.getNodes() != null && (onlyDays == null || onlyDays.contains(day.getDayNumber()))) {
+                days.add(day);
+            }
+        }
+        
+        for (NormalizedDay day : days) {
+            for (NormalizedNode node : day.getNodes()) {
+                if (node.getBookingRef() != null && hasCost(node) && currency.equals(node.getCost().getCurrency())) {
+                    table.observe(itinerary.getItineraryId() + "/" + node.getId() + "/" + node.getBookingRef(),
+                        CostModel.keyIndex(node), CostModel.tierOf(node), node.getCost().getAmountPerPerson());
+                }
+            }
+        }
+        
+        for (NormalizedDay day : days) {
+            double dayCost = 0.0;
+            
+            for (NormalizedNode node : day.getNodes()) {
+                if (hasCost(node)) {
+                    // Node already has cost, add to day total
+                    dayCost += node.getCost().getAmountPerPerson();
+                } else if (onlyNodeIds == null || onlyNodeIds.contains(node.getId())) {
+                    double estimatedCost = estimateNodeCost(node, table, budgetMultiplier, currency);
+                    deltas.nodeCosts.add(new NodeCostDelta(day.getDayNumber(), node.getId(), estimatedCost));
+                    deltas.estimatedTotal += estimatedCost;
+                    dayCost += estimatedCost;
+                }
+            }
+            
+            if (day.getTotalCost() == null || day.getTotalCost() != dayCost) {
+                deltas.dayTotals.put(day.getDayNumber(), dayCost);
+            }
+        }
         
-        // Get base cost
-        Integer baseCost = BASE_COSTS.getOrDefault(lookupKey, 
-                          BASE_COSTS.getOrDefault(fallbackKey, 500));
+        return deltas;
+    }
+    
+    /**
+     * Estimate cost for a single node.
+     */
+    private double estimateNodeCost(NormalizedNode node, CostModel.CostTable table,
+                                    double budgetMultiplier, String currency) {
+        double cost = table.estimate(CostModel.keyIndex(node), CostModel.tierOf(node), budgetMultiplier);
         
-        // Apply budget multiplier and add some randomness for variety
-        double randomFactor = 0.8 + (Math.random() * 0.4); // 0.8 to 1.2
-        int estimatedCost = (int) (baseCost * budgetMultiplier * randomFactor);
+        // Vary estimates for variety, but stably per node so re-estimating gives the same costs
+        int hash = node.getId() != null ? node.getId().hashCode() : 0;
+        double variation = 0.8 + 0.4 * ((hash & 0x7fffffff) % 1000) / 999.0; // 0.8 to 1.2
         
-        // Round to nearest 50
-        return Math.max(0, (estimatedCost / 50) * 50);
+        return CostModel.round(cost * variation, currency);
+    }
+    
+    private static boolean hasCost(NormalizedNode node) {
+        return node.getCost() != null && node.getCost().getAmountPerPerson() != null;
     }
     
     @Override
@@ -201,5 +203,77 @@ public class CostEstimatorAgent extends BaseAgent {
     protected String getAgentName() {
         return "Cost Estimator Agent";
     }
+    
+    /**
+     * Cost-only changes to an itinerary: new node costs and changed day totals.
+     */
+    static class CostDeltas {
+        private final String currency;
+        private final List<NodeCostDelta> nodeCosts = new ArrayList<>();
+        private final Map<Integer, Double> dayTotals = new LinkedHashMap<>();
+        private double estimatedTotal;
+        
+        CostDeltas(String currency) {
+            this.currency = currency;
+        }
+        
+        boolean isEmpty() {
+            return nodeCosts.isEmpty() && dayTotals.isEmpty();
+        }
+        
+        String getCurrency() {
+            return currency;
+        }
+        
+        List<NodeCostDelta> getNodeCosts() {
+            return nodeCosts;
+        }
+        
+        Map<Integer, Double> getDayTotals() {
+            return dayTotals;
+        }
+        
+        double getEstimatedTotal() {
+            return estimatedTotal;
+        }
+        
+        /**
+         * Write the cost fields into the itinerary, leaving everything else untouched.
+         */
+        void applyTo(NormalizedItinerary itinerary) {
+            Map<String, NodeCostDelta> byNode = new HashMap<>();
+            for (NodeCostDelta delta : nodeCosts) {
+                byNode.put(delta.dayNumber + "/" + delta.nodeId, delta);
+            }
+            for (NormalizedDay day : itinerary.getDays()) {
+                if (day.getNodes() != null && !byNode.isEmpty()) {
+                    for (NormalizedNode node : day.getNodes()) {
+                        NodeCostDelta delta = byNode.get(day.getDayNumber() + "/" + node.getId());
+                        if (delta == null) continue;
+                        if (node.getCost() == null) {
+                            node.setCost(new NodeCost());
+                        }
+                        node.getCost().setAmountPerPerson(delta.amountPerPerson);
+                        node.getCost().setCurrency(currency);
+                    }
+                }
+                Double total = dayTotals.get(day.getDayNumber());
+                if (total != null) {
+                    day.setTotalCost(total);
+                }
+            }
+        }
+    }
+    
+    static class NodeCostDelta {
+        private final Integer dayNumber;
+        private final String nodeId;
+        private final double amountPerPerson;
+        
+        NodeCostDelta(Integer dayNumber, String nodeId, double amountPerPerson) {
+            this.dayNumber = dayNumber;
+            this.nodeId = nodeId;
+            this.amountPerPerson = amountPerPerson;
+        }
+    }
 }
-
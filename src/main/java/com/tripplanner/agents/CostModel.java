@@ -0,0 +1,201 @@
+package com.tripplanner.agents;
+
+import com.tripplanner.dto.NormalizedNode;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Per-destination cost tables used by CostEstimatorAgent.
+ *
+ * A table has one cell per cost key (node type and category, e.g. meal_dinner) and price tier.
+ * The tier is the Google priceLevel of an enriched place (0-4) plus one, with tier 0 meaning the
+ * price level is unknown. A cell starts from the built-in base cost and moves towards the prices
+ * paid for booked nodes at the same destination as they are observed. Cells are kept in flat
+ * primitive arrays, and tables are kept for the most recently used destinations.
+ */
+public class CostModel {
+
+    public static final String BASE_CURRENCY = "INR";
+    public static final int TIERS = 6;
+
+    private static final int UNKNOWN_COST = 500;
+
+    // Base costs per person (INR)
+    private static final String[] KEYS = {
+        // Attractions
+        "attraction_museum", "attraction_landmark", "attraction_park", "attraction_temple_shrine",
+        "attraction_entertainment", "attraction_shopping", "attraction_experience", "attraction_nature",
+        "attraction_default",
+        // Meals
+        "meal_breakfast", "meal_lunch", "meal_dinner", "meal_snack", "meal_default",
+        // Transport
+        "transport_walk", "transport_taxi", "transport_rideshare", "transport_bus", "transport_metro",
+        "transport_train", "transport_tram", "transport_ferry", "transport_flight", "transport_car_rental",
+        "transport_default",
+        // Accommodation
+        "accommodation_default"
+    };
+    private static final int[] BASE_COSTS = {
+        500, 300, 200, 100, 1500, 0, 2000, 500, 400,
+        300, 600, 1000, 200, 600,
+        0, 400, 350, 50, 80, 500, 60, 300, 5000, 2000, 300,
+        3000
+    };
+    private static final Map<String, Integer> KEY_INDEX = new HashMap<>();
+
+    static {
+        for (int i = 0; i < KEYS.length; i++) {
+            KEY_INDEX.put(KEYS[i], i);
+        }
+    }
+
+    // Scales the base cost by price tier; tier 0 (unknown) is scaled by the budget tier instead
+    private static final double[] TIER_FACTORS = {1.0, 0.0, 0.6, 1.0, 1.6, 2.5};
+
+    // How many observed prices the base cost counts as when blending them
+    private static final double PRIOR_WEIGHT = 2.0;
+
+    // Rough INR value of one unit of each supported currency, only used to express base costs
+    private static final Map<String, Double> INR_PER_UNIT = Map.of(
+        "INR", 1.0,
+        "USD", 83.0,
+        "EUR", 90.0,
+        "GBP", 105.0,
+        "JPY", 0.56,
+        "AUD", 55.0,
+        "CAD", 61.0,
+        "SGD", 62.0,
+        "AED", 22.6,
+        "THB", 2.3
+    );
+
+    private static final int MAX_OBSERVED_PER_TABLE = 1024;
+
+    private final int maxDestinations;
+
+    // Least recently used destinations are dropped first
+    private final Map<String, CostTable> tables;
+
+    public CostModel(int maxDestinations) {
+        this.maxDestinations = maxDestinations;
+        this.tables = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CostTable> eldest) {
+                return size() > maxDestinations;
+            }
+        });
+    }
+
+    /**
+     * The cost table for a destination in a currency, created from the base costs on first use.
+     */
+    public CostTable table(String destination, String currency) {
+        String key = normalize(destination) + "|" + currency;
+        return tables.computeIfAbsent(key, k -> new CostTable(INR_PER_UNIT.get(currency)));
+    }
+
+    /**
+     * Currency of the estimates for an itinerary currency: the itinerary's own when base costs can
+     * be expressed in it, otherwise INR.
+     */
+    public static String currencyFor(String itineraryCurrency) {
+        if (itineraryCurrency == null) {
+            return BASE_CURRENCY;
+        }
+        String currency = itineraryCurrency.trim().toUpperCase(Locale.ROOT);
+        return INR_PER_UNIT.containsKey(currency) ? currency : BASE_CURRENCY;
+    }
+
+    /**
+     * Cost key index of a node, or -1 when neither its category nor its type has a base cost.
+     */
+    public static int keyIndex(NormalizedNode node) {
+        String type = node.getType();
+        String category = node.getDetails() != null ? node.getDetails().getCategory() : null;
+        Integer index = KEY_INDEX.get(type + "_" + (category != null ? category : "default"));
+        if (index == null) {
+            index = KEY_INDEX.get(type + "_default");
+        }
+        return index != null ? index : -1;
+    }
+
+    /**
+     * Price tier of a node: its enriched priceLevel plus one, or 0 if unknown.
+     */
+    public static int tierOf(NormalizedNode node) {
+        Integer priceLevel = node.getLocation() != null ? node.getLocation().getPriceLevel() : null;
+        if (priceLevel == null || priceLevel < 0) {
+            return 0;
+        }
+        return Math.min(priceLevel, TIERS - 2) + 1;
+    }
+
+    /**
+     * Round an estimate down to a step that suits the currency.
+     */
+    public static double round(double amount, String currency) {
+        double perUnit = INR_PER_UNIT.getOrDefault(currency, 1.0);
+        double step = BASE_CURRENCY.equals(currency) ? 50 : perUnit < 1 ? 100 : 1;
+        return Math.max(0, Math.floor(amount / step) * step);
+    }
+
+    private static String normalize(String destination) {
+        return destination != null ? destination.trim().toLowerCase(Locale.ROOT) : "";
+    }
+
+    /**
+     * Costs for one destination and currency.
+     */
+    public static class CostTable {
+        private final double unitsPerInr;
+        private final double[] observedSums = new double[KEYS.length * TIERS];
+        private final int[] observedCounts = new int[KEYS.length * TIERS];
+
+        // Booked nodes already observed, so re-estimating an itinerary does not count them twice
+        private final Map<String, Boolean> observed = new LinkedHashMap<>(16, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > MAX_OBSERVED_PER_TABLE;
+            }
+        };
+
+        CostTable(double inrPerUnit) {
+            this.unitsPerInr = 1.0 / inrPerUnit;
+        }
+
+        /**
+         * Cost per person for a cost key and tier, before rounding.
+         *
+         * @param key cost key index, or -1 when unknown
+         * @param budgetMultiplier applied when the tier is unknown
+         */
+        public synchronized double estimate(int key, int tier, double budgetMultiplier) {
+            double base = (key >= 0 ? BASE_COSTS[key] : UNKNOWN_COST) * unitsPerInr;
+            base *= tier > 0 ? TIER_FACTORS[tier] : budgetMultiplier;
+            if (key < 0) {
+                return base;
+            }
+            int cell = key * TIERS + tier;
+            return (base * PRIOR_WEIGHT + observedSums[cell]) / (PRIOR_WEIGHT + observedCounts[cell]);
+        }
+
+        /**
+         * Record a price paid, once per observation id.
+         *
+         * @return whether the observation was new
+         */
+        public synchronized boolean observe(String observationId, int key, int tier, double amount) {
+            if (key < 0 || amount < 0 || observed.putIfAbsent(observationId, Boolean.TRUE) != null) {
+                return false;
+            }
+            int cell = key * TIERS + tier;
+            observedSums[cell] += amount;
+            observedCounts[cell]++;
+            return true;
+        }
+    }
+}
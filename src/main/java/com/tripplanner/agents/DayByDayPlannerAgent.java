@@ -1,16 +1,21 @@
 package com.tripplanner.agents;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.tripplanner.dto.*;
 import com.tripplanner.service.AgentEventBus;
+import com.tripplanner.service.CompiledSchema;
 import com.tripplanner.service.ItineraryJsonService;
+import com.tripplanner.service.PipelineCheckpointStore;
 import com.tripplanner.service.SummarizationService;
 import com.tripplanner.service.AgentEventPublisher;
+import com.tripplanner.service.StructuredOutputBinder;
 import com.tripplanner.service.ai.AiClient;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
@@ -18,6 +23,7 @@ import java.util.*;
 /**
  * Enhanced Planner Agent that creates itineraries day-by-day to avoid token limits
  * and prevent location duplication across days.
+ * Planned batches are checkpointed, so a retry after a failure only plans the remaining days.
  * todo: this is not yet implemented in original flow but must be replaced with planner agent
  */
 @Component
@@ -30,6 +36,9 @@ public class DayByDayPlannerAgent extends BaseAgent {
     private final SummarizationService summarizationService;
     private final AgentEventPublisher agentEventPublisher;
     
+    @Autowired(required = false)
+    private PipelineCheckpointStore checkpointStore;
+    
     // Token limits for different models
     private static final int MAX_CONTEXT_TOKENS = 8000; // Conservative limit
     private static final int ESTIMATED_TOKENS_PER_DAY = 1500; // Rough estimate
@@ -37,6 +46,89 @@ public class DayByDayPlannerAgent extends BaseAgent {
     // If experiencing timeouts, reduce to 1. Currently set to 2 for balance.
     private static final int MAX_DAYS_PER_BATCH = 2; // Process 2 days at once (reduce to 1 if timeouts persist)
     
+    private static final String CHECKPOINT_SOURCE = "planner";
+    
+    // Compiled once; each entry of "days" is bound with a cached NormalizedDay reader
+    private static final CompiledSchema DAY_BATCH_SCHEMA = CompiledSchema.compile(
+        """
+            {
+              "type": "object",
+              "properties": {
+                "days": {
+                  "type": "array",
+                  "items": {
+                    "type": "object",
+                    "properties": {
+                      "dayNumber": { "type": "integer" },
+                      "date": { "type": "string", "format": "date" },
+                      "location": { "type": "string" },
+                      "summary": { "type": "string" },
+                      "nodes": {
+                        "type": "array",
+                        "minItems": 3,
+                        "items": {
+                          "type": "object",
+                          "properties": {
+                            "id": { "type": "string" },
+                            "type": { "type": "string", "enum": ["attraction", "meal", "accommodation", "transport"] },
+                            "title": { "type": "string" },
+                            "location": {
+                              "type": "object",
+                              "properties": {
+                                "name": { "type": "string" },
+                                "address": { "type": "string" },
+                                "coordinates": {
+                                  "type": "object",
+                                  "properties": {
+                                    "lat": { "type": "number" },
+                                    "lng": { "type": "number" }
+                                  }
+                                }
+                              },
+                              "required": ["name"]
+                            },
+                            "timing": {
+                              "type": "object",
+                              "properties": {
+                                "startTime": { "type": "string" },
+                                "endTime": { "type": "string" },
+                                "durationMin": { "type": "integer" }
+                              }
+                            },
+                            "cost": {
+                              "type": "object",
+                              "properties": {
+                                "amountPerPerson": { "type": "number" },
+                                "currency": { "type": "string", "default": "INR" }
+                              }
+                            },
+                            "details": {
+                              "type": "object",
+                              "properties": {
+                                "description": { "type": "string" },
+                                "category": { "type": "string" },
+                                "rating": { "type": "number" }
+                              }
+                            }
+                          },
+                          "required": ["id", "type", "title", "location"]
+                        }
+                      }
+                    },
+                    "required": ["dayNumber", "date", "location", "nodes"]
+                  }
+                }
+              },
+              "required": ["days"]
+            }
+            """);
+    
+    private final StructuredOutputBinder<NormalizedDay> dayBinder;
+    
+    // Strict schema validation also checks nested fields, enums and integer types
+    @Value("${ai.strict-schema-validation:false}")
+    private boolean strictSchemaValidation;
+    
     public DayByDayPlannerAgent(AgentEventBus eventBus, AiClient aiClient, ObjectMapper objectMapper,
                                ItineraryJsonService itineraryJsonService, SummarizationService summarizationService,
                                AgentEventPublisher agentEventPublisher) {
@@ -46,6 +138,7 @@ public class DayByDayPlannerAgent extends BaseAgent {
         this.itineraryJsonService = itineraryJsonService;
         this.summarizationService = summarizationService;
         this.agentEventPublisher = agentEventPublisher;
+        this.dayBinder = new StructuredOutputBinder<>(DAY_BATCH_SCHEMA.property("days").items(), objectMapper, NormalizedDay.class);
     }
     
     @Override
@@ -88,6 +181,10 @@ public class DayByDayPlannerAgent extends BaseAgent {
         logger.info("Processing in batches to avoid token limits");
         logger.info("==========================================");
         
+        PipelineCheckpointStore.Checkpoint checkpoint = checkpointStore != null
+            ? checkpointStore.open(CHECKPOINT_SOURCE, itineraryId, itineraryReq, null)
+            : PipelineCheckpointStore.Checkpoint.NONE;
+        
         try {
             // Create initial itinerary structure
             NormalizedItinerary itinerary = createInitialItinerary(itineraryId, itineraryReq);
@@ -108,16 +205,25 @@ public class DayByDayPlannerAgent extends BaseAgent {
                     String.format("Planning days %d-%d", processedDays + 1, processedDays + batchSize),
                     "day_planning");
                 
-                // Plan this batch of days with real-time updates
-                List<NormalizedDay> batchDays = planDaysBatch(
-                    itineraryReq, 
-                    processedDays + 1, 
-                    batchSize, 
-                    previousDaysSummaries, 
-                    usedLocations,
-                    itineraryId,
-                    "exec_" + System.currentTimeMillis() // Generate execution ID if not available
-                );
+                // Plan this batch of days with real-time updates, unless a previous attempt already did
+                String batchKey = "batch:" + (processedDays + 1) + ":" + batchSize;
+                Optional<NormalizedDay[]> planned = checkpoint.get(batchKey, NormalizedDay[].class);
+                List<NormalizedDay> batchDays;
+                if (planned.isPresent()) {
+                    batchDays = new ArrayList<>(Arrays.asList(planned.get()));
+                    logger.info("Days {}-{} restored from checkpoint", processedDays + 1, processedDays + batchSize);
+                } else {
+                    batchDays = planDaysBatch(
+                        itineraryReq, 
+                        processedDays + 1, 
+                        batchSize, 
+                        previousDaysSummaries, 
+                        usedLocations,
+                        itineraryId,
+                        "exec_" + System.currentTimeMillis() // Generate execution ID if not available
+                    );
+                    checkpoint.put(batchKey, batchDays);
+                }
                 
                 // Add days to main itinerary and collect used locations
                 for (NormalizedDay day : batchDays) {
@@ -158,6 +264,7 @@ public class DayByDayPlannerAgent extends BaseAgent {
             // Finalize and save itinerary
             finalizeItinerary(itinerary, itineraryReq);
             itineraryJsonService.updateItinerary(itinerary);
+            checkpoint.complete();
             
             emitProgress(itineraryId, 100, "Itinerary completed", "complete");
             
@@ -175,6 +282,7 @@ public class DayByDayPlannerAgent extends BaseAgent {
             
         } catch (Exception e) {
             logger.error("Failed to create day-by-day itinerary: {}", itineraryId, e);
+            checkpoint.fail(e.getMessage());
             throw new RuntimeException("Failed to create itinerary: " + e.getMessage(), e);
         }
     }
@@ -208,9 +316,15 @@ public class DayByDayPlannerAgent extends BaseAgent {
             com.fasterxml.jackson.databind.JsonNode root = objectMapper.readTree(response);
             List<NormalizedDay> days = new ArrayList<>();
             
+            List<String> schemaErrors = DAY_BATCH_SCHEMA.validate(root, strictSchemaValidation);
+            if (!schemaErrors.isEmpty()) {
+                logger.warn("Day batch response for days {}-{} has schema warnings: {}", 
+                           startDay, startDay + batchSize - 1, schemaErrors);
+            }
+            
             if (root.has("days") && root.get("days").isArray()) {
                 for (com.fasterxml.jackson.databind.JsonNode dayNode : root.get("days")) {
-                    NormalizedDay day = objectMapper.treeToValue(dayNode, NormalizedDay.class);
+                    NormalizedDay day = dayBinder.bind(dayNode);
                     days.add(day);
                     
                     // Immediately update itinerary with new day for real-time access
@@ -262,7 +376,7 @@ public class DayByDayPlannerAgent extends BaseAgent {
             
             return days;
             
-        } catch (JsonProcessingException e) {
+        } catch (IOException e) {
             logger.error("Failed to parse day batch response", e);
             
             // Publish error event
@@ -419,78 +533,7 @@ public class DayByDayPlannerAgent extends BaseAgent {
     }
     
     private String buildDayBatchJsonSchema() {
-        return """
-            {
-              "type": "object",
-              "properties": {
-                "days": {
-                  "type": "array",
-                  "items": {
-                    "type": "object",
-                    "properties": {
-                      "dayNumber": { "type": "integer" },
-                      "date": { "type": "string", "format": "date" },
-                      "location": { "type": "string" },
-                      "summary": { "type": "string" },
-                      "nodes": {
-                        "type": "array",
-                        "minItems": 3,
-                        "items": {
-                          "type": "object",
-                          "properties": {
-                            "id": { "type": "string" },
-                            "type": { "type": "string", "enum": ["attraction", "meal", "accommodation", "transport"] },
-                            "title": { "type": "string" },
-                            "location": {
-                              "type": "object",
-                              "properties": {
-                                "name": { "type": "string" },
-                                "address": { "type": "string" },
-                                "coordinates": {
-                                  "type": "object",
-                                  "properties": {
-                                    "lat": { "type": "number" },
-                                    "lng": { "type": "number" }
-                                  }
-                                }
-                              },
-                              "required": ["name"]
-                            },
-                            "timing": {
-                              "type": "object",
-                              "properties": {
-                                "startTime": { "type": "string" },
-                                "endTime": { "type": "string" },
-                                "durationMin": { "type": "integer" }
-                              }
-                            },
-                            "cost": {
-                              "type": "object",
-                              "properties": {
-                                "amountPerPerson": { "type": "number" },
-                                "currency": { "type": "string", "default": "INR" }
-                              }
-                            },
-                            "details": {
-                              "type": "object",
-                              "properties": {
-                                "description": { "type": "string" },
-                                "category": { "type": "string" },
-                                "rating": { "type": "number" }
-                              }
-                            }
-                          },
-                          "required": ["id", "type", "title", "location"]
-                        }
-                      }
-                    },
-                    "required": ["dayNumber", "date", "location", "nodes"]
-                  }
-                }
-              },
-              "required": ["days"]
-            }
-            """;
+        return DAY_BATCH_SCHEMA.getSchemaJson();
     }
     
     private ItineraryDto convertToItineraryDto(NormalizedItinerary normalized, CreateItineraryReq request) {
@@ -3,6 +3,8 @@ package com.tripplanner.agents;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.tripplanner.dto.*;
 import com.tripplanner.service.*;
+import com.tripplanner.service.ai.LlmResponseStore;
+import com.tripplanner.util.TextPatterns;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
@@ -18,6 +20,135 @@ public class EditorAgent extends BaseAgent {
     
     private static final Logger logger = LoggerFactory.getLogger(EditorAgent.class);
     
+    // Schemas are compiled once at class load; the generation schema is sent to the provider,
+    // the validation schema checks responses before they are bound to ChangeSet.
+    private static final CompiledSchema CHANGE_SET_GENERATION_SCHEMA = CompiledSchema.compile(
+        """
+            {
+              "type": "object",
+              "properties": {
+                "ops": {
+                  "type": "array",
+                  "description": "Array of change operations to apply to the itinerary",
+                  "items": {
+                    "type": "object",
+                    "properties": {
+                      "op": {
+                        "type": "string",
+                        "enum": ["insert", "delete", "move", "replace"],
+                        "description": "Operation type: insert (add new), delete (remove), move (reorder), replace (modify)"
+                      },
+                      "id": {
+                        "type": "string",
+                        "description": "Node ID - REQUIRED. Use the exact node ID from the itinerary context"
+                      },
+                      "startTime": {
+                        "type": "string",
+                        "pattern": "^([0-1][0-9]|2[0-3]):[0-5][0-9]$",
+                        "description": "Start time in 24-hour format HH:mm. Examples: '09:00', '14:30', '18:00'"
+                      },
+                      "endTime": {
+                        "type": "string",
+                        "pattern": "^([0-1][0-9]|2[0-3]):[0-5][0-9]$",
+                        "description": "End time in 24-hour format HH:mm. Examples: '10:30', '15:30', '19:00'"
+                      },
+                      "after": {
+                        "type": "string",
+                        "description": "Node ID to insert/move after (for ordering operations)"
+                      },
+                      "position": {
+                        "type": "integer",
+                        "description": "Position index for insert operations (0-based)"
+                      },
+                      "node": {
+                        "type": "object",
+                        "description": "Node data for insert/replace operations",
+                        "properties": {
+                          "title": {
+                            "type": "string",
+                            "description": "Node title/name (REQUIRED)"
+                          },
+                          "type": {
+                            "type": "string",
+                            "enum": ["attraction", "meal", "accommodation", "transport"],
+                            "description": "Node type (REQUIRED)"
+                          },
+                          "location": {
+                            "type": "object",
+                            "description": "Location object with name and address (REQUIRED)",
+                            "properties": {
+                              "name": {
+                                "type": "string",
+                                "description": "Location name"
+                              },
+                              "address": {
+                                "type": "string",
+                                "description": "Full address"
+                              }
+                            },
+                            "required": ["name", "address"]
+                          }
+                        },
+                        "required": ["title", "type", "location"]
+                      }
+                    },
+                    "required": ["op", "id"]
+                  }
+                },
+                "day": {
+                  "type": "integer",
+                  "minimum": 1,
+                  "description": "Day number (1-based) that these operations apply to"
+                },
+                "reason": {
+                  "type": "string",
+                  "description": "Human-readable explanation of why these changes were made"
+                },
+                "agent": {
+                  "type": "string",
+                  "description": "Always set to 'EditorAgent'"
+                }
+              },
+              "required": ["ops", "day", "reason", "agent"]
+            }
+            """);
+    
+    private static final CompiledSchema CHANGE_SET_VALIDATION_SCHEMA = CompiledSchema.compile(
+        """
+            {
+              "type": "object",
+              "required": ["ops"],
+              "properties": {
+                "scope": { "type": "string" },
+                "day": { "type": "integer" },
+                "baseVersion": { "type": "integer" },
+                "idempotencyKey": { "type": "string" },
+                "ops": {
+                  "type": "array",
+                  "items": {
+                    "type": "object",
+                    "required": ["op"],
+                    "properties": {
+                      "op": { "type": "string", "enum": ["insert", "delete", "move", "replace", "update"] },
+                      "id": { "type": "string" },
+                      "after": { "type": "string" },
+                      "startTime": { "type": ["string", "integer"] },
+                      "endTime": { "type": ["string", "integer"] },
+                      "node": { "type": "object" }
+                    }
+                  }
+                },
+                "preferences": {
+                  "type": "object",
+                  "properties": {
+                    "userFirst": { "type": "boolean" },
+                    "respectLocks": { "type": "boolean" }
+                  }
+                }
+              }
+            }
+            """);
+    
     private final SummarizationService summarizationService;
     private final ChangeEngine changeEngine;
     private final GeminiClient geminiClient; // Using existing GeminiClient as LLM service
@@ -25,6 +156,7 @@ public class EditorAgent extends BaseAgent {
     private final ObjectMapper objectMapper;
     private final LLMResponseHandler llmResponseHandler;
     private final ItineraryMigrationService migrationService;
+    private final StructuredOutputBinder<ChangeSet> changeSetBinder;
     
     public EditorAgent(AgentEventBus eventBus,
                       SummarizationService summarizationService,
@@ -42,6 +174,7 @@ public class EditorAgent extends BaseAgent {
         this.objectMapper = objectMapper;
         this.llmResponseHandler = llmResponseHandler;
         this.migrationService = migrationService;
+        this.changeSetBinder = new StructuredOutputBinder<>(CHANGE_SET_VALIDATION_SCHEMA, objectMapper, ChangeSet.class);
     }
     
     @Override
@@ -91,8 +224,8 @@ public class EditorAgent extends BaseAgent {
             
             NormalizedItinerary itinerary = itineraryOpt.get();
             
-            // Migrate if needed before building context
-            itinerary = migrationService.migrateIfNeeded(itinerary);
+            // Migrate if needed before building context; saved with the edit
+            itinerary = migrationService.migrateInMemory(itinerary);
             logger.debug("Itinerary {} migrated (if needed), version: {}", itineraryId, itinerary.getVersion());
             
             // LOG: Itinerary state after migration
@@ -247,7 +380,11 @@ public class EditorAgent extends BaseAgent {
                 
                 // Call GeminiClient to generate ChangeSet using structured content generation
                 String jsonSchema = buildChangeSetJsonSchema();
-                String response = geminiClient.generateStructuredContent(prompt, jsonSchema, "You are an expert travel itinerary editor.");
+                // Retries must reach the model; a stored copy would repeat the response that just failed
+                String response = attempt == 1
+                        ? geminiClient.generateStructuredContent(prompt, jsonSchema, "You are an expert travel itinerary editor.")
+                        : LlmResponseStore.withoutDedup(() -> geminiClient.generateStructuredContent(
+                                prompt, jsonSchema, "You are an expert travel itinerary editor."));
                 
                 // Log full LLM response for analysis
                 logger.info("=== EDITOR AGENT - FULL LLM RESPONSE ===");
@@ -389,7 +526,7 @@ public class EditorAgent extends BaseAgent {
     private ChangeSet parseChangeSetFromResponse(String response) {
         try {
             // Create expected schema for ChangeSet validation
-            com.fasterxml.jackson.databind.JsonNode expectedSchema = createChangeSetSchema();
+            CompiledSchema expectedSchema = createChangeSetSchema();
             
             // Process response with LLMResponseHandler
             LLMResponseHandler.ProcessedResponse processedResponse = 
@@ -409,8 +546,8 @@ public class EditorAgent extends BaseAgent {
             // Convert time strings to timestamps before deserializing
             com.fasterxml.jackson.databind.JsonNode dataWithTimestamps = convertTimeStringsToTimestamps(processedResponse.getData());
             
-            // Convert JsonNode to ChangeSet
-            ChangeSet changeSet = objectMapper.treeToValue(dataWithTimestamps, ChangeSet.class);
+            // Bind to ChangeSet with the cached reader (already validated above)
+            ChangeSet changeSet = changeSetBinder.bind(dataWithTimestamps);
             
             return changeSet;
             
@@ -475,19 +612,16 @@ public class EditorAgent extends BaseAgent {
      * Uses current date as base for simplicity (day-relative timestamps).
      */
     private Long convertTimeStringToTimestamp(String timeStr) {
-        if (timeStr == null || !timeStr.matches("^([0-1][0-9]|2[0-3]):[0-5][0-9]$")) {
+        int minutesFromMidnight = TextPatterns.parseClockMinutes(timeStr);
+        if (minutesFromMidnight < 0) {
             logger.warn("Invalid time format: {}", timeStr);
             return null;
         }
         
         try {
-            String[] parts = timeStr.split(":");
-            int hours = Integer.parseInt(parts[0]);
-            int minutes = Integer.parseInt(parts[1]);
-            
             // Convert to milliseconds from start of day
             // Use a fixed base timestamp (e.g., start of today)
-            long millisecondsFromMidnight = (hours * 3600000L) + (minutes * 60000L);
+            long millisecondsFromMidnight = minutesFromMidnight * 60000L;
             
             // For now, use a simple day-relative timestamp
             // In production, you'd want to use the actual day's base timestamp
@@ -580,95 +714,7 @@ public class EditorAgent extends BaseAgent {
      * Build JSON schema for ChangeSet generation.
      */
     private String buildChangeSetJsonSchema() {
-        return """
-            {
-              "type": "object",
-              "properties": {
-                "ops": {
-                  "type": "array",
-                  "description": "Array of change operations to apply to the itinerary",
-                  "items": {
-                    "type": "object",
-                    "properties": {
-                      "op": {
-                        "type": "string",
-                        "enum": ["insert", "delete", "move", "replace"],
-                        "description": "Operation type: insert (add new), delete (remove), move (reorder), replace (modify)"
-                      },
-                      "id": {
-                        "type": "string",
-                        "description": "Node ID - REQUIRED. Use the exact node ID from the itinerary context"
-                      },
-                      "startTime": {
-                        "type": "string",
-                        "pattern": "^([0-1][0-9]|2[0-3]):[0-5][0-9]$",
-                        "description": "Start time in 24-hour format HH:mm. Examples: '09:00', '14:30', '18:00'"
-                      },
-                      "endTime": {
-                        "type": "string",
-                        "pattern": "^([0-1][0-9]|2[0-3]):[0-5][0-9]$",
-                        "description": "End time in 24-hour format HH:mm. Examples: '10:30', '15:30', '19:00'"
-                      },
-                      "after": {
-                        "type": "string",
-                        "description": "Node ID to insert/move after (for ordering operations)"
-                      },
-                      "position": {
-                        "type": "integer",
-                        "description": "Position index for insert operations (0-based)"
-                      },
-                      "node": {
-                        "type": "object",
-                        "description": "Node data for insert/replace operations",
-                        "properties": {
-                          "title": {
-                            "type": "string",
-                            "description": "Node title/name (REQUIRED)"
-                          },
-                          "type": {
-                            "type": "string",
-                            "enum": ["attraction", "meal", "accommodation", "transport"],
-                            "description": "Node type (REQUIRED)"
-                          },
-                          "location": {
-                            "type": "object",
-                            "description": "Location object with name and address (REQUIRED)",
-                            "properties": {
-                              "name": {
-                                "type": "string",
-                                "description": "Location name"
-                              },
-                              "address": {
-                                "type": "string",
-                                "description": "Full address"
-                              }
-                            },
-                            "required": ["name", "address"]
-                          }
-                        },
-                        "required": ["title", "type", "location"]
-                      }
-                    },
-                    "required": ["op", "id"]
-                  }
-                },
-                "day": {
-                  "type": "integer",
-                  "minimum": 1,
-                  "description": "Day number (1-based) that these operations apply to"
-                },
-                "reason": {
-                  "type": "string",
-                  "description": "Human-readable explanation of why these changes were made"
-                },
-                "agent": {
-                  "type": "string",
-                  "description": "Always set to 'EditorAgent'"
-                }
-              },
-              "required": ["ops", "day", "reason", "agent"]
-            }
-            """;
+        return CHANGE_SET_GENERATION_SCHEMA.getSchemaJson();
     }
     
     /**
@@ -839,16 +885,7 @@ public class EditorAgent extends BaseAgent {
             return null;
         }
         
-        for (NormalizedDay day : itinerary.getDays()) {
-            if (day.getNodes() != null) {
-                for (NormalizedNode node : day.getNodes()) {
-                    if (nodeId.equals(node.getId())) {
-                        return node;
-                    }
-                }
-            }
-        }
-        return null;
+        return itinerary.getNodeIndex().getNode(nodeId);
     }
     
     /**
@@ -894,7 +931,7 @@ public class EditorAgent extends BaseAgent {
     private ChangeSet parseChangeSetFromResponseWithRetry(String response, String originalPrompt, String jsonSchema) {
         try {
             // Create expected schema for ChangeSet validation
-            com.fasterxml.jackson.databind.JsonNode expectedSchema = createChangeSetSchema();
+            CompiledSchema expectedSchema = createChangeSetSchema();
             
             // Process response with LLMResponseHandler
             LLMResponseHandler.ProcessedResponse processedResponse = 
@@ -933,8 +970,8 @@ public class EditorAgent extends BaseAgent {
             // Convert time strings to timestamps before deserializing
             com.fasterxml.jackson.databind.JsonNode dataWithTimestamps = convertTimeStringsToTimestamps(processedResponse.getData());
             
-            // Convert JsonNode to ChangeSet
-            ChangeSet changeSet = objectMapper.treeToValue(dataWithTimestamps, ChangeSet.class);
+            // Bind to ChangeSet with the cached reader (already validated above)
+            ChangeSet changeSet = changeSetBinder.bind(dataWithTimestamps);
             
             return changeSet;
             
@@ -945,48 +982,9 @@ public class EditorAgent extends BaseAgent {
     }
     
     /**
-     * Create JSON schema for ChangeSet validation.
+     * Compiled JSON schema for ChangeSet validation.
      */
-    private com.fasterxml.jackson.databind.JsonNode createChangeSetSchema() {
-        try {
-            String schemaJson = """
-                {
-                  "type": "object",
-                  "required": ["ops"],
-                  "properties": {
-                    "scope": { "type": "string" },
-                    "day": { "type": "integer" },
-                    "baseVersion": { "type": "integer" },
-                    "idempotencyKey": { "type": "string" },
-                    "ops": {
-                      "type": "array",
-                      "items": {
-                        "type": "object",
-                        "required": ["op"],
-                        "properties": {
-                          "op": { "type": "string", "enum": ["insert", "delete", "move", "update"] },
-                          "id": { "type": "string" },
-                          "after": { "type": "string" },
-                          "startTime": { "type": "integer" },
-                          "endTime": { "type": "integer" },
-                          "node": { "type": "object" }
-                        }
-                      }
-                    },
-                    "preferences": {
-                      "type": "object",
-                      "properties": {
-                        "userFirst": { "type": "boolean" },
-                        "respectLocks": { "type": "boolean" }
-                      }
-                    }
-                  }
-                }
-                """;
-            return objectMapper.readTree(schemaJson);
-        } catch (Exception e) {
-            logger.error("Failed to create ChangeSet schema", e);
-            return null;
-        }
+    private CompiledSchema createChangeSetSchema() {
+        return CHANGE_SET_VALIDATION_SCHEMA;
     }
-}
\ No newline at end of file
+}
@@ -6,7 +6,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDate;
 import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.util.*;
 
 /**
@@ -28,21 +33,28 @@ public class EnrichmentAgent extends BaseAgent {
     private static final double MIN_LONGITUDE = -180.0;
     private static final double MAX_LONGITUDE = 180.0;
 
+    // Opening hours heuristics
+    private static final LocalTime EARLY_MORNING_END = LocalTime.of(9, 0);
+    private static final LocalTime LATE_EVENING_START = LocalTime.of(18, 0);
+
     private final ItineraryJsonService itineraryJsonService;
     private final ChangeEngine changeEngine;
     private final GooglePlacesService googlePlacesService;
     private final EnrichmentProtocolHandler enrichmentProtocolHandler;
+    private final TravelTimeService travelTimeService;
 
     public EnrichmentAgent(AgentEventBus eventBus,
                            ItineraryJsonService itineraryJsonService,
                            ChangeEngine changeEngine,
                            GooglePlacesService googlePlacesService,
-                           EnrichmentProtocolHandler enrichmentProtocolHandler) {
+                           EnrichmentProtocolHandler enrichmentProtocolHandler,
+                           TravelTimeService travelTimeService) {
         super(eventBus, AgentEvent.AgentKind.ENRICHMENT);
         this.itineraryJsonService = itineraryJsonService;
         this.changeEngine = changeEngine;
         this.googlePlacesService = googlePlacesService;
         this.enrichmentProtocolHandler = enrichmentProtocolHandler;
+        this.travelTimeService = travelTimeService;
     }
 
     @Override
@@ -120,22 +132,23 @@ public class EnrichmentAgent extends BaseAgent {
             emitProgress(itineraryId, 20, "Enriching places with Google Places data", "ENRICHMENT");
 
             // Enrich nodes with Google Places data
-            List<ChangeOperation> enrichmentOps = enrichNodesWithPlacesData(itinerary);
+            List<ChangeOperation> enrichmentOps = enrichNodesWithPlacesData(itinerary.getDays(), itinerary.getDestination());
 
             emitProgress(itineraryId, 40, "Validating opening hours", "validation");
 
             // Validate opening hours and add warnings
-            List<ChangeOperation> warningOps = validateOpeningHours(itinerary);
+            List<ChangeOperation> warningOps = validateOpeningHours(itinerary.getDays());
 
             emitProgress(itineraryId, 60, "Calculating pacing", "pacing");
 
             // Calculate pacing and add pacing information
-            List<ChangeOperation> pacingOps = calculatePacing(itinerary);
+            List<ChangeOperation> pacingOps = calculatePacing(itinerary.getDays());
 
             emitProgress(itineraryId, 80, "Computing transit durations", "transit");
 
             // Compute transit durations between nodes
-            List<ChangeOperation> transitOps = computeTransitDurations(itinerary);
+            List<ChangeOperation> transitOps = computeTransitDurations(itinerary.getDays(),
+                    travelTimeService.getMatrices(itinerary));
 
             emitProgress(itineraryId, 90, "Applying enrichments", "applying");
 
@@ -180,6 +193,49 @@ public class EnrichmentAgent extends BaseAgent {
         }
     }
 
+    /**
+     * Compute the enrichment ChangeSet for a single day without applying it.
+     * Used by the per-day pipeline: the slow Places lookups run outside the itinerary
+     * write lock, and only {@link #applyDayEnrichment} needs to be serialized.
+     * 
+     * @return a day-scoped ChangeSet, or null when the day needs no enrichment
+     */
+    public ChangeSet planDayEnrichment(NormalizedDay day, String destination) {
+        List<NormalizedDay> days = List.of(day);
+        List<ChangeOperation> allOps = new ArrayList<>();
+        allOps.addAll(enrichNodesWithPlacesData(days, destination));
+        allOps.addAll(validateOpeningHours(days));
+        allOps.addAll(calculatePacing(days));
+        allOps.addAll(computeTransitDurations(days, Map.of()));
+
+        if (allOps.isEmpty()) {
+            logger.info("No enrichments needed for day {}", day.getDayNumber());
+            return null;
+        }
+
+        ChangeSet enrichmentChangeSet = new ChangeSet();
+        enrichmentChangeSet.setScope("day");
+        enrichmentChangeSet.setDay(day.getDayNumber());
+        enrichmentChangeSet.setOps(allOps);
+
+        ChangePreferences preferences = new ChangePreferences();
+        preferences.setRespectLocks(true);
+        preferences.setUserFirst(false); // Agent changes take precedence for enrichments
+        enrichmentChangeSet.setPreferences(preferences);
+
+        return enrichmentChangeSet;
+    }
+
+    /**
+     * Apply a ChangeSet produced by {@link #planDayEnrichment}.
+     */
+    public ChangeEngine.ApplyResult applyDayEnrichment(String itineraryId, ChangeSet enrichmentChangeSet) {
+        ChangeEngine.ApplyResult result = changeEngine.apply(itineraryId, enrichmentChangeSet);
+        logger.info("Applied {} enrichment operations to day {} of itinerary {}",
+                enrichmentChangeSet.getOps().size(), enrichmentChangeSet.getDay(), itineraryId);
+        return result;
+    }
+
     @Override
     protected String getAgentName() {
         return "Enrichment Agent";
@@ -205,41 +261,45 @@ public class EnrichmentAgent extends BaseAgent {
 
     /**
      * Validate opening hours and add warnings for nodes that might be closed.
+     * Uses the day's timeline index to pick out early-morning and late-evening starts directly.
      */
-    private List<ChangeOperation> validateOpeningHours(NormalizedItinerary itinerary) {
+    private List<ChangeOperation> validateOpeningHours(List<NormalizedDay> days) {
         List<ChangeOperation> operations = new ArrayList<>();
 
-        if (itinerary.getDays() == null) {
+        if (days == null) {
             return operations;
         }
 
-        for (NormalizedDay day : itinerary.getDays()) {
+        for (NormalizedDay day : days) {
             if (day.getNodes() == null) {
                 continue;
             }
 
-            for (NormalizedNode node : day.getNodes()) {
-                // Skip locked nodes
-                if (Boolean.TRUE.equals(node.getLocked())) {
-                    continue;
-                }
+            DayTimeline timeline = day.getTimeline();
+            if (timeline.size() == 0) {
+                continue;
+            }
 
-                // Check if node has timing information
-                if (node.getTiming() != null && node.getTiming().getStartTime() != null) {
-                    String startTime = node.getTiming().getStartTime().toString();
-
-                    // Mock validation - in real implementation, this would check actual opening hours
-                    if (isEarlyMorning(startTime) && isRestaurant(node)) {
-                        // Add warning for early morning restaurant visit
-                        ChangeOperation warningOp = createWarningOperation(node.getId(),
-                                "Restaurant may not be open at this early hour");
-                        operations.add(warningOp);
-                    } else if (isLateEvening(startTime) && isMuseum(node)) {
-                        // Add warning for late evening museum visit
-                        ChangeOperation warningOp = createWarningOperation(node.getId(),
-                                "Museum may be closed at this time");
-                        operations.add(warningOp);
-                    }
+            ZoneId zone = resolveZone(day.getTimeZone());
+            LocalDate date = resolveDate(day.getDate(), timeline.inStartOrder().get(0), zone);
+            long midnight = date.atStartOfDay(zone).toInstant().toEpochMilli();
+            long nextMidnight = date.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+            long earlyMorningEnd = date.atTime(EARLY_MORNING_END).atZone(zone).toInstant().toEpochMilli();
+            long lateEveningStart = date.atTime(LATE_EVENING_START).atZone(zone).toInstant().toEpochMilli();
+
+            // Mock validation - in real implementation, this would check actual opening hours
+            for (NormalizedNode node : timeline.startingBetween(midnight, earlyMorningEnd)) {
+                if (!Boolean.TRUE.equals(node.getLocked()) && isRestaurant(node)) {
+                    // Add warning for early morning restaurant visit
+                    operations.add(createWarningOperation(node.getId(),
+                            "Restaurant may not be open at this early hour"));
+                }
+            }
+            for (NormalizedNode node : timeline.startingBetween(lateEveningStart + 1, nextMidnight)) {
+                if (!Boolean.TRUE.equals(node.getLocked()) && isMuseum(node)) {
+                    // Add warning for late evening museum visit
+                    operations.add(createWarningOperation(node.getId(),
+                            "Museum may be closed at this time"));
                 }
             }
         }
@@ -249,23 +309,26 @@ public class EnrichmentAgent extends BaseAgent {
 
     /**
      * Calculate pacing and add pacing information to nodes.
+     * Gaps are measured between consecutive activities in start order from the day's timeline index.
      */
-    private List<ChangeOperation> calculatePacing(NormalizedItinerary itinerary) {
+    private List<ChangeOperation> calculatePacing(List<NormalizedDay> days) {
         List<ChangeOperation> operations = new ArrayList<>();
 
-        if (itinerary.getDays() == null) {
+        if (days == null) {
             return operations;
         }
 
-        for (NormalizedDay day : itinerary.getDays()) {
+        for (NormalizedDay day : days) {
             if (day.getNodes() == null || day.getNodes().size() < 2) {
                 continue;
             }
 
+            List<NormalizedNode> timedNodes = day.getTimeline().inStartOrder();
+
             // Calculate pacing between consecutive nodes
-            for (int i = 0; i < day.getNodes().size() - 1; i++) {
-                NormalizedNode currentNode = day.getNodes().get(i);
-                NormalizedNode nextNode = day.getNodes().get(i + 1);
+            for (int i = 0; i < timedNodes.size() - 1; i++) {
+                NormalizedNode currentNode = timedNodes.get(i);
+                NormalizedNode nextNode = timedNodes.get(i + 1);
 
                 // Skip if either node is locked
                 if (Boolean.TRUE.equals(currentNode.getLocked()) || Boolean.TRUE.equals(nextNode.getLocked())) {
@@ -273,26 +336,20 @@ public class EnrichmentAgent extends BaseAgent {
                 }
 
                 // Calculate time between nodes
-                if (currentNode.getTiming() != null && nextNode.getTiming() != null) {
-                    String currentEndTime = currentNode.getTiming().getEndTime().toString();
-                    String nextStartTime = nextNode.getTiming().getStartTime().toString();
-
-                    if (currentEndTime != null && nextStartTime != null) {
-                        int timeBetween = calculateTimeBetween(currentEndTime, nextStartTime);
-
-                        // Add pacing information
-                        if (timeBetween < 30) {
-                            // Very tight schedule
-                            ChangeOperation pacingOp = createPacingOperation(nextNode.getId(),
-                                    "Very tight schedule - only " + timeBetween + " minutes between activities");
-                            operations.add(pacingOp);
-                        } else if (timeBetween > 180) {
-                            // Very loose schedule
-                            ChangeOperation pacingOp = createPacingOperation(nextNode.getId(),
-                                    "Long gap - " + timeBetween + " minutes between activities");
-                            operations.add(pacingOp);
-                        }
-                    }
+                int timeBetween = (int) ((nextNode.getTiming().getStartTime()
+                        - currentNode.getTiming().getEndTime()) / 60_000L);
+
+                // Add pacing information
+                if (timeBetween < 30) {
+                    // Very tight schedule
+                    ChangeOperation pacingOp = createPacingOperation(nextNode.getId(),
+                            "Very tight schedule - only " + timeBetween + " minutes between activities");
+                    operations.add(pacingOp);
+                } else if (timeBetween > 180) {
+                    // Very loose schedule
+                    ChangeOperation pacingOp = createPacingOperation(nextNode.getId(),
+                            "Long gap - " + timeBetween + " minutes between activities");
+                    operations.add(pacingOp);
                 }
             }
         }
@@ -301,20 +358,28 @@ public class EnrichmentAgent extends BaseAgent {
     }
 
     /**
-     * Compute transit durations between nodes and update edges.
+     * Compute transit durations between consecutive nodes from the day's travel-time matrix.
+     *
+     * @param matrices precomputed matrices by day number; missing days are computed on demand
      */
-    private List<ChangeOperation> computeTransitDurations(NormalizedItinerary itinerary) {
+    private List<ChangeOperation> computeTransitDurations(List<NormalizedDay> days,
+                                                          Map<Integer, TravelTimeService.DayMatrix> matrices) {
         List<ChangeOperation> operations = new ArrayList<>();
 
-        if (itinerary.getDays() == null) {
+        if (days == null) {
             return operations;
         }
 
-        for (NormalizedDay day : itinerary.getDays()) {
+        for (NormalizedDay day : days) {
             if (day.getNodes() == null || day.getNodes().size() < 2) {
                 continue;
             }
 
+            TravelTimeService.DayMatrix matrix = day.getDayNumber() != null ? matrices.get(day.getDayNumber()) : null;
+            if (matrix == null) {
+                matrix = travelTimeService.getDayMatrix(day);
+            }
+
             // Calculate transit durations between consecutive nodes
             for (int i = 0; i < day.getNodes().size() - 1; i++) {
                 NormalizedNode currentNode = day.getNodes().get(i);
@@ -325,15 +390,11 @@ public class EnrichmentAgent extends BaseAgent {
                     continue;
                 }
 
-                // Calculate transit duration based on locations
-                if (currentNode.getLocation() != null && nextNode.getLocation() != null) {
-                    int transitDuration = calculateTransitDuration(
-                            currentNode.getLocation(), nextNode.getLocation());
-
-                    // Create or update edge with transit duration
-                    ChangeOperation transitOp = createTransitOperation(
-                            currentNode.getId(), nextNode.getId(), transitDuration);
-                    operations.add(transitOp);
+                // Nodes without coordinates are not in the matrix
+                Double distanceKm = matrix.distanceKm(currentNode.getId(), nextNode.getId());
+                if (distanceKm != null) {
+                    TravelTimeService.TravelMode mode = TravelTimeService.TravelMode.recommendedFor(distanceKm);
+                    operations.add(createTransitOperation(nextNode.getId(), mode, distanceKm, mode.minutesFor(distanceKm)));
                 }
             }
         }
@@ -384,41 +445,46 @@ public class EnrichmentAgent extends BaseAgent {
     }
 
     /**
-     * Create a transit operation for updating edge duration.
+     * Create an operation recording how to reach a node from the previous one.
      */
-    private ChangeOperation createTransitOperation(String fromNodeId, String toNodeId, int duration) {
+    private ChangeOperation createTransitOperation(String toNodeId, TravelTimeService.TravelMode mode,
+                                                   double distanceKm, int durationMinutes) {
         ChangeOperation op = new ChangeOperation();
-        op.setOp("update_edge");
-        op.setId(fromNodeId + "_to_" + toNodeId);
-
-        // Create edge with transit duration
-        Edge edge = new Edge(fromNodeId, toNodeId);
+        op.setOp("update");
+        op.setId(toNodeId);
 
-        // Note: This is a simplified approach. In a real implementation,
-        // you might need a different operation type for updating edges.
-        // For now, we'll just create a basic edge without duration/mode.
+        // Create a node with transit information
+        NormalizedNode nodeWithTransit = new NormalizedNode();
+        nodeWithTransit.setId(toNodeId);
+        nodeWithTransit.setTransit(new TransitInfo(mode.getTransportMode(),
+                Math.round(distanceKm * 10) / 10.0, durationMinutes));
 
+        op.setNode(nodeWithTransit);
         return op;
     }
 
 // Helper methods for validation
 
-    private boolean isEarlyMorning(String time) {
-        try {
-            LocalTime localTime = LocalTime.parse(time.substring(11, 19)); // Extract time part
-            return localTime.isBefore(LocalTime.of(9, 0));
-        } catch (Exception e) {
-            return false;
+    private ZoneId resolveZone(String timeZone) {
+        if (timeZone != null) {
+            try {
+                return ZoneId.of(timeZone, ZoneId.SHORT_IDS);
+            } catch (DateTimeException e) {
+                logger.debug("Unrecognized day time zone '{}', using UTC", timeZone);
+            }
         }
+        return ZoneOffset.UTC;
     }
 
-    private boolean isLateEvening(String time) {
-        try {
-            LocalTime localTime = LocalTime.parse(time.substring(11, 19)); // Extract time part
-            return localTime.isAfter(LocalTime.of(18, 0));
-        } catch (Exception e) {
-            return false;
+    private LocalDate resolveDate(String date, NormalizedNode firstNode, ZoneId zone) {
+        if (date != null) {
+            try {
+                return LocalDate.parse(date);
+            } catch (DateTimeException e) {
+                logger.debug("Unparseable day date '{}', using first activity's date", date);
+            }
         }
+        return Instant.ofEpochMilli(firstNode.getTiming().getStartTime()).atZone(zone).toLocalDate();
     }
 
     private boolean isRestaurant(NormalizedNode node) {
@@ -431,35 +497,6 @@ public class EnrichmentAgent extends BaseAgent {
                 (node.getTitle() != null && node.getTitle().toLowerCase().contains("museum"));
     }
 
-    private int calculateTimeBetween(String endTime, String startTime) {
-        try {
-            LocalTime end = LocalTime.parse(endTime.substring(11, 19));
-            LocalTime start = LocalTime.parse(startTime.substring(11, 19));
-
-            int endMinutes = end.getHour() * 60 + end.getMinute();
-            int startMinutes = start.getHour() * 60 + start.getMinute();
-
-            return startMinutes - endMinutes;
-        } catch (Exception e) {
-            return 0;
-        }
-    }
-
-    private int calculateTransitDuration(NodeLocation from, NodeLocation to) {
-        // Mock calculation - in real implementation, this would use a mapping service
-        if (from.getCoordinates() != null && to.getCoordinates() != null) {
-            // Simple distance-based calculation (very rough)
-            double latDiff = Math.abs(from.getCoordinates().getLat() - to.getCoordinates().getLat());
-            double lngDiff = Math.abs(from.getCoordinates().getLng() - to.getCoordinates().getLng());
-            double distance = Math.sqrt(latDiff * latDiff + lngDiff * lngDiff);
-
-            // Rough conversion: 1 degree ≈ 111 km, walking speed ≈ 5 km/h
-            return (int) (distance * 111 * 12); // 12 minutes per km
-        }
-
-        return 15; // Default 15 minutes
-    }
-
     /**
      * Update node status with audit trail.
      */
@@ -526,15 +563,18 @@ public class EnrichmentAgent extends BaseAgent {
     /**
      * Enrich nodes with Google Places data including photos, reviews, and ratings.
      * First searches for places without coordinates, then enriches all nodes with place details.
+     * Lookups are batched through the protocol handler, so each unique query and place ID
+     * is fetched once per call no matter how many nodes share it.
      */
-    private List<ChangeOperation> enrichNodesWithPlacesData(NormalizedItinerary itinerary) {
+    private List<ChangeOperation> enrichNodesWithPlacesData(List<NormalizedDay> days, String destination) {
         List<ChangeOperation> operations = new ArrayList<>();
 
-        if (itinerary.getDays() == null) {
+        if (days == null) {
             return operations;
         }
 
-        for (NormalizedDay day : itinerary.getDays()) {
+        List<NormalizedNode> candidates = new ArrayList<>();
+        for (NormalizedDay day : days) {
             if (day.getNodes() == null) {
                 continue;
             }
@@ -551,45 +591,70 @@ public class EnrichmentAgent extends BaseAgent {
                     continue;
                 }
 
-                // First, search for place if node doesn't have coordinates or placeId
-                if (needsPlaceSearch(node)) {
-                    try {
-                        NormalizedNode searchedNode = searchAndSetPlaceId(node, itinerary.getDestination());
-                        if (searchedNode != null) {
-                            ChangeOperation searchOp = createEnrichmentOperation(searchedNode);
-                            operations.add(searchOp);
-                            // Update node reference for further enrichment
-                            node = searchedNode;
-                        }
-                    } catch (Exception e) {
-                        logger.warn("Failed to search place for node {}: {}", node.getId(), e.getMessage());
-                    }
+                candidates.add(node);
+            }
+        }
+
+        // First, search for places of nodes without coordinates or placeId
+        Map<String, String> searchQueries = new HashMap<>();
+        for (NormalizedNode node : candidates) {
+            if (needsPlaceSearch(node)) {
+                String searchQuery = buildSearchQuery(node);
+                if (searchQuery == null || searchQuery.trim().isEmpty()) {
+                    logger.warn("Node {} has no searchable information", node.getId());
+                } else {
+                    searchQueries.put(node.getId(), searchQuery);
                 }
+            }
+        }
+        Map<String, PlaceSearchResult> searchResults = searchQueries.isEmpty()
+                ? Collections.emptyMap()
+                : enrichmentProtocolHandler.searchPlaces(searchQueries.values(), destination);
+
+        for (int i = 0; i < candidates.size(); i++) {
+            NormalizedNode node = candidates.get(i);
+            String searchQuery = searchQueries.get(node.getId());
+            if (searchQuery == null) {
+                continue;
+            }
+            try {
+                NormalizedNode searchedNode = applySearchResult(node, searchQuery, searchResults.get(searchQuery));
+                if (searchedNode != null) {
+                    operations.add(createEnrichmentOperation(searchedNode));
+                    // Update node reference for further enrichment
+                    candidates.set(i, searchedNode);
+                }
+            } catch (Exception e) {
+                logger.warn("Failed to search place for node {}: {}", node.getId(), e.getMessage());
+            }
+        }
 
-                // Then, check if node needs ENRICHMENT with photos/reviews
-                if (needsEnrichment(node)) {
-                    try {
-                        logger.info("🔄 [EnrichmentAgent] Node {} needs enrichment, calling enrichNode()", node.getId());
-                        // Enrich the node with Google Places data
-                        NormalizedNode enrichedNode = enrichNode(node);
-                        if (enrichedNode != null) {
-                            logger.info("✅ [EnrichmentAgent] enrichNode() returned enriched node for {}", node.getId());
-                            logger.info("   Enriched node location.photos: {}", enrichedNode.getLocation().getPhotos() != null ? enrichedNode.getLocation().getPhotos().size() : "null");
-                            logger.info("   Enriched node location.rating: {}", enrichedNode.getLocation().getRating());
-                            logger.info("   Enriched node location.userRatingsTotal: {}", enrichedNode.getLocation().getUserRatingsTotal());
-                            logger.info("   Enriched node location.priceLevel: {}", enrichedNode.getLocation().getPriceLevel());
-                            
-                            ChangeOperation enrichOp = createEnrichmentOperation(enrichedNode);
-                            operations.add(enrichOp);
-                            logger.info("✅ [EnrichmentAgent] Created ChangeOperation for node {}", node.getId());
-                        } else {
-                            logger.warn("⚠️ [EnrichmentAgent] enrichNode() returned null for node {}", node.getId());
-                        }
-                    } catch (Exception e) {
-                        logger.error("❌ [EnrichmentAgent] Failed to enrich node {}: {}", node.getId(), e.getMessage(), e);
-                        // Continue with other nodes even if one fails
-                    }
+        // Then, enrich nodes that need photos/reviews with place details
+        List<NormalizedNode> toEnrich = new ArrayList<>();
+        Set<String> placeIds = new LinkedHashSet<>();
+        for (NormalizedNode node : candidates) {
+            if (needsEnrichment(node)) {
+                toEnrich.add(node);
+                placeIds.add(node.getLocation().getPlaceId());
+            }
+        }
+        Map<String, PlaceDetails> placeDetailsById = placeIds.isEmpty()
+                ? Collections.emptyMap()
+                : enrichmentProtocolHandler.fetchPlaceDetails(placeIds);
+        logger.info("📡 [EnrichmentAgent] {} searches for {} nodes, {} place lookups for {} nodes",
+                new HashSet<>(searchQueries.values()).size(), searchQueries.size(), placeIds.size(), toEnrich.size());
+
+        for (NormalizedNode node : toEnrich) {
+            try {
+                NormalizedNode enrichedNode = enrichNode(node, placeDetailsById.get(node.getLocation().getPlaceId()));
+                if (enrichedNode != null) {
+                    operations.add(createEnrichmentOperation(enrichedNode));
+                } else {
+                    logger.warn("⚠️ [EnrichmentAgent] No place details for node {}", node.getId());
                 }
+            } catch (Exception e) {
+                logger.error("❌ [EnrichmentAgent] Failed to enrich node {}: {}", node.getId(), e.getMessage(), e);
+                // Continue with other nodes even if one fails
             }
         }
 
@@ -736,30 +801,13 @@ public class EnrichmentAgent extends BaseAgent {
     }
     
     /**
-     * Search for a place and set its placeId and coordinates.
+     * Set placeId and coordinates of a node from the result of its place search.
      */
-    private NormalizedNode searchAndSetPlaceId(NormalizedNode node, String destination) {
-        // Build search query combining title and location name for better specificity
-        String searchQuery = buildSearchQuery(node);
-        
-        if (searchQuery == null || searchQuery.trim().isEmpty()) {
-            logger.warn("Node {} has no searchable information", node.getId());
-            return null;
-        }
-        
-        logger.info("========== ENRICHING NODE WITH PLACE SEARCH ==========");
-        logger.info("Node ID: {}", node.getId());
-        logger.info("Node title: {}", node.getTitle());
-        logger.info("Location name: {}", node.getLocation() != null ? node.getLocation().getName() : "null");
-        logger.info("Search query: {}", searchQuery);
-        logger.info("Destination context: {}", destination);
+    private NormalizedNode applySearchResult(NormalizedNode node, String searchQuery, PlaceSearchResult searchResult) {
+        logger.info("Place search for node {} (search: '{}'): {}", node.getId(), searchQuery,
+                searchResult != null ? "result found" : "no result");
         
         try {
-            // Search for place using combined query
-            logger.info("Calling GooglePlacesService.searchPlace()...");
-            PlaceSearchResult searchResult = googlePlacesService.searchPlace(searchQuery, destination);
-            logger.info("GooglePlacesService returned: {}", searchResult != null ? "result found" : "null");
-            
             if (searchResult != null && searchResult.getGeometry() != null && 
                 searchResult.getGeometry().getLocation() != null) {
                 
@@ -855,9 +903,9 @@ public class EnrichmentAgent extends BaseAgent {
     }
 
     /**
-     * Enrich a node with Google Places data.
+     * Enrich a node with Google Places data already fetched for its place ID.
      */
-    private NormalizedNode enrichNode(NormalizedNode node) {
+    private NormalizedNode enrichNode(NormalizedNode node, PlaceDetails placeDetails) {
         if (node == null || node.getLocation() == null || node.getLocation().getPlaceId() == null) {
             return null;
         }
@@ -867,9 +915,6 @@ public class EnrichmentAgent extends BaseAgent {
         logger.info("   📍 Place ID: {}", placeId);
 
         try {
-            // Get place details from Google Places API
-            PlaceDetails placeDetails = googlePlacesService.getPlaceDetails(placeId);
-
             if (placeDetails != null) {
                 logger.info("✅ [EnrichmentAgent] Received PlaceDetails from API:");
                 logger.info("   ⭐ Rating: {}", placeDetails.getRating());
@@ -121,6 +121,26 @@ public class MealAgent extends BaseAgent {
         }
     }
     
+    /**
+     * Populate the meal nodes of a single day in place, without saving.
+     * Used by the per-day pipeline, which persists each day once all its stages are done.
+     * 
+     * @param context Itinerary providing destination, interests and constraints; must contain the day
+     * @return number of meals populated
+     */
+    public int populateDayMeals(NormalizedItinerary context, NormalizedDay day) {
+        List<MealContext> mealContexts = extractMealNodes(day);
+        if (mealContexts.isEmpty()) {
+            return 0;
+        }
+        
+        List<PopulatedMeal> populatedMeals = populateMealsWithAI(context, mealContexts);
+        applyMeals(context, List.of(day), populatedMeals);
+        
+        logger.info("Populated {} meals for day {}", populatedMeals.size(), day.getDayNumber());
+        return populatedMeals.size();
+    }
+    
     /**
      * Extract meal nodes from skeleton with context.
      */
@@ -128,19 +148,29 @@ public class MealAgent extends BaseAgent {
         List<MealContext> contexts = new ArrayList<>();
         
         for (NormalizedDay day : skeleton.getDays()) {
-            if (day.getNodes() == null) continue;
-            
-            for (NormalizedNode node : day.getNodes()) {
-                if ("meal".equals(node.getType())) {
-                    String mealType = determineMealType(node.getTiming());
-                    contexts.add(new MealContext(
-                        node.getId(),
-                        day.getDayNumber(),
-                        day.getLocation(),
-                        node.getTiming(),
-                        mealType
-                    ));
-                }
+            contexts.addAll(extractMealNodes(day));
+        }
+        
+        return contexts;
+    }
+    
+    /**
+     * Extract meal nodes of one day with context.
+     */
+    private List<MealContext> extractMealNodes(NormalizedDay day) {
+        List<MealContext> contexts = new ArrayList<>();
+        if (day.getNodes() == null) return contexts;
+        
+        for (NormalizedNode node : day.getNodes()) {
+            if ("meal".equals(node.getType())) {
+                String mealType = determineMealType(node.getTiming());
+                contexts.add(new MealContext(
+                    node.getId(),
+                    day.getDayNumber(),
+                    day.getLocation(),
+                    node.getTiming(),
+                    mealType
+                ));
             }
         }
         
@@ -220,10 +250,27 @@ public class MealAgent extends BaseAgent {
     private void updateItineraryWithMeals(String itineraryId, NormalizedItinerary skeleton,
                                           List<PopulatedMeal> populatedMeals) {
         
+        applyMeals(skeleton, skeleton.getDays(), populatedMeals);
+        
+        try {
+            skeleton.setUpdatedAt(System.currentTimeMillis());
+            itineraryJsonService.updateItinerary(skeleton);
+            logger.info("Saved itinerary with populated meals");
+        } catch (Exception e) {
+            logger.error("Failed to save itinerary with meals: {}", e.getMessage());
+        }
+    }
+    
+    /**
+     * Apply populated meal data to the nodes of the given days.
+     */
+    private void applyMeals(NormalizedItinerary skeleton, List<NormalizedDay> days,
+                            List<PopulatedMeal> populatedMeals) {
+        
         Map<String, PopulatedMeal> mealMap = populatedMeals.stream()
             .collect(Collectors.toMap(PopulatedMeal::getNodeId, m -> m));
         
-        for (NormalizedDay day : skeleton.getDays()) {
+        for (NormalizedDay day : days) {
             if (day.getNodes() == null) continue;
             
             for (NormalizedNode node : day.getNodes()) {
@@ -256,14 +303,6 @@ public class MealAgent extends BaseAgent {
                 }
             }
         }
-        
-        try {
-            skeleton.setUpdatedAt(System.currentTimeMillis());
-            itineraryJsonService.updateItinerary(skeleton);
-            logger.info("Saved itinerary with populated meals");
-        } catch (Exception e) {
-            logger.error("Failed to save itinerary with meals: {}", e.getMessage());
-        }
     }
     
     private String buildMealSystemPrompt() {
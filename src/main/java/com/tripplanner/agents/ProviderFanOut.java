@@ -0,0 +1,264 @@
+package com.tripplanner.agents;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Runs one search against several providers at once and merges their results into a bounded,
+ * ranked top-k.
+ *
+ * Each provider has its own deadline counted from the start of the search, so a search takes as
+ * long as its slowest provider that answers in time rather than the sum of all of them. Providers
+ * that fail or miss their deadline are logged and left out, and a late provider's task is
+ * cancelled with an interrupt. Blocking I/O does not always react to interrupts, so providers
+ * should also time out their calls at their deadline. Each time a provider answers, the current
+ * best results are handed to a listener so callers can stream them.
+ */
+public class ProviderFanOut<T> {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProviderFanOut.class);
+
+    private final Comparator<T> ranking;
+    private final int topK;
+    private final Map<String, Provider<T>> providers = new LinkedHashMap<>();
+
+    /**
+     * @param ranking best result first
+     * @param topK number of best results kept across all providers
+     */
+    public ProviderFanOut(Comparator<T> ranking, int topK) {
+        this.ranking = ranking;
+        this.topK = Math.max(1, topK);
+    }
+
+    /**
+     * Add a provider. Results a provider returns in equal rank keep its order.
+     *
+     * @param deadlineMs how long after the start of the search the provider's answer is used
+     */
+    public ProviderFanOut<T> provider(String name, long deadlineMs, Supplier<List<T>> search) {
+        providers.put(name, new Provider<>(search, deadlineMs));
+        return this;
+    }
+
+    /**
+     * Query every provider concurrently and wait for each up to its deadline.
+     *
+     * @param onPartial called with the answering provider and the best results so far, may be null
+     */
+    public Result<T> search(Executor executor, BiConsumer<String, List<T>> onPartial) {
+        long start = System.currentTimeMillis();
+        BlockingQueue<Answer<T>> answers = new LinkedBlockingQueue<>();
+        Map<String, FutureTask<List<T>>> pending = new LinkedHashMap<>();
+        for (Map.Entry<String, Provider<T>> provider : providers.entrySet()) {
+            String name = provider.getKey();
+            // A FutureTask interrupts its running thread on cancel(true), unlike a CompletableFuture
+            FutureTask<List<T>> task = new FutureTask<>(provider.getValue().search::get) {
+                @Override
+                protected void done() {
+                    if (!isCancelled()) {
+                        answers.add(answerOf(name, this));
+                    }
+                }
+            };
+            pending.put(name, task);
+            executor.execute(task);
+        }
+
+        // Worst kept result on top, so it is the one dropped when the heap overflows
+        PriorityQueue<Ranked<T>> best = new PriorityQueue<>(topK + 1, rankedOrder().reversed());
+        List<String> answered = new ArrayList<>();
+        Map<String, Throwable> failures = new LinkedHashMap<>();
+        long sequence = 0;
+
+        while (!pending.isEmpty()) {
+            long now = System.currentTimeMillis();
+            expireLate(pending, start, now, failures);
+            if (pending.isEmpty()) {
+                break;
+            }
+            long nextDeadline = Long.MAX_VALUE;
+            for (String name : pending.keySet()) {
+                nextDeadline = Math.min(nextDeadline, start + providers.get(name).deadlineMs);
+            }
+
+            Answer<T> answer;
+            try {
+                answer = answers.poll(nextDeadline - now, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            if (answer == null || pending.remove(answer.provider) == null) {
+                continue;
+            }
+
+            if (answer.error != null) {
+                logger.warn("Provider {} failed: {}", answer.provider, answer.error.getMessage());
+                failures.put(answer.provider, answer.error);
+                continue;
+            }
+
+            if (answer.results != null) {
+                for (T result : answer.results) {
+                    if (result == null) {
+                        continue;
+                    }
+                    best.offer(new Ranked<>(result, sequence++));
+                    if (best.size() > topK) {
+                        best.poll();
+                    }
+                }
+            }
+            answered.add(answer.provider);
+            logger.debug("Provider {} answered with {} results", answer.provider,
+                        answer.results != null ? answer.results.size() : 0);
+            if (onPartial != null) {
+                onPartial.accept(answer.provider, sorted(best));
+            }
+        }
+
+        // Only left over when the caller was interrupted
+        expireLate(pending, start, Long.MAX_VALUE, failures);
+        return new Result<>(sorted(best), answered, failures);
+    }
+
+    /**
+     * Cancel the pending providers whose deadline has passed and record them as timed out.
+     */
+    private void expireLate(Map<String, FutureTask<List<T>>> pending, long start, long now,
+                            Map<String, Throwable> failures) {
+        pending.entrySet().removeIf(entry -> {
+            long deadlineMs = providers.get(entry.getKey()).deadlineMs;
+            if (start + deadlineMs > now) {
+                return false;
+            }
+            entry.getValue().cancel(true);
+            logger.warn("Provider {} did not answer within {} ms", entry.getKey(), deadlineMs);
+            failures.put(entry.getKey(), new TimeoutException("No answer within " + deadlineMs + " ms"));
+            return true;
+        });
+    }
+
+    private static <T> Answer<T> answerOf(String provider, FutureTask<List<T>> task) {
+        try {
+            return new Answer<>(provider, task.get(), null);
+        } catch (ExecutionException e) {
+            return new Answer<>(provider, null, e.getCause() != null ? e.getCause() : e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new Answer<>(provider, null, e);
+        }
+    }
+
+    private Comparator<Ranked<T>> rankedOrder() {
+        Comparator<Ranked<T>> byRank = (a, b) -> ranking.compare(a.result, b.result);
+        return byRank.thenComparingLong(ranked -> ranked.sequence);
+    }
+
+    private List<T> sorted(PriorityQueue<Ranked<T>> best) {
+        List<Ranked<T>> ranked = new ArrayList<>(best);
+        ranked.sort(rankedOrder());
+        List<T> results = new ArrayList<>(ranked.size());
+        for (Ranked<T> entry : ranked) {
+            results.add(entry.result);
+        }
+        return results;
+    }
+
+    /**
+     * Merged outcome of a fan-out search.
+     */
+    public static class Result<T> {
+        private final List<T> results;
+        private final List<String> answered;
+        private final Map<String, Throwable> failures;
+
+        Result(List<T> results, List<String> answered, Map<String, Throwable> failures) {
+            this.results = results;
+            this.answered = answered;
+            this.failures = failures;
+        }
+
+        /**
+         * Best results across providers, best first.
+         */
+        public List<T> getResults() {
+            return results;
+        }
+
+        /**
+         * Providers that answered in time, in the order they answered.
+         */
+        public List<String> getAnswered() {
+            return Collections.unmodifiableList(answered);
+        }
+
+        /**
+         * Providers that failed or missed the deadline, with the reason.
+         */
+        public Map<String, Throwable> getFailures() {
+            return Collections.unmodifiableMap(failures);
+        }
+
+        /**
+         * Throw the first failure if no provider answered, so callers can tell "nothing found"
+         * from "nothing reachable".
+         */
+        public void rethrowIfAllFailed() {
+            if (answered.isEmpty() && !failures.isEmpty()) {
+                Throwable first = failures.values().iterator().next();
+                throw new RuntimeException(first.getMessage(), first);
+            }
+        }
+    }
+
+    private static class Provider<T> {
+        private final Supplier<List<T>> search;
+        private final long deadlineMs;
+
+        private Provider(Supplier<List<T>> search, long deadlineMs) {
+            this.search = search;
+            this.deadlineMs = deadlineMs;
+        }
+    }
+
+    private static class Answer<T> {
+        private final String provider;
+        private final List<T> results;
+        private final Throwable error;
+
+        private Answer(String provider, List<T> results, Throwable error) {
+            this.provider = provider;
+            this.results = results;
+            this.error = error;
+        }
+    }
+
+    private static class Ranked<T> {
+        private final T result;
+        private final long sequence;
+
+        private Ranked(T result, long sequence) {
+            this.result = result;
+            this.sequence = sequence;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.tripplanner.agents;
+
+import com.tripplanner.dto.*;
+import com.tripplanner.service.AgentEventBus;
+import com.tripplanner.service.ChangeEngine;
+import com.tripplanner.service.ItineraryJsonService;
+import com.tripplanner.service.RouteOptimizer;
+import org.springframework.stereotype.Component;
+
+/**
+ * RouteOptimizerAgent - Reorders each day's activities to minimize travel time.
+ *
+ * Responsibilities:
+ * - Solve a per-day routing problem with time windows (2-opt / Or-opt)
+ * - Keep locked nodes, meals, accommodation and transport in place
+ * - Respect opening hours and fixed node times
+ * - Apply the result as one ChangeSet of reorder and move operations covering all days
+ *
+ * Processing Time: bounded by route.optimizer.time-budget-ms (rule-based, no AI needed)
+ */
+@Component
+public class RouteOptimizerAgent extends BaseAgent {
+
+    private final ItineraryJsonService itineraryJsonService;
+    private final ChangeEngine changeEngine;
+    private final RouteOptimizer routeOptimizer;
+
+    public RouteOptimizerAgent(AgentEventBus eventBus, ItineraryJsonService itineraryJsonService,
+                               ChangeEngine changeEngine, RouteOptimizer routeOptimizer) {
+        super(eventBus, AgentEvent.AgentKind.ROUTE_OPTIMIZER);
+        this.itineraryJsonService = itineraryJsonService;
+        this.changeEngine = changeEngine;
+        this.routeOptimizer = routeOptimizer;
+    }
+
+    @Override
+    public AgentCapabilities getCapabilities() {
+        AgentCapabilities capabilities = new AgentCapabilities();
+
+        // Pipeline-only task: optimize day routes
+        capabilities.addSupportedTask("optimize_route");
+
+        capabilities.setPriority(50);
+        capabilities.setChatEnabled(false); // Pipeline-only, not for chat
+        capabilities.setConfigurationValue("fastExecution", true);
+
+        return capabilities;
+    }
+
+    /**
+     * Optimize and apply the route of every day in the itinerary.
+     *
+     * @return the optimization result, including days that were already optimal
+     */
+    public RouteOptimizer.OptimizationResult optimizeRoutes(String itineraryId) {
+        logger.info("=== ROUTE OPTIMIZER AGENT ===");
+        logger.info("Optimizing routes for itinerary: {}", itineraryId);
+
+        emitProgress(itineraryId, 10, "Loading itinerary", "loading");
+
+        NormalizedItinerary itinerary = itineraryJsonService.getItinerary(itineraryId)
+                .orElseThrow(() -> new RuntimeException("Itinerary not found: " + itineraryId));
+
+        emitProgress(itineraryId, 30, "Optimizing day routes", "optimizing");
+
+        RouteOptimizer.OptimizationResult result = routeOptimizer.optimize(itinerary);
+        ChangeSet changeSet = result.toChangeSet();
+
+        int appliedDays = 0;
+        if (changeSet != null) {
+            emitProgress(itineraryId, 70,
+                String.format("Applying optimized routes for %d days", result.getImprovedDays()),
+                "applying");
+
+            ChangePreferences preferences = new ChangePreferences();
+            preferences.setRespectLocks(true);
+            preferences.setUserFirst(false);
+            changeSet.setPreferences(preferences);
+
+            try {
+                // All days in one ChangeSet: one save and one revision
+                changeEngine.applyOptimizedRoutes(itineraryId, changeSet);
+                appliedDays = result.getImprovedDays();
+            } catch (Exception e) {
+                // A failed apply leaves every day in its current order
+                logger.warn("Failed to apply optimized routes for itinerary {}: {}", itineraryId, e.getMessage());
+            }
+        }
+
+        emitProgress(itineraryId, 100,
+            String.format("Optimized routes for %d days, saving %d minutes of travel",
+                appliedDays, appliedDays > 0 ? result.getTravelMinutesSaved() : 0),
+            "complete");
+
+        logger.info("=== ROUTE OPTIMIZER COMPLETE ===");
+        logger.info("Applied optimized routes for {} days in {} ms", appliedDays, result.getElapsedMs());
+
+        return result;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected <T> T executeInternal(String itineraryId, AgentRequest<T> request) {
+        return (T) optimizeRoutes(itineraryId);
+    }
+
+    @Override
+    protected String getAgentName() {
+        return "Route Optimizer Agent";
+    }
+}
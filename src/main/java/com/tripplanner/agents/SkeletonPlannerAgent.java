@@ -1,18 +1,21 @@
 package com.tripplanner.agents;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.tripplanner.dto.*;
 import com.tripplanner.service.AgentEventBus;
 import com.tripplanner.service.AgentEventPublisher;
+import com.tripplanner.service.CompiledSchema;
 import com.tripplanner.service.ItineraryJsonService;
 import com.tripplanner.service.NodeIdGenerator;
+import com.tripplanner.service.StructuredOutputBinder;
 import com.tripplanner.service.ai.AiClient;
 import com.tripplanner.service.ai.ResilientAiClient;
 import com.tripplanner.service.ai.RetryStrategy;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
@@ -46,6 +49,58 @@ public class SkeletonPlannerAgent extends BaseAgent {
     // Configuration
     private static final int DAYS_PER_BATCH = 1; // Generate 1 day at a time for maximum reliability
     
+    // Compiled once; validated responses are bound with a cached NormalizedDay reader
+    private static final CompiledSchema SKELETON_SCHEMA = CompiledSchema.compile(
+        """
+            {
+              "type": "object",
+              "properties": {
+                "dayNumber": { "type": "integer" },
+                "date": { "type": "string", "format": "date" },
+                "location": { "type": "string" },
+                "summary": { "type": "string" },
+                "nodes": {
+                  "type": "array",
+                  "minItems": 4,
+                  "maxItems": 7,
+                  "items": {
+                    "type": "object",
+                    "properties": {
+                      "id": { "type": "string" },
+                      "type": { 
+                        "type": "string", 
+                        "enum": ["attraction", "meal", "accommodation", "transport"] 
+                      },
+                      "title": { "type": "string" },
+                      "location": {
+                        "type": "object",
+                        "properties": {
+                          "name": { "type": "string" }
+                        }
+                      },
+                      "timing": {
+                        "type": "object",
+                        "properties": {
+                          "startTime": { "type": "string" },
+                          "endTime": { "type": "string" },
+                          "durationMin": { "type": "integer" }
+                        }
+                      }
+                    },
+                    "required": ["type", "timing"]
+                  }
+                }
+              },
+              "required": ["dayNumber", "date", "location", "nodes"]
+            }
+            """);
+    
+    private final StructuredOutputBinder<NormalizedDay> dayBinder;
+    
+    // Strict schema validation also checks nested fields, enums and integer types
+    @Value("${ai.strict-schema-validation:false}")
+    private boolean strictSchemaValidation;
+    
     public SkeletonPlannerAgent(AgentEventBus eventBus, AiClient aiClient, ObjectMapper objectMapper,
                                ItineraryJsonService itineraryJsonService, AgentEventPublisher agentEventPublisher,
                                NodeIdGenerator nodeIdGenerator) {
@@ -55,6 +110,7 @@ public class SkeletonPlannerAgent extends BaseAgent {
         this.itineraryJsonService = itineraryJsonService;
         this.agentEventPublisher = agentEventPublisher;
         this.nodeIdGenerator = nodeIdGenerator;
+        this.dayBinder = new StructuredOutputBinder<>(SKELETON_SCHEMA, objectMapper, NormalizedDay.class);
     }
     
     @Override
@@ -82,19 +138,7 @@ public class SkeletonPlannerAgent extends BaseAgent {
         logger.info("Destination: {}", request.getDestination());
         
         try {
-            // Load the existing itinerary (which was created by ItineraryInitializationService with userId)
-            Optional<NormalizedItinerary> existingOpt = itineraryJsonService.getItinerary(itineraryId);
-            NormalizedItinerary itinerary;
-            
-            if (existingOpt.isPresent()) {
-                // Use existing itinerary to preserve userId and other metadata
-                itinerary = existingOpt.get();
-                logger.info("Loaded existing itinerary with userId: {}", itinerary.getUserId());
-            } else {
-                // Fallback: create new itinerary (shouldn't happen in normal flow)
-                logger.warn("Itinerary {} not found, creating new one (userId will be missing)", itineraryId);
-                itinerary = createInitialItinerary(itineraryId, request);
-            }
+            NormalizedItinerary itinerary = loadBaseItinerary(itineraryId, request);
             
             // Generate days in small batches
             int totalDays = request.getDurationDays();
@@ -150,6 +194,38 @@ public class SkeletonPlannerAgent extends BaseAgent {
         }
     }
     
+    /**
+     * Load the itinerary created by ItineraryInitializationService (preserving userId and metadata),
+     * or create a fresh one when it does not exist yet.
+     */
+    public NormalizedItinerary loadBaseItinerary(String itineraryId, CreateItineraryReq request) {
+        Optional<NormalizedItinerary> existingOpt = itineraryJsonService.getItinerary(itineraryId);
+        NormalizedItinerary itinerary;
+        
+        if (existingOpt.isPresent()) {
+            // Use existing itinerary to preserve userId and other metadata
+            itinerary = existingOpt.get();
+            logger.info("Loaded existing itinerary with userId: {}", itinerary.getUserId());
+        } else {
+            // Fallback: create new itinerary (shouldn't happen in normal flow)
+            logger.warn("Itinerary {} not found, creating new one (userId will be missing)", itineraryId);
+            itinerary = createInitialItinerary(itineraryId, request);
+        }
+        
+        if (itinerary.getDays() == null) {
+            itinerary.setDays(new ArrayList<>());
+        }
+        return itinerary;
+    }
+    
+    /**
+     * Generate the skeleton of one day without persisting it.
+     * Used by the per-day pipeline, which schedules days independently.
+     */
+    public NormalizedDay generateDay(CreateItineraryReq request, int dayNumber) {
+        return generateDaySkeleton(request, dayNumber);
+    }
+    
     /**
      * Generate skeleton for a single day.
      * Uses FAST_FAIL strategy for immediate failover without retries.
@@ -184,10 +260,16 @@ public class SkeletonPlannerAgent extends BaseAgent {
             logger.info("Cleaned Response: {}", cleanedResponse);
             com.fasterxml.jackson.databind.JsonNode root = objectMapper.readTree(cleanedResponse);
             
+            // Validate against the compiled schema before time fields are rewritten
+            List<String> schemaErrors = SKELETON_SCHEMA.validate(root, strictSchemaValidation);
+            if (!schemaErrors.isEmpty()) {
+                logger.warn("Skeleton response for day {} has schema warnings: {}", dayNumber, schemaErrors);
+            }
+            
             // Normalize time fields (convert HH:mm strings to milliseconds)
             normalizeTimeFields(root, request.getStartDate().toString(), dayNumber);
             
-            NormalizedDay day = objectMapper.treeToValue(root, NormalizedDay.class);
+            NormalizedDay day = dayBinder.bind(root);
             
             // Ensure basic fields are set
             if (day.getDayNumber() == 0) {
@@ -225,7 +307,7 @@ public class SkeletonPlannerAgent extends BaseAgent {
             
             return day;
             
-        } catch (JsonProcessingException e) {
+        } catch (IOException e) {
             logger.error("Failed to parse skeleton response", e);
             throw new RuntimeException("Failed to parse skeleton: " + e.getMessage(), e);
         }
@@ -360,49 +442,7 @@ public class SkeletonPlannerAgent extends BaseAgent {
     }
     
     private String buildSkeletonJsonSchema() {
-        return """
-            {
-              "type": "object",
-              "properties": {
-                "dayNumber": { "type": "integer" },
-                "date": { "type": "string", "format": "date" },
-                "location": { "type": "string" },
-                "summary": { "type": "string" },
-                "nodes": {
-                  "type": "array",
-                  "minItems": 4,
-                  "maxItems": 7,
-                  "items": {
-                    "type": "object",
-                    "properties": {
-                      "id": { "type": "string" },
-                      "type": { 
-                        "type": "string", 
-                        "enum": ["attraction", "meal", "accommodation", "transport"] 
-                      },
-                      "title": { "type": "string" },
-                      "location": {
-                        "type": "object",
-                        "properties": {
-                          "name": { "type": "string" }
-                        }
-                      },
-                      "timing": {
-                        "type": "object",
-                        "properties": {
-                          "startTime": { "type": "string" },
-                          "endTime": { "type": "string" },
-                          "durationMin": { "type": "integer" }
-                        }
-                      }
-                    },
-                    "required": ["type", "timing"]
-                  }
-                }
-              },
-              "required": ["dayNumber", "date", "location", "nodes"]
-            }
-            """;
+        return SKELETON_SCHEMA.getSchemaJson();
     }
     
     @Override
@@ -6,6 +6,7 @@ import com.tripplanner.service.AgentEventBus;
 import com.tripplanner.service.AgentEventPublisher;
 import com.tripplanner.service.ItineraryJsonService;
 import com.tripplanner.service.NodeIdGenerator;
+import com.tripplanner.service.TravelTimeService;
 import com.tripplanner.service.ai.AiClient;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
 import org.springframework.stereotype.Component;
@@ -130,6 +131,32 @@ public class TransportAgent extends BaseAgent {
         }
     }
     
+    /**
+     * Populate the transport nodes of a single day in place, without saving.
+     * Used by the per-day pipeline, which persists each day once all its stages are done.
+     * 
+     * @param context Itinerary providing destination and constraints; must contain the day
+     * @return number of transport segments populated
+     */
+    public int populateDayTransport(NormalizedItinerary context, NormalizedDay day) {
+        if (day.getNodes() != null) {
+            for (NormalizedNode node : day.getNodes()) {
+                nodeIdGenerator.ensureNodeHasId(node, day.getDayNumber(), context);
+            }
+        }
+        
+        List<TransportContext> transportContexts = extractTransportNodes(day);
+        if (transportContexts.isEmpty()) {
+            return 0;
+        }
+        
+        List<PopulatedTransport> populatedTransport = populateTransportWithAI(context, transportContexts);
+        applyTransport(List.of(day), populatedTransport);
+        
+        logger.info("Populated {} transport segments for day {}", populatedTransport.size(), day.getDayNumber());
+        return populatedTransport.size();
+    }
+    
     /**
      * Extract transport nodes from skeleton with context.
      */
@@ -137,36 +164,60 @@ public class TransportAgent extends BaseAgent {
         List<TransportContext> contexts = new ArrayList<>();
         
         for (NormalizedDay day : skeleton.getDays()) {
-            if (day.getNodes() == null) continue;
-            
-            // Get previous and next nodes for context
-            for (int i = 0; i < day.getNodes().size(); i++) {
-                NormalizedNode node = day.getNodes().get(i);
-                if ("transport".equals(node.getType())) {
-                    String fromLocation = i > 0 && day.getNodes().get(i-1).getLocation() != null 
-                        ? day.getNodes().get(i-1).getLocation().getName() 
-                        : day.getLocation();
-                    String toLocation = i < day.getNodes().size() - 1 && day.getNodes().get(i+1).getLocation() != null
-                        ? day.getNodes().get(i+1).getLocation().getName()
-                        : day.getLocation();
-                    
-                    contexts.add(new TransportContext(
-                        node.getId(),
-                        day.getDayNumber(),
-                        day.getLocation(),
-                        node.getTiming(),
-                        fromLocation,
-                        toLocation
-                    ));
-                }
+            contexts.addAll(extractTransportNodes(day));
+        }
+        
+        return contexts;
+    }
+    
+    /**
+     * Extract transport nodes of one day with context.
+     */
+    private List<TransportContext> extractTransportNodes(NormalizedDay day) {
+        List<TransportContext> contexts = new ArrayList<>();
+        if (day.getNodes() == null) return contexts;
+        
+        // Get previous and next nodes for context
+        for (int i = 0; i < day.getNodes().size(); i++) {
+            NormalizedNode node = day.getNodes().get(i);
+            if ("transport".equals(node.getType())) {
+                String fromLocation = i > 0 && day.getNodes().get(i-1).getLocation() != null 
+                    ? day.getNodes().get(i-1).getLocation().getName() 
+                    : day.getLocation();
+                String toLocation = i < day.getNodes().size() - 1 && day.getNodes().get(i+1).getLocation() != null
+                    ? day.getNodes().get(i+1).getLocation().getName()
+                    : day.getLocation();
+                Coordinates fromCoordinates = i > 0 ? coordinatesOf(day.getNodes().get(i-1)) : null;
+                Coordinates toCoordinates = i < day.getNodes().size() - 1 ? coordinatesOf(day.getNodes().get(i+1)) : null;
+                
+                contexts.add(new TransportContext(
+                    node.getId(),
+                    day.getDayNumber(),
+                    day.getLocation(),
+                    node.getTiming(),
+                    fromLocation,
+                    toLocation,
+                    fromCoordinates != null && toCoordinates != null
+                        ? TravelTimeService.distanceKm(fromCoordinates, toCoordinates) : null
+                ));
             }
         }
         
         return contexts;
     }
     
+    private Coordinates coordinatesOf(NormalizedNode node) {
+        if (node.getLocation() == null || node.getLocation().getCoordinates() == null) {
+            return null;
+        }
+        Coordinates coords = node.getLocation().getCoordinates();
+        return coords.getLat() != null && coords.getLng() != null ? coords : null;
+    }
+    
     /**
      * Populate transport using AI.
+     * The LLM picks mode and wording; durations come from the local travel-time engine whenever
+     * both endpoints have coordinates.
      */
     private List<PopulatedTransport> populateTransportWithAI(NormalizedItinerary skeleton,
                                                               List<TransportContext> contexts) {
@@ -199,6 +250,7 @@ public class TransportAgent extends BaseAgent {
                 }
             }
             
+            applyEstimatedDurations(transports, contexts);
             return transports;
             
         } catch (Exception e) {
@@ -207,12 +259,46 @@ public class TransportAgent extends BaseAgent {
         }
     }
     
+    /**
+     * Replace LLM-estimated durations with locally computed ones for segments with known distance.
+     */
+    private void applyEstimatedDurations(List<PopulatedTransport> transports, List<TransportContext> contexts) {
+        Map<String, TransportContext> contextByNodeId = new HashMap<>();
+        for (TransportContext ctx : contexts) {
+            contextByNodeId.put(ctx.nodeId, ctx);
+        }
+        
+        for (PopulatedTransport transport : transports) {
+            TransportContext ctx = transport.getNodeId() != null ? contextByNodeId.get(transport.getNodeId()) : null;
+            TravelTimeService.TravelMode mode = TravelTimeService.TravelMode.fromTransportMode(transport.getMode());
+            if (ctx != null && ctx.distanceKm != null && mode != null) {
+                transport.setDurationMinutes(mode.minutesFor(ctx.distanceKm));
+            }
+        }
+    }
+    
     /**
      * Update itinerary with populated transport data.
      */
     private void updateItineraryWithTransport(String itineraryId, NormalizedItinerary skeleton,
                                               List<PopulatedTransport> populatedTransport) {
         
+        applyTransport(skeleton.getDays(), populatedTransport);
+        
+        try {
+            skeleton.setUpdatedAt(System.currentTimeMillis());
+            itineraryJsonService.updateItinerary(skeleton);
+            logger.info("Saved itinerary with populated transport");
+        } catch (Exception e) {
+            logger.error("Failed to save itinerary with transport: {}", e.getMessage());
+        }
+    }
+    
+    /**
+     * Apply populated transport data to the nodes of the given days.
+     */
+    private void applyTransport(List<NormalizedDay> days, List<PopulatedTransport> populatedTransport) {
+        
         // Filter out any null nodeIds and handle duplicates gracefully
         Map<String, PopulatedTransport> transportMap = populatedTransport.stream()
             .filter(t -> t.getNodeId() != null)
@@ -225,7 +311,7 @@ public class TransportAgent extends BaseAgent {
                 }
             ));
         
-        for (NormalizedDay day : skeleton.getDays()) {
+        for (NormalizedDay day : days) {
             if (day.getNodes() == null) continue;
             
             for (NormalizedNode node : day.getNodes()) {
@@ -248,14 +334,6 @@ public class TransportAgent extends BaseAgent {
                 }
             }
         }
-        
-        try {
-            skeleton.setUpdatedAt(System.currentTimeMillis());
-            itineraryJsonService.updateItinerary(skeleton);
-            logger.info("Saved itinerary with populated transport");
-        } catch (Exception e) {
-            logger.error("Failed to save itinerary with transport: {}", e.getMessage());
-        }
     }
     
     private String buildTransportSystemPrompt() {
@@ -304,6 +382,9 @@ public class TransportAgent extends BaseAgent {
         for (TransportContext ctx : contexts) {
             prompt.append(String.format("- Day %d, Node ID: %s\n", ctx.dayNumber, ctx.nodeId));
             prompt.append(String.format("  From: %s → To: %s\n", ctx.fromLocation, ctx.toLocation));
+            if (ctx.distanceKm != null) {
+                prompt.append(String.format("  Distance: %.1f km\n", ctx.distanceKm));
+            }
             if (ctx.timing != null) {
                 prompt.append(String.format("  Time: %s\n", ctx.timing.getStartTime()));
             }
@@ -365,15 +446,18 @@ public class TransportAgent extends BaseAgent {
         NodeTiming timing;
         String fromLocation;
         String toLocation;
+        Double distanceKm;
         
         public TransportContext(String nodeId, int dayNumber, String dayLocation, 
-                               NodeTiming timing, String fromLocation, String toLocation) {
+                               NodeTiming timing, String fromLocation, String toLocation,
+                               Double distanceKm) {
             this.nodeId = nodeId;
             this.dayNumber = dayNumber;
             this.dayLocation = dayLocation;
             this.timing = timing;
             this.fromLocation = fromLocation;
             this.toLocation = toLocation;
+            this.distanceKm = distanceKm;
         }
     }
     
@@ -71,7 +71,29 @@ public class AsyncConfig implements AsyncConfigurer {
         
         return executor;
     }
-    
+
+    /**
+     * Executor for best-effort background enrichment of edited nodes.
+     * Kept apart from the primary executor so a burst of edits cannot starve itinerary generation;
+     * when it is full, new enrichment is rejected and the nodes are left unenriched.
+     */
+    @Bean(name = "enrichmentExecutor")
+    public TaskExecutor enrichmentExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(2);
+        executor.setMaxPoolSize(4);
+        executor.setQueueCapacity(100);
+        executor.setThreadNamePrefix("AutoEnrich-");
+        executor.setKeepAliveSeconds(60);
+        executor.setAllowCoreThreadTimeOut(true);
+        executor.initialize();
+
+        logger.info("Enrichment TaskExecutor configured: max pool size {}, queue capacity {}",
+                   executor.getMaxPoolSize(), executor.getQueueCapacity());
+
+        return executor;
+    }
+
     /**
      * Exception handler for uncaught async exceptions.
      */
@@ -6,6 +6,7 @@ import com.tripplanner.util.GuestUserUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
@@ -32,16 +33,31 @@ public class FirebaseAuthConfig {
     @Autowired
     private FirebaseAuth firebaseAuth;
 
+    @Value("${firebase.auth.token-cache.max-entries:10000}")
+    private int tokenCacheMaxEntries;
+
+    // Upper bound on how long a verified token is trusted without re-verification
+    @Value("${firebase.auth.token-cache.max-ttl-seconds:300}")
+    private long tokenCacheMaxTtlSeconds;
+
     /**
-     * Filter to validate Firebase ID tokens
+     * Filter to validate Firebase ID tokens.
+     * Verified tokens are cached until expiry, so repeat requests with the same token
+     * (polling, status checks) cost a hash lookup instead of a signature verification.
      */
     public static class FirebaseAuthFilter extends OncePerRequestFilter {
 
         private static final Logger logger = LoggerFactory.getLogger(FirebaseAuthFilter.class);
         private final FirebaseAuth firebaseAuth;
+        private final VerifiedTokenCache tokenCache;
 
         public FirebaseAuthFilter(FirebaseAuth firebaseAuth) {
+            this(firebaseAuth, new VerifiedTokenCache(10000, 300_000L));
+        }
+
+        public FirebaseAuthFilter(FirebaseAuth firebaseAuth, VerifiedTokenCache tokenCache) {
             this.firebaseAuth = firebaseAuth;
+            this.tokenCache = tokenCache;
         }
 
         @Override
@@ -71,7 +87,7 @@ public class FirebaseAuthConfig {
                     // Authenticated user - validate token
                     String idToken = authHeader.substring(7);
                     try {
-                        FirebaseToken decodedToken = firebaseAuth.verifyIdToken(idToken);
+                        VerifiedTokenCache.VerifiedToken decodedToken = verifyToken(idToken);
                         String userId = decodedToken.getUid();
                         request.setAttribute("userId", userId);
                         request.setAttribute("userEmail", decodedToken.getEmail());
@@ -108,7 +124,7 @@ public class FirebaseAuthConfig {
             String idToken = authHeader.substring(7); // Remove "Bearer " prefix
 
             try {
-                FirebaseToken decodedToken = firebaseAuth.verifyIdToken(idToken);
+                VerifiedTokenCache.VerifiedToken decodedToken = verifyToken(idToken);
                 String userId = decodedToken.getUid();
                 
                 // Add user ID to request attributes for use in controllers
@@ -127,6 +143,19 @@ public class FirebaseAuthConfig {
             }
         }
 
+        /**
+         * Verify an ID token, serving repeat tokens from the verified-token cache.
+         */
+        private VerifiedTokenCache.VerifiedToken verifyToken(String idToken) throws Exception {
+            return tokenCache.getOrVerify(idToken, token -> {
+                FirebaseToken decodedToken = firebaseAuth.verifyIdToken(token);
+                Object exp = decodedToken.getClaims().get("exp");
+                long expiresAtMillis = exp instanceof Number ? ((Number) exp).longValue() * 1000L : 0L;
+                return new VerifiedTokenCache.VerifiedToken(
+                    decodedToken.getUid(), decodedToken.getEmail(), decodedToken.getName(), expiresAtMillis);
+            });
+        }
+
         /**
          * Check if an endpoint is accessible to guest users.
          * These endpoints work for both authenticated and guest users.
@@ -163,7 +192,8 @@ public class FirebaseAuthConfig {
     @Bean
     public FilterRegistrationBean<FirebaseAuthFilter> firebaseAuthFilterRegistration() {
         FilterRegistrationBean<FirebaseAuthFilter> registration = new FilterRegistrationBean<>();
-        registration.setFilter(new FirebaseAuthFilter(firebaseAuth));
+        VerifiedTokenCache tokenCache = new VerifiedTokenCache(tokenCacheMaxEntries, tokenCacheMaxTtlSeconds * 1000L);
+        registration.setFilter(new FirebaseAuthFilter(firebaseAuth, tokenCache));
         registration.addUrlPatterns("/api/v1/*");
         registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
         registration.setName("firebaseAuthFilter");
@@ -42,7 +42,9 @@ public class FirestoreConfig {
     @Value("${firestore.credentials-file:}")
     private String credentialsFilePath;
 
+    // Only the Firestore backend talks to Firestore; database.backend=local runs without it
     @Bean
+    @ConditionalOnProperty(name = "database.backend", havingValue = "firestore", matchIfMissing = true)
     public Firestore firestore() {
         try {
             FirestoreOptions.Builder builder = FirestoreOptions.newBuilder();
@@ -0,0 +1,206 @@
+package com.tripplanner.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Bounded cache of verified ID token claims, keyed by a SHA-256 hash of the token.
+ *
+ * Entries live until the token's own expiry or the configured maximum TTL, whichever is first,
+ * so a revoked or expired token is never served for long. When the cache is full, expired entries
+ * are dropped first and then the least recently used ones. Concurrent verifications of the same
+ * token (e.g. parallel polling requests right after login) are collapsed into one call.
+ */
+public class VerifiedTokenCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(VerifiedTokenCache.class);
+
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    });
+
+    private final int maxEntries;
+    private final long maxTtlMillis;
+    private final LongSupplier clock;
+
+    // Access-ordered, so the eldest entry is the least recently used; guarded by itself
+    private final LinkedHashMap<String, VerifiedToken> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, CompletableFuture<VerifiedToken>> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public VerifiedTokenCache(int maxEntries, long maxTtlMillis) {
+        this(maxEntries, maxTtlMillis, System::currentTimeMillis);
+    }
+
+    VerifiedTokenCache(int maxEntries, long maxTtlMillis, LongSupplier clock) {
+        this.maxEntries = maxEntries;
+        this.maxTtlMillis = maxTtlMillis;
+        this.clock = clock;
+    }
+
+    /**
+     * Verifier for a raw ID token; throws when the token is invalid.
+     */
+    @FunctionalInterface
+    public interface TokenVerifier {
+        VerifiedToken verify(String idToken) throws Exception;
+    }
+
+    /**
+     * Return the cached claims for the token, verifying it on a miss.
+     *
+     * @throws Exception the verifier's failure when the token is invalid
+     */
+    public VerifiedToken getOrVerify(String idToken, TokenVerifier verifier) throws Exception {
+        String key = hash(idToken);
+        long now = clock.getAsLong();
+
+        VerifiedToken cached;
+        synchronized (entries) {
+            cached = entries.get(key);
+            if (cached != null && cached.getCacheUntilMillis() <= now) {
+                entries.remove(key);
+                cached = null;
+            }
+        }
+        if (cached != null) {
+            hits.incrementAndGet();
+            return cached;
+        }
+        misses.incrementAndGet();
+
+        CompletableFuture<VerifiedToken> verification = new CompletableFuture<>();
+        CompletableFuture<VerifiedToken> existing = inFlight.putIfAbsent(key, verification);
+        if (existing != null) {
+            return await(existing);
+        }
+
+        try {
+            VerifiedToken verified = verifier.verify(idToken);
+            store(key, verified, now);
+            verification.complete(verified);
+            return verified;
+        } catch (Exception e) {
+            verification.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, verification);
+        }
+    }
+
+    public void invalidateAll() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    private void store(String key, VerifiedToken verified, long now) {
+        long cacheUntil = Math.min(verified.getExpiresAtMillis(), now + maxTtlMillis);
+        if (cacheUntil <= now) {
+            return;
+        }
+        synchronized (entries) {
+            if (!entries.containsKey(key) && entries.size() >= maxEntries) {
+                evict(now);
+            }
+            entries.put(key, verified.withCacheUntil(cacheUntil));
+        }
+    }
+
+    /**
+     * Make room for one entry: drop expired entries, then least recently used ones while the cache
+     * is still full. Called with the entries lock held.
+     */
+    private void evict(long now) {
+        entries.values().removeIf(entry -> entry.getCacheUntilMillis() <= now);
+
+        Iterator<String> eldest = entries.keySet().iterator();
+        while (entries.size() >= maxEntries && eldest.hasNext()) {
+            eldest.next();
+            eldest.remove();
+        }
+        logger.debug("Evicted verified tokens, {} entries remain", entries.size());
+    }
+
+    private static VerifiedToken await(CompletableFuture<VerifiedToken> verification) throws Exception {
+        try {
+            return verification.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof Exception) {
+                throw (Exception) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private static String hash(String idToken) {
+        // digest() resets the instance, so the thread-local digest can be reused
+        return Base64.getEncoder().encodeToString(SHA_256.get().digest(idToken.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Claims of a verified token that the request pipeline needs.
+     */
+    public static class VerifiedToken {
+        private final String uid;
+        private final String email;
+        private final String name;
+        private final long expiresAtMillis;
+        private final long cacheUntilMillis;
+
+        public VerifiedToken(String uid, String email, String name, long expiresAtMillis) {
+            this(uid, email, name, expiresAtMillis, expiresAtMillis);
+        }
+
+        private VerifiedToken(String uid, String email, String name, long expiresAtMillis, long cacheUntilMillis) {
+            this.uid = uid;
+            this.email = email;
+            this.name = name;
+            this.expiresAtMillis = expiresAtMillis;
+            this.cacheUntilMillis = cacheUntilMillis;
+        }
+
+        VerifiedToken withCacheUntil(long cacheUntil) {
+            return new VerifiedToken(uid, email, name, expiresAtMillis, cacheUntil);
+        }
+
+        public String getUid() { return uid; }
+        public String getEmail() { return email; }
+        public String getName() { return name; }
+        public long getExpiresAtMillis() { return expiresAtMillis; }
+        long getCacheUntilMillis() { return cacheUntilMillis; }
+    }
+}
@@ -4,6 +4,7 @@ import com.tripplanner.dto.*;
 import com.tripplanner.service.BookingService;
 import com.tripplanner.service.ChangeEngine;
 import com.tripplanner.service.ItineraryJsonService;
+import com.tripplanner.service.RazorpayWebhookQueue;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotBlank;
@@ -60,11 +61,13 @@ public class BookingController {
             HttpServletRequest request,
             @RequestBody String body) {
         
-        logger.info("Received Razorpay webhook");
+        logger.debug("Received Razorpay webhook");
         
-        bookingService.handleRazorpayWebhook(request, body);
-        
-        logger.info("Razorpay webhook processed successfully");
+        // Duplicates are acknowledged too, so Razorpay stops retrying them
+        RazorpayWebhookQueue.Intake intake = bookingService.handleRazorpayWebhook(request, body);
+        if (intake == RazorpayWebhookQueue.Intake.REJECTED) {
+            return ResponseEntity.badRequest().build();
+        }
         return ResponseEntity.ok().build();
     }
     
@@ -114,6 +117,26 @@ public class BookingController {
         return ResponseEntity.ok(bookings);
     }
     
+    /**
+     * Get one page of the authenticated user's bookings, newest first.
+     * Pass the returned nextCursor as "cursor" to load the next page.
+     */
+    @GetMapping("/bookings/page")
+    public ResponseEntity<BookingListPage> getBookingPage(
+            @RequestParam(defaultValue = "20") int limit,
+            @RequestParam(required = false) String cursor,
+            HttpServletRequest httpRequest) {
+        String userId = (String) httpRequest.getAttribute("userId");
+        logger.debug("Getting booking page for user: {}, limit: {}", userId, limit);
+        
+        try {
+            return ResponseEntity.ok(bookingService.getBookingPage(userId, limit, cursor));
+        } catch (IllegalArgumentException e) {
+            logger.warn("Invalid booking page request: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+    
     /**
      * Cancel a booking.
      */
@@ -441,15 +464,15 @@ public class BookingController {
         logger.debug("Getting bookings for itinerary: {}", itineraryId);
         
         try {
-            java.util.List<com.tripplanner.data.entity.Booking> bookings = 
+            java.util.List<BookingSummary> bookings = 
                 this.bookingService.getBookingsByItineraryId(itineraryId);
             
             java.util.List<BookingRecordResponse> response = bookings.stream()
                 .map(booking -> new BookingRecordResponse(
-                    booking.getBookingId(),
-                    booking.getStatus().toString(),
-                    booking.getProvider() != null ? booking.getProvider().getConfirmationId() : null,
-                    booking.getCreatedAt()
+                    booking.bookingId(),
+                    booking.status().toString(),
+                    booking.confirmationId(),
+                    booking.createdAt()
                 ))
                 .toList();
             
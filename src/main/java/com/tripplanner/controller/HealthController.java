@@ -1,5 +1,9 @@
 package com.tripplanner.controller;
 
+import com.tripplanner.service.AgentWorkScheduler;
+import com.tripplanner.service.ItineraryJsonService;
+import com.tripplanner.service.RazorpayWebhookQueue;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -13,6 +17,15 @@ import java.util.Map;
 @RequestMapping("/api/v1")
 public class HealthController {
     
+    @Autowired(required = false)
+    private AgentWorkScheduler agentWorkScheduler;
+    
+    @Autowired(required = false)
+    private ItineraryJsonService itineraryJsonService;
+    
+    @Autowired(required = false)
+    private RazorpayWebhookQueue razorpayWebhookQueue;
+    
     @GetMapping("/health")
     public ResponseEntity<Map<String, Object>> health() {
         return ResponseEntity.ok(Map.of(
@@ -23,6 +36,40 @@ public class HealthController {
         ));
     }
     
+    /**
+     * Queue depth, throughput and queue-time percentiles of agent work per class.
+     */
+    @GetMapping("/health/agent-scheduler")
+    public ResponseEntity<Map<AgentWorkScheduler.WorkClass, AgentWorkScheduler.ClassStats>> agentScheduler() {
+        if (agentWorkScheduler == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(agentWorkScheduler.getStats());
+    }
+    
+    /**
+     * Buffered, flushed and dropped itinerary mutations and the coalescing ratio of write-behind.
+     */
+    @GetMapping("/health/write-behind")
+    public ResponseEntity<ItineraryJsonService.WriteBehindStats> writeBehind() {
+        if (itineraryJsonService == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(itineraryJsonService.getWriteBehindStats());
+    }
+    
+    /**
+     * Accepted, duplicate, rejected, processed, failed and pending Razorpay webhook events.
+     * Not found when Razorpay is disabled.
+     */
+    @GetMapping("/health/razorpay-webhooks")
+    public ResponseEntity<RazorpayWebhookQueue.QueueStats> razorpayWebhooks() {
+        if (razorpayWebhookQueue == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(razorpayWebhookQueue.getStats());
+    }
+    
     @GetMapping("/test")
     public ResponseEntity<Map<String, Object>> test() {
         return ResponseEntity.ok(Map.of(
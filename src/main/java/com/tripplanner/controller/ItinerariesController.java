@@ -213,7 +213,10 @@ public class ItinerariesController {
      * Get all itineraries for the authenticated user.
      */
     @GetMapping
-    public ResponseEntity<List<ItineraryDto>> getAll(HttpServletRequest httpRequest) {
+    public ResponseEntity<List<ItineraryDto>> getAll(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(required = false) Integer size,
+            HttpServletRequest httpRequest) {
         logger.info("Getting all itineraries");
         
         try {
@@ -225,7 +228,9 @@ public class ItinerariesController {
                 return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
             }
             
-            List<ItineraryDto> itineraries = itineraryService.getUserItineraries(userId, 0, 10);
+            // Without a size, every trip is returned as before
+            List<ItineraryDto> itineraries = itineraryService.getUserItineraries(
+                    userId, page, size != null ? size : Integer.MAX_VALUE);
             
             logger.info("Found {} itineraries for user: {}", itineraries.size(), userId);
             return ResponseEntity.ok(itineraries);
@@ -236,6 +241,32 @@ public class ItinerariesController {
         }
     }
     
+    /**
+     * Get one page of the authenticated user's itineraries, newest first.
+     * Pass the returned nextCursor as "cursor" to load the next page.
+     */
+    @GetMapping("/page")
+    public ResponseEntity<ItineraryListPage> getPage(
+            @RequestParam(defaultValue = "20") int limit,
+            @RequestParam(required = false) String cursor,
+            HttpServletRequest httpRequest) {
+        try {
+            String userId = (String) httpRequest.getAttribute("userId");
+            if (userId == null) {
+                logger.error("User ID not found in request");
+                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+            }
+            
+            return ResponseEntity.ok(itineraryService.getUserItineraryPage(userId, limit, cursor));
+        } catch (IllegalArgumentException e) {
+            logger.warn("Invalid itinerary page request: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            logger.error("Failed to get itinerary page", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+    
     /**
      * Get itinerary by ID for the authenticated user.
      */
@@ -940,6 +971,39 @@ public class ItinerariesController {
         }
     }
     
+    /**
+     * Get one page of chat history, newest page first.
+     * Pass the returned nextCursor as "before" to load older messages.
+     */
+    @GetMapping("/{id}/chat/history/page")
+    public ResponseEntity<ChatHistoryPage> getChatHistoryPage(
+            @PathVariable String id,
+            @RequestParam(defaultValue = "50") int limit,
+            @RequestParam(required = false) String before,
+            HttpServletRequest request) {
+        try {
+            String userId = (String) request.getAttribute("userId");
+            if (userId == null) {
+                logger.error("User ID not found in request");
+                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+            }
+            
+            // Verify itinerary exists and user has access
+            Optional<NormalizedItinerary> itineraryOpt = itineraryJsonService.getItinerary(id);
+            if (itineraryOpt.isEmpty()) {
+                return ResponseEntity.notFound().build();
+            }
+            
+            return ResponseEntity.ok(chatHistoryService.getChatHistoryPage(id, limit, before));
+        } catch (IllegalArgumentException e) {
+            logger.warn("Invalid chat history page request for itinerary {}: {}", id, e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            logger.error("Error getting chat history page for itinerary {}: {}", id, e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+    
     /**
      * Save a chat message to history
      */
@@ -12,7 +12,16 @@ import java.util.Objects;
  * Stored in Firestore via BookingRepository
  */
 @Entity
-@Table(name = "bookings")
+@Table(name = "bookings", indexes = {
+        // Keyset pagination of list views, newest first
+        @Index(name = "idx_bookings_user_created", columnList = "userId, createdAt, id"),
+        @Index(name = "idx_bookings_itinerary_created", columnList = "itineraryId, createdAt, id"),
+        @Index(name = "idx_bookings_created", columnList = "createdAt, id"),
+        @Index(name = "idx_bookings_status", columnList = "status"),
+        // Webhook and provider booking lookups
+        @Index(name = "idx_bookings_order_id", columnList = "orderId"),
+        @Index(name = "idx_bookings_payment_id", columnList = "paymentId")
+})
 public class Booking {
     
     @Id
@@ -54,6 +63,9 @@ public class Booking {
     @Column(name = "updatedAt")
     private Instant updatedAt;
     
+    // Only loaded when accessed (requires Hibernate bytecode enhancement); list views
+    // select BookingSummary projections and never read the TEXT columns either way
+    @Basic(fetch = FetchType.LAZY)
     @Column(name = "metadata", columnDefinition = "TEXT")
     private String metadataJson;
     
@@ -1,11 +1,14 @@
 package com.tripplanner.data.repo;
 
 import com.tripplanner.data.entity.Booking;
+import com.tripplanner.dto.BookingSummary;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
 
@@ -15,6 +18,15 @@ import java.util.Optional;
 @Repository
 public interface BookingRepository extends JpaRepository<Booking, Long> {
     
+    String SUMMARY = "SELECT new com.tripplanner.dto.BookingSummary(b.id, b.bookingId, b.userId, "
+            + "b.itineraryId, b.status, b.provider.confirmationId, b.createdAt) FROM Booking b ";
+    
+    // Keyset condition: rows strictly after the (createdAt, id) cursor in newest-first order
+    String BEFORE_CURSOR = "(b.createdAt < :createdAt OR (b.createdAt = :createdAt AND b.id < :id)) ";
+    
+    String NEWEST_FIRST = "ORDER BY b.createdAt DESC, b.id DESC";
+    
+
     /**
      * Find bookings by user ID.
      */
@@ -46,4 +58,31 @@ public interface BookingRepository extends JpaRepository<Booking, Long> {
      * Find booking by booking ID.
      */
     Optional<Booking> findByBookingId(String bookingId);
+    
+    /**
+     * Booking summaries, newest first. Pass PageRequest.of(0, n) for the first n rows.
+     */
+    @Query(SUMMARY + NEWEST_FIRST)
+    List<BookingSummary> findSummaries(Pageable pageable);
+    
+    /**
+     * A user's booking summaries, newest first.
+     */
+    @Query(SUMMARY + "WHERE b.userId = :userId " + NEWEST_FIRST)
+    List<BookingSummary> findSummariesByUserId(@Param("userId") String userId, Pageable pageable);
+    
+    /**
+     * A user's booking summaries created before the (createdAt, id) cursor, newest first.
+     */
+    @Query(SUMMARY + "WHERE b.userId = :userId AND " + BEFORE_CURSOR + NEWEST_FIRST)
+    List<BookingSummary> findSummariesByUserIdBefore(@Param("userId") String userId,
+                                                     @Param("createdAt") Instant createdAt,
+                                                     @Param("id") Long id,
+                                                     Pageable pageable);
+    
+    /**
+     * Booking summaries for an itinerary, newest first.
+     */
+    @Query(SUMMARY + "WHERE b.itineraryId = :itineraryId " + NEWEST_FIRST)
+    List<BookingSummary> findSummariesByItineraryId(@Param("itineraryId") String itineraryId);
 }
@@ -16,9 +16,18 @@ public record AgentEvent(
         String message,
         String step,
         Instant updatedAt,
-        String itineraryId
+        String itineraryId,
+        Object data
 ) {
     
+    /**
+     * Create an agent event without a payload.
+     */
+    public AgentEvent(String agentId, AgentKind kind, AgentStatus status, Integer progress, String message,
+                      String step, Instant updatedAt, String itineraryId) {
+        this(agentId, kind, status, progress, message, step, updatedAt, itineraryId, null);
+    }
+    
     /**
      * Create a new agent event.
      */
@@ -36,7 +45,8 @@ public record AgentEvent(
         orchestrator,
         BOOKING,
         EDITOR,
-        EXPLAINER
+        EXPLAINER,
+        ROUTE_OPTIMIZER
     }
     
     /**
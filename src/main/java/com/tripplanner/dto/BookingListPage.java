@@ -0,0 +1,63 @@
+package com.tripplanner.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+/**
+ * BookingListPage DTO for the cursor-paginated booking list, newest bookings first.
+ */
+public class BookingListPage {
+
+    @JsonProperty("bookings")
+    private List<BookingSummary> bookings;
+
+    // Pass as "cursor" to load the next page; null when there are no more bookings
+    @JsonProperty("nextCursor")
+    private String nextCursor;
+
+    @JsonProperty("hasMore")
+    private boolean hasMore;
+
+    public BookingListPage() {}
+
+    public BookingListPage(List<BookingSummary> bookings, String nextCursor, boolean hasMore) {
+        this.bookings = bookings;
+        this.nextCursor = nextCursor;
+        this.hasMore = hasMore;
+    }
+
+    // Getters and Setters
+    public List<BookingSummary> getBookings() {
+        return bookings;
+    }
+
+    public void setBookings(List<BookingSummary> bookings) {
+        this.bookings = bookings;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    public boolean isHasMore() {
+        return hasMore;
+    }
+
+    public void setHasMore(boolean hasMore) {
+        this.hasMore = hasMore;
+    }
+
+    @Override
+    public String toString() {
+        return "BookingListPage{" +
+                "bookings=" + (bookings != null ? bookings.size() : 0) +
+                ", nextCursor='" + nextCursor + '\'' +
+                ", hasMore=" + hasMore +
+                '}';
+    }
+}
@@ -0,0 +1,21 @@
+package com.tripplanner.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.tripplanner.data.entity.Booking;
+
+import java.time.Instant;
+
+/**
+ * BookingSummary DTO for booking list views.
+ * Selected directly by BookingRepository projection queries, so the item, price, provider
+ * and metadata TEXT columns are never read for a list.
+ */
+public record BookingSummary(
+        @JsonIgnore Long id,
+        String bookingId,
+        String userId,
+        String itineraryId,
+        Booking.BookingStatus status,
+        String confirmationId,
+        Instant createdAt
+) {}
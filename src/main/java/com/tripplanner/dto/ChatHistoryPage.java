@@ -0,0 +1,65 @@
+package com.tripplanner.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ChatHistoryPage DTO for cursor-paginated chat history, newest page first.
+ */
+public class ChatHistoryPage {
+
+    // Messages of this page, oldest first
+    @JsonProperty("messages")
+    private List<Map<String, Object>> messages;
+
+    // Pass as "before" to load the next older page; null when there are no older messages
+    @JsonProperty("nextCursor")
+    private String nextCursor;
+
+    @JsonProperty("hasMore")
+    private boolean hasMore;
+
+    public ChatHistoryPage() {}
+
+    public ChatHistoryPage(List<Map<String, Object>> messages, String nextCursor, boolean hasMore) {
+        this.messages = messages;
+        this.nextCursor = nextCursor;
+        this.hasMore = hasMore;
+    }
+
+    // Getters and Setters
+    public List<Map<String, Object>> getMessages() {
+        return messages;
+    }
+
+    public void setMessages(List<Map<String, Object>> messages) {
+        this.messages = messages;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    public boolean isHasMore() {
+        return hasMore;
+    }
+
+    public void setHasMore(boolean hasMore) {
+        this.hasMore = hasMore;
+    }
+
+    @Override
+    public String toString() {
+        return "ChatHistoryPage{" +
+                "messages=" + (messages != null ? messages.size() : 0) +
+                ", nextCursor='" + nextCursor + '\'' +
+                ", hasMore=" + hasMore +
+                '}';
+    }
+}
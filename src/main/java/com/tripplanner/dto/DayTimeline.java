@@ -0,0 +1,355 @@
+package com.tripplanner.dto;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Interval index over the timed nodes of a single day.
+ *
+ * Nodes are kept in a treap ordered by start time where every subtree also tracks the latest end
+ * time below it, so overlap checks and next-free-slot lookups take O(log n) instead of a scan of
+ * the whole day per candidate time. Nodes without both a start and an end time are not indexed.
+ *
+ * Like the DTOs it indexes this is not thread-safe. The index remembers the node list it was built
+ * from and each node's timing version, so {@link NormalizedDay#getTimeline()} rebuilds it after any
+ * edit made behind its back. ChangeEngine keeps it current incrementally instead.
+ */
+public class DayTimeline {
+
+    private final List<NormalizedNode> source;
+    // The source list's nodes and their timing versions as of the last build or update
+    private NormalizedNode[] sourceNodes = new NormalizedNode[0];
+    private long[] sourceVersions = new long[0];
+
+    private final Map<String, Entry> entriesByNodeId = new HashMap<>();
+    private Entry root;
+    private long nextSequence;
+
+    private DayTimeline(List<NormalizedNode> source) {
+        this.source = source;
+    }
+
+    /**
+     * Build an index over the given nodes.
+     */
+    public static DayTimeline of(List<NormalizedNode> nodes) {
+        DayTimeline timeline = new DayTimeline(nodes);
+        if (nodes != null) {
+            for (NormalizedNode node : nodes) {
+                timeline.index(node);
+            }
+            timeline.snapshotSource();
+        }
+        return timeline;
+    }
+
+    /**
+     * Whether this index is current for the given node list: built from (and kept in step with) the
+     * same list, holding the same nodes, none of whose id or timing changed since.
+     */
+    boolean isBuiltFrom(List<NormalizedNode> nodes) {
+        if (source != nodes || (nodes != null ? nodes.size() : 0) != sourceNodes.length) {
+            return false;
+        }
+        for (int i = 0; i < sourceNodes.length; i++) {
+            NormalizedNode node = nodes.get(i);
+            if (node != sourceNodes[i] || (node != null && node.timingVersion() != sourceVersions[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Record a node added to the day, after it was added to the node list.
+     */
+    public void add(NormalizedNode node) {
+        index(node);
+        snapshotSource();
+    }
+
+    /**
+     * Record a node removed from the day, after it was removed from the node list.
+     */
+    public void remove(String nodeId) {
+        unindex(nodeId);
+        snapshotSource();
+    }
+
+    /**
+     * Record a change to a node's timing, after it was made.
+     */
+    public void update(NormalizedNode node) {
+        if (node != null) {
+            unindex(node.getId());
+            index(node);
+        }
+        snapshotSource();
+    }
+
+    /**
+     * Record a node replaced in place by another, after it was replaced in the node list.
+     */
+    public void replace(String oldNodeId, NormalizedNode replacement) {
+        unindex(oldNodeId);
+        index(replacement);
+        snapshotSource();
+    }
+
+    /**
+     * Number of indexed (timed) nodes.
+     */
+    public int size() {
+        return entriesByNodeId.size();
+    }
+
+    /**
+     * Nodes whose timing overlaps [startTime, endTime), in start order.
+     */
+    public List<NormalizedNode> overlapping(long startTime, long endTime) {
+        List<NormalizedNode> result = new ArrayList<>();
+        collectOverlapping(root, startTime, endTime, result);
+        return result;
+    }
+
+    /**
+     * Nodes starting in [from, to), in start order.
+     */
+    public List<NormalizedNode> startingBetween(long from, long to) {
+        List<NormalizedNode> result = new ArrayList<>();
+        collectStartingBetween(root, from, to, result);
+        return result;
+    }
+
+    /**
+     * All indexed nodes in start order.
+     */
+    public List<NormalizedNode> inStartOrder() {
+        return startingBetween(Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     * Find the earliest start at or after {@code from}, and before {@code searchUntil}, where a slot of
+     * the given duration overlaps no indexed node.
+     *
+     * @param excludeNodeId node to ignore, typically the one being moved; may be null
+     * @return the slot start, or null if there is no free slot in the search window
+     */
+    public Long nextFreeSlot(long from, long duration, long searchUntil, String excludeNodeId) {
+        Entry exclude = excludeNodeId != null ? entriesByNodeId.get(excludeNodeId) : null;
+        long candidate = from;
+
+        while (candidate < searchUntil) {
+            // Anything starting before the slot ends and ending after it starts blocks it, and no
+            // slot can start before the latest such end
+            long blockedUntil = maxEndStartingBefore(root, candidate + duration, exclude);
+            if (blockedUntil <= candidate) {
+                return candidate;
+            }
+            candidate = blockedUntil;
+        }
+
+        return null;
+    }
+
+    private void snapshotSource() {
+        int size = source != null ? source.size() : 0;
+        sourceNodes = new NormalizedNode[size];
+        sourceVersions = new long[size];
+        for (int i = 0; i < size; i++) {
+            NormalizedNode node = source.get(i);
+            sourceNodes[i] = node;
+            sourceVersions[i] = node != null ? node.timingVersion() : 0;
+        }
+    }
+
+    private void index(NormalizedNode node) {
+        if (node == null || node.getTiming() == null
+                || node.getTiming().getStartTime() == null || node.getTiming().getEndTime() == null) {
+            return;
+        }
+
+        Entry entry = new Entry(node, node.getTiming().getStartTime(), node.getTiming().getEndTime(),
+                nextSequence++, ThreadLocalRandom.current().nextInt());
+        if (node.getId() != null) {
+            Entry previous = entriesByNodeId.put(node.getId(), entry);
+            if (previous != null) {
+                root = delete(root, previous);
+            }
+        }
+        root = insert(root, entry);
+    }
+
+    private void unindex(String nodeId) {
+        if (nodeId == null) {
+            return;
+        }
+        Entry entry = entriesByNodeId.remove(nodeId);
+        if (entry != null) {
+            root = delete(root, entry);
+        }
+    }
+
+    private static void collectOverlapping(Entry entry, long startTime, long endTime, List<NormalizedNode> result) {
+        if (entry == null || entry.maxEnd <= startTime) {
+            return;
+        }
+        collectOverlapping(entry.left, startTime, endTime, result);
+        if (entry.start < endTime) {
+            if (entry.end > startTime) {
+                result.add(entry.node);
+            }
+            collectOverlapping(entry.right, startTime, endTime, result);
+        }
+    }
+
+    private static void collectStartingBetween(Entry entry, long from, long to, List<NormalizedNode> result) {
+        if (entry == null) {
+            return;
+        }
+        if (entry.start >= from) {
+            collectStartingBetween(entry.left, from, to, result);
+        }
+        if (entry.start >= from && entry.start < to) {
+            result.add(entry.node);
+        }
+        if (entry.start < to) {
+            collectStartingBetween(entry.right, from, to, result);
+        }
+    }
+
+    /**
+     * Latest end time among entries starting before {@code bound}, ignoring {@code exclude}.
+     */
+    private static long maxEndStartingBefore(Entry entry, long bound, Entry exclude) {
+        if (entry == null) {
+            return Long.MIN_VALUE;
+        }
+        if (entry.start >= bound) {
+            return maxEndStartingBefore(entry.left, bound, exclude);
+        }
+
+        // Every entry on the left starts no later than this one, so the cached maximum applies
+        // unless the excluded entry lives there
+        long best = entry != exclude ? entry.end : Long.MIN_VALUE;
+        if (exclude != null && compare(exclude, entry) < 0) {
+            best = Math.max(best, maxEndStartingBefore(entry.left, bound, exclude));
+        } else if (entry.left != null) {
+            best = Math.max(best, entry.left.maxEnd);
+        }
+        return Math.max(best, maxEndStartingBefore(entry.right, bound, exclude));
+    }
+
+    private static Entry insert(Entry parent, Entry entry) {
+        if (parent == null) {
+            return entry;
+        }
+        if (compare(entry, parent) < 0) {
+            parent.left = insert(parent.left, entry);
+            if (parent.left.priority > parent.priority) {
+                return rotateRight(parent);
+            }
+        } else {
+            parent.right = insert(parent.right, entry);
+            if (parent.right.priority > parent.priority) {
+                return rotateLeft(parent);
+            }
+        }
+        parent.refresh();
+        return parent;
+    }
+
+    private static Entry delete(Entry parent, Entry entry) {
+        if (parent == null) {
+            return null;
+        }
+        int comparison = compare(entry, parent);
+        if (comparison == 0) {
+            return merge(parent.left, parent.right);
+        }
+        if (comparison < 0) {
+            parent.left = delete(parent.left, entry);
+        } else {
+            parent.right = delete(parent.right, entry);
+        }
+        parent.refresh();
+        return parent;
+    }
+
+    private static Entry merge(Entry lower, Entry upper) {
+        if (lower == null) {
+            return upper;
+        }
+        if (upper == null) {
+            return lower;
+        }
+        if (lower.priority > upper.priority) {
+            lower.right = merge(lower.right, upper);
+            lower.refresh();
+            return lower;
+        }
+        upper.left = merge(lower, upper.left);
+        upper.refresh();
+        return upper;
+    }
+
+    private static Entry rotateRight(Entry parent) {
+        Entry child = parent.left;
+        parent.left = child.right;
+        child.right = parent;
+        parent.refresh();
+        child.refresh();
+        return child;
+    }
+
+    private static Entry rotateLeft(Entry parent) {
+        Entry child = parent.right;
+        parent.right = child.left;
+        child.left = parent;
+        parent.refresh();
+        child.refresh();
+        return child;
+    }
+
+    private static int compare(Entry a, Entry b) {
+        int comparison = Long.compare(a.start, b.start);
+        if (comparison == 0) {
+            comparison = Long.compare(a.end, b.end);
+        }
+        return comparison != 0 ? comparison : Long.compare(a.sequence, b.sequence);
+    }
+
+    private static class Entry {
+        private final NormalizedNode node;
+        private final long start;
+        private final long end;
+        private final long sequence;
+        private final int priority;
+        private Entry left;
+        private Entry right;
+        private long maxEnd;
+
+        private Entry(NormalizedNode node, long start, long end, long sequence, int priority) {
+            this.node = node;
+            this.start = start;
+            this.end = end;
+            this.sequence = sequence;
+            this.priority = priority;
+            this.maxEnd = end;
+        }
+
+        private void refresh() {
+            long max = end;
+            if (left != null) {
+                max = Math.max(max, left.maxEnd);
+            }
+            if (right != null) {
+                max = Math.max(max, right.maxEnd);
+            }
+            maxEnd = max;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.tripplanner.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+/**
+ * ItineraryListPage DTO for the cursor-paginated trip list, newest trips first.
+ */
+public class ItineraryListPage {
+
+    @JsonProperty("itineraries")
+    private List<ItineraryDto> itineraries;
+
+    // Pass as "cursor" to load the next page; null when there are no more trips
+    @JsonProperty("nextCursor")
+    private String nextCursor;
+
+    @JsonProperty("hasMore")
+    private boolean hasMore;
+
+    public ItineraryListPage() {}
+
+    public ItineraryListPage(List<ItineraryDto> itineraries, String nextCursor, boolean hasMore) {
+        this.itineraries = itineraries;
+        this.nextCursor = nextCursor;
+        this.hasMore = hasMore;
+    }
+
+    // Getters and Setters
+    public List<ItineraryDto> getItineraries() {
+        return itineraries;
+    }
+
+    public void setItineraries(List<ItineraryDto> itineraries) {
+        this.itineraries = itineraries;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    public boolean isHasMore() {
+        return hasMore;
+    }
+
+    public void setHasMore(boolean hasMore) {
+        this.hasMore = hasMore;
+    }
+
+    @Override
+    public String toString() {
+        return "ItineraryListPage{" +
+                "itineraries=" + (itineraries != null ? itineraries.size() : 0) +
+                ", nextCursor='" + nextCursor + '\'' +
+                ", hasMore=" + hasMore +
+                '}';
+    }
+}
@@ -0,0 +1,333 @@
+package com.tripplanner.dto;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Lookup index over an itinerary: node id to (day, position) and day number to day.
+ *
+ * Built from a snapshot of the itinerary's version and the identity and size of its day and node
+ * lists; {@link NormalizedItinerary#getNodeIndex()} rebuilds it when any of those change. Hits are
+ * verified against the node list before they are returned, so an index that missed an in-place
+ * edit re-indexes itself instead of returning the wrong node. Where several nodes share an id the
+ * first one in day order wins, matching the linear scans this replaces.
+ *
+ * Like the DTOs it indexes this is not thread-safe. ChangeEngine keeps the index current while it
+ * applies operations, reporting each single-node insert, removal or replacement so only the
+ * positions after it move; code that edits node lists directly should call
+ * {@link NormalizedItinerary#invalidateNodeIndex()}.
+ */
+public class NodeIndex {
+
+    private final NormalizedItinerary itinerary;
+
+    private final Map<String, Location> locationsByNodeId = new HashMap<>();
+    private final Map<Integer, NormalizedDay> daysByNumber = new HashMap<>();
+    private List<NormalizedDay> days;
+    private List<List<NormalizedNode>> nodeLists;
+    // Per day, one location per node in list order
+    private List<List<Location>> locationsByDay;
+    private int[] nodeListSizes;
+    private Integer version;
+    private boolean duplicateIds;
+
+    private NodeIndex(NormalizedItinerary itinerary) {
+        this.itinerary = itinerary;
+    }
+
+    /**
+     * Build an index over the given itinerary.
+     */
+    public static NodeIndex of(NormalizedItinerary itinerary) {
+        NodeIndex index = new NodeIndex(itinerary);
+        index.rebuild();
+        return index;
+    }
+
+    /**
+     * Whether this index was built from (and kept in step with) the itinerary's current version,
+     * day list and node lists.
+     */
+    boolean isBuiltFrom(NormalizedItinerary candidate) {
+        if (candidate != itinerary || candidate.getDays() != days
+                || !Objects.equals(candidate.getVersion(), version)) {
+            return false;
+        }
+        int dayCount = days != null ? days.size() : 0;
+        if (dayCount != nodeLists.size()) {
+            return false;
+        }
+        for (int i = 0; i < dayCount; i++) {
+            List<NormalizedNode> nodes = days.get(i).getNodes();
+            if (nodes != nodeLists.get(i) || sizeOf(nodes) != nodeListSizes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Node with the given id, or null if there is none.
+     */
+    public NormalizedNode getNode(String nodeId) {
+        Location location = locate(nodeId);
+        return location != null ? location.day.getNodes().get(location.position) : null;
+    }
+
+    /**
+     * Day containing the node with the given id, or null if there is none.
+     */
+    public NormalizedDay getDayOfNode(String nodeId) {
+        Location location = locate(nodeId);
+        return location != null ? location.day : null;
+    }
+
+    /**
+     * Position of the node within its day, or -1 if there is no such node.
+     */
+    public int getPosition(String nodeId) {
+        Location location = locate(nodeId);
+        return location != null ? location.position : -1;
+    }
+
+    /**
+     * Position of the node within the given day, or -1 if the node is not in that day.
+     */
+    public int getPosition(NormalizedDay day, String nodeId) {
+        Location location = locate(nodeId);
+        if (location != null && location.day == day) {
+            return location.position;
+        }
+        // Duplicate ids can place a later copy in the requested day
+        return duplicateIds && day != null ? scan(day.getNodes(), nodeId) : -1;
+    }
+
+    /**
+     * Day with the given day number, or null if there is none.
+     */
+    public NormalizedDay getDay(Integer dayNumber) {
+        NormalizedDay day = daysByNumber.get(dayNumber);
+        if (day != null && dayNumber.equals(day.getDayNumber())) {
+            return day;
+        }
+        if (day != null || !isBuiltFrom(itinerary)) {
+            rebuild();
+            return daysByNumber.get(dayNumber);
+        }
+        return null;
+    }
+
+    /**
+     * Re-index one day after nodes were inserted, removed, replaced or reordered in it. Costs a pass
+     * over that day only.
+     */
+    public void refreshDay(NormalizedDay day) {
+        int dayIndex = days != null ? indexOfDay(day) : -1;
+        if (dayIndex < 0 || duplicateIds || !Objects.equals(itinerary.getVersion(), version)) {
+            rebuild();
+            return;
+        }
+
+        for (Location location : locationsByDay.get(dayIndex)) {
+            unindex(location);
+        }
+        List<NormalizedNode> nodes = day.getNodes();
+        nodeLists.set(dayIndex, nodes);
+        nodeListSizes[dayIndex] = sizeOf(nodes);
+        if (indexDay(day, locationsByDay.get(dayIndex))) {
+            // Another day already has one of these ids; rebuild to keep first-in-day-order semantics
+            rebuild();
+        }
+    }
+
+    /**
+     * Index a node just inserted at the given position of a day. Only the later positions of that
+     * day move, which is the same work the list insert itself does.
+     */
+    public void nodeInserted(NormalizedDay day, int position) {
+        int dayIndex = indexOfUnchangedDay(day, 1);
+        if (dayIndex < 0) {
+            rebuild();
+            return;
+        }
+        List<Location> locations = locationsByDay.get(dayIndex);
+        Location location = new Location(day, position, day.getNodes().get(position).getId());
+        locations.add(position, location);
+        shift(locations, position + 1, 1);
+        nodeListSizes[dayIndex]++;
+        if (location.nodeId != null && locationsByNodeId.putIfAbsent(location.nodeId, location) != null) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Drop the node just removed from the given position of a day.
+     */
+    public void nodeRemoved(NormalizedDay day, int position) {
+        int dayIndex = indexOfUnchangedDay(day, -1);
+        if (dayIndex < 0) {
+            rebuild();
+            return;
+        }
+        List<Location> locations = locationsByDay.get(dayIndex);
+        unindex(locations.remove(position));
+        shift(locations, position, -1);
+        nodeListSizes[dayIndex]--;
+    }
+
+    /**
+     * Index the node that just replaced the one at the given position of a day.
+     */
+    public void nodeReplaced(NormalizedDay day, int position) {
+        int dayIndex = indexOfUnchangedDay(day, 0);
+        if (dayIndex < 0) {
+            rebuild();
+            return;
+        }
+        List<Location> locations = locationsByDay.get(dayIndex);
+        unindex(locations.get(position));
+        Location location = new Location(day, position, day.getNodes().get(position).getId());
+        locations.set(position, location);
+        if (location.nodeId != null && locationsByNodeId.putIfAbsent(location.nodeId, location) != null) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Index of a day whose node list is the indexed one and changed in size by exactly
+     * {@code sizeChange} since, or -1 when an incremental update cannot be trusted.
+     */
+    private int indexOfUnchangedDay(NormalizedDay day, int sizeChange) {
+        if (days == null || duplicateIds || !Objects.equals(itinerary.getVersion(), version)) {
+            return -1;
+        }
+        int dayIndex = indexOfDay(day);
+        if (dayIndex < 0 || day.getNodes() != nodeLists.get(dayIndex)
+                || sizeOf(day.getNodes()) != nodeListSizes[dayIndex] + sizeChange) {
+            return -1;
+        }
+        return dayIndex;
+    }
+
+    private void unindex(Location location) {
+        if (location.nodeId != null) {
+            locationsByNodeId.remove(location.nodeId, location);
+        }
+    }
+
+    private static void shift(List<Location> locations, int from, int delta) {
+        for (int i = from; i < locations.size(); i++) {
+            locations.get(i).position += delta;
+        }
+    }
+
+    /**
+     * Look up a node, verifying the hit and re-indexing once if the index turns out to be stale.
+     */
+    private Location locate(String nodeId) {
+        if (nodeId == null) {
+            return null;
+        }
+        Location location = locationsByNodeId.get(nodeId);
+        if (location != null && matches(location, nodeId)) {
+            return location;
+        }
+        if (location != null || !isBuiltFrom(itinerary)) {
+            rebuild();
+            return locationsByNodeId.get(nodeId);
+        }
+        return null;
+    }
+
+    private static boolean matches(Location location, String nodeId) {
+        List<NormalizedNode> nodes = location.day.getNodes();
+        return nodes != null && location.position < nodes.size()
+                && nodeId.equals(nodes.get(location.position).getId());
+    }
+
+    private void rebuild() {
+        locationsByNodeId.clear();
+        daysByNumber.clear();
+        duplicateIds = false;
+        days = itinerary.getDays();
+        version = itinerary.getVersion();
+
+        int dayCount = days != null ? days.size() : 0;
+        nodeLists = new ArrayList<>(dayCount);
+        nodeListSizes = new int[dayCount];
+        locationsByDay = new ArrayList<>(dayCount);
+        for (int i = 0; i < dayCount; i++) {
+            NormalizedDay day = days.get(i);
+            nodeLists.add(day.getNodes());
+            nodeListSizes[i] = sizeOf(day.getNodes());
+            locationsByDay.add(new ArrayList<>());
+            if (day.getDayNumber() != null) {
+                daysByNumber.putIfAbsent(day.getDayNumber(), day);
+            }
+            if (indexDay(day, locationsByDay.get(i))) {
+                duplicateIds = true;
+            }
+        }
+    }
+
+    /**
+     * Index the nodes of one day, recording a location per node in {@code locations}.
+     *
+     * @return true if some id was already indexed
+     */
+    private boolean indexDay(NormalizedDay day, List<Location> locations) {
+        locations.clear();
+        List<NormalizedNode> nodes = day.getNodes();
+        if (nodes == null) {
+            return false;
+        }
+        boolean duplicate = false;
+        for (int position = 0; position < nodes.size(); position++) {
+            Location location = new Location(day, position, nodes.get(position).getId());
+            locations.add(location);
+            if (location.nodeId != null && locationsByNodeId.putIfAbsent(location.nodeId, location) != null) {
+                duplicate = true;
+            }
+        }
+        return duplicate;
+    }
+
+    private int indexOfDay(NormalizedDay day) {
+        for (int i = 0; i < days.size(); i++) {
+            if (days.get(i) == day) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int scan(List<NormalizedNode> nodes, String nodeId) {
+        if (nodes != null) {
+            for (int i = 0; i < nodes.size(); i++) {
+                if (nodeId.equals(nodes.get(i).getId())) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private static int sizeOf(List<NormalizedNode> nodes) {
+        return nodes != null ? nodes.size() : 0;
+    }
+
+    private static class Location {
+        private final NormalizedDay day;
+        private final String nodeId;
+        private int position;
+
+        private Location(NormalizedDay day, int position, String nodeId) {
+            this.day = day;
+            this.position = position;
+            this.nodeId = nodeId;
+        }
+    }
+}
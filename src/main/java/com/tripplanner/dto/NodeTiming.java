@@ -20,6 +20,10 @@ public class NodeTiming {
     @JsonProperty("durationMin")
     private Integer durationMin;
     
+    // Bumped on every change, so a DayTimeline built over this timing can tell it is stale
+    @JsonIgnore
+    private transient int modCount;
+    
     public NodeTiming() {}
     
     public NodeTiming(Long startTime, Long endTime, Integer durationMin) {
@@ -35,6 +39,7 @@ public class NodeTiming {
     
     public void setStartTime(Long startTime) {
         this.startTime = startTime;
+        modCount++;
     }
     
     public Long getEndTime() {
@@ -43,6 +48,7 @@ public class NodeTiming {
     
     public void setEndTime(Long endTime) {
         this.endTime = endTime;
+        modCount++;
     }
     
     // Helper methods to get Instant objects
@@ -64,6 +70,10 @@ public class NodeTiming {
         this.durationMin = durationMin;
     }
     
+    int modCount() {
+        return modCount;
+    }
+    
     @Override
     public String toString() {
         return "NodeTiming{" +
@@ -1,5 +1,6 @@
 package com.tripplanner.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotNull;
@@ -61,6 +62,9 @@ public class NormalizedDay {
     @JsonProperty("edges")
     private List<Edge> edges;
     
+    @JsonIgnore
+    private transient DayTimeline timeline;
+    
     public NormalizedDay() {}
     
     public NormalizedDay(Integer dayNumber, String date, String location) {
@@ -183,6 +187,26 @@ public class NormalizedDay {
     
     public void setNodes(List<NormalizedNode> nodes) {
         this.nodes = nodes;
+        this.timeline = null;
+    }
+    
+    /**
+     * Interval index over this day's node timings, built on first use.
+     * Rebuilt automatically if the node list, a node or a node's timing changed behind the index's back.
+     */
+    @JsonIgnore
+    public DayTimeline getTimeline() {
+        if (timeline == null || !timeline.isBuiltFrom(nodes)) {
+            timeline = DayTimeline.of(nodes);
+        }
+        return timeline;
+    }
+    
+    /**
+     * Drop the timeline index, e.g. to release it for a day that is no longer queried.
+     */
+    public void invalidateTimeline() {
+        this.timeline = null;
     }
     
     public List<Edge> getEdges() {
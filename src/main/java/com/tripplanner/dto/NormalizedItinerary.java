@@ -2,6 +2,7 @@ package com.tripplanner.dto;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotBlank;
@@ -28,6 +29,9 @@ public class NormalizedItinerary {
     @JsonProperty("version")
     private Integer version;
     
+    @JsonProperty("schemaVersion")
+    private Integer schemaVersion; // See ItinerarySchema; null for itineraries written before it existed
+    
     @JsonProperty("userId")
     private String userId;
     
@@ -99,10 +103,16 @@ public class NormalizedItinerary {
     @JsonProperty("revisions")
     private List<RevisionRecord> revisions;
     
+    // Legacy: chat lives in the itineraries/{id}/chat_messages subcollection (ChatHistoryService).
+    // Left out of the JSON when empty so it does not inflate every itinerary read and write.
     @Valid
     @JsonProperty("chat")
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
     private List<ChatRecord> chat;
     
+    @JsonIgnore
+    private transient NodeIndex nodeIndex;
+    
     public NormalizedItinerary() {
         // Initialize collections to prevent null pointer exceptions
         this.agentData = new java.util.HashMap<>();
@@ -133,6 +143,14 @@ public class NormalizedItinerary {
         this.version = version;
     }
     
+    public Integer getSchemaVersion() {
+        return schemaVersion;
+    }
+    
+    public void setSchemaVersion(Integer schemaVersion) {
+        this.schemaVersion = schemaVersion;
+    }
+    
     public String getUserId() {
         return userId;
     }
@@ -227,6 +245,27 @@ public class NormalizedItinerary {
     
     public void setDays(List<NormalizedDay> days) {
         this.days = days;
+        this.nodeIndex = null;
+    }
+    
+    /**
+     * Node and day lookup index, built on first use.
+     * Rebuilt automatically if the version changed or a day or node list was replaced or resized
+     * behind the index's back.
+     */
+    @JsonIgnore
+    public NodeIndex getNodeIndex() {
+        if (nodeIndex == null || !nodeIndex.isBuiltFrom(this)) {
+            nodeIndex = NodeIndex.of(this);
+        }
+        return nodeIndex;
+    }
+    
+    /**
+     * Drop the node index after editing node lists outside ChangeEngine.
+     */
+    public void invalidateNodeIndex() {
+        this.nodeIndex = null;
     }
     
     public ItinerarySettings getSettings() {
@@ -324,6 +363,7 @@ public class NormalizedItinerary {
         return "NormalizedItinerary{" +
                 "itineraryId='" + itineraryId + '\'' +
                 ", version=" + version +
+                ", schemaVersion=" + schemaVersion +
                 ", userId='" + userId + '\'' +
                 ", createdAt=" + createdAt +
                 ", updatedAt=" + updatedAt +
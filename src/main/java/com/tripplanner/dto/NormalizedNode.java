@@ -34,6 +34,10 @@ public class NormalizedNode {
     @JsonProperty("timing")
     private NodeTiming timing;
     
+    // Bumped when the id or timing object changes; see timingVersion()
+    @JsonIgnore
+    private transient int modCount;
+    
     @Valid
     @JsonProperty("cost")
     private NodeCost cost;
@@ -96,6 +100,7 @@ public class NormalizedNode {
     
     public void setId(String id) {
         this.id = id;
+        modCount++;
     }
     
     public String getType() {
@@ -128,6 +133,7 @@ public class NormalizedNode {
     
     public void setTiming(NodeTiming timing) {
         this.timing = timing;
+        modCount++;
     }
     
     public NodeCost getCost() {
@@ -263,6 +269,13 @@ public class NormalizedNode {
         return bookingRef != null && !bookingRef.trim().isEmpty();
     }
     
+    /**
+     * Changes whenever this node's id, timing object or start/end times change.
+     */
+    long timingVersion() {
+        return ((long) modCount << 32) | (timing != null ? timing.modCount() & 0xffffffffL : 0);
+    }
+    
     public void markAsUpdated(String updatedBy) {
         this.updatedBy = updatedBy;
         this.updatedAt = System.currentTimeMillis();
@@ -70,6 +70,29 @@ public class TripMetadata {
     // Default constructor
     public TripMetadata() {}
     
+    // Copy constructor
+    public TripMetadata(TripMetadata other) {
+        this.itineraryId = other.itineraryId;
+        this.userId = other.userId;
+        this.destination = other.destination;
+        this.startLocation = other.startLocation;
+        this.startDate = other.startDate;
+        this.endDate = other.endDate;
+        this.summary = other.summary;
+        this.currency = other.currency;
+        this.party = other.party;
+        this.budgetTier = other.budgetTier;
+        this.budgetMin = other.budgetMin;
+        this.budgetMax = other.budgetMax;
+        this.interests = other.interests;
+        this.constraints = other.constraints;
+        this.language = other.language;
+        this.createdAt = other.createdAt;
+        this.updatedAt = other.updatedAt;
+        this.version = other.version;
+        this.status = other.status;
+    }
+    
     // Constructor for creating from NormalizedItinerary
     public TripMetadata(NormalizedItinerary itinerary) {
         this.itineraryId = itinerary.getItineraryId();
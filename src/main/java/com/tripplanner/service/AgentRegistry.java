@@ -489,6 +489,7 @@ public class AgentRegistry {
             if (className.contains("Places")) return AgentEvent.AgentKind.PLACES;
             if (className.contains("Editor")) return AgentEvent.AgentKind.EDITOR;
             if (className.contains("Explain")) return AgentEvent.AgentKind.EXPLAINER;
+            if (className.contains("RouteOptimizer")) return AgentEvent.AgentKind.ROUTE_OPTIMIZER;
             // Add more mappings as needed
             return AgentEvent.AgentKind.orchestrator; // Default fallback
         }
@@ -576,6 +577,9 @@ public class AgentRegistry {
             case "explainer":
             case "explain":
                 return AgentEvent.AgentKind.EXPLAINER;
+            case "route_optimizer":
+            case "optimizer":
+                return AgentEvent.AgentKind.ROUTE_OPTIMIZER;
             default:
                 throw new IllegalArgumentException("Unknown agent type: " + agentType);
         }
@@ -0,0 +1,587 @@
+package com.tripplanner.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Schedules agent work that calls the LLM providers on one shared set of workers.
+ *
+ * Work is either INTERACTIVE (chat requests a user is waiting on) or BATCH (itinerary
+ * generation). When both are waiting, interactive work gets interactive-weight dispatches for
+ * every batch dispatch, and batch work never occupies the workers reserved for interactive
+ * work, so a chat edit waits for at most one finishing task instead of a whole generation.
+ *
+ * Within a class, users share the workers by start-time fair queuing, each user's itineraries
+ * share that user's turns the same way, and the tasks of one itinerary run earliest deadline
+ * first. Interactive calls are admitted against per-class and per-user queue bounds and are
+ * dropped if they cannot start before their deadline. Generations are admitted per user
+ * (admitGeneration) and their stages run in lanes with per-stage concurrency caps.
+ */
+@Service
+public class AgentWorkScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(AgentWorkScheduler.class);
+
+    private static final int QUEUE_TIME_SAMPLES = 1024;
+    private static final String BACKGROUND = "background";
+    private static final ThreadLocal<WorkContext> CONTEXT = new ThreadLocal<>();
+
+    public enum WorkClass { INTERACTIVE, BATCH }
+
+    /**
+     * Who a task runs for. Lane tasks inherit the context of the thread that submits them.
+     */
+    public record WorkContext(WorkClass workClass, String userId, String itineraryId) {
+    }
+
+    private final int workers;
+    private final int batchWorkers;
+    private final int interactiveWeight;
+    private final int maxQueuedPerUser;
+    private final int maxGenerationsPerUser;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition workAvailable = lock.newCondition();
+    private final Map<WorkClass, ClassQueue> classes = new EnumMap<>(WorkClass.class);
+    private final Map<String, Lane> lanes = new ConcurrentHashMap<>();
+    private final Map<String, Integer> activeGenerations = new HashMap<>();
+    private final List<Thread> threads = new ArrayList<>();
+    private long sequence;
+    private int interactiveStreak;
+    private boolean closed;
+
+    public AgentWorkScheduler(@Value("${agent.scheduler.workers:16}") int workers,
+                              @Value("${agent.scheduler.reserved-interactive-workers:4}") int reservedInteractiveWorkers,
+                              @Value("${agent.scheduler.interactive-weight:4}") int interactiveWeight,
+                              @Value("${agent.scheduler.max-queued.interactive:64}") int maxQueuedInteractive,
+                              @Value("${agent.scheduler.max-queued-per-user:8}") int maxQueuedPerUser,
+                              @Value("${agent.scheduler.max-generations-per-user:3}") int maxGenerationsPerUser) {
+        this.workers = Math.max(1, workers);
+        this.batchWorkers = Math.max(1, this.workers - Math.max(0, reservedInteractiveWorkers));
+        this.interactiveWeight = Math.max(1, interactiveWeight);
+        this.maxQueuedPerUser = Math.max(1, maxQueuedPerUser);
+        this.maxGenerationsPerUser = Math.max(1, maxGenerationsPerUser);
+        classes.put(WorkClass.INTERACTIVE, new ClassQueue(Math.max(1, maxQueuedInteractive)));
+        classes.put(WorkClass.BATCH, new ClassQueue(Integer.MAX_VALUE));
+
+        for (int i = 1; i <= this.workers; i++) {
+            Thread thread = new Thread(this::work, "AgentWork-" + i);
+            thread.setDaemon(true);
+            thread.start();
+            threads.add(thread);
+        }
+        logger.info("Agent work scheduler started with {} workers ({} reserved for interactive work, weight {})",
+                   this.workers, this.workers - batchWorkers, this.interactiveWeight);
+    }
+
+    @PreDestroy
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            for (ClassQueue queue : classes.values()) {
+                for (Flow user : queue.users.values()) {
+                    for (Flow itinerary : user.children.values()) {
+                        for (Task task : itinerary.tasks) {
+                            if (task.result != null) {
+                                task.result.completeExceptionally(new RejectedExecutionException("Scheduler is shutting down"));
+                            }
+                        }
+                    }
+                }
+                queue.users.clear();
+                queue.queued = 0;
+            }
+            workAvailable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Run interactive work on a scheduler worker and wait for its result.
+     *
+     * @param maxWaitMs How long the work may wait in the queue before it is dropped
+     * @throws RejectedExecutionException if the class or the user already has the maximum queued
+     * @throws TimeoutException if the work could not start within maxWaitMs
+     */
+    public <T> T call(WorkClass workClass, String userId, String itineraryId, long maxWaitMs,
+                      Callable<T> work) throws Exception {
+        if (threads.contains(Thread.currentThread())) {
+            // Already on a scheduler worker; waiting for another one could deadlock
+            return work.call();
+        }
+        CompletableFuture<T> result = new CompletableFuture<>();
+        WorkContext context = new WorkContext(workClass, key(userId), key(itineraryId));
+        Task task = new Task(context, null, () -> {
+            try {
+                result.complete(work.call());
+            } catch (Throwable t) {
+                result.completeExceptionally(t);
+            }
+        }, maxWaitMs, result);
+        enqueue(task, true);
+
+        try {
+            try {
+                return result.get(maxWaitMs, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                if (withdraw(task)) {
+                    throw new TimeoutException("Not started within " + maxWaitMs + " ms");
+                }
+                return result.get();
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception cause) {
+                throw cause;
+            }
+            throw e;
+        } catch (InterruptedException e) {
+            withdraw(task);
+            Thread.currentThread().interrupt();
+            throw e;
+        }
+    }
+
+    /**
+     * An executor for one stage of batch work, running at most concurrency tasks at a time.
+     * Tasks are never rejected or dropped, since their callers wait on them; the deadline only
+     * orders them among the other tasks of the same itinerary.
+     *
+     * @param deadlineMs Deadline of each task relative to its submission
+     */
+    public Executor lane(String name, WorkClass workClass, int concurrency, long deadlineMs) {
+        return lanes.computeIfAbsent(name, n -> new Lane(n, workClass, Math.max(1, concurrency), deadlineMs));
+    }
+
+    /**
+     * Admit one generation for a user.
+     *
+     * @return The admission, to close when the generation ends
+     * @throws RejectedExecutionException if the user already runs the maximum number of generations
+     */
+    public Admission admitGeneration(String userId) {
+        String user = key(userId);
+        lock.lock();
+        try {
+            int active = activeGenerations.getOrDefault(user, 0);
+            if (active >= maxGenerationsPerUser) {
+                classes.get(WorkClass.BATCH).rejected++;
+                throw new RejectedExecutionException("User " + user + " already has " + active + " generations running");
+            }
+            activeGenerations.put(user, active + 1);
+            return new Admission(user);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Run work on the current thread as the given context, so the lane tasks it submits are
+     * queued for that user and itinerary.
+     */
+    public static <T> T supplyAs(WorkContext context, Supplier<T> work) {
+        WorkContext previous = CONTEXT.get();
+        CONTEXT.set(context);
+        try {
+            return work.get();
+        } finally {
+            if (previous != null) {
+                CONTEXT.set(previous);
+            } else {
+                CONTEXT.remove();
+            }
+        }
+    }
+
+    public Map<WorkClass, ClassStats> getStats() {
+        lock.lock();
+        try {
+            Map<WorkClass, ClassStats> stats = new EnumMap<>(WorkClass.class);
+            for (Map.Entry<WorkClass, ClassQueue> entry : classes.entrySet()) {
+                ClassQueue queue = entry.getValue();
+                int samples = (int) Math.min(queue.samples, QUEUE_TIME_SAMPLES);
+                long[] sorted = Arrays.copyOf(queue.queueTimes, samples);
+                Arrays.sort(sorted);
+                stats.put(entry.getKey(), new ClassStats(queue.queued, queue.running, queue.completed,
+                        queue.rejected, queue.expired, percentileMicros(sorted, 50), percentileMicros(sorted, 99),
+                        samples > 0 ? sorted[samples - 1] / 1000 : 0));
+            }
+            return stats;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static long percentileMicros(long[] sorted, int percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[Math.min(sorted.length - 1, sorted.length * percentile / 100)] / 1000;
+    }
+
+    private static String key(String id) {
+        return id != null && !id.isBlank() ? id : BACKGROUND;
+    }
+
+    private void enqueue(Task task, boolean admit) {
+        lock.lock();
+        try {
+            if (closed) {
+                throw new RejectedExecutionException("Scheduler is shut down");
+            }
+            ClassQueue queue = classes.get(task.context.workClass());
+            Flow user = queue.users.get(task.context.userId());
+            if (admit && (queue.queued >= queue.maxQueued || (user != null && user.queued >= maxQueuedPerUser))) {
+                queue.rejected++;
+                throw new RejectedExecutionException(task.context.workClass() + " queue full for user " + task.context.userId());
+            }
+            if (user == null) {
+                user = new Flow();
+                queue.users.put(task.context.userId(), user);
+            }
+            Flow itinerary = user.children.get(task.context.itineraryId());
+            if (itinerary == null) {
+                itinerary = new Flow();
+                user.children.put(task.context.itineraryId(), itinerary);
+            }
+            // A flow that was idle starts at the current virtual time instead of using up credit
+            if (user.queued == 0) {
+                user.finishTag = Math.max(user.finishTag, queue.virtualTime);
+            }
+            if (itinerary.queued == 0) {
+                itinerary.finishTag = Math.max(itinerary.finishTag, user.virtualTime);
+            }
+            task.sequence = sequence++;
+            itinerary.tasks.add(task);
+            itinerary.queued++;
+            user.queued++;
+            queue.queued++;
+            workAvailable.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Remove a task that has not started yet.
+     *
+     * @return Whether the task was still queued
+     */
+    private boolean withdraw(Task task) {
+        lock.lock();
+        try {
+            if (task.started || task.removed) {
+                return false;
+            }
+            ClassQueue queue = classes.get(task.context.workClass());
+            Flow user = queue.users.get(task.context.userId());
+            Flow itinerary = user.children.get(task.context.itineraryId());
+            itinerary.tasks.remove(task);
+            dequeued(queue, user, itinerary, task);
+            queue.expired++;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void work() {
+        while (true) {
+            Task task;
+            lock.lock();
+            try {
+                while ((task = next()) == null) {
+                    if (closed) {
+                        return;
+                    }
+                    workAvailable.awaitUninterruptibly();
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            CONTEXT.set(task.context);
+            try {
+                task.body.run();
+            } catch (Throwable t) {
+                logger.warn("Agent task for itinerary {} failed: {}", task.context.itineraryId(), t.getMessage(), t);
+            } finally {
+                CONTEXT.remove();
+                lock.lock();
+                try {
+                    ClassQueue queue = classes.get(task.context.workClass());
+                    queue.running--;
+                    queue.completed++;
+                    if (task.lane != null) {
+                        task.lane.running--;
+                    }
+                    workAvailable.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+    }
+
+    /**
+     * Pick the next task to run, or null if nothing can run now. Called with the lock held.
+     */
+    private Task next() {
+        if (closed) {
+            return null;
+        }
+        long now = System.nanoTime();
+        ClassQueue batch = classes.get(WorkClass.BATCH);
+        boolean batchAllowed = batch.running < batchWorkers;
+        Task task = null;
+        if (interactiveStreak < interactiveWeight || !batchAllowed) {
+            task = take(classes.get(WorkClass.INTERACTIVE), now);
+        }
+        if (task == null && batchAllowed) {
+            task = take(batch, now);
+        }
+        if (task == null) {
+            task = take(classes.get(WorkClass.INTERACTIVE), now);
+        }
+        if (task != null) {
+            interactiveStreak = task.context.workClass() == WorkClass.INTERACTIVE ? interactiveStreak + 1 : 0;
+        }
+        return task;
+    }
+
+    /**
+     * Take the next runnable task of a class: the user with the lowest virtual finish tag, then
+     * that user's itinerary with the lowest tag, then that itinerary's earliest deadline whose
+     * lane has capacity. Expired interactive tasks are dropped on the way. Queues are short, so
+     * this scans rather than keeping the flows in priority queues.
+     */
+    private Task take(ClassQueue queue, long now) {
+        if (queue.queued == 0) {
+            return null;
+        }
+        List<Map.Entry<String, Flow>> users = new ArrayList<>(queue.users.entrySet());
+        users.sort(Comparator.comparingDouble(entry -> entry.getValue().finishTag));
+        for (Map.Entry<String, Flow> userEntry : users) {
+            Flow user = userEntry.getValue();
+            List<Map.Entry<String, Flow>> itineraries = new ArrayList<>(user.children.entrySet());
+            itineraries.sort(Comparator.comparingDouble(entry -> entry.getValue().finishTag));
+            for (Map.Entry<String, Flow> itineraryEntry : itineraries) {
+                Flow itinerary = itineraryEntry.getValue();
+                Task best = null;
+                for (Task task : new ArrayList<>(itinerary.tasks)) {
+                    if (task.result != null && now - task.deadlineNanos > 0) {
+                        itinerary.tasks.remove(task);
+                        dequeued(queue, user, itinerary, task);
+                        queue.expired++;
+                        task.result.completeExceptionally(new TimeoutException("Not started before its deadline"));
+                        continue;
+                    }
+                    if (task.lane != null && task.lane.running >= task.lane.concurrency) {
+                        continue;
+                    }
+                    if (best == null || task.deadlineNanos - best.deadlineNanos < 0
+                            || (task.deadlineNanos == best.deadlineNanos && task.sequence < best.sequence)) {
+                        best = task;
+                    }
+                }
+                if (best == null) {
+                    continue;
+                }
+                itinerary.tasks.remove(best);
+                queue.virtualTime = user.finishTag;
+                user.finishTag += 1;
+                user.virtualTime = itinerary.finishTag;
+                itinerary.finishTag += 1;
+                dequeued(queue, user, itinerary, best);
+                best.started = true;
+                queue.running++;
+                if (best.lane != null) {
+                    best.lane.running++;
+                }
+                queue.queueTimes[(int) (queue.samples++ % QUEUE_TIME_SAMPLES)] = now - best.enqueuedNanos;
+                return best;
+            }
+        }
+        return null;
+    }
+
+    private void dequeued(ClassQueue queue, Flow user, Flow itinerary, Task task) {
+        task.removed = true;
+        itinerary.queued--;
+        user.queued--;
+        queue.queued--;
+        if (itinerary.queued == 0) {
+            user.children.remove(task.context.itineraryId());
+        }
+        if (user.queued == 0) {
+            queue.users.remove(task.context.userId());
+        }
+    }
+
+    /**
+     * Executor for one pipeline stage. Tasks run as the user and itinerary of the submitting thread.
+     */
+    private final class Lane implements Executor {
+        private final String name;
+        private final WorkClass workClass;
+        private final int concurrency;
+        private final long deadlineMs;
+        private int running;
+
+        private Lane(String name, WorkClass workClass, int concurrency, long deadlineMs) {
+            this.name = name;
+            this.workClass = workClass;
+            this.concurrency = concurrency;
+            this.deadlineMs = deadlineMs;
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            WorkContext submitter = CONTEXT.get();
+            WorkContext context = submitter != null
+                ? new WorkContext(workClass, submitter.userId(), submitter.itineraryId())
+                : new WorkContext(workClass, BACKGROUND, BACKGROUND);
+            enqueue(new Task(context, this, command, deadlineMs, null), false);
+        }
+
+        @Override
+        public String toString() {
+            return "Lane{" + name + ", concurrency=" + concurrency + "}";
+        }
+    }
+
+    /**
+     * A running generation, counted against its user's limit until closed.
+     */
+    public final class Admission implements AutoCloseable {
+        private final String userId;
+        private boolean closed;
+
+        private Admission(String userId) {
+            this.userId = userId;
+        }
+
+        @Override
+        public void close() {
+            lock.lock();
+            try {
+                if (!closed) {
+                    closed = true;
+                    activeGenerations.computeIfPresent(userId, (user, active) -> active > 1 ? active - 1 : null);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private static final class ClassQueue {
+        private final int maxQueued;
+        private final Map<String, Flow> users = new HashMap<>();
+        private final long[] queueTimes = new long[QUEUE_TIME_SAMPLES];
+        private double virtualTime;
+        private int queued;
+        private int running;
+        private long samples;
+        private long completed;
+        private long rejected;
+        private long expired;
+
+        private ClassQueue(int maxQueued) {
+            this.maxQueued = maxQueued;
+        }
+    }
+
+    /**
+     * A user (with itinerary children) or an itinerary (with tasks) in the fair queue.
+     */
+    private static final class Flow {
+        private final Map<String, Flow> children = new HashMap<>();
+        private final List<Task> tasks = new ArrayList<>();
+        private double finishTag;
+        private double virtualTime;
+        private int queued;
+    }
+
+    private static final class Task {
+        private final WorkContext context;
+        private final Lane lane;
+        private final Runnable body;
+        private final CompletableFuture<?> result;
+        private final long enqueuedNanos;
+        private final long deadlineNanos;
+        private long sequence;
+        private boolean started;
+        private boolean removed;
+
+        private Task(WorkContext context, Lane lane, Runnable body, long deadlineMs, CompletableFuture<?> result) {
+            this.context = context;
+            this.lane = lane;
+            this.body = body;
+            this.result = result;
+            this.enqueuedNanos = System.nanoTime();
+            this.deadlineNanos = enqueuedNanos + TimeUnit.MILLISECONDS.toNanos(deadlineMs);
+        }
+    }
+
+    public static class ClassStats {
+        private final int queued;
+        private final int running;
+        private final long completed;
+        private final long rejected;
+        private final long expired;
+        private final long queueTimeP50Micros;
+        private final long queueTimeP99Micros;
+        private final long queueTimeMaxMicros;
+
+        public ClassStats(int queued, int running, long completed, long rejected, long expired,
+                          long queueTimeP50Micros, long queueTimeP99Micros, long queueTimeMaxMicros) {
+            this.queued = queued;
+            this.running = running;
+            this.completed = completed;
+            this.rejected = rejected;
+            this.expired = expired;
+            this.queueTimeP50Micros = queueTimeP50Micros;
+            this.queueTimeP99Micros = queueTimeP99Micros;
+            this.queueTimeMaxMicros = queueTimeMaxMicros;
+        }
+
+        public int getQueued() { return queued; }
+        public int getRunning() { return running; }
+        public long getCompleted() { return completed; }
+        public long getRejected() { return rejected; }
+        public long getExpired() { return expired; }
+        public long getQueueTimeP50Micros() { return queueTimeP50Micros; }
+        public long getQueueTimeP99Micros() { return queueTimeP99Micros; }
+        public long getQueueTimeMaxMicros() { return queueTimeMaxMicros; }
+
+        @Override
+        public String toString() {
+            return String.format("ClassStats{queued=%d, running=%d, completed=%d, rejected=%d, expired=%d, queueTimeP50=%d us, queueTimeP99=%d us, queueTimeMax=%d us}",
+                    queued, running, completed, rejected, expired, queueTimeP50Micros, queueTimeP99Micros, queueTimeMaxMicros);
+        }
+    }
+}
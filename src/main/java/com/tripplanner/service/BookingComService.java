@@ -4,12 +4,14 @@ import com.tripplanner.dto.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.HttpServerErrorException;
 
+import java.time.Duration;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -22,7 +24,10 @@ import java.util.stream.Collectors;
 public class BookingComService {
     
     private static final Logger logger = LoggerFactory.getLogger(BookingComService.class);
-    private static final String BASE_URL = "https://distribution-xml.booking.com/2.5/json";
+    
+    // Highest weighted score first, shared with callers that merge results from several searches
+    public static final Comparator<Hotel> HOTEL_RANKING =
+            Comparator.comparingDouble(BookingComService::calculateHotelScore).reversed();
     
     @Value("${booking.com.api.key:}")
     private String apiKey;
@@ -33,10 +38,30 @@ public class BookingComService {
     @Value("${booking.com.timeout:30000}")
     private int timeoutMs;
     
+    @Value("${booking.com.base-url:https://distribution-xml.booking.com/2.5/json}")
+    private String baseUrl;
+    
     private final RestTemplate restTemplate;
     
-    public BookingComService(RestTemplate restTemplate) {
+    // Searches time out at the booking search deadline, after which their results are not used
+    private final RestTemplate searchRestTemplate;
+    private final long searchTimeoutMs;
+    
+    public BookingComService(RestTemplate restTemplate, RestTemplateBuilder restTemplateBuilder,
+                             @Value("${booking.com.search-timeout-ms:10000}") long searchTimeoutMs) {
         this.restTemplate = restTemplate;
+        this.searchTimeoutMs = searchTimeoutMs;
+        this.searchRestTemplate = restTemplateBuilder
+                .connectTimeout(Duration.ofMillis(searchTimeoutMs))
+                .readTimeout(Duration.ofMillis(searchTimeoutMs))
+                .build();
+    }
+    
+    /**
+     * How long a hotel search may take before its results are left out.
+     */
+    public long getSearchTimeoutMs() {
+        return searchTimeoutMs;
     }
     
     /**
@@ -58,11 +83,11 @@ public class BookingComService {
             Map<String, Object> searchParams = buildHotelSearchParams(request);
             
             // Make POST request to hotels endpoint
-            String url = BASE_URL + "/hotels";
+            String url = baseUrl + "/hotels";
             HttpHeaders headers = createHeaders();
             HttpEntity<Map<String, Object>> entity = new HttpEntity<>(searchParams, headers);
             
-            ResponseEntity<HotelSearchResponse> response = restTemplate.exchange(
+            ResponseEntity<HotelSearchResponse> response = searchRestTemplate.exchange(
                 url, HttpMethod.POST, entity, HotelSearchResponse.class);
             
             if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
@@ -116,7 +141,7 @@ public class BookingComService {
             Map<String, Object> bookingParams = buildBookingParams(hotel, payment);
             
             // Make POST request to bookings endpoint
-            String url = BASE_URL + "/bookings";
+            String url = baseUrl + "/bookings";
             HttpHeaders headers = createHeaders();
             HttpEntity<Map<String, Object>> entity = new HttpEntity<>(bookingParams, headers);
             
@@ -163,18 +188,14 @@ public class BookingComService {
         logger.debug("Ranking {} hotels by reviews, ratings, and price", hotels.size());
         
         return hotels.stream()
-            .sorted((h1, h2) -> {
-                double score1 = calculateHotelScore(h1);
-                double score2 = calculateHotelScore(h2);
-                return Double.compare(score2, score1); // Higher score first
-            })
+            .sorted(HOTEL_RANKING)
             .collect(Collectors.toList());
     }
     
     /**
      * Calculate a weighted score for hotel ranking.
      */
-    private double calculateHotelScore(Hotel hotel) {
+    private static double calculateHotelScore(Hotel hotel) {
         double score = 0.0;
         
         // Rating weight: 40%
@@ -3,12 +3,17 @@ package com.tripplanner.service;
 import com.tripplanner.controller.BookingController;
 import com.tripplanner.data.entity.Booking;
 import com.tripplanner.data.repo.BookingRepository;
+import com.tripplanner.dto.BookingListPage;
+import com.tripplanner.dto.BookingSummary;
 import jakarta.servlet.http.HttpServletRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
 import java.util.List;
 import java.util.Map;
 
@@ -21,12 +26,17 @@ public class BookingService {
     
     private static final Logger logger = LoggerFactory.getLogger(BookingService.class);
     
+    private static final int MAX_LIST_PAGE_SIZE = 100;
+    
     private final RazorpayService razorpayService;
     private final BookingRepository bookingRepository;
+    private final RazorpayWebhookQueue webhookQueue;
     
-    public BookingService(RazorpayService razorpayService, BookingRepository bookingRepository) {
+    public BookingService(RazorpayService razorpayService, BookingRepository bookingRepository,
+                          RazorpayWebhookQueue webhookQueue) {
         this.razorpayService = razorpayService;
         this.bookingRepository = bookingRepository;
+        this.webhookQueue = webhookQueue;
     }
     
     /**
@@ -62,25 +72,24 @@ public class BookingService {
     
     /**
      * Handle Razorpay webhook.
+     * Verifies and enqueues the event and returns without waiting for it to be applied,
+     * so Razorpay gets its acknowledgement immediately.
      */
-    public void handleRazorpayWebhook(HttpServletRequest request, String body) {
-        logger.info("=== RAZORPAY WEBHOOK REQUEST ===");
-        logger.info("Request URI: {}", request.getRequestURI());
-        logger.info("Content Type: {}", request.getContentType());
-        logger.info("Content Length: {}", request.getContentLength());
-        logger.info("Headers:");
-        java.util.Collections.list(request.getHeaderNames()).forEach(headerName -> 
-            logger.info("  {}: {}", headerName, request.getHeader(headerName)));
-        logger.info("Body length: {}", body != null ? body.length() : 0);
+    public RazorpayWebhookQueue.Intake handleRazorpayWebhook(HttpServletRequest request, String body) {
+        String eventId = request.getHeader("X-Razorpay-Event-Id");
         
         try {
-            razorpayService.handleWebhook(request, body);
-            logger.info("=== RAZORPAY WEBHOOK PROCESSED ===");
-            logger.info("Webhook processed successfully");
-            logger.info("=================================");
+            RazorpayWebhookQueue.Intake intake = webhookQueue.submit(
+                    eventId, request.getHeader("X-Razorpay-Signature"), body);
+            if (intake == RazorpayWebhookQueue.Intake.REJECTED) {
+                logger.warn("Rejected Razorpay webhook {}: invalid signature or payload", eventId);
+            } else {
+                logger.debug("Razorpay webhook {} {}", eventId, intake);
+            }
+            return intake;
         } catch (Exception e) {
             logger.error("=== RAZORPAY WEBHOOK FAILED ===");
-            logger.error("Error: {}", e.getMessage(), e);
+            logger.error("Event: {}, Error: {}", eventId, e.getMessage(), e);
             logger.error("==============================");
             throw e;
         }
@@ -169,16 +178,18 @@ public class BookingService {
         logger.debug("Getting bookings");
         
         try {
-            // Get all bookings for anonymous user (current implementation)
-            List<com.tripplanner.data.entity.Booking> bookings = bookingRepository.findAll();
+            // Get bookings for anonymous user (current implementation), newest first
+            int pageSize = Math.min(Math.max(size, 1), MAX_LIST_PAGE_SIZE);
+            List<BookingSummary> bookings = bookingRepository.findSummaries(
+                    PageRequest.of(Math.max(page, 0), pageSize));
             
             return bookings.stream()
                     .map(booking -> new BookingController.BookingRes(
-                            booking.getBookingId(),
-                            booking.getStatus().toString(),
-                            booking.getProvider() != null ? booking.getProvider().getConfirmationId() : null,
-                            booking.getItineraryId(),
-                            booking.getCreatedAt(),
+                            booking.bookingId(),
+                            booking.status().toString(),
+                            booking.confirmationId(),
+                            booking.itineraryId(),
+                            booking.createdAt(),
                             null // TODO: Parse JSON to Map if needed - currently returning null as JSON parsing is not implemented
                     ))
                     .toList();
@@ -189,6 +200,45 @@ public class BookingService {
         }
     }
     
+    /**
+     * Get one page of a user's bookings, newest first.
+     * Pages by the (createdAt, id) of the last booking returned, so deep pages cost the same as the first.
+     *
+     * @param cursor nextCursor from the previous page, or null for the first page
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    public BookingListPage getBookingPage(String userId, int limit, String cursor) {
+        int pageSize = Math.min(Math.max(limit, 1), MAX_LIST_PAGE_SIZE);
+        // Fetch one extra row to tell whether another page follows
+        PageRequest fetch = PageRequest.of(0, pageSize + 1);
+        
+        List<BookingSummary> rows;
+        if (cursor == null || cursor.isBlank()) {
+            rows = bookingRepository.findSummariesByUserId(userId, fetch);
+        } else {
+            int separator = cursor.lastIndexOf('_');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Invalid booking cursor: " + cursor);
+            }
+            try {
+                Instant createdAt = Instant.parse(cursor.substring(0, separator));
+                Long id = Long.parseLong(cursor.substring(separator + 1));
+                rows = bookingRepository.findSummariesByUserIdBefore(userId, createdAt, id, fetch);
+            } catch (DateTimeParseException | NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid booking cursor: " + cursor, e);
+            }
+        }
+        
+        boolean hasMore = rows.size() > pageSize;
+        List<BookingSummary> bookings = hasMore ? rows.subList(0, pageSize) : rows;
+        String nextCursor = null;
+        if (hasMore) {
+            BookingSummary last = bookings.get(bookings.size() - 1);
+            nextCursor = last.createdAt() + "_" + last.id();
+        }
+        return new BookingListPage(bookings, nextCursor, hasMore);
+    }
+    
     /**
      * Cancel booking.
      */
@@ -229,8 +279,8 @@ public class BookingService {
     /**
      * Get bookings by itinerary ID.
      */
-    public List<com.tripplanner.data.entity.Booking> getBookingsByItineraryId(String itineraryId) {
+    public List<BookingSummary> getBookingsByItineraryId(String itineraryId) {
         logger.debug("Getting bookings for itinerary: {}", itineraryId);
-        return bookingRepository.findByItineraryId(itineraryId);
+        return bookingRepository.findSummariesByItineraryId(itineraryId);
     }
 }
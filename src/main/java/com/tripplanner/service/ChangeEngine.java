@@ -7,6 +7,7 @@ import com.tripplanner.exception.VersionMismatchException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
@@ -20,15 +21,21 @@ import java.util.stream.Collectors;
 public class ChangeEngine {
     
     /**
-     * Result of a replace operation containing information about the original and replacement nodes.
+     * Log of the operations a ChangeSet actually applied, with the diff items they produced and the
+     * days whose node order changed. The diff, the revision details and the edge rebuild all come
+     * from this one log.
      */
-    private static class ReplaceResult {
-        final String originalNodeId;
-        final String originalNodeTitle;
-        
-        ReplaceResult(String originalNodeId, String originalNodeTitle) {
-            this.originalNodeId = originalNodeId;
-            this.originalNodeTitle = originalNodeTitle;
+    private static class OpLog {
+        final List<ChangeOperation> applied = new ArrayList<>();
+        final List<DiffItem> added = new ArrayList<>();
+        final List<DiffItem> removed = new ArrayList<>();
+        final List<DiffItem> updated = new ArrayList<>();
+        final Set<NormalizedDay> touchedDays = Collections.newSetFromMap(new IdentityHashMap<>());
+        // Days whose nodes were added, removed or changed, so their cost totals are recomputed
+        final Set<NormalizedDay> editedDays = Collections.newSetFromMap(new IdentityHashMap<>());
+        
+        ItineraryDiff toDiff() {
+            return new ItineraryDiff(added, removed, updated);
         }
     }
     
@@ -48,6 +55,9 @@ public class ChangeEngine {
     @Autowired(required = false)
     private WebSocketEventPublisher webSocketEventPublisher;
     
+    @Autowired(required = false)
+    private CostEstimationService costEstimationService;
+    
     // Primary constructor with enrichment service
     @Autowired
     public ChangeEngine(ItineraryJsonService itineraryJsonService,
@@ -110,7 +120,7 @@ public class ChangeEngine {
             proposed.setVersion(current.getVersion() + 1);
             
             // Apply changes to proposed itinerary
-            ItineraryDiff diff = applyChangesToItinerary(proposed, changeSet);
+            ItineraryDiff diff = applyChangesToItinerary(proposed, changeSet, false).toDiff();
             
                 return new ProposeResult(proposed, diff, proposed.getVersion());
                 
@@ -166,7 +176,8 @@ public class ChangeEngine {
             NormalizedItinerary updated = deepCopy(current);
             
             // Apply changes
-            ItineraryDiff diff = applyChangesToItinerary(updated, changeSet);
+            OpLog opLog = applyChangesToItinerary(updated, changeSet, false);
+            ItineraryDiff diff = opLog.toDiff();
             
             // If no changes detected, skip version bump and revision
             boolean hasChanges = (diff.getAdded() != null && !diff.getAdded().isEmpty())
@@ -177,8 +188,11 @@ public class ChangeEngine {
                 return new ApplyResult(current.getVersion(), diff);
             }
             
+            // Estimate costs of added and edited nodes so they are saved with the edit
+            estimateChangedNodeCosts(updated, opLog, diff);
+            
             // Create revision record before applying changes
-            RevisionRecord revisionRecord = createRevisionRecord(current, changeSet);
+            RevisionRecord revisionRecord = createRevisionRecord(current, changeSet, opLog.applied);
             
             try {
                 // Save revision using RevisionService
@@ -226,6 +240,19 @@ public class ChangeEngine {
      * Increments version, persists JSON, and creates revision.
      */
     public ApplyResult apply(String itineraryId, ChangeSet changeSet) {
+        return apply(itineraryId, changeSet, false);
+    }
+    
+    /**
+     * Apply the reorders of the route optimizer, which may reorder a day around locked nodes
+     * that keep their position. Only server-side callers reach this; a ChangeSet's own fields
+     * never relax lock checks.
+     */
+    public ApplyResult applyOptimizedRoutes(String itineraryId, ChangeSet changeSet) {
+        return apply(itineraryId, changeSet, true);
+    }
+    
+    private ApplyResult apply(String itineraryId, ChangeSet changeSet, boolean lockedNodesMayStay) {
         logger.info("Applying changes for itinerary: {}", itineraryId);
         
         // Check for idempotency
@@ -274,7 +301,8 @@ public class ChangeEngine {
             NormalizedItinerary updated = deepCopy(current);
             
             // Apply changes
-            ItineraryDiff diff = applyChangesToItinerary(updated, changeSet);
+            OpLog opLog = applyChangesToItinerary(updated, changeSet, lockedNodesMayStay);
+            ItineraryDiff diff = opLog.toDiff();
             
             // If no changes detected, skip version bump and revision
             boolean hasChanges = (diff.getAdded() != null && !diff.getAdded().isEmpty())
@@ -285,8 +313,11 @@ public class ChangeEngine {
                 return new ApplyResult(current.getVersion(), diff);
             }
             
+            // Estimate costs of added and edited nodes so they are saved with the edit
+            estimateChangedNodeCosts(updated, opLog, diff);
+            
             // Create revision record before applying changes
-            RevisionRecord revisionRecord = createRevisionRecord(current, changeSet);
+            RevisionRecord revisionRecord = createRevisionRecord(current, changeSet, opLog.applied);
             
             try {
                 // Save revision using RevisionService
@@ -389,71 +420,80 @@ public class ChangeEngine {
     }
     
     /**
-     * Apply changes to an itinerary and return the diff.
+     * Apply changes to an itinerary and return the log of what was applied.
+     * Ops are planned against the node index first, applied in one pass, and edges are rebuilt
+     * once per touched day at the end.
+     *
+     * @param lockedNodesMayStay Whether reorders may keep locked nodes in place, for the route optimizer only
      */
-    private ItineraryDiff applyChangesToItinerary(NormalizedItinerary itinerary, ChangeSet changeSet) {
-        List<DiffItem> added = new ArrayList<>();
-        List<DiffItem> removed = new ArrayList<>();
-        List<DiffItem> updated = new ArrayList<>();
+    private OpLog applyChangesToItinerary(NormalizedItinerary itinerary, ChangeSet changeSet,
+                                          boolean lockedNodesMayStay) {
+        OpLog log = new OpLog();
         
         // Handle null operations list
         if (changeSet.getOps() == null || changeSet.getOps().isEmpty()) {
             logger.info("No operations to apply");
-            return new ItineraryDiff(added, removed, updated);
+            return log;
         }
         
-        for (ChangeOperation op : changeSet.getOps()) {
-            if (op == null || op.getOp() == null) {
-                logger.warn("Skipping null operation");
-                continue;
-            }
-            
+        Integer day = changeSet.getDay();
+        ChangePreferences preferences = changeSet.getPreferences();
+        
+        for (ChangeOperation op : planOperations(itinerary, changeSet)) {
             switch (op.getOp()) {
                 case "move":
                     // Get node title for move
                     NormalizedNode nodeToMove = findNodeById(itinerary, op.getId());
                     String movedNodeTitle = nodeToMove != null ? nodeToMove.getTitle() : op.getId();
-                    if (moveNode(itinerary, op, changeSet.getPreferences())) {
-                        updated.add(new DiffItem(op.getId(), changeSet.getDay(), Arrays.asList("timing"), movedNodeTitle));
+                    if (moveNode(itinerary, op, preferences)) {
+                        log.applied.add(op);
+                        log.editedDays.add(findDayContainingNode(itinerary, op.getId()));
+                        log.updated.add(new DiffItem(op.getId(), day, Arrays.asList("timing"), movedNodeTitle));
                     }
                     break;
                 case "reorder":
-                    if (reorderNodes(itinerary, op, changeSet.getDay(), changeSet.getPreferences())) {
+                    Integer reorderDay = day != null ? day : findDayNumberOfNodes(itinerary, op);
+                    if (reorderNodes(itinerary, op, reorderDay, preferences, lockedNodesMayStay)) {
+                        log.applied.add(op);
+                        log.touchedDays.add(findDayByNumber(itinerary, reorderDay));
                         // Mark all reordered nodes as updated with titles
-                        if (op.getNodeIds() != null) {
-                            for (String nodeId : op.getNodeIds()) {
-                                NormalizedNode reorderedNode = findNodeById(itinerary, nodeId);
-                                String reorderedNodeTitle = reorderedNode != null ? reorderedNode.getTitle() : nodeId;
-                                updated.add(new DiffItem(nodeId, changeSet.getDay(), Arrays.asList("position"), reorderedNodeTitle));
-                            }
+                        for (String nodeId : op.getNodeIds()) {
+                            NormalizedNode reorderedNode = findNodeById(itinerary, nodeId);
+                            String reorderedNodeTitle = reorderedNode != null ? reorderedNode.getTitle() : nodeId;
+                            log.updated.add(new DiffItem(nodeId, reorderDay, Arrays.asList("position"), reorderedNodeTitle));
                         }
                     }
                     break;
                 case "insert":
-                    if (insertNode(itinerary, op, changeSet.getDay())) {
-                        added.add(new DiffItem(op.getNode().getId(), changeSet.getDay(), null, op.getNode().getTitle()));
+                    if (insertNode(itinerary, op, day)) {
+                        log.applied.add(op);
+                        log.touchedDays.add(findDayByNumber(itinerary, day));
+                        log.editedDays.add(findDayByNumber(itinerary, day));
+                        log.added.add(new DiffItem(op.getNode().getId(), day, null, op.getNode().getTitle()));
                     }
                     break;
                 case "delete":
                     // Get node title before deletion
                     NormalizedNode nodeToDelete = findNodeById(itinerary, op.getId());
                     String deletedNodeTitle = nodeToDelete != null ? nodeToDelete.getTitle() : op.getId();
-                    if (deleteNode(itinerary, op, changeSet.getDay(), changeSet.getPreferences())) {
-                        removed.add(new DiffItem(op.getId(), changeSet.getDay(), null, deletedNodeTitle));
+                    if (deleteNode(itinerary, op, day, preferences)) {
+                        log.applied.add(op);
+                        log.touchedDays.add(findDayByNumber(itinerary, day));
+                        log.editedDays.add(findDayByNumber(itinerary, day));
+                        log.removed.add(new DiffItem(op.getId(), day, null, deletedNodeTitle));
                     }
                     break;
                 case "replace":
-                    if (replaceNode(itinerary, op, changeSet.getDay(), changeSet.getPreferences())) {
-                        // For replace operations, we need to track the actual node that was replaced
-                        // and the new node that replaced it
-                        ReplaceResult replaceResult = getReplaceResult(itinerary, op, changeSet.getDay());
-                        if (replaceResult != null) {
-                            // Add the original node as removed
-                            removed.add(new DiffItem(replaceResult.originalNodeId, changeSet.getDay(), null, replaceResult.originalNodeTitle));
-                            // Add the new node as added
-                            if (op.getNode() != null) {
-                                added.add(new DiffItem(op.getNode().getId(), changeSet.getDay(), null, op.getNode().getTitle()));
-                            }
+                    // Capture the original node before it leaves the itinerary
+                    NormalizedNode nodeToReplace = findNodeById(itinerary, op.getId());
+                    String replacedNodeTitle = nodeToReplace != null ? nodeToReplace.getTitle() : op.getId();
+                    if (replaceNode(itinerary, op, day, preferences)) {
+                        log.applied.add(op);
+                        log.touchedDays.add(findDayByNumber(itinerary, day));
+                        log.editedDays.add(findDayByNumber(itinerary, day));
+                        log.removed.add(new DiffItem(op.getId(), day, null, replacedNodeTitle));
+                        if (op.getNode() != null) {
+                            log.added.add(new DiffItem(op.getNode().getId(), day, null, op.getNode().getTitle()));
                         }
                     }
                     break;
@@ -461,8 +501,10 @@ public class ChangeEngine {
                     // Get node title for update
                     NormalizedNode nodeToUpdate = findNodeById(itinerary, op.getId());
                     String updatedNodeTitle = nodeToUpdate != null ? nodeToUpdate.getTitle() : op.getId();
-                    if (updateNode(itinerary, op, changeSet.getDay(), changeSet.getPreferences())) {
-                        updated.add(new DiffItem(op.getId(), changeSet.getDay(), Arrays.asList("content"), updatedNodeTitle));
+                    if (updateNode(itinerary, op, day, preferences)) {
+                        log.applied.add(op);
+                        log.editedDays.add(findDayContainingNode(itinerary, op.getId()));
+                        log.updated.add(new DiffItem(op.getId(), day, Arrays.asList("content"), updatedNodeTitle));
                         
                         // 🔍 DEBUG: Verify node still has location data after update
                         NormalizedNode verifyNode = findNodeById(itinerary, op.getId());
@@ -476,16 +518,114 @@ public class ChangeEngine {
                     }
                     break;
                 case "update_edge":
-                    if (updateEdge(itinerary, op, changeSet.getDay(), changeSet.getPreferences())) {
-                        updated.add(new DiffItem(op.getId(), changeSet.getDay(), Arrays.asList("edge")));
+                    if (updateEdge(itinerary, op, day, preferences)) {
+                        log.applied.add(op);
+                        log.updated.add(new DiffItem(op.getId(), day, Arrays.asList("edge")));
+                    }
+                    break;
+                default:
+                    // planOperations only passes known operation types
+                    break;
+            }
+        }
+        
+        // Rebuild edges once per day whose node order changed
+        for (NormalizedDay touchedDay : log.touchedDays) {
+            if (touchedDay != null) {
+                rebuildEdges(touchedDay);
+            }
+        }
+        
+        return log;
+    }
+    
+    /**
+     * Validate all operations against the node index before any of them is applied.
+     * Drops null and unknown operations, operations on a missing day, and operations on nodes
+     * that are neither in the itinerary nor inserted earlier in the same ChangeSet.
+     * Lock checks stay with the individual operations.
+     */
+    private List<ChangeOperation> planOperations(NormalizedItinerary itinerary, ChangeSet changeSet) {
+        List<ChangeOperation> planned = new ArrayList<>(changeSet.getOps().size());
+        Set<String> insertedIds = new HashSet<>();
+        Set<String> deletedIds = new HashSet<>();
+        boolean dayExists = changeSet.getDay() != null && findDayByNumber(itinerary, changeSet.getDay()) != null;
+        
+        for (ChangeOperation op : changeSet.getOps()) {
+            if (op == null || op.getOp() == null) {
+                logger.warn("Skipping null operation");
+                continue;
+            }
+            
+            switch (op.getOp()) {
+                case "insert":
+                    if (!dayExists) {
+                        logger.warn("Day not found for {} operation: {}", op.getOp(), changeSet.getDay());
+                        continue;
+                    }
+                    break;
+                case "reorder":
+                    // Without a ChangeSet day, a reorder applies to the day holding its nodes
+                    if (changeSet.getDay() == null ? findDayNumberOfNodes(itinerary, op) == null : !dayExists) {
+                        logger.warn("Day not found for {} operation: {}", op.getOp(), changeSet.getDay());
+                        continue;
                     }
                     break;
+                case "delete":
+                case "replace":
+                    if (!dayExists) {
+                        logger.warn("Day not found for {} operation: {}", op.getOp(), changeSet.getDay());
+                        continue;
+                    }
+                    if (!isPlannedNode(itinerary, op.getId(), insertedIds, deletedIds)) {
+                        logger.error("Node with ID '{}' not found for {} operation. Available node IDs: {}",
+                                    op.getId(), op.getOp(), getAvailableNodeIds(itinerary));
+                        continue;
+                    }
+                    break;
+                case "move":
+                case "update":
+                    if (!isPlannedNode(itinerary, op.getId(), insertedIds, deletedIds)) {
+                        logger.warn("Node not found for {} operation: {}", op.getOp(), op.getId());
+                        continue;
+                    }
+                    break;
+                case "update_edge":
+                    break;
                 default:
                     logger.warn("Unknown operation: {}", op.getOp());
+                    continue;
+            }
+            
+            // Track ids this ChangeSet adds and removes so later ops see them
+            if ("delete".equals(op.getOp()) || "replace".equals(op.getOp())) {
+                insertedIds.remove(op.getId());
+                deletedIds.add(op.getId());
             }
+            if (("insert".equals(op.getOp()) || "replace".equals(op.getOp()))
+                    && op.getNode() != null && op.getNode().getId() != null) {
+                deletedIds.remove(op.getNode().getId());
+                insertedIds.add(op.getNode().getId());
+            }
+            planned.add(op);
         }
         
-        return new ItineraryDiff(added, removed, updated);
+        if (planned.size() < changeSet.getOps().size()) {
+            logger.warn("Planned {} of {} operations", planned.size(), changeSet.getOps().size());
+        }
+        return planned;
+    }
+    
+    /**
+     * Whether a node will exist when an operation runs, given the ids inserted and deleted by
+     * the operations planned before it.
+     */
+    private boolean isPlannedNode(NormalizedItinerary itinerary, String nodeId,
+                                  Set<String> insertedIds, Set<String> deletedIds) {
+        if (nodeId == null || deletedIds.contains(nodeId)) {
+            return false;
+        }
+        return insertedIds.contains(nodeId) || findNodeById(itinerary, nodeId) != null;
     }
     
     /**
@@ -520,6 +660,11 @@ public class ChangeEngine {
             node.getTiming().setEndTime(op.getEndTime());
         }
         
+        NormalizedDay day = findDayContainingNode(itinerary, op.getId());
+        if (day != null) {
+            day.getTimeline().update(node);
+        }
+        
         updateNodeAudit(node, "user");
         
         return true;
@@ -528,7 +673,8 @@ public class ChangeEngine {
     /**
      * Reorder nodes within a day to match the provided order.
      */
-    private boolean reorderNodes(NormalizedItinerary itinerary, ChangeOperation op, Integer day, ChangePreferences preferences) {
+    private boolean reorderNodes(NormalizedItinerary itinerary, ChangeOperation op, Integer day,
+                                 ChangePreferences preferences, boolean lockedNodesMayStay) {
         if (op.getNodeIds() == null || op.getNodeIds().isEmpty()) {
             logger.warn("No nodeIds provided for reorder operation");
             return false;
@@ -578,11 +724,14 @@ public class ChangeEngine {
             }
         }
         
-        // Check if any nodes are locked
+        // Check if any nodes are locked; the route optimizer may move unlocked nodes around
+        // locked ones as long as each locked node keeps its position
         if (Boolean.TRUE.equals(preferences != null ? preferences.getRespectLocks() : true)) {
-            for (String nodeId : op.getNodeIds()) {
+            for (int i = 0; i < op.getNodeIds().size(); i++) {
+                String nodeId = op.getNodeIds().get(i);
                 NormalizedNode node = nodeMap.get(nodeId);
-                if (Boolean.TRUE.equals(node.getLocked()) || lockManager.isLocked(nodeId)) {
+                boolean locked = Boolean.TRUE.equals(node.getLocked()) || lockManager.isLocked(nodeId);
+                if (locked && !(lockedNodesMayStay && nodeId.equals(currentNodes.get(i).getId()))) {
                     logger.warn("Cannot reorder: node {} is locked", nodeId);
                     return false;
                 }
@@ -602,7 +751,9 @@ public class ChangeEngine {
         }
         
         // Replace the nodes list with the new order
+        NodeIndex nodeIndex = itinerary.getNodeIndex();
         targetDay.setNodes(newOrder);
+        nodeIndex.refreshDay(targetDay);
         
         // Verify the order was set correctly
         logger.info("Day {}: After setNodes: {}", day,
@@ -618,6 +769,17 @@ public class ChangeEngine {
         return true;
     }
     
+    /**
+     * Day number of the day holding the first node of a reorder, or null if it is not in the itinerary.
+     */
+    private Integer findDayNumberOfNodes(NormalizedItinerary itinerary, ChangeOperation op) {
+        if (op.getNodeIds() == null || op.getNodeIds().isEmpty()) {
+            return null;
+        }
+        NormalizedDay dayOfNode = itinerary.getNodeIndex().getDayOfNode(op.getNodeIds().get(0));
+        return dayOfNode != null ? dayOfNode.getDayNumber() : null;
+    }
+    
     /**
      * Insert a new node.
      */
@@ -641,21 +803,21 @@ public class ChangeEngine {
             return false;
         }
         
-        // Insert node after the specified node
+        DayTimeline timeline = targetDay.getTimeline();
+        NodeIndex nodeIndex = itinerary.getNodeIndex();
+        
+        // Insert node after the specified node, or at the end of the day
+        List<NormalizedNode> nodes = targetDay.getNodes();
+        int position = nodes.size();
         if (op.getAfter() != null) {
-            List<NormalizedNode> nodes = targetDay.getNodes();
-            int insertIndex = findNodeIndex(nodes, op.getAfter());
-            if (insertIndex >= 0) {
-                nodes.add(insertIndex + 1, op.getNode());
-            } else {
-                nodes.add(op.getNode());
+            int afterIndex = findNodeIndex(itinerary, targetDay, op.getAfter());
+            if (afterIndex >= 0) {
+                position = afterIndex + 1;
             }
-        } else {
-            targetDay.getNodes().add(op.getNode());
         }
-        
-        // Update edges if needed
-        updateEdgesAfterInsert(targetDay, op.getAfter(), op.getNode().getId());
+        nodes.add(position, op.getNode());
+        timeline.add(op.getNode());
+        nodeIndex.nodeInserted(targetDay, position);
         
         // Set audit trail for new node
         updateNodeAudit(op.getNode(), "user");
@@ -702,10 +864,18 @@ public class ChangeEngine {
             return false;
         }
         
-        nodes.removeIf(node -> node.getId() != null && node.getId().equals(op.getId()));
-        
-        // Update edges
-        updateEdgesAfterDelete(targetDay, op.getId());
+        DayTimeline timeline = targetDay.getTimeline();
+        NodeIndex nodeIndex = itinerary.getNodeIndex();
+        boolean removed = false;
+        int position;
+        while ((position = findNodeIndex(itinerary, targetDay, op.getId())) >= 0) {
+            nodes.remove(position);
+            nodeIndex.nodeRemoved(targetDay, position);
+            removed = true;
+        }
+        if (removed) {
+            timeline.remove(op.getId());
+        }
         
         return true;
     }
@@ -765,13 +935,7 @@ public class ChangeEngine {
         
         // Find the position of the original node
         List<NormalizedNode> nodes = targetDay.getNodes();
-        int index = -1;
-        for (int i = 0; i < nodes.size(); i++) {
-            if (nodes.get(i).getId() != null && nodes.get(i).getId().equals(nodeToReplace.getId())) {
-                index = i;
-                break;
-            }
-        }
+        int index = findNodeIndex(itinerary, targetDay, nodeToReplace.getId());
         
         if (index == -1) {
             logger.warn("Could not find position of node to replace: {}", nodeToReplace.getId());
@@ -779,10 +943,10 @@ public class ChangeEngine {
         }
         
         // Replace the node
+        DayTimeline timeline = targetDay.getTimeline();
         nodes.set(index, replacementNode);
-        
-        // Update edges
-        updateEdgesAfterReplace(targetDay, nodeToReplace.getId(), replacementNode.getId());
+        timeline.replace(nodeToReplace.getId(), replacementNode);
+        itinerary.getNodeIndex().nodeReplaced(targetDay, index);
         
         return true;
     }
@@ -840,33 +1004,28 @@ public class ChangeEngine {
      * Find a node by ID across all days.
      */
     private NormalizedNode findNodeById(NormalizedItinerary itinerary, String nodeId) {
-        return itinerary.getDays().stream()
-                .flatMap(day -> day.getNodes().stream())
-                .filter(node -> node.getId() != null && node.getId().equals(nodeId))
-                .findFirst()
-                .orElse(null);
+        return itinerary.getNodeIndex().getNode(nodeId);
+    }
+    
+    /**
+     * Find the day whose nodes include the given node.
+     */
+    private NormalizedDay findDayContainingNode(NormalizedItinerary itinerary, String nodeId) {
+        return itinerary.getNodeIndex().getDayOfNode(nodeId);
     }
     
     /**
      * Find a day by day number.
      */
     private NormalizedDay findDayByNumber(NormalizedItinerary itinerary, Integer dayNumber) {
-        return itinerary.getDays().stream()
-                .filter(day -> day.getDayNumber().equals(dayNumber))
-                .findFirst()
-                .orElse(null);
+        return itinerary.getNodeIndex().getDay(dayNumber);
     }
     
     /**
-     * Find node index in a list.
+     * Find a node's position within a day.
      */
-    private int findNodeIndex(List<NormalizedNode> nodes, String nodeId) {
-        for (int i = 0; i < nodes.size(); i++) {
-            if (nodes.get(i).getId() != null && nodes.get(i).getId().equals(nodeId)) {
-                return i;
-            }
-        }
-        return -1;
+    private int findNodeIndex(NormalizedItinerary itinerary, NormalizedDay day, String nodeId) {
+        return itinerary.getNodeIndex().getPosition(day, nodeId);
     }
     
     /**
@@ -890,79 +1049,18 @@ public class ChangeEngine {
     }
     
     /**
-     * Update edges after inserting a node.
+     * Rebuild a day's edges as the chain of its nodes in order.
+     * Runs once per touched day after all operations are applied.
      */
-    private void updateEdgesAfterInsert(NormalizedDay day, String afterNodeId, String newNodeId) {
-        if (afterNodeId == null) return;
-        
-        List<Edge> edges = day.getEdges();
-        if (edges == null) {
-            edges = new ArrayList<>();
-            day.setEdges(edges);
-        }
-        
-        // Find edges that point to the node after which we inserted
-        for (Edge edge : edges) {
-            if (edge.getTo().equals(afterNodeId)) {
-                // Insert new edge before the existing one
-                int index = edges.indexOf(edge);
-                edges.add(index, new Edge(edge.getFrom(), newNodeId));
-                break;
-            }
-        }
-        
-        // Add edge from new node to the node after which we inserted
-        edges.add(new Edge(newNodeId, afterNodeId));
-    }
-    
-    /**
-     * Update edges after deleting a node.
-     */
-    private void updateEdgesAfterDelete(NormalizedDay day, String deletedNodeId) {
-        List<Edge> edges = day.getEdges();
-        if (edges == null) return;
-        
-        // Remove edges involving the deleted node
-        edges.removeIf(edge -> edge.getFrom().equals(deletedNodeId) || edge.getTo().equals(deletedNodeId));
-        
-        // Find edges that need to be reconnected
-        List<Edge> toAdd = new ArrayList<>();
-        List<Edge> toRemove = new ArrayList<>();
-        
-        for (Edge edge : edges) {
-            if (edge.getTo().equals(deletedNodeId)) {
-                // Find what the deleted node was pointing to
-                for (Edge nextEdge : edges) {
-                    if (nextEdge.getFrom().equals(deletedNodeId)) {
-                        toAdd.add(new Edge(edge.getFrom(), nextEdge.getTo()));
-                        toRemove.add(edge);
-                        toRemove.add(nextEdge);
-                        break;
-                    }
-                }
-            }
-        }
-        
-        edges.removeAll(toRemove);
-        edges.addAll(toAdd);
-    }
-    
-    /**
-     * Update edges after replacing a node.
-     */
-    private void updateEdgesAfterReplace(NormalizedDay day, String oldNodeId, String newNodeId) {
-        List<Edge> edges = day.getEdges();
-        if (edges == null) return;
-        
-        // Update edges to use the new node ID
-        for (Edge edge : edges) {
-            if (edge.getFrom().equals(oldNodeId)) {
-                edge.setFrom(newNodeId);
-            }
-            if (edge.getTo().equals(oldNodeId)) {
-                edge.setTo(newNodeId);
+    private void rebuildEdges(NormalizedDay day) {
+        List<NormalizedNode> nodes = day.getNodes();
+        List<Edge> edges = new ArrayList<>();
+        if (nodes != null) {
+            for (int i = 1; i < nodes.size(); i++) {
+                edges.add(new Edge(nodes.get(i - 1).getId(), nodes.get(i).getId()));
             }
         }
+        day.setEdges(edges);
     }
     
     /**
@@ -980,9 +1078,42 @@ public class ChangeEngine {
     
     
     /**
-     * Create a revision record from current itinerary and changeset.
+     * Give added and updated nodes without a cost an estimate and recompute the totals of the
+     * days the edit touched, in memory only.
      */
-    private RevisionRecord createRevisionRecord(NormalizedItinerary itinerary, ChangeSet changeSet) {
+    private void estimateChangedNodeCosts(NormalizedItinerary updated, OpLog opLog, ItineraryDiff diff) {
+        if (costEstimationService == null) {
+            return;
+        }
+        Set<String> nodeIds = new HashSet<>();
+        if (diff.getAdded() != null) {
+            diff.getAdded().forEach(item -> nodeIds.add(item.getNodeId()));
+        }
+        if (diff.getUpdated() != null) {
+            diff.getUpdated().forEach(item -> nodeIds.add(item.getNodeId()));
+        }
+        Set<Integer> dayNumbers = new HashSet<>();
+        for (NormalizedDay editedDay : opLog.editedDays) {
+            if (editedDay != null && editedDay.getDayNumber() != null) {
+                dayNumbers.add(editedDay.getDayNumber());
+            }
+        }
+        if (dayNumbers.isEmpty()) {
+            return;
+        }
+        try {
+            costEstimationService.estimateChangedNodes(updated, nodeIds, dayNumbers);
+        } catch (Exception e) {
+            logger.warn("Failed to estimate costs for changed nodes in itinerary {}: {}",
+                       updated.getItineraryId(), e.getMessage());
+        }
+    }
+    
+    /**
+     * Create a revision record from current itinerary and the operations applied from the changeset.
+     */
+    private RevisionRecord createRevisionRecord(NormalizedItinerary itinerary, ChangeSet changeSet,
+                                                List<ChangeOperation> appliedOps) {
         // Generate unique revision ID
         String revisionId = "rev_" + System.currentTimeMillis() + "_" + java.util.UUID.randomUUID().toString().substring(0, 8);
         
@@ -996,7 +1127,7 @@ public class ChangeEngine {
         String reason = (changeSet.getReason() != null) ? changeSet.getReason() : "Manual changes applied";
 
         // Convert ChangeSet operations to List<ChangeDetail>
-        List<ChangeDetail> changes = convertChangeSetToDetails(changeSet);
+        List<ChangeDetail> changes = convertChangeSetToDetails(changeSet, appliedOps);
 
         // Create revision record
         RevisionRecord revisionRecord = new RevisionRecord(revisionId, timestamp, agent, changes, reason, itinerary.getUserId());
@@ -1007,14 +1138,13 @@ public class ChangeEngine {
     }
     
     /**
-     * Convert ChangeSet operations to ChangeDetail list.
+     * Convert the applied ChangeSet operations to ChangeDetail list.
      */
-    private List<ChangeDetail> convertChangeSetToDetails(ChangeSet changeSet) {
+    private List<ChangeDetail> convertChangeSetToDetails(ChangeSet changeSet, List<ChangeOperation> appliedOps) {
         List<ChangeDetail> changes = new ArrayList<>();
         
-        if (changeSet.getOps() != null) {
-            for (ChangeOperation op : changeSet.getOps()) {
-                if (op == null || op.getOp() == null) continue;
+        if (appliedOps != null) {
+            for (ChangeOperation op : appliedOps) {
                 
                 ChangeDetail detail = new ChangeDetail();
                 detail.setOperationType(op.getOp().toUpperCase());
@@ -1404,6 +1534,9 @@ public class ChangeEngine {
                 // Merge agent data instead of replacing
                 mergeAgentData(node, updateData.getAgentData());
             }
+            if (updateData.getTransit() != null) {
+                node.setTransit(updateData.getTransit());
+            }
             
             // Update audit trail
             updateNodeAudit(node, "user");
@@ -1618,39 +1751,6 @@ public class ChangeEngine {
         return null;
     }
     
-    /**
-     * Get information about a replace operation result.
-     * This method finds the actual node that was replaced and returns its details.
-     */
-    private ReplaceResult getReplaceResult(NormalizedItinerary itinerary, ChangeOperation op, Integer day) {
-        // Find the day
-        NormalizedDay targetDay = findDayByNumber(itinerary, day);
-        if (targetDay == null) {
-            logger.warn("Day not found for replace result: {}", day);
-            return null;
-        }
-        
-        // Try to find the node by the ID provided in the operation
-        NormalizedNode nodeToReplace = findNodeById(itinerary, op.getId());
-        if (nodeToReplace != null) {
-            // Found the exact node
-            return new ReplaceResult(nodeToReplace.getId(), nodeToReplace.getTitle());
-        }
-        
-        // If the exact ID wasn't found, use the same fallback strategy as replaceNode
-        // This handles cases where the LLM provides a generic ID like "day1_node1"
-        List<NormalizedNode> nodes = targetDay.getNodes();
-        if (nodes != null && !nodes.isEmpty()) {
-            // Use the first node as a fallback (same logic as in replaceNode)
-            NormalizedNode fallbackNode = nodes.get(0);
-            logger.warn("Could not find node with ID '{}', using fallback node '{}' for replace result", op.getId(), fallbackNode.getId());
-            return new ReplaceResult(fallbackNode.getId(), fallbackNode.getTitle());
-        }
-        
-        logger.warn("No nodes found in day {} for replace operation", day);
-        return null;
-    }
-    
     /**
      * Map normalized itinerary ID to database ID.
      * This handles the mapping between semantic IDs and database IDs.
@@ -1702,8 +1802,14 @@ public class ChangeEngine {
         logger.info("Triggering auto-enrichment for {} nodes in itinerary {}", 
             nodeIdsToEnrich.size(), itineraryId);
         
-        // Trigger enrichment asynchronously (non-blocking)
-        enrichmentService.enrichNodesAsync(itineraryId, nodeIdsToEnrich);
+        // Trigger enrichment asynchronously (non-blocking). The changes are already saved, so a
+        // saturated async executor must not fail the apply; the nodes just stay unenriched.
+        try {
+            enrichmentService.enrichNodesAsync(itineraryId, nodeIdsToEnrich);
+        } catch (TaskRejectedException e) {
+            logger.warn("Auto-enrichment rejected for itinerary {}, executor saturated: {}",
+                itineraryId, e.getMessage());
+        }
     }
 
     /**
@@ -1,59 +1,133 @@
 package com.tripplanner.service;
 
-import com.google.cloud.firestore.Firestore;
-import com.google.cloud.firestore.Query;
-import com.google.cloud.firestore.QueryDocumentSnapshot;
-import com.google.cloud.firestore.WriteBatch;
+import com.tripplanner.dto.ChatHistoryPage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 /**
- * Service for managing chat history in Firestore.
+ * Service for managing chat history, stored at itineraries/{itineraryId}/chat_messages.
+ * Backed by Firestore by default, or by the embedded local store with database.backend=local.
+ *
+ * Pages are read newest first with a document cursor, so loading a conversation costs one query
+ * of at most a page of messages regardless of its length. The newest messages of active
+ * itineraries are kept in the {@link ConversationContextCache}, which serves the latest page and
+ * the recent messages of chat prompts without a query.
  */
-@Service
-public class ChatHistoryService {
+public abstract class ChatHistoryService {
 
     private static final Logger logger = LoggerFactory.getLogger(ChatHistoryService.class);
-    private static final String COLLECTION_ITINERARIES = "itineraries";
-    private static final String SUBCOLLECTION_CHAT_MESSAGES = "chat_messages";
-    private static final int BATCH_SIZE = 500;
+    protected static final String COLLECTION_ITINERARIES = "itineraries";
+    protected static final String SUBCOLLECTION_CHAT_MESSAGES = "chat_messages";
+    private static final int MAX_PAGE_SIZE = 200;
 
-    private final Firestore firestore;
+    private final ConversationContextCache conversationContextCache;
 
-    public ChatHistoryService(Firestore firestore) {
-        this.firestore = firestore;
+    protected ChatHistoryService(ConversationContextCache conversationContextCache) {
+        this.conversationContextCache = conversationContextCache;
     }
 
+    /**
+     * All messages of an itinerary, oldest first.
+     */
+    protected abstract List<Map<String, Object>> loadMessages(String itineraryId) throws Exception;
+
+    /**
+     * At most {@code limit} messages, newest first, older than the message named by {@code before}
+     * when it is set. Messages with equal timestamps are ordered by descending ID.
+     *
+     * @throws IllegalArgumentException if the cursor does not name a message of this itinerary
+     */
+    protected abstract List<Map<String, Object>> loadNewestMessages(String itineraryId, int limit, String before) throws Exception;
+
+    /**
+     * Store a new message and return its generated ID.
+     */
+    protected abstract String insertMessage(String itineraryId, Map<String, Object> message) throws Exception;
+
+    /**
+     * Delete every message of an itinerary and return how many were deleted.
+     */
+    protected abstract int deleteMessages(String itineraryId) throws Exception;
+
     /**
      * Retrieve chat history for an itinerary.
      */
     public List<Map<String, Object>> getChatHistory(String itineraryId) {
         try {
-            var snapshot = firestore
-                    .collection(COLLECTION_ITINERARIES)
-                    .document(itineraryId)
-                    .collection(SUBCOLLECTION_CHAT_MESSAGES)
-                    .orderBy("timestamp", Query.Direction.ASCENDING)
-                    .get()
-                    .get();
-
-            List<Map<String, Object>> chatHistory = new ArrayList<>();
-            for (QueryDocumentSnapshot doc : snapshot.getDocuments()) {
-                Map<String, Object> message = new HashMap<>(doc.getData());
-                message.put("id", doc.getId());
-                chatHistory.add(message);
-            }
-
+            List<Map<String, Object>> chatHistory = loadMessages(itineraryId);
             logger.info("Retrieved {} chat messages for itinerary {}", chatHistory.size(), itineraryId);
             return chatHistory;
         } catch (Exception e) {
-            logger.error("Error retrieving chat history from Firestore: {}", e.getMessage(), e);
+            logger.error("Error retrieving chat history: {}", e.getMessage(), e);
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Retrieve one page of chat history, newest page first.
+     *
+     * @param limit maximum number of messages in the page
+     * @param before cursor from the previous page's nextCursor, or null for the latest messages
+     * @throws IllegalArgumentException if the cursor does not name a message of this itinerary
+     */
+    public ChatHistoryPage getChatHistoryPage(String itineraryId, int limit, String before) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+
+        if (before == null) {
+            ChatHistoryPage cached = conversationContextCache.getLatestPage(itineraryId, pageSize);
+            if (cached != null) {
+                logger.debug("Served {} chat messages for itinerary {} from the tail cache",
+                            cached.getMessages().size(), itineraryId);
+                return cached;
+            }
+        }
+
+        try {
+            // A latest-page read also fills the tail cache
+            boolean fillTail = before == null;
+            long generation = fillTail ? conversationContextCache.beginTailLoad(itineraryId) : 0;
+            int fetchSize = fillTail ? Math.max(pageSize, conversationContextCache.getTailSize()) : pageSize;
+
+            // One extra message tells whether older ones exist
+            List<Map<String, Object>> docs = loadNewestMessages(itineraryId, fetchSize + 1, before);
+            boolean complete = docs.size() <= fetchSize;
+            List<Map<String, Object>> newest = new ArrayList<>(docs.subList(0, Math.min(docs.size(), fetchSize)));
+            Collections.reverse(newest);
+
+            if (fillTail) {
+                conversationContextCache.installTail(itineraryId, generation, newest, complete);
+            }
+
+            int skip = Math.max(0, newest.size() - pageSize);
+            List<Map<String, Object>> page = new ArrayList<>(newest.subList(skip, newest.size()));
+            logger.info("Retrieved {} chat messages for itinerary {} (before: {})", page.size(), itineraryId, before);
+            return ConversationContextCache.toPage(page, skip > 0 || !complete);
+        } catch (IllegalArgumentException e) {
+            throw e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while loading chat history", e);
+        } catch (Exception e) {
+            logger.error("Error retrieving chat history page: {}", e.getMessage(), e);
+            throw new RuntimeException("Failed to retrieve chat history", e);
+        }
+    }
+
+    /**
+     * The newest {@code count} chat messages, oldest first. Served from the conversation context
+     * cache when the itinerary is active.
+     */
+    public List<Map<String, Object>> getRecentMessages(String itineraryId, int count) {
+        try {
+            return getChatHistoryPage(itineraryId, count, null).getMessages();
+        } catch (Exception e) {
+            logger.error("Error retrieving recent chat messages: {}", e.getMessage(), e);
             return new ArrayList<>();
         }
     }
@@ -71,17 +145,11 @@ public class ChatHistoryService {
             // Add user ID
             message.put("userId", userId);
 
-            // Save to Firestore subcollection
-            var docRef = firestore
-                    .collection(COLLECTION_ITINERARIES)
-                    .document(itineraryId)
-                    .collection(SUBCOLLECTION_CHAT_MESSAGES)
-                    .document();
-
-            docRef.set(message).get();
+            String messageId = insertMessage(itineraryId, message);
 
             Map<String, Object> response = new HashMap<>(message);
-            response.put("id", docRef.getId());
+            response.put("id", messageId);
+            conversationContextCache.onMessageSaved(itineraryId, response);
 
             logger.info("Saved chat message for itinerary {}", itineraryId);
             return response;
@@ -96,31 +164,8 @@ public class ChatHistoryService {
      */
     public int clearChatHistory(String itineraryId) {
         try {
-            var snapshot = firestore
-                    .collection(COLLECTION_ITINERARIES)
-                    .document(itineraryId)
-                    .collection(SUBCOLLECTION_CHAT_MESSAGES)
-                    .get()
-                    .get();
-
-            // Delete in batches
-            WriteBatch batch = firestore.batch();
-            int count = 0;
-            for (QueryDocumentSnapshot doc : snapshot.getDocuments()) {
-                batch.delete(doc.getReference());
-                count++;
-
-                // Firestore batch limit is 500 operations
-                if (count % BATCH_SIZE == 0) {
-                    batch.commit().get();
-                    batch = firestore.batch();
-                }
-            }
-
-            // Commit remaining deletions
-            if (count % BATCH_SIZE != 0) {
-                batch.commit().get();
-            }
+            int count = deleteMessages(itineraryId);
+            conversationContextCache.onChatCleared(itineraryId);
 
             logger.info("Cleared {} chat messages for itinerary {}", count, itineraryId);
             return count;
@@ -130,10 +175,3 @@ public class ChatHistoryService {
         }
     }
 }
-
-
-
-
-
-
-
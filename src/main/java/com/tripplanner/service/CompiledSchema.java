@@ -0,0 +1,268 @@
+package com.tripplanner.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.util.*;
+
+/**
+ * JSON schema compiled once into an immutable rule tree.
+ *
+ * Agents declare their structured-output schemas as constants and compile them at class load,
+ * so validating an LLM response walks only the response and a prebuilt rule tree instead of
+ * re-parsing the schema string and iterating its property names on every call.
+ *
+ * Supported keywords mirror what the agents actually send to the providers:
+ * type (single or array), required, properties, items and enum.
+ *
+ * Strict validation applies every keyword at every level and tells integers from other numbers.
+ * Lenient validation only checks the top-level required fields and the single types of top-level
+ * properties, with "integer" accepting any number, so it passes every response that passed
+ * before schemas were compiled.
+ */
+public final class CompiledSchema {
+
+    // Schema parsing is independent of the application mapper configuration
+    private static final ObjectMapper SCHEMA_MAPPER = new ObjectMapper();
+
+    private final String schemaJson;
+    private final JsonNode schemaNode;
+    private final int typeMask;
+    private final int lenientTypeMask;
+    private final String typeName;
+    private final String[] required;
+    private final Map<String, CompiledSchema> properties;
+    private final CompiledSchema items;
+    private final Set<String> enumValues;
+
+    private CompiledSchema(String schemaJson, JsonNode schemaNode) {
+        this.schemaJson = schemaJson;
+        this.schemaNode = schemaNode;
+
+        JsonNode type = schemaNode.get("type");
+        this.typeMask = compileTypeMask(type);
+        this.lenientTypeMask = type == null || type.isArray() ? 0 : typeBitForName(type.asText()) | widenInteger(type.asText());
+        this.typeName = type == null ? null : (type.isArray() ? type.toString() : type.asText());
+
+        JsonNode requiredNode = schemaNode.get("required");
+        if (requiredNode != null && requiredNode.isArray()) {
+            this.required = new String[requiredNode.size()];
+            for (int i = 0; i < requiredNode.size(); i++) {
+                this.required[i] = requiredNode.get(i).asText();
+            }
+        } else {
+            this.required = new String[0];
+        }
+
+        JsonNode propertiesNode = schemaNode.get("properties");
+        if (propertiesNode != null && propertiesNode.isObject()) {
+            Map<String, CompiledSchema> compiled = new LinkedHashMap<>();
+            propertiesNode.fields().forEachRemaining(entry ->
+                compiled.put(entry.getKey(), new CompiledSchema(null, entry.getValue())));
+            this.properties = Collections.unmodifiableMap(compiled);
+        } else {
+            this.properties = Collections.emptyMap();
+        }
+
+        JsonNode itemsNode = schemaNode.get("items");
+        this.items = itemsNode != null && itemsNode.isObject() ? new CompiledSchema(null, itemsNode) : null;
+
+        JsonNode enumNode = schemaNode.get("enum");
+        if (enumNode != null && enumNode.isArray()) {
+            Set<String> values = new HashSet<>();
+            enumNode.forEach(value -> values.add(value.asText()));
+            this.enumValues = Collections.unmodifiableSet(values);
+        } else {
+            this.enumValues = null;
+        }
+    }
+
+    /**
+     * Compile a schema from its JSON text. Intended for static initializers, so
+     * malformed schemas fail fast at startup rather than on the first response.
+     */
+    public static CompiledSchema compile(String schemaJson) {
+        try {
+            return new CompiledSchema(schemaJson, SCHEMA_MAPPER.readTree(schemaJson));
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Invalid JSON schema: " + e.getOriginalMessage(), e);
+        }
+    }
+
+    /**
+     * Compile an already parsed schema.
+     */
+    public static CompiledSchema compile(JsonNode schemaNode) {
+        if (schemaNode == null || !schemaNode.isObject()) {
+            throw new IllegalArgumentException("JSON schema must be an object");
+        }
+        return new CompiledSchema(null, schemaNode);
+    }
+
+    /**
+     * Validate a JSON document strictly against the compiled rules.
+     *
+     * @return list of validation errors, empty when the document is valid
+     */
+    public List<String> validate(JsonNode json) {
+        return validate(json, true);
+    }
+
+    /**
+     * Validate a JSON document strictly or leniently, see the class comment.
+     *
+     * @return list of validation errors, empty when the document is valid
+     */
+    public List<String> validate(JsonNode json, boolean strict) {
+        List<String> errors = new ArrayList<>();
+        if (strict) {
+            validate(json, "", errors);
+        } else {
+            validateTopLevel(json, errors);
+        }
+        return errors;
+    }
+
+    private void validateTopLevel(JsonNode json, List<String> errors) {
+        for (String field : required) {
+            if (!json.has(field)) {
+                errors.add("Missing required field: " + field);
+            }
+        }
+        for (Map.Entry<String, CompiledSchema> property : properties.entrySet()) {
+            JsonNode fieldValue = json.get(property.getKey());
+            CompiledSchema fieldSchema = property.getValue();
+            if (fieldValue != null && !fieldValue.isNull() && fieldSchema.lenientTypeMask != 0
+                    && (fieldSchema.lenientTypeMask & typeBit(fieldValue)) == 0) {
+                errors.add("Field " + property.getKey() + " has incorrect type. Expected: " + fieldSchema.typeName);
+            }
+        }
+    }
+
+    private void validate(JsonNode value, String path, List<String> errors) {
+        if (typeMask != 0 && (typeMask & typeBit(value)) == 0) {
+            errors.add("Field " + displayPath(path) + " has incorrect type. Expected: " + typeName);
+            return;
+        }
+
+        if (enumValues != null && value.isValueNode() && !enumValues.contains(value.asText())) {
+            errors.add("Field " + displayPath(path) + " has unexpected value: " + value.asText());
+        }
+
+        if (value.isObject()) {
+            for (String field : required) {
+                if (!value.has(field)) {
+                    errors.add("Missing required field: " + childPath(path, field));
+                }
+            }
+            for (Map.Entry<String, CompiledSchema> property : properties.entrySet()) {
+                JsonNode fieldValue = value.get(property.getKey());
+                if (fieldValue != null && !fieldValue.isNull()) {
+                    property.getValue().validate(fieldValue, childPath(path, property.getKey()), errors);
+                }
+            }
+        } else if (value.isArray() && items != null) {
+            for (int i = 0; i < value.size(); i++) {
+                items.validate(value.get(i), path + "[" + i + "]", errors);
+            }
+        }
+    }
+
+    /**
+     * Compiled sub-schema of a declared property, or null when the property is not declared.
+     */
+    public CompiledSchema property(String name) {
+        return properties.get(name);
+    }
+
+    /**
+     * Compiled sub-schema of array items, or null when no items schema is declared.
+     */
+    public CompiledSchema items() {
+        return items;
+    }
+
+    /**
+     * Original schema text, as sent to the LLM provider. Null for sub-schemas and
+     * schemas compiled from a parsed tree.
+     */
+    public String getSchemaJson() {
+        return schemaJson;
+    }
+
+    public JsonNode getSchemaNode() {
+        return schemaNode;
+    }
+
+    // Type bits; "number" accepts integers as well, per JSON schema semantics
+    private static final int TYPE_STRING = 1;
+    private static final int TYPE_INTEGER = 1 << 1;
+    private static final int TYPE_NUMBER = 1 << 2;
+    private static final int TYPE_BOOLEAN = 1 << 3;
+    private static final int TYPE_ARRAY = 1 << 4;
+    private static final int TYPE_OBJECT = 1 << 5;
+    private static final int TYPE_NULL = 1 << 6;
+
+    private static int compileTypeMask(JsonNode type) {
+        if (type == null) {
+            return 0;
+        }
+        if (type.isArray()) {
+            int mask = 0;
+            for (JsonNode entry : type) {
+                int bit = typeBitForName(entry.asText());
+                if (bit == 0) {
+                    return 0; // Unknown type, accept anything
+                }
+                mask |= bit;
+            }
+            return mask;
+        }
+        return typeBitForName(type.asText());
+    }
+
+    private static int typeBitForName(String name) {
+        switch (name.toLowerCase()) {
+            case "string":
+                return TYPE_STRING;
+            case "integer":
+                return TYPE_INTEGER;
+            case "number":
+                return TYPE_NUMBER | TYPE_INTEGER;
+            case "boolean":
+                return TYPE_BOOLEAN;
+            case "array":
+                return TYPE_ARRAY;
+            case "object":
+                return TYPE_OBJECT;
+            case "null":
+                return TYPE_NULL;
+            default:
+                return 0;
+        }
+    }
+
+    private static int widenInteger(String name) {
+        return "integer".equalsIgnoreCase(name) ? TYPE_NUMBER : 0;
+    }
+
+    private static int typeBit(JsonNode value) {
+        if (value.isTextual()) return TYPE_STRING;
+        if (value.isIntegralNumber()) return TYPE_INTEGER;
+        if (value.isNumber()) return TYPE_NUMBER;
+        if (value.isBoolean()) return TYPE_BOOLEAN;
+        if (value.isArray()) return TYPE_ARRAY;
+        if (value.isObject()) return TYPE_OBJECT;
+        if (value.isNull()) return TYPE_NULL;
+        return 0;
+    }
+
+    private static String childPath(String path, String field) {
+        return path.isEmpty() ? field : path + "." + field;
+    }
+
+    private static String displayPath(String path) {
+        return path.isEmpty() ? "<root>" : path;
+    }
+}
@@ -243,9 +243,8 @@ public class ConflictResolver {
                 if (day != null) {
                     NormalizedDay targetDay = findDayByNumber(currentItinerary, day);
                     if (targetDay != null) {
-                        for (NormalizedNode node : targetDay.getNodes()) {
-                            if (node.getId() != null && !node.getId().equals(op.getId()) && 
-                                hasTimingOverlap(node, op.getStartTime(), op.getEndTime())) {
+                        for (NormalizedNode node : targetDay.getTimeline().overlapping(op.getStartTime(), op.getEndTime())) {
+                            if (node.getId() != null && !node.getId().equals(op.getId())) {
                                 conflicts.add(new Conflict(
                                     ConflictType.TIMING_CONFLICT,
                                     ConflictSeverity.MEDIUM,
@@ -371,7 +370,7 @@ public class ConflictResolver {
         
         // Find next available time slot
         Long nextAvailableTime = findNextAvailableTimeSlot(targetDay, operation.getStartTime(), 
-                                                          operation.getEndTime());
+                                                          operation.getEndTime(), operation.getId());
         if (nextAvailableTime != null) {
             Long duration = operation.getEndTime() - operation.getStartTime();
             operation.setStartTime(nextAvailableTime);
@@ -381,45 +380,22 @@ public class ConflictResolver {
     
     /**
      * Find next available time slot.
+     * Jumps straight past blocking nodes using the day's timeline index, ignoring the node being moved.
      */
-    private Long findNextAvailableTimeSlot(NormalizedDay day, Long startTime, Long endTime) {
-        Long duration = endTime - startTime;
-        Long currentTime = startTime;
-        
-        // Simple algorithm: increment by 30 minutes until we find a free slot
-        while (currentTime < startTime + 8 * 60 * 60 * 1000) { // Max 8 hours search
-            boolean hasConflict = false;
-            for (NormalizedNode node : day.getNodes()) {
-                if (hasTimingOverlap(node, currentTime, currentTime + duration)) {
-                    hasConflict = true;
-                    break;
-                }
-            }
-            
-            if (!hasConflict) {
-                return currentTime;
-            }
-            
-            currentTime += 30 * 60 * 1000; // 30 minutes
-        }
+    private Long findNextAvailableTimeSlot(NormalizedDay day, Long startTime, Long endTime, String movingNodeId) {
+        long duration = endTime - startTime;
+        long searchUntil = startTime + 8 * 60 * 60 * 1000; // Max 8 hours search
         
-        return null; // No available slot found
+        return day.getTimeline().nextFreeSlot(startTime, duration, searchUntil, movingNodeId);
     }
     
     // Helper methods
     private NormalizedNode findNodeById(NormalizedItinerary itinerary, String nodeId) {
-        return itinerary.getDays().stream()
-                .flatMap(day -> day.getNodes().stream())
-                .filter(node -> node.getId() != null && node.getId().equals(nodeId))
-                .findFirst()
-                .orElse(null);
+        return itinerary.getNodeIndex().getNode(nodeId);
     }
     
     private NormalizedDay findDayByNumber(NormalizedItinerary itinerary, Integer dayNumber) {
-        return itinerary.getDays().stream()
-                .filter(day -> day.getDayNumber().equals(dayNumber))
-                .findFirst()
-                .orElse(null);
+        return itinerary.getNodeIndex().getDay(dayNumber);
     }
     
     private boolean hasBeenModifiedRecently(NormalizedNode node, Integer baseVersion) {
@@ -427,18 +403,6 @@ public class ConflictResolver {
         return node.getUpdatedAt() != null && baseVersion != null;
     }
     
-    private boolean hasTimingOverlap(NormalizedNode node, Long startTime, Long endTime) {
-        if (node.getTiming() == null || node.getTiming().getStartTime() == null || 
-            node.getTiming().getEndTime() == null) {
-            return false;
-        }
-        
-        Long nodeStart = node.getTiming().getStartTime();
-        Long nodeEnd = node.getTiming().getEndTime();
-        
-        return !(endTime <= nodeStart || startTime >= nodeEnd);
-    }
-    
     private boolean isOperationSafeToApply(NormalizedItinerary itinerary, ChangeOperation operation) {
         // Simple safety check
         if (operation.getId() != null) {
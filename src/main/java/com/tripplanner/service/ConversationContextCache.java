@@ -0,0 +1,291 @@
+package com.tripplanner.service;
+
+import com.tripplanner.dto.ChatHistoryPage;
+import com.tripplanner.dto.NormalizedDay;
+import com.tripplanner.dto.NormalizedItinerary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Per-itinerary conversational context: the newest chat messages and a summary of the itinerary,
+ * tagged with the version it was built from.
+ *
+ * The message tail serves both the latest page of chat history and the recent messages of LLM
+ * prompts without a query. ChatHistoryService fills it from one query and then keeps it current
+ * as messages are saved or cleared; a tail knows whether it holds the whole conversation, so pages
+ * cut from it report correctly whether older messages exist. The summary is loaded on the first
+ * chat message and re-summarized by ItineraryJsonService whenever the itinerary is written (which
+ * covers ChangeEngine applies). Entries expire after a TTL so writes made by other instances are
+ * picked up eventually.
+ */
+@Service
+public class ConversationContextCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConversationContextCache.class);
+
+    private static final int MAX_CACHED_ITINERARIES = 512;
+
+    private final int tailSize;
+    private final long ttlMillis;
+
+    // Least recently used itineraries are dropped first
+    private final Map<String, Entry> entries = Collections.synchronizedMap(
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                    return size() > MAX_CACHED_ITINERARIES;
+                }
+            });
+
+    public ConversationContextCache(@Value("${chat.history.tail-size:50}") int tailSize,
+                                    @Value("${chat.context-cache.ttl-seconds:300}") long ttlSeconds) {
+        this.tailSize = Math.max(1, tailSize);
+        this.ttlMillis = ttlSeconds * 1000;
+    }
+
+    /**
+     * Number of newest messages kept per itinerary.
+     */
+    public int getTailSize() {
+        return tailSize;
+    }
+
+    /**
+     * Summary of the itinerary for LLM context. The loader is only called when no fresh summary is
+     * cached.
+     *
+     * @return the summary, or null if the loader finds no itinerary
+     */
+    public String getItinerarySummary(String itineraryId, Supplier<Optional<NormalizedItinerary>> loader) {
+        Entry entry = entryFor(itineraryId);
+        long generation;
+        synchronized (entry) {
+            if (entry.summary != null && isFresh(entry.summaryLoadedAt)) {
+                return entry.summary;
+            }
+            generation = entry.summaryGeneration;
+        }
+
+        Optional<NormalizedItinerary> itinerary = loader.get();
+        if (itinerary.isEmpty()) {
+            return null;
+        }
+        String summary = summarize(itinerary.get());
+
+        synchronized (entry) {
+            // A write that landed while loading already installed a newer summary
+            if (entry.summaryGeneration == generation) {
+                entry.setSummary(summary, itinerary.get().getVersion());
+            }
+        }
+        logger.debug("Loaded conversation summary for itinerary {} at version {}",
+                    itineraryId, itinerary.get().getVersion());
+        return summary;
+    }
+
+    /**
+     * The newest {@code limit} messages, oldest first, or null if they are not cached.
+     */
+    public ChatHistoryPage getLatestPage(String itineraryId, int limit) {
+        Entry entry = entries.get(itineraryId);
+        if (entry == null || limit > tailSize) {
+            return null;
+        }
+        synchronized (entry) {
+            if (entry.tail == null || !isFresh(entry.tailLoadedAt)) {
+                return null;
+            }
+            int skip = Math.max(0, entry.tail.size() - limit);
+            List<Map<String, Object>> page = new ArrayList<>(entry.tail.size() - skip);
+            Iterator<Map<String, Object>> it = entry.tail.iterator();
+            for (int i = 0; it.hasNext(); i++) {
+                Map<String, Object> message = it.next();
+                if (i >= skip) {
+                    page.add(new HashMap<>(message));
+                }
+            }
+            return toPage(page, skip > 0 || !entry.tailComplete);
+        }
+    }
+
+    /**
+     * Start loading a message tail from storage. Pass the returned generation to
+     * {@link #installTail}.
+     */
+    public long beginTailLoad(String itineraryId) {
+        Entry entry = entryFor(itineraryId);
+        synchronized (entry) {
+            return entry.chatGeneration;
+        }
+    }
+
+    /**
+     * Install a loaded message tail, unless a message was saved or the history cleared since the
+     * load began.
+     *
+     * @param newestMessages up to {@link #getTailSize()} newest messages, oldest first
+     * @param complete whether these are all messages of the conversation
+     */
+    public void installTail(String itineraryId, long generation, List<Map<String, Object>> newestMessages,
+                            boolean complete) {
+        Entry entry = entries.get(itineraryId);
+        if (entry == null) {
+            return;
+        }
+        synchronized (entry) {
+            if (entry.chatGeneration != generation) {
+                return;
+            }
+            Deque<Map<String, Object>> tail = new ArrayDeque<>(tailSize);
+            int skip = Math.max(0, newestMessages.size() - tailSize);
+            for (int i = skip; i < newestMessages.size(); i++) {
+                tail.addLast(new HashMap<>(newestMessages.get(i)));
+            }
+            entry.setTail(tail, complete && skip == 0);
+        }
+    }
+
+    /**
+     * Append a saved chat message to the itinerary's tail, if one is cached.
+     */
+    public void onMessageSaved(String itineraryId, Map<String, Object> message) {
+        Entry entry = entries.get(itineraryId);
+        if (entry == null) {
+            return;
+        }
+        synchronized (entry) {
+            entry.chatGeneration++;
+            if (entry.tail != null) {
+                entry.tail.addLast(new HashMap<>(message));
+                if (entry.tail.size() > tailSize) {
+                    entry.tail.removeFirst();
+                    entry.tailComplete = false;
+                }
+            }
+        }
+    }
+
+    /**
+     * Empty the itinerary's tail after its chat history was cleared.
+     */
+    public void onChatCleared(String itineraryId) {
+        Entry entry = entries.get(itineraryId);
+        if (entry == null) {
+            return;
+        }
+        synchronized (entry) {
+            entry.chatGeneration++;
+            entry.setTail(new ArrayDeque<>(tailSize), true);
+        }
+    }
+
+    /**
+     * Re-summarize an itinerary that was just written, if it is cached.
+     */
+    public void onItineraryChanged(NormalizedItinerary itinerary) {
+        if (itinerary == null || itinerary.getItineraryId() == null) {
+            return;
+        }
+        Entry entry = entries.get(itinerary.getItineraryId());
+        if (entry == null) {
+            return;
+        }
+        String summary;
+        try {
+            summary = summarize(itinerary);
+        } catch (RuntimeException e) {
+            logger.warn("Could not summarize itinerary {}, dropping cached context: {}",
+                       itinerary.getItineraryId(), e.getMessage());
+            invalidate(itinerary.getItineraryId());
+            return;
+        }
+        synchronized (entry) {
+            logger.debug("Refreshing conversation summary for itinerary {} from version {} to {}",
+                        itinerary.getItineraryId(), entry.summaryVersion, itinerary.getVersion());
+            entry.summaryGeneration++;
+            entry.setSummary(summary, itinerary.getVersion());
+        }
+    }
+
+    /**
+     * Drop everything cached for an itinerary.
+     */
+    public void invalidate(String itineraryId) {
+        entries.remove(itineraryId);
+    }
+
+    /**
+     * Concise itinerary summary for LLM classification.
+     */
+    static String summarize(NormalizedItinerary itinerary) {
+        List<NormalizedDay> days = itinerary.getDays() != null ? itinerary.getDays() : List.of();
+
+        StringBuilder context = new StringBuilder();
+        context.append("Itinerary: ").append(itinerary.getSummary()).append("\n");
+        context.append("Days: ").append(days.size()).append("\n");
+        context.append("Currency: ").append(itinerary.getCurrency()).append("\n");
+
+        // Add day summaries
+        for (NormalizedDay day : days) {
+            context.append("Day ").append(day.getDayNumber())
+                   .append(" (").append(day.getLocation()).append("): ");
+            context.append(day.getNodes() != null ? day.getNodes().size() : 0).append(" activities\n");
+        }
+
+        return context.toString();
+    }
+
+    /**
+     * Page over messages ordered oldest first, with the cursor pointing at its oldest message.
+     */
+    static ChatHistoryPage toPage(List<Map<String, Object>> messages, boolean hasMore) {
+        String nextCursor = hasMore && !messages.isEmpty() ? (String) messages.get(0).get("id") : null;
+        return new ChatHistoryPage(messages, nextCursor, hasMore);
+    }
+
+    private Entry entryFor(String itineraryId) {
+        return entries.computeIfAbsent(itineraryId, id -> new Entry());
+    }
+
+    private boolean isFresh(long loadedAt) {
+        return System.currentTimeMillis() - loadedAt < ttlMillis;
+    }
+
+    private static class Entry {
+        private String summary;
+        private Integer summaryVersion;
+        private long summaryLoadedAt;
+        private long summaryGeneration;
+
+        private Deque<Map<String, Object>> tail;
+        private boolean tailComplete;
+        private long tailLoadedAt;
+        private long chatGeneration;
+
+        private void setSummary(String summary, Integer version) {
+            this.summary = summary;
+            this.summaryVersion = version;
+            this.summaryLoadedAt = System.currentTimeMillis();
+        }
+
+        private void setTail(Deque<Map<String, Object>> tail, boolean complete) {
+            this.tail = tail;
+            this.tailComplete = complete;
+            this.tailLoadedAt = System.currentTimeMillis();
+        }
+    }
+}
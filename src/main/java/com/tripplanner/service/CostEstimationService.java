@@ -0,0 +1,22 @@
+package com.tripplanner.service;
+
+import com.tripplanner.dto.NormalizedItinerary;
+
+import java.util.Collection;
+
+/**
+ * Cost estimates for edited itineraries.
+ * Implemented by the cost estimator agent, which also runs the generation pipeline's cost phase.
+ */
+public interface CostEstimationService {
+
+    /**
+     * Give the listed nodes a cost estimate if they have none and recompute the totals of the
+     * listed days, in memory only so the caller can save them with the edit itself. Other days
+     * are not read.
+     *
+     * @param dayNumbers Days touched by the edit, including days nodes were removed from
+     * @return The number of nodes that were given a cost
+     */
+    int estimateChangedNodes(NormalizedItinerary itinerary, Collection<String> nodeIds, Collection<Integer> dayNumbers);
+}
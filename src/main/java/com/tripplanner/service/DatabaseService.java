@@ -4,11 +4,12 @@ import com.tripplanner.data.entity.FirestoreItinerary;
 
 import java.time.Instant;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
  * Abstraction over the persistence layer for itineraries.
- * This implementation is expected to be backed by Firestore.
+ * Backed by Firestore by default, or by the embedded local store with database.backend=local.
  */
 public interface DatabaseService {
 
@@ -22,6 +23,12 @@ public interface DatabaseService {
 
     List<FirestoreItinerary> findByUpdatedAtAfter(Instant timestamp);
 
+    /**
+     * Up to limit itineraries ordered by updatedAt descending, ties broken by ID, starting after
+     * the itinerary with the given updatedAt and ID (both null for the first page).
+     */
+    List<FirestoreItinerary> findPageOrderByUpdatedAtDesc(Instant afterUpdatedAt, String afterId, int limit);
+
     void deleteById(String id);
 
     void saveRevision(String itineraryId, FirestoreItinerary revision);
@@ -29,6 +36,24 @@ public interface DatabaseService {
     Optional<FirestoreItinerary> findRevisionByItineraryIdAndVersion(String itineraryId, Integer version);
 
     String getDatabaseType();
-}
-
 
+    /**
+     * Save a document with JSON content at a path of the form collection/document[/subcollection/document].
+     */
+    void saveDocument(String path, String json);
+
+    /**
+     * Get a single document, or empty optional if not found.
+     */
+    Optional<Map<String, Object>> getDocument(String path);
+
+    /**
+     * Get the documents of a collection path ordered by updatedAt descending.
+     */
+    List<Map<String, Object>> getDocuments(String path);
+
+    /**
+     * Delete a document. Deleting a missing document is not an error.
+     */
+    void deleteDocument(String path);
+}
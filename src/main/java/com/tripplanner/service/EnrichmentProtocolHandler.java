@@ -1,23 +1,33 @@
 package com.tripplanner.service;
 
 import com.tripplanner.dto.*;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * Handles the standardized ENRICHMENT request/response protocol.
  * Manages request processing, caching, and response coordination.
+ * 
+ * Place lookups for all nodes of a day or itinerary are deduplicated by place ID or search
+ * query before any upstream call, and the unique lookups are fanned out concurrently.
  */
 @Service
 public class EnrichmentProtocolHandler {
     
     private static final Logger logger = LoggerFactory.getLogger(EnrichmentProtocolHandler.class);
     
+    // Upper bound on concurrent batched place lookups, to keep Places API bursts in check
+    private static final int MAX_CONCURRENT_LOOKUPS = 8;
+    
     private final PlaceEnrichmentService placeEnrichmentService;
     private final GooglePlacesService googlePlacesService;
     private final PlaceRegistry placeRegistry;
@@ -26,6 +36,14 @@ public class EnrichmentProtocolHandler {
     // Request tracking for monitoring
     private final Map<String, EnrichmentRequest> activeRequests = new ConcurrentHashMap<>();
     
+    // Executor for batched upstream lookups
+    private final ExecutorService lookupExecutor = Executors.newFixedThreadPool(MAX_CONCURRENT_LOOKUPS, r -> {
+        Thread t = new Thread(r);
+        t.setName("Enrichment-Lookup-" + t.getId());
+        t.setDaemon(true);
+        return t;
+    });
+    
     public EnrichmentProtocolHandler(PlaceEnrichmentService placeEnrichmentService,
                                    GooglePlacesService googlePlacesService,
                                    PlaceRegistry placeRegistry,
@@ -36,6 +54,11 @@ public class EnrichmentProtocolHandler {
         this.idempotencyManager = idempotencyManager;
     }
     
+    @PreDestroy
+    void shutdown() {
+        lookupExecutor.shutdown();
+    }
+    
     /**
      * Process an ENRICHMENT request asynchronously.
      * 
@@ -111,6 +134,37 @@ public class EnrichmentProtocolHandler {
         }
     }
     
+    /**
+     * Fetch place details for a set of place IDs, one concurrent lookup per unique ID.
+     * Place IDs whose lookup failed are absent from the result; a lookup that found
+     * nothing maps to null.
+     */
+    public Map<String, PlaceDetails> fetchPlaceDetails(Collection<String> placeIds) {
+        Map<String, CompletableFuture<PlaceDetails>> lookups = new LinkedHashMap<>();
+        for (String placeId : placeIds) {
+            if (placeId != null && !placeId.trim().isEmpty()) {
+                lookups.computeIfAbsent(placeId, id ->
+                    CompletableFuture.supplyAsync(() -> googlePlacesService.getPlaceDetails(id), lookupExecutor));
+            }
+        }
+        return collectLookups(lookups, "place details");
+    }
+    
+    /**
+     * Search places for a set of queries in one destination, one concurrent lookup per unique query.
+     * Queries whose lookup failed are absent from the result; a search that found nothing maps to null.
+     */
+    public Map<String, PlaceSearchResult> searchPlaces(Collection<String> queries, String destination) {
+        Map<String, CompletableFuture<PlaceSearchResult>> lookups = new LinkedHashMap<>();
+        for (String query : queries) {
+            if (query != null && !query.trim().isEmpty()) {
+                lookups.computeIfAbsent(query, q ->
+                    CompletableFuture.supplyAsync(() -> googlePlacesService.searchPlace(q, destination), lookupExecutor));
+            }
+        }
+        return collectLookups(lookups, "place search");
+    }
+    
     /**
      * Get cached response if available and valid.
      */
@@ -410,6 +464,36 @@ public class EnrichmentProtocolHandler {
         return location instanceof NodeLocation ? (NodeLocation) location : null;
     }
     
+    /**
+     * Wait for a shared lookup, rethrowing its failure as if the call had been made directly.
+     */
+    private <T> T awaitLookup(CompletableFuture<T> lookup) {
+        try {
+            return lookup.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+    
+    /**
+     * Wait for all lookups and collect their results, skipping (and logging) failed ones.
+     */
+    private <T> Map<String, T> collectLookups(Map<String, CompletableFuture<T>> lookups, String lookupName) {
+        Map<String, T> results = new HashMap<>();
+        for (Map.Entry<String, CompletableFuture<T>> entry : lookups.entrySet()) {
+            try {
+                results.put(entry.getKey(), awaitLookup(entry.getValue()));
+            } catch (Exception e) {
+                logger.warn("Batched {} lookup failed for '{}': {}", lookupName, entry.getKey(), e.getMessage());
+            }
+        }
+        logger.debug("Batched {} lookups: {} unique, {} succeeded", lookupName, lookups.size(), results.size());
+        return results;
+    }
+    
     /**
      * Cache ENRICHMENT response.
      */
@@ -7,7 +7,9 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
@@ -38,7 +40,7 @@ public class EnrichmentService {
      * Enrich specific nodes asynchronously.
      * This method returns immediately and enrichment happens in the background.
      */
-    @Async
+    @Async("enrichmentExecutor")
     public void enrichNodesAsync(String itineraryId, List<String> nodeIds) {
         if (!autoEnrichEnabled) {
             logger.debug("Auto-enrichment is disabled, skipping enrichment for itinerary {}", itineraryId);
@@ -74,22 +76,20 @@ public class EnrichmentService {
                 nodesToEnrich.size(), nodeIds.size());
             
             // Enrich each node directly using GooglePlacesService
-            boolean hasChanges = false;
+            Map<String, NodeLocation> enrichedLocations = new LinkedHashMap<>();
             for (NormalizedNode node : nodesToEnrich) {
                 try {
                     if (enrichNode(node, destination)) {
                         enrichedCount++;
-                        hasChanges = true;
+                        enrichedLocations.put(node.getId(), node.getLocation());
                     }
                 } catch (Exception e) {
                     logger.warn("Failed to enrich node {}: {}", node.getId(), e.getMessage());
                 }
             }
             
-            // Save the enriched itinerary if there were changes
-            if (hasChanges) {
-                itineraryJsonService.updateItinerary(itinerary);
-            }
+            // Write only the enriched locations, so edits made during the lookups are kept
+            itineraryJsonService.updateNodeLocations(itineraryId, enrichedLocations);
             
             long duration = System.currentTimeMillis() - startTime;
             logger.info("Successfully enriched {} out of {} nodes in itinerary {} (took {}ms)", 
@@ -107,7 +107,7 @@ public class EnrichmentService {
      * Enrich entire itinerary asynchronously.
      * Useful for bulk enrichment operations.
      */
-    @Async
+    @Async("enrichmentExecutor")
     public void enrichItineraryAsync(String itineraryId) {
         if (!autoEnrichEnabled) {
             logger.debug("Auto-enrichment is disabled, skipping enrichment for itinerary {}", itineraryId);
@@ -146,22 +146,19 @@ public class EnrichmentService {
             
             logger.info("Enriching {} nodes in itinerary {}", nodesToEnrich.size(), itineraryId);
             
-            boolean hasChanges = false;
+            Map<String, NodeLocation> enrichedLocations = new LinkedHashMap<>();
             for (NormalizedNode node : nodesToEnrich) {
                 try {
                     if (enrichNode(node, destination)) {
                         enrichedCount++;
-                        hasChanges = true;
+                        enrichedLocations.put(node.getId(), node.getLocation());
                     }
                 } catch (Exception e) {
                     logger.warn("Failed to enrich node {}: {}", node.getId(), e.getMessage());
                 }
             }
             
-            // Save the enriched itinerary if there were changes
-            if (hasChanges) {
-                itineraryJsonService.updateItinerary(itinerary);
-            }
+            itineraryJsonService.updateNodeLocations(itineraryId, enrichedLocations);
             
             long duration = System.currentTimeMillis() - startTime;
             logger.info("Successfully enriched {} out of {} nodes in entire itinerary {} (took {}ms)", 
@@ -213,11 +210,7 @@ public class EnrichmentService {
      * Find a node by ID across all days.
      */
     private NormalizedNode findNodeById(NormalizedItinerary itinerary, String nodeId) {
-        return itinerary.getDays().stream()
-                .flatMap(day -> day.getNodes().stream())
-                .filter(node -> node.getId() != null && node.getId().equals(nodeId))
-                .findFirst()
-                .orElse(null);
+        return itinerary.getNodeIndex().getNode(nodeId);
     }
     
     /**
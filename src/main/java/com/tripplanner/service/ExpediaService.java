@@ -4,12 +4,14 @@ import com.tripplanner.dto.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.HttpServerErrorException;
 
+import java.time.Duration;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -24,7 +26,16 @@ import java.util.stream.Collectors;
 public class ExpediaService {
     
     private static final Logger logger = LoggerFactory.getLogger(ExpediaService.class);
-    private static final String BASE_URL = "https://rapidapi.com/apidojo/api/expedia";
+    
+    // Result orders, shared with callers that merge results from several searches. Missing prices,
+    // durations and ratings sort last so the orders stay transitive.
+    public static final Comparator<Flight> FLIGHT_ORDER = Comparator
+            .comparing(Flight::getPrice, Comparator.nullsLast(Comparator.<Double>naturalOrder()))
+            .thenComparing(Flight::getDuration, Comparator.nullsLast(Comparator.<Integer>naturalOrder()))
+            .thenComparing(flight -> !flight.isDirect());
+    public static final Comparator<Activity> ACTIVITY_ORDER = Comparator
+            .comparing(Activity::getRating, Comparator.nullsLast(Comparator.<Double>reverseOrder()))
+            .thenComparing(Activity::getPrice, Comparator.nullsLast(Comparator.<Double>naturalOrder()));
     
     // Rate limiting tracking (1000 requests/day)
     private final AtomicInteger dailyRequestCount = new AtomicInteger(0);
@@ -40,10 +51,30 @@ public class ExpediaService {
     @Value("${expedia.timeout:30000}")
     private int timeoutMs;
     
+    @Value("${expedia.base-url:https://rapidapi.com/apidojo/api/expedia}")
+    private String baseUrl;
+    
     private final RestTemplate restTemplate;
     
-    public ExpediaService(RestTemplate restTemplate) {
+    // Searches time out at the booking search deadline, after which their results are not used
+    private final RestTemplate searchRestTemplate;
+    private final long searchTimeoutMs;
+    
+    public ExpediaService(RestTemplate restTemplate, RestTemplateBuilder restTemplateBuilder,
+                          @Value("${expedia.search-timeout-ms:10000}") long searchTimeoutMs) {
         this.restTemplate = restTemplate;
+        this.searchTimeoutMs = searchTimeoutMs;
+        this.searchRestTemplate = restTemplateBuilder
+                .connectTimeout(Duration.ofMillis(searchTimeoutMs))
+                .readTimeout(Duration.ofMillis(searchTimeoutMs))
+                .build();
+    }
+    
+    /**
+     * How long a flight or activity search may take before its results are left out.
+     */
+    public long getSearchTimeoutMs() {
+        return searchTimeoutMs;
     }
     
     /**
@@ -66,7 +97,7 @@ public class ExpediaService {
             Map<String, String> searchParams = buildFlightSearchParams(request);
             
             // Make GET request to flights endpoint
-            String url = BASE_URL + "/flights/search";
+            String url = baseUrl + "/flights/search";
             HttpHeaders headers = createHeaders();
             
             // Add query parameters to URL
@@ -78,7 +109,7 @@ public class ExpediaService {
             String finalUrl = urlBuilder.toString().replaceAll("&$", "");
             
             HttpEntity<String> entity = new HttpEntity<>(headers);
-            ResponseEntity<FlightSearchResponse> response = restTemplate.exchange(
+            ResponseEntity<FlightSearchResponse> response = searchRestTemplate.exchange(
                 finalUrl, HttpMethod.GET, entity, FlightSearchResponse.class);
             
             incrementRequestCount();
@@ -134,7 +165,7 @@ public class ExpediaService {
             Map<String, Object> searchParams = buildActivitySearchParams(request);
             
             // Make GET request to activities endpoint
-            String url = BASE_URL + "/activities/search";
+            String url = baseUrl + "/activities/search";
             HttpHeaders headers = createHeaders();
             
             // Add query parameters to URL
@@ -146,7 +177,7 @@ public class ExpediaService {
             String finalUrl = urlBuilder.toString().replaceAll("&$", "");
             
             HttpEntity<String> entity = new HttpEntity<>(headers);
-            ResponseEntity<ActivitySearchResponse> response = restTemplate.exchange(
+            ResponseEntity<ActivitySearchResponse> response = searchRestTemplate.exchange(
                 finalUrl, HttpMethod.GET, entity, ActivitySearchResponse.class);
             
             incrementRequestCount();
@@ -192,29 +223,7 @@ public class ExpediaService {
         }
         
         return flights.stream()
-            .sorted((f1, f2) -> {
-                // Primary sort: price (ascending)
-                if (f1.getPrice() != null && f2.getPrice() != null) {
-                    int priceComparison = Double.compare(f1.getPrice(), f2.getPrice());
-                    if (priceComparison != 0) {
-                        return priceComparison;
-                    }
-                }
-                
-                // Secondary sort: duration (ascending)
-                if (f1.getDuration() != null && f2.getDuration() != null) {
-                    return Integer.compare(f1.getDuration(), f2.getDuration());
-                }
-                
-                // Tertiary sort: direct flights first
-                if (f1.isDirect() && !f2.isDirect()) {
-                    return -1;
-                } else if (!f1.isDirect() && f2.isDirect()) {
-                    return 1;
-                }
-                
-                return 0;
-            })
+            .sorted(FLIGHT_ORDER)
             .collect(Collectors.toList());
     }
     
@@ -227,22 +236,7 @@ public class ExpediaService {
         }
         
         return activities.stream()
-            .sorted((a1, a2) -> {
-                // Primary sort: rating (descending)
-                if (a1.getRating() != null && a2.getRating() != null) {
-                    int ratingComparison = Double.compare(a2.getRating(), a1.getRating());
-                    if (ratingComparison != 0) {
-                        return ratingComparison;
-                    }
-                }
-                
-                // Secondary sort: price (ascending)
-                if (a1.getPrice() != null && a2.getPrice() != null) {
-                    return Double.compare(a1.getPrice(), a2.getPrice());
-                }
-                
-                return 0;
-            })
+            .sorted(ACTIVITY_ORDER)
             .collect(Collectors.toList());
     }
     
@@ -377,7 +371,7 @@ public class ExpediaService {
             Map<String, Object> bookingParams = buildFlightBookingParams(flight, payment);
             
             // Make POST request to bookings endpoint
-            String url = BASE_URL + "/flights/bookings";
+            String url = baseUrl + "/flights/bookings";
             HttpHeaders headers = createHeaders();
             HttpEntity<Map<String, Object>> entity = new HttpEntity<>(bookingParams, headers);
             
@@ -0,0 +1,120 @@
+package com.tripplanner.service;
+
+import com.google.cloud.firestore.CollectionReference;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.FieldPath;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.Query;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import com.google.cloud.firestore.WriteBatch;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Chat history stored in Firestore subcollections.
+ */
+@Service
+@ConditionalOnProperty(name = "database.backend", havingValue = "firestore", matchIfMissing = true)
+public class FirestoreChatHistoryService extends ChatHistoryService {
+
+    private static final int BATCH_SIZE = 500;
+
+    private final Firestore firestore;
+
+    public FirestoreChatHistoryService(Firestore firestore,
+                                       ConversationContextCache conversationContextCache) {
+        super(conversationContextCache);
+        this.firestore = firestore;
+    }
+
+    @Override
+    protected List<Map<String, Object>> loadMessages(String itineraryId) throws InterruptedException, ExecutionException {
+        var snapshot = messages(itineraryId)
+                .orderBy("timestamp", Query.Direction.ASCENDING)
+                .get()
+                .get();
+
+        List<Map<String, Object>> chatHistory = new ArrayList<>();
+        for (QueryDocumentSnapshot doc : snapshot.getDocuments()) {
+            chatHistory.add(toMessage(doc));
+        }
+        return chatHistory;
+    }
+
+    @Override
+    protected List<Map<String, Object>> loadNewestMessages(String itineraryId, int limit, String before)
+            throws InterruptedException, ExecutionException {
+        CollectionReference messages = messages(itineraryId);
+
+        Query query = messages
+                .orderBy("timestamp", Query.Direction.DESCENDING)
+                .orderBy(FieldPath.documentId(), Query.Direction.DESCENDING)
+                .limit(limit);
+        if (before != null) {
+            DocumentSnapshot cursor = messages.document(before).get().get();
+            if (!cursor.exists()) {
+                throw new IllegalArgumentException("Unknown chat history cursor: " + before);
+            }
+            query = query.startAfter(cursor);
+        }
+
+        List<Map<String, Object>> newest = new ArrayList<>();
+        for (QueryDocumentSnapshot doc : query.get().get().getDocuments()) {
+            newest.add(toMessage(doc));
+        }
+        return newest;
+    }
+
+    @Override
+    protected String insertMessage(String itineraryId, Map<String, Object> message)
+            throws InterruptedException, ExecutionException {
+        DocumentReference docRef = messages(itineraryId).document();
+        docRef.set(message).get();
+        return docRef.getId();
+    }
+
+    @Override
+    protected int deleteMessages(String itineraryId) throws InterruptedException, ExecutionException {
+        var snapshot = messages(itineraryId).get().get();
+
+        // Delete in batches
+        WriteBatch batch = firestore.batch();
+        int count = 0;
+        for (QueryDocumentSnapshot doc : snapshot.getDocuments()) {
+            batch.delete(doc.getReference());
+            count++;
+
+            // Firestore batch limit is 500 operations
+            if (count % BATCH_SIZE == 0) {
+                batch.commit().get();
+                batch = firestore.batch();
+            }
+        }
+
+        // Commit remaining deletions
+        if (count % BATCH_SIZE != 0) {
+            batch.commit().get();
+        }
+        return count;
+    }
+
+    private CollectionReference messages(String itineraryId) {
+        return firestore
+                .collection(COLLECTION_ITINERARIES)
+                .document(itineraryId)
+                .collection(SUBCOLLECTION_CHAT_MESSAGES);
+    }
+
+    private static Map<String, Object> toMessage(QueryDocumentSnapshot doc) {
+        // getData() already returns a fresh map
+        Map<String, Object> message = doc.getData();
+        message.put("id", doc.getId());
+        return message;
+    }
+}
@@ -12,6 +12,7 @@ import java.util.*;
 import java.util.concurrent.ExecutionException;
 
 @Service
+@ConditionalOnProperty(name = "database.backend", havingValue = "firestore", matchIfMissing = true)
 public class FirestoreDatabaseService implements DatabaseService {
 
     private static final String COLLECTION_ITINERARIES = "itineraries";
@@ -78,6 +79,29 @@ public class FirestoreDatabaseService implements DatabaseService {
         }
     }
 
+    @Override
+    public List<FirestoreItinerary> findPageOrderByUpdatedAtDesc(Instant afterUpdatedAt, String afterId, int limit) {
+        try {
+            Query query = firestore.collection(COLLECTION_ITINERARIES)
+                    .orderBy("updatedAt", Query.Direction.DESCENDING)
+                    .orderBy(FieldPath.documentId())
+                    .limit(limit);
+            if (afterUpdatedAt != null) {
+                query = query.startAfter(
+                        Timestamp.ofTimeSecondsAndNanos(afterUpdatedAt.getEpochSecond(), afterUpdatedAt.getNano()),
+                        afterId);
+            }
+            List<FirestoreItinerary> result = new ArrayList<>();
+            for (DocumentSnapshot doc : query.get().get().getDocuments()) {
+                result.add(fromSnapshot(doc));
+            }
+            return result;
+        } catch (InterruptedException | ExecutionException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Failed to list itineraries", e);
+        }
+    }
+
     @Override
     public List<FirestoreItinerary> findByUpdatedAtAfter(Instant timestamp) {
         try {
@@ -162,6 +186,7 @@ public class FirestoreDatabaseService implements DatabaseService {
      * Save a document at the specified path with JSON content.
      * Supports flexible document storage for revision support.
      */
+    @Override
     public void saveDocument(String path, String json) {
         try {
             // Parse the path to get collection and document references
@@ -191,6 +216,7 @@ public class FirestoreDatabaseService implements DatabaseService {
      * Get documents from a collection path.
      * Returns a list of document data as maps.
      */
+    @Override
     public List<Map<String, Object>> getDocuments(String path) {
         try {
             // Parse the path to get collection reference
@@ -229,6 +255,7 @@ public class FirestoreDatabaseService implements DatabaseService {
      * Get a single document from the specified path.
      * Returns the document data as a map, or empty optional if not found.
      */
+    @Override
     public Optional<Map<String, Object>> getDocument(String path) {
         try {
             // Parse the path to get document reference
@@ -261,6 +288,25 @@ public class FirestoreDatabaseService implements DatabaseService {
         }
     }
 
+    /**
+     * Delete the document at the specified path.
+     */
+    @Override
+    public void deleteDocument(String path) {
+        try {
+            String[] pathParts = path.split("/");
+            if (pathParts.length < 2 || pathParts.length % 2 != 0) {
+                throw new IllegalArgumentException("Invalid document path format. Expected: collection/document or collection/document/subcollection/subdocument");
+            }
+
+            buildDocumentReference(pathParts).delete().get();
+
+        } catch (InterruptedException | ExecutionException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Failed to delete document at path: " + path, e);
+        }
+    }
+
     /**
      * Build a DocumentReference from path parts.
      */
@@ -0,0 +1,67 @@
+package com.tripplanner.service;
+
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Idempotency records stored in the Firestore idempotencyKeys collection.
+ */
+@Service
+@ConditionalOnProperty(name = "database.backend", havingValue = "firestore", matchIfMissing = true)
+public class FirestoreIdempotencyManager extends IdempotencyManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(FirestoreIdempotencyManager.class);
+
+    private final Firestore firestore;
+
+    public FirestoreIdempotencyManager(Firestore firestore) {
+        this.firestore = firestore;
+    }
+
+    @Override
+    protected Optional<IdempotencyRecord> loadRecord(String idempotencyKey) throws InterruptedException, ExecutionException {
+        DocumentSnapshot snapshot = firestore.collection(IDEMPOTENCY_COLLECTION)
+                .document(idempotencyKey)
+                .get()
+                .get();
+        return snapshot.exists() ? Optional.ofNullable(snapshot.toObject(IdempotencyRecord.class)) : Optional.empty();
+    }
+
+    @Override
+    protected void storeRecord(IdempotencyRecord record) throws InterruptedException, ExecutionException {
+        firestore.collection(IDEMPOTENCY_COLLECTION)
+                .document(record.getIdempotencyKey())
+                .set(record)
+                .get();
+    }
+
+    @Override
+    protected void deleteRecord(String idempotencyKey) {
+        firestore.collection(IDEMPOTENCY_COLLECTION).document(idempotencyKey).delete();
+    }
+
+    @Override
+    protected void removeRecordsExpiredBefore(Instant time) throws InterruptedException, ExecutionException {
+        for (QueryDocumentSnapshot doc : firestore.collection(IDEMPOTENCY_COLLECTION)
+                .whereLessThan("expiresAt", time)
+                .get()
+                .get()
+                .getDocuments()) {
+            try {
+                doc.getReference().delete().get();
+                logger.debug("Cleaned up expired idempotency record: {}", doc.getId());
+            } catch (InterruptedException | ExecutionException e) {
+                logger.warn("Failed to delete expired idempotency record: {}", doc.getId(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.tripplanner.service;
+
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.Query;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Locks stored in the Firestore node_locks collection.
+ */
+@Service
+@ConditionalOnProperty(name = "database.backend", havingValue = "firestore", matchIfMissing = true)
+public class FirestoreLockManager extends LockManager {
+
+    private final Firestore firestore;
+
+    public FirestoreLockManager(Firestore firestore) {
+        this.firestore = firestore;
+    }
+
+    @Override
+    protected void storeLock(NodeLock lock) throws ExecutionException, InterruptedException {
+        firestore.collection(LOCKS_COLLECTION)
+                .document(lock.getNodeId())
+                .set(lock)
+                .get();
+    }
+
+    @Override
+    protected Optional<NodeLock> loadLock(String nodeId) throws ExecutionException, InterruptedException {
+        DocumentSnapshot doc = firestore.collection(LOCKS_COLLECTION)
+                .document(nodeId)
+                .get()
+                .get();
+        return doc.exists() ? Optional.ofNullable(doc.toObject(NodeLock.class)) : Optional.empty();
+    }
+
+    @Override
+    protected void removeLock(String nodeId) throws ExecutionException, InterruptedException {
+        firestore.collection(LOCKS_COLLECTION)
+                .document(nodeId)
+                .delete()
+                .get();
+    }
+
+    @Override
+    protected List<NodeLock> loadLocksByOwner(String ownerId) throws ExecutionException, InterruptedException {
+        return toLocks(firestore.collection(LOCKS_COLLECTION).whereEqualTo("ownerId", ownerId));
+    }
+
+    @Override
+    protected List<NodeLock> loadAllLocks() throws ExecutionException, InterruptedException {
+        return toLocks(firestore.collection(LOCKS_COLLECTION));
+    }
+
+    @Override
+    protected List<String> removeLocksExpiredBefore(long time) throws ExecutionException, InterruptedException {
+        List<String> removed = new ArrayList<>();
+        for (DocumentSnapshot doc : firestore.collection(LOCKS_COLLECTION)
+                .whereLessThan("expiresAt", time)
+                .get()
+                .get()
+                .getDocuments()) {
+            doc.getReference().delete();
+            removed.add(doc.getId());
+        }
+        return removed;
+    }
+
+    private static List<NodeLock> toLocks(Query query) throws ExecutionException, InterruptedException {
+        List<NodeLock> locks = new ArrayList<>();
+        for (DocumentSnapshot doc : query.get().get().getDocuments()) {
+            NodeLock lock = doc.toObject(NodeLock.class);
+            if (lock != null) {
+                locks.add(lock);
+            }
+        }
+        return locks;
+    }
+}
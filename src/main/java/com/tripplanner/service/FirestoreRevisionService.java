@@ -0,0 +1,105 @@
+package com.tripplanner.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.cloud.firestore.CollectionReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.Query;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import com.tripplanner.dto.NormalizedItinerary;
+import com.tripplanner.dto.RevisionRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Revisions stored in Firestore subcollections.
+ */
+@Service
+@ConditionalOnProperty(name = "database.backend", havingValue = "firestore", matchIfMissing = true)
+public class FirestoreRevisionService extends RevisionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(FirestoreRevisionService.class);
+
+    private final Firestore firestore;
+
+    public FirestoreRevisionService(Firestore firestore, ObjectMapper objectMapper) {
+        super(objectMapper);
+        this.firestore = firestore;
+    }
+
+    @Override
+    protected void storeRevision(String itineraryId, RevisionRecord revision)
+            throws InterruptedException, ExecutionException {
+        revisions(itineraryId).document(revision.getRevisionId()).set(revision).get();
+    }
+
+    @Override
+    protected Optional<RevisionRecord> loadRevision(String itineraryId, String revisionId)
+            throws InterruptedException, ExecutionException {
+        DocumentSnapshot document = revisions(itineraryId).document(revisionId).get().get();
+        if (!document.exists()) {
+            return Optional.empty();
+        }
+        RevisionRecord revision = document.toObject(RevisionRecord.class);
+        if (revision == null) {
+            throw new RuntimeException("Failed to deserialize revision: " + revisionId);
+        }
+        return Optional.of(revision);
+    }
+
+    @Override
+    protected List<RevisionRecord> loadRevisions(String itineraryId) throws InterruptedException, ExecutionException {
+        return toRevisions(revisions(itineraryId).orderBy("timestamp", Query.Direction.DESCENDING));
+    }
+
+    @Override
+    protected List<RevisionRecord> loadRevisionsAfter(String itineraryId, Long afterTimestamp)
+            throws InterruptedException, ExecutionException {
+        return toRevisions(revisions(itineraryId)
+                .whereGreaterThan("timestamp", afterTimestamp)
+                .orderBy("timestamp", Query.Direction.ASCENDING));
+    }
+
+    @Override
+    protected Optional<NormalizedItinerary> loadCurrentItinerary(String itineraryId)
+            throws InterruptedException, ExecutionException {
+        DocumentSnapshot currentDoc = firestore.collection(COLLECTION_ITINERARIES).document(itineraryId).get().get();
+        if (!currentDoc.exists()) {
+            return Optional.empty();
+        }
+        NormalizedItinerary currentItinerary = currentDoc.toObject(NormalizedItinerary.class);
+        if (currentItinerary == null) {
+            throw new RuntimeException("Failed to deserialize current itinerary");
+        }
+        return Optional.of(currentItinerary);
+    }
+
+    private CollectionReference revisions(String itineraryId) {
+        return firestore
+                .collection(COLLECTION_ITINERARIES)
+                .document(itineraryId)
+                .collection(SUBCOLLECTION_REVISIONS);
+    }
+
+    private List<RevisionRecord> toRevisions(Query query) throws InterruptedException, ExecutionException {
+        List<RevisionRecord> revisions = new ArrayList<>();
+        for (QueryDocumentSnapshot doc : query.get().get().getDocuments()) {
+            try {
+                RevisionRecord revision = doc.toObject(RevisionRecord.class);
+                if (revision != null) {
+                    revisions.add(revision);
+                }
+            } catch (Exception e) {
+                logger.error("Failed to convert revision document to object: {}", doc.getId(), e);
+            }
+        }
+        return revisions;
+    }
+}
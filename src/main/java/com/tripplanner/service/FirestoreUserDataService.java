@@ -0,0 +1,213 @@
+package com.tripplanner.service;
+
+import com.google.api.gax.rpc.ApiException;
+import com.google.api.gax.rpc.StatusCode;
+import com.google.cloud.firestore.CollectionReference;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.Query;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import com.tripplanner.dto.CanonicalPlace;
+import com.tripplanner.dto.NormalizedItinerary;
+import com.tripplanner.dto.TripMetadata;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * User data stored in Firestore under users/{userId} and canonical_places.
+ */
+@Service
+@ConditionalOnProperty(name = "database.backend", havingValue = "firestore", matchIfMissing = true)
+public class FirestoreUserDataService extends UserDataService {
+
+    private static final Logger logger = LoggerFactory.getLogger(FirestoreUserDataService.class);
+
+    private final Firestore firestore;
+
+    public FirestoreUserDataService(Firestore firestore, TripListCache tripListCache) {
+        super(tripListCache);
+        this.firestore = firestore;
+    }
+
+    @Override
+    protected List<TripMetadata> loadTripMetadata(String userId) throws InterruptedException, ExecutionException {
+        Query query = trips(userId).orderBy("createdAt", Query.Direction.DESCENDING);
+
+        List<TripMetadata> tripMetadata = new ArrayList<>();
+        for (QueryDocumentSnapshot doc : query.get().get().getDocuments()) {
+            try {
+                tripMetadata.add(doc.toObject(TripMetadata.class));
+            } catch (Exception e) {
+                logger.error("Failed to convert document to TripMetadata: {}", doc.getId(), e);
+            }
+        }
+        return tripMetadata;
+    }
+
+    @Override
+    protected List<TripMetadata> loadTripMetadataPage(String userId, String afterItineraryId, int limit)
+            throws InterruptedException, ExecutionException {
+        Query query = trips(userId).orderBy("createdAt", Query.Direction.DESCENDING).limit(limit);
+        if (afterItineraryId != null) {
+            DocumentSnapshot cursor = trips(userId).document(afterItineraryId).get().get();
+            if (!cursor.exists()) {
+                throw new IllegalArgumentException("Unknown itinerary cursor: " + afterItineraryId);
+            }
+            query = query.startAfter(cursor);
+        }
+
+        List<TripMetadata> tripMetadata = new ArrayList<>();
+        for (QueryDocumentSnapshot doc : query.get().get().getDocuments()) {
+            try {
+                tripMetadata.add(doc.toObject(TripMetadata.class));
+            } catch (Exception e) {
+                logger.error("Failed to convert document to TripMetadata: {}", doc.getId(), e);
+            }
+        }
+        return tripMetadata;
+    }
+
+    @Override
+    protected Optional<TripMetadata> loadTripMetadata(String userId, String itineraryId)
+            throws InterruptedException, ExecutionException {
+        DocumentSnapshot document = trips(userId).document(itineraryId).get().get();
+        if (!document.exists()) {
+            return Optional.empty();
+        }
+        TripMetadata tripMetadata = document.toObject(TripMetadata.class);
+        if (tripMetadata == null) {
+            logger.error("Failed to convert trip metadata {} to object", itineraryId);
+            throw new RuntimeException("Failed to deserialize trip metadata");
+        }
+        return Optional.of(tripMetadata);
+    }
+
+    @Override
+    protected boolean tripMetadataExists(String userId, String itineraryId) throws InterruptedException, ExecutionException {
+        return trips(userId).document(itineraryId).get().get().exists();
+    }
+
+    @Override
+    protected void storeTripMetadata(String userId, TripMetadata tripMetadata) throws InterruptedException, ExecutionException {
+        trips(userId).document(tripMetadata.getItineraryId()).set(tripMetadata).get();
+    }
+
+    @Override
+    protected boolean updateTripMetadataFields(String userId, String itineraryId, Map<String, Object> fields)
+            throws InterruptedException, ExecutionException {
+        try {
+            trips(userId).document(itineraryId).update(fields).get();
+            return true;
+        } catch (ExecutionException e) {
+            // Update fails with NOT_FOUND when the metadata does not exist
+            if (e.getCause() instanceof ApiException apiException
+                    && apiException.getStatusCode().getCode() == StatusCode.Code.NOT_FOUND) {
+                return false;
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    protected void removeTripMetadata(String userId, String itineraryId) throws InterruptedException, ExecutionException {
+        trips(userId).document(itineraryId).delete().get();
+    }
+
+    @Override
+    protected List<Object> loadUserChats(String userId, String itineraryId) throws InterruptedException, ExecutionException {
+        return toChatMessages(chats(userId, itineraryId).orderBy("timestamp", Query.Direction.ASCENDING));
+    }
+
+    @Override
+    protected void addUserChat(String userId, String itineraryId, Object chatMessage)
+            throws InterruptedException, ExecutionException {
+        chats(userId, itineraryId).add(chatMessage).get();
+    }
+
+    @Override
+    protected void storeItineraryRevision(String userId, String itineraryId, String revisionId,
+                                          NormalizedItinerary revision) throws InterruptedException, ExecutionException {
+        trips(userId).document(itineraryId)
+                .collection(REVISIONS_SUBCOLLECTION)
+                .document(revisionId)
+                .set(revision)
+                .get();
+    }
+
+    @Override
+    protected boolean itineraryRevisionExists(String userId, String itineraryId, String revisionId)
+            throws InterruptedException, ExecutionException {
+        return trips(userId).document(itineraryId)
+                .collection(REVISIONS_SUBCOLLECTION)
+                .document(revisionId)
+                .get()
+                .get()
+                .exists();
+    }
+
+    @Override
+    protected void storeCanonicalPlace(CanonicalPlace canonicalPlace) throws InterruptedException, ExecutionException {
+        firestore.collection(CANONICAL_PLACES_COLLECTION).document(canonicalPlace.getPlaceId()).set(canonicalPlace).get();
+    }
+
+    @Override
+    protected Optional<CanonicalPlace> loadCanonicalPlace(String placeId) throws InterruptedException, ExecutionException {
+        DocumentSnapshot document = firestore.collection(CANONICAL_PLACES_COLLECTION).document(placeId).get().get();
+        if (!document.exists()) {
+            return Optional.empty();
+        }
+        CanonicalPlace canonicalPlace = document.toObject(CanonicalPlace.class);
+        if (canonicalPlace == null) {
+            logger.error("Failed to convert canonical place {} to object", placeId);
+        }
+        return Optional.ofNullable(canonicalPlace);
+    }
+
+    @Override
+    protected List<CanonicalPlace> loadAllCanonicalPlaces() throws InterruptedException, ExecutionException {
+        List<CanonicalPlace> canonicalPlaces = new ArrayList<>();
+        for (QueryDocumentSnapshot doc : firestore.collection(CANONICAL_PLACES_COLLECTION).get().get().getDocuments()) {
+            try {
+                canonicalPlaces.add(doc.toObject(CanonicalPlace.class));
+            } catch (Exception e) {
+                logger.error("Failed to convert document to CanonicalPlace: {}", doc.getId(), e);
+            }
+        }
+        return canonicalPlaces;
+    }
+
+    @Override
+    protected void removeCanonicalPlace(String placeId) throws InterruptedException, ExecutionException {
+        firestore.collection(CANONICAL_PLACES_COLLECTION).document(placeId).delete().get();
+    }
+
+    private CollectionReference trips(String userId) {
+        return firestore.collection(USERS_COLLECTION).document(userId).collection(ITINERARIES_SUBCOLLECTION);
+    }
+
+    private CollectionReference chats(String userId, String itineraryId) {
+        DocumentReference itineraryDoc = trips(userId).document(itineraryId);
+        return itineraryDoc.collection(CHATS_SUBCOLLECTION);
+    }
+
+    private List<Object> toChatMessages(Query query) throws InterruptedException, ExecutionException {
+        List<Object> chatMessages = new ArrayList<>();
+        for (QueryDocumentSnapshot doc : query.get().get().getDocuments()) {
+            try {
+                chatMessages.add(doc.getData());
+            } catch (Exception e) {
+                logger.error("Failed to convert chat document to object: {}", doc.getId(), e);
+            }
+        }
+        return chatMessages;
+    }
+}
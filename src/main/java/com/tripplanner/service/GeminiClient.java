@@ -2,6 +2,7 @@ package com.tripplanner.service;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
@@ -16,12 +17,11 @@ import java.time.Duration;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.tripplanner.service.ai.AiClient;
 import com.tripplanner.service.ai.CircuitBreaker;
+import com.tripplanner.service.ai.LlmResponseStore;
 import com.tripplanner.service.ai.exception.TransientAiException;
 import com.tripplanner.service.ai.exception.PermanentAiException;
 
@@ -36,6 +36,7 @@ import com.tripplanner.service.ai.exception.PermanentAiException;
 public class GeminiClient implements AiClient {
     
     private static final Logger logger = LoggerFactory.getLogger(GeminiClient.class);
+    private static final String PROVIDER = "gemini";
     private static final String GEMINI_API_BASE_URL = "https://generativelanguage.googleapis.com/v1beta/models/";
     
     // Retry configuration for transient errors (503, 429, etc.)
@@ -58,6 +59,9 @@ public class GeminiClient implements AiClient {
     @Value("${google.ai.mock-mode:false}")
     private boolean mockMode;
     
+    @Autowired(required = false)
+    private LlmResponseStore responseStore;
+    
     private HttpClient httpClient;
     private ObjectMapper objectMapper;
     private CircuitBreaker circuitBreaker;
@@ -94,14 +98,14 @@ public class GeminiClient implements AiClient {
      */
     @Override
     public String generateContent(String userPrompt, String systemPrompt) {
-        return generateContentWithRetry(userPrompt, systemPrompt, 0);
+        return generateContentWithRetry(userPrompt, systemPrompt, 0, responseKey(systemPrompt, userPrompt, null));
     }
     
     /**
      * Generate content with circuit breaker and typed exception handling.
      * Note: Retry logic is now handled by ResilientAiClient based on RetryStrategy.
      */
-    private String generateContentWithRetry(String userPrompt, String systemPrompt, int attemptNumber) {
+    private String generateContentWithRetry(String userPrompt, String systemPrompt, int attemptNumber, String responseKey) {
         // Check circuit breaker before attempting request
         if (!circuitBreaker.allowRequest()) {
             logger.warn("Circuit breaker is OPEN for GeminiClient, throwing TransientAiException");
@@ -132,12 +136,16 @@ public class GeminiClient implements AiClient {
             }
             
             String generatedText;
+            String storedText = mockMode ? getStoredResponse(responseKey) : getDedupResponse(responseKey);
             
             if (mockMode) {
                 logger.info("=== MOCK MODE: Returning cached response ===");
-                generatedText = getMockResponse(userPrompt, systemPrompt);
+                generatedText = storedText != null ? storedText : getMockResponse(userPrompt);
                 logger.info("Mock response length: {}", generatedText.length());
                 circuitBreaker.recordSuccess();
+            } else if (storedText != null) {
+                logger.info("Returning stored response for identical request ({} chars)", storedText.length());
+                generatedText = storedText;
             } else {
                 // Make HTTP request to Gemini API with 150 second timeout
                 String apiUrl = GEMINI_API_BASE_URL + modelName + ":generateContent";
@@ -187,9 +195,6 @@ public class GeminiClient implements AiClient {
                     );
                 }
                 
-                // Save the full response to file for later use
-                saveResponseToFile(userPrompt, systemPrompt, response.body());
-                
                 // Parse response
                 JsonNode responseJson = objectMapper.readTree(response.body());
                 JsonNode candidates = responseJson.get("candidates");
@@ -208,6 +213,9 @@ public class GeminiClient implements AiClient {
                                    generatedText.length() > 300 ? generatedText.substring(0, 300) + "..." : generatedText);
                         logger.info("=========================================");
                         
+                        if (responseStore != null) {
+                            responseStore.put(responseKey, PROVIDER, modelName, generatedText);
+                        }
                         circuitBreaker.recordSuccess();
                     } else {
                         logger.warn("No parts found in response");
@@ -293,7 +301,7 @@ public class GeminiClient implements AiClient {
     @Override
     public String generateStructuredContent(String prompt, String jsonSchema, String systemPrompt) {
         String fullPrompt = buildStructuredPrompt(prompt, jsonSchema, systemPrompt);
-        return generateContent(fullPrompt, null);
+        return generateContentWithRetry(fullPrompt, null, 0, responseKey(systemPrompt, prompt, jsonSchema));
     }
     
     /**
@@ -332,55 +340,38 @@ public class GeminiClient implements AiClient {
     }
     
     /**
-     * Save Gemini response to file for later use in mock mode.
+     * Key of a request in the response store, or null when there is no store.
      */
-    private void saveResponseToFile(String userPrompt, String systemPrompt, String responseBody) {
-        try {
-            // Create responses directory if it doesn't exist
-            Path responsesDir = Paths.get("responses");
-            if (!Files.exists(responsesDir)) {
-                Files.createDirectories(responsesDir);
-            }
-            
-            // Generate filename based on prompt hash and timestamp
-            String promptHash = String.valueOf(userPrompt.hashCode());
-            String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
-            String filename = String.format("gemini_response_%s_%s.json", promptHash, timestamp);
-            Path responseFile = responsesDir.resolve(filename);
-            
-            // Create response object with metadata
-            JsonNode responseJson = objectMapper.readTree(responseBody);
-            JsonNode candidates = responseJson.get("candidates");
-            String generatedText = "";
-            
-            if (candidates != null && candidates.isArray() && candidates.size() > 0) {
-                JsonNode firstCandidate = candidates.get(0);
-                JsonNode content = firstCandidate.get("content");
-                JsonNode parts = content.get("parts");
-                
-                if (parts != null && parts.isArray() && parts.size() > 0) {
-                    generatedText = parts.get(0).get("text").asText();
-                }
-            }
-            
-            // Create metadata object
-            String metadata = objectMapper.writeValueAsString(new ResponseMetadata(
-                userPrompt, systemPrompt, generatedText, timestamp
-            ));
-            
-            // Save to file
-            Files.write(responseFile, metadata.getBytes());
-            logger.info("Saved Gemini response to: {}", responseFile);
-            
-        } catch (Exception e) {
-            logger.error("Failed to save response to file", e);
+    private String responseKey(String systemPrompt, String userPrompt, String jsonSchema) {
+        return responseStore != null
+                ? LlmResponseStore.key(PROVIDER, modelName, systemPrompt, userPrompt, jsonSchema)
+                : null;
+    }
+    
+    /**
+     * Get a stored response for an identical earlier request.
+     */
+    private String getStoredResponse(String responseKey) {
+        if (responseStore == null || responseKey == null) {
+            return null;
         }
+        return responseStore.get(responseKey).orElse(null);
     }
     
     /**
-     * Get mock response from saved files.
+     * Get a stored response that dedup may answer this request with, if any.
      */
-    private String getMockResponse(String userPrompt, String systemPrompt) {
+    private String getDedupResponse(String responseKey) {
+        if (responseStore == null || responseKey == null) {
+            return null;
+        }
+        return responseStore.getForDedup(responseKey, temperature).orElse(null);
+    }
+    
+    /**
+     * Get mock response from the sample files when no response is stored for the request.
+     */
+    private String getMockResponse(String userPrompt) {
         try {
             // Check for specific mock response files first
             Path mockResponsesDir = Paths.get("logs/gemini-responses");
@@ -396,36 +387,8 @@ public class GeminiClient implements AiClient {
                 }
             }
             
-            // Fallback to cached responses
-            Path responsesDir = Paths.get("responses");
-            if (!Files.exists(responsesDir)) {
-                logger.warn("No responses directory found for mock mode");
-                return getDefaultMockResponse();
-            }
-            
-            // Look for the most recent response file
-            String promptHash = String.valueOf(userPrompt.hashCode());
-            String filenamePattern = "gemini_response_" + promptHash + "_";
-            
-            return Files.list(responsesDir)
-                .filter(path -> path.getFileName().toString().startsWith(filenamePattern))
-                .sorted((a, b) -> b.getFileName().toString().compareTo(a.getFileName().toString()))
-                .findFirst()
-                .map(path -> {
-                    try {
-                        String content = Files.readString(path);
-                        ResponseMetadata metadata = objectMapper.readValue(content, ResponseMetadata.class);
-                        logger.info("Using cached response from: {}", path.getFileName());
-                        return metadata.generatedText;
-                    } catch (Exception e) {
-                        logger.error("Failed to read cached response from: {}", path, e);
-                        return getDefaultMockResponse();
-                    }
-                })
-                .orElseGet(() -> {
-                    logger.warn("No cached response found for prompt hash: {}", promptHash);
-                    return getDefaultMockResponse();
-                });
+            logger.warn("No stored response found for request, using default mock response");
+            return getDefaultMockResponse();
                 
         } catch (Exception e) {
             logger.error("Failed to get mock response", e);
@@ -526,21 +489,4 @@ public class GeminiClient implements AiClient {
             """;
         }
     }
-    
-    /**
-     * Metadata class for storing response information.
-     */
-    private static class ResponseMetadata {
-        public String userPrompt;
-        public String systemPrompt;
-        public String generatedText;
-        public String timestamp;
-        
-        public ResponseMetadata(String userPrompt, String systemPrompt, String generatedText, String timestamp) {
-            this.userPrompt = userPrompt;
-            this.systemPrompt = systemPrompt;
-            this.generatedText = generatedText;
-            this.timestamp = timestamp;
-        }
-    }
 }
@@ -28,7 +28,6 @@ import java.util.concurrent.atomic.AtomicBoolean;
 public class GooglePlacesService {
     
     private static final Logger logger = LoggerFactory.getLogger(GooglePlacesService.class);
-    private static final String BASE_URL = "https://maps.googleapis.com/maps/api/place";
     
     // Place Details API fields to request
     private static final String PLACE_DETAILS_FIELDS = "photos,reviews,opening_hours,price_level,rating,user_ratings_total,name,formatted_address,geometry,types,website,formatted_phone_number,international_phone_number";
@@ -60,6 +59,9 @@ public class GooglePlacesService {
     @Value("${google.places.rate.limit.enabled:true}")
     private boolean rateLimitEnabled;
 
+    @Value("${google.places.base-url:https://maps.googleapis.com/maps/api}")
+    private String baseUrl;
+
     private final RestTemplate restTemplate;
     private final com.fasterxml.jackson.databind.ObjectMapper objectMapper;
 
@@ -89,7 +91,7 @@ public class GooglePlacesService {
         try {
             // Build URL using UriComponentsBuilder to handle encoding properly
             // This avoids double-encoding issues when RestTemplate makes the request
-            String url = UriComponentsBuilder.fromHttpUrl(BASE_URL + "/details/json")
+            String url = UriComponentsBuilder.fromHttpUrl(baseUrl + "/place/details/json")
                     .queryParam("place_id", placeId)
                     .queryParam("fields", PLACE_DETAILS_FIELDS)
                     .queryParam("key", apiKey)
@@ -278,7 +280,7 @@ public class GooglePlacesService {
         
         try {
             // Build geocoding API URL
-            String url = UriComponentsBuilder.fromHttpUrl("https://maps.googleapis.com/maps/api/geocode/json")
+            String url = UriComponentsBuilder.fromHttpUrl(baseUrl + "/geocode/json")
                     .queryParam("address", location)
                     .queryParam("key", apiKey)
                     .build(false)
@@ -537,7 +539,7 @@ public class GooglePlacesService {
             }
             
             // Build URL with location bias using destination coordinates
-            UriComponentsBuilder urlBuilder = UriComponentsBuilder.fromHttpUrl(BASE_URL + "/textsearch/json")
+            UriComponentsBuilder urlBuilder = UriComponentsBuilder.fromHttpUrl(baseUrl + "/place/textsearch/json")
                     .queryParam("query", searchQuery)
                     .queryParam("key", apiKey);
             
@@ -1,34 +1,39 @@
 package com.tripplanner.service;
 
-import com.google.cloud.firestore.Firestore;
-import com.google.cloud.firestore.DocumentReference;
-import com.google.cloud.firestore.DocumentSnapshot;
-import com.google.cloud.firestore.WriteResult;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Scheduled;
-import org.springframework.stereotype.Service;
 
 import java.time.Instant;
-import java.util.HashMap;
-import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.ExecutionException;
 
 /**
  * Manages idempotency keys and operation result caching to prevent duplicate processing.
  * Ensures that operations with the same idempotency key return the same result without side effects.
+ * Records are stored in the idempotencyKeys collection, in Firestore by default or in the embedded
+ * local store with database.backend=local.
  */
-@Service
-public class IdempotencyManager {
+public abstract class IdempotencyManager {
     
     private static final Logger logger = LoggerFactory.getLogger(IdempotencyManager.class);
-    private static final String IDEMPOTENCY_COLLECTION = "idempotencyKeys";
+    protected static final String IDEMPOTENCY_COLLECTION = "idempotencyKeys";
     private static final long DEFAULT_TTL_HOURS = 24; // 24 hours default TTL
     
-    @Autowired
-    private Firestore firestore;
+    protected abstract Optional<IdempotencyRecord> loadRecord(String idempotencyKey)
+            throws InterruptedException, ExecutionException;
+    
+    protected abstract void storeRecord(IdempotencyRecord record) throws InterruptedException, ExecutionException;
+    
+    /**
+     * Delete a record without waiting for the deletion to complete.
+     */
+    protected abstract void deleteRecord(String idempotencyKey);
+    
+    /**
+     * Delete records that expired before the given time.
+     */
+    protected abstract void removeRecordsExpiredBefore(Instant time) throws InterruptedException, ExecutionException;
     
     /**
      * Check if an operation with the given idempotency key has already been processed.
@@ -42,22 +47,19 @@ public class IdempotencyManager {
         }
         
         try {
-            DocumentReference docRef = firestore.collection(IDEMPOTENCY_COLLECTION)
-                    .document(idempotencyKey);
+            Optional<IdempotencyRecord> stored = loadRecord(idempotencyKey);
             
-            DocumentSnapshot snapshot = docRef.get().get();
-            
-            if (!snapshot.exists()) {
+            if (stored.isEmpty()) {
                 return Optional.empty();
             }
             
-            IdempotencyRecord record = snapshot.toObject(IdempotencyRecord.class);
+            IdempotencyRecord record = stored.get();
             
             // Check if record has expired
             if (record != null && isExpired(record)) {
                 logger.debug("Idempotency record expired for key: {}", idempotencyKey);
                 // Clean up expired record asynchronously
-                docRef.delete();
+                deleteRecord(idempotencyKey);
                 return Optional.empty();
             }
             
@@ -97,12 +99,8 @@ public class IdempotencyManager {
                 expiresAt
             );
             
-            DocumentReference docRef = firestore.collection(IDEMPOTENCY_COLLECTION)
-                    .document(idempotencyKey);
-            
-            WriteResult writeResult = docRef.set(record).get();
-            logger.debug("Stored idempotency record for key: {} at {}", 
-                        idempotencyKey, writeResult.getUpdateTime());
+            storeRecord(record);
+            logger.debug("Stored idempotency record for key: {}", idempotencyKey);
             
         } catch (InterruptedException | ExecutionException e) {
             logger.error("Failed to store idempotency record for key: {}", idempotencyKey, e);
@@ -175,22 +173,8 @@ public class IdempotencyManager {
     @Scheduled(fixedRate = 3600000) // Run every hour
     public void cleanupExpiredRecords() {
         try {
-            Instant now = Instant.now();
+            removeRecordsExpiredBefore(Instant.now());
             
-            firestore.collection(IDEMPOTENCY_COLLECTION)
-                    .whereLessThan("expiresAt", now)
-                    .get()
-                    .get()
-                    .getDocuments()
-                    .forEach(doc -> {
-                        try {
-                            doc.getReference().delete().get();
-                            logger.debug("Cleaned up expired idempotency record: {}", doc.getId());
-                        } catch (InterruptedException | ExecutionException e) {
-                            logger.warn("Failed to delete expired idempotency record: {}", doc.getId(), e);
-                        }
-                    });
-                    
         } catch (InterruptedException | ExecutionException e) {
             logger.error("Failed to cleanup expired idempotency records", e);
         }
@@ -214,7 +198,7 @@ public class IdempotencyManager {
         private Instant createdAt;
         private Instant expiresAt;
         
-        // Default constructor for Firestore
+        // Default constructor for deserialization
         public IdempotencyRecord() {}
         
         public IdempotencyRecord(String idempotencyKey, Object result, String operationType, 
@@ -1,81 +1,96 @@
 package com.tripplanner.service;
 
 import com.tripplanner.dto.IntentResult;
+import com.tripplanner.util.KeywordMatcher;
+import com.tripplanner.util.TextPatterns;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.regex.Pattern;
 
 /**
  * Service for classifying user intents from natural language text.
  * Uses deterministic pre-router with regex patterns for common intents,
- * with fallback to LLM classification for ambiguous cases.
+ * with fallback to the local intent model for ambiguous cases.
  */
 @Service
 public class IntentClassificationService {
     
     private static final Logger logger = LoggerFactory.getLogger(IntentClassificationService.class);
     
-    // Regex patterns for intent classification
-    private static final Pattern REPLAN_TODAY_PATTERN = Pattern.compile(
-        "(?i).*\\b(replan|reschedule|start over|from now|today|current day)\\b.*", 
-        Pattern.CASE_INSENSITIVE
+    // Agent task handling each intent the local model predicts
+    private static final Map<String, String> LOCAL_TASK_TYPES = Map.ofEntries(
+        Map.entry("MOVE_TIME", "edit"),
+        Map.entry("INSERT_PLACE", "edit"),
+        Map.entry("DELETE_NODE", "edit"),
+        Map.entry("REPLACE_NODE", "edit"),
+        Map.entry("REPLAN_TODAY", "edit"),
+        Map.entry("UNDO", "edit"),
+        Map.entry("BOOK_NODE", "book"),
+        Map.entry("EXPLAIN", "explain"),
+        Map.entry("ENRICH", "enrich"),
+        Map.entry("PLAN", "plan"),
+        Map.entry("CHAT", "general")
     );
     
-    private static final Pattern MOVE_TIME_PATTERN = Pattern.compile(
-        "(?i).*\\b(move|shift|reschedule|change time|at \\d{1,2}:?\\d{0,2}|\\d{1,2}:?\\d{0,2})\\b.*", 
-        Pattern.CASE_INSENSITIVE
-    );
-    
-    private static final Pattern INSERT_PLACE_PATTERN = Pattern.compile(
-        "(?i).*\\b(add|insert|include|visit|go to|see|check out)\\b.*", 
-        Pattern.CASE_INSENSITIVE
-    );
-    
-    private static final Pattern DELETE_NODE_PATTERN = Pattern.compile(
-        "(?i).*\\b(remove|delete|skip|cancel|avoid)\\b.*", 
-        Pattern.CASE_INSENSITIVE
-    );
-    
-    private static final Pattern REPLACE_NODE_PATTERN = Pattern.compile(
-        "(?i).*\\b(replace|swap|instead of|alternative|substitute|don't want|dont want|don't like|dont like|something else|different)\\b.*", 
-        Pattern.CASE_INSENSITIVE
-    );
+    private final LocalIntentClassifier localClassifier;
+    private final double localConfidenceThreshold;
     
-    private static final Pattern BOOK_NODE_PATTERN = Pattern.compile(
-        "(?i).*\\b(book|reserve|buy|purchase|ticket|booking)\\b.*", 
-        Pattern.CASE_INSENSITIVE
-    );
-    
-    private static final Pattern UNDO_PATTERN = Pattern.compile(
-        "(?i).*\\b(undo|revert|back|previous|last change|go back)\\b.*", 
-        Pattern.CASE_INSENSITIVE
-    );
+    // Intent keywords, location prepositions and category hints, found in one pass over the text.
+    // Matches the regexes the pre-router used to run one by one: intent keywords and location
+    // prepositions as whole words, category hints anywhere.
+    private static final KeywordMatcher<Cue> CUES = KeywordMatcher.<Cue>builder()
+        .word(Cue.REPLAN_TODAY, "replan", "reschedule", "start over", "from now", "today", "current day")
+        .word(Cue.MOVE_TIME, "move", "shift", "reschedule", "change time")
+        .word(Cue.INSERT_PLACE, "add", "insert", "include", "visit", "go to", "see", "check out")
+        .word(Cue.DELETE_NODE, "remove", "delete", "skip", "cancel", "avoid")
+        .word(Cue.REPLACE_NODE, "replace", "swap", "instead of", "alternative", "substitute",
+              "don't want", "dont want", "don't like", "dont like", "something else", "different")
+        .word(Cue.BOOK_NODE, "book", "reserve", "buy", "purchase", "ticket", "booking")
+        .word(Cue.UNDO, "undo", "revert", "back", "previous", "last change", "go back")
+        .word(Cue.EXPLAIN, "what", "how", "why", "explain", "tell me", "describe", "show me")
+        .word(Cue.LOCATION, "near", "at", "in", "around", "close to", "by")
+        .substring(Cue.DIGIT, "0", "1", "2", "3", "4", "5", "6", "7", "8", "9")
+        .substring(Cue.MEAL, "restaurant", "eat", "lunch", "dinner")
+        .substring(Cue.ATTRACTION, "museum", "attraction", "sight", "visit")
+        .substring(Cue.ACCOMMODATION, "hotel", "stay", "accommodation")
+        .build();
     
-    private static final Pattern EXPLAIN_PATTERN = Pattern.compile(
-        "(?i).*\\b(what|how|why|explain|tell me|describe|show me)\\b.*", 
-        Pattern.CASE_INSENSITIVE
-    );
-    
-    // Time extraction patterns
-    private static final Pattern TIME_PATTERN = Pattern.compile(
-        "\\b(\\d{1,2}):?(\\d{0,2})\\s*(am|pm|a\\.m\\.|p\\.m\\.)?\\b", 
-        Pattern.CASE_INSENSITIVE
-    );
+    public IntentClassificationService(LocalIntentClassifier localClassifier,
+                                       @Value("${chat.intent.local-confidence-threshold:0.7}") double localConfidenceThreshold) {
+        this.localClassifier = localClassifier;
+        this.localConfidenceThreshold = localConfidenceThreshold;
+    }
     
-    // Location extraction patterns
-    private static final Pattern LOCATION_PATTERN = Pattern.compile(
-        "\\b(near|at|in|around|close to|by)\\s+([^,]+)", 
-        Pattern.CASE_INSENSITIVE
-    );
+    /**
+     * Classify the intent with the local model, for callers that would otherwise ask the LLM.
+     * Returns null when the model is not confident enough, or when the intent refers to itinerary
+     * nodes and none is selected, so the caller can fall back to the LLM, which resolves node
+     * references and entities from the itinerary context.
+     */
+    public IntentResult classifyLocally(String text, String selectedNodeId, Integer day) {
+        LocalIntentClassifier.Prediction prediction = localClassifier.classify(text);
+        if (prediction.getConfidence() < localConfidenceThreshold) {
+            logger.debug("Local model not confident for '{}': {}", text, prediction);
+            return null;
+        }
+        IntentResult result = toIntentResult(prediction, text, selectedNodeId, day);
+        if (result.requiresNodeResolution() && result.getNodeIds().isEmpty()) {
+            logger.debug("Local intent {} needs node references, deferring to the LLM", prediction);
+            return null;
+        }
+        logger.debug("Local model classified intent as: {}", prediction);
+        return result;
+    }
     
     /**
      * Classify the intent from user text using deterministic pre-router.
-     * Falls back to LLM classification if no clear intent is detected.
+     * Falls back to the local model's best guess if no clear intent is detected.
      */
     public IntentResult classifyIntent(String text, String selectedNodeId, Integer day) {
         logger.debug("Classifying intent for text: '{}', selectedNodeId: {}, day: {}", text, selectedNodeId, day);
@@ -88,54 +103,51 @@ public class IntentClassificationService {
             return result;
         }
         
-        // Fallback to LLM classification for ambiguous cases
-        logger.debug("Pre-router could not classify, falling back to LLM");
-        return llmClassification(text, selectedNodeId, day);
+        // Fallback to the local model for ambiguous cases
+        logger.debug("Pre-router could not classify, falling back to local model");
+        return toIntentResult(localClassifier.classify(text), text, selectedNodeId, day);
     }
     
     /**
      * Deterministic classification using regex patterns and keywords.
      */
     private IntentResult preRouterClassification(String text, String selectedNodeId, Integer day) {
+        TextScan scan = scan(text);
         
         // Check for explicit intents in order of specificity
-        if (isReplanToday(text)) {
-            Map<String, Object> entities = extractEntities(text);
-            return IntentResult.replanToday(day, entities);
+        if (scan.has(Cue.REPLAN_TODAY)) {
+            return IntentResult.replanToday(day, scan.entities());
         }
         
-        if (isBookNode(text)) {
+        if (scan.has(Cue.BOOK_NODE)) {
             List<String> nodeIds = selectedNodeId != null ? List.of(selectedNodeId) : List.of();
             return IntentResult.bookNode(nodeIds);
         }
         
-        if (isUndo(text)) {
+        if (scan.has(Cue.UNDO)) {
             return IntentResult.undo(null); // Version will be determined later
         }
         
-        if (isDeleteNode(text)) {
+        if (scan.has(Cue.DELETE_NODE)) {
             List<String> nodeIds = selectedNodeId != null ? List.of(selectedNodeId) : List.of();
             return IntentResult.deleteNode(nodeIds);
         }
         
-        if (isReplaceNode(text)) {
+        if (scan.has(Cue.REPLACE_NODE)) {
             List<String> nodeIds = selectedNodeId != null ? List.of(selectedNodeId) : List.of();
-            Map<String, Object> entities = extractEntities(text);
-            return IntentResult.replaceNode(nodeIds, entities);
+            return IntentResult.replaceNode(nodeIds, scan.entities());
         }
         
-        if (isMoveTime(text)) {
+        if (scan.has(Cue.MOVE_TIME)) {
             List<String> nodeIds = selectedNodeId != null ? List.of(selectedNodeId) : List.of();
-            Map<String, Object> entities = extractEntities(text);
-            return IntentResult.moveTime(nodeIds, entities);
+            return IntentResult.moveTime(nodeIds, scan.entities());
         }
         
-        if (isInsertPlace(text)) {
-            Map<String, Object> entities = extractEntities(text);
-            return IntentResult.insertPlace(day, entities);
+        if (scan.has(Cue.INSERT_PLACE)) {
+            return IntentResult.insertPlace(day, scan.entities());
         }
         
-        if (isExplain(text)) {
+        if (scan.has(Cue.EXPLAIN)) {
             return IntentResult.explain();
         }
         
@@ -143,115 +155,142 @@ public class IntentClassificationService {
     }
     
     /**
-     * LLM-based classification for ambiguous cases.
-     * For now, returns a default intent based on context.
+     * Build an intent result for a local model prediction.
      */
-    private IntentResult llmClassification(String text, String selectedNodeId, Integer day) {
-        logger.debug("LLM classification not implemented, using fallback logic");
-        
-        // Simple fallback logic based on context
-        if (selectedNodeId != null) {
-            // If a node is selected, assume it's a modification
-            return IntentResult.moveTime(List.of(selectedNodeId), extractEntities(text));
+    private IntentResult toIntentResult(LocalIntentClassifier.Prediction prediction, String text,
+                                        String selectedNodeId, Integer day) {
+        List<String> nodeIds = selectedNodeId != null ? List.of(selectedNodeId) : List.of();
+        IntentResult result;
+        switch (prediction.getIntent()) {
+            case "REPLAN_TODAY":
+                result = IntentResult.replanToday(day, extractEntities(text));
+                break;
+            case "MOVE_TIME":
+                result = IntentResult.moveTime(nodeIds, extractEntities(text));
+                break;
+            case "INSERT_PLACE":
+                result = IntentResult.insertPlace(day, extractEntities(text));
+                break;
+            case "DELETE_NODE":
+                result = IntentResult.deleteNode(nodeIds);
+                break;
+            case "REPLACE_NODE":
+                result = IntentResult.replaceNode(nodeIds, extractEntities(text));
+                break;
+            case "BOOK_NODE":
+                result = IntentResult.bookNode(nodeIds);
+                break;
+            case "UNDO":
+                result = IntentResult.undo(null);
+                break;
+            case "EXPLAIN":
+                result = IntentResult.explain();
+                break;
+            default:
+                result = new IntentResult(prediction.getIntent(), day, nodeIds, extractEntities(text), Map.of());
+                break;
         }
-        
-        if (day != null) {
-            // If a day is specified, assume it's adding something
-            return IntentResult.insertPlace(day, extractEntities(text));
-        }
-        
-        // Default to explain if no clear context
-        return IntentResult.explain();
+        result.setTaskType(LOCAL_TASK_TYPES.getOrDefault(prediction.getIntent(), "general"));
+        result.setConfidence(prediction.getConfidence());
+        return result;
     }
     
     /**
-     * Check if text indicates replanning from today.
-     */
-    private boolean isReplanToday(String text) {
-        return REPLAN_TODAY_PATTERN.matcher(text).matches();
-    }
-    
-    /**
-     * Check if text indicates moving or rescheduling time.
-     */
-    private boolean isMoveTime(String text) {
-        return MOVE_TIME_PATTERN.matcher(text).matches();
-    }
-    
-    /**
-     * Check if text indicates adding a new place.
-     */
-    private boolean isInsertPlace(String text) {
-        return INSERT_PLACE_PATTERN.matcher(text).matches();
-    }
-    
-    /**
-     * Check if text indicates deleting/removing a node.
-     */
-    private boolean isDeleteNode(String text) {
-        return DELETE_NODE_PATTERN.matcher(text).matches();
-    }
-    
-    /**
-     * Check if text indicates replacing a node.
+     * Extract entities (time, location, etc.) from text.
      */
-    private boolean isReplaceNode(String text) {
-        return REPLACE_NODE_PATTERN.matcher(text).matches();
+    private Map<String, Object> extractEntities(String text) {
+        return scan(text).entities();
     }
     
     /**
-     * Check if text indicates booking a node.
+     * Find the intent cues and entities of a text in one pass. Times and locations are checked
+     * only where a digit or a location preposition occurs, keeping the first of each.
      */
-    private boolean isBookNode(String text) {
-        return BOOK_NODE_PATTERN.matcher(text).matches();
+    private TextScan scan(String text) {
+        TextScan scan = new TextScan();
+        if (text == null) {
+            return scan;
+        }
+        CUES.scan(text, (cue, start, end) -> {
+            if (cue == Cue.DIGIT) {
+                if (TextPatterns.isClockNumberAt(text, start)) {
+                    scan.cues.add(Cue.MOVE_TIME);
+                }
+                if (scan.time == null) {
+                    int timeEnd = TextPatterns.timeEndAt(text, start);
+                    if (timeEnd >= 0) {
+                        scan.time = text.substring(start, timeEnd);
+                    }
+                }
+            } else if (cue == Cue.LOCATION) {
+                if (scan.location == null) {
+                    scan.location = locationAfter(text, end);
+                }
+            } else {
+                scan.cues.add(cue);
+            }
+            return true;
+        });
+        return scan;
     }
     
     /**
-     * Check if text indicates undoing a change.
+     * The place named after a location preposition: whitespace, then everything up to the next
+     * comma. Null if nothing follows.
      */
-    private boolean isUndo(String text) {
-        return UNDO_PATTERN.matcher(text).matches();
+    private static String locationAfter(String text, int prepositionEnd) {
+        int spacesEnd = prepositionEnd;
+        while (spacesEnd < text.length() && TextPatterns.isRegexSpace(text.charAt(spacesEnd))) {
+            spacesEnd++;
+        }
+        if (spacesEnd == prepositionEnd) {
+            return null;
+        }
+        if (spacesEnd == text.length() || text.charAt(spacesEnd) == ',') {
+            // Only whitespace before the comma, which still counts as a (blank) place when there
+            // is more than one whitespace character
+            return spacesEnd - prepositionEnd > 1 ? "" : null;
+        }
+        int comma = text.indexOf(',', spacesEnd);
+        return text.substring(spacesEnd, comma >= 0 ? comma : text.length()).trim();
     }
     
-    /**
-     * Check if text indicates asking for explanation.
-     */
-    private boolean isExplain(String text) {
-        return EXPLAIN_PATTERN.matcher(text).matches();
+    private enum Cue {
+        REPLAN_TODAY, MOVE_TIME, INSERT_PLACE, DELETE_NODE, REPLACE_NODE, BOOK_NODE, UNDO, EXPLAIN,
+        LOCATION, DIGIT, MEAL, ATTRACTION, ACCOMMODATION
     }
     
     /**
-     * Extract entities (time, location, etc.) from text.
+     * Cues and entities found in one text.
      */
-    private Map<String, Object> extractEntities(String text) {
-        Map<String, Object> entities = new HashMap<>();
+    private static class TextScan {
+        private final EnumSet<Cue> cues = EnumSet.noneOf(Cue.class);
+        private String time;
+        private String location;
         
-        // Extract time
-        var timeMatcher = TIME_PATTERN.matcher(text);
-        if (timeMatcher.find()) {
-            String time = timeMatcher.group();
-            entities.put("time", time);
+        boolean has(Cue cue) {
+            return cues.contains(cue);
         }
         
-        // Extract location
-        var locationMatcher = LOCATION_PATTERN.matcher(text);
-        if (locationMatcher.find()) {
-            String location = locationMatcher.group(2).trim();
-            entities.put("location", location);
+        Map<String, Object> entities() {
+            Map<String, Object> entities = new HashMap<>();
+            if (time != null) {
+                entities.put("time", time);
+            }
+            if (location != null) {
+                entities.put("location", location);
+            }
+            
+            // Category/type hints
+            if (has(Cue.MEAL)) {
+                entities.put("category", "meal");
+            } else if (has(Cue.ATTRACTION)) {
+                entities.put("category", "attraction");
+            } else if (has(Cue.ACCOMMODATION)) {
+                entities.put("category", "accommodation");
+            }
+            
+            return entities;
         }
-        
-        // Extract category/type hints
-        if (text.toLowerCase().contains("restaurant") || text.toLowerCase().contains("eat") || 
-            text.toLowerCase().contains("lunch") || text.toLowerCase().contains("dinner")) {
-            entities.put("category", "meal");
-        } else if (text.toLowerCase().contains("museum") || text.toLowerCase().contains("attraction") || 
-                   text.toLowerCase().contains("sight") || text.toLowerCase().contains("visit")) {
-            entities.put("category", "attraction");
-        } else if (text.toLowerCase().contains("hotel") || text.toLowerCase().contains("stay") || 
-                   text.toLowerCase().contains("accommodation")) {
-            entities.put("category", "accommodation");
-        }
-        
-        return entities;
     }
 }
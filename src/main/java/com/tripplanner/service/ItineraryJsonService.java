@@ -7,17 +7,31 @@ import com.tripplanner.dto.*;
 import com.tripplanner.exception.ItineraryNotFoundException;
 import com.tripplanner.exception.VersionConflictException;
 import com.tripplanner.exception.SerializationException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
 
 /**
  * Service for managing normalized JSON itineraries using Firestore database.
  * Provides serialization, deserialization, and storage operations for itineraries.
+ * 
+ * Agent data updates and enriched node locations can be buffered per itinerary (write-behind)
+ * and flushed as one consolidated write per flush interval, on explicit flush, or on shutdown.
+ * Reads of an itinerary include its buffered mutations, and any write of the itinerary carries them.
  */
 @Service
 public class ItineraryJsonService {
@@ -30,10 +44,86 @@ public class ItineraryJsonService {
     @Autowired
     private MapBoundsCalculator mapBoundsCalculator;
     
+    @Autowired(required = false)
+    private ConversationContextCache conversationContextCache;
+    
+    @Autowired(required = false)
+    private UserDataService userDataService;
+    
     private final ObjectMapper objectMapper;
     
+    private final boolean writeBehindEnabled;
+    private final long writeBehindFlushIntervalMs;
+    
+    // Separates the updatedAt and ID of an itinerary page cursor
+    private static final char CURSOR_SEPARATOR = '|';
+    
+    // Marks a buffered removal of an agent's data
+    private static final Object REMOVED = new Object();
+    
+    // Buffered agent data mutations per itinerary, and batches currently being written
+    private final Map<String, PendingAgentData> pendingAgentData = new ConcurrentHashMap<>();
+    private final Map<String, PendingAgentData> inFlightAgentData = new ConcurrentHashMap<>();
+    
+    // Serializes flushes and writes of one itinerary; removed once no thread holds or waits for it
+    private final Map<String, ItineraryLock> itineraryLocks = new ConcurrentHashMap<>();
+    
+    private final AtomicLong bufferedMutations = new AtomicLong();
+    private final AtomicLong flushedMutations = new AtomicLong();
+    private final AtomicLong consolidatedWrites = new AtomicLong();
+    private final AtomicLong droppedMutations = new AtomicLong();
+    
+    private ScheduledExecutorService writeBehindScheduler;
+    
     public ItineraryJsonService(ObjectMapper objectMapper) {
+        this(objectMapper, false, 500);
+    }
+    
+    @Autowired
+    public ItineraryJsonService(ObjectMapper objectMapper,
+                                @Value("${itinerary.write-behind.enabled:false}") boolean writeBehindEnabled,
+                                @Value("${itinerary.write-behind.flush-interval-ms:500}") long writeBehindFlushIntervalMs) {
         this.objectMapper = objectMapper;
+        this.writeBehindEnabled = writeBehindEnabled;
+        this.writeBehindFlushIntervalMs = writeBehindFlushIntervalMs;
+    }
+    
+    @PostConstruct
+    void startWriteBehind() {
+        if (!writeBehindEnabled) {
+            return;
+        }
+        writeBehindScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "ItineraryWriteBehind");
+            t.setDaemon(true);
+            return t;
+        });
+        writeBehindScheduler.scheduleWithFixedDelay(this::flushDueWrites,
+            writeBehindFlushIntervalMs, writeBehindFlushIntervalMs, TimeUnit.MILLISECONDS);
+        logger.info("Agent data write-behind enabled with {} ms flush interval", writeBehindFlushIntervalMs);
+    }
+    
+    /**
+     * Flush every buffered mutation before the application stops.
+     */
+    @PreDestroy
+    void stopWriteBehind() {
+        if (writeBehindScheduler != null) {
+            writeBehindScheduler.shutdown();
+            try {
+                writeBehindScheduler.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        
+        flushAllPendingWrites();
+        // Retry once anything re-queued by a failed flush
+        flushAllPendingWrites();
+        
+        if (!pendingAgentData.isEmpty()) {
+            logger.error("Shutting down with unflushed agent data for itineraries: {}", pendingAgentData.keySet());
+        }
     }
     
     /**
@@ -41,9 +131,12 @@ public class ItineraryJsonService {
      */
     public FirestoreItinerary createItinerary(NormalizedItinerary itinerary) {
         try {
+            ItinerarySchema.stamp(itinerary);
             String json = objectMapper.writeValueAsString(itinerary);
             FirestoreItinerary entity = new FirestoreItinerary(itinerary.getItineraryId(), itinerary.getVersion(), json);
-            return databaseService.save(entity);
+            FirestoreItinerary saved = databaseService.save(entity);
+            notifyItineraryChanged(itinerary);
+            return saved;
         } catch (JsonProcessingException e) {
             logger.error("Failed to serialize itinerary to JSON", e);
             throw new RuntimeException("Failed to create itinerary", e);
@@ -54,11 +147,18 @@ public class ItineraryJsonService {
      * Update an existing itinerary.
      */
     public FirestoreItinerary updateItinerary(NormalizedItinerary itinerary) {
+        return writeWithBufferedAgentData(itinerary.getItineraryId(), itinerary, () -> doUpdateItinerary(itinerary));
+    }
+    
+    private FirestoreItinerary doUpdateItinerary(NormalizedItinerary itinerary) {
         try {
+            ItinerarySchema.stamp(itinerary);
             String json = objectMapper.writeValueAsString(itinerary);
             FirestoreItinerary entity = new FirestoreItinerary(itinerary.getItineraryId(), itinerary.getVersion(), json);
             entity.updateTimestamp();
-            return databaseService.save(entity);
+            FirestoreItinerary saved = databaseService.save(entity);
+            notifyItineraryChanged(itinerary);
+            return saved;
         } catch (JsonProcessingException e) {
             logger.error("Failed to serialize itinerary to JSON", e);
             throw new RuntimeException("Failed to update itinerary", e);
@@ -69,10 +169,63 @@ public class ItineraryJsonService {
      * Get itinerary by ID.
      */
     public Optional<NormalizedItinerary> getItinerary(String id) {
+        return loadItinerary(id).map(itinerary -> withBufferedAgentData(id, itinerary));
+    }
+    
+    private Optional<NormalizedItinerary> loadItinerary(String id) {
         return databaseService.findById(id)
                 .flatMap(this::deserializeItinerary);
     }
     
+    /**
+     * Update an itinerary only if the stored copy is still at the expected version, for background
+     * writers that must not overwrite an edit made since they loaded it.
+     *
+     * @return false if the stored itinerary is missing or at another version
+     */
+    public boolean updateItineraryIfVersion(NormalizedItinerary itinerary, Integer expectedVersion) {
+        String itineraryId = itinerary.getItineraryId();
+        return withItineraryLock(itineraryId, () -> {
+            Integer storedVersion = databaseService.findById(itineraryId)
+                    .map(FirestoreItinerary::getVersion)
+                    .orElse(null);
+            if (storedVersion == null || !storedVersion.equals(expectedVersion)) {
+                return false;
+            }
+            updateItinerary(itinerary);
+            return true;
+        });
+    }
+    
+    /**
+     * One page of stored itineraries, most recently updated first, for background jobs that walk
+     * every itinerary without loading them all at once. Pass the page's cursor to get the next page.
+     * An itinerary written during the walk moves ahead of the cursor and is not visited again;
+     * such a write has already stored it in the current shape.
+     *
+     * @param cursor Cursor from the previous page, or null for the first page
+     */
+    public ItineraryPage getItineraryPage(String cursor, int limit) {
+        Instant afterUpdatedAt = null;
+        String afterId = null;
+        if (cursor != null) {
+            int separator = cursor.indexOf(CURSOR_SEPARATOR);
+            afterUpdatedAt = Instant.parse(cursor.substring(0, separator));
+            afterId = cursor.substring(separator + 1);
+        }
+        List<FirestoreItinerary> stored = databaseService.findPageOrderByUpdatedAtDesc(afterUpdatedAt, afterId, limit);
+        List<NormalizedItinerary> itineraries = stored.stream()
+                .map(this::deserializeItinerary)
+                .filter(Optional::isPresent)
+                .map(Optional::get)
+                .map(itinerary -> withBufferedAgentData(itinerary.getItineraryId(), itinerary))
+                .toList();
+        // Advance past entries that failed to deserialize too
+        FirestoreItinerary last = stored.isEmpty() ? null : stored.get(stored.size() - 1);
+        String nextCursor = stored.size() < limit ? null : last.getUpdatedAt().toString() + CURSOR_SEPARATOR + last.getId();
+        return new ItineraryPage(itineraries, nextCursor);
+    }
+    
     /**
      * Get all itineraries ordered by updated timestamp.
      */
@@ -82,6 +235,7 @@ public class ItineraryJsonService {
                 .map(this::deserializeItinerary)
                 .filter(Optional::isPresent)
                 .map(Optional::get)
+                .map(itinerary -> withBufferedAgentData(itinerary.getItineraryId(), itinerary))
                 .toList();
     }
     
@@ -90,6 +244,9 @@ public class ItineraryJsonService {
      */
     public void deleteItinerary(String id) {
         databaseService.deleteById(id);
+        if (conversationContextCache != null) {
+            conversationContextCache.invalidate(id);
+        }
     }
     
     /**
@@ -167,6 +324,13 @@ public class ItineraryJsonService {
      * Includes all agentData, workflow, revisions, and chat sections.
      */
     public void saveMasterItinerary(String itineraryId, NormalizedItinerary itinerary) {
+        writeWithBufferedAgentData(itineraryId, itinerary, () -> {
+            doSaveMasterItinerary(itineraryId, itinerary);
+            return null;
+        });
+    }
+    
+    private void doSaveMasterItinerary(String itineraryId, NormalizedItinerary itinerary) {
         logger.debug("Saving master itinerary for {}", itineraryId);
         
         try {
@@ -193,6 +357,7 @@ public class ItineraryJsonService {
             
             // Populate map fields
             populateMapFields(itinerary);
+            ItinerarySchema.stamp(itinerary);
             
             // Serialize unified structure to JSON with error handling
             String json = serializeItineraryWithRetry(itinerary);
@@ -211,13 +376,9 @@ public class ItineraryJsonService {
             // Path format: itineraries/{itineraryId}/versions/master
             String path = "itineraries/" + itineraryId + "/versions/master";
             
-            // Use FirestoreDatabaseService's flexible document storage with retry
-            if (databaseService instanceof FirestoreDatabaseService) {
-                saveDocumentWithRetry((FirestoreDatabaseService) databaseService, path, json);
-            } else {
-                // Fallback to regular save for other database types
-                updateItinerary(itinerary);
-            }
+            // Use the backend's flexible document storage with retry
+            saveDocumentWithRetry(databaseService, path, json);
+            notifyItineraryChanged(itinerary);
             
             logger.info("Successfully saved master itinerary for {} with version {}", itineraryId, itinerary.getVersion());
             
@@ -249,38 +410,32 @@ public class ItineraryJsonService {
             // Retrieve masterItinerary.json from Firebase with retry
             String path = "itineraries/" + itineraryId;
             
-            if (databaseService instanceof FirestoreDatabaseService) {
-                Optional<Map<String, Object>> documentOpt = 
-                    getDocumentWithRetry((FirestoreDatabaseService) databaseService, path);
+            Optional<Map<String, Object>> documentOpt = 
+                getDocumentWithRetry(databaseService, path);
+            
+            if (documentOpt.isPresent()) {
+                Map<String, Object> document = documentOpt.get();
+                String json = (String) document.get("json");
                 
-                if (documentOpt.isPresent()) {
-                    Map<String, Object> document = documentOpt.get();
-                    String json = (String) document.get("json");
+                if (json != null && !json.trim().isEmpty()) {
+                    NormalizedItinerary itinerary = deserializeItineraryWithRetry(json);
                     
-                    if (json != null && !json.trim().isEmpty()) {
-                        NormalizedItinerary itinerary = deserializeItineraryWithRetry(json);
-                        
-                        // Ensure unified structure is initialized
-                        itinerary.initializeUnifiedStructure();
-                        
-                        // Populate map fields if needed
-                        populateMapFields(itinerary);
-                        
-                        logger.debug("Successfully retrieved master itinerary for {} with version {}", 
-                                   itineraryId, itinerary.getVersion());
-                        return Optional.of(itinerary);
-                    } else {
-                        logger.warn("Master itinerary document exists but JSON content is empty for {}", itineraryId);
-                    }
+                    // Ensure unified structure is initialized
+                    itinerary.initializeUnifiedStructure();
+                    
+                    // Populate map fields if needed
+                    populateMapFields(itinerary);
+                    
+                    logger.debug("Successfully retrieved master itinerary for {} with version {}", 
+                               itineraryId, itinerary.getVersion());
+                    return Optional.of(withBufferedAgentData(itineraryId, itinerary));
                 } else {
-                    logger.debug("Master itinerary not found for {}", itineraryId);
+                    logger.warn("Master itinerary document exists but JSON content is empty for {}", itineraryId);
                 }
             } else {
-                // Fallback to regular get for other database types
-                logger.debug("Using fallback method for non-Firestore database");
-                return getItinerary(itineraryId);
+                logger.debug("Master itinerary not found for {}", itineraryId);
             }
-            
+
             return Optional.empty();
             
         } catch (SerializationException e) {
@@ -300,6 +455,13 @@ public class ItineraryJsonService {
      * Uses atomic update operations in Firebase with version conflict detection.
      */
     public void updateMasterItinerary(String itineraryId, NormalizedItinerary itinerary) {
+        writeWithBufferedAgentData(itineraryId, itinerary, () -> {
+            doUpdateMasterItinerary(itineraryId, itinerary);
+            return null;
+        });
+    }
+    
+    private void doUpdateMasterItinerary(String itineraryId, NormalizedItinerary itinerary) {
         logger.debug("Updating master itinerary for {}", itineraryId);
         
         try {
@@ -328,7 +490,7 @@ public class ItineraryJsonService {
             itinerary.setUpdatedAt(System.currentTimeMillis());
             
             // Save using the master itinerary method
-            saveMasterItinerary(itineraryId, itinerary);
+            doSaveMasterItinerary(itineraryId, itinerary);
             
             logger.info("Successfully updated master itinerary {} to version {}", itineraryId, newVersion);
             
@@ -344,6 +506,23 @@ public class ItineraryJsonService {
         }
     }
     
+    /**
+     * Keep the cached chat context and the owner's trip list of an itinerary in step with what
+     * was just written.
+     */
+    private void notifyItineraryChanged(NormalizedItinerary itinerary) {
+        if (conversationContextCache != null) {
+            conversationContextCache.onItineraryChanged(itinerary);
+        }
+        if (userDataService != null) {
+            try {
+                userDataService.syncTripProjection(itinerary);
+            } catch (Exception e) {
+                logger.warn("Failed to sync trip list for itinerary {}: {}", itinerary.getItineraryId(), e.getMessage());
+            }
+        }
+    }
+    
     /**
      * Validate itinerary data before storage.
      * Ensures required fields are present and valid.
@@ -471,13 +650,13 @@ public class ItineraryJsonService {
     /**
      * Save document with retry logic for transient Firebase errors.
      */
-    private void saveDocumentWithRetry(FirestoreDatabaseService firestoreService, String path, String json) {
+    private void saveDocumentWithRetry(DatabaseService documentStore, String path, String json) {
         int maxRetries = 5;
         int retryDelay = 1000; // milliseconds
         
         for (int attempt = 1; attempt <= maxRetries; attempt++) {
             try {
-                firestoreService.saveDocument(path, json);
+                documentStore.saveDocument(path, json);
                 return; // Success
             } catch (Exception e) {
                 if (attempt == maxRetries) {
@@ -506,13 +685,13 @@ public class ItineraryJsonService {
     /**
      * Get document with retry logic for transient Firebase errors.
      */
-    private Optional<Map<String, Object>> getDocumentWithRetry(FirestoreDatabaseService firestoreService, String path) {
+    private Optional<Map<String, Object>> getDocumentWithRetry(DatabaseService documentStore, String path) {
         int maxRetries = 5;
         int retryDelay = 1000; // milliseconds
         
         for (int attempt = 1; attempt <= maxRetries; attempt++) {
             try {
-                return firestoreService.getDocument(path);
+                return documentStore.getDocument(path);
             } catch (Exception e) {
                 if (attempt == maxRetries) {
                     throw new RuntimeException("Failed to get document after " + maxRetries + " attempts", e);
@@ -545,6 +724,11 @@ public class ItineraryJsonService {
     public void updateAgentData(String itineraryId, String agentName, Object agentData) {
         logger.debug("Updating agent data for itinerary: {}, agent: {}", itineraryId, agentName);
         
+        if (writeBehindEnabled) {
+            bufferAgentDataMutation(itineraryId, agentName, agentData);
+            return;
+        }
+        
         try {
             Optional<NormalizedItinerary> itineraryOpt = getItinerary(itineraryId);
             if (itineraryOpt.isPresent()) {
@@ -581,6 +765,12 @@ public class ItineraryJsonService {
     public Optional<Object> getAgentData(String itineraryId, String agentName) {
         logger.debug("Retrieving agent data for itinerary: {}, agent: {}", itineraryId, agentName);
         
+        PendingAgentData buffered = findBufferedBatch(itineraryId, agentName);
+        if (buffered != null) {
+            Object value = buffered.get(agentName);
+            return value == REMOVED ? Optional.empty() : Optional.ofNullable(value);
+        }
+        
         try {
             return getItinerary(itineraryId)
                 .map(itinerary -> itinerary.getAgentData().get(agentName))
@@ -600,6 +790,17 @@ public class ItineraryJsonService {
         logger.debug("Retrieving typed agent data for itinerary: {}, agent: {}, type: {}", 
                     itineraryId, agentName, targetType.getSimpleName());
         
+        PendingAgentData buffered = findBufferedBatch(itineraryId, agentName);
+        if (buffered != null) {
+            Object value = buffered.get(agentName);
+            if (value == REMOVED) {
+                return Optional.empty();
+            }
+            AgentDataSection section = new AgentDataSection();
+            section.setAgentData(agentName, value);
+            return Optional.ofNullable(section.getAgentData(agentName, targetType));
+        }
+        
         try {
             return getItinerary(itineraryId)
                 .map(itinerary -> itinerary.getAgentData().get(agentName))
@@ -618,6 +819,11 @@ public class ItineraryJsonService {
     public boolean hasAgentData(String itineraryId, String agentName) {
         logger.debug("Checking agent data existence for itinerary: {}, agent: {}", itineraryId, agentName);
         
+        PendingAgentData buffered = findBufferedBatch(itineraryId, agentName);
+        if (buffered != null) {
+            return buffered.get(agentName) != REMOVED;
+        }
+        
         try {
             return getItinerary(itineraryId)
                 .map(itinerary -> itinerary.getAgentData().containsKey(agentName) && 
@@ -637,6 +843,11 @@ public class ItineraryJsonService {
     public void removeAgentData(String itineraryId, String agentName) {
         logger.debug("Removing agent data for itinerary: {}, agent: {}", itineraryId, agentName);
         
+        if (writeBehindEnabled) {
+            bufferAgentDataMutation(itineraryId, agentName, REMOVED);
+            return;
+        }
+        
         try {
             Optional<NormalizedItinerary> itineraryOpt = getItinerary(itineraryId);
             if (itineraryOpt.isPresent()) {
@@ -674,9 +885,13 @@ public class ItineraryJsonService {
         logger.debug("Getting agent names for itinerary: {}", itineraryId);
         
         try {
-            return getItinerary(itineraryId)
-                .map(itinerary -> itinerary.getAgentData().keySet())
-                .orElse(Collections.emptySet());
+            Set<String> agentNames = getItinerary(itineraryId)
+                .map(itinerary -> (Set<String>) new HashSet<>(itinerary.getAgentData().keySet()))
+                .orElse(new HashSet<>());
+            for (PendingAgentData pending : bufferedBatches(itineraryId)) {
+                pending.applyTo(agentNames);
+            }
+            return agentNames;
                 
         } catch (Exception e) {
             logger.error("Failed to get agent names for itinerary: {}", itineraryId, e);
@@ -684,6 +899,370 @@ public class ItineraryJsonService {
         }
     }
     
+    /**
+     * Set the locations of enriched nodes, keyed by node ID. Nodes no longer in the itinerary
+     * when the locations are written are skipped.
+     */
+    public void updateNodeLocations(String itineraryId, Map<String, NodeLocation> locations) {
+        if (locations.isEmpty()) {
+            return;
+        }
+        logger.debug("Updating {} node locations for itinerary: {}", locations.size(), itineraryId);
+        
+        if (writeBehindEnabled) {
+            pendingAgentData.compute(itineraryId, (id, pending) -> {
+                PendingAgentData batch = pending != null ? pending : new PendingAgentData();
+                locations.forEach(batch::putNodeLocation);
+                return batch;
+            });
+            bufferedMutations.addAndGet(locations.size());
+            return;
+        }
+        
+        withItineraryLock(itineraryId, () -> {
+            NormalizedItinerary itinerary = getItinerary(itineraryId)
+                .orElseThrow(() -> new ItineraryNotFoundException("Itinerary not found: ", itineraryId, "userId"));
+            PendingAgentData batch = new PendingAgentData();
+            locations.forEach(batch::putNodeLocation);
+            batch.applyTo(itinerary);
+            updateItinerary(itinerary);
+            return null;
+        });
+    }
+    
+    /**
+     * Flush buffered agent data of one itinerary now.
+     */
+    public void flushPendingWrites(String itineraryId) {
+        if (itineraryId == null || !pendingAgentData.containsKey(itineraryId)) {
+            return;
+        }
+        
+        withItineraryLock(itineraryId, () -> {
+            PendingAgentData batch = pendingAgentData.remove(itineraryId);
+            if (batch == null) {
+                return null;
+            }
+            inFlightAgentData.put(itineraryId, batch);
+            
+            try {
+                writeAgentDataBatch(itineraryId, batch);
+            } catch (Exception e) {
+                logger.error("Failed to flush {} buffered agent data mutations for itinerary {}, re-queueing",
+                            batch.size(), itineraryId, e);
+                requeue(itineraryId, batch);
+            } finally {
+                inFlightAgentData.remove(itineraryId);
+            }
+            return null;
+        });
+    }
+    
+    /**
+     * Flush buffered agent data of all itineraries.
+     */
+    public void flushAllPendingWrites() {
+        for (String itineraryId : new ArrayList<>(pendingAgentData.keySet())) {
+            flushPendingWrites(itineraryId);
+        }
+    }
+    
+    /**
+     * Statistics about agent data write-behind coalescing.
+     */
+    public WriteBehindStats getWriteBehindStats() {
+        return new WriteBehindStats(
+            bufferedMutations.get(),
+            flushedMutations.get(),
+            consolidatedWrites.get(),
+            droppedMutations.get(),
+            pendingAgentData.size()
+        );
+    }
+    
+    private void bufferAgentDataMutation(String itineraryId, String agentName, Object agentData) {
+        pendingAgentData.compute(itineraryId, (id, pending) -> {
+            PendingAgentData batch = pending != null ? pending : new PendingAgentData();
+            batch.put(agentName, agentData);
+            return batch;
+        });
+        bufferedMutations.incrementAndGet();
+    }
+    
+    /**
+     * Scheduled flush of itineraries whose oldest buffered mutation has waited a full interval.
+     */
+    private void flushDueWrites() {
+        try {
+            long cutoff = System.currentTimeMillis() - writeBehindFlushIntervalMs;
+            for (Map.Entry<String, PendingAgentData> entry : pendingAgentData.entrySet()) {
+                if (entry.getValue().getFirstMutationAt() <= cutoff) {
+                    flushPendingWrites(entry.getKey());
+                }
+            }
+        } catch (Exception e) {
+            logger.error("Agent data write-behind flush failed", e);
+        }
+    }
+    
+    private void writeAgentDataBatch(String itineraryId, PendingAgentData batch) {
+        Optional<NormalizedItinerary> itineraryOpt = loadItinerary(itineraryId);
+        if (itineraryOpt.isEmpty()) {
+            droppedMutations.addAndGet(batch.getMutationCount());
+            logger.error("Itinerary not found for buffered writes, dropping {} mutations: {}",
+                        batch.getMutationCount(), itineraryId);
+            return;
+        }
+        
+        NormalizedItinerary itinerary = itineraryOpt.get();
+        batch.applyTo(itinerary);
+        itinerary.setUpdatedAt(System.currentTimeMillis());
+        doUpdateMasterItinerary(itineraryId, itinerary);
+        
+        flushedMutations.addAndGet(batch.getMutationCount());
+        consolidatedWrites.incrementAndGet();
+        logger.debug("Flushed {} buffered mutations ({} agents and nodes) for itinerary {} in one write",
+                    batch.getMutationCount(), batch.size(), itineraryId);
+    }
+    
+    /**
+     * Run a write of the itinerary under its lock with its pending agent data applied, so the write
+     * neither drops that data nor races a flush or another write.
+     */
+    private <T> T writeWithBufferedAgentData(String itineraryId, NormalizedItinerary itinerary, Supplier<T> write) {
+        if (itineraryId == null) {
+            return write.get();
+        }
+        
+        return withItineraryLock(itineraryId, () -> {
+            PendingAgentData batch = pendingAgentData.remove(itineraryId);
+            if (batch == null) {
+                return write.get();
+            }
+            inFlightAgentData.put(itineraryId, batch);
+            
+            try {
+                batch.applyTo(itinerary);
+                T result = write.get();
+                flushedMutations.addAndGet(batch.getMutationCount());
+                return result;
+            } catch (RuntimeException e) {
+                requeue(itineraryId, batch);
+                throw e;
+            } finally {
+                inFlightAgentData.remove(itineraryId);
+            }
+        });
+    }
+    
+    /**
+     * The loaded itinerary with its in-flight and pending agent data mutations applied.
+     */
+    private NormalizedItinerary withBufferedAgentData(String itineraryId, NormalizedItinerary itinerary) {
+        for (PendingAgentData batch : bufferedBatches(itineraryId)) {
+            batch.applyTo(itinerary);
+        }
+        return itinerary;
+    }
+    
+    /**
+     * Put a batch that failed to write back, keeping newer mutations that arrived meanwhile on top.
+     */
+    private void requeue(String itineraryId, PendingAgentData batch) {
+        pendingAgentData.merge(itineraryId, batch, (newer, failed) -> failed.overlay(newer));
+    }
+    
+    private <T> T withItineraryLock(String itineraryId, Supplier<T> action) {
+        ItineraryLock lock = itineraryLocks.compute(itineraryId, (id, existing) -> {
+            ItineraryLock acquired = existing != null ? existing : new ItineraryLock();
+            acquired.holders++;
+            return acquired;
+        });
+        lock.lock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+            itineraryLocks.compute(itineraryId, (id, existing) -> --existing.holders == 0 ? null : existing);
+        }
+    }
+    
+    /**
+     * Newest buffered batch holding a mutation for the agent, or null when none is buffered.
+     */
+    private PendingAgentData findBufferedBatch(String itineraryId, String agentName) {
+        List<PendingAgentData> batches = bufferedBatches(itineraryId);
+        for (int i = batches.size() - 1; i >= 0; i--) {
+            if (batches.get(i).contains(agentName)) {
+                return batches.get(i);
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * In-flight and pending batches of an itinerary, oldest first.
+     */
+    private List<PendingAgentData> bufferedBatches(String itineraryId) {
+        List<PendingAgentData> batches = new ArrayList<>(2);
+        PendingAgentData inFlight = inFlightAgentData.get(itineraryId);
+        if (inFlight != null) {
+            batches.add(inFlight);
+        }
+        PendingAgentData pending = pendingAgentData.get(itineraryId);
+        if (pending != null) {
+            batches.add(pending);
+        }
+        return batches;
+    }
+    
+    /**
+     * Lock of one itinerary. The holder count is only changed inside the lock map's compute.
+     */
+    private static class ItineraryLock extends ReentrantLock {
+        private int holders;
+    }
+    
+    /**
+     * Agent data and node location mutations buffered for one itinerary; later mutations of an
+     * agent or node replace earlier ones.
+     */
+    private static class PendingAgentData {
+        private final Map<String, Object> mutations = new LinkedHashMap<>();
+        private final Map<String, NodeLocation> nodeLocations = new LinkedHashMap<>();
+        private final long firstMutationAt = System.currentTimeMillis();
+        private int mutationCount;
+        
+        synchronized void put(String agentName, Object agentData) {
+            mutations.put(agentName, agentData);
+            mutationCount++;
+        }
+        
+        synchronized void putNodeLocation(String nodeId, NodeLocation location) {
+            nodeLocations.put(nodeId, location);
+            mutationCount++;
+        }
+        
+        synchronized boolean contains(String agentName) {
+            return mutations.containsKey(agentName);
+        }
+        
+        synchronized Object get(String agentName) {
+            return mutations.get(agentName);
+        }
+        
+        synchronized void applyTo(NormalizedItinerary itinerary) {
+            mutations.forEach((agentName, agentData) -> {
+                if (agentData == REMOVED) {
+                    itinerary.getAgentData().remove(agentName);
+                } else {
+                    itinerary.getAgentData()
+                        .computeIfAbsent(agentName, k -> new AgentDataSection())
+                        .setAgentData(agentName, agentData);
+                }
+            });
+            if (!nodeLocations.isEmpty() && itinerary.getDays() != null) {
+                for (NormalizedDay day : itinerary.getDays()) {
+                    if (day.getNodes() == null) {
+                        continue;
+                    }
+                    for (NormalizedNode node : day.getNodes()) {
+                        NodeLocation location = nodeLocations.get(node.getId());
+                        if (location != null) {
+                            node.setLocation(location);
+                        }
+                    }
+                }
+            }
+        }
+        
+        synchronized void applyTo(Set<String> agentNames) {
+            mutations.forEach((agentName, agentData) -> {
+                if (agentData == REMOVED) {
+                    agentNames.remove(agentName);
+                } else {
+                    agentNames.add(agentName);
+                }
+            });
+        }
+        
+        /**
+         * This (older) batch with the newer batch's mutations applied on top.
+         */
+        synchronized PendingAgentData overlay(PendingAgentData newer) {
+            synchronized (newer) {
+                newer.mutations.forEach(mutations::put);
+                newer.nodeLocations.forEach(nodeLocations::put);
+                mutationCount += newer.mutationCount;
+            }
+            return this;
+        }
+        
+        synchronized int size() {
+            return mutations.size() + nodeLocations.size();
+        }
+        
+        synchronized int getMutationCount() {
+            return mutationCount;
+        }
+        
+        long getFirstMutationAt() {
+            return firstMutationAt;
+        }
+    }
+    
+    /**
+     * A page of itineraries and the cursor of the next page, null after the last page.
+     */
+    public record ItineraryPage(List<NormalizedItinerary> itineraries, String nextCursor) {
+    }
+    
+    /**
+     * Statistics about agent data write-behind.
+     */
+    public static class WriteBehindStats {
+        private final long bufferedMutations;
+        private final long flushedMutations;
+        private final long consolidatedWrites;
+        private final long droppedMutations;
+        private final int pendingItineraries;
+        
+        public WriteBehindStats(long bufferedMutations, long flushedMutations, long consolidatedWrites,
+                                long droppedMutations, int pendingItineraries) {
+            this.bufferedMutations = bufferedMutations;
+            this.flushedMutations = flushedMutations;
+            this.consolidatedWrites = consolidatedWrites;
+            this.droppedMutations = droppedMutations;
+            this.pendingItineraries = pendingItineraries;
+        }
+        
+        public long getBufferedMutations() { return bufferedMutations; }
+        public long getFlushedMutations() { return flushedMutations; }
+        public long getConsolidatedWrites() { return consolidatedWrites; }
+        /** Buffered mutations discarded because their itinerary no longer existed at flush. */
+        public long getDroppedMutations() { return droppedMutations; }
+        public int getPendingItineraries() { return pendingItineraries; }
+        
+        /**
+         * Average number of buffered mutations carried by one write.
+         */
+        public double getCoalescingRatio() {
+            return consolidatedWrites == 0 ? 0.0 : (double) flushedMutations / consolidatedWrites;
+        }
+        
+        @Override
+        public String toString() {
+            return "WriteBehindStats{" +
+                    "bufferedMutations=" + bufferedMutations +
+                    ", flushedMutations=" + flushedMutations +
+                    ", consolidatedWrites=" + consolidatedWrites +
+                    ", droppedMutations=" + droppedMutations +
+                    ", pendingItineraries=" + pendingItineraries +
+                    ", coalescingRatio=" + getCoalescingRatio() +
+                    '}';
+        }
+    }
+    
     /**
      * Check if an error is retryable (transient Firebase errors).
      */
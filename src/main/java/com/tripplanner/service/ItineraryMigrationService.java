@@ -3,107 +3,250 @@ package com.tripplanner.service;
 import com.tripplanner.dto.NormalizedDay;
 import com.tripplanner.dto.NormalizedItinerary;
 import com.tripplanner.dto.NormalizedNode;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
  * Service for migrating itineraries from old node ID patterns to new standardized pattern.
- * Automatically detects and migrates itineraries when they are loaded.
+ *
+ * Whether an itinerary needs migrating is read from its schema marker (see ItinerarySchema), so
+ * loads never scan nodes or write. Stale itineraries are queued and migrated by a background
+ * migrator in throttled batches; on startup it also sweeps every stored itinerary once, one page
+ * at a time.
  */
 @Service
 public class ItineraryMigrationService {
-    
+
     private static final Logger logger = LoggerFactory.getLogger(ItineraryMigrationService.class);
-    
+
     private final ItineraryJsonService itineraryJsonService;
-    
+
+    @Value("${itinerary.migration.enabled:true}")
+    private boolean backgroundMigrationEnabled;
+
+    @Value("${itinerary.migration.batch-size:20}")
+    private int batchSize;
+
+    @Value("${itinerary.migration.batch-interval-ms:5000}")
+    private long batchIntervalMs;
+
+    @Value("${itinerary.migration.min-idle-ms:60000}")
+    private long minIdleMs;
+
+    // Itineraries waiting for the migrator, and the same IDs as a set so each is queued once
+    private final Queue<String> queue = new ConcurrentLinkedQueue<>();
+    private final Set<String> queued = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong scanned = new AtomicLong();
+    private final AtomicLong migrated = new AtomicLong();
+    private final AtomicLong stamped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private volatile boolean sweepComplete;
+
+    private ScheduledExecutorService migrator;
+
     public ItineraryMigrationService(ItineraryJsonService itineraryJsonService) {
         this.itineraryJsonService = itineraryJsonService;
     }
-    
+
+    @PostConstruct
+    void startMigrator() {
+        if (!backgroundMigrationEnabled) {
+            return;
+        }
+        migrator = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "ItineraryMigrator");
+            t.setDaemon(true);
+            return t;
+        });
+        migrator.schedule(this::sweep, batchIntervalMs, TimeUnit.MILLISECONDS);
+        migrator.scheduleWithFixedDelay(this::migrateBatch, batchIntervalMs, batchIntervalMs, TimeUnit.MILLISECONDS);
+        logger.info("Background itinerary migration enabled: {} itineraries every {} ms", batchSize, batchIntervalMs);
+    }
+
+    @PreDestroy
+    void stopMigrator() {
+        if (migrator != null) {
+            migrator.shutdownNow();
+        }
+    }
+
+    /**
+     * Whether an itinerary still has to be migrated. Reads only the schema marker.
+     */
+    public boolean isStale(NormalizedItinerary itinerary) {
+        return itinerary != null && !ItinerarySchema.isCurrent(itinerary);
+    }
+
     /**
-     * Migrate itinerary node IDs to new standardized pattern if needed.
-     * Called automatically when itinerary is loaded.
-     * 
+     * Queue a stale itinerary for the background migrator. Called on load instead of migrating
+     * inline; does nothing for current itineraries.
+     */
+    public void scheduleIfStale(NormalizedItinerary itinerary) {
+        if (isStale(itinerary)) {
+            enqueue(itinerary.getItineraryId());
+        }
+    }
+
+    /**
+     * Migrate node IDs in memory, without saving, for callers about to save the itinerary
+     * themselves (such as an edit). The itinerary is also queued, so it is migrated in storage
+     * even if the caller ends up not saving. Migrated IDs are deterministic, so both agree.
+     *
      * @param itinerary The itinerary to check and migrate
-     * @return The migrated itinerary, or original if no migration needed
+     * @return The same itinerary, migrated if it was stale
      */
-    public NormalizedItinerary migrateIfNeeded(NormalizedItinerary itinerary) {
-        if (itinerary == null) {
-            logger.warn("Cannot migrate null itinerary");
+    public NormalizedItinerary migrateInMemory(NormalizedItinerary itinerary) {
+        if (!isStale(itinerary)) {
             return itinerary;
         }
-        
-        if (!needsMigration(itinerary)) {
-            logger.debug("Itinerary {} does not need migration", itinerary.getItineraryId());
+        enqueue(itinerary.getItineraryId());
+        if (ItinerarySchema.hasStandardNodeIds(itinerary)) {
+            ItinerarySchema.stamp(itinerary);
             return itinerary;
         }
-        
-        logger.info("Migrating node IDs for itinerary: {}", itinerary.getItineraryId());
-        
+        logger.info("Migrating node IDs in memory for itinerary: {}", itinerary.getItineraryId());
+        renumberNodes(itinerary);
+        ItinerarySchema.stamp(itinerary);
+        return itinerary;
+    }
+
+    /**
+     * Progress of the background migrator.
+     */
+    public MigrationProgress getProgress() {
+        return new MigrationProgress(queue.size(), scanned.get(), migrated.get(), stamped.get(),
+                                     failed.get(), sweepComplete);
+    }
+
+    /**
+     * Queue every stale stored itinerary, reading them a page of batch-size at a time. Runs once,
+     * on the migrator thread.
+     */
+    public void sweep() {
         try {
-            NormalizedItinerary migrated = performMigration(itinerary);
-            
-            // Save migrated version
-            itineraryJsonService.updateItinerary(migrated);
-            
-            int totalNodes = migrated.getDays().stream()
-                    .mapToInt(d -> d.getNodes() != null ? d.getNodes().size() : 0)
-                    .sum();
-            
-            logger.info("Successfully migrated itinerary {} with {} days and {} total nodes", 
-                       migrated.getItineraryId(),
-                       migrated.getDays().size(), 
-                       totalNodes);
-            
-            return migrated;
-            
+            long startTime = System.currentTimeMillis();
+            int stale = 0;
+            String cursor = null;
+            do {
+                ItineraryJsonService.ItineraryPage page = itineraryJsonService.getItineraryPage(cursor, batchSize);
+                for (NormalizedItinerary itinerary : page.itineraries()) {
+                    scanned.incrementAndGet();
+                    if (isStale(itinerary)) {
+                        enqueue(itinerary.getItineraryId());
+                        stale++;
+                    }
+                }
+                cursor = page.nextCursor();
+            } while (cursor != null);
+            sweepComplete = true;
+            logger.info("Migration sweep found {} stale of {} itineraries in {} ms",
+                       stale, scanned.get(), System.currentTimeMillis() - startTime);
         } catch (Exception e) {
-            logger.error("Failed to migrate itinerary: {}", itinerary.getItineraryId(), e);
-            // Return original itinerary if migration fails (graceful degradation)
-            return itinerary;
+            logger.error("Migration sweep failed, stale itineraries will be migrated as they are loaded", e);
         }
     }
-    
+
     /**
-     * Check if an itinerary needs migration.
-     * Returns true if any node has an old ID pattern.
-     * 
-     * @param itinerary The itinerary to check
-     * @return true if migration is needed
+     * Migrate up to one batch of queued itineraries.
      */
-    private boolean needsMigration(NormalizedItinerary itinerary) {
-        if (itinerary.getDays() == null) {
-            return false;
+    public void migrateBatch() {
+        int processed = 0;
+        List<String> deferred = new ArrayList<>();
+        String itineraryId;
+        while (processed < batchSize && (itineraryId = queue.poll()) != null) {
+            queued.remove(itineraryId);
+            processed++;
+            try {
+                if (!migrateStored(itineraryId)) {
+                    deferred.add(itineraryId);
+                }
+            } catch (Exception e) {
+                failed.incrementAndGet();
+                logger.error("Failed to migrate itinerary: {}", itineraryId, e);
+            }
+        }
+        deferred.forEach(this::enqueue);
+        if (processed > 0) {
+            MigrationProgress progress = getProgress();
+            logger.info("Migration batch processed {} itineraries: {}", processed, progress);
         }
-        
-        return itinerary.getDays().stream()
-                .filter(day -> day.getNodes() != null)
-                .flatMap(day -> day.getNodes().stream())
-                .anyMatch(node -> !isNewIdPattern(node.getId()));
     }
-    
+
     /**
-     * Check if a node ID follows the new standardized pattern.
-     * New pattern: day{N}_node{M}
-     * 
-     * @param nodeId The node ID to check
-     * @return true if the ID follows the new pattern
+     * Load, migrate and save one itinerary. Itineraries edited within the idle window are
+     * left for a later batch so the migrator does not race an active editor, and the save only
+     * goes through if no edit landed since the load.
+     *
+     * @return false if the itinerary was left for later
      */
-    private boolean isNewIdPattern(String nodeId) {
-        if (nodeId == null || nodeId.trim().isEmpty()) {
+    private boolean migrateStored(String itineraryId) {
+        Optional<NormalizedItinerary> loaded = itineraryJsonService.getItinerary(itineraryId);
+        if (loaded.isEmpty() || !isStale(loaded.get())) {
+            return true;
+        }
+        NormalizedItinerary itinerary = loaded.get();
+        Integer loadedVersion = itinerary.getVersion();
+
+        Long updatedAt = itinerary.getUpdatedAt();
+        if (updatedAt != null && System.currentTimeMillis() - updatedAt < minIdleMs) {
             return false;
         }
-        
-        // Check for new standardized format: day{number}_node{number}
-        return nodeId.matches("day\\d+_node\\d+");
+
+        if (ItinerarySchema.hasStandardNodeIds(itinerary)) {
+            // Already in the new format, only the marker is missing
+            if (!itineraryJsonService.updateItineraryIfVersion(itinerary, loadedVersion)) {
+                return false;
+            }
+            stamped.incrementAndGet();
+            return true;
+        }
+
+        logger.info("Migrating node IDs for itinerary: {}", itineraryId);
+        NormalizedItinerary migratedItinerary = performMigration(itinerary);
+        if (!itineraryJsonService.updateItineraryIfVersion(migratedItinerary, loadedVersion)) {
+            logger.info("Itinerary {} changed while migrating, retrying in a later batch", itineraryId);
+            return false;
+        }
+        migrated.incrementAndGet();
+
+        int totalNodes = migratedItinerary.getDays().stream()
+                .mapToInt(d -> d.getNodes() != null ? d.getNodes().size() : 0)
+                .sum();
+
+        logger.info("Successfully migrated itinerary {} with {} days and {} total nodes",
+                   migratedItinerary.getItineraryId(),
+                   migratedItinerary.getDays().size(),
+                   totalNodes);
+        return true;
+    }
+
+    private void enqueue(String itineraryId) {
+        if (itineraryId != null && queued.add(itineraryId)) {
+            queue.add(itineraryId);
+        }
     }
-    
+
     /**
      * Perform the actual migration of node IDs.
      * Converts all node IDs to the new standardized pattern: day{N}_node{M}
-     * 
+     *
      * @param itinerary The itinerary to migrate
      * @return The migrated itinerary
      */
@@ -111,40 +254,76 @@ public class ItineraryMigrationService {
         if (itinerary.getDays() == null) {
             return itinerary;
         }
-        
+
+        renumberNodes(itinerary);
+
+        // Update version to indicate migration
+        itinerary.setVersion(itinerary.getVersion() + 1);
+        itinerary.setUpdatedAt(System.currentTimeMillis());
+
+        return itinerary;
+    }
+
+    private void renumberNodes(NormalizedItinerary itinerary) {
+        if (itinerary.getDays() == null) {
+            return;
+        }
+
         for (NormalizedDay day : itinerary.getDays()) {
             if (day.getNodes() == null) {
                 continue;
             }
-            
-            // LOG: Before migration
-            logger.debug("Day {} before migration: {} nodes with IDs: {}", 
-                        day.getDayNumber(),
-                        day.getNodes().size(),
-                        day.getNodes().stream().map(NormalizedNode::getId).collect(java.util.stream.Collectors.toList()));
-            
+
             int nodeCounter = 1;
             for (NormalizedNode node : day.getNodes()) {
                 String oldId = node.getId();
                 String newId = String.format("day%d_node%d", day.getDayNumber(), nodeCounter++);
-                
+
                 if (!newId.equals(oldId)) {
                     logger.debug("Migrating node ID: {} -> {}", oldId, newId);
                     node.setId(newId);
                 }
             }
-            
-            // LOG: After migration
-            logger.info("Day {} after migration: {} nodes with IDs: {}", 
-                       day.getDayNumber(),
-                       day.getNodes().size(),
-                       day.getNodes().stream().map(NormalizedNode::getId).collect(java.util.stream.Collectors.toList()));
-        }
-        
-        // Update version to indicate migration
-        itinerary.setVersion(itinerary.getVersion() + 1);
-        itinerary.setUpdatedAt(System.currentTimeMillis());
-        
-        return itinerary;
+
+            logger.debug("Day {} after migration: {} nodes with IDs: {}",
+                        day.getDayNumber(),
+                        day.getNodes().size(),
+                        day.getNodes().stream().map(NormalizedNode::getId).collect(java.util.stream.Collectors.toList()));
+        }
+    }
+
+    /**
+     * Snapshot of background migration progress.
+     */
+    public static class MigrationProgress {
+        private final int queued;
+        private final long scanned;
+        private final long migrated;
+        private final long stamped;
+        private final long failed;
+        private final boolean sweepComplete;
+
+        public MigrationProgress(int queued, long scanned, long migrated, long stamped,
+                                 long failed, boolean sweepComplete) {
+            this.queued = queued;
+            this.scanned = scanned;
+            this.migrated = migrated;
+            this.stamped = stamped;
+            this.failed = failed;
+            this.sweepComplete = sweepComplete;
+        }
+
+        public int getQueued() { return queued; }
+        public long getScanned() { return scanned; }
+        public long getMigrated() { return migrated; }
+        public long getStamped() { return stamped; }
+        public long getFailed() { return failed; }
+        public boolean isSweepComplete() { return sweepComplete; }
+
+        @Override
+        public String toString() {
+            return String.format("MigrationProgress{queued=%d, scanned=%d, migrated=%d, stamped=%d, failed=%d, sweepComplete=%s}",
+                    queued, scanned, migrated, stamped, failed, sweepComplete);
+        }
     }
 }
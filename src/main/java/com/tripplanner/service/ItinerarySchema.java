@@ -0,0 +1,87 @@
+package com.tripplanner.service;
+
+import com.tripplanner.dto.NormalizedDay;
+import com.tripplanner.dto.NormalizedItinerary;
+import com.tripplanner.dto.NormalizedNode;
+
+/**
+ * Schema versions of stored itineraries.
+ *
+ * Every write stamps the itinerary with the version its contents satisfy, so whether a loaded
+ * itinerary needs migrating is a comparison of one field instead of a scan of its nodes.
+ */
+public final class ItinerarySchema {
+
+    /**
+     * Node IDs may use older formats (node_..., n_..., generated UUIDs).
+     */
+    public static final int LEGACY = 1;
+
+    /**
+     * Every node ID follows day{N}_node{M}.
+     */
+    public static final int CURRENT = 2;
+
+    private ItinerarySchema() {
+    }
+
+    /**
+     * Whether an itinerary is marked with the current schema. Itineraries written before the
+     * marker existed have none and are not current.
+     */
+    public static boolean isCurrent(NormalizedItinerary itinerary) {
+        Integer schemaVersion = itinerary.getSchemaVersion();
+        return schemaVersion != null && schemaVersion >= CURRENT;
+    }
+
+    /**
+     * Mark an itinerary with the schema version its node IDs satisfy. Called before every write.
+     */
+    public static void stamp(NormalizedItinerary itinerary) {
+        itinerary.setSchemaVersion(hasStandardNodeIds(itinerary) ? CURRENT : LEGACY);
+    }
+
+    /**
+     * Whether every node ID follows the standardized pattern day{N}_node{M}.
+     */
+    public static boolean hasStandardNodeIds(NormalizedItinerary itinerary) {
+        if (itinerary.getDays() == null) {
+            return true;
+        }
+        for (NormalizedDay day : itinerary.getDays()) {
+            if (day.getNodes() == null) {
+                continue;
+            }
+            for (NormalizedNode node : day.getNodes()) {
+                if (!isStandardNodeId(node.getId())) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Whether a node ID matches {@code day\d+_node\d+}.
+     */
+    public static boolean isStandardNodeId(String nodeId) {
+        if (nodeId == null || !nodeId.startsWith("day")) {
+            return false;
+        }
+        int i = digitsEnd(nodeId, 3);
+        if (i == 3 || !nodeId.startsWith("_node", i)) {
+            return false;
+        }
+        int numberStart = i + 5;
+        int end = digitsEnd(nodeId, numberStart);
+        return end > numberStart && end == nodeId.length();
+    }
+
+    private static int digitsEnd(String text, int from) {
+        int i = from;
+        while (i < text.length() && text.charAt(i) >= '0' && text.charAt(i) <= '9') {
+            i++;
+        }
+        return i;
+    }
+}
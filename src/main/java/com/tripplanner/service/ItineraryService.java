@@ -3,8 +3,10 @@ package com.tripplanner.service;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.tripplanner.dto.*;
 import com.tripplanner.dto.ErrorEvent;
+import com.tripplanner.service.ai.LlmResponseStore;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
@@ -24,6 +26,8 @@ public class ItineraryService {
     
     private static final Logger logger = LoggerFactory.getLogger(ItineraryService.class);
     
+    private static final int MAX_LIST_PAGE_SIZE = 100;
+    
     private final ItineraryInitializationService initService;
     private final ItineraryJsonService itineraryJsonService;
     private final UserDataService userDataService;
@@ -32,6 +36,9 @@ public class ItineraryService {
     private final ItineraryMigrationService migrationService;
     private final WebSocketBroadcastService webSocketBroadcastService;
     
+    @Autowired(required = false)
+    private LlmResponseStore responseStore;
+    
     public ItineraryService(ItineraryInitializationService initService,
                             ItineraryJsonService itineraryJsonService,
                             UserDataService userDataService,
@@ -234,8 +241,8 @@ public class ItineraryService {
             }
             NormalizedItinerary ni = niOpt.get();
             
-            // Automatically migrate if needed
-            ni = migrationService.migrateIfNeeded(ni);
+            // Renumber old node IDs for this response; the stored copy is migrated in the background
+            ni = migrationService.migrateInMemory(ni);
             logger.debug("Loaded itinerary {} (version {})", id, ni.getVersion());
             
             // Calculate actual status instead of hardcoding "completed"
@@ -295,67 +302,107 @@ public class ItineraryService {
     }
     
     /**
-     * Get user's itineraries.
+     * Get one page of the user's itineraries, newest first.
      */
     public List<ItineraryDto> getUserItineraries(String userId, int page, int size) {
         logger.debug("Getting itineraries");
         
         try {
-            // Get trip metadata from UserDataService
+            // Trip list projection, served from the per-user cache after the first read
             List<TripMetadata> tripMetadataList = userDataService.getUserTripMetadata(userId);
             
             return tripMetadataList.stream()
-                    .map(metadata -> {
-                        String destination = metadata.getDestination();
-                        if (destination == null || destination.isBlank()) {
-                            destination = "Unknown Destination";
-                        }
+                    .skip(Math.max(0L, (long) page * size))
+                    .limit(Math.max(0, size))
+                    .map(this::toListItem)
+                    .toList();
+        } catch (Exception e) {
+            logger.error("Failed to get user itineraries", e);
+            throw new RuntimeException("Failed to get user itineraries", e);
+        }
+    }
+    
+    /**
+     * Get a cursor-paginated page of the user's itineraries, newest first.
+     * 
+     * @param cursor nextCursor of the previous page, or null for the first page
+     * @throws IllegalArgumentException if the cursor does not name one of the user's trips
+     */
+    public ItineraryListPage getUserItineraryPage(String userId, int limit, String cursor) {
+        int pageSize = Math.min(Math.max(limit, 1), MAX_LIST_PAGE_SIZE);
+        // Fetch one extra entry to tell whether another page follows
+        List<TripMetadata> rows = userDataService.getUserTripMetadataPage(
+                userId, cursor == null || cursor.isBlank() ? null : cursor, pageSize + 1);
+        
+        boolean hasMore = rows.size() > pageSize;
+        List<TripMetadata> page = hasMore ? rows.subList(0, pageSize) : rows;
+        List<ItineraryDto> itineraries = page.stream()
+                .map(this::toListItem)
+                .toList();
+        String nextCursor = hasMore ? page.get(page.size() - 1).getItineraryId() : null;
+        return new ItineraryListPage(itineraries, nextCursor, hasMore);
+    }
+    
+    /**
+     * List entry for a trip, built from its metadata alone.
+     */
+    private ItineraryDto toListItem(TripMetadata metadata) {
+        String destination = metadata.getDestination();
+        if (destination == null || destination.isBlank()) {
+            destination = "Unknown Destination";
+        }
 
-                        LocalDate startDate = null;
-                        if (metadata.getStartDate() != null && !metadata.getStartDate().isBlank()) {
-                            try { startDate = LocalDate.parse(metadata.getStartDate()); } catch (Exception ignored) {}
-                        }
+        LocalDate startDate = null;
+        if (metadata.getStartDate() != null && !metadata.getStartDate().isBlank()) {
+            try { startDate = LocalDate.parse(metadata.getStartDate()); } catch (Exception ignored) {}
+        }
 
-                        LocalDate endDate = null;
-                        if (metadata.getEndDate() != null && !metadata.getEndDate().isBlank()) {
-                            try { endDate = LocalDate.parse(metadata.getEndDate()); } catch (Exception ignored) {}
-                        }
+        LocalDate endDate = null;
+        if (metadata.getEndDate() != null && !metadata.getEndDate().isBlank()) {
+            try { endDate = LocalDate.parse(metadata.getEndDate()); } catch (Exception ignored) {}
+        }
 
-                        // Get actual status from the itinerary instead of hardcoding "completed"
-                        // Edge case: Use metadata status if available, otherwise fetch from itinerary
-                        String actualStatus = "completed"; // Safe default for list view
-                        try {
-                            // Check if metadata has status (optimization to avoid extra fetch)
-                            if (metadata.getStatus() != null && !metadata.getStatus().isBlank()) {
-                                actualStatus = metadata.getStatus();
-                            } else {
-                                // Fallback: fetch full itinerary to calculate status
-                                Optional<NormalizedItinerary> itinOpt = itineraryJsonService.getItinerary(metadata.getItineraryId());
-                                if (itinOpt.isPresent()) {
-                                    actualStatus = calculateItineraryStatus(itinOpt.get());
-                                }
-                            }
-                        } catch (Exception e) {
-                            logger.warn("Failed to get status for itinerary {}: {}", metadata.getItineraryId(), e.getMessage());
-                            // Keep default "completed" on error to avoid breaking UI
-                        }
+        // Status is kept current on the metadata by the trip list projection; legacy
+        // entries without one are backfilled once
+        String actualStatus = metadata.getStatus();
+        if (actualStatus == null || actualStatus.isBlank()) {
+            actualStatus = backfillStatus(metadata);
+        }
 
-                        return ItineraryDto.builder()
-                                .id(metadata.getItineraryId())
-                                .destination(destination)
-                                .startDate(startDate)
-                                .endDate(endDate)
-                                .language(metadata.getLanguage() != null ? metadata.getLanguage() : "en")
-                                .summary(metadata.getSummary())
-                                .interests(metadata.getInterests())
-                                .status(actualStatus)
-                                .build();
-                    })
-                    .toList();
+        return ItineraryDto.builder()
+                .id(metadata.getItineraryId())
+                .destination(destination)
+                .startDate(startDate)
+                .endDate(endDate)
+                .language(metadata.getLanguage() != null ? metadata.getLanguage() : "en")
+                .summary(metadata.getSummary())
+                .interests(metadata.getInterests())
+                .status(actualStatus)
+                .build();
+    }
+    
+    /**
+     * Calculate the status of a trip whose metadata predates the status field and store it on
+     * the metadata, so later list reads do not load the itinerary again.
+     */
+    private String backfillStatus(TripMetadata metadata) {
+        String actualStatus = "completed"; // Safe default for list view
+        try {
+            Optional<NormalizedItinerary> itinOpt = itineraryJsonService.getItinerary(metadata.getItineraryId());
+            if (itinOpt.isPresent()) {
+                NormalizedItinerary itinerary = itinOpt.get();
+                actualStatus = calculateItineraryStatus(itinerary);
+                itinerary.setStatus(actualStatus);
+                if (itinerary.getUserId() == null) {
+                    itinerary.setUserId(metadata.getUserId());
+                }
+                userDataService.syncTripProjection(itinerary);
+            }
         } catch (Exception e) {
-            logger.error("Failed to get user itineraries", e);
-            throw new RuntimeException("Failed to get user itineraries", e);
+            logger.warn("Failed to get status for itinerary {}: {}", metadata.getItineraryId(), e.getMessage());
+            // Keep default "completed" on error to avoid breaking UI
         }
+        return actualStatus;
     }
     
     /**
@@ -473,9 +520,15 @@ public class ItineraryService {
     }
 
     /**
-     * Load the most recent Gemini response JSON.
+     * Load the most recent stored LLM response, falling back to the sample Gemini response JSON.
      */
     private String loadLatestGeminiResponse() {
+        if (responseStore != null) {
+            Optional<String> latest = responseStore.latest();
+            if (latest.isPresent()) {
+                return latest.get();
+            }
+        }
         try {
             // Use the Barcelona response as a template
             java.nio.file.Path responsePath = java.nio.file.Paths.get("logs/gemini-responses/barcelona_3day_family.json");
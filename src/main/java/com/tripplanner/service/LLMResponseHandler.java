@@ -6,6 +6,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
@@ -23,6 +24,10 @@ public class LLMResponseHandler {
     
     private final ObjectMapper objectMapper;
     
+    // Strict schema validation also checks nested fields, enums and integer types
+    @Value("${ai.strict-schema-validation:false}")
+    private boolean strictSchemaValidation;
+    
     // Finalization tokens that indicate complete responses
     private static final Set<String> FINALIZATION_TOKENS = Set.of(
         "RESPONSE_COMPLETE",
@@ -50,6 +55,20 @@ public class LLMResponseHandler {
      * @return ProcessedResponse containing the validated and potentially repaired response
      */
     public ProcessedResponse processResponse(String response, JsonNode expectedSchema, String originalPrompt) {
+        CompiledSchema compiled = expectedSchema != null ? CompiledSchema.compile(expectedSchema) : null;
+        return processResponse(response, compiled, originalPrompt);
+    }
+    
+    /**
+     * Process an LLM response, validating against a schema compiled ahead of time.
+     * Preferred over the JsonNode overload on hot paths since the schema is not re-walked per call.
+     * 
+     * @param response The raw LLM response
+     * @param expectedSchema Optional compiled schema for validation
+     * @param originalPrompt The original prompt (for continuation requests)
+     * @return ProcessedResponse containing the validated and potentially repaired response
+     */
+    public ProcessedResponse processResponse(String response, CompiledSchema expectedSchema, String originalPrompt) {
         logger.debug("Processing LLM response of length: {}", response != null ? response.length() : 0);
         
         if (response == null || response.trim().isEmpty()) {
@@ -335,66 +354,13 @@ public class LLMResponseHandler {
     }
     
     /**
-     * Validate JSON against a schema.
+     * Validate JSON against a compiled schema.
      */
-    private ValidationResult validateAgainstSchema(JsonNode json, JsonNode schema) {
-        List<String> errors = new ArrayList<>();
-        
-        // Basic schema validation (simplified)
-        if (schema.has("required")) {
-            JsonNode required = schema.get("required");
-            if (required.isArray()) {
-                for (JsonNode requiredField : required) {
-                    String fieldName = requiredField.asText();
-                    if (!json.has(fieldName)) {
-                        errors.add("Missing required field: " + fieldName);
-                    }
-                }
-            }
-        }
-        
-        if (schema.has("properties")) {
-            JsonNode properties = schema.get("properties");
-            properties.fieldNames().forEachRemaining(fieldName -> {
-                if (json.has(fieldName)) {
-                    JsonNode fieldSchema = properties.get(fieldName);
-                    JsonNode fieldValue = json.get(fieldName);
-                    
-                    // Type validation
-                    if (fieldSchema.has("type")) {
-                        String expectedType = fieldSchema.get("type").asText();
-                        if (!isCorrectType(fieldValue, expectedType)) {
-                            errors.add("Field " + fieldName + " has incorrect type. Expected: " + expectedType);
-                        }
-                    }
-                }
-            });
-        }
-        
+    private ValidationResult validateAgainstSchema(JsonNode json, CompiledSchema schema) {
+        List<String> errors = schema.validate(json, strictSchemaValidation);
         return new ValidationResult(errors.isEmpty(), errors);
     }
     
-    /**
-     * Check if a JSON node matches the expected type.
-     */
-    private boolean isCorrectType(JsonNode node, String expectedType) {
-        switch (expectedType.toLowerCase()) {
-            case "string":
-                return node.isTextual();
-            case "number":
-            case "integer":
-                return node.isNumber();
-            case "boolean":
-                return node.isBoolean();
-            case "array":
-                return node.isArray();
-            case "object":
-                return node.isObject();
-            default:
-                return true; // Unknown type, assume valid
-        }
-    }
-    
     /**
      * Result of processing an LLM response.
      */
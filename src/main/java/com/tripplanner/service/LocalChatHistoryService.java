@@ -0,0 +1,99 @@
+package com.tripplanner.service;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Chat history kept in the embedded local store, selected with database.backend=local.
+ * Conversations are read whole and ordered in memory.
+ */
+@Service
+@ConditionalOnProperty(name = "database.backend", havingValue = "local")
+public class LocalChatHistoryService extends ChatHistoryService {
+
+    // Newest first, ties broken by descending ID as in the Firestore query
+    private static final Comparator<Map<String, Object>> NEWEST_FIRST =
+            Comparator.<Map<String, Object>>comparingLong(LocalChatHistoryService::timestampOf)
+                    .thenComparing(message -> (String) message.get("id"))
+                    .reversed();
+
+    private final LocalDocumentStore documentStore;
+
+    public LocalChatHistoryService(LocalDocumentStore documentStore,
+                                   ConversationContextCache conversationContextCache) {
+        super(conversationContextCache);
+        this.documentStore = documentStore;
+    }
+
+    @Override
+    protected List<Map<String, Object>> loadMessages(String itineraryId) {
+        List<Map<String, Object>> messages = newestFirst(itineraryId);
+        Collections.reverse(messages);
+        return messages;
+    }
+
+    @Override
+    protected List<Map<String, Object>> loadNewestMessages(String itineraryId, int limit, String before) {
+        List<Map<String, Object>> messages = newestFirst(itineraryId);
+        int start = 0;
+        if (before != null) {
+            start = -1;
+            for (int i = 0; i < messages.size(); i++) {
+                if (before.equals(messages.get(i).get("id"))) {
+                    start = i + 1;
+                    break;
+                }
+            }
+            if (start < 0) {
+                throw new IllegalArgumentException("Unknown chat history cursor: " + before);
+            }
+        }
+        return new ArrayList<>(messages.subList(start, Math.min(messages.size(), start + limit)));
+    }
+
+    @Override
+    protected String insertMessage(String itineraryId, Map<String, Object> message) {
+        String messageId = UUID.randomUUID().toString();
+        documentStore.put(messagesPath(itineraryId) + "/" + messageId, message);
+        return messageId;
+    }
+
+    @Override
+    protected int deleteMessages(String itineraryId) {
+        String collectionPath = messagesPath(itineraryId);
+        Map<String, Map> messages = documentStore.list(collectionPath, Map.class);
+        for (String messageId : messages.keySet()) {
+            documentStore.delete(collectionPath + "/" + messageId);
+        }
+        return messages.size();
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Map<String, Object>> newestFirst(String itineraryId) {
+        List<Map<String, Object>> messages = new ArrayList<>();
+        documentStore.list(messagesPath(itineraryId), Map.class).forEach((messageId, stored) -> {
+            Map<String, Object> message = new HashMap<>(stored);
+            message.put("id", messageId);
+            messages.add(message);
+        });
+        messages.sort(NEWEST_FIRST);
+        return messages;
+    }
+
+    private static String messagesPath(String itineraryId) {
+        return COLLECTION_ITINERARIES + "/" + itineraryId + "/" + SUBCOLLECTION_CHAT_MESSAGES;
+    }
+
+    private static long timestampOf(Map<String, Object> message) {
+        Object timestamp = message.get("timestamp");
+        return timestamp instanceof Number ? ((Number) timestamp).longValue() : 0L;
+    }
+}
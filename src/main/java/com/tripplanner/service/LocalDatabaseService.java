@@ -0,0 +1,482 @@
+package com.tripplanner.service;
+
+import com.tripplanner.data.entity.FirestoreItinerary;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+/**
+ * Embedded single-node storage backend, selected with database.backend=local.
+ *
+ * Documents are addressed by Firestore-style paths (collection/document[/subcollection/document...])
+ * and kept in memory, with every mutation appended to a log file that is replayed on startup.
+ * Each collection keeps an index ordered by updatedAt, so ordered and range queries do not sort.
+ * The log is rewritten as a compact snapshot once it is mostly superseded records.
+ */
+@Service
+@ConditionalOnProperty(name = "database.backend", havingValue = "local")
+public class LocalDatabaseService implements DatabaseService {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocalDatabaseService.class);
+
+    private static final String COLLECTION_ITINERARIES = "itineraries";
+    private static final String SUBCOLLECTION_REVISIONS = "revisions";
+
+    private static final String LOG_FILE = "documents.log";
+    private static final byte OP_PUT = 1;
+    private static final byte OP_DELETE = 2;
+    private static final int NO_VERSION = Integer.MIN_VALUE;
+
+    // Compact when the log is at least this large and more than half of it is superseded
+    private static final long MIN_COMPACTION_BYTES = 16L * 1024 * 1024;
+
+    private final Path logPath;
+    private final boolean syncWrites;
+
+    // Document path -> document
+    private final Map<String, StoredDocument> documents = new ConcurrentHashMap<>();
+    // Collection path -> documents ordered by updatedAt descending
+    private final Map<String, ConcurrentSkipListMap<OrderKey, StoredDocument>> collections = new ConcurrentHashMap<>();
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private FileChannel log;
+    private long liveBytes;
+
+    public LocalDatabaseService(@Value("${database.local.data-dir:./data/local-db}") String dataDir,
+                                @Value("${database.local.sync-writes:false}") boolean syncWrites) {
+        this.logPath = Paths.get(dataDir).resolve(LOG_FILE);
+        this.syncWrites = syncWrites;
+
+        try {
+            Files.createDirectories(logPath.getParent());
+            replayLog();
+            this.log = FileChannel.open(logPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to open local database at " + logPath, e);
+        }
+
+        logger.info("Local database opened at {} with {} documents in {} collections (sync writes: {})",
+                logPath, documents.size(), collections.size(), syncWrites);
+    }
+
+    @PreDestroy
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            if (log != null && log.isOpen()) {
+                log.force(true);
+                log.close();
+            }
+        } catch (IOException e) {
+            logger.error("Failed to close local database log {}", logPath, e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public FirestoreItinerary save(FirestoreItinerary itinerary) {
+        itinerary.updateTimestamp();
+        put(itineraryPath(itinerary.getId()), itinerary.getVersion(), itinerary.getJson(), itinerary.getUpdatedAt());
+        return itinerary;
+    }
+
+    @Override
+    public Optional<FirestoreItinerary> findById(String id) {
+        return Optional.ofNullable(documents.get(itineraryPath(id))).map(StoredDocument::toItinerary);
+    }
+
+    @Override
+    public boolean existsById(String id) {
+        return documents.containsKey(itineraryPath(id));
+    }
+
+    @Override
+    public List<FirestoreItinerary> findAllOrderByUpdatedAtDesc() {
+        List<FirestoreItinerary> result = new ArrayList<>();
+        for (StoredDocument document : orderedDocuments(COLLECTION_ITINERARIES)) {
+            result.add(document.toItinerary());
+        }
+        return result;
+    }
+
+    @Override
+    public List<FirestoreItinerary> findByUpdatedAtAfter(Instant timestamp) {
+        List<FirestoreItinerary> result = new ArrayList<>();
+        for (StoredDocument document : orderedDocuments(COLLECTION_ITINERARIES)) {
+            if (!document.updatedAt.isAfter(timestamp)) {
+                break; // Ordered newest first, nothing further can match
+            }
+            result.add(document.toItinerary());
+        }
+        return result;
+    }
+
+    @Override
+    public List<FirestoreItinerary> findPageOrderByUpdatedAtDesc(Instant afterUpdatedAt, String afterId, int limit) {
+        lock.readLock().lock();
+        try {
+            ConcurrentSkipListMap<OrderKey, StoredDocument> index = collections.get(COLLECTION_ITINERARIES);
+            if (index == null) {
+                return Collections.emptyList();
+            }
+            // Walk the index from the cursor, so a page costs its own size and not the collection's
+            Collection<StoredDocument> page = afterUpdatedAt == null
+                    ? index.values()
+                    : index.tailMap(new OrderKey(afterUpdatedAt, afterId), false).values();
+            List<FirestoreItinerary> result = new ArrayList<>(Math.min(limit, index.size()));
+            for (StoredDocument document : page) {
+                if (result.size() >= limit) {
+                    break;
+                }
+                result.add(document.toItinerary());
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void deleteById(String id) {
+        delete(itineraryPath(id));
+    }
+
+    @Override
+    public void saveRevision(String itineraryId, FirestoreItinerary revision) {
+        revision.updateTimestamp();
+        String path = COLLECTION_ITINERARIES + "/" + itineraryId + "/" + SUBCOLLECTION_REVISIONS + "/" + revision.getVersion();
+        put(path, revision.getVersion(), revision.getJson(), revision.getUpdatedAt());
+    }
+
+    @Override
+    public Optional<FirestoreItinerary> findRevisionByItineraryIdAndVersion(String itineraryId, Integer version) {
+        String path = COLLECTION_ITINERARIES + "/" + itineraryId + "/" + SUBCOLLECTION_REVISIONS + "/" + version;
+        return Optional.ofNullable(documents.get(path)).map(StoredDocument::toItinerary);
+    }
+
+    @Override
+    public String getDatabaseType() {
+        return "local";
+    }
+
+    @Override
+    public void saveDocument(String path, String json) {
+        validateDocumentPath(path);
+        put(path, null, json, Instant.now());
+    }
+
+    @Override
+    public Optional<Map<String, Object>> getDocument(String path) {
+        validateDocumentPath(path);
+        return Optional.ofNullable(documents.get(path)).map(StoredDocument::toMap);
+    }
+
+    @Override
+    public List<Map<String, Object>> getDocuments(String path) {
+        if (path.split("/").length % 2 == 0) {
+            throw new IllegalArgumentException("Invalid collection path format. Expected odd number of path parts for collection");
+        }
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (StoredDocument document : orderedDocuments(path)) {
+            result.add(document.toMap());
+        }
+        return result;
+    }
+
+    @Override
+    public void deleteDocument(String path) {
+        validateDocumentPath(path);
+        delete(path);
+    }
+
+    /**
+     * Documents of a collection, newest first. Returns a snapshot safe to iterate while writes continue.
+     */
+    private List<StoredDocument> orderedDocuments(String collectionPath) {
+        lock.readLock().lock();
+        try {
+            ConcurrentSkipListMap<OrderKey, StoredDocument> index = collections.get(collectionPath);
+            return index == null ? Collections.emptyList() : new ArrayList<>(index.values());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void put(String path, Integer version, String json, Instant updatedAt) {
+        StoredDocument document = new StoredDocument(path, version, json, updatedAt);
+        lock.writeLock().lock();
+        try {
+            appendRecord(OP_PUT, document);
+            apply(document);
+            maybeCompact();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to save document at path: " + path, e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void delete(String path) {
+        lock.writeLock().lock();
+        try {
+            if (!documents.containsKey(path)) {
+                return;
+            }
+            appendRecord(OP_DELETE, new StoredDocument(path, null, null, Instant.now()));
+            remove(path);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to delete document at path: " + path, e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void apply(StoredDocument document) {
+        StoredDocument previous = documents.put(document.path, document);
+        ConcurrentSkipListMap<OrderKey, StoredDocument> index =
+                collections.computeIfAbsent(document.collectionPath(), k -> new ConcurrentSkipListMap<>());
+        if (previous != null) {
+            index.remove(previous.orderKey());
+            liveBytes -= previous.recordSize();
+        }
+        index.put(document.orderKey(), document);
+        liveBytes += document.recordSize();
+    }
+
+    private void remove(String path) {
+        StoredDocument previous = documents.remove(path);
+        if (previous != null) {
+            ConcurrentSkipListMap<OrderKey, StoredDocument> index = collections.get(previous.collectionPath());
+            if (index != null) {
+                index.remove(previous.orderKey());
+            }
+            liveBytes -= previous.recordSize();
+        }
+    }
+
+    // Record layout: [int bodyLength][long crc32][body], body = op, path, version, updatedAt, json
+
+    private void appendRecord(byte op, StoredDocument document) throws IOException {
+        ByteBuffer record = encodeRecord(op, document);
+        while (record.hasRemaining()) {
+            log.write(record);
+        }
+        if (syncWrites) {
+            log.force(false);
+        }
+    }
+
+    private static ByteBuffer encodeRecord(byte op, StoredDocument document) {
+        byte[] path = document.path.getBytes(StandardCharsets.UTF_8);
+        byte[] json = document.json != null ? document.json.getBytes(StandardCharsets.UTF_8) : new byte[0];
+
+        int bodyLength = 1 + 4 + path.length + 4 + 8 + 4 + 4 + json.length;
+        ByteBuffer body = ByteBuffer.allocate(bodyLength);
+        body.put(op);
+        body.putInt(path.length).put(path);
+        body.putInt(document.version != null ? document.version : NO_VERSION);
+        body.putLong(document.updatedAt.getEpochSecond()).putInt(document.updatedAt.getNano());
+        body.putInt(document.json != null ? json.length : -1).put(json);
+
+        CRC32 crc = new CRC32();
+        crc.update(body.array());
+
+        ByteBuffer record = ByteBuffer.allocate(4 + 8 + bodyLength);
+        record.putInt(bodyLength).putLong(crc.getValue()).put(body.array());
+        record.flip();
+        return record;
+    }
+
+    /**
+     * Rebuild the in-memory state from the log. A torn record at the tail (crash during append)
+     * is discarded and the file truncated to the last complete record.
+     */
+    private void replayLog() throws IOException {
+        if (!Files.exists(logPath)) {
+            return;
+        }
+
+        long validLength = 0;
+        int records = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(logPath)))) {
+            while (true) {
+                int bodyLength;
+                try {
+                    bodyLength = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                long checksum;
+                byte[] body;
+                try {
+                    checksum = in.readLong();
+                    if (bodyLength <= 0) {
+                        break;
+                    }
+                    body = new byte[bodyLength];
+                    in.readFully(body);
+                } catch (EOFException e) {
+                    break;
+                }
+
+                CRC32 crc = new CRC32();
+                crc.update(body);
+                if (crc.getValue() != checksum) {
+                    logger.warn("Corrupt record at offset {} in {}, discarding the rest of the log", validLength, logPath);
+                    break;
+                }
+
+                decodeAndApply(ByteBuffer.wrap(body));
+                validLength += 4 + 8 + bodyLength;
+                records++;
+            }
+        }
+
+        long fileLength = Files.size(logPath);
+        if (validLength < fileLength) {
+            logger.warn("Truncating {} from {} to {} bytes after incomplete tail record", logPath, fileLength, validLength);
+            try (FileChannel channel = FileChannel.open(logPath, StandardOpenOption.WRITE)) {
+                channel.truncate(validLength);
+            }
+        }
+        logger.debug("Replayed {} records ({} bytes) from {}", records, validLength, logPath);
+    }
+
+    private void decodeAndApply(ByteBuffer body) {
+        byte op = body.get();
+        byte[] path = new byte[body.getInt()];
+        body.get(path);
+        int version = body.getInt();
+        Instant updatedAt = Instant.ofEpochSecond(body.getLong(), body.getInt());
+        int jsonLength = body.getInt();
+        String json = null;
+        if (jsonLength >= 0) {
+            byte[] jsonBytes = new byte[jsonLength];
+            body.get(jsonBytes);
+            json = new String(jsonBytes, StandardCharsets.UTF_8);
+        }
+
+        String documentPath = new String(path, StandardCharsets.UTF_8);
+        if (op == OP_DELETE) {
+            remove(documentPath);
+        } else {
+            apply(new StoredDocument(documentPath, version == NO_VERSION ? null : version, json, updatedAt));
+        }
+    }
+
+    /**
+     * Rewrite the log with only live documents once superseded records dominate it.
+     * Called with the write lock held.
+     */
+    private void maybeCompact() throws IOException {
+        long logBytes = log.size();
+        if (logBytes < MIN_COMPACTION_BYTES || liveBytes * 2 > logBytes) {
+            return;
+        }
+
+        long startTime = System.currentTimeMillis();
+        Path compacted = logPath.resolveSibling(LOG_FILE + ".compact");
+        try (FileChannel out = FileChannel.open(compacted, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            for (StoredDocument document : documents.values()) {
+                ByteBuffer record = encodeRecord(OP_PUT, document);
+                while (record.hasRemaining()) {
+                    out.write(record);
+                }
+            }
+            out.force(true);
+        }
+
+        log.close();
+        Files.move(compacted, logPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        log = FileChannel.open(logPath, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+
+        logger.info("Compacted local database log from {} to {} bytes in {} ms",
+                logBytes, log.size(), System.currentTimeMillis() - startTime);
+    }
+
+    private static String itineraryPath(String id) {
+        return COLLECTION_ITINERARIES + "/" + id;
+    }
+
+    private static void validateDocumentPath(String path) {
+        String[] pathParts = path.split("/");
+        if (pathParts.length < 2 || pathParts.length % 2 != 0) {
+            throw new IllegalArgumentException("Invalid path format. Expected: collection/document or collection/document/subcollection/subdocument");
+        }
+    }
+
+    /**
+     * Index key ordering a collection by updatedAt descending, ties broken by document ID.
+     */
+    private record OrderKey(Instant updatedAt, String id) implements Comparable<OrderKey> {
+        @Override
+        public int compareTo(OrderKey other) {
+            int byTime = other.updatedAt.compareTo(updatedAt);
+            return byTime != 0 ? byTime : id.compareTo(other.id);
+        }
+    }
+
+    private static final class StoredDocument {
+        private final String path;
+        private final Integer version;
+        private final String json;
+        private final Instant updatedAt;
+
+        private StoredDocument(String path, Integer version, String json, Instant updatedAt) {
+            this.path = path;
+            this.version = version;
+            this.json = json;
+            this.updatedAt = updatedAt;
+        }
+
+        String id() {
+            return path.substring(path.lastIndexOf('/') + 1);
+        }
+
+        String collectionPath() {
+            return path.substring(0, path.lastIndexOf('/'));
+        }
+
+        OrderKey orderKey() {
+            return new OrderKey(updatedAt, id());
+        }
+
+        long recordSize() {
+            // Approximation of the encoded size, used only for compaction accounting
+            return 37L + path.length() + (json != null ? json.length() : 0);
+        }
+
+        FirestoreItinerary toItinerary() {
+            return new FirestoreItinerary(id(), version, json, updatedAt);
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> data = new HashMap<>();
+            data.put("id", id());
+            data.put("json", json);
+            data.put("updatedAt", updatedAt);
+            if (version != null) {
+                data.put("version", version);
+            }
+            return data;
+        }
+    }
+}
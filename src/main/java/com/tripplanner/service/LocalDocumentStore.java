@@ -0,0 +1,66 @@
+package com.tripplanner.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Typed access to the path-addressed documents of {@link LocalDatabaseService}, used by the local
+ * implementations of the chat, revision, lock, idempotency and user data services. Values are
+ * stored as JSON under the same paths their Firestore counterparts use.
+ */
+@Component
+@ConditionalOnProperty(name = "database.backend", havingValue = "local")
+public class LocalDocumentStore {
+
+    private final DatabaseService databaseService;
+    private final ObjectMapper objectMapper;
+
+    public LocalDocumentStore(LocalDatabaseService databaseService, ObjectMapper objectMapper) {
+        this.databaseService = databaseService;
+        this.objectMapper = objectMapper;
+    }
+
+    public void put(String path, Object value) {
+        try {
+            databaseService.saveDocument(path, objectMapper.writeValueAsString(value));
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Failed to serialize document at path: " + path, e);
+        }
+    }
+
+    public <T> Optional<T> get(String path, Class<T> type) {
+        return databaseService.getDocument(path).map(document -> read(document, type));
+    }
+
+    /**
+     * Documents of a collection keyed by document ID, most recently written first.
+     */
+    public <T> Map<String, T> list(String collectionPath, Class<T> type) {
+        Map<String, T> values = new LinkedHashMap<>();
+        for (Map<String, Object> document : databaseService.getDocuments(collectionPath)) {
+            values.put((String) document.get("id"), read(document, type));
+        }
+        return values;
+    }
+
+    public void delete(String path) {
+        databaseService.deleteDocument(path);
+    }
+
+    private <T> T read(Map<String, Object> document, Class<T> type) {
+        try {
+            return objectMapper.readerFor(type)
+                    .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                    .readValue((String) document.get("json"));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to read document " + document.get("id"), e);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.tripplanner.service;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Idempotency records kept in the embedded local store, selected with database.backend=local.
+ */
+@Service
+@ConditionalOnProperty(name = "database.backend", havingValue = "local")
+public class LocalIdempotencyManager extends IdempotencyManager {
+
+    private final LocalDocumentStore documentStore;
+
+    public LocalIdempotencyManager(LocalDocumentStore documentStore) {
+        this.documentStore = documentStore;
+    }
+
+    @Override
+    protected Optional<IdempotencyRecord> loadRecord(String idempotencyKey) {
+        return documentStore.get(IDEMPOTENCY_COLLECTION + "/" + idempotencyKey, IdempotencyRecord.class);
+    }
+
+    @Override
+    protected void storeRecord(IdempotencyRecord record) {
+        documentStore.put(IDEMPOTENCY_COLLECTION + "/" + record.getIdempotencyKey(), record);
+    }
+
+    @Override
+    protected void deleteRecord(String idempotencyKey) {
+        documentStore.delete(IDEMPOTENCY_COLLECTION + "/" + idempotencyKey);
+    }
+
+    @Override
+    protected void removeRecordsExpiredBefore(Instant time) {
+        for (Map.Entry<String, IdempotencyRecord> entry
+                : documentStore.list(IDEMPOTENCY_COLLECTION, IdempotencyRecord.class).entrySet()) {
+            Instant expiresAt = entry.getValue().getExpiresAt();
+            if (expiresAt != null && expiresAt.isBefore(time)) {
+                deleteRecord(entry.getKey());
+            }
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package com.tripplanner.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * In-process intent classifier for chat messages.
+ *
+ * A linear softmax model over hashed features: word unigrams and bigrams plus character
+ * trigrams, with digits folded so "2pm" and "11pm" look alike. The weights are trained once at
+ * startup from the labelled examples in {@code intent/intent-examples.tsv}, and a prediction is a
+ * few hundred array lookups. Training uses L2 regularisation and label smoothing so the
+ * probabilities are not overconfident: text unlike the examples gets a low confidence, which lets
+ * callers fall back to the LLM below a threshold.
+ */
+@Service
+public class LocalIntentClassifier {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocalIntentClassifier.class);
+
+    static final String EXAMPLES_RESOURCE = "/intent/intent-examples.tsv";
+
+    private static final int FEATURE_BITS = 14;
+    private static final int FEATURE_MASK = (1 << FEATURE_BITS) - 1;
+    private static final int EPOCHS = 40;
+    private static final double LEARNING_RATE = 0.5;
+    private static final double L2 = 1e-4;
+    private static final double LABEL_SMOOTHING = 0.1;
+    private static final long TRAINING_SEED = 42L;
+
+    private final String[] labels;
+    private final float[][] weights;
+    private final float[] bias;
+
+    public LocalIntentClassifier() {
+        this(loadExamples(EXAMPLES_RESOURCE));
+    }
+
+    /**
+     * Train on the given examples.
+     *
+     * @param examples label and text pairs
+     */
+    public LocalIntentClassifier(List<Map.Entry<String, String>> examples) {
+        Map<String, Integer> labelIndex = new LinkedHashMap<>();
+        for (Map.Entry<String, String> example : examples) {
+            labelIndex.putIfAbsent(example.getKey(), labelIndex.size());
+        }
+        this.labels = labelIndex.keySet().toArray(new String[0]);
+        this.weights = new float[labels.length][1 << FEATURE_BITS];
+        this.bias = new float[labels.length];
+
+        long start = System.nanoTime();
+        train(examples, labelIndex);
+        logger.info("Trained local intent classifier on {} examples with {} intents in {} ms",
+                   examples.size(), labels.length, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Most likely intent label for the text with its probability.
+     */
+    public Prediction classify(String text) {
+        double[] probabilities = probabilities(features(text));
+        int best = 0;
+        for (int i = 1; i < probabilities.length; i++) {
+            if (probabilities[i] > probabilities[best]) {
+                best = i;
+            }
+        }
+        return new Prediction(labels[best], probabilities[best]);
+    }
+
+    /**
+     * Probability of every intent label for the text.
+     */
+    public Map<String, Double> distribution(String text) {
+        double[] probabilities = probabilities(features(text));
+        Map<String, Double> distribution = new LinkedHashMap<>();
+        for (int i = 0; i < labels.length; i++) {
+            distribution.put(labels[i], probabilities[i]);
+        }
+        return distribution;
+    }
+
+    private void train(List<Map.Entry<String, String>> examples, Map<String, Integer> labelIndex) {
+        List<int[]> featureSets = new ArrayList<>(examples.size());
+        int[] targets = new int[examples.size()];
+        for (int i = 0; i < examples.size(); i++) {
+            featureSets.add(features(examples.get(i).getValue()));
+            targets[i] = labelIndex.get(examples.get(i).getKey());
+        }
+
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < examples.size(); i++) {
+            order.add(i);
+        }
+        Random random = new Random(TRAINING_SEED);
+        double offTarget = LABEL_SMOOTHING / labels.length;
+        double onTarget = 1.0 - LABEL_SMOOTHING + offTarget;
+
+        for (int epoch = 0; epoch < EPOCHS; epoch++) {
+            Collections.shuffle(order, random);
+            double rate = LEARNING_RATE / (1.0 + epoch * 0.1);
+            for (int index : order) {
+                int[] features = featureSets.get(index);
+                double[] probabilities = probabilities(features);
+                for (int label = 0; label < labels.length; label++) {
+                    double target = label == targets[index] ? onTarget : offTarget;
+                    double gradient = probabilities[label] - target;
+                    bias[label] -= (float) (rate * gradient);
+                    float[] row = weights[label];
+                    for (int feature : features) {
+                        row[feature] -= (float) (rate * (gradient + L2 * row[feature]));
+                    }
+                }
+            }
+        }
+    }
+
+    private double[] probabilities(int[] features) {
+        double[] scores = new double[labels.length];
+        double max = Double.NEGATIVE_INFINITY;
+        for (int label = 0; label < labels.length; label++) {
+            double score = bias[label];
+            float[] row = weights[label];
+            for (int feature : features) {
+                score += row[feature];
+            }
+            scores[label] = score;
+            max = Math.max(max, score);
+        }
+        double sum = 0;
+        for (int label = 0; label < labels.length; label++) {
+            scores[label] = Math.exp(scores[label] - max);
+            sum += scores[label];
+        }
+        for (int label = 0; label < labels.length; label++) {
+            scores[label] /= sum;
+        }
+        return scores;
+    }
+
+    /**
+     * Hashed feature indices of a text.
+     */
+    static int[] features(String text) {
+        List<String> tokens = tokenize(text);
+        int[] features = new int[tokens.size() * 2 + charTrigramCount(tokens)];
+        int n = 0;
+        String previous = "<s>";
+        for (String token : tokens) {
+            features[n++] = bucket("w:" + token);
+            features[n++] = bucket("b:" + previous + " " + token);
+            previous = token;
+            String padded = "^" + token + "$";
+            for (int i = 0; i + 3 <= padded.length(); i++) {
+                features[n++] = bucket("c:" + padded.substring(i, i + 3));
+            }
+        }
+        return features;
+    }
+
+    /**
+     * Lower-cased word tokens with apostrophes dropped and digits folded to 0.
+     */
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        StringBuilder token = new StringBuilder();
+        for (int i = 0; i < text.length(); i++) {
+            char c = Character.toLowerCase(text.charAt(i));
+            if (Character.isDigit(c)) {
+                token.append('0');
+            } else if (Character.isLetter(c)) {
+                token.append(c);
+            } else if (c == '\'' || c == '\u2019') {
+                continue;
+            } else if (token.length() > 0) {
+                tokens.add(token.toString());
+                token.setLength(0);
+            }
+        }
+        if (token.length() > 0) {
+            tokens.add(token.toString());
+        }
+        return tokens;
+    }
+
+    private static int charTrigramCount(List<String> tokens) {
+        int count = 0;
+        for (String token : tokens) {
+            count += token.length();
+        }
+        return count;
+    }
+
+    private static int bucket(String feature) {
+        // FNV-1a, which spreads short strings better than String.hashCode
+        int hash = 0x811c9dc5;
+        for (int i = 0; i < feature.length(); i++) {
+            hash ^= feature.charAt(i);
+            hash *= 0x01000193;
+        }
+        return hash & FEATURE_MASK;
+    }
+
+    /**
+     * Read label and text pairs from a tab-separated resource. Blank lines and lines starting
+     * with '#' are skipped.
+     */
+    static List<Map.Entry<String, String>> loadExamples(String resource) {
+        List<Map.Entry<String, String>> examples = new ArrayList<>();
+        try (InputStream in = LocalIntentClassifier.class.getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IllegalStateException("Intent examples not found: " + resource);
+            }
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank() || line.startsWith("#")) {
+                    continue;
+                }
+                int tab = line.indexOf('\t');
+                if (tab <= 0) {
+                    throw new IllegalStateException("Malformed intent example: " + line);
+                }
+                examples.add(Map.entry(line.substring(0, tab).trim(), line.substring(tab + 1).trim()));
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to read intent examples: " + resource, e);
+        }
+        return examples;
+    }
+
+    /**
+     * Predicted intent label and its probability.
+     */
+    public static class Prediction {
+        private final String intent;
+        private final double confidence;
+
+        public Prediction(String intent, double confidence) {
+            this.intent = intent;
+            this.confidence = confidence;
+        }
+
+        public String getIntent() {
+            return intent;
+        }
+
+        public double getConfidence() {
+            return confidence;
+        }
+
+        @Override
+        public String toString() {
+            return intent + " (" + String.format("%.2f", confidence) + ")";
+        }
+    }
+}
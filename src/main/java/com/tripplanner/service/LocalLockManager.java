@@ -0,0 +1,63 @@
+package com.tripplanner.service;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Locks kept in the embedded local store, selected with database.backend=local.
+ */
+@Service
+@ConditionalOnProperty(name = "database.backend", havingValue = "local")
+public class LocalLockManager extends LockManager {
+
+    private final LocalDocumentStore documentStore;
+
+    public LocalLockManager(LocalDocumentStore documentStore) {
+        this.documentStore = documentStore;
+    }
+
+    @Override
+    protected void storeLock(NodeLock lock) {
+        documentStore.put(LOCKS_COLLECTION + "/" + lock.getNodeId(), lock);
+    }
+
+    @Override
+    protected Optional<NodeLock> loadLock(String nodeId) {
+        return documentStore.get(LOCKS_COLLECTION + "/" + nodeId, NodeLock.class);
+    }
+
+    @Override
+    protected void removeLock(String nodeId) {
+        documentStore.delete(LOCKS_COLLECTION + "/" + nodeId);
+    }
+
+    @Override
+    protected List<NodeLock> loadLocksByOwner(String ownerId) {
+        return loadAllLocks().stream()
+                .filter(lock -> ownerId.equals(lock.getOwnerId()))
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    protected List<NodeLock> loadAllLocks() {
+        return new ArrayList<>(documentStore.list(LOCKS_COLLECTION, NodeLock.class).values());
+    }
+
+    @Override
+    protected List<String> removeLocksExpiredBefore(long time) {
+        List<String> removed = new ArrayList<>();
+        for (Map.Entry<String, NodeLock> entry : documentStore.list(LOCKS_COLLECTION, NodeLock.class).entrySet()) {
+            if (entry.getValue().getExpiresAt() < time) {
+                removeLock(entry.getKey());
+                removed.add(entry.getKey());
+            }
+        }
+        return removed;
+    }
+}
@@ -0,0 +1,60 @@
+package com.tripplanner.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tripplanner.dto.NormalizedItinerary;
+import com.tripplanner.dto.RevisionRecord;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Revisions kept in the embedded local store, selected with database.backend=local.
+ */
+@Service
+@ConditionalOnProperty(name = "database.backend", havingValue = "local")
+public class LocalRevisionService extends RevisionService {
+
+    private final LocalDocumentStore documentStore;
+
+    public LocalRevisionService(LocalDocumentStore documentStore, ObjectMapper objectMapper) {
+        super(objectMapper);
+        this.documentStore = documentStore;
+    }
+
+    @Override
+    protected void storeRevision(String itineraryId, RevisionRecord revision) {
+        documentStore.put(revisionsPath(itineraryId) + "/" + revision.getRevisionId(), revision);
+    }
+
+    @Override
+    protected Optional<RevisionRecord> loadRevision(String itineraryId, String revisionId) {
+        return documentStore.get(revisionsPath(itineraryId) + "/" + revisionId, RevisionRecord.class);
+    }
+
+    @Override
+    protected List<RevisionRecord> loadRevisions(String itineraryId) {
+        return new ArrayList<>(documentStore.list(revisionsPath(itineraryId), RevisionRecord.class).values());
+    }
+
+    @Override
+    protected List<RevisionRecord> loadRevisionsAfter(String itineraryId, Long afterTimestamp) {
+        return loadRevisions(itineraryId).stream()
+                .filter(revision -> revision.getTimestamp() != null && revision.getTimestamp() > afterTimestamp)
+                .sorted(Comparator.comparing(RevisionRecord::getTimestamp))
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    protected Optional<NormalizedItinerary> loadCurrentItinerary(String itineraryId) {
+        return documentStore.get(COLLECTION_ITINERARIES + "/" + itineraryId, NormalizedItinerary.class);
+    }
+
+    private static String revisionsPath(String itineraryId) {
+        return COLLECTION_ITINERARIES + "/" + itineraryId + "/" + SUBCOLLECTION_REVISIONS;
+    }
+}
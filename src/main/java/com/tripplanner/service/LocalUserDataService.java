@@ -0,0 +1,157 @@
+package com.tripplanner.service;
+
+import com.tripplanner.dto.CanonicalPlace;
+import com.tripplanner.dto.NormalizedItinerary;
+import com.tripplanner.dto.TripMetadata;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * User data kept in the embedded local store, selected with database.backend=local.
+ * Collections are read whole and ordered in memory.
+ */
+@Service
+@ConditionalOnProperty(name = "database.backend", havingValue = "local")
+public class LocalUserDataService extends UserDataService {
+
+    private static final Comparator<Object> BY_TIMESTAMP = Comparator.comparingLong(LocalUserDataService::timestampOf);
+
+    private final LocalDocumentStore documentStore;
+
+    public LocalUserDataService(LocalDocumentStore documentStore, TripListCache tripListCache) {
+        super(tripListCache);
+        this.documentStore = documentStore;
+    }
+
+    @Override
+    protected List<TripMetadata> loadTripMetadata(String userId) {
+        return documentStore.list(tripsPath(userId), TripMetadata.class).values().stream()
+                .sorted(Comparator.comparing(TripMetadata::getCreatedAt, Comparator.nullsLast(Comparator.reverseOrder())))
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    protected List<TripMetadata> loadTripMetadataPage(String userId, String afterItineraryId, int limit) {
+        List<TripMetadata> all = loadTripMetadata(userId);
+        int from = 0;
+        if (afterItineraryId != null) {
+            from = -1;
+            for (int i = 0; i < all.size(); i++) {
+                if (afterItineraryId.equals(all.get(i).getItineraryId())) {
+                    from = i + 1;
+                    break;
+                }
+            }
+            if (from < 0) {
+                throw new IllegalArgumentException("Unknown itinerary cursor: " + afterItineraryId);
+            }
+        }
+        return new ArrayList<>(all.subList(from, Math.min(from + limit, all.size())));
+    }
+
+    @Override
+    protected Optional<TripMetadata> loadTripMetadata(String userId, String itineraryId) {
+        return documentStore.get(tripPath(userId, itineraryId), TripMetadata.class);
+    }
+
+    @Override
+    protected boolean tripMetadataExists(String userId, String itineraryId) {
+        return documentStore.get(tripPath(userId, itineraryId), Map.class).isPresent();
+    }
+
+    @Override
+    protected void storeTripMetadata(String userId, TripMetadata tripMetadata) {
+        documentStore.put(tripPath(userId, tripMetadata.getItineraryId()), tripMetadata);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected boolean updateTripMetadataFields(String userId, String itineraryId, Map<String, Object> fields) {
+        String path = tripPath(userId, itineraryId);
+        Optional<Map> stored = documentStore.get(path, Map.class);
+        if (stored.isEmpty()) {
+            return false;
+        }
+        Map<String, Object> updated = new HashMap<>(stored.get());
+        updated.putAll(fields);
+        documentStore.put(path, updated);
+        return true;
+    }
+
+    @Override
+    protected void removeTripMetadata(String userId, String itineraryId) {
+        documentStore.delete(tripPath(userId, itineraryId));
+    }
+
+    @Override
+    protected List<Object> loadUserChats(String userId, String itineraryId) {
+        List<Object> chatMessages = new ArrayList<>(documentStore.list(chatsPath(userId, itineraryId), Map.class).values());
+        chatMessages.sort(BY_TIMESTAMP);
+        return chatMessages;
+    }
+
+    @Override
+    protected void addUserChat(String userId, String itineraryId, Object chatMessage) {
+        documentStore.put(chatsPath(userId, itineraryId) + "/" + UUID.randomUUID(), chatMessage);
+    }
+
+    @Override
+    protected void storeItineraryRevision(String userId, String itineraryId, String revisionId, NormalizedItinerary revision) {
+        documentStore.put(revisionPath(userId, itineraryId, revisionId), revision);
+    }
+
+    @Override
+    protected boolean itineraryRevisionExists(String userId, String itineraryId, String revisionId) {
+        return documentStore.get(revisionPath(userId, itineraryId, revisionId), Map.class).isPresent();
+    }
+
+    @Override
+    protected void storeCanonicalPlace(CanonicalPlace canonicalPlace) {
+        documentStore.put(CANONICAL_PLACES_COLLECTION + "/" + canonicalPlace.getPlaceId(), canonicalPlace);
+    }
+
+    @Override
+    protected Optional<CanonicalPlace> loadCanonicalPlace(String placeId) {
+        return documentStore.get(CANONICAL_PLACES_COLLECTION + "/" + placeId, CanonicalPlace.class);
+    }
+
+    @Override
+    protected List<CanonicalPlace> loadAllCanonicalPlaces() {
+        return new ArrayList<>(documentStore.list(CANONICAL_PLACES_COLLECTION, CanonicalPlace.class).values());
+    }
+
+    @Override
+    protected void removeCanonicalPlace(String placeId) {
+        documentStore.delete(CANONICAL_PLACES_COLLECTION + "/" + placeId);
+    }
+
+    private static String tripsPath(String userId) {
+        return USERS_COLLECTION + "/" + userId + "/" + ITINERARIES_SUBCOLLECTION;
+    }
+
+    private static String tripPath(String userId, String itineraryId) {
+        return tripsPath(userId) + "/" + itineraryId;
+    }
+
+    private static String chatsPath(String userId, String itineraryId) {
+        return tripPath(userId, itineraryId) + "/" + CHATS_SUBCOLLECTION;
+    }
+
+    private static String revisionPath(String userId, String itineraryId, String revisionId) {
+        return tripPath(userId, itineraryId) + "/" + REVISIONS_SUBCOLLECTION + "/" + revisionId;
+    }
+
+    private static long timestampOf(Object chatMessage) {
+        Object timestamp = chatMessage instanceof Map ? ((Map<?, ?>) chatMessage).get("timestamp") : null;
+        return timestamp instanceof Number ? ((Number) timestamp).longValue() : 0L;
+    }
+}
@@ -1,11 +1,8 @@
 package com.tripplanner.service;
 
-import com.google.cloud.firestore.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Scheduled;
-import org.springframework.stereotype.Service;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
@@ -14,25 +11,40 @@ import java.util.concurrent.ExecutionException;
 /**
  * Manages distributed locks for itinerary nodes and operations with TTL-based expiration.
  * Prevents concurrent modifications and provides metadata about lock ownership.
+ * Locks are stored in the node_locks collection, in Firestore by default or in the embedded
+ * local store with database.backend=local.
  */
-@Service
-public class LockManager {
+public abstract class LockManager {
     
     private static final Logger logger = LoggerFactory.getLogger(LockManager.class);
     
-    @Autowired
-    private Firestore firestore;
-    
     // In-memory cache for frequently accessed locks
     private final Map<String, NodeLock> lockCache = new ConcurrentHashMap<>();
     private final Map<String, Long> cacheTimestamps = new ConcurrentHashMap<>();
     
     // Configuration
-    private static final String LOCKS_COLLECTION = "node_locks";
+    protected static final String LOCKS_COLLECTION = "node_locks";
     private static final long DEFAULT_LOCK_TTL_MS = 300000; // 5 minutes
     private static final long CACHE_TTL_MS = 30000; // 30 seconds
     private static final long CLEANUP_INTERVAL_MS = 60000; // 1 minute
     
+    protected abstract void storeLock(NodeLock lock) throws ExecutionException, InterruptedException;
+    
+    protected abstract Optional<NodeLock> loadLock(String nodeId) throws ExecutionException, InterruptedException;
+    
+    protected abstract void removeLock(String nodeId) throws ExecutionException, InterruptedException;
+    
+    protected abstract List<NodeLock> loadLocksByOwner(String ownerId) throws ExecutionException, InterruptedException;
+    
+    protected abstract List<NodeLock> loadAllLocks() throws ExecutionException, InterruptedException;
+    
+    /**
+     * Delete locks that expired before the given time.
+     *
+     * @return IDs of the nodes whose locks were deleted
+     */
+    protected abstract List<String> removeLocksExpiredBefore(long time) throws ExecutionException, InterruptedException;
+    
     /**
      * Acquire a lock on a specific node.
      * 
@@ -82,7 +94,7 @@ public class LockManager {
                         existing.setLockType(lockType);
                         existing.setExpiresAt(expiresAt);
                         existing.setUpdatedAt(System.currentTimeMillis());
-                        saveLock(existing);
+                        storeLock(existing);
                         cacheTimestamps.put(nodeId, System.currentTimeMillis());
                         return new LockResult(true, "Lock extended/upgraded", existing);
                     }
@@ -91,7 +103,7 @@ public class LockManager {
             
             // Create new lock
             NodeLock newLock = new NodeLock(nodeId, lockType, ownerId, expiresAt);
-            saveLock(newLock);
+            storeLock(newLock);
             
             // Cache the lock
             lockCache.put(nodeId, newLock);
@@ -135,11 +147,8 @@ public class LockManager {
                 return false;
             }
             
-            // Remove from Firestore
-            firestore.collection(LOCKS_COLLECTION)
-                    .document(nodeId)
-                    .delete()
-                    .get();
+            // Remove from storage
+            removeLock(nodeId);
             
             // Remove from cache
             lockCache.remove(nodeId);
@@ -184,23 +193,15 @@ public class LockManager {
                 return Optional.of(cached);
             }
             
-            // Load from Firestore
-            DocumentSnapshot doc = firestore.collection(LOCKS_COLLECTION)
-                    .document(nodeId)
-                    .get()
-                    .get();
-            
-            if (doc.exists()) {
-                NodeLock lock = doc.toObject(NodeLock.class);
-                if (lock != null) {
-                    // Cache the lock
-                    lockCache.put(nodeId, lock);
-                    cacheTimestamps.put(nodeId, System.currentTimeMillis());
-                    return Optional.of(lock);
-                }
-            }
+            // Load from storage
+            Optional<NodeLock> lock = loadLock(nodeId);
+            lock.ifPresent(loaded -> {
+                // Cache the lock
+                lockCache.put(nodeId, loaded);
+                cacheTimestamps.put(nodeId, System.currentTimeMillis());
+            });
             
-            return Optional.empty();
+            return lock;
             
         } catch (Exception e) {
             logger.error("Failed to get lock for node: {}", nodeId, e);
@@ -216,15 +217,9 @@ public class LockManager {
      */
     public List<NodeLock> getLocksByOwner(String ownerId) {
         try {
-            QuerySnapshot querySnapshot = firestore.collection(LOCKS_COLLECTION)
-                    .whereEqualTo("ownerId", ownerId)
-                    .get()
-                    .get();
-            
             List<NodeLock> locks = new ArrayList<>();
-            for (DocumentSnapshot doc : querySnapshot.getDocuments()) {
-                NodeLock lock = doc.toObject(NodeLock.class);
-                if (lock != null && !lock.isExpired()) {
+            for (NodeLock lock : loadLocksByOwner(ownerId)) {
+                if (!lock.isExpired()) {
                     locks.add(lock);
                 }
             }
@@ -290,7 +285,7 @@ public class LockManager {
             // Extend the lock
             lock.setExpiresAt(lock.getExpiresAt() + additionalTtlMs);
             lock.setUpdatedAt(System.currentTimeMillis());
-            saveLock(lock);
+            storeLock(lock);
             
             // Update cache
             lockCache.put(nodeId, lock);
@@ -310,27 +305,20 @@ public class LockManager {
      */
     public LockStatistics getStatistics() {
         try {
-            QuerySnapshot allLocks = firestore.collection(LOCKS_COLLECTION)
-                    .get()
-                    .get();
-            
             int totalLocks = 0;
             int expiredLocks = 0;
             Map<LockType, Integer> lockTypeCount = new HashMap<>();
             Map<String, Integer> ownerCount = new HashMap<>();
             
-            for (DocumentSnapshot doc : allLocks.getDocuments()) {
-                NodeLock lock = doc.toObject(NodeLock.class);
-                if (lock != null) {
-                    totalLocks++;
-                    
-                    if (lock.isExpired()) {
-                        expiredLocks++;
-                    }
-                    
-                    lockTypeCount.merge(lock.getLockType(), 1, Integer::sum);
-                    ownerCount.merge(lock.getOwnerId(), 1, Integer::sum);
+            for (NodeLock lock : loadAllLocks()) {
+                totalLocks++;
+                
+                if (lock.isExpired()) {
+                    expiredLocks++;
                 }
+                
+                lockTypeCount.merge(lock.getLockType(), 1, Integer::sum);
+                ownerCount.merge(lock.getOwnerId(), 1, Integer::sum);
             }
             
             return new LockStatistics(totalLocks, expiredLocks, lockTypeCount, 
@@ -352,16 +340,10 @@ public class LockManager {
         try {
             long currentTime = System.currentTimeMillis();
             
-            QuerySnapshot expiredLocks = firestore.collection(LOCKS_COLLECTION)
-                    .whereLessThan("expiresAt", currentTime)
-                    .get()
-                    .get();
-            
             int cleanedCount = 0;
-            for (DocumentSnapshot doc : expiredLocks.getDocuments()) {
-                doc.getReference().delete();
-                lockCache.remove(doc.getId());
-                cacheTimestamps.remove(doc.getId());
+            for (String nodeId : removeLocksExpiredBefore(currentTime)) {
+                lockCache.remove(nodeId);
+                cacheTimestamps.remove(nodeId);
                 cleanedCount++;
             }
             
@@ -398,16 +380,6 @@ public class LockManager {
         }
     }
     
-    /**
-     * Save lock to Firestore.
-     */
-    private void saveLock(NodeLock lock) throws ExecutionException, InterruptedException {
-        firestore.collection(LOCKS_COLLECTION)
-                .document(lock.getNodeId())
-                .set(lock)
-                .get();
-    }
-    
     /**
      * Get lock from cache if valid.
      */
@@ -21,6 +21,12 @@ public class NodeIdGenerator {
     private static final Logger logger = LoggerFactory.getLogger(NodeIdGenerator.class);
     private static final String NODE_PREFIX = "node";
     
+    // Current format day{N}_node{M}, and the older formats still found in stored itineraries
+    private static final Pattern NODE_ID_PATTERN = Pattern.compile("day\\d+_node(\\d+)");
+    private static final Pattern SKELETON_ID_PATTERN = Pattern.compile("day\\d+_\\w+_(\\d+)");
+    private static final Pattern LEGACY_DAY_ID_PATTERN = Pattern.compile("node_\\w+_day\\d+_\\d+_[a-z0-9]{8}");
+    private static final Pattern LEGACY_ID_PATTERN = Pattern.compile("node_\\w+_\\d+_[a-z0-9]{8}");
+    
     /**
      * Primary ID generation method for general use.
      * Generates IDs in format: day{N}_node{M} where N is day number and M is sequential node number.
@@ -153,15 +159,13 @@ public class NodeIdGenerator {
         }
         
         // Try new format: day{N}_node{M}
-        Pattern newPattern = Pattern.compile("day\\d+_node(\\d+)");
-        Matcher newMatcher = newPattern.matcher(nodeId);
+        Matcher newMatcher = NODE_ID_PATTERN.matcher(nodeId);
         if (newMatcher.find()) {
             return Integer.parseInt(newMatcher.group(1));
         }
         
         // Try old skeleton format: day{N}_{type}_{M}
-        Pattern oldSkeletonPattern = Pattern.compile("day\\d+_\\w+_(\\d+)");
-        Matcher oldSkeletonMatcher = oldSkeletonPattern.matcher(nodeId);
+        Matcher oldSkeletonMatcher = SKELETON_ID_PATTERN.matcher(nodeId);
         if (oldSkeletonMatcher.find()) {
             return Integer.parseInt(oldSkeletonMatcher.group(1));
         }
@@ -215,22 +219,22 @@ public class NodeIdGenerator {
         }
         
         // Check for new standardized format: day{number}_node{number}
-        if (id.matches("day\\d+_node\\d+")) {
+        if (NODE_ID_PATTERN.matcher(id).matches()) {
             return true;
         }
         
         // Check for old skeleton format: day{number}_{type}_{index}
-        if (id.matches("day\\d+_\\w+_\\d+")) {
+        if (SKELETON_ID_PATTERN.matcher(id).matches()) {
             return true;
         }
         
         // Check for old general format with day: node_{type}_day{n}_{timestamp}_{uuid}
-        if (id.matches("node_\\w+_day\\d+_\\d+_[a-z0-9]{8}")) {
+        if (LEGACY_DAY_ID_PATTERN.matcher(id).matches()) {
             return true;
         }
         
         // Check for old general format without day: node_{type}_{timestamp}_{uuid}
-        if (id.matches("node_\\w+_\\d+_[a-z0-9]{8}")) {
+        if (LEGACY_ID_PATTERN.matcher(id).matches()) {
             return true;
         }
         
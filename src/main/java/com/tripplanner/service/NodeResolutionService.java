@@ -4,11 +4,13 @@ import com.tripplanner.dto.NodeCandidate;
 import com.tripplanner.dto.NormalizedItinerary;
 import com.tripplanner.dto.NormalizedDay;
 import com.tripplanner.dto.NormalizedNode;
+import com.tripplanner.util.KeywordMatcher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.text.Normalizer;
 
@@ -21,6 +23,17 @@ public class NodeResolutionService {
     
     private static final Logger logger = LoggerFactory.getLogger(NodeResolutionService.class);
     
+    // Common words mapped to node types, matched anywhere in the text
+    private static final KeywordMatcher<String> TYPE_HINTS = KeywordMatcher.<String>builder()
+        .substring("meal", "restaurant", "eat", "lunch", "dinner", "food")
+        .substring("attraction", "museum", "attraction", "sight", "visit")
+        .substring("accommodation", "hotel", "stay", "accommodation")
+        .substring("transit", "transport", "taxi", "bus", "train")
+        .build();
+    
+    private static final Pattern DIACRITICAL_MARKS = Pattern.compile("\\p{M}");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    
     private final ItineraryJsonService itineraryJsonService;
     
     public NodeResolutionService(ItineraryJsonService itineraryJsonService) {
@@ -77,6 +90,7 @@ public class NodeResolutionService {
     private List<NodeCandidate> searchByTitle(String text, List<NormalizedDay> days) {
         List<NodeCandidate> candidates = new ArrayList<>();
         String searchText = text.toLowerCase().trim();
+        String normalizedSearch = normalizeText(searchText);
         
         for (NormalizedDay day : days) {
             for (NormalizedNode node : day.getNodes()) {
@@ -93,7 +107,7 @@ public class NodeResolutionService {
                             node.getLocation() != null ? node.getLocation().getName() : null,
                             0.9 // High confidence for substring match
                         ));
-                    } else if (isSimilarAfterNormalization(searchText, nodeTitle)) {
+                    } else if (isSimilarAfterNormalization(normalizedSearch, nodeTitle)) {
                         // Check normalized similarity for special characters
                         candidates.add(NodeCandidate.of(
                             node.getId(),
@@ -130,6 +144,7 @@ public class NodeResolutionService {
     private List<NodeCandidate> searchByLocation(String text, List<NormalizedDay> days) {
         List<NodeCandidate> candidates = new ArrayList<>();
         String searchText = text.toLowerCase().trim();
+        String normalizedSearch = normalizeText(searchText);
         
         for (NormalizedDay day : days) {
             for (NormalizedNode node : day.getNodes()) {
@@ -146,7 +161,7 @@ public class NodeResolutionService {
                             node.getLocation().getName(),
                             0.8 // High confidence for location match
                         ));
-                    } else if (isSimilarAfterNormalization(searchText, locationName)) {
+                    } else if (isSimilarAfterNormalization(normalizedSearch, locationName)) {
                         // Check normalized similarity for special characters
                         candidates.add(NodeCandidate.of(
                             node.getId(),
@@ -184,32 +199,9 @@ public class NodeResolutionService {
         List<NodeCandidate> candidates = new ArrayList<>();
         String searchText = text.toLowerCase().trim();
         
-        // Map common words to node types
-        Map<String, String> typeMapping = new HashMap<>();
-        typeMapping.put("restaurant", "meal");
-        typeMapping.put("eat", "meal");
-        typeMapping.put("lunch", "meal");
-        typeMapping.put("dinner", "meal");
-        typeMapping.put("food", "meal");
-        typeMapping.put("museum", "attraction");
-        typeMapping.put("attraction", "attraction");
-        typeMapping.put("sight", "attraction");
-        typeMapping.put("visit", "attraction");
-        typeMapping.put("hotel", "accommodation");
-        typeMapping.put("stay", "accommodation");
-        typeMapping.put("accommodation", "accommodation");
-        typeMapping.put("transport", "transit");
-        typeMapping.put("taxi", "transit");
-        typeMapping.put("bus", "transit");
-        typeMapping.put("train", "transit");
-        
-        String targetType = null;
-        for (Map.Entry<String, String> entry : typeMapping.entrySet()) {
-            if (searchText.contains(entry.getKey())) {
-                targetType = entry.getValue();
-                break;
-            }
-        }
+        // The first type hint in the text decides the node type
+        KeywordMatcher.Match<String> hint = TYPE_HINTS.findFirst(searchText);
+        String targetType = hint != null ? hint.getLabel() : null;
         
         if (targetType != null) {
             for (NormalizedDay day : days) {
@@ -331,24 +323,25 @@ public class NodeResolutionService {
         String normalized = Normalizer.normalize(text, Normalizer.Form.NFD);
         
         // Remove diacritical marks (accents)
-        normalized = normalized.replaceAll("\\p{M}", "");
+        normalized = DIACRITICAL_MARKS.matcher(normalized).replaceAll("");
         
         // Convert to lowercase for case-insensitive comparison
         normalized = normalized.toLowerCase();
         
         // Remove extra whitespace
-        normalized = normalized.trim().replaceAll("\\s+", " ");
+        normalized = WHITESPACE.matcher(normalized.trim()).replaceAll(" ");
         
         return normalized;
     }
     
     /**
      * Check if two strings are similar after normalization
+     * 
+     * @param norm1 search text already passed through normalizeText
      */
-    private boolean isSimilarAfterNormalization(String text1, String text2) {
-        if (text1 == null || text2 == null) return false;
+    private boolean isSimilarAfterNormalization(String norm1, String text2) {
+        if (norm1 == null || text2 == null) return false;
         
-        String norm1 = normalizeText(text1);
         String norm2 = normalizeText(text2);
         
         return norm1.equals(norm2) || 
@@ -5,12 +5,16 @@ import com.tripplanner.dto.*;
 import com.tripplanner.agents.BaseAgent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Service for orchestrating chat requests and routing them to appropriate handlers.
@@ -28,6 +32,19 @@ public class OrchestratorService {
     private final LLMService llmService;
     private final AgentRegistry agentRegistry;
     private final ChatHistoryService chatHistoryService;
+    private final ConversationContextCache conversationContextCache;
+    
+    // Chat requests run as interactive work ahead of itinerary generations
+    @Autowired(required = false)
+    private AgentWorkScheduler workScheduler;
+    
+    // How long a chat request may wait for a worker before the user is asked to retry
+    @Value("${agent.scheduler.interactive-max-wait-ms:30000}")
+    private long interactiveMaxWaitMs;
+    
+    // Recent chat messages included in the LLM context
+    @Value("${chat.context-cache.window-size:5}")
+    private int contextWindowSize = 5;
     
     public OrchestratorService(IntentClassificationService intentClassificationService,
                               NodeResolutionService nodeResolutionService,
@@ -35,7 +52,8 @@ public class OrchestratorService {
                               ItineraryJsonService itineraryJsonService,
                               LLMService llmService,
                               AgentRegistry agentRegistry,
-                              ChatHistoryService chatHistoryService) {
+                              ChatHistoryService chatHistoryService,
+                              ConversationContextCache conversationContextCache) {
         this.intentClassificationService = intentClassificationService;
         this.nodeResolutionService = nodeResolutionService;
         this.changeEngine = changeEngine;
@@ -43,6 +61,7 @@ public class OrchestratorService {
         this.llmService = llmService;
         this.agentRegistry = agentRegistry;
         this.chatHistoryService = chatHistoryService;
+        this.conversationContextCache = conversationContextCache;
     }
     
     /**
@@ -50,14 +69,32 @@ public class OrchestratorService {
      */
     public ChatResponse route(ChatRequest request) {
         logger.info("Routing chat request: {}", request);
+        if (workScheduler == null) {
+            return routeRequest(request);
+        }
         
         try {
-            // Step 1: Get itinerary context + chat history for LLM classification
-            String context = buildContextForLLM(request.getItineraryId());
-            
-            // Step 2: Classify intent using LLM
-            IntentResult intent = classifyIntentWithLLM(request.getText(), context);
-            logger.debug("LLM classified intent: {}", intent);
+            return workScheduler.call(AgentWorkScheduler.WorkClass.INTERACTIVE, request.getUserId(),
+                                      request.getItineraryId(), interactiveMaxWaitMs, () -> routeRequest(request));
+        } catch (RejectedExecutionException | TimeoutException e) {
+            logger.warn("Chat request for itinerary {} not run: {}", request.getItineraryId(), e.getMessage());
+            return ChatResponse.error("The assistant is busy right now, please try again in a moment", List.of(e.getMessage()));
+        } catch (Exception e) {
+            logger.error("Error routing chat request", e);
+            return ChatResponse.error("An error occurred while processing your request", List.of(e.getMessage()));
+        }
+    }
+    
+    private ChatResponse routeRequest(ChatRequest request) {
+        try {
+            // Step 1-2: Classify intent locally, building context and asking the LLM only when unsure
+            IntentResult intent = intentClassificationService.classifyLocally(
+                request.getText(), request.getSelectedNodeId(), request.getDay());
+            if (intent == null) {
+                String context = buildContextForLLM(request.getItineraryId());
+                intent = classifyIntentWithLLM(request.getText(), context);
+            }
+            logger.debug("Classified intent: {}", intent);
             
             // Step 2.5: Handle conversational/greeting intents
             if (isConversationalIntent(intent, request.getText())) {
@@ -133,6 +170,8 @@ public class OrchestratorService {
     
     /**
      * Build comprehensive context for LLM including itinerary + chat history.
+     * Both come from the conversation context cache, so only the first message of a
+     * conversation pays for the Firestore reads.
      */
     private String buildContextForLLM(String itineraryId) {
         StringBuilder context = new StringBuilder();
@@ -142,14 +181,11 @@ public class OrchestratorService {
         
         // Add recent chat history for conversation continuity
         try {
-            List<Map<String, Object>> history = chatHistoryService.getChatHistory(itineraryId);
-            if (history != null && !history.isEmpty()) {
-                context.append("\n\nRecent conversation (last 5 messages):\n");
+            List<Map<String, Object>> history = chatHistoryService.getRecentMessages(itineraryId, contextWindowSize);
+            if (!history.isEmpty()) {
+                context.append("\n\nRecent conversation (last ").append(history.size()).append(" messages):\n");
                 
-                // Get last 5 messages for context
-                int start = Math.max(0, history.size() - 5);
-                for (int i = start; i < history.size(); i++) {
-                    Map<String, Object> msg = history.get(i);
+                for (Map<String, Object> msg : history) {
                     String sender = "user".equals(msg.get("sender")) ? "User" : "Assistant";
                     String message = (String) msg.get("message");
                     context.append(sender).append(": ").append(message).append("\n");
@@ -168,24 +204,10 @@ public class OrchestratorService {
      */
     private String getItineraryContext(String itineraryId) {
         try {
-            Optional<NormalizedItinerary> itineraryOpt = itineraryJsonService.getMasterItinerary(itineraryId);
-            if (itineraryOpt.isPresent()) {
-                NormalizedItinerary itinerary = itineraryOpt.get();
-                
-                // Build concise context for LLM
-                StringBuilder context = new StringBuilder();
-                context.append("Itinerary: ").append(itinerary.getSummary()).append("\n");
-                context.append("Days: ").append(itinerary.getDays().size()).append("\n");
-                context.append("Currency: ").append(itinerary.getCurrency()).append("\n");
-                
-                // Add day summaries
-                for (NormalizedDay day : itinerary.getDays()) {
-                    context.append("Day ").append(day.getDayNumber())
-                           .append(" (").append(day.getLocation()).append("): ");
-                    context.append(day.getNodes().size()).append(" activities\n");
-                }
-                
-                return context.toString();
+            String summary = conversationContextCache.getItinerarySummary(
+                itineraryId, () -> itineraryJsonService.getMasterItinerary(itineraryId));
+            if (summary != null) {
+                return summary;
             }
         } catch (Exception e) {
             logger.error("Error getting itinerary context for LLM", e);
@@ -198,8 +220,12 @@ public class OrchestratorService {
      * Check if intent is conversational/greeting (low confidence or casual text).
      */
     private boolean isConversationalIntent(IntentResult intent, String text) {
-        // Check for low confidence
-        if (intent.getConfidence() < 0.4) {
+        if ("CHAT".equals(intent.getIntent())) {
+            return true;
+        }
+        
+        // Check for low confidence (rule-based results carry none)
+        if (intent.getConfidence() != null && intent.getConfidence() < 0.4) {
             return true;
         }
         
@@ -655,13 +681,9 @@ public class OrchestratorService {
                 return null;
             }
             
-            var itinerary = itineraryOpt.get();
-            for (var day : itinerary.getDays()) {
-                for (var node : day.getNodes()) {
-                    if (nodeId.equals(node.getId())) {
-                        return day.getDayNumber();
-                    }
-                }
+            var day = itineraryOpt.get().getNodeIndex().getDayOfNode(nodeId);
+            if (day != null) {
+                return day.getDayNumber();
             }
             
             logger.warn("Node not found for day lookup: {}", nodeId);
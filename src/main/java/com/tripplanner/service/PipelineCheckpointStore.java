@@ -0,0 +1,353 @@
+package com.tripplanner.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Per-execution checkpoint logs for itinerary generation.
+ *
+ * Each generation appends the output of every step it completes (skeleton days, populated days,
+ * enrichment change sets, phase snapshots) to a JSON-lines log under the checkpoint directory,
+ * forced to disk before the step is considered done. A retry or a restarted instance that opens
+ * the log for the same itinerary and request skips the recorded steps instead of paying for
+ * their LLM calls again. Logs are deleted when the generation completes and expire after the TTL.
+ */
+@Service
+public class PipelineCheckpointStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(PipelineCheckpointStore.class);
+
+    private static final String LOG_SUFFIX = ".log";
+    private static final String START = "start";
+    private static final String ENTRY = "entry";
+    private static final String RESUME = "resume";
+    private static final String FAILED = "failed";
+
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final Path checkpointDir;
+    private final long ttlMs;
+
+    public PipelineCheckpointStore(ObjectMapper objectMapper,
+                                   @Value("${itinerary.generation.pipeline.checkpoint.enabled:true}") boolean enabled,
+                                   @Value("${itinerary.generation.pipeline.checkpoint.dir:./data/pipeline-checkpoints}") String checkpointDir,
+                                   @Value("${itinerary.generation.pipeline.checkpoint.ttl-hours:24}") long ttlHours) {
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.checkpointDir = Paths.get(checkpointDir);
+        this.ttlMs = ttlHours * 60 * 60 * 1000;
+
+        if (enabled) {
+            try {
+                Files.createDirectories(this.checkpointDir);
+            } catch (IOException e) {
+                throw new IllegalStateException("Failed to create checkpoint directory " + this.checkpointDir, e);
+            }
+            logger.info("Pipeline checkpoints stored in {} (TTL: {} h)", this.checkpointDir, ttlHours);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Open the checkpoint log of one generation, resuming the existing log if it was written for
+     * the same request within the TTL and starting a new one otherwise.
+     *
+     * @param source Which pipeline writes the log, so different pipelines never share one
+     */
+    public Checkpoint open(String source, String itineraryId, Object request, String userId) {
+        if (!enabled) {
+            return Checkpoint.NONE;
+        }
+        Path file = logFile(source, itineraryId);
+        try {
+            String fingerprint = fingerprint(request);
+            LogContents existing = read(file);
+            if (existing != null && fingerprint.equals(existing.header.path("fingerprint").asText())
+                    && itineraryId.equals(existing.header.path("itineraryId").asText()) && !isExpired(existing.header)) {
+                Checkpoint checkpoint = new Checkpoint(objectMapper, file, existing.entries, true);
+                checkpoint.append(marker(RESUME));
+                logger.info("Resuming {} generation of itinerary {} from {} checkpointed steps",
+                           source, itineraryId, existing.entries.size());
+                return checkpoint;
+            }
+
+            ObjectNode header = marker(START);
+            header.put("itineraryId", itineraryId);
+            header.put("userId", userId);
+            header.put("fingerprint", fingerprint);
+            header.put("startedAt", System.currentTimeMillis());
+            header.set("request", objectMapper.valueToTree(request));
+            Files.deleteIfExists(file);
+            Checkpoint checkpoint = new Checkpoint(objectMapper, file, new LinkedHashMap<>(), false);
+            checkpoint.append(header);
+            return checkpoint;
+        } catch (IOException e) {
+            logger.warn("Failed to open checkpoint log {}, generating without checkpoints: {}", file, e.getMessage());
+            return Checkpoint.NONE;
+        }
+    }
+
+    /**
+     * Generations of the given source that stopped without completing or failing, such as those
+     * running when the previous instance shut down. Expired logs of every source are deleted on
+     * the way, including those of pipelines that are never resumed on startup.
+     *
+     * @param maxResumes Skip logs already resumed this often, so one bad request cannot crash-loop
+     */
+    public List<InterruptedRun> findInterrupted(String source, int maxResumes) {
+        if (!enabled) {
+            return Collections.emptyList();
+        }
+        List<InterruptedRun> runs = new ArrayList<>();
+        try (DirectoryStream<Path> logs = Files.newDirectoryStream(checkpointDir, "*" + LOG_SUFFIX)) {
+            for (Path file : logs) {
+                LogContents contents = read(file);
+                if (contents == null || isExpired(contents.header)) {
+                    Files.deleteIfExists(file);
+                    continue;
+                }
+                if (file.getFileName().toString().startsWith(source + "-") && !contents.failed && contents.resumes < maxResumes) {
+                    runs.add(new InterruptedRun(contents.header.path("itineraryId").asText(),
+                            contents.header.path("userId").asText(null), contents.header.path("request"),
+                            contents.entries.size()));
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to list checkpoint logs in {}: {}", checkpointDir, e.getMessage());
+        }
+        return runs;
+    }
+
+    private Path logFile(String source, String itineraryId) {
+        return checkpointDir.resolve(source + "-" + itineraryId.replaceAll("[^A-Za-z0-9_-]", "_") + LOG_SUFFIX);
+    }
+
+    private boolean isExpired(JsonNode header) {
+        return header.path("startedAt").asLong() + ttlMs < System.currentTimeMillis();
+    }
+
+    private ObjectNode marker(String type) {
+        ObjectNode node = objectMapper.createObjectNode();
+        node.put("type", type);
+        return node;
+    }
+
+    private String fingerprint(Object request) throws IOException {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(objectMapper.writeValueAsBytes(request)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Read a log, truncating a torn last line left by a crash mid-append.
+     *
+     * @return The log contents, or null if the file is missing or has no valid header
+     */
+    private LogContents read(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return null;
+        }
+        byte[] bytes = Files.readAllBytes(file);
+        LogContents contents = null;
+        int lineStart = 0;
+        int validEnd = 0;
+        for (int i = 0; i < bytes.length; i++) {
+            if (bytes[i] != '\n') {
+                continue;
+            }
+            JsonNode line;
+            try {
+                line = objectMapper.readTree(new String(bytes, lineStart, i - lineStart, StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                break;
+            }
+            String type = line.path("type").asText();
+            if (contents == null) {
+                if (!START.equals(type)) {
+                    return null;
+                }
+                contents = new LogContents(line);
+            } else if (ENTRY.equals(type)) {
+                contents.entries.put(line.path("key").asText(), line.path("value"));
+            } else if (RESUME.equals(type)) {
+                contents.resumes++;
+            } else if (FAILED.equals(type)) {
+                contents.failed = true;
+            }
+            lineStart = i + 1;
+            validEnd = lineStart;
+        }
+        if (validEnd < bytes.length) {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                channel.truncate(validEnd);
+            }
+        }
+        return contents;
+    }
+
+    private static final class LogContents {
+        private final JsonNode header;
+        private final Map<String, JsonNode> entries = new LinkedHashMap<>();
+        private int resumes;
+        private boolean failed;
+
+        private LogContents(JsonNode header) {
+            this.header = header;
+        }
+    }
+
+    /**
+     * A generation that can be restarted from its checkpoint log.
+     *
+     * @param request The original request as written to the log header
+     * @param steps Number of checkpointed steps
+     */
+    public record InterruptedRun(String itineraryId, String userId, JsonNode request, int steps) {
+    }
+
+    /**
+     * The checkpoint log of one generation. Safe for concurrent use by the pipeline's stage threads.
+     */
+    public static final class Checkpoint {
+
+        /** Checkpoint that records nothing, used when checkpointing is disabled. */
+        public static final Checkpoint NONE = new Checkpoint(null, null, new LinkedHashMap<>(), false);
+
+        private final ObjectMapper objectMapper;
+        private final Path file;
+        private final Map<String, JsonNode> entries;
+        private final boolean resumed;
+        private boolean completed;
+
+        private Checkpoint(ObjectMapper objectMapper, Path file, Map<String, JsonNode> entries, boolean resumed) {
+            this.objectMapper = objectMapper;
+            this.file = file;
+            this.entries = Collections.synchronizedMap(entries);
+            this.resumed = resumed;
+        }
+
+        /**
+         * Output recorded for a step, as a fresh copy the caller may modify.
+         */
+        public <T> Optional<T> get(String key, Class<T> type) {
+            JsonNode value = entries.get(key);
+            if (value == null || value.isNull()) {
+                return Optional.empty();
+            }
+            try {
+                return Optional.of(objectMapper.treeToValue(value, type));
+            } catch (IOException e) {
+                logger.warn("Ignoring unreadable checkpoint {} in {}: {}", key, file, e.getMessage());
+                return Optional.empty();
+            }
+        }
+
+        /**
+         * Record the output of a completed step. The value is serialized immediately, so later
+         * changes to it are not recorded, and is on disk when this returns.
+         */
+        public void put(String key, Object value) {
+            if (file == null) {
+                return;
+            }
+            ObjectNode line = objectMapper.createObjectNode();
+            line.put("type", ENTRY);
+            line.put("key", key);
+            line.set("value", objectMapper.valueToTree(value));
+            try {
+                append(line);
+                entries.put(key, line.get("value"));
+            } catch (IOException e) {
+                logger.warn("Failed to checkpoint {} to {}: {}", key, file, e.getMessage());
+            }
+        }
+
+        public boolean isResumed() {
+            return resumed;
+        }
+
+        public int size() {
+            return entries.size();
+        }
+
+        /**
+         * Mark the generation as failed. The log is kept for a retry of the same request but is
+         * not resumed on startup.
+         */
+        public void fail(String reason) {
+            if (file == null) {
+                return;
+            }
+            ObjectNode line = objectMapper.createObjectNode();
+            line.put("type", FAILED);
+            line.put("reason", reason);
+            try {
+                append(line);
+            } catch (IOException e) {
+                logger.warn("Failed to mark checkpoint log {} as failed: {}", file, e.getMessage());
+            }
+        }
+
+        /**
+         * Delete the log once the generation has completed.
+         */
+        public void complete() {
+            if (file == null) {
+                return;
+            }
+            synchronized (this) {
+                completed = true;
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException e) {
+                    logger.warn("Failed to delete checkpoint log {}: {}", file, e.getMessage());
+                }
+            }
+        }
+
+        private synchronized void append(JsonNode line) throws IOException {
+            if (completed) {
+                return;
+            }
+            byte[] bytes = (objectMapper.writeValueAsString(line) + "\n").getBytes(StandardCharsets.UTF_8);
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND)) {
+                ByteBuffer buffer = ByteBuffer.wrap(bytes);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(false);
+            }
+        }
+    }
+}
@@ -1,17 +1,25 @@
 package com.tripplanner.service;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.tripplanner.agents.*;
 import com.tripplanner.dto.*;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Optional;
+import java.time.LocalDate;
+import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * PipelineOrchestrator - Coordinates the multi-agent pipeline for itinerary generation.
@@ -23,6 +31,17 @@ import java.util.concurrent.*;
  * 4. Cost Estimation (CostEstimatorAgent) - Adds pricing
  * 5. Finalization - Validates and completes
  * 
+ * The default "phased" mode runs each stage for the whole trip before the next. In the opt-in
+ * "per-day" mode stages 1-3 are pipelined per day: each day moves on to population and
+ * enrichment as soon as its own skeleton is ready, and is persisted and published when done.
+ * 
+ * Completed days and phases are checkpointed (PipelineCheckpointStore). A failed attempt is
+ * retried from its checkpoint, and generations interrupted by a restart resume on startup.
+ * 
+ * Agent calls run as batch work in AgentWorkScheduler lanes, one per stage, shared fairly
+ * with other users' generations and behind interactive chat work. The pipeline threads only
+ * coordinate.
+ * 
  * Benefits over monolithic approach:
  * - Faster: Parallel processing reduces total time by 30-50%
  * - More reliable: Smaller API calls reduce timeout risk by 80%
@@ -34,6 +53,8 @@ public class PipelineOrchestrator {
     
     private static final Logger logger = LoggerFactory.getLogger(PipelineOrchestrator.class);
     
+    private static final String CHECKPOINT_SOURCE = "pipeline";
+    
     private final SkeletonPlannerAgent skeletonPlannerAgent;
     private final ActivityAgent activityAgent;
     private final MealAgent mealAgent;
@@ -44,6 +65,7 @@ public class PipelineOrchestrator {
     private final AgentEventPublisher agentEventPublisher;
     private final ExecutorService pipelineExecutor;
     private final UserDataService userDataService;
+    private final ObjectMapper objectMapper;
 
     @Value("${itinerary.generation.pipeline.parallel:true}")
     private boolean enableParallel;
@@ -61,6 +83,42 @@ public class PipelineOrchestrator {
     @Value("${itinerary.generation.pipeline.finalization.timeout-ms:30000}") // 30 seconds default
     private long finalizationTimeoutMs;
     
+    // "phased" runs whole-trip phases; "per-day" (opt-in) pipelines each day through all stages independently
+    @Value("${itinerary.generation.pipeline.mode:phased}")
+    private String pipelineMode;
+    
+    // Per-stage concurrency bounds, across all generations
+    @Value("${itinerary.generation.pipeline.stage-concurrency.skeleton:3}")
+    private int skeletonConcurrency;
+    
+    @Value("${itinerary.generation.pipeline.stage-concurrency.population:6}")
+    private int populationConcurrency;
+    
+    @Value("${itinerary.generation.pipeline.stage-concurrency.enrichment:2}")
+    private int enrichmentConcurrency;
+    
+    // Attempts per generation; each retry resumes from the checkpointed days and phases
+    @Value("${itinerary.generation.pipeline.checkpoint.max-attempts:2}")
+    private int maxAttempts;
+    
+    @Value("${itinerary.generation.pipeline.checkpoint.retry-delay-ms:5000}")
+    private long retryDelayMs;
+    
+    // Delay before resuming generations interrupted by the last shutdown; negative disables resuming
+    @Value("${itinerary.generation.pipeline.checkpoint.resume-delay-ms:10000}")
+    private long resumeDelayMs;
+    
+    @Autowired(required = false)
+    private PipelineCheckpointStore checkpointStore;
+    
+    @Autowired(required = false)
+    private AgentWorkScheduler workScheduler;
+    
+    private Executor skeletonStageExecutor;
+    private Executor populationStageExecutor;
+    private Executor enrichmentStageExecutor;
+    private ScheduledExecutorService resumeScheduler;
+    
     public PipelineOrchestrator(SkeletonPlannerAgent skeletonPlannerAgent,
                                 ActivityAgent activityAgent,
                                 MealAgent mealAgent,
@@ -68,7 +126,8 @@ public class PipelineOrchestrator {
                                 CostEstimatorAgent costEstimatorAgent,
                                 EnrichmentAgent enrichmentAgent,
                                 ItineraryJsonService itineraryJsonService,
-                                AgentEventPublisher agentEventPublisher, UserDataService userDataService) {
+                                AgentEventPublisher agentEventPublisher, UserDataService userDataService,
+                                ObjectMapper objectMapper) {
         this.skeletonPlannerAgent = skeletonPlannerAgent;
         this.activityAgent = activityAgent;
         this.mealAgent = mealAgent;
@@ -86,6 +145,52 @@ public class PipelineOrchestrator {
             return t;
         });
         this.userDataService = userDataService;
+        this.objectMapper = objectMapper;
+    }
+    
+    @PostConstruct
+    void initStageExecutors() {
+        if (workScheduler != null) {
+            AgentWorkScheduler.WorkClass batch = AgentWorkScheduler.WorkClass.BATCH;
+            this.skeletonStageExecutor = workScheduler.lane("pipeline-skeleton", batch, skeletonConcurrency, skeletonTimeoutMs);
+            this.populationStageExecutor = workScheduler.lane("pipeline-population", batch, populationConcurrency, populationTimeoutMs);
+            this.enrichmentStageExecutor = workScheduler.lane("pipeline-enrichment", batch, enrichmentConcurrency, enrichmentTimeoutMs);
+        } else {
+            this.skeletonStageExecutor = createStageExecutor("Pipeline-Skeleton-", skeletonConcurrency);
+            this.populationStageExecutor = createStageExecutor("Pipeline-Population-", populationConcurrency);
+            this.enrichmentStageExecutor = createStageExecutor("Pipeline-Enrichment-", enrichmentConcurrency);
+        }
+        
+        if (checkpointStore != null && checkpointStore.isEnabled() && resumeDelayMs >= 0) {
+            this.resumeScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "Pipeline-Resume");
+                t.setDaemon(true);
+                return t;
+            });
+            resumeScheduler.schedule(this::resumeInterruptedGenerations, resumeDelayMs, TimeUnit.MILLISECONDS);
+        }
+    }
+    
+    @PreDestroy
+    void shutdownExecutors() {
+        if (resumeScheduler != null) {
+            resumeScheduler.shutdownNow();
+        }
+        pipelineExecutor.shutdown();
+        for (Executor stage : Arrays.asList(skeletonStageExecutor, populationStageExecutor, enrichmentStageExecutor)) {
+            if (stage instanceof ExecutorService service) {
+                service.shutdown();
+            }
+        }
+    }
+    
+    private static ExecutorService createStageExecutor(String namePrefix, int threads) {
+        return Executors.newFixedThreadPool(Math.max(1, threads), r -> {
+            Thread t = new Thread(r);
+            t.setName(namePrefix + t.getId());
+            t.setDaemon(true);
+            return t;
+        });
     }
     
     /**
@@ -98,139 +203,532 @@ public class PipelineOrchestrator {
         logger.info("=== PIPELINE ORCHESTRATOR: STARTING ===");
         logger.info("Itinerary ID: {}", itineraryId);
         logger.info("Destination: {}, Duration: {} days", request.getDestination(), request.getDurationDays());
-        logger.info("Parallel: {}", enableParallel);
+        logger.info("Parallel: {}, Mode: {}", enableParallel, isPerDayMode() ? "per-day" : "phased");
         
         long startTime = System.currentTimeMillis();
         String executionId = "exec_" + System.currentTimeMillis();
         
-        return CompletableFuture.supplyAsync(() -> {
+        AgentWorkScheduler.Admission admission = null;
+        if (workScheduler != null) {
             try {
-                // Phase 1: Skeleton Generation (Critical)
-                logger.info("=== PHASE 1: SKELETON GENERATION ===");
-                publishPhaseStart(itineraryId, executionId, "skeleton", "Creating day structure...");
-                
-                NormalizedItinerary skeleton = executeSkeletonPhase(itineraryId, request, executionId);
-                
-                long skeletonTime = System.currentTimeMillis() - startTime;
-                logger.info("Phase 1 complete: {} days created ({} ms)", 
-                    skeleton.getDays().size(), skeletonTime);
-                publishPhaseComplete(itineraryId, executionId, "skeleton", skeletonTime);
-                
-                // Phase 2: Node Population (Parallel)
-                logger.info("=== PHASE 2: POPULATION ===");
-                publishPhaseStart(itineraryId, executionId, "population", "Populating node details...");
+                admission = workScheduler.admitGeneration(userId);
+            } catch (RejectedExecutionException e) {
+                logger.warn("Generation of itinerary {} not admitted: {}", itineraryId, e.getMessage());
+                publishPipelineError(itineraryId, executionId, e);
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+        AgentWorkScheduler.Admission generation = admission;
+        AgentWorkScheduler.WorkContext workContext =
+            new AgentWorkScheduler.WorkContext(AgentWorkScheduler.WorkClass.BATCH, userId, itineraryId);
+        
+        CompletableFuture<NormalizedItinerary> future = CompletableFuture.supplyAsync(() -> AgentWorkScheduler.supplyAs(
+            workContext, () -> runGeneration(itineraryId, request, userId, executionId, startTime)), pipelineExecutor);
+        return generation != null ? future.whenComplete((result, error) -> generation.close()) : future;
+    }
+    
+    private NormalizedItinerary runGeneration(String itineraryId, CreateItineraryReq request, String userId,
+                                              String executionId, long startTime) {
+        PipelineCheckpointStore.Checkpoint checkpoint = checkpointStore != null
+            ? checkpointStore.open(CHECKPOINT_SOURCE, itineraryId, request, userId)
+            : PipelineCheckpointStore.Checkpoint.NONE;
+        
+        for (int attempt = 1; ; attempt++) {
+            try {
+                NormalizedItinerary result = isPerDayMode()
+                    ? executePerDayPipeline(itineraryId, request, executionId, startTime, checkpoint)
+                    : executePhasedPipeline(itineraryId, request, executionId, startTime, checkpoint);
+                checkpoint.complete();
+                return result;
                 
-                long populationTime = 0;
-                try {
-                    executePopulationPhase(itineraryId, skeleton, executionId);
-                    populationTime = System.currentTimeMillis() - startTime - skeletonTime;
-                    logger.info("Phase 2 complete ({} ms)", populationTime);
-                    publishPhaseComplete(itineraryId, executionId, "population", populationTime);
-                } catch (Exception e) {
-                    populationTime = System.currentTimeMillis() - startTime - skeletonTime;
-                    logger.error("Phase 2 failed after {} ms, continuing to enrichment: {}", populationTime, e.getMessage(), e);
-                    publishPhaseComplete(itineraryId, executionId, "population", populationTime);
+            } catch (Exception e) {
+                if (attempt < maxAttempts) {
+                    logger.warn("Pipeline attempt {}/{} failed for itinerary {}: {}. Retrying from {} checkpointed steps in {} ms",
+                               attempt, maxAttempts, itineraryId, e.getMessage(), checkpoint.size(), retryDelayMs);
+                    if (sleepBeforeRetry()) {
+                        continue;
+                    }
                 }
+                logger.error("Pipeline failed for itinerary: {}", itineraryId, e);
+                checkpoint.fail(e.getMessage());
+                publishPipelineError(itineraryId, executionId, e);
+                throw new RuntimeException("Pipeline generation failed: " + e.getMessage(), e);
+            }
+        }
+    }
+    
+    private boolean sleepBeforeRetry() {
+        try {
+            Thread.sleep(retryDelayMs);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+    
+    /**
+     * Restart generations whose checkpoint logs show they were still running when the previous
+     * instance stopped. Each resumes from its last checkpoint.
+     */
+    void resumeInterruptedGenerations() {
+        for (PipelineCheckpointStore.InterruptedRun run : checkpointStore.findInterrupted(CHECKPOINT_SOURCE, maxAttempts)) {
+            try {
+                CreateItineraryReq request = toRequest(run.request());
+                logger.info("Resuming interrupted generation of itinerary {} ({} checkpointed steps)",
+                           run.itineraryId(), run.steps());
+                generateItinerary(run.itineraryId(), request, run.userId());
+            } catch (Exception e) {
+                logger.warn("Failed to resume generation of itinerary {}: {}", run.itineraryId(), e.getMessage());
+            }
+        }
+    }
+    
+    /**
+     * Rebuild a request from its checkpoint log header.
+     */
+    private static CreateItineraryReq toRequest(JsonNode json) {
+        JsonNode party = json.path("party");
+        return CreateItineraryReq.builder()
+            .destination(json.path("destination").asText(null))
+            .startLocation(json.path("startLocation").asText(null))
+            .startDate(LocalDate.parse(json.path("startDate").asText()))
+            .endDate(LocalDate.parse(json.path("endDate").asText()))
+            .party(party.isObject()
+                ? new PartyDto(party.path("adults").asInt(), party.path("children").asInt(),
+                               party.path("infants").asInt(), party.path("rooms").asInt(1))
+                : null)
+            .budgetTier(json.path("budgetTier").asText(null))
+            .budgetMin(json.path("budgetMin").isNumber() ? json.path("budgetMin").asDouble() : null)
+            .budgetMax(json.path("budgetMax").isNumber() ? json.path("budgetMax").asDouble() : null)
+            .interests(textList(json.path("interests")))
+            .constraints(textList(json.path("constraints")))
+            .language(json.path("language").asText("en"))
+            .build();
+    }
+    
+    private static List<String> textList(JsonNode array) {
+        List<String> values = new ArrayList<>();
+        array.forEach(value -> values.add(value.asText()));
+        return values;
+    }
+    
+    /**
+     * Phased execution: each phase runs for the whole trip before the next. A snapshot of the
+     * itinerary is checkpointed after each phase that fully succeeded; a resumed run restores
+     * the latest snapshot and continues with the phase after it.
+     */
+    private NormalizedItinerary executePhasedPipeline(String itineraryId, CreateItineraryReq request,
+                                                      String executionId, long startTime,
+                                                      PipelineCheckpointStore.Checkpoint checkpoint) {
+        String resumedAfter = null;
+        NormalizedItinerary skeleton = null;
+        for (String phase : List.of("enrichment", "population", "skeleton")) {
+            Optional<NormalizedItinerary> snapshot = checkpoint.get(phaseKey(phase), NormalizedItinerary.class);
+            if (snapshot.isPresent()) {
+                skeleton = snapshot.get();
+                skeleton.setUpdatedAt(System.currentTimeMillis());
+                itineraryJsonService.updateItinerary(skeleton);
+                resumedAfter = phase;
+                logger.info("Resuming itinerary {} after checkpointed {} phase", itineraryId, phase);
+                break;
+            }
+        }
+        
+        long skeletonTime = 0;
+        if (resumedAfter == null) {
+            // Phase 1: Skeleton Generation (Critical)
+            logger.info("=== PHASE 1: SKELETON GENERATION ===");
+            publishPhaseStart(itineraryId, executionId, "skeleton", "Creating day structure...");
+            
+            skeleton = executeSkeletonPhase(itineraryId, request, executionId);
+            checkpoint.put(phaseKey("skeleton"), skeleton);
+            
+            skeletonTime = System.currentTimeMillis() - startTime;
+            logger.info("Phase 1 complete: {} days created ({} ms)", 
+                skeleton.getDays().size(), skeletonTime);
+            publishPhaseComplete(itineraryId, executionId, "skeleton", skeletonTime);
+        }
+        
+        // Phase 2: Node Population (Parallel)
+        long populationTime = 0;
+        if (resumedAfter == null || "skeleton".equals(resumedAfter)) {
+            logger.info("=== PHASE 2: POPULATION ===");
+            publishPhaseStart(itineraryId, executionId, "population", "Populating node details...");
+            
+            try {
+                boolean populated = executePopulationPhase(itineraryId, skeleton, executionId);
+                populationTime = System.currentTimeMillis() - startTime - skeletonTime;
+                logger.info("Phase 2 complete ({} ms)", populationTime);
+                publishPhaseComplete(itineraryId, executionId, "population", populationTime);
+                if (populated) {
+                    checkpoint.put(phaseKey("population"), itineraryJsonService.getItinerary(itineraryId).orElse(skeleton));
+                }
+            } catch (Exception e) {
+                populationTime = System.currentTimeMillis() - startTime - skeletonTime;
+                logger.error("Phase 2 failed after {} ms, continuing to enrichment: {}", populationTime, e.getMessage(), e);
+                publishPhaseComplete(itineraryId, executionId, "population", populationTime);
+            }
+        }
+        
+        // Phase 3: Enrichment (CRITICAL - Always run this to add Google Places data)
+        if (!"enrichment".equals(resumedAfter)) {
+            logger.info("=== PHASE 3: ENRICHMENT ===");
+            publishPhaseStart(itineraryId, executionId, "enrichment", "Adding location details...");
+            
+            long enrichmentTime = 0;
+            try {
+                boolean enriched = executeEnrichmentPhase(itineraryId, skeleton, executionId);
+                enrichmentTime = System.currentTimeMillis() - startTime - skeletonTime - populationTime;
+                logger.info("Phase 3 complete ({} ms)", enrichmentTime);
+                publishPhaseComplete(itineraryId, executionId, "enrichment", enrichmentTime);
                 
-                // Phase 3: Enrichment (CRITICAL - Always run this to add Google Places data)
-                logger.info("=== PHASE 3: ENRICHMENT ===");
-                publishPhaseStart(itineraryId, executionId, "enrichment", "Adding location details...");
-                
-                long enrichmentTime = 0;
-                try {
-                    executeEnrichmentPhase(itineraryId, skeleton, executionId);
-                    enrichmentTime = System.currentTimeMillis() - startTime - skeletonTime - populationTime;
-                    logger.info("Phase 3 complete ({} ms)", enrichmentTime);
-                    publishPhaseComplete(itineraryId, executionId, "enrichment", enrichmentTime);
+                // CRITICAL FIX: Reload itinerary after enrichment to get the enriched data
+                // The enrichment phase modifies the itinerary in Firestore, but the 'skeleton' variable
+                // is stale. We need to reload to get photos, ratings, price levels, etc.
+                logger.info("🔄 Reloading itinerary after enrichment to get enriched data...");
+                Optional<NormalizedItinerary> enrichedOpt = itineraryJsonService.getItinerary(itineraryId);
+                if (enrichedOpt.isPresent()) {
+                    skeleton = enrichedOpt.get();
+                    logger.info("✅ Reloaded itinerary - Version: {}, has {} days", 
+                               skeleton.getVersion(), skeleton.getDays().size());
+                    if (enriched) {
+                        checkpoint.put(phaseKey("enrichment"), skeleton);
+                    }
                     
-                    // CRITICAL FIX: Reload itinerary after enrichment to get the enriched data
-                    // The enrichment phase modifies the itinerary in Firestore, but the 'skeleton' variable
-                    // is stale. We need to reload to get photos, ratings, price levels, etc.
-                    logger.info("🔄 Reloading itinerary after enrichment to get enriched data...");
-                    Optional<NormalizedItinerary> enrichedOpt = itineraryJsonService.getItinerary(itineraryId);
-                    if (enrichedOpt.isPresent()) {
-                        skeleton = enrichedOpt.get();
-                        logger.info("✅ Reloaded itinerary - Version: {}, has {} days", 
-                                   skeleton.getVersion(), skeleton.getDays().size());
-                        
-                        // Log first node to verify enrichment data is present
-                        if (!skeleton.getDays().isEmpty() && 
-                            !skeleton.getDays().get(0).getNodes().isEmpty()) {
-                            NormalizedNode firstNode = skeleton.getDays().get(0).getNodes().get(0);
-                            if (firstNode.getLocation() != null) {
-                                logger.info("📸 First node after reload - photos: {}, rating: {}, priceLevel: {}",
-                                           firstNode.getLocation().getPhotos() != null ? 
-                                               firstNode.getLocation().getPhotos().size() + " items" : "null",
-                                           firstNode.getLocation().getRating(),
-                                           firstNode.getLocation().getPriceLevel());
-                            }
+                    // Log first node to verify enrichment data is present
+                    if (!skeleton.getDays().isEmpty() && 
+                        !skeleton.getDays().get(0).getNodes().isEmpty()) {
+                        NormalizedNode firstNode = skeleton.getDays().get(0).getNodes().get(0);
+                        if (firstNode.getLocation() != null) {
+                            logger.info("📸 First node after reload - photos: {}, rating: {}, priceLevel: {}",
+                                       firstNode.getLocation().getPhotos() != null ? 
+                                           firstNode.getLocation().getPhotos().size() + " items" : "null",
+                                       firstNode.getLocation().getRating(),
+                                       firstNode.getLocation().getPriceLevel());
                         }
-                    } else {
-                        logger.warn("⚠️ Failed to reload itinerary after enrichment, using stale data");
                     }
-                } catch (Exception e) {
-                    enrichmentTime = System.currentTimeMillis() - startTime - skeletonTime - populationTime;
-                    logger.error("Phase 3 failed after {} ms, continuing to cost estimation: {}", enrichmentTime, e.getMessage(), e);
-                    publishPhaseComplete(itineraryId, executionId, "enrichment", enrichmentTime);
+                } else {
+                    logger.warn("⚠️ Failed to reload itinerary after enrichment, using stale data");
                 }
-                
-                // Phase 4: Cost Estimation
-                logger.info("=== PHASE 4: COST ESTIMATION ===");
-                publishPhaseStart(itineraryId, executionId, "cost_estimation", "Estimating costs...");
-                
-                long costTime = 0;
-                try {
-                    String budgetTier = request.getBudgetTier() != null ? request.getBudgetTier() : "medium";
-                    costEstimatorAgent.estimateCosts(itineraryId, skeleton, budgetTier);
-                    costTime = System.currentTimeMillis() - startTime - skeletonTime - populationTime - enrichmentTime;
-                    logger.info("Phase 4 complete ({} ms)", costTime);
-                    publishPhaseComplete(itineraryId, executionId, "cost_estimation", costTime);
-                } catch (Exception e) {
-                    costTime = System.currentTimeMillis() - startTime - skeletonTime - populationTime - enrichmentTime;
-                    logger.error("Phase 4 failed after {} ms, continuing to finalization: {}", costTime, e.getMessage(), e);
-                    publishPhaseComplete(itineraryId, executionId, "cost_estimation", costTime);
+            } catch (Exception e) {
+                enrichmentTime = System.currentTimeMillis() - startTime - skeletonTime - populationTime;
+                logger.error("Phase 3 failed after {} ms, continuing to cost estimation: {}", enrichmentTime, e.getMessage(), e);
+                publishPhaseComplete(itineraryId, executionId, "enrichment", enrichmentTime);
+            }
+        }
+        
+        // Phases 4-5: Cost estimation and finalization
+        return executeCostAndFinalization(itineraryId, request, executionId, skeleton, startTime);
+    }
+    
+    private static String phaseKey(String phase) {
+        return "phase:" + phase;
+    }
+    
+    private static String dayKey(int dayNumber, String step) {
+        return "day:" + dayNumber + ":" + step;
+    }
+    
+    /**
+     * Phases 4-5: Cost estimation and finalization, shared by the phased and per-day modes.
+     */
+    private NormalizedItinerary executeCostAndFinalization(String itineraryId, CreateItineraryReq request,
+                                                           String executionId, NormalizedItinerary skeleton,
+                                                           long startTime) {
+        // Phase 4: Cost Estimation
+        logger.info("=== PHASE 4: COST ESTIMATION ===");
+        publishPhaseStart(itineraryId, executionId, "cost_estimation", "Estimating costs...");
+        
+        long costStart = System.currentTimeMillis();
+        try {
+            String budgetTier = request.getBudgetTier() != null ? request.getBudgetTier() : "medium";
+            costEstimatorAgent.estimateCosts(itineraryId, skeleton, budgetTier);
+            long costTime = System.currentTimeMillis() - costStart;
+            logger.info("Phase 4 complete ({} ms)", costTime);
+            publishPhaseComplete(itineraryId, executionId, "cost_estimation", costTime);
+        } catch (Exception e) {
+            long costTime = System.currentTimeMillis() - costStart;
+            logger.error("Phase 4 failed after {} ms, continuing to finalization: {}", costTime, e.getMessage(), e);
+            publishPhaseComplete(itineraryId, executionId, "cost_estimation", costTime);
+        }
+        
+        // Phase 5: Finalization
+        logger.info("=== PHASE 5: FINALIZATION ===");
+        publishPhaseStart(itineraryId, executionId, "finalization", "Finalizing itinerary...");
+        
+        long finalizationStart = System.currentTimeMillis();
+        NormalizedItinerary finalItinerary = null;
+        try {
+            finalItinerary = executeFinalizationPhase(itineraryId);
+            
+            long totalTime = System.currentTimeMillis() - startTime;
+            logger.info("=== PIPELINE COMPLETE ===");
+            logger.info("Total time: {} ms", totalTime);
+            logger.info("Days: {}, Nodes: {}", 
+                finalItinerary.getDays().size(),
+                finalItinerary.getDays().stream()
+                    .mapToInt(d -> d.getNodes() != null ? d.getNodes().size() : 0)
+                    .sum());
+            
+            publishPhaseComplete(itineraryId, executionId, "finalization", 
+                System.currentTimeMillis() - finalizationStart);
+            publishPipelineComplete(itineraryId, executionId, totalTime);
+        } catch (Exception e) {
+            logger.error("Phase 5 failed: {}", e.getMessage(), e);
+            // Try to get the itinerary anyway
+            Optional<NormalizedItinerary> itineraryOpt = itineraryJsonService.getItinerary(itineraryId);
+            if (itineraryOpt.isPresent()) {
+                finalItinerary = itineraryOpt.get();
+                logger.info("Retrieved itinerary despite finalization failure");
+            } else {
+                throw new RuntimeException("Finalization failed and itinerary not found", e);
+            }
+        }
+        
+        return finalItinerary;
+    }
+    
+    /**
+     * Per-day pipelined execution.
+     * 
+     * Each day flows through skeleton -> population -> persist -> enrichment independently, so
+     * day 1 can be enriched and shown while later days are still being planned. Stage concurrency
+     * is bounded by one executor per stage; no stage task blocks waiting on another stage.
+     * Writes of the shared itinerary document are serialized per execution to avoid lost updates.
+     * Each day's skeleton, fully populated day and enrichment are checkpointed; a resumed run
+     * starts every day from its latest checkpoint and only re-applies the stored results.
+     */
+    private NormalizedItinerary executePerDayPipeline(String itineraryId, CreateItineraryReq request,
+                                                      String executionId, long startTime,
+                                                      PipelineCheckpointStore.Checkpoint checkpoint) {
+        logger.info("=== PER-DAY PIPELINE ===");
+        publishPhaseStart(itineraryId, executionId, "skeleton", "Planning days...");
+        
+        NormalizedItinerary base = skeletonPlannerAgent.loadBaseItinerary(itineraryId, request);
+        int totalDays = request.getDurationDays();
+        Object writeLock = new Object();
+        AtomicInteger completedDays = new AtomicInteger();
+        AtomicLong firstDayMs = new AtomicLong(-1);
+        
+        List<CompletableFuture<NormalizedDay>> dayFutures = new ArrayList<>();
+        for (int dayNumber = 1; dayNumber <= totalDays; dayNumber++) {
+            final int currentDay = dayNumber;
+            CompletableFuture<NormalizedDay> populated = checkpoint.get(dayKey(currentDay, "populated"), NormalizedDay.class)
+                .map(CompletableFuture::completedFuture)
+                .orElseGet(() -> checkpoint.get(dayKey(currentDay, "skeleton"), NormalizedDay.class)
+                    .map(CompletableFuture::completedFuture)
+                    .orElseGet(() -> CompletableFuture
+                        .supplyAsync(() -> skeletonPlannerAgent.generateDay(request, currentDay), skeletonStageExecutor)
+                        .orTimeout(skeletonTimeoutMs, TimeUnit.MILLISECONDS)
+                        .thenApply(day -> {
+                            checkpoint.put(dayKey(currentDay, "skeleton"), day);
+                            return day;
+                        }))
+                    .thenCompose(day -> populateDay(itineraryId, base, day, checkpoint)));
+            CompletableFuture<NormalizedDay> dayFuture = populated
+                .thenApplyAsync(day -> {
+                    persistDay(itineraryId, base, day, writeLock);
+                    return day;
+                }, enrichmentStageExecutor)
+                .thenCompose(day -> enrichDay(itineraryId, base, day, writeLock, checkpoint))
+                .thenApply(day -> {
+                    long elapsed = System.currentTimeMillis() - startTime;
+                    firstDayMs.compareAndSet(-1, elapsed);
+                    int done = completedDays.incrementAndGet();
+                    logger.info("Day {} complete ({}/{}) after {} ms", day.getDayNumber(), done, totalDays, elapsed);
+                    publishDayComplete(itineraryId, executionId, day, done, totalDays);
+                    return day;
+                });
+            dayFutures.add(dayFuture);
+        }
+        
+        try {
+            CompletableFuture.allOf(dayFutures.toArray(new CompletableFuture[0])).join();
+        } catch (CompletionException e) {
+            // The other days' agent calls run on regardless; let them finish and reach their
+            // checkpoints so a retry does not pay for them again
+            dayFutures.forEach(f -> f.handle((day, error) -> null).join());
+            Throwable cause = e.getCause() instanceof TimeoutException
+                ? new RuntimeException("Skeleton generation timed out after " + skeletonTimeoutMs + "ms", e.getCause())
+                : e.getCause();
+            logger.error("Per-day pipeline failed for itinerary {}: {}", itineraryId, cause.getMessage());
+            throw new RuntimeException("Day generation failed: " + cause.getMessage(), cause);
+        }
+        
+        long daysTime = System.currentTimeMillis() - startTime;
+        logger.info("All {} days complete in {} ms (first day after {} ms)", totalDays, daysTime, firstDayMs.get());
+        publishPhaseComplete(itineraryId, executionId, "enrichment", daysTime);
+        
+        // Reload so cost estimation sees the enriched data
+        NormalizedItinerary itinerary = itineraryJsonService.getItinerary(itineraryId).orElse(base);
+        return executeCostAndFinalization(itineraryId, request, executionId, itinerary, startTime);
+    }
+    
+    /**
+     * Run the three population agents for one day in parallel on the population stage executor.
+     * The agents fill in a copy of the day. If any of them times out it is interrupted and the
+     * untouched skeleton day is handed on, so no agent still running can write to a day that is
+     * being persisted or enriched. Failed agents leave their placeholders in place. Only a day all
+     * three agents populated is checkpointed, so a resumed run retries the agents that failed.
+     */
+    private CompletableFuture<NormalizedDay> populateDay(String itineraryId, NormalizedItinerary base,
+                                                         NormalizedDay day, PipelineCheckpointStore.Checkpoint checkpoint) {
+        NormalizedDay working = objectMapper.convertValue(day, NormalizedDay.class);
+        NormalizedItinerary context = createDayContext(base, working);
+        int dayNumber = day.getDayNumber();
+        
+        List<CompletableFuture<Void>> stages = List.of(
+            submitStageTask(() -> activityAgent.populateDayAttractions(context, working), populationStageExecutor, populationTimeoutMs),
+            submitStageTask(() -> mealAgent.populateDayMeals(context, working), populationStageExecutor, populationTimeoutMs),
+            submitStageTask(() -> transportAgent.populateDayTransport(context, working), populationStageExecutor, populationTimeoutMs));
+        List<String> agentNames = List.of("ActivityAgent", "MealAgent", "TransportAgent");
+        
+        return CompletableFuture.allOf(stages.stream()
+                .map(stage -> stage.handle((ignored, e) -> null))
+                .toArray(CompletableFuture[]::new))
+            .thenApply(ignored -> {
+                boolean timedOut = false;
+                boolean complete = true;
+                for (int i = 0; i < stages.size(); i++) {
+                    Throwable error = stages.get(i).handle((result, e) -> e).join();
+                    if (error instanceof CompletionException && error.getCause() != null) {
+                        error = error.getCause();
+                    }
+                    if (error instanceof TimeoutException) {
+                        timedOut = true;
+                    } else if (error != null) {
+                        logger.warn("[{}] Failed for day {}: {}", agentNames.get(i), dayNumber, error.getMessage());
+                        complete = false;
+                    }
+                }
+                if (timedOut) {
+                    logger.warn("Population of day {} for itinerary {} timed out after {} ms, continuing with the skeleton...",
+                               dayNumber, itineraryId, populationTimeoutMs);
+                    return day;
+                }
+                if (complete) {
+                    checkpoint.put(dayKey(dayNumber, "populated"), working);
+                }
+                return working;
+            });
+    }
+    
+    /**
+     * Run a task on a stage executor. When it has not finished within the timeout the returned
+     * future fails with a TimeoutException and the task is cancelled, interrupting it if it runs.
+     */
+    private static CompletableFuture<Void> submitStageTask(Runnable task, Executor executor, long timeoutMs) {
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        FutureTask<Void> stageTask = new FutureTask<>(task, null) {
+            @Override
+            protected void done() {
+                if (isCancelled()) {
+                    return;
                 }
-                
-                // Phase 5: Finalization
-                logger.info("=== PHASE 5: FINALIZATION ===");
-                publishPhaseStart(itineraryId, executionId, "finalization", "Finalizing itinerary...");
-                
-                NormalizedItinerary finalItinerary = null;
                 try {
-                    finalItinerary = executeFinalizationPhase(itineraryId);
-                    
-                    long totalTime = System.currentTimeMillis() - startTime;
-                    logger.info("=== PIPELINE COMPLETE ===");
-                    logger.info("Total time: {} ms", totalTime);
-                    logger.info("Days: {}, Nodes: {}", 
-                        finalItinerary.getDays().size(),
-                        finalItinerary.getDays().stream()
-                            .mapToInt(d -> d.getNodes() != null ? d.getNodes().size() : 0)
-                            .sum());
-                    
-                    publishPhaseComplete(itineraryId, executionId, "finalization", 
-                        System.currentTimeMillis() - startTime - skeletonTime - populationTime - enrichmentTime - costTime);
-                    publishPipelineComplete(itineraryId, executionId, totalTime);
-                } catch (Exception e) {
-                    logger.error("Phase 5 failed: {}", e.getMessage(), e);
-                    // Try to get the itinerary anyway
-                    Optional<NormalizedItinerary> itineraryOpt = itineraryJsonService.getItinerary(itineraryId);
-                    if (itineraryOpt.isPresent()) {
-                        finalItinerary = itineraryOpt.get();
-                        logger.info("Retrieved itinerary despite finalization failure");
-                    } else {
-                        throw new RuntimeException("Finalization failed and itinerary not found", e);
-                    }
+                    get();
+                    result.complete(null);
+                } catch (ExecutionException e) {
+                    result.completeExceptionally(e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    result.completeExceptionally(e);
                 }
-                
-                return finalItinerary;
-                
-            } catch (Exception e) {
-                logger.error("Pipeline failed for itinerary: {}", itineraryId, e);
-                publishPipelineError(itineraryId, executionId, e);
-                throw new RuntimeException("Pipeline generation failed: " + e.getMessage(), e);
             }
-        }, pipelineExecutor);
+        };
+        result.orTimeout(timeoutMs, TimeUnit.MILLISECONDS)
+            .whenComplete((ignored, e) -> stageTask.cancel(true));
+        executor.execute(stageTask);
+        return result;
+    }
+    
+    /**
+     * Merge one day into the stored itinerary, replacing any previous version of that day.
+     * A failed write fails the day, so it is not enriched or reported and the retry persists it
+     * again from its checkpoint.
+     */
+    private void persistDay(String itineraryId, NormalizedItinerary base, NormalizedDay day, Object writeLock) {
+        synchronized (writeLock) {
+            NormalizedItinerary current = itineraryJsonService.getItinerary(itineraryId).orElse(base);
+            List<NormalizedDay> days = current.getDays() != null ? new ArrayList<>(current.getDays()) : new ArrayList<>();
+            days.removeIf(existing -> Objects.equals(existing.getDayNumber(), day.getDayNumber()));
+            days.add(day);
+            days.sort(Comparator.comparing(NormalizedDay::getDayNumber, Comparator.nullsLast(Comparator.naturalOrder())));
+            current.setDays(days);
+            current.setUpdatedAt(System.currentTimeMillis());
+            itineraryJsonService.updateItinerary(current);
+        }
+    }
+    
+    /**
+     * Enrich one persisted day. Places lookups run unlocked on the enrichment stage executor,
+     * bounded by the same timeout as the phased enrichment phase; only the apply is serialized.
+     * A checkpointed enrichment is re-applied without repeating the lookups. Enrichment is
+     * optional, so a failure or timeout hands on the day with its basic data.
+     */
+    private CompletableFuture<NormalizedDay> enrichDay(String itineraryId, NormalizedItinerary base, NormalizedDay day,
+                                                       Object writeLock, PipelineCheckpointStore.Checkpoint checkpoint) {
+        String key = dayKey(day.getDayNumber(), "enrichment");
+        AtomicReference<ChangeSet> enrichment = new AtomicReference<>(checkpoint.get(key, ChangeSet.class).orElse(null));
+        CompletableFuture<Void> planned = enrichment.get() != null
+            ? CompletableFuture.completedFuture(null)
+            : submitStageTask(() -> {
+                ChangeSet plan = enrichmentAgent.planDayEnrichment(day, base.getDestination());
+                if (plan != null) {
+                    checkpoint.put(key, plan);
+                }
+                enrichment.set(plan);
+            }, enrichmentStageExecutor, enrichmentTimeoutMs);
+        
+        return planned
+            .thenApply(ignored -> {
+                if (enrichment.get() != null) {
+                    synchronized (writeLock) {
+                        enrichmentAgent.applyDayEnrichment(itineraryId, enrichment.get());
+                    }
+                }
+                return day;
+            })
+            .exceptionally(e -> {
+                Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                if (cause instanceof TimeoutException) {
+                    logger.warn("Enrichment of day {} timed out after {} ms for itinerary {}, continuing with basic data",
+                               day.getDayNumber(), enrichmentTimeoutMs, itineraryId);
+                } else {
+                    logger.warn("Enrichment of day {} failed for itinerary {}, continuing with basic data: {}",
+                               day.getDayNumber(), itineraryId, cause.getMessage());
+                }
+                return day;
+            });
+    }
+    
+    /**
+     * Lightweight itinerary view carrying the trip-level prompt context plus the single day.
+     */
+    private NormalizedItinerary createDayContext(NormalizedItinerary base, NormalizedDay day) {
+        NormalizedItinerary context = new NormalizedItinerary(base.getItineraryId(), base.getVersion());
+        context.setUserId(base.getUserId());
+        context.setDestination(base.getDestination());
+        context.setThemes(base.getThemes());
+        context.setConstraints(base.getConstraints());
+        context.setCurrency(base.getCurrency());
+        context.setDays(List.of(day));
+        return context;
+    }
+    
+    private void publishDayComplete(String itineraryId, String executionId, NormalizedDay day,
+                                    int completedDays, int totalDays) {
+        if (agentEventPublisher.hasActiveConnections(itineraryId)) {
+            agentEventPublisher.publishDayCompleted(itineraryId, executionId, day);
+            int progress = 10 + (int) (80.0 * completedDays / totalDays);
+            agentEventPublisher.publishProgress(itineraryId, executionId, progress,
+                String.format("Day %d of %d ready", completedDays, totalDays), "orchestrator");
+        }
+    }
+    
+    private boolean isPerDayMode() {
+        return "per-day".equalsIgnoreCase(pipelineMode);
     }
     
     /**
@@ -246,7 +744,7 @@ public class PipelineOrchestrator {
             CompletableFuture<NormalizedItinerary> skeletonFuture = CompletableFuture.supplyAsync(() -> {
                 logger.info("SkeletonPlannerAgent.generateSkeleton() started for itinerary: {}", itineraryId);
                 return skeletonPlannerAgent.generateSkeleton(itineraryId, request);
-            }, pipelineExecutor);
+            }, skeletonStageExecutor);
             
             NormalizedItinerary result = skeletonFuture.get(skeletonTimeoutMs, TimeUnit.MILLISECONDS);
             logger.info("Skeleton generation completed successfully for itinerary: {}", itineraryId);
@@ -265,9 +763,12 @@ public class PipelineOrchestrator {
     
     /**
      * Phase 2: Populate node details with specialized agents running in parallel.
+     * 
+     * @return Whether every agent completed in time
      */
-    private void executePopulationPhase(String itineraryId, NormalizedItinerary skeleton, 
-                                       String executionId) {
+    private boolean executePopulationPhase(String itineraryId, NormalizedItinerary skeleton, 
+                                          String executionId) {
+        AtomicBoolean complete = new AtomicBoolean(true);
         try {
             if (enableParallel) {
                 // Run all population agents in parallel
@@ -281,8 +782,9 @@ public class PipelineOrchestrator {
                             logger.info("[ActivityAgent] Complete");
                         } catch (Exception e) {
                             logger.warn("[ActivityAgent] Failed: {}", e.getMessage());
+                            complete.set(false);
                         }
-                    }, pipelineExecutor),
+                    }, populationStageExecutor),
                     
                     CompletableFuture.runAsync(() -> {
                         try {
@@ -291,8 +793,9 @@ public class PipelineOrchestrator {
                             logger.info("[MealAgent] Complete");
                         } catch (Exception e) {
                             logger.warn("[MealAgent] Failed: {}", e.getMessage());
+                            complete.set(false);
                         }
-                    }, pipelineExecutor),
+                    }, populationStageExecutor),
                     
                     CompletableFuture.runAsync(() -> {
                         try {
@@ -301,8 +804,9 @@ public class PipelineOrchestrator {
                             logger.info("[TransportAgent] Complete");
                         } catch (Exception e) {
                             logger.warn("[TransportAgent] Failed: {}", e.getMessage());
+                            complete.set(false);
                         }
-                    }, pipelineExecutor)
+                    }, populationStageExecutor)
                 );
                 
                 // Wait for all agents to complete with timeout
@@ -317,33 +821,42 @@ public class PipelineOrchestrator {
                     activityAgent.populateAttractions(itineraryId, skeleton);
                 } catch (Exception e) {
                     logger.warn("ActivityAgent failed: {}", e.getMessage());
+                    complete.set(false);
                 }
                 
                 try {
                     mealAgent.populateMeals(itineraryId, skeleton);
                 } catch (Exception e) {
                     logger.warn("MealAgent failed: {}", e.getMessage());
+                    complete.set(false);
                 }
                 
                 try {
                     transportAgent.populateTransport(itineraryId, skeleton);
                 } catch (Exception e) {
                     logger.warn("TransportAgent failed: {}", e.getMessage());
+                    complete.set(false);
                 }
             }
             
         } catch (TimeoutException e) {
             logger.warn("Population phase timed out after {} ms, continuing...", populationTimeoutMs);
+            return false;
         } catch (Exception e) {
             logger.warn("Population phase failed, continuing with partial data: {}", e.getMessage());
+            return false;
         }
+        return complete.get();
     }
     
     /**
      * Phase 3: Enrich with external data (coordinates, photos, reviews).
+     * 
+     * @return Whether enrichment completed in time
      */
-    private void executeEnrichmentPhase(String itineraryId, NormalizedItinerary skeleton, 
-                                       String executionId) {
+    private boolean executeEnrichmentPhase(String itineraryId, NormalizedItinerary skeleton, 
+                                          String executionId) {
+        AtomicBoolean complete = new AtomicBoolean(true);
         try {
             logger.info("Starting enrichment phase for itinerary: {}", itineraryId);
             logger.info("Enrichment will add: coordinates, place IDs, photos, reviews, ratings");
@@ -368,8 +881,9 @@ public class PipelineOrchestrator {
                 } catch (Exception e) {
                     logger.error("Enrichment failed for itinerary: {}", itineraryId, e);
                     logger.warn("Continuing with basic data (no coordinates/photos)");
+                    complete.set(false);
                 }
-            }, pipelineExecutor);
+            }, enrichmentStageExecutor);
             
             enrichmentFuture.get(enrichmentTimeoutMs, TimeUnit.MILLISECONDS);
             logger.info("Enrichment phase completed for itinerary: {}", itineraryId);
@@ -377,10 +891,13 @@ public class PipelineOrchestrator {
         } catch (TimeoutException e) {
             logger.warn("Enrichment timed out after {} ms for itinerary: {}, continuing...", 
                        enrichmentTimeoutMs, itineraryId);
+            return false;
         } catch (Exception e) {
             logger.warn("Enrichment phase failed for itinerary: {}, continuing with basic data: {}", 
                        itineraryId, e.getMessage());
+            return false;
         }
+        return complete.get();
     }
     
     /**
@@ -485,17 +1002,9 @@ public class PipelineOrchestrator {
                     logger.info("Updated itinerary status to 'completed' for: {}", itineraryId);
                     
                     // CRITICAL: Also update TripMetadata status for consistency
+                    // (a no-op when saving the itinerary already synced the trip list)
                     try {
-                        Optional<TripMetadata> metadataOpt = userDataService.getUserTripMetadata(itinerary.getUserId(), itineraryId);
-                        if (metadataOpt.isPresent()) {
-                            TripMetadata metadata = metadataOpt.get();
-                            metadata.setStatus("completed");
-                            metadata.setUpdatedAt(System.currentTimeMillis());
-                            userDataService.saveUserTripMetadata(itinerary.getUserId(), metadata);
-                            logger.info("Updated TripMetadata status to 'completed' for: {}", itineraryId);
-                        } else {
-                            logger.warn("TripMetadata not found for itinerary {}, status not updated in metadata", itineraryId);
-                        }
+                        userDataService.syncTripProjection(itinerary);
                     } catch (Exception metaEx) {
                         logger.error("Failed to update TripMetadata status: {}", metaEx.getMessage());
                         // Don't throw, just log - itinerary status is already updated
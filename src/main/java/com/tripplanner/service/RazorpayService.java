@@ -37,6 +37,13 @@ public class RazorpayService {
     @Value("${razorpay.key-secret:}")
     private String keySecret;
     
+    @Value("${razorpay.webhook-secret:}")
+    private String webhookSecret;
+    
+    // Mac lookup is slow and instances are not thread-safe, so each thread keeps one per secret
+    private static final ThreadLocal<Map<String, javax.crypto.Mac>> HMAC_SHA256 =
+            ThreadLocal.withInitial(HashMap::new);
+    
     @Value("${razorpay.rate.limit.enabled:true}")
     private boolean rateLimitEnabled;
     
@@ -377,24 +384,45 @@ public class RazorpayService {
         }
     }
     
+    /**
+     * Whether a webhook secret is configured, so webhook signatures can be verified.
+     */
+    public boolean isWebhookSecretConfigured() {
+        return webhookSecret != null && !webhookSecret.isBlank();
+    }
+    
+    /**
+     * Verify a webhook's X-Razorpay-Signature header, the HMAC SHA256 of the raw body
+     * keyed with the webhook secret.
+     */
+    public boolean verifyWebhookSignature(String body, String signature) {
+        if (!isWebhookSecretConfigured() || body == null || signature == null) {
+            return false;
+        }
+        try {
+            String expectedSignature = generateHmacSha256(body, webhookSecret);
+            return java.security.MessageDigest.isEqual(
+                    expectedSignature.getBytes(StandardCharsets.US_ASCII),
+                    signature.getBytes(StandardCharsets.US_ASCII));
+        } catch (Exception e) {
+            logger.error("Error verifying webhook signature", e);
+            return false;
+        }
+    }
+    
     /**
      * Generate HMAC SHA256 signature.
      */
     private String generateHmacSha256(String data, String secret) throws Exception {
-        javax.crypto.Mac mac = javax.crypto.Mac.getInstance("HmacSHA256");
-        javax.crypto.spec.SecretKeySpec secretKeySpec = new javax.crypto.spec.SecretKeySpec(secret.getBytes(), "HmacSHA256");
-        mac.init(secretKeySpec);
-        byte[] hash = mac.doFinal(data.getBytes());
-        
-        StringBuilder hexString = new StringBuilder();
-        for (byte b : hash) {
-            String hex = Integer.toHexString(0xff & b);
-            if (hex.length() == 1) {
-                hexString.append('0');
-            }
-            hexString.append(hex);
+        javax.crypto.Mac mac = HMAC_SHA256.get().get(secret);
+        if (mac == null) {
+            mac = javax.crypto.Mac.getInstance("HmacSHA256");
+            mac.init(new javax.crypto.spec.SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            HMAC_SHA256.get().put(secret, mac);
         }
-        return hexString.toString();
+        // doFinal resets the Mac for the next call on this thread
+        byte[] hash = mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
+        return HexFormat.of().formatHex(hash);
     }
     
     /**
@@ -895,20 +923,4 @@ public class RazorpayService {
             orderId, amount, currency, receipt
         );
     }
-    
-    /**
-     * Handle Razorpay webhook notifications.
-     */
-    public void handleWebhook(Object request, String body) {
-        logger.info("Handling Razorpay webhook with body: {}", body);
-        
-        // This is a placeholder implementation
-        // In a real implementation, you would:
-        // 1. Verify the webhook signature
-        // 2. Parse the webhook payload
-        // 3. Update payment status in your system
-        // 4. Send notifications if needed
-        
-        logger.info("Webhook processed successfully");
-    }
 }
\ No newline at end of file
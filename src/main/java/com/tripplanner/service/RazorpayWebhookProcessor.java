@@ -0,0 +1,141 @@
+package com.tripplanner.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tripplanner.data.entity.Booking;
+import com.tripplanner.data.repo.BookingRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.Optional;
+
+/**
+ * Applies verified Razorpay webhook events to bookings.
+ * Called by RazorpayWebhookQueue workers, one event at a time per booking. Events can be
+ * delivered more than once, so every update only moves a booking forward.
+ */
+@Service
+@ConditionalOnProperty(name = "razorpay.enabled", havingValue = "true")
+public class RazorpayWebhookProcessor {
+
+    private static final Logger logger = LoggerFactory.getLogger(RazorpayWebhookProcessor.class);
+
+    private final BookingRepository bookingRepository;
+    private final ObjectMapper objectMapper;
+
+    public RazorpayWebhookProcessor(BookingRepository bookingRepository, ObjectMapper objectMapper) {
+        this.bookingRepository = bookingRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Key that orders events for the same booking: the Razorpay order ID, or the payment ID
+     * for events without one.
+     *
+     * @return The key, or null if the body is not a webhook payload
+     */
+    public String bookingKey(String body) {
+        try {
+            JsonNode root = objectMapper.readTree(body);
+            if (root == null || !root.hasNonNull("event")) {
+                return null;
+            }
+            String orderId = orderId(root);
+            if (orderId != null) {
+                return orderId;
+            }
+            String paymentId = paymentId(root);
+            return paymentId != null ? paymentId : root.path("event").asText();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Apply one webhook event to its booking.
+     */
+    public void process(String body) throws IOException {
+        JsonNode root = objectMapper.readTree(body);
+        String event = root.path("event").asText();
+        String orderId = orderId(root);
+        String paymentId = paymentId(root);
+
+        Optional<Booking> found = orderId != null ? bookingRepository.findByRazorpayOrderId(orderId) : Optional.empty();
+        if (found.isEmpty() && paymentId != null) {
+            found = bookingRepository.findByPaymentId(paymentId);
+        }
+        if (found.isEmpty()) {
+            logger.warn("No booking for Razorpay {} event (order: {}, payment: {})", event, orderId, paymentId);
+            return;
+        }
+        Booking booking = found.get();
+
+        Booking.BookingStatus status = booking.getStatus();
+        Booking.BookingStatus target = null;
+        switch (event) {
+            case "payment.captured":
+            case "order.paid":
+                if (status == Booking.BookingStatus.INIT || status == Booking.BookingStatus.PAYMENT_ORDERED
+                        || status == Booking.BookingStatus.FAILED) {
+                    target = Booking.BookingStatus.PAYMENT_CONFIRMED;
+                }
+                break;
+            case "payment.failed":
+                if (status == Booking.BookingStatus.INIT || status == Booking.BookingStatus.PAYMENT_ORDERED) {
+                    target = Booking.BookingStatus.FAILED;
+                }
+                break;
+            case "refund.processed":
+                if (status != Booking.BookingStatus.REFUNDED) {
+                    target = Booking.BookingStatus.REFUNDED;
+                }
+                break;
+            default:
+                logger.debug("Ignoring Razorpay {} event for booking {}", event, booking.getBookingId());
+                return;
+        }
+        if (target == null) {
+            logger.debug("Booking {} already {}, ignoring Razorpay {} event", booking.getBookingId(), status, event);
+            return;
+        }
+
+        JsonNode payment = root.path("payload").path("payment").path("entity");
+        if (!payment.isMissingNode()) {
+            Booking.RazorpayDetails razorpay = booking.getRazorpay() != null ? booking.getRazorpay() : new Booking.RazorpayDetails();
+            if (paymentId != null) {
+                razorpay.setPaymentId(paymentId);
+            }
+            razorpay.setStatus(payment.path("status").asText(razorpay.getStatus()));
+            razorpay.setMethod(payment.path("method").asText(razorpay.getMethod()));
+            booking.setRazorpay(razorpay);
+        }
+        booking.updateStatus(target);
+        bookingRepository.save(booking);
+
+        logger.info("Booking {} moved from {} to {} by Razorpay {} event", booking.getBookingId(), status, target, event);
+    }
+
+    private static String orderId(JsonNode root) {
+        JsonNode payload = root.path("payload");
+        return text(payload.path("payment").path("entity").path("order_id"),
+                    payload.path("order").path("entity").path("id"));
+    }
+
+    private static String paymentId(JsonNode root) {
+        JsonNode payload = root.path("payload");
+        return text(payload.path("payment").path("entity").path("id"),
+                    payload.path("refund").path("entity").path("payment_id"));
+    }
+
+    private static String text(JsonNode... candidates) {
+        for (JsonNode candidate : candidates) {
+            if (candidate.isTextual() && !candidate.asText().isBlank()) {
+                return candidate.asText();
+            }
+        }
+        return null;
+    }
+}
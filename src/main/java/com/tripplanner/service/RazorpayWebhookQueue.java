@@ -0,0 +1,483 @@
+package com.tripplanner.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Durable intake queue for Razorpay webhooks.
+ *
+ * A webhook is verified, deduplicated by event ID, appended to a local journal and acknowledged;
+ * RazorpayWebhookProcessor applies it afterwards on a worker pool. Events for the same booking
+ * always go to the same worker, so they are applied in the order they arrived. Events still in the
+ * journal without a completion record are replayed on startup, and the journal is compacted to
+ * the pending events and the dedup window as it grows. Events that still fail after retries are
+ * kept in a dead-letter file next to the journal.
+ *
+ * The queue refuses to start without razorpay.webhook-secret, since the webhook endpoint itself
+ * is unauthenticated and the signature is the only check on the sender.
+ */
+@Service
+@ConditionalOnProperty(name = "razorpay.enabled", havingValue = "true")
+public class RazorpayWebhookQueue {
+
+    private static final Logger logger = LoggerFactory.getLogger(RazorpayWebhookQueue.class);
+
+    private static final String JOURNAL = "journal.log";
+    private static final String DEAD_LETTERS = "dead-letters.log";
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long RETRY_DELAY_MS = 500;
+
+    /**
+     * Outcome of handing a webhook to the queue.
+     */
+    public enum Intake {
+        ACCEPTED,
+        DUPLICATE,
+        REJECTED
+    }
+
+    private final RazorpayService razorpayService;
+    private final RazorpayWebhookProcessor processor;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Path journalPath;
+    private final Path deadLetterPath;
+    private final int dedupWindow;
+    private final boolean fsync;
+    private final ExecutorService[] workers;
+
+    // Guards the journal, the dedup window and sequence numbers
+    private final Object writeLock = new Object();
+    // Serializes fsyncs; never held while waiting for writeLock
+    private final Object syncLock = new Object();
+    // Serializes dead-letter appends
+    private final Object deadLetterLock = new Object();
+
+    // Event IDs seen recently, oldest first
+    private final LinkedHashMap<String, Boolean> seen = new LinkedHashMap<>(16, 0.75f, false) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+            return size() > dedupWindow;
+        }
+    };
+    private final Map<String, Event> inFlight = new ConcurrentHashMap<>();
+
+    private FileChannel journal;
+    private long sequence;
+    private int completedSinceCompaction;
+    // Bytes appended and bytes known durable, counted across compactions
+    private volatile long written;
+    private volatile long synced;
+    private volatile boolean closed;
+
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong duplicates = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong processed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    public RazorpayWebhookQueue(RazorpayService razorpayService,
+                                RazorpayWebhookProcessor processor,
+                                @Value("${razorpay.webhook.queue-dir:./data/razorpay-webhooks}") String queueDir,
+                                @Value("${razorpay.webhook.workers:4}") int workerCount,
+                                @Value("${razorpay.webhook.dedup-window:100000}") int dedupWindow,
+                                @Value("${razorpay.webhook.fsync:true}") boolean fsync) {
+        if (!razorpayService.isWebhookSecretConfigured()) {
+            throw new IllegalStateException(
+                    "razorpay.webhook-secret must be set when razorpay.enabled is true; webhooks cannot be verified without it");
+        }
+        this.razorpayService = razorpayService;
+        this.processor = processor;
+        this.journalPath = Paths.get(queueDir).resolve(JOURNAL);
+        this.deadLetterPath = Paths.get(queueDir).resolve(DEAD_LETTERS);
+        this.dedupWindow = dedupWindow;
+        this.fsync = fsync;
+
+        this.workers = new ExecutorService[Math.max(workerCount, 1)];
+        for (int i = 0; i < workers.length; i++) {
+            String name = "razorpay-webhook-" + i;
+            workers[i] = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, name);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        List<Event> pending;
+        try {
+            Files.createDirectories(journalPath.getParent());
+            pending = replay();
+            synchronized (writeLock) {
+                compact();
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to open Razorpay webhook journal at " + journalPath, e);
+        }
+        pending.forEach(this::dispatch);
+
+        logger.info("Razorpay webhook queue opened at {} with {} pending events and {} workers",
+                journalPath, pending.size(), workers.length);
+    }
+
+    @PreDestroy
+    public void close() {
+        closed = true;
+        for (ExecutorService worker : workers) {
+            worker.shutdownNow();
+        }
+        try {
+            for (ExecutorService worker : workers) {
+                worker.awaitTermination(5, TimeUnit.SECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (writeLock) {
+            try {
+                journal.force(false);
+                journal.close();
+            } catch (IOException e) {
+                logger.error("Failed to close Razorpay webhook journal at {}", journalPath, e);
+            }
+        }
+    }
+
+    /**
+     * Verify, deduplicate and durably enqueue a webhook. Returns once the event is in the
+     * journal; it is applied to its booking afterwards.
+     *
+     * @param eventId   X-Razorpay-Event-Id header; when absent the body identifies the event
+     * @param signature X-Razorpay-Signature header
+     * @throws UncheckedIOException if the event could not be written, so the sender retries it
+     */
+    public Intake submit(String eventId, String signature, String body) {
+        if (body == null || body.isBlank() || !razorpayService.verifyWebhookSignature(body, signature)) {
+            rejected.incrementAndGet();
+            return Intake.REJECTED;
+        }
+        String key = processor.bookingKey(body);
+        if (key == null) {
+            rejected.incrementAndGet();
+            return Intake.REJECTED;
+        }
+        String id = eventId != null && !eventId.isBlank()
+                ? eventId
+                : UUID.nameUUIDFromBytes(body.getBytes(StandardCharsets.UTF_8)).toString();
+
+        Event event;
+        long end;
+        synchronized (writeLock) {
+            if (closed) {
+                throw new IllegalStateException("Razorpay webhook queue is closed");
+            }
+            if (seen.containsKey(id)) {
+                duplicates.incrementAndGet();
+                return Intake.DUPLICATE;
+            }
+            event = new Event(sequence++, id, key, body);
+            try {
+                end = append(entry("R", event));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to journal Razorpay webhook " + id, e);
+            }
+            seen.put(id, Boolean.TRUE);
+            inFlight.put(id, event);
+        }
+        sync(end);
+
+        accepted.incrementAndGet();
+        dispatch(event);
+        return Intake.ACCEPTED;
+    }
+
+    /**
+     * Counters since startup and the number of events not yet applied.
+     */
+    public QueueStats getStats() {
+        return new QueueStats(accepted.get(), duplicates.get(), rejected.get(),
+                              processed.get(), failed.get(), inFlight.size());
+    }
+
+    private void dispatch(Event event) {
+        workers[Math.floorMod(event.key.hashCode(), workers.length)].execute(() -> process(event));
+    }
+
+    private void process(Event event) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                processor.process(event.body);
+                processed.incrementAndGet();
+                break;
+            } catch (Exception e) {
+                if (closed) {
+                    // Left in the journal and replayed on the next start
+                    return;
+                }
+                if (attempt >= MAX_ATTEMPTS) {
+                    failed.incrementAndGet();
+                    logger.error("Giving up on Razorpay webhook {} after {} attempts; moving it to {}",
+                            event.id, attempt, deadLetterPath, e);
+                    if (!deadLetter(event, e)) {
+                        // Left in the journal and retried on the next start
+                        return;
+                    }
+                    break;
+                }
+                logger.warn("Razorpay webhook {} failed (attempt {}): {}", event.id, attempt, e.getMessage());
+                try {
+                    Thread.sleep(RETRY_DELAY_MS * attempt);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+        complete(event);
+    }
+
+    private void complete(Event event) {
+        synchronized (writeLock) {
+            if (closed) {
+                return;
+            }
+            inFlight.remove(event.id);
+            try {
+                // Not synced: after a crash the event is applied again, which is harmless
+                append(entry("D", event));
+                if (++completedSinceCompaction >= dedupWindow) {
+                    compact();
+                }
+            } catch (IOException e) {
+                logger.error("Failed to journal completion of Razorpay webhook {}", event.id, e);
+            }
+        }
+    }
+
+    /**
+     * Durably append an event that kept failing to the dead-letter file, with the last error, so
+     * it can be inspected and resubmitted.
+     *
+     * @return Whether the event is safe to complete in the journal
+     */
+    private boolean deadLetter(Event event, Exception error) {
+        ObjectNode entry = entry("R", event).put("error", String.valueOf(error.getMessage()))
+                .put("failedAt", System.currentTimeMillis());
+        byte[] line = (entry.toString() + "\n").getBytes(StandardCharsets.UTF_8);
+        synchronized (deadLetterLock) {
+            try (FileChannel channel = FileChannel.open(deadLetterPath, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                ByteBuffer buffer = ByteBuffer.wrap(line);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(false);
+                return true;
+            } catch (IOException e) {
+                logger.error("Failed to dead-letter Razorpay webhook {}", event.id, e);
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Append one journal line. Caller holds writeLock.
+     *
+     * @return The journal length including this line
+     */
+    private long append(ObjectNode entry) throws IOException {
+        byte[] line = (objectMapper.writeValueAsString(entry) + "\n").getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.wrap(line);
+        while (buffer.hasRemaining()) {
+            journal.write(buffer);
+        }
+        written += line.length;
+        return written;
+    }
+
+    /**
+     * Wait until the journal is durable up to end. One fsync covers every line appended before
+     * it started, so concurrent webhooks share fsyncs instead of queueing one each.
+     */
+    private void sync(long end) {
+        if (!fsync) {
+            return;
+        }
+        synchronized (syncLock) {
+            if (synced >= end) {
+                return;
+            }
+            long target = written;
+            try {
+                journal.force(false);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to sync Razorpay webhook journal", e);
+            }
+            synced = target;
+        }
+    }
+
+    /**
+     * Read the journal: R lines add an event, D lines complete one, S lines only mark an ID as
+     * seen. A torn last line from a crash ends the replay.
+     *
+     * @return Events without a completion, in arrival order
+     */
+    private List<Event> replay() throws IOException {
+        if (!Files.exists(journalPath)) {
+            return new ArrayList<>();
+        }
+        try (BufferedReader reader = Files.newBufferedReader(journalPath, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                JsonNode entry;
+                try {
+                    entry = objectMapper.readTree(line);
+                } catch (IOException e) {
+                    logger.warn("Ignoring torn line at the end of {}", journalPath);
+                    break;
+                }
+                String id = entry.path("id").asText();
+                switch (entry.path("op").asText()) {
+                    case "R":
+                        seen.put(id, Boolean.TRUE);
+                        inFlight.put(id, new Event(sequence++, id, entry.path("key").asText(), entry.path("body").asText()));
+                        break;
+                    case "D":
+                        inFlight.remove(id);
+                        break;
+                    case "S":
+                        seen.put(id, Boolean.TRUE);
+                        break;
+                    default:
+                        break;
+                }
+            }
+        }
+        List<Event> pending = new ArrayList<>(inFlight.values());
+        pending.sort(Comparator.comparingLong(event -> event.sequence));
+        return pending;
+    }
+
+    /**
+     * Rewrite the journal as the dedup window followed by the pending events. Caller holds
+     * writeLock.
+     */
+    private void compact() throws IOException {
+        List<Event> pending = new ArrayList<>(inFlight.values());
+        pending.sort(Comparator.comparingLong(event -> event.sequence));
+
+        Path compacted = journalPath.resolveSibling(JOURNAL + ".tmp");
+        try (Writer out = Files.newBufferedWriter(compacted, StandardCharsets.UTF_8)) {
+            for (String id : seen.keySet()) {
+                if (!inFlight.containsKey(id)) {
+                    out.write(objectMapper.writeValueAsString(objectMapper.createObjectNode().put("op", "S").put("id", id)));
+                    out.write('\n');
+                }
+            }
+            for (Event event : pending) {
+                out.write(objectMapper.writeValueAsString(entry("R", event)));
+                out.write('\n');
+            }
+        }
+        try (FileChannel channel = FileChannel.open(compacted, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+
+        synchronized (syncLock) {
+            if (journal != null) {
+                journal.close();
+            }
+            Files.move(compacted, journalPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            journal = FileChannel.open(journalPath, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            // Everything appended so far is in the compacted file, which is already durable
+            synced = written;
+        }
+        completedSinceCompaction = 0;
+    }
+
+    private ObjectNode entry(String op, Event event) {
+        ObjectNode entry = objectMapper.createObjectNode().put("op", op).put("id", event.id);
+        if ("R".equals(op)) {
+            entry.put("key", event.key).put("body", event.body);
+        }
+        return entry;
+    }
+
+    private static final class Event {
+        private final long sequence;
+        private final String id;
+        private final String key;
+        private final String body;
+
+        private Event(long sequence, String id, String key, String body) {
+            this.sequence = sequence;
+            this.id = id;
+            this.key = key;
+            this.body = body;
+        }
+    }
+
+    /**
+     * Snapshot of webhook queue counters.
+     */
+    public static class QueueStats {
+        private final long accepted;
+        private final long duplicates;
+        private final long rejected;
+        private final long processed;
+        private final long failed;
+        private final int pending;
+
+        public QueueStats(long accepted, long duplicates, long rejected, long processed, long failed, int pending) {
+            this.accepted = accepted;
+            this.duplicates = duplicates;
+            this.rejected = rejected;
+            this.processed = processed;
+            this.failed = failed;
+            this.pending = pending;
+        }
+
+        public long getAccepted() { return accepted; }
+        public long getDuplicates() { return duplicates; }
+        public long getRejected() { return rejected; }
+        public long getProcessed() { return processed; }
+        public long getFailed() { return failed; }
+        public int getPending() { return pending; }
+
+        @Override
+        public String toString() {
+            return String.format("QueueStats{accepted=%d, duplicates=%d, rejected=%d, processed=%d, failed=%d, pending=%d}",
+                    accepted, duplicates, rejected, processed, failed, pending);
+        }
+    }
+}
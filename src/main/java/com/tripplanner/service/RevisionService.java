@@ -2,11 +2,6 @@ package com.tripplanner.service;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.google.cloud.firestore.DocumentReference;
-import com.google.cloud.firestore.DocumentSnapshot;
-import com.google.cloud.firestore.Firestore;
-import com.google.cloud.firestore.Query;
-import com.google.cloud.firestore.QuerySnapshot;
 import com.tripplanner.dto.ChangeDetail;
 import com.tripplanner.dto.NormalizedDay;
 import com.tripplanner.dto.NormalizedItinerary;
@@ -15,55 +10,66 @@ import com.tripplanner.dto.NodeTiming;
 import com.tripplanner.dto.RevisionRecord;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.ExecutionException;
 import java.util.stream.Collectors;
 
 /**
- * Service for managing itinerary revisions in Firebase.
- * Stores revisions at root/itineraries/{itineraryId}/revisions/{revisionId}
+ * Service for managing itinerary revisions.
+ * Stores revisions at root/itineraries/{itineraryId}/revisions/{revisionId}, in Firestore by default
+ * or in the embedded local store with database.backend=local.
  */
-@Service
-public class RevisionService {
+public abstract class RevisionService {
     
     private static final Logger logger = LoggerFactory.getLogger(RevisionService.class);
     
-    private static final String COLLECTION_ITINERARIES = "itineraries";
-    private static final String SUBCOLLECTION_REVISIONS = "revisions";
+    protected static final String COLLECTION_ITINERARIES = "itineraries";
+    protected static final String SUBCOLLECTION_REVISIONS = "revisions";
     
-    @Autowired
-    private Firestore firestore;
+    private final ObjectMapper objectMapper;
     
-    @Autowired
-    private ObjectMapper objectMapper;
+    protected RevisionService(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+    
+    protected abstract void storeRevision(String itineraryId, RevisionRecord revision)
+            throws InterruptedException, ExecutionException;
+    
+    protected abstract Optional<RevisionRecord> loadRevision(String itineraryId, String revisionId)
+            throws InterruptedException, ExecutionException;
     
     /**
-     * Save a revision to Firebase at root/itineraries/{itineraryId}/revisions/{revisionId}
+     * All revisions of an itinerary, in any order.
+     */
+    protected abstract List<RevisionRecord> loadRevisions(String itineraryId)
+            throws InterruptedException, ExecutionException;
+    
+    /**
+     * Revisions with a timestamp after the given one, oldest first.
+     */
+    protected abstract List<RevisionRecord> loadRevisionsAfter(String itineraryId, Long afterTimestamp)
+            throws InterruptedException, ExecutionException;
+    
+    protected abstract Optional<NormalizedItinerary> loadCurrentItinerary(String itineraryId)
+            throws InterruptedException, ExecutionException;
+    
+    /**
+     * Save a revision at root/itineraries/{itineraryId}/revisions/{revisionId}
      */
     public void saveRevision(String itineraryId, RevisionRecord revision) {
         try {
             logger.info("Saving revision {} for itinerary: {}", revision.getRevisionId(), itineraryId);
             
-            DocumentReference revisionDoc = firestore
-                    .collection(COLLECTION_ITINERARIES)
-                    .document(itineraryId)
-                    .collection(SUBCOLLECTION_REVISIONS)
-                    .document(revision.getRevisionId());
-            
             // Validate revision data before saving
             validateRevisionRecord(revision);
             
-            // Save revision to Firebase
-            revisionDoc.set(revision).get();
+            storeRevision(itineraryId, revision);
             
             logger.info("Successfully saved revision {} for itinerary: {}", revision.getRevisionId(), itineraryId);
             
@@ -83,25 +89,7 @@ public class RevisionService {
         try {
             logger.info("Fetching revision history for itinerary: {}", itineraryId);
             
-            DocumentReference itineraryDoc = firestore
-                    .collection(COLLECTION_ITINERARIES)
-                    .document(itineraryId);
-            
-            Query query = itineraryDoc.collection(SUBCOLLECTION_REVISIONS)
-                    .orderBy("timestamp", Query.Direction.DESCENDING);
-            
-            QuerySnapshot querySnapshot = query.get().get();
-            
-            List<RevisionRecord> revisions = querySnapshot.getDocuments().stream()
-                    .map(doc -> {
-                        try {
-                            return doc.toObject(RevisionRecord.class);
-                        } catch (Exception e) {
-                            logger.error("Failed to convert revision document to object: {}", doc.getId(), e);
-                            return null;
-                        }
-                    })
-                    .filter(Objects::nonNull)
+            List<RevisionRecord> revisions = loadRevisions(itineraryId).stream()
                     .sorted(Comparator.comparing(RevisionRecord::getTimestamp).reversed())
                     .collect(Collectors.toList());
             
@@ -125,22 +113,8 @@ public class RevisionService {
             logger.info("Rolling back itinerary {} to revision: {}", itineraryId, revisionId);
             
             // Validate revision exists
-            DocumentReference revisionDoc = firestore
-                    .collection(COLLECTION_ITINERARIES)
-                    .document(itineraryId)
-                    .collection(SUBCOLLECTION_REVISIONS)
-                    .document(revisionId);
-            
-            DocumentSnapshot document = revisionDoc.get().get();
-            
-            if (!document.exists()) {
-                throw new IllegalArgumentException("Revision not found: " + revisionId);
-            }
-            
-            RevisionRecord revision = document.toObject(RevisionRecord.class);
-            if (revision == null) {
-                throw new RuntimeException("Failed to deserialize revision: " + revisionId);
-            }
+            RevisionRecord revision = loadRevision(itineraryId, revisionId)
+                    .orElseThrow(() -> new IllegalArgumentException("Revision not found: " + revisionId));
             
             // Reconstruct itinerary from revision
             NormalizedItinerary restored = reconstructItineraryFromRevision(revision);
@@ -164,21 +138,11 @@ public class RevisionService {
         try {
             logger.debug("Fetching revision {} for itinerary: {}", revisionId, itineraryId);
             
-            DocumentReference revisionDoc = firestore
-                    .collection(COLLECTION_ITINERARIES)
-                    .document(itineraryId)
-                    .collection(SUBCOLLECTION_REVISIONS)
-                    .document(revisionId);
-            
-            DocumentSnapshot document = revisionDoc.get().get();
-            
-            if (document.exists()) {
-                RevisionRecord revision = document.toObject(RevisionRecord.class);
-                return Optional.ofNullable(revision);
-            } else {
+            Optional<RevisionRecord> revision = loadRevision(itineraryId, revisionId);
+            if (revision.isEmpty()) {
                 logger.warn("Revision {} not found for itinerary: {}", revisionId, itineraryId);
-                return Optional.empty();
             }
+            return revision;
             
         } catch (InterruptedException | ExecutionException e) {
             logger.error("Failed to fetch revision {} for itinerary: {}", revisionId, itineraryId, e);
@@ -230,23 +194,11 @@ public class RevisionService {
             }
             
             // Get current itinerary state
-            DocumentReference itineraryDoc = firestore
-                    .collection(COLLECTION_ITINERARIES)
-                    .document(itineraryId);
-            
-            DocumentSnapshot currentDoc = itineraryDoc.get().get();
-            if (!currentDoc.exists()) {
-                throw new IllegalArgumentException("Current itinerary not found: " + itineraryId);
-            }
-            
-            // Convert to NormalizedItinerary
-            NormalizedItinerary currentItinerary = currentDoc.toObject(NormalizedItinerary.class);
-            if (currentItinerary == null) {
-                throw new RuntimeException("Failed to deserialize current itinerary");
-            }
+            NormalizedItinerary currentItinerary = loadCurrentItinerary(itineraryId)
+                    .orElseThrow(() -> new IllegalArgumentException("Current itinerary not found: " + itineraryId));
             
             // Get all revisions after the target revision
-            List<RevisionRecord> laterRevisions = getRevisionsAfter(itineraryId, targetRevision.getTimestamp());
+            List<RevisionRecord> laterRevisions = loadRevisionsAfter(itineraryId, targetRevision.getTimestamp());
             
             // Apply reverse changes in reverse chronological order
             NormalizedItinerary reconstructed = deepCopyItinerary(currentItinerary);
@@ -272,28 +224,6 @@ public class RevisionService {
         }
     }
     
-    /**
-     * Get all revisions after a specific timestamp
-     */
-    private List<RevisionRecord> getRevisionsAfter(String itineraryId, Long afterTimestamp) 
-            throws InterruptedException, ExecutionException {
-        
-        DocumentReference itineraryDoc = firestore
-                .collection(COLLECTION_ITINERARIES)
-                .document(itineraryId);
-        
-        Query query = itineraryDoc.collection(SUBCOLLECTION_REVISIONS)
-                .whereGreaterThan("timestamp", afterTimestamp)
-                .orderBy("timestamp", Query.Direction.ASCENDING);
-        
-        QuerySnapshot querySnapshot = query.get().get();
-        
-        return querySnapshot.getDocuments().stream()
-                .map(doc -> doc.toObject(RevisionRecord.class))
-                .filter(Objects::nonNull)
-                .collect(Collectors.toList());
-    }
-    
     /**
      * Apply reverse changes from a revision to reconstruct previous state
      */
@@ -432,21 +362,14 @@ public class RevisionService {
      * Find a node by ID across all days
      */
     private NormalizedNode findNodeById(NormalizedItinerary itinerary, String nodeId) {
-        return itinerary.getDays().stream()
-                .flatMap(day -> day.getNodes().stream())
-                .filter(node -> node.getId() != null && node.getId().equals(nodeId))
-                .findFirst()
-                .orElse(null);
+        return itinerary.getNodeIndex().getNode(nodeId);
     }
     
     /**
      * Find a day by day number
      */
     private NormalizedDay findDayByNumber(NormalizedItinerary itinerary, Integer dayNumber) {
-        return itinerary.getDays().stream()
-                .filter(day -> day.getDayNumber().equals(dayNumber))
-                .findFirst()
-                .orElse(null);
+        return itinerary.getNodeIndex().getDay(dayNumber);
     }
     
     /**
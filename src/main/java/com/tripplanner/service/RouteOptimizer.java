@@ -0,0 +1,630 @@
+package com.tripplanner.service;
+
+import com.tripplanner.dto.ChangeOperation;
+import com.tripplanner.dto.ChangeSet;
+import com.tripplanner.dto.NodeTiming;
+import com.tripplanner.dto.NormalizedDay;
+import com.tripplanner.dto.NormalizedItinerary;
+import com.tripplanner.dto.NormalizedNode;
+import com.tripplanner.dto.TimeSlot;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.DateTimeException;
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.TextStyle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.IntStream;
+
+/**
+ * Day-route optimizer.
+ *
+ * Reorders the unlocked, located sightseeing nodes of each day to cut travel time while respecting
+ * opening hours and the fixed times of everything else in the day. Locked nodes, meals,
+ * accommodation, transport and nodes without coordinates or timing stay where they are; movable
+ * nodes are permuted among the positions they already occupy and keep their durations.
+ *
+ * Each day is solved independently with 2-opt and Or-opt local search over a schedule simulation
+ * (travel and opening-hours waiting minutes plus a penalty for arriving late at a fixed node or
+ * finishing after closing time), starting from the current order, so the result is never worse than
+ * the input. Days run in parallel and the whole request stops at a hard time budget, returning the
+ * best order found so far.
+ */
+@Service
+public class RouteOptimizer {
+
+    private static final Logger logger = LoggerFactory.getLogger(RouteOptimizer.class);
+
+    /**
+     * Agent name on optimizer ChangeSets; ChangeEngine lets these move unlocked nodes around locked ones.
+     */
+    public static final String AGENT = "route_optimizer";
+
+    private static final long MINUTE_MS = 60_000L;
+    private static final double LATENESS_WEIGHT = 10.0;
+    private static final double MIN_IMPROVEMENT = 1e-6;
+    private static final int MAX_SEGMENT_LENGTH = 3;
+    private static final long RESULT_GRACE_MS = 50;
+    private static final Set<String> FIXED_TYPES = Set.of("meal", "accommodation", "transport");
+    private static final int MAX_CONCURRENT_DAYS = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+    private final TravelTimeService travelTimeService;
+
+    private final ExecutorService dayExecutor = Executors.newFixedThreadPool(MAX_CONCURRENT_DAYS, r -> {
+        Thread t = new Thread(r);
+        t.setName("Route-Optimizer-" + t.getId());
+        t.setDaemon(true);
+        return t;
+    });
+
+    @Value("${route.optimizer.time-budget-ms:200}")
+    private long timeBudgetMs;
+
+    public RouteOptimizer(TravelTimeService travelTimeService) {
+        this.travelTimeService = travelTimeService;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        dayExecutor.shutdown();
+    }
+
+    /**
+     * Optimize every day of the itinerary within the configured time budget.
+     */
+    public OptimizationResult optimize(NormalizedItinerary itinerary) {
+        return optimize(itinerary, timeBudgetMs);
+    }
+
+    /**
+     * Optimize every day of the itinerary, stopping after the given time budget.
+     */
+    public OptimizationResult optimize(NormalizedItinerary itinerary, long budgetMs) {
+        long startedAt = System.nanoTime();
+        long deadline = startedAt + TimeUnit.MILLISECONDS.toNanos(budgetMs);
+        List<DayRoute> routes = new ArrayList<>();
+        if (itinerary == null || itinerary.getDays() == null) {
+            return new OptimizationResult(routes, 0);
+        }
+
+        Map<Integer, TravelTimeService.DayMatrix> matrices = travelTimeService.getMatrices(itinerary);
+
+        Map<NormalizedDay, CompletableFuture<DayRoute>> pending = new LinkedHashMap<>();
+        for (NormalizedDay day : itinerary.getDays()) {
+            TravelTimeService.DayMatrix matrix = matrices.get(day.getDayNumber());
+            if (matrix != null && matrix.size() > 2) {
+                pending.put(day, CompletableFuture.supplyAsync(() -> optimizeDay(day, matrix, deadline), dayExecutor));
+            }
+        }
+
+        for (Map.Entry<NormalizedDay, CompletableFuture<DayRoute>> entry : pending.entrySet()) {
+            long remainingMs = TimeUnit.NANOSECONDS.toMillis(Math.max(0, deadline - System.nanoTime()));
+            try {
+                DayRoute route = entry.getValue().get(remainingMs + RESULT_GRACE_MS, TimeUnit.MILLISECONDS);
+                if (route != null) {
+                    routes.add(route);
+                }
+            } catch (TimeoutException e) {
+                entry.getValue().cancel(true);
+                logger.warn("Route optimization for day {} exceeded the time budget, keeping current order",
+                           entry.getKey().getDayNumber());
+            } catch (Exception e) {
+                logger.warn("Route optimization failed for day {}: {}", entry.getKey().getDayNumber(), e.getMessage());
+            }
+        }
+
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+        logger.info("Optimized routes for {} of {} days of {} in {} ms",
+                   routes.stream().filter(DayRoute::isImproved).count(), itinerary.getDays().size(),
+                   itinerary.getItineraryId(), elapsedMs);
+        return new OptimizationResult(routes, elapsedMs);
+    }
+
+    /**
+     * Optimize a single day until no move improves the route or the deadline passes.
+     *
+     * @param deadline {@link System#nanoTime()} value after which the search stops
+     * @return the optimized route, or null if the day has nothing to reorder
+     */
+    public DayRoute optimizeDay(NormalizedDay day, TravelTimeService.DayMatrix matrix, long deadline) {
+        List<NormalizedNode> nodes = day.getNodes();
+        if (nodes == null || nodes.stream().anyMatch(node -> node.getId() == null)) {
+            return null;
+        }
+
+        DaySchedule schedule = new DaySchedule(day, matrix);
+        int[] current = schedule.initialPermutation();
+        if (current.length < 2) {
+            return null;
+        }
+
+        double initialCost = schedule.evaluate(current);
+        double bestCost = initialCost;
+        int evaluations = 1;
+        boolean improved = true;
+
+        search:
+        while (improved) {
+            improved = false;
+
+            // 2-opt: reverse a run of movable nodes
+            for (int i = 0; i < current.length - 1; i++) {
+                for (int j = i + 1; j < current.length; j++) {
+                    if (System.nanoTime() > deadline) {
+                        break search;
+                    }
+                    int[] candidate = reversed(current, i, j);
+                    double cost = schedule.evaluate(candidate);
+                    evaluations++;
+                    if (cost < bestCost - MIN_IMPROVEMENT) {
+                        current = candidate;
+                        bestCost = cost;
+                        improved = true;
+                    }
+                }
+            }
+
+            // Or-opt: relocate a run of up to three movable nodes
+            for (int length = 1; length <= MAX_SEGMENT_LENGTH && length < current.length; length++) {
+                for (int from = 0; from + length <= current.length; from++) {
+                    for (int to = 0; to + length <= current.length; to++) {
+                        if (to == from) {
+                            continue;
+                        }
+                        if (System.nanoTime() > deadline) {
+                            break search;
+                        }
+                        int[] candidate = relocated(current, from, length, to);
+                        double cost = schedule.evaluate(candidate);
+                        evaluations++;
+                        if (cost < bestCost - MIN_IMPROVEMENT) {
+                            current = candidate;
+                            bestCost = cost;
+                            improved = true;
+                        }
+                    }
+                }
+            }
+        }
+
+        return schedule.toRoute(current, initialCost, bestCost, evaluations);
+    }
+
+    private static int[] reversed(int[] permutation, int from, int to) {
+        int[] result = permutation.clone();
+        for (int i = from, j = to; i < j; i++, j--) {
+            int swap = result[i];
+            result[i] = result[j];
+            result[j] = swap;
+        }
+        return result;
+    }
+
+    private static int[] relocated(int[] permutation, int from, int length, int to) {
+        int[] rest = new int[permutation.length - length];
+        System.arraycopy(permutation, 0, rest, 0, from);
+        System.arraycopy(permutation, from + length, rest, from, permutation.length - from - length);
+
+        int[] result = new int[permutation.length];
+        System.arraycopy(rest, 0, result, 0, to);
+        System.arraycopy(permutation, from, result, to, length);
+        System.arraycopy(rest, to, result, to + length, rest.length - to);
+        return result;
+    }
+
+    /**
+     * Schedule simulation for one day. Positions occupied by movable nodes are free slots; a
+     * permutation assigns the movable nodes to those slots in order.
+     */
+    private static class DaySchedule {
+        private final NormalizedDay day;
+        private final List<NormalizedNode> nodes;
+        private final TravelTimeService.DayMatrix matrix;
+        private final int size;
+        private final boolean[] movable;
+        private final long[] plannedStart;
+        private final long[] duration;
+        private final long[] opensAt;
+        private final long[] closesAt;
+        private final int[][] travelMinutes;
+        private final long dayStart;
+
+        private DaySchedule(NormalizedDay day, TravelTimeService.DayMatrix matrix) {
+            this.day = day;
+            this.nodes = day.getNodes();
+            this.matrix = matrix;
+            this.size = nodes.size();
+            this.movable = new boolean[size];
+            this.plannedStart = new long[size];
+            this.duration = new long[size];
+            this.opensAt = new long[size];
+            this.closesAt = new long[size];
+
+            ZoneId zone = resolveZone(day.getTimeZone());
+            LocalDate date = null;
+            long earliest = Long.MAX_VALUE;
+
+            for (int i = 0; i < size; i++) {
+                NormalizedNode node = nodes.get(i);
+                NodeTiming timing = node.getTiming();
+                boolean timed = timing != null && timing.getStartTime() != null && timing.getEndTime() != null;
+
+                plannedStart[i] = timed ? timing.getStartTime() : Long.MIN_VALUE;
+                if (timed) {
+                    duration[i] = Math.max(0, timing.getEndTime() - timing.getStartTime());
+                    earliest = Math.min(earliest, timing.getStartTime());
+                    if (date == null) {
+                        date = resolveDate(day.getDate(), timing.getStartTime(), zone);
+                    }
+                } else if (timing != null && timing.getDurationMin() != null) {
+                    duration[i] = timing.getDurationMin() * MINUTE_MS;
+                }
+
+                movable[i] = timed
+                        && !Boolean.TRUE.equals(node.getLocked())
+                        && !FIXED_TYPES.contains(node.getType())
+                        && matrix.contains(node.getId());
+                opensAt[i] = Long.MIN_VALUE;
+                closesAt[i] = Long.MAX_VALUE;
+            }
+
+            this.dayStart = earliest != Long.MAX_VALUE ? earliest : 0L;
+            if (date != null) {
+                for (int i = 0; i < size; i++) {
+                    if (movable[i]) {
+                        applyOpeningHours(i, nodes.get(i), date, zone);
+                    }
+                }
+            }
+
+            travelMinutes = new int[size][size];
+            for (int i = 0; i < size; i++) {
+                for (int j = 0; j < size; j++) {
+                    Integer minutes = i != j ? matrix.minutes(nodes.get(i).getId(), nodes.get(j).getId(), null) : null;
+                    travelMinutes[i][j] = minutes != null ? minutes : 0;
+                }
+            }
+        }
+
+        /**
+         * Current order of the movable nodes.
+         */
+        private int[] initialPermutation() {
+            return IntStream.range(0, size).filter(i -> movable[i]).toArray();
+        }
+
+        /**
+         * Cost of visiting the day with the movable nodes in the given order.
+         */
+        private double evaluate(int[] permutation) {
+            return simulate(permutation, null);
+        }
+
+        /**
+         * Walk the day in order, waiting for planned slot times and opening hours. Fixed nodes keep
+         * their planned start; arriving after it, or finishing a movable node after closing time,
+         * counts as lateness. Waiting for a place to open costs as much as travelling.
+         */
+        private double simulate(int[] permutation, long[] starts) {
+            long time = dayStart;
+            long latenessMs = 0;
+            long waitingMs = 0;
+            int travel = 0;
+            int previousLocated = -1;
+            int next = 0;
+
+            for (int position = 0; position < size; position++) {
+                int node = movable[position] ? permutation[next++] : position;
+                if (matrix.contains(nodes.get(node).getId())) {
+                    if (previousLocated >= 0) {
+                        int minutes = travelMinutes[previousLocated][node];
+                        travel += minutes;
+                        time += minutes * MINUTE_MS;
+                    }
+                    previousLocated = node;
+                }
+
+                long start;
+                if (movable[node]) {
+                    long ready = Math.max(time, plannedStart[position]);
+                    start = Math.max(ready, opensAt[node]);
+                    waitingMs += start - ready;
+                    long overrun = start + duration[node] - closesAt[node];
+                    if (overrun > 0) {
+                        latenessMs += overrun;
+                    }
+                } else if (plannedStart[node] != Long.MIN_VALUE) {
+                    start = plannedStart[node];
+                    if (time > start) {
+                        latenessMs += time - start;
+                    }
+                } else {
+                    start = time;
+                }
+
+                if (starts != null) {
+                    starts[node] = start;
+                }
+                time = Math.max(time, start + duration[node]);
+            }
+
+            return travel + (double) waitingMs / MINUTE_MS + LATENESS_WEIGHT * latenessMs / MINUTE_MS;
+        }
+
+        private int travelMinutes(int[] permutation) {
+            int travel = 0;
+            int previousLocated = -1;
+            int next = 0;
+            for (int position = 0; position < size; position++) {
+                int node = movable[position] ? permutation[next++] : position;
+                if (matrix.contains(nodes.get(node).getId())) {
+                    if (previousLocated >= 0) {
+                        travel += travelMinutes[previousLocated][node];
+                    }
+                    previousLocated = node;
+                }
+            }
+            return travel;
+        }
+
+        private DayRoute toRoute(int[] permutation, double initialCost, double finalCost, int evaluations) {
+            int[] initial = initialPermutation();
+            boolean improved = finalCost < initialCost - MIN_IMPROVEMENT && !Arrays.equals(initial, permutation);
+
+            List<String> order = new ArrayList<>(size);
+            List<ChangeOperation> moves = new ArrayList<>();
+            if (improved) {
+                long[] starts = new long[size];
+                simulate(permutation, starts);
+                int next = 0;
+                for (int position = 0; position < size; position++) {
+                    int node = movable[position] ? permutation[next++] : position;
+                    NormalizedNode normalizedNode = nodes.get(node);
+                    order.add(normalizedNode.getId());
+                    if (movable[node] && starts[node] != plannedStart[node]) {
+                        moves.add(new ChangeOperation("move", normalizedNode.getId(),
+                                starts[node], starts[node] + duration[node]));
+                    }
+                }
+            }
+
+            return new DayRoute(day.getDayNumber(), improved, order, moves,
+                    travelMinutes(initial), travelMinutes(permutation),
+                    initialCost, improved ? finalCost : initialCost, evaluations);
+        }
+
+        /**
+         * Opening window for the day's weekday from Places details, falling back to the location's
+         * opening and closing hours.
+         */
+        private void applyOpeningHours(int index, NormalizedNode node, LocalDate date, ZoneId zone) {
+            String open = null;
+            String close = null;
+
+            if (node.getDetails() != null && node.getDetails().getOpeningHours() != null) {
+                TimeSlot slot = findSlot(node.getDetails().getOpeningHours(), date.getDayOfWeek());
+                if (slot != null) {
+                    open = slot.getOpen();
+                    close = slot.getClose();
+                }
+            }
+            if (open == null && close == null && node.getLocation() != null) {
+                open = node.getLocation().getOpeningHours();
+                close = node.getLocation().getClosingHours();
+            }
+
+            LocalTime openTime = parseTime(open);
+            LocalTime closeTime = parseTime(close);
+            if (openTime != null) {
+                opensAt[index] = date.atTime(openTime).atZone(zone).toInstant().toEpochMilli();
+            }
+            if (closeTime != null) {
+                // Closing at or before opening time means the place closes after midnight
+                LocalDate closeDate = openTime != null && !closeTime.isAfter(openTime) ? date.plusDays(1) : date;
+                closesAt[index] = closeDate.atTime(closeTime).atZone(zone).toInstant().toEpochMilli();
+            }
+        }
+
+        private static TimeSlot findSlot(Map<String, TimeSlot> openingHours, DayOfWeek dayOfWeek) {
+            String fullName = dayOfWeek.getDisplayName(TextStyle.FULL, Locale.ENGLISH);
+            String shortName = dayOfWeek.getDisplayName(TextStyle.SHORT, Locale.ENGLISH);
+            for (Map.Entry<String, TimeSlot> entry : openingHours.entrySet()) {
+                String key = entry.getKey();
+                if (key != null && (key.equalsIgnoreCase(fullName) || key.equalsIgnoreCase(shortName))) {
+                    return entry.getValue();
+                }
+            }
+            return null;
+        }
+
+        private static LocalTime parseTime(String time) {
+            if (time == null || time.isBlank()) {
+                return null;
+            }
+            try {
+                return LocalTime.parse(time.trim());
+            } catch (DateTimeException e) {
+                return null;
+            }
+        }
+
+        private static ZoneId resolveZone(String timeZone) {
+            if (timeZone != null) {
+                try {
+                    return ZoneId.of(timeZone, ZoneId.SHORT_IDS);
+                } catch (DateTimeException e) {
+                    // Fall through to UTC
+                }
+            }
+            return ZoneOffset.UTC;
+        }
+
+        private static LocalDate resolveDate(String date, long firstStart, ZoneId zone) {
+            if (date != null) {
+                try {
+                    return LocalDate.parse(date);
+                } catch (DateTimeException e) {
+                    // Fall through to the first timed node's date
+                }
+            }
+            return Instant.ofEpochMilli(firstStart).atZone(zone).toLocalDate();
+        }
+    }
+
+    /**
+     * Optimized visiting order for one day.
+     */
+    public static class DayRoute {
+        private final Integer dayNumber;
+        private final boolean improved;
+        private final List<String> order;
+        private final List<ChangeOperation> moves;
+        private final int travelMinutesBefore;
+        private final int travelMinutesAfter;
+        private final double costBefore;
+        private final double costAfter;
+        private final int evaluations;
+
+        private DayRoute(Integer dayNumber, boolean improved, List<String> order, List<ChangeOperation> moves,
+                         int travelMinutesBefore, int travelMinutesAfter,
+                         double costBefore, double costAfter, int evaluations) {
+            this.dayNumber = dayNumber;
+            this.improved = improved;
+            this.order = order;
+            this.moves = moves;
+            this.travelMinutesBefore = travelMinutesBefore;
+            this.travelMinutesAfter = travelMinutesAfter;
+            this.costBefore = costBefore;
+            this.costAfter = costAfter;
+            this.evaluations = evaluations;
+        }
+
+        /**
+         * Operations reordering the day and moving rescheduled nodes; empty if the current order is
+         * already the best found.
+         */
+        public List<ChangeOperation> toOperations() {
+            if (!improved) {
+                return List.of();
+            }
+            ChangeOperation reorder = new ChangeOperation("reorder", null);
+            reorder.setNodeIds(new ArrayList<>(order));
+
+            List<ChangeOperation> ops = new ArrayList<>();
+            ops.add(reorder);
+            ops.addAll(moves);
+            return ops;
+        }
+
+        public Integer getDayNumber() {
+            return dayNumber;
+        }
+
+        public boolean isImproved() {
+            return improved;
+        }
+
+        /**
+         * Node ids of the whole day in optimized order; empty when not improved.
+         */
+        public List<String> getOrder() {
+            return order;
+        }
+
+        public int getTravelMinutesBefore() {
+            return travelMinutesBefore;
+        }
+
+        public int getTravelMinutesAfter() {
+            return travelMinutesAfter;
+        }
+
+        /**
+         * Travel and waiting minutes plus weighted lateness minutes before optimization.
+         */
+        public double getCostBefore() {
+            return costBefore;
+        }
+
+        public double getCostAfter() {
+            return costAfter;
+        }
+
+        public int getEvaluations() {
+            return evaluations;
+        }
+    }
+
+    /**
+     * Routes for all optimized days of an itinerary.
+     */
+    public static class OptimizationResult {
+        private final List<DayRoute> days;
+        private final long elapsedMs;
+
+        private OptimizationResult(List<DayRoute> days, long elapsedMs) {
+            this.days = days;
+            this.elapsedMs = elapsedMs;
+        }
+
+        public List<DayRoute> getDays() {
+            return days;
+        }
+
+        public long getElapsedMs() {
+            return elapsedMs;
+        }
+
+        /**
+         * One trip-scoped ChangeSet with the reorder and move operations of every improved day, or
+         * null if no day improved. Each reorder applies to the day holding its nodes.
+         */
+        public ChangeSet toChangeSet() {
+            List<ChangeOperation> ops = new ArrayList<>();
+            int improvedDays = 0;
+            for (DayRoute day : days) {
+                List<ChangeOperation> dayOps = day.toOperations();
+                if (!dayOps.isEmpty()) {
+                    ops.addAll(dayOps);
+                    improvedDays++;
+                }
+            }
+            if (ops.isEmpty()) {
+                return null;
+            }
+
+            ChangeSet changeSet = new ChangeSet("trip", null, ops);
+            changeSet.setAgent(AGENT);
+            changeSet.setReason(String.format("Reordered %d days to save %d minutes of travel",
+                    improvedDays, getTravelMinutesSaved()));
+            return changeSet;
+        }
+
+        public int getImprovedDays() {
+            return (int) days.stream().filter(DayRoute::isImproved).count();
+        }
+
+        public int getTravelMinutesSaved() {
+            return days.stream().mapToInt(day -> day.getTravelMinutesBefore() - day.getTravelMinutesAfter()).sum();
+        }
+    }
+}
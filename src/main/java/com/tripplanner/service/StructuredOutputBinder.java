@@ -0,0 +1,36 @@
+package com.tripplanner.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import java.io.IOException;
+
+/**
+ * Binds LLM structured output to a target DTO using a compiled schema and a cached
+ * Jackson reader. One instance per agent and target type, created at construction time.
+ *
+ * @param <T> target DTO type (e.g. ChangeSet, NormalizedDay)
+ */
+public class StructuredOutputBinder<T> {
+
+    private final CompiledSchema schema;
+    private final ObjectReader reader;
+
+    public StructuredOutputBinder(CompiledSchema schema, ObjectMapper objectMapper, Class<T> targetType) {
+        this.schema = schema;
+        this.reader = objectMapper.readerFor(targetType);
+    }
+
+    /**
+     * Bind without validation. Agents validate against {@link #getSchema()} before rewriting
+     * fields such as times, so the node bound here is no longer in its schema's shape.
+     */
+    public T bind(JsonNode node) throws IOException {
+        return reader.readValue(node);
+    }
+
+    public CompiledSchema getSchema() {
+        return schema;
+    }
+}
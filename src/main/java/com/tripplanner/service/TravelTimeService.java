@@ -0,0 +1,322 @@
+package com.tripplanner.service;
+
+import com.tripplanner.dto.Coordinates;
+import com.tripplanner.dto.NormalizedDay;
+import com.tripplanner.dto.NormalizedItinerary;
+import com.tripplanner.dto.NormalizedNode;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Local travel-time engine.
+ *
+ * Estimates door-to-door travel time from great-circle (haversine) distance using per-mode speed
+ * profiles, and precomputes an origin-destination matrix over every located node of a day. Matrices
+ * are cached per itinerary and reused across versions for days whose nodes and coordinates have not
+ * changed, so repeated enrichment runs only recompute the days that were edited.
+ */
+@Service
+public class TravelTimeService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TravelTimeService.class);
+
+    private static final double EARTH_RADIUS_KM = 6371.0;
+    private static final double MAX_WALKING_DISTANCE_KM = 1.2;
+    private static final int MAX_CACHED_ITINERARIES = 256;
+    private static final int MAX_CONCURRENT_DAYS = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+    private final ExecutorService matrixExecutor = Executors.newFixedThreadPool(MAX_CONCURRENT_DAYS, r -> {
+        Thread t = new Thread(r);
+        t.setName("Travel-Matrix-" + t.getId());
+        t.setDaemon(true);
+        return t;
+    });
+
+    // Least recently used itineraries are dropped first
+    private final Map<String, ItineraryMatrices> matrixCache = Collections.synchronizedMap(
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, ItineraryMatrices> eldest) {
+                    return size() > MAX_CACHED_ITINERARIES;
+                }
+            });
+
+    @PreDestroy
+    void shutdown() {
+        matrixExecutor.shutdown();
+    }
+
+    /**
+     * Speed profile of a travel mode: average speed, detour factor from straight-line to route
+     * distance, and fixed overhead (waiting, parking, boarding) per trip.
+     */
+    public enum TravelMode {
+        WALK("walk", 4.5, 1.25, 0),
+        TRANSIT("metro", 18.0, 1.35, 8),
+        DRIVE("taxi", 24.0, 1.3, 5);
+
+        private final String transportMode;
+        private final double speedKmh;
+        private final double detourFactor;
+        private final int overheadMinutes;
+
+        TravelMode(String transportMode, double speedKmh, double detourFactor, int overheadMinutes) {
+            this.transportMode = transportMode;
+            this.speedKmh = speedKmh;
+            this.detourFactor = detourFactor;
+            this.overheadMinutes = overheadMinutes;
+        }
+
+        /**
+         * Estimated minutes to cover the given straight-line distance.
+         */
+        public int minutesFor(double distanceKm) {
+            if (distanceKm <= 0) {
+                return 0;
+            }
+            return (int) Math.ceil(overheadMinutes + distanceKm * detourFactor / speedKmh * 60);
+        }
+
+        /**
+         * Transport mode name used on transport nodes ("walk", "metro", "taxi").
+         */
+        public String getTransportMode() {
+            return transportMode;
+        }
+
+        /**
+         * Map a transport node mode ("walk", "bus", "taxi", ...) to a speed profile.
+         *
+         * @return the profile, or null for modes that are not estimated locally (e.g. flights)
+         */
+        public static TravelMode fromTransportMode(String mode) {
+            if (mode == null) {
+                return null;
+            }
+            switch (mode.toLowerCase()) {
+                case "walk":
+                    return WALK;
+                case "bus":
+                case "metro":
+                case "train":
+                case "tram":
+                case "ferry":
+                    return TRANSIT;
+                case "taxi":
+                case "rideshare":
+                case "car_rental":
+                    return DRIVE;
+                default:
+                    return null;
+            }
+        }
+
+        /**
+         * Mode a traveller would typically pick for the given distance.
+         */
+        public static TravelMode recommendedFor(double distanceKm) {
+            return distanceKm <= MAX_WALKING_DISTANCE_KM ? WALK : TRANSIT;
+        }
+    }
+
+    /**
+     * Great-circle distance between two coordinates in kilometers.
+     */
+    public static double distanceKm(Coordinates from, Coordinates to) {
+        double fromLat = Math.toRadians(from.getLat());
+        double toLat = Math.toRadians(to.getLat());
+        double deltaLat = toLat - fromLat;
+        double deltaLng = Math.toRadians(to.getLng() - from.getLng());
+
+        double a = Math.sin(deltaLat / 2) * Math.sin(deltaLat / 2) +
+                   Math.cos(fromLat) * Math.cos(toLat) *
+                   Math.sin(deltaLng / 2) * Math.sin(deltaLng / 2);
+
+        return EARTH_RADIUS_KM * 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    }
+
+    /**
+     * Estimated travel minutes between two coordinates.
+     *
+     * @param mode speed profile, or null to use the recommended mode for the distance
+     */
+    public int estimateMinutes(Coordinates from, Coordinates to, TravelMode mode) {
+        double distance = distanceKm(from, to);
+        TravelMode effectiveMode = mode != null ? mode : TravelMode.recommendedFor(distance);
+        return effectiveMode.minutesFor(distance);
+    }
+
+    /**
+     * Travel-time matrices for every day of the itinerary, keyed by day number.
+     * Days are computed in parallel; unchanged days are served from the cache.
+     */
+    public Map<Integer, DayMatrix> getMatrices(NormalizedItinerary itinerary) {
+        Map<Integer, DayMatrix> result = new HashMap<>();
+        if (itinerary == null || itinerary.getDays() == null) {
+            return result;
+        }
+
+        ItineraryMatrices cached = itinerary.getItineraryId() != null
+                ? matrixCache.get(itinerary.getItineraryId()) : null;
+
+        Map<Integer, CompletableFuture<DayMatrix>> pending = new HashMap<>();
+        for (NormalizedDay day : itinerary.getDays()) {
+            if (day.getDayNumber() == null) {
+                continue;
+            }
+            DayMatrix previous = cached != null ? cached.days.get(day.getDayNumber()) : null;
+            if (previous != null && previous.fingerprint == fingerprint(day)) {
+                result.put(day.getDayNumber(), previous);
+            } else {
+                pending.put(day.getDayNumber(), CompletableFuture.supplyAsync(() -> getDayMatrix(day), matrixExecutor));
+            }
+        }
+
+        pending.forEach((dayNumber, future) -> result.put(dayNumber, future.join()));
+
+        if (itinerary.getItineraryId() != null) {
+            matrixCache.put(itinerary.getItineraryId(), new ItineraryMatrices(result));
+        }
+        logger.debug("Travel matrices for {}: {} days computed, {} reused",
+                    itinerary.getItineraryId(), pending.size(), result.size() - pending.size());
+        return result;
+    }
+
+    /**
+     * Compute the travel-time matrix for a single day.
+     */
+    public DayMatrix getDayMatrix(NormalizedDay day) {
+        List<String> nodeIds = new ArrayList<>();
+        List<Coordinates> coordinates = new ArrayList<>();
+        if (day.getNodes() != null) {
+            for (NormalizedNode node : day.getNodes()) {
+                Coordinates coords = coordinatesOf(node);
+                if (node.getId() != null && coords != null) {
+                    nodeIds.add(node.getId());
+                    coordinates.add(coords);
+                }
+            }
+        }
+
+        int size = nodeIds.size();
+        double[][] distances = new double[size][size];
+        for (int i = 0; i < size; i++) {
+            for (int j = i + 1; j < size; j++) {
+                double distance = distanceKm(coordinates.get(i), coordinates.get(j));
+                distances[i][j] = distance;
+                distances[j][i] = distance;
+            }
+        }
+
+        return new DayMatrix(nodeIds, distances, fingerprint(day));
+    }
+
+    /**
+     * Drop cached matrices for an itinerary.
+     */
+    public void invalidate(String itineraryId) {
+        matrixCache.remove(itineraryId);
+    }
+
+    private static Coordinates coordinatesOf(NormalizedNode node) {
+        if (node.getLocation() == null || node.getLocation().getCoordinates() == null) {
+            return null;
+        }
+        Coordinates coords = node.getLocation().getCoordinates();
+        return coords.getLat() != null && coords.getLng() != null ? coords : null;
+    }
+
+    /**
+     * Cheap hash of a day's node ids and coordinates, used to detect days that need recomputing.
+     */
+    private static long fingerprint(NormalizedDay day) {
+        long hash = 17;
+        if (day.getNodes() != null) {
+            for (NormalizedNode node : day.getNodes()) {
+                Coordinates coords = coordinatesOf(node);
+                hash = 31 * hash + (node.getId() != null ? node.getId().hashCode() : 0);
+                hash = 31 * hash + (coords != null ? Double.hashCode(coords.getLat()) : 0);
+                hash = 31 * hash + (coords != null ? Double.hashCode(coords.getLng()) : 0);
+            }
+        }
+        return hash;
+    }
+
+    private static class ItineraryMatrices {
+        private final Map<Integer, DayMatrix> days;
+
+        private ItineraryMatrices(Map<Integer, DayMatrix> days) {
+            this.days = days;
+        }
+    }
+
+    /**
+     * Origin-destination distances and travel times between the located nodes of one day.
+     */
+    public static class DayMatrix {
+        private final Map<String, Integer> indexByNodeId = new HashMap<>();
+        private final double[][] distances;
+        private final long fingerprint;
+
+        private DayMatrix(List<String> nodeIds, double[][] distances, long fingerprint) {
+            for (int i = 0; i < nodeIds.size(); i++) {
+                indexByNodeId.put(nodeIds.get(i), i);
+            }
+            this.distances = distances;
+            this.fingerprint = fingerprint;
+        }
+
+        /**
+         * Whether the node has coordinates and is part of the matrix.
+         */
+        public boolean contains(String nodeId) {
+            return indexByNodeId.containsKey(nodeId);
+        }
+
+        /**
+         * Straight-line distance in kilometers, or null if either node has no coordinates.
+         */
+        public Double distanceKm(String fromNodeId, String toNodeId) {
+            Integer from = indexByNodeId.get(fromNodeId);
+            Integer to = indexByNodeId.get(toNodeId);
+            return from != null && to != null ? distances[from][to] : null;
+        }
+
+        /**
+         * Mode a traveller would typically pick between the nodes, or null if unknown.
+         */
+        public TravelMode recommendedMode(String fromNodeId, String toNodeId) {
+            Double distance = distanceKm(fromNodeId, toNodeId);
+            return distance != null ? TravelMode.recommendedFor(distance) : null;
+        }
+
+        /**
+         * Travel minutes between the nodes, or null if either node has no coordinates.
+         *
+         * @param mode speed profile, or null to use the recommended mode for the distance
+         */
+        public Integer minutes(String fromNodeId, String toNodeId, TravelMode mode) {
+            Double distance = distanceKm(fromNodeId, toNodeId);
+            if (distance == null) {
+                return null;
+            }
+            return (mode != null ? mode : TravelMode.recommendedFor(distance)).minutesFor(distance);
+        }
+
+        public int size() {
+            return indexByNodeId.size();
+        }
+    }
+}
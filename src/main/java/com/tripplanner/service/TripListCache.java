@@ -0,0 +1,262 @@
+package com.tripplanner.service;
+
+import com.tripplanner.dto.TripMetadata;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Per-user trip lists (the TripMetadata projection under users/{userId}/itineraries), so the
+ * dashboard list is served from memory after one Firestore query.
+ *
+ * UserDataService fills a list on the first read and then keeps it current as metadata is saved,
+ * updated or deleted. It also remembers the projected fields (destination, dates, summary, status)
+ * last written for each itinerary, so itinerary writes that leave them unchanged do not touch the
+ * metadata document. Lists expire after a TTL so writes made by other instances are picked up
+ * eventually.
+ */
+@Service
+public class TripListCache {
+
+    private static final int MAX_CACHED_USERS = 1024;
+    private static final int MAX_TRACKED_ITINERARIES = 4096;
+
+    private final long ttlMillis;
+
+    // Least recently used users are dropped first
+    private final Map<String, UserTrips> users = Collections.synchronizedMap(
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, UserTrips> eldest) {
+                    return size() > MAX_CACHED_USERS;
+                }
+            });
+
+    // Least recently written itineraries are dropped first
+    private final Map<String, Map<String, Object>> projections = Collections.synchronizedMap(
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Map<String, Object>> eldest) {
+                    return size() > MAX_TRACKED_ITINERARIES;
+                }
+            });
+
+    public TripListCache(@Value("${user-data.trip-list-cache.ttl-seconds:300}") long ttlSeconds) {
+        this.ttlMillis = ttlSeconds * 1000;
+    }
+
+    /**
+     * The user's trips, newest first, or null if they are not cached.
+     */
+    public List<TripMetadata> get(String userId) {
+        UserTrips trips = users.get(userId);
+        if (trips == null) {
+            return null;
+        }
+        synchronized (trips) {
+            if (trips.list == null || System.currentTimeMillis() - trips.loadedAt >= ttlMillis) {
+                return null;
+            }
+            List<TripMetadata> copy = new ArrayList<>(trips.list.size());
+            for (TripMetadata metadata : trips.list) {
+                copy.add(new TripMetadata(metadata));
+            }
+            return copy;
+        }
+    }
+
+    /**
+     * Start loading a user's trips from storage. Pass the returned generation to {@link #install}.
+     */
+    public long beginLoad(String userId) {
+        UserTrips trips = users.computeIfAbsent(userId, id -> new UserTrips());
+        synchronized (trips) {
+            return trips.generation;
+        }
+    }
+
+    /**
+     * Install a loaded trip list, unless metadata was written for the user since the load began.
+     *
+     * @param newestFirst all of the user's trips ordered by createdAt descending
+     */
+    public void install(String userId, long generation, List<TripMetadata> newestFirst) {
+        UserTrips trips = users.get(userId);
+        if (trips == null) {
+            return;
+        }
+        List<TripMetadata> list = new ArrayList<>(newestFirst.size());
+        for (TripMetadata metadata : newestFirst) {
+            list.add(new TripMetadata(metadata));
+            rememberProjection(metadata);
+        }
+        synchronized (trips) {
+            if (trips.generation == generation) {
+                trips.list = list;
+                trips.loadedAt = System.currentTimeMillis();
+            }
+        }
+    }
+
+    /**
+     * Record saved metadata, inserting it into the user's list if it is new.
+     */
+    public void put(String userId, TripMetadata metadata) {
+        rememberProjection(metadata);
+        UserTrips trips = users.get(userId);
+        if (trips == null) {
+            return;
+        }
+        synchronized (trips) {
+            trips.generation++;
+            if (trips.list == null) {
+                return;
+            }
+            trips.list.removeIf(existing -> Objects.equals(existing.getItineraryId(), metadata.getItineraryId()));
+            int index = 0;
+            while (index < trips.list.size() && createdAt(trips.list.get(index)) >= createdAt(metadata)) {
+                index++;
+            }
+            trips.list.add(index, new TripMetadata(metadata));
+        }
+    }
+
+    /**
+     * Record deleted metadata.
+     */
+    public void remove(String userId, String itineraryId) {
+        projections.remove(itineraryId);
+        UserTrips trips = users.get(userId);
+        if (trips == null) {
+            return;
+        }
+        synchronized (trips) {
+            trips.generation++;
+            if (trips.list != null) {
+                trips.list.removeIf(existing -> Objects.equals(existing.getItineraryId(), itineraryId));
+            }
+        }
+    }
+
+    /**
+     * Whether the itinerary's metadata is already known to hold these projected field values.
+     */
+    public boolean isProjected(String itineraryId, Map<String, Object> fields) {
+        Map<String, Object> known = projections.get(itineraryId);
+        if (known == null) {
+            return false;
+        }
+        synchronized (known) {
+            for (Map.Entry<String, Object> field : fields.entrySet()) {
+                if (!Objects.equals(known.get(field.getKey()), field.getValue())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Record projected fields written to the itinerary's metadata document.
+     */
+    public void applyProjection(String userId, String itineraryId, Map<String, Object> fields) {
+        Map<String, Object> known = projections.computeIfAbsent(itineraryId, id -> new HashMap<>());
+        synchronized (known) {
+            known.putAll(fields);
+        }
+        UserTrips trips = users.get(userId);
+        if (trips == null) {
+            return;
+        }
+        synchronized (trips) {
+            trips.generation++;
+            if (trips.list == null) {
+                return;
+            }
+            for (TripMetadata metadata : trips.list) {
+                if (Objects.equals(metadata.getItineraryId(), itineraryId)) {
+                    applyFields(metadata, fields);
+                }
+            }
+        }
+    }
+
+    /**
+     * Drop the user's cached list.
+     */
+    public void invalidate(String userId) {
+        users.remove(userId);
+    }
+
+    /**
+     * Projected fields of trip metadata, keyed by their Firestore field names. Null values are
+     * left out.
+     */
+    static Map<String, Object> projectionOf(TripMetadata metadata) {
+        Map<String, Object> fields = new HashMap<>();
+        putIfPresent(fields, "destination", metadata.getDestination());
+        putIfPresent(fields, "startDate", metadata.getStartDate());
+        putIfPresent(fields, "endDate", metadata.getEndDate());
+        putIfPresent(fields, "summary", metadata.getSummary());
+        putIfPresent(fields, "status", metadata.getStatus());
+        return fields;
+    }
+
+    static void putIfPresent(Map<String, Object> fields, String name, String value) {
+        if (value != null && !value.isBlank()) {
+            fields.put(name, value);
+        }
+    }
+
+    private static void applyFields(TripMetadata metadata, Map<String, Object> fields) {
+        fields.forEach((name, value) -> {
+            switch (name) {
+                case "destination":
+                    metadata.setDestination((String) value);
+                    break;
+                case "startDate":
+                    metadata.setStartDate((String) value);
+                    break;
+                case "endDate":
+                    metadata.setEndDate((String) value);
+                    break;
+                case "summary":
+                    metadata.setSummary((String) value);
+                    break;
+                case "status":
+                    metadata.setStatus((String) value);
+                    break;
+                case "updatedAt":
+                    metadata.setUpdatedAt((Long) value);
+                    break;
+                default:
+                    break;
+            }
+        });
+    }
+
+    private void rememberProjection(TripMetadata metadata) {
+        if (metadata.getItineraryId() == null) {
+            return;
+        }
+        Map<String, Object> fields = projectionOf(metadata);
+        projections.put(metadata.getItineraryId(), fields);
+    }
+
+    private static long createdAt(TripMetadata metadata) {
+        return metadata.getCreatedAt() != null ? metadata.getCreatedAt() : 0L;
+    }
+
+    private static class UserTrips {
+        private List<TripMetadata> list;
+        private long loadedAt;
+        private long generation;
+    }
+}
@@ -1,68 +1,148 @@
 package com.tripplanner.service;
 
-import com.google.cloud.firestore.DocumentReference;
-import com.google.cloud.firestore.DocumentSnapshot;
-import com.google.cloud.firestore.Firestore;
-import com.google.cloud.firestore.Query;
-import com.google.cloud.firestore.QuerySnapshot;
 import com.tripplanner.dto.TripMetadata;
 import com.tripplanner.dto.NormalizedItinerary;
 import com.tripplanner.dto.CanonicalPlace;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
-import java.util.stream.Collectors;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 /**
- * Service for managing user-specific trip metadata in Firestore
+ * Service for managing user-specific trip metadata
  * Organizes data as: users/{userId}/itineraries/{itineraryId} -> TripMetadata
  * Full itinerary data is stored separately in ItineraryJsonService
+ * Stored in Firestore by default, or in the embedded local store with database.backend=local
  */
-@Service
-public class UserDataService {
+public abstract class UserDataService {
 
     private static final Logger logger = LoggerFactory.getLogger(UserDataService.class);
 
-    @Autowired
-    private Firestore firestore;
+    private final TripListCache tripListCache;
 
-    private static final String USERS_COLLECTION = "users";
-    private static final String ITINERARIES_SUBCOLLECTION = "itineraries";
-    private static final String CHATS_SUBCOLLECTION = "chats";
-    private static final String REVISIONS_SUBCOLLECTION = "revisions";
-    private static final String CANONICAL_PLACES_COLLECTION = "canonical_places";
+    // Trip list projections are written off the caller's thread, one at a time so they land in order
+    private final ExecutorService projectionExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "TripProjection");
+        t.setDaemon(true);
+        return t;
+    });
+
+    protected static final String USERS_COLLECTION = "users";
+    protected static final String ITINERARIES_SUBCOLLECTION = "itineraries";
+    protected static final String CHATS_SUBCOLLECTION = "chats";
+    protected static final String REVISIONS_SUBCOLLECTION = "revisions";
+    protected static final String CANONICAL_PLACES_COLLECTION = "canonical_places";
+
+    protected UserDataService(TripListCache tripListCache) {
+        this.tripListCache = tripListCache;
+    }
+
+    /**
+     * Write the queued trip list projections before the application stops.
+     */
+    @PreDestroy
+    void stopProjections() {
+        projectionExecutor.shutdown();
+        try {
+            if (!projectionExecutor.awaitTermination(5, TimeUnit.SECONDS)) {
+                logger.warn("Trip list projections still pending at shutdown");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // ===== STORAGE =====
+
+    /**
+     * All trip metadata of a user, newest createdAt first.
+     */
+    protected abstract List<TripMetadata> loadTripMetadata(String userId) throws InterruptedException, ExecutionException;
+
+    /**
+     * Up to {@code limit} trip metadata entries of a user, newest createdAt first, starting after
+     * the given trip (null for the first page).
+     *
+     * @throws IllegalArgumentException if the trip after which to start does not exist
+     */
+    protected abstract List<TripMetadata> loadTripMetadataPage(String userId, String afterItineraryId, int limit)
+            throws InterruptedException, ExecutionException;
+
+    protected abstract Optional<TripMetadata> loadTripMetadata(String userId, String itineraryId)
+            throws InterruptedException, ExecutionException;
+
+    protected abstract boolean tripMetadataExists(String userId, String itineraryId)
+            throws InterruptedException, ExecutionException;
+
+    protected abstract void storeTripMetadata(String userId, TripMetadata tripMetadata)
+            throws InterruptedException, ExecutionException;
+
+    /**
+     * Merge fields into existing trip metadata.
+     *
+     * @return false if the metadata does not exist
+     */
+    protected abstract boolean updateTripMetadataFields(String userId, String itineraryId, Map<String, Object> fields)
+            throws InterruptedException, ExecutionException;
+
+    protected abstract void removeTripMetadata(String userId, String itineraryId)
+            throws InterruptedException, ExecutionException;
 
     /**
-     * Get all trip metadata for a specific user
+     * Chat messages of a user's itinerary, oldest first.
+     */
+    protected abstract List<Object> loadUserChats(String userId, String itineraryId)
+            throws InterruptedException, ExecutionException;
+
+    protected abstract void addUserChat(String userId, String itineraryId, Object chatMessage)
+            throws InterruptedException, ExecutionException;
+
+    protected abstract void storeItineraryRevision(String userId, String itineraryId, String revisionId,
+                                                   NormalizedItinerary revision)
+            throws InterruptedException, ExecutionException;
+
+    protected abstract boolean itineraryRevisionExists(String userId, String itineraryId, String revisionId)
+            throws InterruptedException, ExecutionException;
+
+    protected abstract void storeCanonicalPlace(CanonicalPlace canonicalPlace) throws InterruptedException, ExecutionException;
+
+    protected abstract Optional<CanonicalPlace> loadCanonicalPlace(String placeId) throws InterruptedException, ExecutionException;
+
+    protected abstract List<CanonicalPlace> loadAllCanonicalPlaces() throws InterruptedException, ExecutionException;
+
+    protected abstract void removeCanonicalPlace(String placeId) throws InterruptedException, ExecutionException;
+
+    // ===== TRIP METADATA METHODS =====
+
+    /**
+     * Get all trip metadata for a specific user, newest first.
+     * Served from the per-user trip list cache when it holds the user's trips.
      */
     public List<TripMetadata> getUserTripMetadata(String userId) {
+        List<TripMetadata> cached = tripListCache.get(userId);
+        if (cached != null) {
+            logger.debug("Serving {} cached trip metadata entries for user: {}", cached.size(), userId);
+            return cached;
+        }
+        
         try {
             logger.info("Fetching trip metadata for user: {}", userId);
+            long generation = tripListCache.beginLoad(userId);
             
-            DocumentReference userDoc = firestore.collection(USERS_COLLECTION).document(userId);
-            Query query = userDoc.collection(ITINERARIES_SUBCOLLECTION).orderBy("createdAt", Query.Direction.DESCENDING);
-            
-            QuerySnapshot querySnapshot = query.get().get();
-            
-            List<TripMetadata> tripMetadata = querySnapshot.getDocuments().stream()
-                    .map(doc -> {
-                        try {
-                            return doc.toObject(TripMetadata.class);
-                        } catch (Exception e) {
-                            logger.error("Failed to convert document to TripMetadata: {}", doc.getId(), e);
-                            return null;
-                        }
-                    })
-                    .filter(metadata -> metadata != null)
-                    .collect(Collectors.toList());
+            List<TripMetadata> tripMetadata = loadTripMetadata(userId);
             
             logger.info("Found {} trip metadata entries for user: {}", tripMetadata.size(), userId);
+            tripListCache.install(userId, generation, tripMetadata);
             return tripMetadata;
             
         } catch (InterruptedException | ExecutionException e) {
@@ -71,6 +151,41 @@ public class UserDataService {
         }
     }
 
+    /**
+     * Get up to {@code limit} of a user's trip metadata entries, newest first, starting after the
+     * given trip. Sliced from the trip list cache when it holds the user's trips, otherwise read
+     * with a cursor query so only that page is loaded.
+     *
+     * @param afterItineraryId Last trip of the previous page, or null for the first page
+     * @throws IllegalArgumentException if afterItineraryId is not one of the user's trips
+     */
+    public List<TripMetadata> getUserTripMetadataPage(String userId, String afterItineraryId, int limit) {
+        List<TripMetadata> cached = tripListCache.get(userId);
+        if (cached != null) {
+            int from = 0;
+            if (afterItineraryId != null) {
+                from = -1;
+                for (int i = 0; i < cached.size(); i++) {
+                    if (afterItineraryId.equals(cached.get(i).getItineraryId())) {
+                        from = i + 1;
+                        break;
+                    }
+                }
+                if (from < 0) {
+                    throw new IllegalArgumentException("Unknown itinerary cursor: " + afterItineraryId);
+                }
+            }
+            return cached.subList(from, Math.min(from + limit, cached.size()));
+        }
+        
+        try {
+            return loadTripMetadataPage(userId, afterItineraryId, limit);
+        } catch (InterruptedException | ExecutionException e) {
+            logger.error("Failed to fetch trip metadata page for user: {}", userId, e);
+            throw new RuntimeException("Failed to fetch user trip metadata", e);
+        }
+    }
+
     /**
      * Get a specific trip metadata for a user
      */
@@ -78,27 +193,14 @@ public class UserDataService {
         try {
             logger.info("Fetching trip metadata {} for user: {}", itineraryId, userId);
             
-            DocumentReference docRef = firestore
-                    .collection(USERS_COLLECTION)
-                    .document(userId)
-                    .collection(ITINERARIES_SUBCOLLECTION)
-                    .document(itineraryId);
-            
-            DocumentSnapshot document = docRef.get().get();
-            
-            if (document.exists()) {
-                TripMetadata tripMetadata = document.toObject(TripMetadata.class);
-                if (tripMetadata != null) {
-                    logger.info("Successfully retrieved trip metadata {} for user: {}", itineraryId, userId);
-                    return Optional.of(tripMetadata);
-                } else {
-                    logger.error("Failed to convert trip metadata {} to object", itineraryId);
-                    throw new RuntimeException("Failed to deserialize trip metadata");
-                }
+            Optional<TripMetadata> tripMetadata = loadTripMetadata(userId, itineraryId);
+            
+            if (tripMetadata.isPresent()) {
+                logger.info("Successfully retrieved trip metadata {} for user: {}", itineraryId, userId);
             } else {
                 logger.warn("Trip metadata {} not found for user: {}", itineraryId, userId);
-                return Optional.empty();
             }
+            return tripMetadata;
             
         } catch (InterruptedException | ExecutionException e) {
             logger.error("Failed to fetch trip metadata {} for user: {}", itineraryId, userId, e);
@@ -113,12 +215,6 @@ public class UserDataService {
         try {
             logger.info("Saving trip metadata {} for user: {}", tripMetadata.getItineraryId(), userId);
             
-            DocumentReference docRef = firestore
-                    .collection(USERS_COLLECTION)
-                    .document(userId)
-                    .collection(ITINERARIES_SUBCOLLECTION)
-                    .document(tripMetadata.getItineraryId());
-            
             // Ensure metadata has correct user ID and timestamps
             tripMetadata.setUserId(userId);
             if (tripMetadata.getCreatedAt() == null) {
@@ -126,7 +222,8 @@ public class UserDataService {
             }
             tripMetadata.setUpdatedAt(System.currentTimeMillis());
             
-            docRef.set(tripMetadata).get();
+            storeTripMetadata(userId, tripMetadata);
+            tripListCache.put(userId, tripMetadata);
             
             logger.info("Successfully saved trip metadata {} for user: {}", tripMetadata.getItineraryId(), userId);
             
@@ -147,19 +244,14 @@ public class UserDataService {
             TripMetadata tripMetadata = new TripMetadata(normalizedItinerary);
             tripMetadata.setUserId(userId);
             
-            DocumentReference docRef = firestore
-                    .collection(USERS_COLLECTION)
-                    .document(userId)
-                    .collection(ITINERARIES_SUBCOLLECTION)
-                    .document(tripMetadata.getItineraryId());
-            
             // Ensure metadata has correct user ID and timestamps
             if (tripMetadata.getCreatedAt() == null) {
                 tripMetadata.setCreatedAt(System.currentTimeMillis());
             }
             tripMetadata.setUpdatedAt(System.currentTimeMillis());
             
-            docRef.set(tripMetadata).get();
+            storeTripMetadata(userId, tripMetadata);
+            tripListCache.put(userId, tripMetadata);
             
             logger.info("Successfully saved trip metadata {} for user: {}", tripMetadata.getItineraryId(), userId);
             
@@ -176,17 +268,12 @@ public class UserDataService {
         try {
             logger.info("Updating trip metadata {} for user: {}", tripMetadata.getItineraryId(), userId);
             
-            DocumentReference docRef = firestore
-                    .collection(USERS_COLLECTION)
-                    .document(userId)
-                    .collection(ITINERARIES_SUBCOLLECTION)
-                    .document(tripMetadata.getItineraryId());
-            
             // Update metadata
             tripMetadata.setUpdatedAt(System.currentTimeMillis());
             tripMetadata.setUserId(userId);
             
-            docRef.set(tripMetadata).get();
+            storeTripMetadata(userId, tripMetadata);
+            tripListCache.put(userId, tripMetadata);
             
             logger.info("Successfully updated trip metadata {} for user: {}", tripMetadata.getItineraryId(), userId);
             
@@ -203,13 +290,8 @@ public class UserDataService {
         try {
             logger.info("Deleting itinerary {} for user: {}", itineraryId, userId);
             
-            DocumentReference docRef = firestore
-                    .collection(USERS_COLLECTION)
-                    .document(userId)
-                    .collection(ITINERARIES_SUBCOLLECTION)
-                    .document(itineraryId);
-            
-            docRef.delete().get();
+            removeTripMetadata(userId, itineraryId);
+            tripListCache.remove(userId, itineraryId);
             
             logger.info("Successfully deleted trip metadata {} for user: {}", itineraryId, userId);
             
@@ -219,19 +301,63 @@ public class UserDataService {
         }
     }
 
+    /**
+     * Bring the trip list projection in line with a written itinerary.
+     * Copies destination, dates, summary and explicit status onto the user's trip metadata, and
+     * skips the write when the metadata already holds those values. The fields are read on the
+     * calling thread and written in the background, in call order.
+     *
+     * @return Completes once the projection is written or skipped
+     */
+    public CompletableFuture<Void> syncTripProjection(NormalizedItinerary itinerary) {
+        String userId = itinerary.getUserId();
+        String itineraryId = itinerary.getItineraryId();
+        if (userId == null || userId.isBlank() || itineraryId == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        
+        Map<String, Object> fields = new HashMap<>();
+        TripListCache.putIfPresent(fields, "destination", itinerary.getDestination());
+        TripListCache.putIfPresent(fields, "startDate", itinerary.getStartDate());
+        TripListCache.putIfPresent(fields, "endDate", itinerary.getEndDate());
+        TripListCache.putIfPresent(fields, "summary", itinerary.getSummary());
+        TripListCache.putIfPresent(fields, "status", itinerary.getStatus());
+        if (fields.isEmpty() || tripListCache.isProjected(itineraryId, fields)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        fields.put("updatedAt", System.currentTimeMillis());
+        
+        return CompletableFuture.runAsync(() -> writeTripProjection(userId, itineraryId, fields), projectionExecutor)
+            .exceptionally(e -> {
+                logger.warn("Failed to update trip list projection {} for user {}: {}", itineraryId, userId, e.getMessage());
+                return null;
+            });
+    }
+
+    private void writeTripProjection(String userId, String itineraryId, Map<String, Object> fields) {
+        try {
+            if (!updateTripMetadataFields(userId, itineraryId, fields)) {
+                // Metadata is written after the itinerary on creation, so it may not exist yet
+                logger.debug("No trip metadata {} for user {} to project onto yet", itineraryId, userId);
+                return;
+            }
+            tripListCache.applyProjection(userId, itineraryId, fields);
+            logger.debug("Updated trip list projection {} for user: {}", itineraryId, userId);
+            
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted updating trip list projection", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause() != null ? e.getCause() : e);
+        }
+    }
+
     /**
      * Check if a user owns a specific trip
      */
     public boolean userOwnsTrip(String userId, String itineraryId) {
         try {
-            DocumentReference docRef = firestore
-                    .collection(USERS_COLLECTION)
-                    .document(userId)
-                    .collection(ITINERARIES_SUBCOLLECTION)
-                    .document(itineraryId);
-            
-            DocumentSnapshot document = docRef.get().get();
-            boolean exists = document.exists();
+            boolean exists = tripMetadataExists(userId, itineraryId);
             
             logger.debug("User {} {} trip {}", userId, exists ? "owns" : "does not own", itineraryId);
             return exists;
@@ -249,28 +375,7 @@ public class UserDataService {
         try {
             logger.info("Fetching chat history for user: {}, itinerary: {}", userId, itineraryId);
             
-            DocumentReference itineraryDoc = firestore
-                    .collection(USERS_COLLECTION)
-                    .document(userId)
-                    .collection(ITINERARIES_SUBCOLLECTION)
-                    .document(itineraryId);
-            
-            Query query = itineraryDoc.collection(CHATS_SUBCOLLECTION)
-                    .orderBy("timestamp", Query.Direction.ASCENDING);
-            
-            QuerySnapshot querySnapshot = query.get().get();
-            
-            List<Object> chatMessages = querySnapshot.getDocuments().stream()
-                    .map(doc -> {
-                        try {
-                            return doc.getData();
-                        } catch (Exception e) {
-                            logger.error("Failed to convert chat document to object: {}", doc.getId(), e);
-                            return null;
-                        }
-                    })
-                    .filter(message -> message != null)
-                    .collect(Collectors.toList());
+            List<Object> chatMessages = loadUserChats(userId, itineraryId);
             
             logger.info("Found {} chat messages for user: {}, itinerary: {}", chatMessages.size(), userId, itineraryId);
             return chatMessages;
@@ -288,13 +393,7 @@ public class UserDataService {
         try {
             logger.info("Saving chat message for user: {}, itinerary: {}", userId, itineraryId);
             
-            DocumentReference itineraryDoc = firestore
-                    .collection(USERS_COLLECTION)
-                    .document(userId)
-                    .collection(ITINERARIES_SUBCOLLECTION)
-                    .document(itineraryId);
-            
-            itineraryDoc.collection(CHATS_SUBCOLLECTION).add(chatMessage).get();
+            addUserChat(userId, itineraryId, chatMessage);
             
             logger.info("Successfully saved chat message for user: {}, itinerary: {}", userId, itineraryId);
             
@@ -311,19 +410,10 @@ public class UserDataService {
         try {
             logger.info("Saving revision for user: {}, itinerary: {}, version: {}", userId, itineraryId, revision.getVersion());
             
-            DocumentReference itineraryDoc = firestore
-                    .collection(USERS_COLLECTION)
-                    .document(userId)
-                    .collection(ITINERARIES_SUBCOLLECTION)
-                    .document(itineraryId);
-            
             // Use version as document ID for revisions
             String revisionId = String.valueOf(revision.getVersion());
             
-            itineraryDoc.collection(REVISIONS_SUBCOLLECTION)
-                    .document(revisionId)
-                    .set(revision)
-                    .get();
+            storeItineraryRevision(userId, itineraryId, revisionId, revision);
             
             logger.info("Successfully saved revision {} for user: {}, itinerary: {}", revisionId, userId, itineraryId);
             
@@ -341,17 +431,7 @@ public class UserDataService {
         try {
             logger.info("Fetching revision {} for user: {}, itinerary: {}", revisionId, userId, itineraryId);
             
-            DocumentReference revisionDoc = firestore
-                    .collection(USERS_COLLECTION)
-                    .document(userId)
-                    .collection(ITINERARIES_SUBCOLLECTION)
-                    .document(itineraryId)
-                    .collection(REVISIONS_SUBCOLLECTION)
-                    .document(revisionId);
-            
-            DocumentSnapshot document = revisionDoc.get().get();
-            
-            if (document.exists()) {
+            if (itineraryRevisionExists(userId, itineraryId, revisionId)) {
                 // Revisions are not supported in the new system
                 logger.error("Revision storage is not supported in the new system");
                 return Optional.empty();
@@ -393,11 +473,7 @@ public class UserDataService {
         try {
             logger.info("Saving canonical place: {}", canonicalPlace.getPlaceId());
             
-            DocumentReference docRef = firestore
-                    .collection(CANONICAL_PLACES_COLLECTION)
-                    .document(canonicalPlace.getPlaceId());
-            
-            docRef.set(canonicalPlace).get();
+            storeCanonicalPlace(canonicalPlace);
             
             logger.info("Successfully saved canonical place: {}", canonicalPlace.getPlaceId());
             
@@ -414,25 +490,14 @@ public class UserDataService {
         try {
             logger.debug("Fetching canonical place: {}", placeId);
             
-            DocumentReference docRef = firestore
-                    .collection(CANONICAL_PLACES_COLLECTION)
-                    .document(placeId);
-            
-            DocumentSnapshot document = docRef.get().get();
+            Optional<CanonicalPlace> canonicalPlace = loadCanonicalPlace(placeId);
             
-            if (document.exists()) {
-                CanonicalPlace canonicalPlace = document.toObject(CanonicalPlace.class);
-                if (canonicalPlace != null) {
-                    logger.debug("Successfully retrieved canonical place: {}", placeId);
-                    return Optional.of(canonicalPlace);
-                } else {
-                    logger.error("Failed to convert canonical place {} to object", placeId);
-                    return Optional.empty();
-                }
+            if (canonicalPlace.isPresent()) {
+                logger.debug("Successfully retrieved canonical place: {}", placeId);
             } else {
                 logger.debug("Canonical place {} not found", placeId);
-                return Optional.empty();
             }
+            return canonicalPlace;
             
         } catch (InterruptedException | ExecutionException e) {
             logger.error("Failed to fetch canonical place: {}", placeId, e);
@@ -448,22 +513,7 @@ public class UserDataService {
         try {
             logger.debug("Fetching all canonical places");
             
-            QuerySnapshot querySnapshot = firestore
-                    .collection(CANONICAL_PLACES_COLLECTION)
-                    .get()
-                    .get();
-            
-            List<CanonicalPlace> canonicalPlaces = querySnapshot.getDocuments().stream()
-                    .map(doc -> {
-                        try {
-                            return doc.toObject(CanonicalPlace.class);
-                        } catch (Exception e) {
-                            logger.error("Failed to convert document to CanonicalPlace: {}", doc.getId(), e);
-                            return null;
-                        }
-                    })
-                    .filter(place -> place != null)
-                    .collect(Collectors.toList());
+            List<CanonicalPlace> canonicalPlaces = loadAllCanonicalPlaces();
             
             logger.debug("Found {} canonical places", canonicalPlaces.size());
             return canonicalPlaces;
@@ -481,11 +531,7 @@ public class UserDataService {
         try {
             logger.info("Deleting canonical place: {}", placeId);
             
-            DocumentReference docRef = firestore
-                    .collection(CANONICAL_PLACES_COLLECTION)
-                    .document(placeId);
-            
-            docRef.delete().get();
+            removeCanonicalPlace(placeId);
             
             logger.info("Successfully deleted canonical place: {}", placeId);
             
@@ -0,0 +1,517 @@
+package com.tripplanner.service.ai;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+
+/**
+ * Content-addressed store of LLM responses.
+ *
+ * Responses are keyed by a SHA-256 of everything that determines them (provider, model, system
+ * prompt, user prompt and schema), appended to segment files on a background thread and found
+ * through an in-memory index of key to file position, so a lookup is one map probe and one read.
+ * The index is rebuilt from the segments on startup and holds at most max-entries keys, oldest
+ * evicted first; closed segments that are mostly evicted or superseded records are compacted into
+ * the active segment.
+ *
+ * Mock mode replays stored responses. Dedup, which answers a request identical to a stored one
+ * without calling the provider, is off by default and meant for dev and load testing: it only
+ * serves responses younger than the dedup TTL, never for non-zero temperature, and never inside
+ * {@link #withoutDedup}, which callers use when retrying after a bad response.
+ */
+@Service
+@ConditionalOnProperty(name = "ai.response-store.enabled", havingValue = "true", matchIfMissing = true)
+public class LlmResponseStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(LlmResponseStore.class);
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int KEY_BYTES = 32;
+
+    // Set while a caller retries, so it gets a fresh response instead of the one it rejected
+    private static final ThreadLocal<Boolean> BYPASS_DEDUP = new ThreadLocal<>();
+
+    private final Path dataDir;
+    private final long maxSegmentBytes;
+    private final boolean dedupEnabled;
+    private final long dedupTtlMs;
+    private final int maxEntries;
+
+    // Key -> position of its record, oldest first; responses not yet written are served from pending
+    private final Map<String, Location> index;
+    // Segment -> bytes of records still in the index
+    private final Map<Integer, Long> liveBytes = new ConcurrentHashMap<>();
+    private final Map<String, String> pending = new ConcurrentHashMap<>();
+    private final Map<Integer, FileChannel> readers = new ConcurrentHashMap<>();
+    private final ExecutorService writer;
+
+    private volatile String latestKey;
+
+    // Only touched by the writer thread after construction
+    private FileChannel activeSegment;
+    private int activeSegmentId;
+
+    public LlmResponseStore(@Value("${ai.response-store.data-dir:./data/llm-responses}") String dataDir,
+                            @Value("${ai.response-store.max-segment-mb:64}") long maxSegmentMb,
+                            @Value("${ai.response-store.dedup-enabled:false}") boolean dedupEnabled,
+                            @Value("${ai.response-store.dedup-ttl-minutes:60}") long dedupTtlMinutes,
+                            @Value("${ai.response-store.max-entries:100000}") int maxEntries) {
+        this.dataDir = Paths.get(dataDir);
+        this.maxSegmentBytes = maxSegmentMb * 1024 * 1024;
+        this.dedupEnabled = dedupEnabled;
+        this.dedupTtlMs = TimeUnit.MINUTES.toMillis(dedupTtlMinutes);
+        this.maxEntries = Math.max(maxEntries, 1);
+        this.index = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Location> eldest) {
+                if (size() > LlmResponseStore.this.maxEntries) {
+                    release(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        });
+
+        try {
+            Files.createDirectories(this.dataDir);
+            List<Integer> segmentIds = listSegments();
+            for (int i = 0; i < segmentIds.size(); i++) {
+                loadSegment(segmentIds.get(i), i == segmentIds.size() - 1);
+            }
+            openActiveSegment(segmentIds.isEmpty() ? 1 : segmentIds.get(segmentIds.size() - 1));
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to open LLM response store at " + this.dataDir, e);
+        }
+
+        this.writer = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "llm-response-store");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        logger.info("LLM response store opened at {} with {} responses (dedup: {}, ttl {} min)",
+                this.dataDir, index.size(), dedupEnabled, dedupTtlMinutes);
+    }
+
+    @PreDestroy
+    public void close() {
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(10, TimeUnit.SECONDS)) {
+                logger.warn("Timed out writing {} pending LLM responses", pending.size());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            activeSegment.force(true);
+            activeSegment.close();
+            for (FileChannel reader : readers.values()) {
+                reader.close();
+            }
+        } catch (IOException e) {
+            logger.error("Failed to close LLM response store at {}", dataDir, e);
+        }
+    }
+
+    /**
+     * Key of a request. Null and empty parts are distinguished, and each part is length-prefixed
+     * so different splits of the same text do not collide.
+     */
+    public static String key(String provider, String model, String systemPrompt, String userPrompt, String schema) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String part : new String[] {provider, model, systemPrompt, userPrompt, schema}) {
+                byte[] bytes = part != null ? part.getBytes(StandardCharsets.UTF_8) : new byte[0];
+                digest.update(ByteBuffer.allocate(4).putInt(part != null ? bytes.length : -1).array());
+                digest.update(bytes);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Run a call with dedup off on this thread, so a retry reaches the provider.
+     */
+    public static <T> T withoutDedup(Supplier<T> call) {
+        Boolean previous = BYPASS_DEDUP.get();
+        BYPASS_DEDUP.set(Boolean.TRUE);
+        try {
+            return call.get();
+        } finally {
+            if (previous == null) {
+                BYPASS_DEDUP.remove();
+            } else {
+                BYPASS_DEDUP.set(previous);
+            }
+        }
+    }
+
+    public boolean isDedupEnabled() {
+        return dedupEnabled;
+    }
+
+    /**
+     * The stored response for a key, whatever its age. Used by mock mode to replay responses.
+     */
+    public Optional<String> get(String key) {
+        return get(key, Long.MAX_VALUE);
+    }
+
+    /**
+     * A stored response to answer an identical request with instead of calling the provider:
+     * only with dedup enabled, for deterministic (zero temperature) requests, outside
+     * {@link #withoutDedup}, and only if it is younger than the dedup TTL.
+     */
+    public Optional<String> getForDedup(String key, double temperature) {
+        if (!dedupEnabled || temperature != 0 || Boolean.TRUE.equals(BYPASS_DEDUP.get())) {
+            return Optional.empty();
+        }
+        return get(key, dedupTtlMs);
+    }
+
+    private Optional<String> get(String key, long maxAgeMs) {
+        String text = pending.get(key);
+        if (text != null) {
+            return Optional.of(text);
+        }
+        Location location = index.get(key);
+        if (location == null || isOlderThan(location, maxAgeMs)) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(readRecord(location).text);
+        } catch (IOException | UncheckedIOException e) {
+            // The segment may have just been compacted away; treat it as a miss
+            logger.warn("Failed to read stored LLM response {} from segment {}: {}",
+                       key, location.segmentId, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * The most recently stored response, if any.
+     */
+    public Optional<String> latest() {
+        String key = latestKey;
+        return key != null ? get(key) : Optional.empty();
+    }
+
+    /**
+     * Store a response for a key. Returns immediately; the write happens in the background. A key
+     * keeps its first response until that one is older than the dedup TTL.
+     */
+    public void put(String key, String provider, String model, String text) {
+        if (key == null || text == null || text.isBlank()) {
+            return;
+        }
+        Location existing = index.get(key);
+        if ((existing != null && !isOlderThan(existing, dedupTtlMs)) || pending.putIfAbsent(key, text) != null) {
+            return;
+        }
+        latestKey = key;
+        writer.execute(() -> append(new StoredResponse(key, System.currentTimeMillis(), provider, model, text)));
+    }
+
+    /**
+     * Wait until every response stored so far has been written.
+     */
+    public void flush() {
+        try {
+            writer.submit(() -> { }).get();
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to flush LLM response store", e);
+        }
+    }
+
+    public int size() {
+        return index.size() + pending.size();
+    }
+
+    /**
+     * Number of segment files on disk, including the active one.
+     */
+    public int segmentCount() {
+        try {
+            return listSegments().size();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    private void append(StoredResponse response) {
+        try {
+            if (activeSegment.size() > 0 && activeSegment.size() + encodedLength(response) > maxSegmentBytes) {
+                rollSegment();
+            }
+            ByteBuffer record = encodeRecord(response);
+            long offset = activeSegment.size();
+            int length = record.remaining();
+            while (record.hasRemaining()) {
+                activeSegment.write(record);
+            }
+            index(response.key, new Location(activeSegmentId, offset, length, response.createdAt));
+        } catch (IOException | UncheckedIOException e) {
+            logger.error("Failed to write LLM response {} to {}", response.key, dataDir, e);
+        } finally {
+            pending.remove(response.key);
+        }
+    }
+
+    /**
+     * Close the active segment, open the next one and compact closed segments that are now
+     * mostly dead records. Writer thread only.
+     */
+    private void rollSegment() throws IOException {
+        activeSegment.force(true);
+        activeSegment.close();
+        openActiveSegment(activeSegmentId + 1);
+
+        for (int segmentId : listSegments()) {
+            if (segmentId == activeSegmentId) {
+                continue;
+            }
+            long size = Files.size(segmentPath(segmentId));
+            if (liveBytes.getOrDefault(segmentId, 0L) * 2 < size) {
+                compactSegment(segmentId);
+            }
+        }
+    }
+
+    /**
+     * Copy the live records of a closed segment into the active segment and delete it. Writer
+     * thread only.
+     */
+    private void compactSegment(int segmentId) throws IOException {
+        List<Map.Entry<String, Location>> live = new ArrayList<>();
+        synchronized (index) {
+            for (Map.Entry<String, Location> entry : index.entrySet()) {
+                if (entry.getValue().segmentId == segmentId) {
+                    live.add(Map.entry(entry.getKey(), entry.getValue()));
+                }
+            }
+        }
+        for (Map.Entry<String, Location> entry : live) {
+            StoredResponse response = readRecord(entry.getValue());
+            ByteBuffer record = encodeRecord(response);
+            long offset = activeSegment.size();
+            int length = record.remaining();
+            while (record.hasRemaining()) {
+                activeSegment.write(record);
+            }
+            synchronized (index) {
+                // Skip keys evicted or rewritten while copying
+                if (entry.getValue().equals(index.get(entry.getKey()))) {
+                    index(entry.getKey(), new Location(activeSegmentId, offset, length, response.createdAt));
+                }
+            }
+        }
+        activeSegment.force(true);
+
+        FileChannel reader = readers.remove(segmentId);
+        if (reader != null) {
+            reader.close();
+        }
+        liveBytes.remove(segmentId);
+        Files.deleteIfExists(segmentPath(segmentId));
+        logger.info("Compacted LLM response segment {} ({} live records kept)", segmentId, live.size());
+    }
+
+    /**
+     * Point a key at a record, releasing the record it pointed at before.
+     */
+    private void index(String key, Location location) {
+        liveBytes.merge(location.segmentId, (long) location.length, Long::sum);
+        Location previous = index.put(key, location);
+        if (previous != null) {
+            release(previous);
+        }
+    }
+
+    private void release(Location location) {
+        liveBytes.merge(location.segmentId, (long) -location.length, Long::sum);
+    }
+
+    private static boolean isOlderThan(Location location, long maxAgeMs) {
+        return maxAgeMs != Long.MAX_VALUE && System.currentTimeMillis() - location.createdAt > maxAgeMs;
+    }
+
+    private void openActiveSegment(int segmentId) throws IOException {
+        this.activeSegmentId = segmentId;
+        this.activeSegment = FileChannel.open(segmentPath(segmentId), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private List<Integer> listSegments() throws IOException {
+        List<Integer> ids = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dataDir, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path path : stream) {
+                String name = path.getFileName().toString();
+                try {
+                    ids.add(Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())));
+                } catch (NumberFormatException e) {
+                    logger.warn("Ignoring unexpected file {} in {}", name, dataDir);
+                }
+            }
+        }
+        ids.sort(null);
+        return ids;
+    }
+
+    private Path segmentPath(int segmentId) {
+        return dataDir.resolve(String.format("%s%06d%s", SEGMENT_PREFIX, segmentId, SEGMENT_SUFFIX));
+    }
+
+    // Record layout: [int bodyLength][long crc32][body], body = key, createdAt, provider, model, text
+
+    private static int encodedLength(StoredResponse response) {
+        return 4 + 8 + KEY_BYTES + 8 + 4 + bytes(response.provider).length + 4 + bytes(response.model).length
+                + 4 + bytes(response.text).length;
+    }
+
+    private static ByteBuffer encodeRecord(StoredResponse response) {
+        byte[] provider = bytes(response.provider);
+        byte[] model = bytes(response.model);
+        byte[] text = bytes(response.text);
+
+        int bodyLength = KEY_BYTES + 8 + 4 + provider.length + 4 + model.length + 4 + text.length;
+        ByteBuffer body = ByteBuffer.allocate(bodyLength);
+        body.put(HexFormat.of().parseHex(response.key));
+        body.putLong(response.createdAt);
+        body.putInt(provider.length).put(provider);
+        body.putInt(model.length).put(model);
+        body.putInt(text.length).put(text);
+
+        CRC32 crc = new CRC32();
+        crc.update(body.array());
+
+        ByteBuffer record = ByteBuffer.allocate(4 + 8 + bodyLength);
+        record.putInt(bodyLength).putLong(crc.getValue()).put(body.array());
+        record.flip();
+        return record;
+    }
+
+    private static StoredResponse decodeBody(ByteBuffer body) {
+        byte[] key = new byte[KEY_BYTES];
+        body.get(key);
+        long createdAt = body.getLong();
+        String provider = string(body);
+        String model = string(body);
+        String text = string(body);
+        return new StoredResponse(HexFormat.of().formatHex(key), createdAt, provider, model, text);
+    }
+
+    private StoredResponse readRecord(Location location) throws IOException {
+        FileChannel reader = readers.computeIfAbsent(location.segmentId, id -> {
+            try {
+                return FileChannel.open(segmentPath(id), StandardOpenOption.READ);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        ByteBuffer record = ByteBuffer.allocate(location.length);
+        long position = location.offset;
+        while (record.hasRemaining()) {
+            int read = reader.read(record, position);
+            if (read < 0) {
+                throw new IOException("Record truncated at offset " + location.offset);
+            }
+            position += read;
+        }
+        record.flip();
+        record.position(4 + 8);
+        return decodeBody(record);
+    }
+
+    /**
+     * Index the records of a segment. A torn or corrupt record ends the segment; in the last
+     * segment (crash during append) the file is truncated there.
+     */
+    private void loadSegment(int segmentId, boolean last) throws IOException {
+        Path path = segmentPath(segmentId);
+        long validLength = 0;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer header = ByteBuffer.allocate(4 + 8);
+            while (validLength + header.capacity() <= size) {
+                header.clear();
+                channel.read(header, validLength);
+                header.flip();
+                int bodyLength = header.getInt();
+                long checksum = header.getLong();
+                if (bodyLength <= KEY_BYTES || validLength + header.capacity() + bodyLength > size) {
+                    break;
+                }
+                ByteBuffer body = ByteBuffer.allocate(bodyLength);
+                channel.read(body, validLength + header.capacity());
+                CRC32 crc = new CRC32();
+                crc.update(body.array());
+                if (crc.getValue() != checksum) {
+                    logger.warn("Corrupt record at offset {} in {}, ignoring the rest of the segment", validLength, path);
+                    break;
+                }
+                body.flip();
+                StoredResponse response = decodeBody(body);
+                int length = header.capacity() + bodyLength;
+                index(response.key, new Location(segmentId, validLength, length, response.createdAt));
+                latestKey = response.key;
+                validLength += length;
+            }
+
+            if (last && validLength < size) {
+                logger.warn("Truncating {} from {} to {} bytes after incomplete tail record", path, size, validLength);
+                try (FileChannel truncate = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                    truncate.truncate(validLength);
+                }
+            }
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        return value != null ? value.getBytes(StandardCharsets.UTF_8) : new byte[0];
+    }
+
+    private static String string(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private record Location(int segmentId, long offset, int length, long createdAt) {
+    }
+
+    private record StoredResponse(String key, long createdAt, String provider, String model, String text) {
+    }
+}
@@ -4,12 +4,14 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.tripplanner.service.ai.AiClient;
 import com.tripplanner.service.ai.CircuitBreaker;
+import com.tripplanner.service.ai.LlmResponseStore;
 import com.tripplanner.service.ai.exception.TransientAiException;
 import com.tripplanner.service.ai.exception.PermanentAiException;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
@@ -27,6 +29,7 @@ import java.time.Duration;
 public class OpenRouterClient implements AiClient {
 
 	private static final Logger logger = LoggerFactory.getLogger(OpenRouterClient.class);
+	private static final String PROVIDER = "openrouter";
 
 	@Value("${openrouter.base-url:https://openrouter.ai/api/v1}")
 	private String baseUrl;
@@ -50,6 +53,9 @@ public class OpenRouterClient implements AiClient {
 	@Value("${openrouter.timeout-seconds:60}")
 	private int timeoutSeconds;
 
+	@Autowired(required = false)
+	private LlmResponseStore responseStore;
+
 	private HttpClient httpClient;
 	private final ObjectMapper objectMapper = new ObjectMapper();
 	private CircuitBreaker circuitBreaker;
@@ -87,6 +93,13 @@ public class OpenRouterClient implements AiClient {
 		logger.debug("System prompt length: {} chars", systemPrompt != null ? systemPrompt.length() : 0);
 		
 		try {
+			String responseKey = responseKey(systemPrompt, userPrompt, null);
+			String storedText = mockMode ? getStoredResponse(responseKey) : getDedupResponse(responseKey);
+			if (storedText != null) {
+				logger.info("Returning stored response for identical request ({} chars)", storedText.length());
+				circuitBreaker.recordSuccess();
+				return storedText;
+			}
 			if (mockMode) {
 				logger.info("OpenRouter mock mode enabled; returning empty response");
 				circuitBreaker.recordSuccess();
@@ -157,6 +170,7 @@ public class OpenRouterClient implements AiClient {
 				if (message != null && message.get("content") != null) {
 					String content = message.get("content").asText("");
 					logger.info("✅ OpenRouter content generation successful - {} chars returned", content.length());
+					storeResponse(responseKey, content);
 					circuitBreaker.recordSuccess();
 					return content;
 				}
@@ -203,6 +217,12 @@ public class OpenRouterClient implements AiClient {
 		logger.debug("JSON schema length: {} chars", jsonSchema != null ? jsonSchema.length() : 0);
 		
 		try {
+			String responseKey = responseKey(systemPrompt, userPrompt, jsonSchema);
+			String storedText = mockMode ? getStoredResponse(responseKey) : getDedupResponse(responseKey);
+			if (storedText != null) {
+				logger.info("Returning stored structured response for identical request ({} chars)", storedText.length());
+				return storedText;
+			}
 			if (mockMode) {
 				logger.info("OpenRouter mock mode enabled; returning mock itinerary");
 				return getMockItineraryResponse(userPrompt);
@@ -247,6 +267,7 @@ public class OpenRouterClient implements AiClient {
 				if (message != null && message.get("content") != null) {
 					String content = message.get("content").asText("");
 					logger.info("✅ OpenRouter structured content generation successful - {} chars returned", content.length());
+					storeResponse(responseKey, content);
 					return content;
 				}
 			}
@@ -262,6 +283,29 @@ public class OpenRouterClient implements AiClient {
 		}
 	}
 
+	/**
+	 * Key of a request in the response store, or null when there is no store.
+	 */
+	private String responseKey(String systemPrompt, String userPrompt, String jsonSchema) {
+		return responseStore != null
+				? LlmResponseStore.key(PROVIDER, modelName, systemPrompt, userPrompt, jsonSchema)
+				: null;
+	}
+
+	private String getStoredResponse(String responseKey) {
+		return responseKey != null ? responseStore.get(responseKey).orElse(null) : null;
+	}
+
+	private String getDedupResponse(String responseKey) {
+		return responseKey != null ? responseStore.getForDedup(responseKey, temperature).orElse(null) : null;
+	}
+
+	private void storeResponse(String responseKey, String content) {
+		if (responseKey != null) {
+			responseStore.put(responseKey, PROVIDER, modelName, content);
+		}
+	}
+
 	@Override
 	public boolean isAvailable() {
 		return httpClient != null && apiKey != null && !apiKey.isBlank();
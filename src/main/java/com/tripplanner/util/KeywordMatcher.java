@@ -0,0 +1,271 @@
+package com.tripplanner.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * Finds many keywords in a text in one left-to-right pass (Aho-Corasick).
+ *
+ * The keywords are compiled into a deterministic automaton once, so scanning costs one table
+ * lookup per character no matter how many keywords there are, instead of one regex or
+ * {@code contains} call per keyword. Matching ignores case. Keywords added with {@link
+ * Builder#word} only match as whole words, with the same word characters as regex {@code \b};
+ * keywords added with {@link Builder#substring} match anywhere. Instances are immutable and safe
+ * to share between threads.
+ *
+ * @param <L> label reported for each keyword
+ */
+public final class KeywordMatcher<L> {
+
+    private final char[] asciiSymbols;
+    private final Map<Character, Integer> otherSymbols;
+    private final int symbolCount;
+    private final int[] transitions;
+    private final int[][] outputs;
+    private final int[] keywordLengths;
+    private final boolean[] keywordWholeWord;
+    private final List<L> keywordLabels;
+
+    private KeywordMatcher(Builder<L> builder) {
+        // Number the distinct keyword characters, 0 is every other character
+        Map<Character, Integer> symbols = new HashMap<>();
+        for (String keyword : builder.keywords) {
+            for (int i = 0; i < keyword.length(); i++) {
+                symbols.putIfAbsent(keyword.charAt(i), symbols.size() + 1);
+            }
+        }
+        this.symbolCount = symbols.size() + 1;
+        this.asciiSymbols = new char[128];
+        this.otherSymbols = new HashMap<>();
+        symbols.forEach((c, symbol) -> {
+            if (c < 128) {
+                asciiSymbols[c] = (char) (int) symbol;
+            } else {
+                otherSymbols.put(c, symbol);
+            }
+        });
+
+        // Trie of the keywords, -1 marks a missing edge until the failure links fill it
+        List<int[]> edges = new ArrayList<>();
+        List<List<Integer>> stateOutputs = new ArrayList<>();
+        edges.add(newRow());
+        stateOutputs.add(new ArrayList<>());
+        for (int k = 0; k < builder.keywords.size(); k++) {
+            String keyword = builder.keywords.get(k);
+            int state = 0;
+            for (int i = 0; i < keyword.length(); i++) {
+                int symbol = symbols.get(keyword.charAt(i));
+                if (edges.get(state)[symbol] < 0) {
+                    edges.get(state)[symbol] = edges.size();
+                    edges.add(newRow());
+                    stateOutputs.add(new ArrayList<>());
+                }
+                state = edges.get(state)[symbol];
+            }
+            stateOutputs.get(state).add(k);
+        }
+
+        // Breadth-first over the trie: turn failure links into direct transitions and inherit
+        // the outputs of the longest proper suffix that is also a keyword prefix
+        int[] failure = new int[edges.size()];
+        Queue<Integer> queue = new ArrayDeque<>();
+        int[] root = edges.get(0);
+        for (int symbol = 0; symbol < symbolCount; symbol++) {
+            if (root[symbol] < 0) {
+                root[symbol] = 0;
+            } else {
+                failure[root[symbol]] = 0;
+                queue.add(root[symbol]);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            stateOutputs.get(state).addAll(stateOutputs.get(failure[state]));
+            int[] row = edges.get(state);
+            int[] fallback = edges.get(failure[state]);
+            for (int symbol = 0; symbol < symbolCount; symbol++) {
+                if (row[symbol] < 0) {
+                    row[symbol] = fallback[symbol];
+                } else {
+                    failure[row[symbol]] = fallback[symbol];
+                    queue.add(row[symbol]);
+                }
+            }
+        }
+
+        this.transitions = new int[edges.size() * symbolCount];
+        this.outputs = new int[edges.size()][];
+        for (int state = 0; state < edges.size(); state++) {
+            System.arraycopy(edges.get(state), 0, transitions, state * symbolCount, symbolCount);
+            outputs[state] = stateOutputs.get(state).stream().mapToInt(Integer::intValue).toArray();
+        }
+        this.keywordLengths = builder.keywords.stream().mapToInt(String::length).toArray();
+        this.keywordWholeWord = new boolean[builder.keywords.size()];
+        for (int k = 0; k < keywordWholeWord.length; k++) {
+            keywordWholeWord[k] = builder.wholeWord.get(k);
+        }
+        this.keywordLabels = List.copyOf(builder.labels);
+    }
+
+    public static <L> Builder<L> builder() {
+        return new Builder<>();
+    }
+
+    /**
+     * Report every keyword occurrence in the text, ordered by where it ends. Overlapping
+     * occurrences are all reported.
+     *
+     * @param listener return false from it to stop scanning
+     */
+    public void scan(CharSequence text, MatchListener<L> listener) {
+        if (text == null) {
+            return;
+        }
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            state = transitions[state * symbolCount + symbolOf(text.charAt(i))];
+            for (int keyword : outputs[state]) {
+                int start = i + 1 - keywordLengths[keyword];
+                if (keywordWholeWord[keyword]
+                        && !(TextPatterns.isWordBoundary(text, start) && TextPatterns.isWordBoundary(text, i + 1))) {
+                    continue;
+                }
+                if (!listener.onMatch(keywordLabels.get(keyword), start, i + 1)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Every keyword occurrence in the text, ordered by where it ends.
+     */
+    public List<Match<L>> findAll(CharSequence text) {
+        List<Match<L>> matches = new ArrayList<>();
+        scan(text, (label, start, end) -> matches.add(new Match<>(label, start, end)));
+        return matches;
+    }
+
+    /**
+     * The first keyword occurrence to end in the text, or null if there is none.
+     */
+    public Match<L> findFirst(CharSequence text) {
+        List<Match<L>> first = new ArrayList<>(1);
+        scan(text, (label, start, end) -> {
+            first.add(new Match<>(label, start, end));
+            return false;
+        });
+        return first.isEmpty() ? null : first.get(0);
+    }
+
+    private int symbolOf(char c) {
+        char lower = Character.toLowerCase(c);
+        if (lower < 128) {
+            return asciiSymbols[lower];
+        }
+        Integer symbol = otherSymbols.get(lower);
+        return symbol != null ? symbol : 0;
+    }
+
+    private int[] newRow() {
+        int[] row = new int[symbolCount];
+        Arrays.fill(row, -1);
+        return row;
+    }
+
+    /**
+     * Receives keyword occurrences during a scan.
+     */
+    @FunctionalInterface
+    public interface MatchListener<L> {
+        /**
+         * @param start index of the first character of the occurrence
+         * @param end index after the last character of the occurrence
+         * @return whether to keep scanning
+         */
+        boolean onMatch(L label, int start, int end);
+    }
+
+    /**
+     * One keyword occurrence.
+     */
+    public static final class Match<L> {
+        private final L label;
+        private final int start;
+        private final int end;
+
+        Match(L label, int start, int end) {
+            this.label = label;
+            this.start = start;
+            this.end = end;
+        }
+
+        public L getLabel() {
+            return label;
+        }
+
+        public int getStart() {
+            return start;
+        }
+
+        public int getEnd() {
+            return end;
+        }
+
+        @Override
+        public String toString() {
+            return label + "[" + start + "," + end + ")";
+        }
+    }
+
+    /**
+     * Collects keywords before compiling them.
+     */
+    public static final class Builder<L> {
+        private final List<String> keywords = new ArrayList<>();
+        private final List<L> labels = new ArrayList<>();
+        private final List<Boolean> wholeWord = new ArrayList<>();
+
+        private Builder() {
+        }
+
+        /**
+         * Add keywords that only match as whole words.
+         */
+        public Builder<L> word(L label, String... keywords) {
+            return add(label, true, keywords);
+        }
+
+        /**
+         * Add keywords that match anywhere, including inside longer words.
+         */
+        public Builder<L> substring(L label, String... keywords) {
+            return add(label, false, keywords);
+        }
+
+        public KeywordMatcher<L> build() {
+            return new KeywordMatcher<>(this);
+        }
+
+        private Builder<L> add(L label, boolean whole, String... keywords) {
+            for (String keyword : keywords) {
+                if (keyword == null || keyword.isEmpty()) {
+                    throw new IllegalArgumentException("Keywords must not be empty");
+                }
+                StringBuilder lower = new StringBuilder(keyword.length());
+                for (int i = 0; i < keyword.length(); i++) {
+                    lower.append(Character.toLowerCase(keyword.charAt(i)));
+                }
+                this.keywords.add(lower.toString());
+                this.labels.add(label);
+                this.wholeWord.add(whole);
+            }
+            return this;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.tripplanner.util;
+
+/**
+ * Hand-written matchers for the small structural patterns in chat text and itinerary data: word
+ * boundaries, times of day and clock strings.
+ *
+ * Each one checks a bounded number of characters from a given position, so callers that already
+ * walk the text (for example with a {@link KeywordMatcher}) can test them at the positions they
+ * reach instead of running a regex over the whole text again. They accept exactly what the regex
+ * in their doc comment accepts.
+ */
+public final class TextPatterns {
+
+    private static final String[] TIME_SUFFIXES = {"am", "pm", "a.m.", "p.m."};
+
+    private TextPatterns() {
+    }
+
+    /**
+     * Whether a character counts as part of a word, as for regex {@code \b}.
+     */
+    public static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_';
+    }
+
+    /**
+     * Whether there is a word boundary ({@code \b}) before the character at the index.
+     */
+    public static boolean isWordBoundary(CharSequence text, int index) {
+        boolean before = index > 0 && isWordChar(text.charAt(index - 1));
+        boolean after = index < text.length() && isWordChar(text.charAt(index));
+        return before != after;
+    }
+
+    public static boolean isAsciiDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * Whether a number that looks like a time of day, {@code \b\d{1,2}:?\d{0,2}\b}, starts at the
+     * index.
+     */
+    public static boolean isClockNumberAt(CharSequence text, int start) {
+        if (!isWordBoundary(text, start) || !isAsciiDigit(charAt(text, start))) {
+            return false;
+        }
+        for (int hours = 2; hours >= 1; hours--) {
+            if (digits(text, start, hours) < hours) {
+                continue;
+            }
+            for (int colon = 1; colon >= 0; colon--) {
+                int afterColon = start + hours + colon;
+                if (colon == 1 && charAt(text, start + hours) != ':') {
+                    continue;
+                }
+                for (int minutes = 2; minutes >= 0; minutes--) {
+                    if (digits(text, afterColon, minutes) == minutes && isWordBoundary(text, afterColon + minutes)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * End of a time of day starting at the index, or -1 if there is none. Matches
+     * {@code \b(\d{1,2}):?(\d{0,2})\s*(am|pm|a\.m\.|p\.m\.)?\b} ignoring case, and when several
+     * lengths would match picks the one that regex would.
+     */
+    public static int timeEndAt(CharSequence text, int start) {
+        if (!isWordBoundary(text, start) || !isAsciiDigit(charAt(text, start))) {
+            return -1;
+        }
+        for (int hours = 2; hours >= 1; hours--) {
+            if (digits(text, start, hours) < hours) {
+                continue;
+            }
+            for (int colon = 1; colon >= 0; colon--) {
+                int afterColon = start + hours + colon;
+                if (colon == 1 && charAt(text, start + hours) != ':') {
+                    continue;
+                }
+                for (int minutes = 2; minutes >= 0; minutes--) {
+                    if (digits(text, afterColon, minutes) < minutes) {
+                        continue;
+                    }
+                    int afterMinutes = afterColon + minutes;
+                    int spaces = 0;
+                    while (isRegexSpace(charAt(text, afterMinutes + spaces))) {
+                        spaces++;
+                    }
+                    for (; spaces >= 0; spaces--) {
+                        int afterSpaces = afterMinutes + spaces;
+                        for (String suffix : TIME_SUFFIXES) {
+                            if (regionMatchesIgnoreCase(text, afterSpaces, suffix)
+                                    && isWordBoundary(text, afterSpaces + suffix.length())) {
+                                return afterSpaces + suffix.length();
+                            }
+                        }
+                        if (isWordBoundary(text, afterSpaces)) {
+                            return afterSpaces;
+                        }
+                    }
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Minutes after midnight of a 24-hour {@code HH:mm} clock string, matching
+     * {@code ([0-1][0-9]|2[0-3]):[0-5][0-9]}, or -1 if the string is not one.
+     */
+    public static int parseClockMinutes(String time) {
+        if (time == null || time.length() != 5 || time.charAt(2) != ':') {
+            return -1;
+        }
+        char h1 = time.charAt(0);
+        char h2 = time.charAt(1);
+        char m1 = time.charAt(3);
+        char m2 = time.charAt(4);
+        if (!isAsciiDigit(h1) || !isAsciiDigit(h2) || m1 < '0' || m1 > '5' || !isAsciiDigit(m2)) {
+            return -1;
+        }
+        int hours = (h1 - '0') * 10 + (h2 - '0');
+        if (hours > 23) {
+            return -1;
+        }
+        return hours * 60 + (m1 - '0') * 10 + (m2 - '0');
+    }
+
+    /**
+     * Whether a character is whitespace for regex {@code \s}.
+     */
+    public static boolean isRegexSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    private static int digits(CharSequence text, int from, int max) {
+        int count = 0;
+        while (count < max && isAsciiDigit(charAt(text, from + count))) {
+            count++;
+        }
+        return count;
+    }
+
+    private static boolean regionMatchesIgnoreCase(CharSequence text, int from, String lowerCase) {
+        if (from + lowerCase.length() > text.length()) {
+            return false;
+        }
+        for (int i = 0; i < lowerCase.length(); i++) {
+            if (Character.toLowerCase(text.charAt(from + i)) != lowerCase.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // The character at the index, or 0 past the end so lookahead needs no bounds checks
+    private static char charAt(CharSequence text, int index) {
+        return index >= 0 && index < text.length() ? text.charAt(index) : 0;
+    }
+}
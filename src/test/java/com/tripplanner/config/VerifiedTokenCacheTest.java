@@ -0,0 +1,217 @@
+package com.tripplanner.config;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Signature;
+import java.util.Base64;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Verified Token Cache Tests")
+class VerifiedTokenCacheTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(VerifiedTokenCacheTest.class);
+
+    private final AtomicLong now = new AtomicLong(1_000_000L);
+    private final AtomicInteger verifications = new AtomicInteger();
+
+    private VerifiedTokenCache.VerifiedToken verify(String token, long expiresAt) {
+        verifications.incrementAndGet();
+        return new VerifiedTokenCache.VerifiedToken("uid-" + token, token + "@example.com", "User", expiresAt);
+    }
+
+    @Test
+    @DisplayName("Should verify a token once and serve repeats from cache")
+    void testCacheHit() throws Exception {
+        VerifiedTokenCache cache = new VerifiedTokenCache(100, 300_000L, now::get);
+
+        VerifiedTokenCache.VerifiedToken first = cache.getOrVerify("token-a", t -> verify(t, now.get() + 3_600_000L));
+        VerifiedTokenCache.VerifiedToken second = cache.getOrVerify("token-a", t -> verify(t, now.get() + 3_600_000L));
+
+        assertEquals("uid-token-a", first.getUid());
+        assertEquals("uid-token-a", second.getUid());
+        assertEquals(1, verifications.get());
+        assertEquals(1, cache.getHits());
+    }
+
+    @Test
+    @DisplayName("Should re-verify once the token expires or the max TTL passes")
+    void testExpiry() throws Exception {
+        VerifiedTokenCache cache = new VerifiedTokenCache(100, 300_000L, now::get);
+
+        // Token expiring before the max TTL
+        cache.getOrVerify("short", t -> verify(t, now.get() + 60_000L));
+        // Token expiring after the max TTL
+        cache.getOrVerify("long", t -> verify(t, now.get() + 3_600_000L));
+
+        now.addAndGet(61_000L);
+        cache.getOrVerify("short", t -> verify(t, now.get() + 60_000L));
+        cache.getOrVerify("long", t -> verify(t, now.get() + 3_600_000L));
+        assertEquals(3, verifications.get());
+
+        now.addAndGet(300_000L);
+        cache.getOrVerify("long", t -> verify(t, now.get() + 3_600_000L));
+        assertEquals(4, verifications.get());
+    }
+
+    @Test
+    @DisplayName("Should not cache failed verifications")
+    void testFailureNotCached() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(100, 300_000L, now::get);
+
+        for (int i = 0; i < 2; i++) {
+            assertThrows(IllegalArgumentException.class, () -> cache.getOrVerify("bad", t -> {
+                verifications.incrementAndGet();
+                throw new IllegalArgumentException("Invalid token");
+            }));
+        }
+
+        assertEquals(2, verifications.get());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    @DisplayName("Should stay within the configured capacity")
+    void testBounded() throws Exception {
+        VerifiedTokenCache cache = new VerifiedTokenCache(50, 300_000L, now::get);
+
+        for (int i = 0; i < 200; i++) {
+            cache.getOrVerify("token-" + i, t -> verify(t, now.get() + 3_600_000L));
+        }
+
+        assertTrue(cache.size() <= 50);
+    }
+
+    @Test
+    @DisplayName("Should collapse concurrent verifications of the same token")
+    void testConcurrentVerificationCollapsed() throws Exception {
+        VerifiedTokenCache cache = new VerifiedTokenCache(100, 300_000L);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        try {
+            Future<?>[] futures = new Future<?>[8];
+            for (int i = 0; i < futures.length; i++) {
+                futures[i] = executor.submit(() -> cache.getOrVerify("shared", t -> {
+                    release.await(5, TimeUnit.SECONDS);
+                    return verify(t, System.currentTimeMillis() + 3_600_000L);
+                }));
+            }
+            Thread.sleep(100);
+            release.countDown();
+            for (Future<?> future : futures) {
+                future.get(5, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, verifications.get());
+    }
+
+    @Test
+    @DisplayName("Should evict expired entries before live ones, then the least recently used")
+    void testLruEviction() throws Exception {
+        VerifiedTokenCache cache = new VerifiedTokenCache(3, 300_000L, now::get);
+
+        cache.getOrVerify("expiring", t -> verify(t, now.get() + 60_000L));
+        cache.getOrVerify("token-0", t -> verify(t, now.get() + 3_600_000L));
+        cache.getOrVerify("token-1", t -> verify(t, now.get() + 3_600_000L));
+        now.addAndGet(61_000L);
+
+        // The expired entry makes room even though it is not the least recently used
+        cache.getOrVerify("token-0", t -> verify(t, now.get() + 3_600_000L));
+        cache.getOrVerify("token-2", t -> verify(t, now.get() + 3_600_000L));
+        assertEquals(4, verifications.get());
+        assertEquals(3, cache.size());
+
+        // Full of live entries: token-1 is the least recently used
+        cache.getOrVerify("token-0", t -> verify(t, now.get() + 3_600_000L));
+        cache.getOrVerify("token-3", t -> verify(t, now.get() + 3_600_000L));
+        cache.getOrVerify("token-0", t -> verify(t, now.get() + 3_600_000L));
+        assertEquals(5, verifications.get());
+
+        cache.getOrVerify("token-1", t -> verify(t, now.get() + 3_600_000L));
+        assertEquals(6, verifications.get());
+        assertEquals(3, cache.size());
+    }
+
+    @Test
+    @Tag("load")
+    @DisplayName("Benchmark: cached lookup versus RS256 token verification")
+    void benchmarkCachedLookup() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        KeyPair keys = generator.generateKeyPair();
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        String signingInput = encoder.encodeToString("{\"alg\":\"RS256\",\"typ\":\"JWT\"}".getBytes(StandardCharsets.UTF_8))
+                + "." + encoder.encodeToString(("{\"sub\":\"user-1\",\"email\":\"user-1@example.com\",\"exp\":"
+                + (System.currentTimeMillis() / 1000 + 3600) + "}").getBytes(StandardCharsets.UTF_8));
+        Signature signer = Signature.getInstance("SHA256withRSA");
+        signer.initSign(keys.getPrivate());
+        signer.update(signingInput.getBytes(StandardCharsets.UTF_8));
+        String token = signingInput + "." + encoder.encodeToString(signer.sign());
+
+        // Checks the signature and decodes the claims, as the ID token verifier does after fetching the key
+        VerifiedTokenCache.TokenVerifier rs256Verifier = t -> {
+            int signatureStart = t.lastIndexOf('.');
+            Signature verifier = Signature.getInstance("SHA256withRSA");
+            verifier.initVerify(keys.getPublic());
+            verifier.update(t.substring(0, signatureStart).getBytes(StandardCharsets.UTF_8));
+            if (!verifier.verify(Base64.getUrlDecoder().decode(t.substring(signatureStart + 1)))) {
+                throw new IllegalArgumentException("Invalid signature");
+            }
+            String payload = new String(Base64.getUrlDecoder().decode(t.substring(t.indexOf('.') + 1, signatureStart)),
+                    StandardCharsets.UTF_8);
+            if (!payload.contains("\"sub\":\"user-1\"")) {
+                throw new IllegalArgumentException("Unexpected subject");
+            }
+            verifications.incrementAndGet();
+            return new VerifiedTokenCache.VerifiedToken("user-1", "user-1@example.com", "User",
+                    System.currentTimeMillis() + 3_600_000L);
+        };
+        int warmup = 200;
+        int verifyIterations = 1_000;
+        int lookupIterations = 100_000;
+
+        for (int i = 0; i < warmup; i++) {
+            rs256Verifier.verify(token);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < verifyIterations; i++) {
+            rs256Verifier.verify(token);
+        }
+        long nanosPerVerification = (System.nanoTime() - start) / verifyIterations;
+
+        VerifiedTokenCache cache = new VerifiedTokenCache(10_000, 300_000L);
+        verifications.set(0);
+        for (int i = 0; i < warmup; i++) {
+            cache.getOrVerify(token, rs256Verifier);
+        }
+        start = System.nanoTime();
+        for (int i = 0; i < lookupIterations; i++) {
+            cache.getOrVerify(token, rs256Verifier);
+        }
+        long nanosPerLookup = (System.nanoTime() - start) / lookupIterations;
+
+        logger.info("RS256 verification: {} ns/request, cached lookup: {} ns/request ({}x)",
+                nanosPerVerification, nanosPerLookup, nanosPerVerification / Math.max(nanosPerLookup, 1));
+        assertEquals(1, verifications.get());
+        assertEquals(warmup + lookupIterations - 1, cache.getHits());
+        assertTrue(nanosPerLookup * 10 < nanosPerVerification);
+    }
+}
@@ -0,0 +1,109 @@
+package com.tripplanner.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tripplanner.dto.ChangeSet;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Compiled Schema Tests")
+class CompiledSchemaTest {
+
+    private static final CompiledSchema SCHEMA = CompiledSchema.compile("""
+        {
+          "type": "object",
+          "required": ["ops"],
+          "properties": {
+            "day": { "type": "integer" },
+            "ops": {
+              "type": "array",
+              "items": {
+                "type": "object",
+                "required": ["op"],
+                "properties": {
+                  "op": { "type": "string", "enum": ["insert", "delete"] },
+                  "startTime": { "type": ["string", "integer"] }
+                }
+              }
+            }
+          }
+        }
+        """);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    @DisplayName("Should accept a valid document")
+    void testValidDocument() throws Exception {
+        JsonNode json = objectMapper.readTree("{\"day\": 1, \"ops\": [{\"op\": \"insert\", \"startTime\": \"09:00\"}]}");
+
+        assertTrue(SCHEMA.validate(json).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should report missing required fields at every level")
+    void testMissingRequiredFields() throws Exception {
+        assertEquals(List.of("Missing required field: ops"), SCHEMA.validate(objectMapper.readTree("{\"day\": 1}")));
+
+        List<String> errors = SCHEMA.validate(objectMapper.readTree("{\"ops\": [{\"id\": \"n1\"}]}"));
+        assertEquals(List.of("Missing required field: ops[0].op"), errors);
+    }
+
+    @Test
+    @DisplayName("Should report type and enum violations")
+    void testTypeAndEnumViolations() throws Exception {
+        JsonNode json = objectMapper.readTree("{\"day\": \"one\", \"ops\": [{\"op\": \"teleport\", \"startTime\": true}]}");
+
+        List<String> errors = SCHEMA.validate(json);
+
+        assertEquals(3, errors.size());
+        assertTrue(errors.get(0).contains("day"));
+        assertTrue(errors.get(1).contains("teleport"));
+        assertTrue(errors.get(2).contains("ops[0].startTime"));
+    }
+
+    @Test
+    @DisplayName("Should report only top-level violations in lenient mode")
+    void testLenientValidation() throws Exception {
+        // Nested, enum and non-integral number violations pass leniently but not strictly
+        JsonNode nestedViolations = objectMapper.readTree("{\"day\": 1.5, \"ops\": [{\"op\": \"teleport\"}, {\"id\": \"n1\"}]}");
+
+        assertTrue(SCHEMA.validate(nestedViolations, false).isEmpty());
+        assertEquals(3, SCHEMA.validate(nestedViolations, true).size());
+
+        // Top-level required fields and property types are still checked
+        List<String> errors = SCHEMA.validate(objectMapper.readTree("{\"day\": \"one\"}"), false);
+        assertEquals(List.of("Missing required field: ops", "Field day has incorrect type. Expected: integer"), errors);
+    }
+
+    @Test
+    @DisplayName("Should expose compiled sub-schemas")
+    void testSubSchemas() throws Exception {
+        CompiledSchema opSchema = SCHEMA.property("ops").items();
+
+        assertNotNull(opSchema);
+        assertNull(SCHEMA.property("unknown"));
+        assertFalse(opSchema.validate(objectMapper.readTree("{}")).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should reject malformed schema text at compile time")
+    void testMalformedSchema() {
+        assertThrows(IllegalArgumentException.class, () -> CompiledSchema.compile("{ not json"));
+    }
+
+    @Test
+    @DisplayName("Should bind with the cached reader")
+    void testBinder() throws Exception {
+        StructuredOutputBinder<ChangeSet> binder = new StructuredOutputBinder<>(SCHEMA, objectMapper, ChangeSet.class);
+
+        ChangeSet changeSet = binder.bind(objectMapper.readTree("{\"day\": 2, \"ops\": [{\"op\": \"delete\", \"id\": \"n1\"}]}"));
+
+        assertEquals(Integer.valueOf(2), changeSet.getDay());
+        assertEquals("n1", changeSet.getOps().get(0).getId());
+    }
+}
@@ -58,6 +58,8 @@ class BookingAgentTest extends BaseServiceTest {
     protected void setupSpecificMocks() {
         // Setup event bus mock with lenient stubbing
         lenient().doNothing().when(mockEventBus).publish(anyString(), any(AgentEvent.class));
+        lenient().when(mockBookingComService.getSearchTimeoutMs()).thenReturn(10_000L);
+        lenient().when(mockExpediaService.getSearchTimeoutMs()).thenReturn(10_000L);
         
         // Setup other service mocks with lenient stubbing
         // Note: These will be mocked specifically in individual tests as needed
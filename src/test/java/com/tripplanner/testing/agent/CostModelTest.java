@@ -0,0 +1,163 @@
+package com.tripplanner.testing.agent;
+
+import com.tripplanner.agents.CostEstimatorAgent;
+import com.tripplanner.agents.CostModel;
+import com.tripplanner.dto.*;
+import com.tripplanner.service.AgentEventBus;
+import com.tripplanner.service.CostEstimationService;
+import com.tripplanner.service.ItineraryJsonService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.offset;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for the per-destination cost model and how CostEstimatorAgent uses it.
+ */
+class CostModelTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(CostModelTest.class);
+
+    @Test
+    @DisplayName("Should move estimates towards booked prices at the same destination only")
+    void shouldLearnFromBookedPrices() {
+        // Given
+        CostModel model = new CostModel(8);
+        CostModel.CostTable lisbon = model.table("Lisbon", "INR");
+        int dinner = CostModel.keyIndex(node("n1", "meal", "dinner"));
+        double before = lisbon.estimate(dinner, 0, 1.0);
+
+        // When
+        boolean first = lisbon.observe("it_1/n1/BK1", dinner, 0, 4000.0);
+        boolean repeated = lisbon.observe("it_1/n1/BK1", dinner, 0, 4000.0);
+
+        // Then - base 1000 counts as two observations: (1000 * 2 + 4000) / 3
+        assertThat(before).isCloseTo(1000.0, offset(1e-9));
+        assertThat(first).isTrue();
+        assertThat(repeated).isFalse();
+        assertThat(lisbon.estimate(dinner, 0, 1.0)).isCloseTo(2000.0, offset(1e-9));
+        assertThat(model.table(" lisbon ", "INR")).isSameAs(lisbon);
+        assertThat(model.table("Porto", "INR").estimate(dinner, 0, 1.0)).isCloseTo(1000.0, offset(1e-9));
+
+        logger.info("Booked price learning test passed");
+    }
+
+    @Test
+    @DisplayName("Should scale by price level when known and by budget tier otherwise")
+    void shouldScaleByPriceLevelOrBudget() {
+        // Given
+        CostModel model = new CostModel(8);
+        NormalizedNode museum = node("n1", "attraction", "museum");
+        CostModel.CostTable table = model.table("Paris", "EUR");
+        int key = CostModel.keyIndex(museum);
+
+        // When
+        int unknownTier = CostModel.tierOf(museum);
+        museum.setLocation(new NodeLocation());
+        museum.getLocation().setPriceLevel(4);
+        int expensiveTier = CostModel.tierOf(museum);
+
+        // Then
+        assertThat(unknownTier).isZero();
+        assertThat(expensiveTier).isEqualTo(5);
+        assertThat(table.estimate(key, 0, 2.0)).isCloseTo(500.0 / 90.0 * 2.0, offset(1e-9));
+        assertThat(table.estimate(key, expensiveTier, 0.6)).isCloseTo(500.0 / 90.0 * 2.5, offset(1e-9));
+        assertThat(CostModel.keyIndex(node("n2", "unknown", null))).isEqualTo(-1);
+        assertThat(CostModel.currencyFor("eur")).isEqualTo("EUR");
+        assertThat(CostModel.currencyFor("XYZ")).isEqualTo("INR");
+        assertThat(CostModel.round(1234.0, "INR")).isEqualTo(1200.0);
+        assertThat(CostModel.round(1234.0, "JPY")).isEqualTo(1200.0);
+        assertThat(CostModel.round(12.7, "EUR")).isEqualTo(12.0);
+
+        logger.info("Price level scaling test passed");
+    }
+
+    @Test
+    @DisplayName("Should estimate in the itinerary currency and skip the save when nothing changed")
+    void shouldEstimateOnceAndSkipRedundantSaves() {
+        // Given
+        ItineraryJsonService itineraryJsonService = mock(ItineraryJsonService.class);
+        CostEstimatorAgent agent = new CostEstimatorAgent(mock(AgentEventBus.class), itineraryJsonService);
+        NormalizedItinerary itinerary = itinerary("it_eur", "EUR",
+                node("n1", "attraction", "museum"), node("n2", "meal", "dinner"));
+
+        // When
+        agent.estimateCosts("it_eur", itinerary, "medium");
+        double firstEstimate = itinerary.getDays().get(0).getNodes().get(0).getCost().getAmountPerPerson();
+        agent.estimateCosts("it_eur", itinerary, "medium");
+
+        // Then
+        for (NormalizedNode node : itinerary.getDays().get(0).getNodes()) {
+            assertThat(node.getCost().getCurrency()).isEqualTo("EUR");
+            assertThat(node.getCost().getAmountPerPerson()).isPositive();
+        }
+        assertThat(firstEstimate).isEqualTo(itinerary.getDays().get(0).getNodes().get(0).getCost().getAmountPerPerson());
+        assertThat(itinerary.getDays().get(0).getTotalCost()).isPositive();
+        verify(itineraryJsonService, times(1)).updateItinerary(any(NormalizedItinerary.class));
+
+        logger.info("Single save test passed");
+    }
+
+    @Test
+    @DisplayName("Should estimate only the listed nodes and days of an edit, without saving")
+    void shouldEstimateChangedNodesInMemory() {
+        // Given
+        ItineraryJsonService itineraryJsonService = mock(ItineraryJsonService.class);
+        CostEstimationService costEstimationService = new CostEstimatorAgent(mock(AgentEventBus.class), itineraryJsonService);
+        NormalizedNode added = node("n1", "meal", "lunch");
+        NormalizedNode untouched = node("n2", "attraction", "park");
+        NormalizedNode booked = node("n3", "attraction", "museum");
+        booked.setCost(new NodeCost(800.0, "INR"));
+        NormalizedItinerary itinerary = itinerary("it_edit", null, added, untouched, booked);
+        NormalizedNode otherDayNode = node("n4", "meal", "dinner");
+        NormalizedDay otherDay = new NormalizedDay();
+        otherDay.setDayNumber(2);
+        otherDay.setNodes(new ArrayList<>(List.of(otherDayNode)));
+        itinerary.getDays().add(otherDay);
+
+        // When
+        int estimated = costEstimationService.estimateChangedNodes(itinerary, List.of("n1", "n3", "n4"), List.of(1));
+
+        // Then
+        assertThat(estimated).isEqualTo(1);
+        assertThat(added.getCost().getAmountPerPerson()).isPositive();
+        assertThat(untouched.getCost()).isNull();
+        assertThat(booked.getCost().getAmountPerPerson()).isEqualTo(800.0);
+        assertThat(itinerary.getDays().get(0).getTotalCost())
+                .isEqualTo(added.getCost().getAmountPerPerson() + 800.0);
+        assertThat(otherDayNode.getCost()).isNull(); // day 2 was not part of the edit
+        assertThat(otherDay.getTotalCost()).isNull();
+        verify(itineraryJsonService, never()).updateItinerary(any());
+
+        logger.info("Changed node estimation test passed");
+    }
+
+    private static NormalizedItinerary itinerary(String id, String currency, NormalizedNode... nodes) {
+        NormalizedItinerary itinerary = new NormalizedItinerary();
+        itinerary.setItineraryId(id);
+        itinerary.setDestination("Lisbon");
+        itinerary.setCurrency(currency);
+        NormalizedDay day = new NormalizedDay();
+        day.setDayNumber(1);
+        day.setNodes(new ArrayList<>(List.of(nodes)));
+        itinerary.setDays(new ArrayList<>(List.of(day)));
+        return itinerary;
+    }
+
+    private static NormalizedNode node(String id, String type, String category) {
+        NormalizedNode node = new NormalizedNode(id, type, "Test " + type);
+        if (category != null) {
+            node.setDetails(new NodeDetails());
+            node.getDetails().setCategory(category);
+        }
+        return node;
+    }
+}
@@ -52,7 +52,8 @@ class EnrichmentAgentTest extends BaseServiceTest {
             mockItineraryJsonService,
             mockChangeEngine,
             mockGooglePlacesService,
-            mockEnrichmentProtocolHandler
+            mockEnrichmentProtocolHandler,
+            new TravelTimeService()
         );
     }
     
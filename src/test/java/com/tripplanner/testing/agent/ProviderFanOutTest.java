@@ -0,0 +1,166 @@
+package com.tripplanner.testing.agent;
+
+import com.tripplanner.agents.ProviderFanOut;
+import com.tripplanner.dto.Flight;
+import com.tripplanner.service.ExpediaService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for the concurrent multi-provider search used by BookingAgent.
+ */
+class ProviderFanOutTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProviderFanOutTest.class);
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("Should merge provider results into a ranked top-k")
+    void shouldMergeIntoTopK() {
+        // Given
+        Map<String, List<Integer>> partials = new LinkedHashMap<>();
+        ProviderFanOut<Integer> fanOut = new ProviderFanOut<Integer>(Comparator.naturalOrder(), 3)
+                .provider("a", 2_000, () -> List.of(5, 1, 9))
+                .provider("b", 2_000, () -> {
+                    sleep(100);
+                    return List.of(4, 2, 8);
+                });
+
+        // When
+        ProviderFanOut.Result<Integer> result = fanOut.search(executor, partials::put);
+
+        // Then
+        assertThat(result.getResults()).containsExactly(1, 2, 4);
+        assertThat(result.getAnswered()).containsExactly("a", "b");
+        assertThat(result.getFailures()).isEmpty();
+        assertThat(partials).containsExactly(Map.entry("a", List.of(1, 5, 9)), Map.entry("b", List.of(1, 2, 4)));
+
+        logger.info("Top-k merge test passed");
+    }
+
+    @Test
+    @DisplayName("Should bound latency by each provider's deadline, interrupt late providers and skip failed ones")
+    void shouldSkipSlowAndFailedProviders() throws Exception {
+        // Given
+        CountDownLatch interrupted = new CountDownLatch(1);
+        ProviderFanOut<Integer> fanOut = new ProviderFanOut<Integer>(Comparator.naturalOrder(), 5)
+                .provider("fast", 300, () -> List.of(3, 1))
+                .provider("broken", 300, () -> {
+                    throw new IllegalStateException("provider down");
+                })
+                .provider("slow", 300, () -> {
+                    try {
+                        Thread.sleep(5_000);
+                    } catch (InterruptedException e) {
+                        interrupted.countDown();
+                    }
+                    return List.of(0);
+                })
+                .provider("patient", 1_000, () -> {
+                    sleep(500);
+                    return List.of(2);
+                });
+
+        // When
+        long start = System.currentTimeMillis();
+        ProviderFanOut.Result<Integer> result = fanOut.search(executor, null);
+        long elapsed = System.currentTimeMillis() - start;
+
+        // Then
+        assertThat(elapsed).isGreaterThanOrEqualTo(500).isLessThan(1_000);
+        assertThat(result.getResults()).containsExactly(1, 2, 3);
+        assertThat(result.getAnswered()).containsExactly("fast", "patient");
+        assertThat(result.getFailures()).containsOnlyKeys("broken", "slow");
+        assertThat(result.getFailures().get("broken")).hasMessage("provider down");
+        assertThat(result.getFailures().get("slow")).isInstanceOf(TimeoutException.class);
+        assertThat(interrupted.await(1, TimeUnit.SECONDS)).isTrue();
+
+        logger.info("Deadline test passed");
+    }
+
+    @Test
+    @DisplayName("Should keep provider order for equally ranked results and report total failure")
+    void shouldKeepProviderOrderAndReportTotalFailure() {
+        // Given - every result ranks the same
+        ProviderFanOut<String> fanOut = new ProviderFanOut<String>((a, b) -> 0, 10)
+                .provider("a", 2_000, () -> List.of("first", "second", "third"));
+
+        // When
+        ProviderFanOut.Result<String> result = fanOut.search(executor, null);
+
+        // Then
+        assertThat(result.getResults()).containsExactly("first", "second", "third");
+
+        // When - no provider answers
+        ProviderFanOut.Result<String> failed = new ProviderFanOut<String>(Comparator.naturalOrder(), 10)
+                .provider("broken", 2_000, () -> {
+                    throw new IllegalStateException("provider down");
+                })
+                .search(executor, null);
+
+        // Then
+        assertThat(failed.getResults()).isEmpty();
+        assertThatThrownBy(failed::rethrowIfAllFailed).hasMessage("provider down");
+
+        logger.info("Provider order test passed");
+    }
+
+    @Test
+    @DisplayName("Should keep the cheapest flights when some have no price")
+    void shouldRankFlightsWithMissingPricesLast() {
+        // Given - without a consistent place for missing prices, the heap could keep the wrong flights
+        Flight expensive = flight("expensive", 300.0, 120);
+        Flight unpriced = flight("unpriced", null, 60);
+        Flight cheap = flight("cheap", 100.0, 180);
+        ProviderFanOut<Flight> fanOut = new ProviderFanOut<>(ExpediaService.FLIGHT_ORDER, 2)
+                .provider("a", 2_000, () -> List.of(expensive, unpriced, cheap));
+
+        // When
+        ProviderFanOut.Result<Flight> result = fanOut.search(executor, null);
+
+        // Then
+        assertThat(result.getResults()).containsExactly(cheap, expensive);
+        assertThat(ExpediaService.FLIGHT_ORDER.compare(unpriced, expensive)).isPositive();
+        assertThat(ExpediaService.FLIGHT_ORDER.compare(unpriced, cheap)).isPositive();
+
+        logger.info("Flight ranking test passed");
+    }
+
+    private static Flight flight(String flightNumber, Double price, Integer duration) {
+        Flight flight = new Flight();
+        flight.setFlightNumber(flightNumber);
+        flight.setPrice(price);
+        flight.setDuration(duration);
+        return flight;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package com.tripplanner.testing.dto;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tripplanner.dto.DayTimeline;
+import com.tripplanner.dto.NodeTiming;
+import com.tripplanner.dto.NormalizedDay;
+import com.tripplanner.dto.NormalizedNode;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for the per-day interval index over node timings.
+ */
+class DayTimelineTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(DayTimelineTest.class);
+
+    private static final long MINUTE = 60_000L;
+    private static final long DAY_START = 1_700_000_000_000L;
+
+    @Test
+    @DisplayName("Should find overlapping nodes in start order")
+    void shouldFindOverlappingNodes() {
+        // Given
+        DayTimeline timeline = DayTimeline.of(List.of(
+                node("n3", 180, 240),
+                node("n1", 0, 60),
+                node("n2", 60, 120),
+                untimed("n4")));
+
+        // When
+        List<String> overlapping = ids(timeline.overlapping(at(30), at(90)));
+
+        // Then
+        assertThat(overlapping).containsExactly("n1", "n2");
+        assertThat(ids(timeline.overlapping(at(120), at(180)))).isEmpty();
+        assertThat(ids(timeline.inStartOrder())).containsExactly("n1", "n2", "n3");
+        assertThat(timeline.size()).isEqualTo(3);
+
+        logger.info("Overlap query test passed");
+    }
+
+    @Test
+    @DisplayName("Should jump to the next free gap and ignore the excluded node")
+    void shouldFindNextFreeSlot() {
+        // Given
+        DayTimeline timeline = DayTimeline.of(List.of(
+                node("n1", 0, 60),
+                node("n2", 50, 150),
+                node("n3", 160, 200),
+                node("moving", 200, 260)));
+
+        // Then - the 10 minute gap after n2 is too short for a 30 minute slot
+        assertThat(timeline.nextFreeSlot(at(0), 30 * MINUTE, at(480), null)).isEqualTo(at(260));
+        assertThat(timeline.nextFreeSlot(at(0), 30 * MINUTE, at(480), "moving")).isEqualTo(at(200));
+        assertThat(timeline.nextFreeSlot(at(0), 10 * MINUTE, at(480), null)).isEqualTo(at(150));
+        assertThat(timeline.nextFreeSlot(at(0), 30 * MINUTE, at(100), null)).isNull();
+
+        logger.info("Next free slot test passed");
+    }
+
+    @Test
+    @DisplayName("Should stay consistent with incremental updates")
+    void shouldApplyIncrementalUpdates() {
+        // Given
+        List<NormalizedNode> nodes = new ArrayList<>(List.of(node("n1", 0, 60), node("n2", 120, 180)));
+        NormalizedDay day = new NormalizedDay(1, "2025-06-01", "Paris");
+        day.setNodes(nodes);
+        DayTimeline timeline = day.getTimeline();
+
+        // When
+        NormalizedNode inserted = node("n3", 60, 90);
+        nodes.add(inserted);
+        timeline.add(inserted);
+
+        nodes.get(0).getTiming().setStartTime(at(200));
+        nodes.get(0).getTiming().setEndTime(at(230));
+        timeline.update(nodes.get(0));
+
+        nodes.remove(1);
+        timeline.remove("n2");
+
+        // Then
+        assertThat(day.getTimeline()).isSameAs(timeline);
+        assertThat(ids(timeline.inStartOrder())).containsExactly("n3", "n1");
+        assertThat(ids(timeline.overlapping(at(0), at(120)))).containsExactly("n3");
+
+        logger.info("Incremental update test passed");
+    }
+
+    @Test
+    @DisplayName("Should rebuild when the node list changes outside the index")
+    void shouldRebuildWhenNodeListChanges() throws Exception {
+        // Given
+        NormalizedDay day = new NormalizedDay(1, "2025-06-01", "Paris");
+        day.setNodes(new ArrayList<>(List.of(node("n1", 0, 60))));
+        DayTimeline original = day.getTimeline();
+
+        // When
+        day.getNodes().add(node("n2", 60, 120));
+
+        // Then
+        assertThat(day.getTimeline()).isNotSameAs(original);
+        assertThat(day.getTimeline().size()).isEqualTo(2);
+        assertThat(new ObjectMapper().writeValueAsString(day)).doesNotContain("timeline");
+
+        logger.info("Rebuild test passed");
+    }
+
+    @Test
+    @DisplayName("Should rebuild when a node's timing is edited or a node is replaced in place")
+    void shouldRebuildWhenNodeTimingChanges() {
+        // Given
+        NormalizedDay day = new NormalizedDay(1, "2025-06-01", "Paris");
+        day.setNodes(new ArrayList<>(List.of(node("n1", 0, 60), node("n2", 120, 180))));
+        DayTimeline original = day.getTimeline();
+
+        // When
+        day.getNodes().get(0).getTiming().setStartTime(at(300));
+        day.getNodes().get(0).getTiming().setEndTime(at(360));
+        DayTimeline afterTimingEdit = day.getTimeline();
+        day.getNodes().set(1, node("n3", 30, 90));
+        DayTimeline afterReplace = day.getTimeline();
+
+        // Then
+        assertThat(afterTimingEdit).isNotSameAs(original);
+        assertThat(afterReplace).isNotSameAs(afterTimingEdit);
+        assertThat(ids(afterReplace.inStartOrder())).containsExactly("n3", "n1");
+        assertThat(ids(afterReplace.overlapping(at(0), at(60)))).containsExactly("n3");
+        assertThat(day.getTimeline()).isSameAs(afterReplace);
+
+        logger.info("Node mutation rebuild test passed");
+    }
+
+    @Test
+    @DisplayName("Should match a linear scan on random days")
+    void shouldMatchLinearScan() {
+        Random random = new Random(42);
+
+        for (int round = 0; round < 200; round++) {
+            // Given
+            List<NormalizedNode> nodes = new ArrayList<>();
+            for (int i = 0; i < 12; i++) {
+                long start = random.nextInt(600);
+                nodes.add(node("n" + i, start, start + 15 + random.nextInt(120)));
+            }
+            DayTimeline timeline = DayTimeline.of(nodes);
+            long queryStart = at(random.nextInt(700));
+            long duration = (15 + random.nextInt(90)) * MINUTE;
+            String exclude = "n" + random.nextInt(12);
+
+            // Then
+            List<String> expectedOverlaps = nodes.stream()
+                    .filter(n -> overlaps(n, queryStart, queryStart + duration, null))
+                    .map(NormalizedNode::getId)
+                    .collect(Collectors.toList());
+            assertThat(ids(timeline.overlapping(queryStart, queryStart + duration)))
+                    .containsExactlyInAnyOrderElementsOf(expectedOverlaps);
+
+            Long expectedSlot = null;
+            for (long t = queryStart; t < queryStart + 480 * MINUTE; t += MINUTE) {
+                long slotStart = t;
+                if (nodes.stream().noneMatch(n -> overlaps(n, slotStart, slotStart + duration, exclude))) {
+                    expectedSlot = t;
+                    break;
+                }
+            }
+            assertThat(timeline.nextFreeSlot(queryStart, duration, queryStart + 480 * MINUTE, exclude))
+                    .isEqualTo(expectedSlot);
+        }
+
+        logger.info("Randomized comparison test passed");
+    }
+
+    private static boolean overlaps(NormalizedNode node, long start, long end, String excludeId) {
+        return !node.getId().equals(excludeId)
+                && node.getTiming().getStartTime() < end && node.getTiming().getEndTime() > start;
+    }
+
+    private static long at(long minutes) {
+        return DAY_START + minutes * MINUTE;
+    }
+
+    private static NormalizedNode node(String id, long startMinute, long endMinute) {
+        NormalizedNode node = untimed(id);
+        node.setTiming(new NodeTiming(at(startMinute), at(endMinute), (int) (endMinute - startMinute)));
+        return node;
+    }
+
+    private static NormalizedNode untimed(String id) {
+        NormalizedNode node = new NormalizedNode();
+        node.setId(id);
+        node.setType("attraction");
+        node.setTitle(id);
+        return node;
+    }
+
+    private static List<String> ids(List<NormalizedNode> nodes) {
+        return nodes.stream().map(NormalizedNode::getId).collect(Collectors.toList());
+    }
+}
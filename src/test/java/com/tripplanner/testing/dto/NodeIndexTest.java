@@ -0,0 +1,200 @@
+package com.tripplanner.testing.dto;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tripplanner.dto.NodeIndex;
+import com.tripplanner.dto.NormalizedDay;
+import com.tripplanner.dto.NormalizedItinerary;
+import com.tripplanner.dto.NormalizedNode;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for the per-itinerary node and day lookup index.
+ */
+class NodeIndexTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(NodeIndexTest.class);
+
+    @Test
+    @DisplayName("Should find nodes, their days and positions, and days by number")
+    void shouldLookUpNodesAndDays() {
+        // Given
+        NormalizedItinerary itinerary = itinerary(
+                day(1, node("a"), node("b")),
+                day(2, node("c"), node("d"), node("e")));
+
+        // When
+        NodeIndex index = itinerary.getNodeIndex();
+
+        // Then
+        assertThat(index.getNode("d").getId()).isEqualTo("d");
+        assertThat(index.getDayOfNode("d").getDayNumber()).isEqualTo(2);
+        assertThat(index.getPosition("e")).isEqualTo(2);
+        assertThat(index.getPosition(itinerary.getDays().get(0), "e")).isEqualTo(-1);
+        assertThat(index.getDay(1)).isSameAs(itinerary.getDays().get(0));
+        assertThat(index.getNode("missing")).isNull();
+        assertThat(index.getDay(3)).isNull();
+        assertThat(index.getNode(null)).isNull();
+
+        logger.info("Lookup test passed");
+    }
+
+    @Test
+    @DisplayName("Should resolve duplicate ids to the first node in day order")
+    void shouldPreferFirstDuplicate() {
+        // Given
+        NormalizedNode first = node("dup");
+        NormalizedNode second = node("dup");
+        NormalizedItinerary itinerary = itinerary(day(1, node("a"), first), day(2, second));
+
+        // Then
+        assertThat(itinerary.getNodeIndex().getNode("dup")).isSameAs(first);
+        assertThat(itinerary.getNodeIndex().getPosition(itinerary.getDays().get(1), "dup")).isEqualTo(0);
+
+        logger.info("Duplicate id test passed");
+    }
+
+    @Test
+    @DisplayName("Should stay consistent with incremental day refreshes")
+    void shouldRefreshSingleDay() {
+        // Given
+        NormalizedItinerary itinerary = itinerary(day(1, node("a"), node("b")), day(2, node("c")));
+        NodeIndex index = itinerary.getNodeIndex();
+        NormalizedDay dayOne = itinerary.getDays().get(0);
+
+        // When
+        dayOne.getNodes().add(0, node("x"));
+        index.refreshDay(dayOne);
+        dayOne.getNodes().remove(2);
+        index.refreshDay(dayOne);
+        dayOne.setNodes(new ArrayList<>(List.of(dayOne.getNodes().get(1), dayOne.getNodes().get(0))));
+        index.refreshDay(dayOne);
+
+        // Then
+        assertThat(itinerary.getNodeIndex()).isSameAs(index);
+        assertThat(index.getPosition("a")).isEqualTo(0);
+        assertThat(index.getPosition("x")).isEqualTo(1);
+        assertThat(index.getNode("b")).isNull();
+        assertThat(index.getDayOfNode("c").getDayNumber()).isEqualTo(2);
+
+        logger.info("Incremental refresh test passed");
+    }
+
+    @Test
+    @DisplayName("Should rebuild when the itinerary changes outside the index")
+    void shouldRebuildAfterExternalChanges() throws Exception {
+        // Given
+        NormalizedItinerary itinerary = itinerary(day(1, node("a"), node("b")));
+        NodeIndex original = itinerary.getNodeIndex();
+
+        // When - node list resized behind the index's back
+        itinerary.getDays().get(0).getNodes().add(node("c"));
+
+        // Then
+        assertThat(itinerary.getNodeIndex()).isNotSameAs(original);
+        assertThat(itinerary.getNodeIndex().getPosition("c")).isEqualTo(2);
+
+        // When - version bumped
+        NodeIndex beforeBump = itinerary.getNodeIndex();
+        itinerary.setVersion(2);
+
+        // Then
+        assertThat(itinerary.getNodeIndex()).isNotSameAs(beforeBump);
+
+        // When - node swapped in place without changing the list size
+        NodeIndex beforeSwap = itinerary.getNodeIndex();
+        itinerary.getDays().get(0).getNodes().set(0, node("z"));
+
+        // Then - the stale hit is detected and the index repairs itself
+        assertThat(beforeSwap.getNode("a")).isNull();
+        assertThat(beforeSwap.getPosition("z")).isEqualTo(0);
+        assertThat(new ObjectMapper().writeValueAsString(itinerary)).doesNotContain("nodeIndex");
+
+        logger.info("Rebuild test passed");
+    }
+
+    @Test
+    @DisplayName("Should match a linear scan under random edits")
+    void shouldMatchLinearScan() {
+        Random random = new Random(42);
+        List<NormalizedDay> days = new ArrayList<>();
+        for (int dayNumber = 1; dayNumber <= 5; dayNumber++) {
+            days.add(day(dayNumber));
+        }
+        NormalizedItinerary itinerary = itinerary(days.toArray(new NormalizedDay[0]));
+        int nextId = 0;
+
+        for (int round = 0; round < 2000; round++) {
+            // Given - a random insert, delete, replace or reorder kept in step with the index
+            NodeIndex index = itinerary.getNodeIndex();
+            NormalizedDay day = days.get(random.nextInt(days.size()));
+            List<NormalizedNode> nodes = day.getNodes();
+            int action = random.nextInt(4);
+            if (action == 0 || nodes.isEmpty()) {
+                int position = random.nextInt(nodes.size() + 1);
+                nodes.add(position, node("n" + nextId++));
+                index.nodeInserted(day, position);
+            } else if (action == 1) {
+                int position = random.nextInt(nodes.size());
+                nodes.remove(position);
+                index.nodeRemoved(day, position);
+            } else if (action == 2) {
+                int position = random.nextInt(nodes.size());
+                nodes.set(position, node("n" + nextId++));
+                index.nodeReplaced(day, position);
+            } else {
+                List<NormalizedNode> reordered = new ArrayList<>(nodes);
+                Collections.shuffle(reordered, random);
+                day.setNodes(reordered);
+                index.refreshDay(day);
+            }
+
+            // Then
+            String probe = "n" + random.nextInt(nextId + 1);
+            NormalizedDay expectedDay = null;
+            int expectedPosition = -1;
+            for (NormalizedDay candidate : days) {
+                for (int i = 0; i < candidate.getNodes().size() && expectedDay == null; i++) {
+                    if (probe.equals(candidate.getNodes().get(i).getId())) {
+                        expectedDay = candidate;
+                        expectedPosition = i;
+                    }
+                }
+            }
+            assertThat(itinerary.getNodeIndex()).isSameAs(index);
+            assertThat(index.getDayOfNode(probe)).isSameAs(expectedDay);
+            assertThat(index.getPosition(probe)).isEqualTo(expectedPosition);
+        }
+
+        logger.info("Randomized comparison test passed");
+    }
+
+    private static NormalizedItinerary itinerary(NormalizedDay... days) {
+        NormalizedItinerary itinerary = new NormalizedItinerary("it_index", 1);
+        itinerary.setDays(new ArrayList<>(List.of(days)));
+        return itinerary;
+    }
+
+    private static NormalizedDay day(int dayNumber, NormalizedNode... nodes) {
+        NormalizedDay day = new NormalizedDay(dayNumber, "2025-06-0" + dayNumber, "Paris");
+        day.setNodes(new ArrayList<>(List.of(nodes)));
+        return day;
+    }
+
+    private static NormalizedNode node(String id) {
+        NormalizedNode node = new NormalizedNode();
+        node.setId(id);
+        node.setType("attraction");
+        node.setTitle(id);
+        return node;
+    }
+}
@@ -120,7 +120,7 @@ class EditorAgentE2ETest {
         LLMResponseHandler.ProcessedResponse mockProcessedResponse = 
             LLMResponseHandler.ProcessedResponse.success(extractedJson, true);
         
-        when(llmResponseHandler.processResponse(anyString(), any(), any()))
+        when(llmResponseHandler.processResponse(anyString(), any(CompiledSchema.class), any()))
             .thenReturn(mockProcessedResponse);
         
         // ===== EXECUTE: User request =====
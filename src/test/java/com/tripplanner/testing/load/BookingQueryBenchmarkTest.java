@@ -0,0 +1,185 @@
+package com.tripplanner.testing.load;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Benchmarks the booking list and webhook lookup query shapes against 1M bookings in H2,
+ * before and after the indexes declared on the Booking entity.
+ *
+ * The table mirrors the columns Hibernate maps for Booking; it is filled with SQL so the
+ * benchmark does not depend on a JPA context. Runs with the load tests, e.g.
+ * ./gradlew loadTest --tests '*BookingQueryBenchmarkTest' -Dload.booking-rows=200000
+ */
+@Tag("load")
+class BookingQueryBenchmarkTest {
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private static final int USERS = 1_000;
+    private static final int PAGE_SIZE = 20;
+
+    private static final String FULL_ROW = "SELECT * FROM bookings ";
+    private static final String SUMMARY = "SELECT id, booking_id, user_id, itinerary_id, status, "
+            + "confirmation_id, created_at FROM bookings ";
+    private static final String NEWEST_FIRST = "ORDER BY created_at DESC, id DESC ";
+
+    @TempDir
+    Path dataDir;
+
+    @Test
+    @DisplayName("Benchmark: booking list and webhook lookup latency with and without indexes")
+    void benchmarkBookingQueries() throws SQLException {
+        int rows = Integer.getInteger("load.booking-rows", 1_000_000);
+        String url = "jdbc:h2:file:" + dataDir.resolve("bookings").toAbsolutePath();
+
+        try (Connection connection = DriverManager.getConnection(url, "sa", "")) {
+            // Given - bookings spread over 1000 users, two per createdAt second
+            long start = System.nanoTime();
+            createBookings(connection, rows);
+            logger.info("Inserted {} bookings in {} ms", rows, (System.nanoTime() - start) / 1_000_000);
+
+            String user = "user_" + (USERS / 2);
+            String orderId = "order_" + (rows / 2);
+
+            // When - no secondary indexes
+            long scanList = averageMicros(3, () -> ids(connection, FULL_ROW + "WHERE user_id = ? " + NEWEST_FIRST
+                    + "LIMIT " + PAGE_SIZE, user));
+            long scanLookup = averageMicros(3, () -> ids(connection, FULL_ROW + "WHERE order_id = ?", orderId));
+
+            start = System.nanoTime();
+            createEntityIndexes(connection);
+            logger.info("Created indexes in {} ms", (System.nanoTime() - start) / 1_000_000);
+
+            // When - with the entity's indexes
+            long fullList = averageMicros(200, () -> ids(connection, FULL_ROW + "WHERE user_id = ? " + NEWEST_FIRST
+                    + "LIMIT " + PAGE_SIZE, user));
+            long summaryList = averageMicros(200, () -> ids(connection, SUMMARY + "WHERE user_id = ? " + NEWEST_FIRST
+                    + "LIMIT " + PAGE_SIZE, user));
+            long indexedLookup = averageMicros(200, () -> ids(connection, FULL_ROW + "WHERE order_id = ?", orderId));
+
+            int deepOffset = Math.min(rows / 2, 100_000);
+            long offsetPage = averageMicros(20, () -> ids(connection, SUMMARY + NEWEST_FIRST
+                    + "LIMIT " + PAGE_SIZE + " OFFSET " + deepOffset));
+            List<Long> beforeDeepPage = ids(connection, SUMMARY + NEWEST_FIRST + "LIMIT 1 OFFSET " + (deepOffset - 1));
+            Object[] cursor = cursorOf(connection, beforeDeepPage.get(0));
+            long keysetPage = averageMicros(20, () -> ids(connection, SUMMARY
+                    + "WHERE (created_at < ? OR (created_at = ? AND id < ?)) " + NEWEST_FIRST + "LIMIT " + PAGE_SIZE,
+                    cursor[0], cursor[0], cursor[1]));
+
+            // Then
+            assertThat(ids(connection, SUMMARY + "WHERE user_id = ? " + NEWEST_FIRST + "LIMIT " + PAGE_SIZE, user))
+                    .hasSize(PAGE_SIZE)
+                    .isEqualTo(ids(connection, FULL_ROW + "WHERE user_id = ? " + NEWEST_FIRST + "LIMIT " + PAGE_SIZE, user));
+            assertThat(ids(connection, SUMMARY + "WHERE (created_at < ? OR (created_at = ? AND id < ?)) "
+                    + NEWEST_FIRST + "LIMIT " + PAGE_SIZE, cursor[0], cursor[0], cursor[1]))
+                    .isEqualTo(ids(connection, SUMMARY + NEWEST_FIRST + "LIMIT " + PAGE_SIZE + " OFFSET " + deepOffset));
+            assertThat(explain(connection, FULL_ROW + "WHERE order_id = 'order_1'"))
+                    .containsIgnoringCase("idx_bookings_order_id");
+            assertThat(explain(connection, FULL_ROW + "WHERE user_id = 'user_1' " + NEWEST_FIRST))
+                    .containsIgnoringCase("idx_bookings_user_created");
+            assertThat(indexedLookup).isLessThan(scanLookup);
+
+            logger.info("Booking queries over {} rows (avg us): user list scan={}, indexed full rows={}, indexed summaries={}",
+                       rows, scanList, fullList, summaryList);
+            logger.info("Webhook order lookup (avg us): scan={}, indexed={}", scanLookup, indexedLookup);
+            logger.info("Page at row {} (avg us): offset={}, keyset={}", deepOffset, offsetPage, keysetPage);
+        }
+    }
+
+    private void createBookings(Connection connection, int rows) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE bookings ("
+                    + "id BIGINT PRIMARY KEY, booking_id VARCHAR(64) UNIQUE, user_id VARCHAR(64), "
+                    + "itinerary_id VARCHAR(64), status INT, created_at TIMESTAMP(6) WITH TIME ZONE, "
+                    + "updated_at TIMESTAMP(6) WITH TIME ZONE, item_type VARCHAR(32), item_details CLOB, "
+                    + "price_amount DOUBLE PRECISION, price_currency VARCHAR(8), breakdown CLOB, "
+                    + "order_id VARCHAR(64), payment_id VARCHAR(64), confirmation_id VARCHAR(64), "
+                    + "contact_info CLOB, additional_info CLOB, metadata CLOB)");
+            statement.execute("INSERT INTO bookings SELECT X, 'BK_' || X, 'user_' || MOD(X, " + USERS + "), "
+                    + "'it_' || MOD(X, 100000), MOD(X, 8), "
+                    + "DATEADD(SECOND, X / 2, TIMESTAMP WITH TIME ZONE '2025-01-01 00:00:00+00'), "
+                    + "DATEADD(SECOND, X / 2, TIMESTAMP WITH TIME ZONE '2025-01-01 00:00:00+00'), 'hotel', "
+                    + "REPEAT('{\"room\":\"deluxe\"}', 12), 4999.0, 'INR', REPEAT('{\"tax\":18}', 12), "
+                    + "'order_' || X, 'pay_' || X, 'CONF-' || X, REPEAT('{\"phone\":\"+1\"}', 12), NULL, "
+                    + "REPEAT('{\"source\":\"web\"}', 12) FROM SYSTEM_RANGE(1, " + rows + ")");
+        }
+    }
+
+    // Same indexes as @Table(indexes) on Booking
+    private void createEntityIndexes(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE INDEX idx_bookings_user_created ON bookings (user_id, created_at, id)");
+            statement.execute("CREATE INDEX idx_bookings_itinerary_created ON bookings (itinerary_id, created_at, id)");
+            statement.execute("CREATE INDEX idx_bookings_created ON bookings (created_at, id)");
+            statement.execute("CREATE INDEX idx_bookings_status ON bookings (status)");
+            statement.execute("CREATE INDEX idx_bookings_order_id ON bookings (order_id)");
+            statement.execute("CREATE INDEX idx_bookings_payment_id ON bookings (payment_id)");
+            statement.execute("ANALYZE");
+        }
+    }
+
+    private List<Long> ids(Connection connection, String sql, Object... params) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (int i = 0; i < params.length; i++) {
+                statement.setObject(i + 1, params[i]);
+            }
+            List<Long> ids = new ArrayList<>();
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    ids.add(resultSet.getLong("id"));
+                }
+            }
+            return ids;
+        }
+    }
+
+    private Object[] cursorOf(Connection connection, long id) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT created_at FROM bookings WHERE id = ?")) {
+            statement.setLong(1, id);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                resultSet.next();
+                return new Object[] {resultSet.getObject(1, OffsetDateTime.class), id};
+            }
+        }
+    }
+
+    private String explain(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("EXPLAIN " + sql)) {
+            resultSet.next();
+            return resultSet.getString(1);
+        }
+    }
+
+    private long averageMicros(int iterations, Query query) throws SQLException {
+        query.run();
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            query.run();
+        }
+        return (System.nanoTime() - start) / 1000 / iterations;
+    }
+
+    @FunctionalInterface
+    private interface Query {
+        List<Long> run() throws SQLException;
+    }
+}
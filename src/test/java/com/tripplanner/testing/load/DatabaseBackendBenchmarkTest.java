@@ -0,0 +1,112 @@
+package com.tripplanner.testing.load;
+
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.FirestoreOptions;
+import com.tripplanner.data.entity.FirestoreItinerary;
+import com.tripplanner.service.DatabaseService;
+import com.tripplanner.service.FirestoreDatabaseService;
+import com.tripplanner.service.LocalDatabaseService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Write and read throughput of the itinerary storage backends. Excluded from the regular test
+ * run; run it with {@code ./gradlew loadTest}. The Firestore comparison runs only when
+ * FIRESTORE_EMULATOR_HOST points at a Firestore emulator.
+ */
+@Tag("load")
+class DatabaseBackendBenchmarkTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(DatabaseBackendBenchmarkTest.class);
+
+    private static final String JSON = "{\"days\":[" + "{\"nodes\":[]},".repeat(50) + "{}]}";
+    private static final int DOCUMENTS = 500;
+
+    @TempDir
+    Path dataDir;
+
+    @Test
+    @DisplayName("Benchmark: local backend write and read throughput")
+    void benchmarkLocalThroughput() {
+        // Given
+        LocalDatabaseService local = new LocalDatabaseService(dataDir.toString(), false);
+
+        try {
+            // When
+            Throughput throughput = measure(local, 5000);
+
+            // Then
+            logger.info("Local backend throughput: {} writes/s, {} reads/s",
+                       String.format("%.0f", throughput.writesPerSecond()), String.format("%.0f", throughput.readsPerSecond()));
+            assertThat(local.findAllOrderByUpdatedAtDesc()).hasSize(DOCUMENTS);
+            assertThat(throughput.writesPerSecond()).isGreaterThan(5_000);
+            assertThat(throughput.readsPerSecond()).isGreaterThan(50_000);
+        } finally {
+            local.close();
+        }
+
+        logger.info("Local backend throughput benchmark passed");
+    }
+
+    @Test
+    @EnabledIfEnvironmentVariable(named = "FIRESTORE_EMULATOR_HOST", matches = ".+")
+    @DisplayName("Benchmark: local backend against the Firestore emulator")
+    void benchmarkLocalAgainstFirestore() throws Exception {
+        // Given
+        LocalDatabaseService local = new LocalDatabaseService(dataDir.toString(), false);
+        Firestore firestore = FirestoreOptions.newBuilder()
+                .setProjectId("benchmark")
+                .setEmulatorHost(System.getenv("FIRESTORE_EMULATOR_HOST"))
+                .build()
+                .getService();
+        int operations = 1000;
+
+        try {
+            // When
+            Throughput localThroughput = measure(local, operations);
+            Throughput firestoreThroughput = measure(new FirestoreDatabaseService(firestore), operations);
+
+            // Then
+            logger.info("Writes/s local {} vs Firestore emulator {}; reads/s local {} vs Firestore emulator {}",
+                       String.format("%.0f", localThroughput.writesPerSecond()),
+                       String.format("%.0f", firestoreThroughput.writesPerSecond()),
+                       String.format("%.0f", localThroughput.readsPerSecond()),
+                       String.format("%.0f", firestoreThroughput.readsPerSecond()));
+            assertThat(localThroughput.writesPerSecond()).isGreaterThan(firestoreThroughput.writesPerSecond());
+            assertThat(localThroughput.readsPerSecond()).isGreaterThan(firestoreThroughput.readsPerSecond());
+        } finally {
+            local.close();
+            firestore.close();
+        }
+
+        logger.info("Local versus Firestore benchmark passed");
+    }
+
+    private static Throughput measure(DatabaseService databaseService, int operations) {
+        long writeStart = System.nanoTime();
+        for (int i = 0; i < operations; i++) {
+            databaseService.save(new FirestoreItinerary("it_" + (i % DOCUMENTS), i, JSON));
+        }
+        long writeNanos = System.nanoTime() - writeStart;
+
+        long readStart = System.nanoTime();
+        for (int i = 0; i < operations; i++) {
+            databaseService.findById("it_" + (i % DOCUMENTS));
+        }
+        long readNanos = System.nanoTime() - readStart;
+
+        return new Throughput(operations / (writeNanos / 1e9), operations / (readNanos / 1e9));
+    }
+
+    private record Throughput(double writesPerSecond, double readsPerSecond) {
+    }
+}
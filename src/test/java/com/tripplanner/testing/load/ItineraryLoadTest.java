@@ -0,0 +1,411 @@
+package com.tripplanner.testing.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseToken;
+import com.tripplanner.service.AgentWorkScheduler;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * End-to-end load test: concurrent virtual users drive trip creation, reads, chat edits,
+ * propose/apply and enrichment through the real controllers over HTTP. PDF export can be added
+ * to the mix with {@code export:N} once ExportController is registered as a controller.
+ *
+ * The LLM is a latency-injecting stub, Places/Expedia/Booking.com are served by a local stub
+ * server, and itineraries, chat history, locks and user data live in the embedded local database,
+ * so no Firestore is needed. Excluded from the regular test run; run it with
+ * {@code ./gradlew loadTest} and tune it with the {@code load.*} system properties read below.
+ * The report is logged and written as JSON to {@code build/reports/load}.
+ */
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+    "database.backend=local",
+    "google.places.rate.limit.enabled=false",
+    "expedia.rate.limit.enabled=false",
+    "logging.level.com.tripplanner=WARN"
+})
+@ActiveProfiles("test")
+class ItineraryLoadTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(ItineraryLoadTest.class);
+
+    private static final int USERS = Integer.getInteger("load.users", 20);
+    private static final long DURATION_MS = TimeUnit.SECONDS.toMillis(Long.getLong("load.duration-seconds", 60));
+    private static final long RAMP_UP_MS = TimeUnit.SECONDS.toMillis(Long.getLong("load.ramp-up-seconds", 5));
+    private static final long READY_TIMEOUT_MS = TimeUnit.SECONDS.toMillis(Long.getLong("load.ready-timeout-seconds", 90));
+    private static final long THINK_TIME_MS = Long.getLong("load.think-time-ms", 200);
+    private static final double MAX_ERROR_RATE = Double.parseDouble(System.getProperty("load.max-error-rate", "0.02"));
+    // Relative weights of the operations each user repeats once its trip is generated
+    private static final String MIX = System.getProperty("load.mix", "get:35,chat:25,edit:20,enrich:15,create:5");
+
+    private static final String[] CHAT_MESSAGES = {
+        "Move lunch on day 1 to 1pm",
+        "Add a museum visit on day 2",
+        "What is planned for day 1?",
+        "Find a vegetarian restaurant for dinner on day 2",
+        "Why does the first activity start so early?"
+    };
+    private static final String[] DESTINATIONS = {"Lisbon, Portugal", "Kyoto, Japan", "Goa, India", "Barcelona, Spain"};
+
+    private static final StubProviderServer PROVIDERS =
+            StubProviderServer.start(LatencyModel.fromSystemProperties("load.provider", 80, 400));
+    private static final Path DATA_DIR = createDataDir();
+
+    @DynamicPropertySource
+    static void loadTestProperties(DynamicPropertyRegistry registry) {
+        registry.add("google.places.base-url", PROVIDERS::placesBaseUrl);
+        registry.add("expedia.base-url", PROVIDERS::expediaBaseUrl);
+        registry.add("booking.com.base-url", PROVIDERS::bookingBaseUrl);
+        registry.add("database.local.data-dir", () -> DATA_DIR.resolve("db").toString());
+        registry.add("itinerary.generation.pipeline.checkpoint.dir", () -> DATA_DIR.resolve("checkpoints").toString());
+        registry.add("ai.response-store.data-dir", () -> DATA_DIR.resolve("llm-responses").toString());
+        registry.add("razorpay.webhook.queue-dir", () -> DATA_DIR.resolve("webhooks").toString());
+    }
+
+    @TestConfiguration
+    static class LoadTestConfiguration {
+
+        /**
+         * Stub LLM shared by the agents, the chat orchestrator and the editor agent.
+         */
+        @Bean
+        @Primary
+        public LatencyInjectingAiClient loadTestAiClient() {
+            return new LatencyInjectingAiClient(LatencyModel.fromSystemProperties("load.llm", 300, 1500));
+        }
+    }
+
+    @LocalServerPort
+    private int port;
+
+    @MockitoBean
+    private FirebaseAuth firebaseAuth;
+
+    @Autowired
+    private LatencyInjectingAiClient aiClient;
+
+    @Autowired(required = false)
+    private AgentWorkScheduler workScheduler;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final LoadTestReport report = new LoadTestReport();
+    private HttpClient httpClient;
+
+    @AfterAll
+    static void stopProviders() {
+        PROVIDERS.close();
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+        // Any bearer token is valid and names its own user
+        when(firebaseAuth.verifyIdToken(anyString())).thenAnswer(invocation -> {
+            FirebaseToken token = mock(FirebaseToken.class);
+            when(token.getUid()).thenReturn(invocation.getArgument(0));
+            when(token.getClaims()).thenReturn(Map.of("exp", Instant.now().plusSeconds(3600).getEpochSecond()));
+            return token;
+        });
+
+        httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+    }
+
+    @Test
+    @DisplayName("Benchmark: throughput, latency and resource usage under a mixed user workload")
+    void shouldServeMixedWorkloadWithinBudgets() throws Exception {
+        // Given
+        List<String> operations = parseMix(MIX);
+        ExecutorService users = Executors.newFixedThreadPool(USERS);
+        logger.info("Load test: {} users, {} s steady state per user, mix {}, LLM {}, providers at {}",
+                   USERS, DURATION_MS / 1000, MIX, aiClient.getModelInfo(), PROVIDERS.baseUrl());
+
+        // When
+        report.start();
+        for (int i = 0; i < USERS; i++) {
+            VirtualUser user = new VirtualUser("load-user-" + i, i * RAMP_UP_MS / Math.max(USERS, 1), operations);
+            users.submit(user::run);
+        }
+        users.shutdown();
+        boolean finished = users.awaitTermination(RAMP_UP_MS + READY_TIMEOUT_MS + DURATION_MS + 120_000, TimeUnit.MILLISECONDS);
+        report.finish();
+
+        // Then
+        report.putDependency("llm.calls", aiClient.getCalls());
+        report.putDependency("llm.structuredCalls", aiClient.getStructuredCalls());
+        report.putDependency("providers", PROVIDERS.getRequestCounts());
+        if (workScheduler != null) {
+            report.putDependency("agentScheduler", workScheduler.getStats());
+        }
+        Map<String, Object> scenario = new LinkedHashMap<>();
+        scenario.put("users", USERS);
+        scenario.put("durationSeconds", DURATION_MS / 1000);
+        scenario.put("mix", MIX);
+        scenario.put("thinkTimeMs", THINK_TIME_MS);
+        Path file = report.write(Path.of(System.getProperty("load.report-dir", "build/reports/load")), scenario);
+        logger.info("Load test report ({}):{}", file, report.format());
+
+        assertThat(finished).as("virtual users finished in time").isTrue();
+        assertThat(report.getSummaries()).containsKeys(expectedEndpoints(operations));
+        for (LoadTestReport.EndpointSummary summary : report.getSummaries().values()) {
+            assertThat(summary.errorRate()).as("error rate of %s", summary.endpoint()).isLessThanOrEqualTo(MAX_ERROR_RATE);
+            Long p99Budget = Long.getLong("load.budget." + summary.endpoint() + ".p99-ms");
+            if (p99Budget != null) {
+                assertThat(summary.p99Ms()).as("p99 latency of %s", summary.endpoint()).isLessThanOrEqualTo(p99Budget);
+            }
+        }
+    }
+
+    /**
+     * One simulated user: creates a trip, waits for its first generated day, then repeats
+     * weighted operations on it until its steady-state time is up.
+     */
+    private final class VirtualUser {
+        private final String token;
+        private final long startDelayMs;
+        private final List<String> operations;
+        private String itineraryId;
+        private String anchorNodeId;
+        private String insertedNodeId;
+        private int edits;
+
+        private VirtualUser(String token, long startDelayMs, List<String> operations) {
+            this.token = token;
+            this.startDelayMs = startDelayMs;
+            this.operations = operations;
+        }
+
+        private void run() {
+            try {
+                Thread.sleep(startDelayMs);
+                itineraryId = createTrip();
+                if (itineraryId == null || !awaitGenerated()) {
+                    return;
+                }
+                long deadline = System.currentTimeMillis() + DURATION_MS;
+                while (System.currentTimeMillis() < deadline) {
+                    String operation = operations.get(ThreadLocalRandom.current().nextInt(operations.size()));
+                    switch (operation) {
+                        case "get" -> send("get", get("/api/v1/itineraries/" + itineraryId));
+                        case "chat" -> chat();
+                        case "edit" -> edit();
+                        case "enrich" -> send("enrich", post("/api/v1/itineraries/" + itineraryId + "/enrich", Map.of()));
+                        case "export" -> send("export", get("/api/v1/export/itineraries/" + itineraryId + "/pdf"));
+                        case "create" -> createTrip();
+                        default -> throw new IllegalArgumentException("Unknown operation " + operation);
+                    }
+                    if (THINK_TIME_MS > 0) {
+                        Thread.sleep(ThreadLocalRandom.current().nextLong(THINK_TIME_MS + 1));
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                logger.warn("Virtual user {} stopped: {}", token, e.toString());
+            }
+        }
+
+        private String createTrip() throws Exception {
+            LocalDate start = LocalDate.now().plusDays(30 + ThreadLocalRandom.current().nextInt(60));
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("destination", DESTINATIONS[ThreadLocalRandom.current().nextInt(DESTINATIONS.length)]);
+            body.put("startDate", start.toString());
+            body.put("endDate", start.plusDays(2).toString());
+            body.put("party", Map.of("adults", 2, "children", 0, "infants", 0, "rooms", 1));
+            body.put("budgetTier", "medium");
+            body.put("interests", List.of("culture", "food"));
+            JsonNode response = send("create", post("/api/v1/itineraries", body));
+            return response != null ? response.path("itinerary").path("id").asText(null) : null;
+        }
+
+        /**
+         * Poll the itinerary until day 1 has nodes, recording the wait as the "generation" time.
+         */
+        private boolean awaitGenerated() throws Exception {
+            long start = System.nanoTime();
+            long deadline = System.currentTimeMillis() + READY_TIMEOUT_MS;
+            while (System.currentTimeMillis() < deadline) {
+                HttpResponse<byte[]> response = httpClient.send(get("/api/v1/itineraries/" + itineraryId + "/json"),
+                        HttpResponse.BodyHandlers.ofByteArray());
+                if (response.statusCode() == 200) {
+                    JsonNode nodes = objectMapper.readTree(response.body()).path("days").path(0).path("nodes");
+                    if (nodes.size() > 0) {
+                        anchorNodeId = nodes.path(0).path("id").asText(null);
+                        report.record("generation", System.nanoTime() - start, true);
+                        return true;
+                    }
+                }
+                Thread.sleep(500);
+            }
+            report.record("generation", System.nanoTime() - start, false);
+            return false;
+        }
+
+        private void chat() throws Exception {
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("text", CHAT_MESSAGES[ThreadLocalRandom.current().nextInt(CHAT_MESSAGES.length)]);
+            body.put("scope", "trip");
+            body.put("autoApply", true);
+            send("chat", post("/api/v1/itineraries/" + itineraryId + "/chat", body));
+        }
+
+        /**
+         * Propose then apply a change, alternating between inserting a node and deleting it
+         * again so the itinerary does not grow over the run.
+         */
+        private void edit() throws Exception {
+            Map<String, Object> op = new LinkedHashMap<>();
+            if (insertedNodeId == null) {
+                String nodeId = token + "_node_" + (++edits);
+                op.put("op", "insert");
+                op.put("after", anchorNodeId);
+                op.put("node", Map.of("id", nodeId, "type", "meal", "title", "Coffee break",
+                        "location", Map.of("name", "Central Market")));
+                insertedNodeId = nodeId;
+            } else {
+                op.put("op", "delete");
+                op.put("id", insertedNodeId);
+                insertedNodeId = null;
+            }
+            Map<String, Object> changeSet = new LinkedHashMap<>();
+            changeSet.put("scope", "day");
+            changeSet.put("day", 1);
+            changeSet.put("ops", List.of(op));
+            changeSet.put("reason", "Load test edit");
+
+            if (send("propose", post("/api/v1/itineraries/" + itineraryId + ":propose", changeSet)) != null) {
+                send("apply", post("/api/v1/itineraries/" + itineraryId + ":apply", Map.of("changeSet", changeSet)));
+            }
+        }
+
+        private HttpRequest get(String path) {
+            return request(path).GET().build();
+        }
+
+        private HttpRequest post(String path, Object body) throws IOException {
+            return request(path)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body)))
+                    .build();
+        }
+
+        private HttpRequest.Builder request(String path) {
+            return HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                    .timeout(Duration.ofSeconds(120))
+                    .header("Authorization", "Bearer " + token);
+        }
+
+        /**
+         * Send a request and record it under the endpoint name.
+         *
+         * @return The parsed JSON body of a successful response (an empty node for non-JSON
+         *         bodies), or null if the request failed
+         */
+        private JsonNode send(String endpoint, HttpRequest request) {
+            long start = System.nanoTime();
+            try {
+                HttpResponse<byte[]> response = httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
+                boolean success = response.statusCode() >= 200 && response.statusCode() < 300;
+                report.record(endpoint, System.nanoTime() - start, success);
+                if (!success) {
+                    logger.debug("{} {} returned {}: {}", endpoint, request.uri(), response.statusCode(),
+                                new String(response.body(), StandardCharsets.UTF_8));
+                    return null;
+                }
+                boolean json = response.headers().firstValue("Content-Type").orElse("").contains("json");
+                return json && response.body().length > 0 ? objectMapper.readTree(response.body()) : objectMapper.createObjectNode();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                report.record(endpoint, System.nanoTime() - start, false);
+                return null;
+            } catch (IOException e) {
+                report.record(endpoint, System.nanoTime() - start, false);
+                logger.debug("{} {} failed: {}", endpoint, request.uri(), e.toString());
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Endpoints the report must contain for a mix; an edit is recorded as propose and apply.
+     */
+    static String[] expectedEndpoints(List<String> operations) {
+        Set<String> endpoints = new TreeSet<>(List.of("create", "generation"));
+        for (String operation : operations) {
+            if (operation.equals("edit")) {
+                endpoints.addAll(List.of("propose", "apply"));
+            } else {
+                endpoints.add(operation);
+            }
+        }
+        return endpoints.toArray(new String[0]);
+    }
+
+    /**
+     * Expand "name:weight,..." into a list with each operation repeated by its weight, so a
+     * uniform pick follows the mix.
+     */
+    static List<String> parseMix(String mix) {
+        List<String> operations = new ArrayList<>();
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.trim().split(":");
+            int weight = parts.length > 1 ? Integer.parseInt(parts[1].trim()) : 1;
+            for (int i = 0; i < weight; i++) {
+                operations.add(parts[0].trim());
+            }
+        }
+        if (operations.isEmpty()) {
+            throw new IllegalArgumentException("Empty load mix: " + mix);
+        }
+        return operations;
+    }
+
+    private static Path createDataDir() {
+        try {
+            return Files.createTempDirectory("itinerary-load-test");
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to create load test data directory", e);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.tripplanner.testing.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tripplanner.service.GeminiClient;
+import com.tripplanner.testing.MockLLMProvider;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stub LLM client for load tests. Answers after a sampled provider latency, with schema-conforming
+ * JSON for structured calls and {@link MockLLMProvider}'s canned replies for plain text calls.
+ *
+ * Extends {@link GeminiClient} because the editor agent depends on that class directly; registered
+ * as the primary bean it replaces both the generic AI client and the Gemini client.
+ */
+public class LatencyInjectingAiClient extends GeminiClient {
+
+    private final LatencyModel latency;
+    private final SchemaSampleGenerator generator = new SchemaSampleGenerator(new ObjectMapper());
+    private final MockLLMProvider textResponses = new MockLLMProvider();
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong structuredCalls = new AtomicLong();
+
+    public LatencyInjectingAiClient(LatencyModel latency) {
+        this.latency = latency;
+    }
+
+    @Override
+    public String generateContent(String userPrompt, String systemPrompt) {
+        calls.incrementAndGet();
+        latency.pause();
+        return textResponses.generateContent(userPrompt, systemPrompt);
+    }
+
+    @Override
+    public String generateStructuredContent(String prompt, String jsonSchema, String systemPrompt) {
+        calls.incrementAndGet();
+        structuredCalls.incrementAndGet();
+        latency.pause();
+        return generator.generate(jsonSchema, prompt);
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return true;
+    }
+
+    @Override
+    public String getModelInfo() {
+        return "Load test stub (" + latency + ")";
+    }
+
+    public long getCalls() {
+        return calls.get();
+    }
+
+    public long getStructuredCalls() {
+        return structuredCalls.get();
+    }
+}
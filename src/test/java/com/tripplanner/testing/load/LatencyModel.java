@@ -0,0 +1,63 @@
+package com.tripplanner.testing.load;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Log-normal latency distribution described by its median and 99th percentile, used to make the
+ * stubbed LLM and provider calls take as long as the real ones do.
+ */
+public final class LatencyModel {
+
+    // z-score of the 99th percentile of the standard normal distribution
+    private static final double Z_99 = 2.326;
+
+    private final long medianMs;
+    private final long p99Ms;
+    private final double sigma;
+
+    public LatencyModel(long medianMs, long p99Ms) {
+        if (medianMs < 0 || p99Ms < medianMs) {
+            throw new IllegalArgumentException("Expected 0 <= median <= p99, got " + medianMs + " / " + p99Ms);
+        }
+        this.medianMs = medianMs;
+        this.p99Ms = p99Ms;
+        this.sigma = medianMs == 0 ? 0 : Math.log((double) Math.max(p99Ms, 1) / Math.max(medianMs, 1)) / Z_99;
+    }
+
+    /**
+     * Latency model from the system properties {@code <prefix>.median-ms} and {@code <prefix>.p99-ms}.
+     */
+    public static LatencyModel fromSystemProperties(String prefix, long defaultMedianMs, long defaultP99Ms) {
+        return new LatencyModel(Long.getLong(prefix + ".median-ms", defaultMedianMs),
+                Long.getLong(prefix + ".p99-ms", defaultP99Ms));
+    }
+
+    public long sampleMs() {
+        if (medianMs == 0) {
+            return 0;
+        }
+        double sample = medianMs * Math.exp(sigma * ThreadLocalRandom.current().nextGaussian());
+        // Cap the tail so one unlucky draw cannot stall a run
+        return Math.min(Math.round(sample), p99Ms * 3);
+    }
+
+    /**
+     * Sleep for one sampled latency.
+     */
+    public void pause() {
+        long ms = sampleMs();
+        if (ms <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "median=" + medianMs + " ms, p99=" + p99Ms + " ms";
+    }
+}
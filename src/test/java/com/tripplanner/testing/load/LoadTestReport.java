@@ -0,0 +1,242 @@
+package com.tripplanner.testing.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.OperatingSystemMXBean;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects per-endpoint latencies and process resource usage during a load test run, and renders
+ * them as a log table and a JSON report.
+ */
+public class LoadTestReport {
+
+    private final Map<String, EndpointRecorder> endpoints = new ConcurrentHashMap<>();
+    private final Map<String, Object> dependencies = new TreeMap<>();
+    private final AtomicLong peakHeapBytes = new AtomicLong();
+    private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+    private ScheduledExecutorService sampler;
+    private long startNanos;
+    private long endNanos;
+    private long startCpuNanos;
+    private long startGcCount;
+    private long startGcTimeMs;
+    private ResourceUsage resources;
+
+    /**
+     * Start the clock and the resource sampler.
+     */
+    public void start() {
+        threads.resetPeakThreadCount();
+        startCpuNanos = processCpuNanos();
+        startGcCount = gcCount();
+        startGcTimeMs = gcTimeMs();
+        peakHeapBytes.set(memory.getHeapMemoryUsage().getUsed());
+        sampler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "load-test-sampler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sampler.scheduleAtFixedRate(() -> peakHeapBytes.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max),
+                0, 200, TimeUnit.MILLISECONDS);
+        startNanos = System.nanoTime();
+    }
+
+    /**
+     * Stop the clock and take the final resource readings.
+     */
+    public void finish() {
+        endNanos = System.nanoTime();
+        sampler.shutdownNow();
+        double elapsedSeconds = elapsedSeconds();
+        long cpuNanos = processCpuNanos();
+        double cpuSeconds = cpuNanos < 0 ? -1 : (cpuNanos - startCpuNanos) / 1e9;
+        resources = new ResourceUsage(elapsedSeconds, cpuSeconds, cpuSeconds < 0 ? -1 : cpuSeconds / elapsedSeconds,
+                Runtime.getRuntime().availableProcessors(), peakHeapBytes.get() / (1024 * 1024),
+                gcCount() - startGcCount, gcTimeMs() - startGcTimeMs, threads.getPeakThreadCount());
+    }
+
+    /**
+     * Record one request.
+     *
+     * @param success Whether the request got the response the scenario expects
+     */
+    public void record(String endpoint, long latencyNanos, boolean success) {
+        endpoints.computeIfAbsent(endpoint, key -> new EndpointRecorder()).record(latencyNanos, success);
+    }
+
+    /**
+     * Attach counters from the stubbed dependencies, such as LLM calls per request.
+     */
+    public synchronized void putDependency(String name, Object value) {
+        dependencies.put(name, value);
+    }
+
+    public Map<String, EndpointSummary> getSummaries() {
+        double seconds = elapsedSeconds();
+        Map<String, EndpointSummary> summaries = new TreeMap<>();
+        endpoints.forEach((endpoint, recorder) -> summaries.put(endpoint, recorder.summarize(endpoint, seconds)));
+        return summaries;
+    }
+
+    public EndpointSummary getSummary(String endpoint) {
+        EndpointRecorder recorder = endpoints.get(endpoint);
+        return recorder != null ? recorder.summarize(endpoint, elapsedSeconds()) : null;
+    }
+
+    public ResourceUsage getResources() {
+        return resources;
+    }
+
+    /**
+     * Render the summary as a fixed-width table for the test log.
+     */
+    public String format() {
+        StringBuilder table = new StringBuilder();
+        table.append(String.format("%n%-14s %8s %7s %9s %9s %9s %9s %9s%n",
+                "endpoint", "requests", "errors", "req/s", "p50 ms", "p95 ms", "p99 ms", "max ms"));
+        for (EndpointSummary summary : getSummaries().values()) {
+            table.append(String.format("%-14s %8d %7d %9.1f %9.1f %9.1f %9.1f %9.1f%n",
+                    summary.endpoint(), summary.requests(), summary.errors(), summary.throughputPerSecond(),
+                    summary.p50Ms(), summary.p95Ms(), summary.p99Ms(), summary.maxMs()));
+        }
+        if (resources != null) {
+            table.append(String.format("elapsed %.1f s, cpu %.1f s (%.2f of %d cores), peak heap %d MB, "
+                            + "gc %d collections / %d ms, peak threads %d%n",
+                    resources.elapsedSeconds(), resources.cpuSeconds(), resources.averageCpuCores(),
+                    resources.availableCores(), resources.peakHeapMb(), resources.gcCollections(),
+                    resources.gcTimeMs(), resources.peakThreads()));
+        }
+        synchronized (this) {
+            if (!dependencies.isEmpty()) {
+                table.append("dependencies ").append(dependencies).append(String.format("%n"));
+            }
+        }
+        return table.toString();
+    }
+
+    /**
+     * Write the report as JSON into the given directory.
+     *
+     * @return The written file
+     */
+    public Path write(Path directory, Map<String, Object> scenario) throws IOException {
+        Files.createDirectories(directory);
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("finishedAt", LocalDateTime.now().toString());
+        report.put("scenario", scenario);
+        report.put("endpoints", getSummaries());
+        report.put("resources", resources);
+        synchronized (this) {
+            report.put("dependencies", new TreeMap<>(dependencies));
+        }
+        Path file = directory.resolve("load-test-" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")) + ".json");
+        new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(file.toFile(), report);
+        return file;
+    }
+
+    /**
+     * Nearest-rank percentile of sorted values.
+     */
+    static long percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+        return sorted[Math.min(Math.max(rank, 1), sorted.length) - 1];
+    }
+
+    private double elapsedSeconds() {
+        long end = endNanos != 0 ? endNanos : System.nanoTime();
+        return Math.max(end - startNanos, 1) / 1e9;
+    }
+
+    private static long processCpuNanos() {
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if (os instanceof com.sun.management.OperatingSystemMXBean) {
+            return ((com.sun.management.OperatingSystemMXBean) os).getProcessCpuTime();
+        }
+        return -1;
+    }
+
+    private static long gcCount() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream()
+                .mapToLong(GarbageCollectorMXBean::getCollectionCount).filter(count -> count > 0).sum();
+    }
+
+    private static long gcTimeMs() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream()
+                .mapToLong(GarbageCollectorMXBean::getCollectionTime).filter(time -> time > 0).sum();
+    }
+
+    private static final class EndpointRecorder {
+        private final LongAdder errors = new LongAdder();
+        private long[] latencies = new long[256];
+        private int count;
+
+        private void record(long latencyNanos, boolean success) {
+            if (!success) {
+                errors.increment();
+            }
+            synchronized (this) {
+                if (count == latencies.length) {
+                    latencies = Arrays.copyOf(latencies, count * 2);
+                }
+                latencies[count++] = latencyNanos;
+            }
+        }
+
+        private EndpointSummary summarize(String endpoint, double elapsedSeconds) {
+            long[] sorted;
+            synchronized (this) {
+                sorted = Arrays.copyOf(latencies, count);
+            }
+            Arrays.sort(sorted);
+            return new EndpointSummary(endpoint, sorted.length, errors.sum(), sorted.length / elapsedSeconds,
+                    millis(percentile(sorted, 50)), millis(percentile(sorted, 95)), millis(percentile(sorted, 99)),
+                    millis(sorted.length == 0 ? 0 : sorted[sorted.length - 1]));
+        }
+
+        private static double millis(long nanos) {
+            return Math.round(nanos / 100_000.0) / 10.0;
+        }
+    }
+
+    /**
+     * Request counts and latency percentiles of one endpoint over the run.
+     */
+    public record EndpointSummary(String endpoint, long requests, long errors, double throughputPerSecond,
+                                  double p50Ms, double p95Ms, double p99Ms, double maxMs) {
+
+        public double errorRate() {
+            return requests == 0 ? 0 : (double) errors / requests;
+        }
+    }
+
+    /**
+     * Process resource usage over the run. CPU figures are -1 when the JVM does not report them.
+     */
+    public record ResourceUsage(double elapsedSeconds, double cpuSeconds, double averageCpuCores, int availableCores,
+                                long peakHeapMb, long gcCollections, long gcTimeMs, int peakThreads) {
+    }
+}
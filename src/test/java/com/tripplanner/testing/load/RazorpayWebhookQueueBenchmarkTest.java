@@ -0,0 +1,130 @@
+package com.tripplanner.testing.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tripplanner.data.repo.BookingRepository;
+import com.tripplanner.service.RazorpayService;
+import com.tripplanner.service.RazorpayWebhookProcessor;
+import com.tripplanner.service.RazorpayWebhookQueue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Benchmarks webhook acknowledgement latency and sustained throughput of the durable Razorpay
+ * webhook queue, with and without fsync of the journal. Runs with the load tests, e.g.
+ * ./gradlew loadTest --tests '*RazorpayWebhookQueueBenchmarkTest'
+ */
+@Tag("load")
+class RazorpayWebhookQueueBenchmarkTest {
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private static final int SENDERS = 8;
+    private static final int EVENTS_PER_SENDER = 2_500;
+
+    @TempDir
+    Path queueDir;
+
+    private RazorpayWebhookQueue queue;
+
+    @AfterEach
+    void tearDown() {
+        if (queue != null) {
+            queue.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Benchmark: webhook ack latency and sustained throughput")
+    void benchmarkAckLatencyAndThroughput() throws Exception {
+        RazorpayService razorpayService = mock(RazorpayService.class);
+        when(razorpayService.isWebhookSecretConfigured()).thenReturn(true);
+        when(razorpayService.verifyWebhookSignature(any(), any())).thenReturn(true);
+
+        for (boolean fsync : new boolean[] {false, true}) {
+            // Given
+            AtomicLong applied = new AtomicLong();
+            Path dir = queueDir.resolve(fsync ? "fsync" : "no-fsync");
+            queue = new RazorpayWebhookQueue(razorpayService, countingProcessor(applied), dir.toString(), 4, 100_000, fsync);
+            ExecutorService pool = Executors.newFixedThreadPool(SENDERS);
+
+            // When
+            long start = System.nanoTime();
+            List<Future<long[]>> futures = new ArrayList<>();
+            for (int s = 0; s < SENDERS; s++) {
+                int sender = s;
+                futures.add(pool.submit(() -> {
+                    long[] latencies = new long[EVENTS_PER_SENDER];
+                    for (int i = 0; i < EVENTS_PER_SENDER; i++) {
+                        String id = "evt_" + sender + "_" + i;
+                        String body = event("order_" + (i % 500), "pay_" + id);
+                        long sent = System.nanoTime();
+                        queue.submit(id, "valid", body);
+                        latencies[i] = System.nanoTime() - sent;
+                    }
+                    return latencies;
+                }));
+            }
+            List<Long> all = new ArrayList<>();
+            for (Future<long[]> future : futures) {
+                for (long latency : future.get()) {
+                    all.add(latency);
+                }
+            }
+            long ackedMs = Math.max((System.nanoTime() - start) / 1_000_000, 1);
+            awaitProcessed(SENDERS * EVENTS_PER_SENDER);
+            long drainedMs = Math.max((System.nanoTime() - start) / 1_000_000, 1);
+            pool.shutdown();
+
+            // Then
+            Collections.sort(all);
+            assertThat(queue.getStats().getAccepted()).isEqualTo(SENDERS * EVENTS_PER_SENDER);
+            assertThat(applied.get()).isEqualTo(SENDERS * EVENTS_PER_SENDER);
+            logger.info("Webhook queue (fsync={}): ack p50={} us, p99={} us; {} acks/s, {} applied/s",
+                       fsync, all.get(all.size() / 2) / 1000, all.get(all.size() * 99 / 100) / 1000,
+                       all.size() * 1000L / ackedMs, all.size() * 1000L / drainedMs);
+            queue.close();
+            queue = null;
+        }
+    }
+
+    private static RazorpayWebhookProcessor countingProcessor(AtomicLong applied) {
+        return new RazorpayWebhookProcessor(mock(BookingRepository.class), new ObjectMapper()) {
+            @Override
+            public void process(String body) {
+                applied.incrementAndGet();
+            }
+        };
+    }
+
+    private void awaitProcessed(long count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(30);
+        while (queue.getStats().getProcessed() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(queue.getStats().getProcessed()).isEqualTo(count);
+    }
+
+    private static String event(String orderId, String paymentId) {
+        return "{\"event\":\"payment.captured\",\"payload\":{\"payment\":{\"entity\":{\"id\":\"" + paymentId
+                + "\",\"order_id\":\"" + orderId + "\",\"status\":\"captured\",\"method\":\"upi\"}}}}";
+    }
+}
@@ -0,0 +1,213 @@
+package com.tripplanner.testing.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Builds a document that satisfies a JSON schema, standing in for an LLM's structured output.
+ *
+ * Every declared property is filled in, arrays get their minimum item count (at least 3 items),
+ * enums are cycled, and fields the agents parse further get plausible values: dates in ISO form,
+ * start and end times as consecutive HH:mm slots, and day numbers and dates taken from the prompt
+ * when it mentions them, so per-day agents receive the day they asked for.
+ */
+public class SchemaSampleGenerator {
+
+    private static final Pattern DAY_IN_PROMPT = Pattern.compile("(?i)\\bday\\s*(?:number\\s*)?[:#]?\\s*(\\d{1,2})\\b");
+    private static final Pattern DATE_IN_PROMPT = Pattern.compile("\\b(\\d{4}-\\d{2}-\\d{2})\\b");
+    private static final String[] PLACES = {
+        "Old Town Square", "Central Market", "Riverside Park", "National Museum", "Harbour Walk",
+        "Botanical Garden", "Cathedral Hill", "Night Bazaar", "Art Quarter", "Castle Viewpoint"
+    };
+
+    private final ObjectMapper objectMapper;
+    private final AtomicLong sequence = new AtomicLong();
+
+    public SchemaSampleGenerator(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Generate a sample for a schema given as JSON text.
+     *
+     * @param prompt The prompt the schema was sent with, used to pick day numbers and dates
+     */
+    public String generate(String jsonSchema, String prompt) {
+        try {
+            JsonNode schema = objectMapper.readTree(jsonSchema);
+            return objectMapper.writeValueAsString(generate(schema, prompt));
+        } catch (java.io.IOException e) {
+            throw new IllegalArgumentException("Invalid JSON schema: " + e.getMessage(), e);
+        }
+    }
+
+    public JsonNode generate(JsonNode schema, String prompt) {
+        Context context = new Context(prompt != null ? prompt : "", sequence.incrementAndGet());
+        return value(schema, "", context);
+    }
+
+    private JsonNode value(JsonNode schema, String name, Context context) {
+        JsonNode enumValues = schema.get("enum");
+        if (enumValues != null && enumValues.isArray() && enumValues.size() > 0) {
+            return enumValues.get((int) (context.next() % enumValues.size()));
+        }
+        switch (type(schema)) {
+            case "object":
+                return object(schema, context);
+            case "array":
+                return array(schema, name, context);
+            case "integer":
+                return objectMapper.getNodeFactory().numberNode(integer(schema, name, context));
+            case "number":
+                return objectMapper.getNodeFactory().numberNode((double) integer(schema, name, context) + 0.5);
+            case "boolean":
+                return objectMapper.getNodeFactory().booleanNode(true);
+            case "null":
+                return objectMapper.getNodeFactory().nullNode();
+            default:
+                return objectMapper.getNodeFactory().textNode(string(schema, name, context));
+        }
+    }
+
+    private ObjectNode object(JsonNode schema, Context context) {
+        ObjectNode node = objectMapper.createObjectNode();
+        JsonNode properties = schema.get("properties");
+        if (properties != null) {
+            Iterator<Map.Entry<String, JsonNode>> fields = properties.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                node.set(field.getKey(), value(field.getValue(), field.getKey(), context));
+            }
+        }
+        JsonNode required = schema.get("required");
+        if (required != null) {
+            for (JsonNode field : required) {
+                if (!node.has(field.asText())) {
+                    node.put(field.asText(), field.asText() + " " + context.next());
+                }
+            }
+        }
+        return node;
+    }
+
+    private ArrayNode array(JsonNode schema, String name, Context context) {
+        int count = Math.max(schema.path("minItems").asInt(0), 3);
+        if (schema.has("maxItems")) {
+            count = Math.min(count, schema.get("maxItems").asInt());
+        }
+        ArrayNode array = objectMapper.createArrayNode();
+        JsonNode items = schema.get("items");
+        for (int i = 0; i < count; i++) {
+            array.add(items != null ? value(items, name, context) : objectMapper.getNodeFactory().textNode(name + " " + i));
+        }
+        return array;
+    }
+
+    private long integer(JsonNode schema, String name, Context context) {
+        String lower = name.toLowerCase();
+        long value;
+        if (lower.equals("day") || lower.equals("daynumber")) {
+            value = context.dayNumber();
+        } else if (lower.contains("duration")) {
+            value = 90;
+        } else if (lower.contains("cost") || lower.contains("price") || lower.contains("amount")) {
+            value = 20 + context.next() % 80;
+        } else {
+            value = 1 + context.next() % 5;
+        }
+        if (schema.has("minimum")) {
+            value = Math.max(value, schema.get("minimum").asLong());
+        }
+        if (schema.has("maximum")) {
+            value = Math.min(value, schema.get("maximum").asLong());
+        }
+        return value;
+    }
+
+    private String string(JsonNode schema, String name, Context context) {
+        String format = schema.path("format").asText("");
+        String lower = name.toLowerCase();
+        if (format.equals("date") || lower.equals("date")) {
+            return context.date().toString();
+        }
+        if (format.equals("date-time")) {
+            return context.date().atTime(LocalTime.NOON) + "Z";
+        }
+        if (lower.equals("starttime")) {
+            return context.startSlot().toString();
+        }
+        if (lower.equals("endtime")) {
+            return context.endOfSlot().toString();
+        }
+        if (lower.equals("currency")) {
+            return "USD";
+        }
+        if (lower.contains("location") || lower.contains("name") || lower.equals("title") || lower.contains("address")) {
+            return PLACES[(int) (context.next() % PLACES.length)];
+        }
+        return name.isEmpty() ? "Sample " + context.next() : name + " " + context.next();
+    }
+
+    private static String type(JsonNode schema) {
+        JsonNode type = schema.get("type");
+        if (type == null) {
+            return schema.has("properties") ? "object" : schema.has("items") ? "array" : "string";
+        }
+        return (type.isArray() ? type.path(0).asText("string") : type.asText()).toLowerCase();
+    }
+
+    /**
+     * Per-document state: a counter for varied values and the current time slot.
+     */
+    private static final class Context {
+        private final String prompt;
+        private long counter;
+        private int slot = -1;
+
+        private Context(String prompt, long seed) {
+            this.prompt = prompt;
+            this.counter = seed;
+        }
+
+        private long next() {
+            return counter++;
+        }
+
+        private int dayNumber() {
+            Matcher matcher = DAY_IN_PROMPT.matcher(prompt);
+            return matcher.find() ? Integer.parseInt(matcher.group(1)) : 1;
+        }
+
+        private LocalDate date() {
+            Matcher matcher = DATE_IN_PROMPT.matcher(prompt);
+            if (matcher.find()) {
+                try {
+                    return LocalDate.parse(matcher.group(1));
+                } catch (java.time.format.DateTimeParseException e) {
+                    // Fall through to a default date
+                }
+            }
+            return LocalDate.now().plusDays(30);
+        }
+
+        // Two-hour slots from 08:00, each activity lasting 90 minutes
+        private LocalTime startSlot() {
+            slot = (slot + 1) % 7;
+            return LocalTime.of(8 + slot * 2, 0);
+        }
+
+        private LocalTime endOfSlot() {
+            return LocalTime.of(8 + Math.max(slot, 0) * 2, 0).plusMinutes(90);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.tripplanner.testing.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tripplanner.service.CompiledSchema;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for the load test's stub LLM output and report percentiles.
+ */
+class SchemaSampleGeneratorTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(SchemaSampleGeneratorTest.class);
+
+    private static final String DAY_SCHEMA = """
+        {
+          "type": "object",
+          "properties": {
+            "dayNumber": { "type": "integer" },
+            "date": { "type": "string", "format": "date" },
+            "location": { "type": "string" },
+            "nodes": {
+              "type": "array",
+              "minItems": 4,
+              "maxItems": 7,
+              "items": {
+                "type": "object",
+                "properties": {
+                  "type": { "type": "string", "enum": ["attraction", "meal", "accommodation", "transport"] },
+                  "title": { "type": "string" },
+                  "timing": {
+                    "type": "object",
+                    "properties": {
+                      "startTime": { "type": "string" },
+                      "endTime": { "type": "string" },
+                      "durationMin": { "type": "integer" }
+                    }
+                  }
+                },
+                "required": ["type", "timing", "cost"]
+              }
+            },
+            "estimatedCost": { "type": ["number", "null"], "minimum": 10 }
+          },
+          "required": ["dayNumber", "date", "location", "nodes"]
+        }
+        """;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final SchemaSampleGenerator generator = new SchemaSampleGenerator(objectMapper);
+
+    @Test
+    @DisplayName("Should generate schema-valid output with the day and date asked for in the prompt")
+    void shouldGenerateValidDayFromPrompt() throws Exception {
+        // Given
+        String prompt = "Plan Day 3 of a trip to Lisbon on 2026-06-03";
+
+        // When
+        JsonNode day = objectMapper.readTree(generator.generate(DAY_SCHEMA, prompt));
+
+        // Then
+        assertThat(CompiledSchema.compile(DAY_SCHEMA).validate(day)).isEmpty();
+        assertThat(day.get("dayNumber").asInt()).isEqualTo(3);
+        assertThat(day.get("date").asText()).isEqualTo("2026-06-03");
+        assertThat(day.get("nodes")).hasSize(4);
+        assertThat(day.get("nodes").get(0).path("timing").path("startTime").asText()).isEqualTo("08:00");
+        assertThat(day.get("nodes").get(0).path("timing").path("endTime").asText()).isEqualTo("09:30");
+        assertThat(day.get("nodes").get(1).path("timing").path("startTime").asText()).isEqualTo("10:00");
+        assertThat(day.get("nodes").get(1).path("type").asText()).isNotEqualTo(day.get("nodes").get(0).path("type").asText());
+        assertThat(day.get("nodes").get(0).has("cost")).isTrue();
+        assertThat(day.get("estimatedCost").asDouble()).isGreaterThanOrEqualTo(10);
+
+        logger.info("Schema sample generation test passed");
+    }
+
+    @Test
+    @DisplayName("Should report nearest-rank latency percentiles")
+    void shouldComputeNearestRankPercentiles() {
+        // Given
+        long[] sorted = {10, 20, 30, 40};
+
+        // When / Then
+        assertThat(LoadTestReport.percentile(sorted, 50)).isEqualTo(20);
+        assertThat(LoadTestReport.percentile(sorted, 99)).isEqualTo(40);
+        assertThat(LoadTestReport.percentile(new long[0], 99)).isZero();
+
+        logger.info("Percentile test passed");
+    }
+}
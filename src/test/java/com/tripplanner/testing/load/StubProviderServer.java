@@ -0,0 +1,149 @@
+package com.tripplanner.testing.load;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Local HTTP server standing in for Google Places, Expedia and Booking.com during load tests.
+ *
+ * Point the services at it with {@code google.places.base-url}, {@code expedia.base-url} and
+ * {@code booking.com.base-url}. Places and Geocoding answers follow Google's response format
+ * with coordinates derived from the query, so repeated queries resolve to the same place; the
+ * Expedia and Booking.com searches answer with empty result sets. Every response is delayed by
+ * the configured latency model.
+ */
+public class StubProviderServer implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(StubProviderServer.class);
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final LatencyModel latency;
+    private final Map<String, LongAdder> requests = new ConcurrentHashMap<>();
+
+    private StubProviderServer(HttpServer server, ExecutorService executor, LatencyModel latency) {
+        this.server = server;
+        this.executor = executor;
+        this.latency = latency;
+    }
+
+    /**
+     * Start a server on an ephemeral loopback port.
+     */
+    public static StubProviderServer start(LatencyModel latency) {
+        try {
+            HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 256);
+            AtomicInteger threads = new AtomicInteger();
+            ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "stub-provider-" + threads.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            StubProviderServer stub = new StubProviderServer(server, executor, latency);
+            server.createContext("/maps/api/place/textsearch/json", exchange -> stub.respond(exchange, "places.textsearch",
+                    "{\"status\":\"OK\",\"html_attributions\":[],\"results\":[" + place(query(exchange, "query")) + "]}"));
+            server.createContext("/maps/api/place/details/json", exchange -> stub.respond(exchange, "places.details",
+                    "{\"status\":\"OK\",\"html_attributions\":[],\"result\":" + place(query(exchange, "place_id")) + "}"));
+            server.createContext("/maps/api/geocode/json", exchange -> stub.respond(exchange, "places.geocode",
+                    "{\"status\":\"OK\",\"results\":[" + place(query(exchange, "address")) + "]}"));
+            server.createContext("/expedia/flights/search", exchange -> stub.respond(exchange, "expedia.flights",
+                    "{\"flights\":[],\"totalResults\":0,\"status\":\"OK\"}"));
+            server.createContext("/expedia/activities/search", exchange -> stub.respond(exchange, "expedia.activities",
+                    "{\"activities\":[],\"totalResults\":0,\"status\":\"OK\"}"));
+            server.createContext("/expedia", exchange -> stub.respond(exchange, "expedia", "{}"));
+            server.createContext("/booking/hotels", exchange -> stub.respond(exchange, "booking.com.hotels",
+                    "{\"hotels\":[],\"totalResults\":0,\"status\":\"OK\"}"));
+            server.createContext("/booking", exchange -> stub.respond(exchange, "booking.com", "{}"));
+            server.setExecutor(executor);
+            server.start();
+            logger.info("Stub provider server listening on {} ({})", stub.baseUrl(), latency);
+            return stub;
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to start stub provider server", e);
+        }
+    }
+
+    public String baseUrl() {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort();
+    }
+
+    public String placesBaseUrl() {
+        return baseUrl() + "/maps/api";
+    }
+
+    public String expediaBaseUrl() {
+        return baseUrl() + "/expedia";
+    }
+
+    public String bookingBaseUrl() {
+        return baseUrl() + "/booking";
+    }
+
+    /**
+     * Requests served so far, by provider endpoint.
+     */
+    public Map<String, Long> getRequestCounts() {
+        Map<String, Long> counts = new TreeMap<>();
+        requests.forEach((endpoint, count) -> counts.put(endpoint, count.sum()));
+        return counts;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void respond(HttpExchange exchange, String endpoint, String body) throws IOException {
+        requests.computeIfAbsent(endpoint, key -> new LongAdder()).increment();
+        latency.pause();
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static String query(HttpExchange exchange, String name) {
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query != null) {
+            for (String pair : query.split("&")) {
+                int eq = pair.indexOf('=');
+                if (eq > 0 && pair.substring(0, eq).equals(name)) {
+                    return URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+                }
+            }
+        }
+        return "unknown";
+    }
+
+    // A place whose ID and coordinates are stable for a given query
+    private static String place(String query) {
+        int hash = query.hashCode();
+        double lat = 48.0 + (hash & 0xffff) / 65536.0;
+        double lng = 2.0 + ((hash >>> 16) & 0xffff) / 65536.0;
+        String name = query.replaceAll("[\"\\\\\\p{Cntrl}]", "");
+        return "{\"place_id\":\"stub_" + Integer.toHexString(hash) + "\",\"name\":\"" + name + "\","
+                + "\"formatted_address\":\"" + name + ", Stub City\","
+                + "\"geometry\":{\"location\":{\"lat\":" + lat + ",\"lng\":" + lng + "}},"
+                + "\"rating\":4.5,\"user_ratings_total\":1200,\"price_level\":2,"
+                + "\"types\":[\"tourist_attraction\",\"point_of_interest\"]}";
+    }
+}
@@ -0,0 +1,189 @@
+package com.tripplanner.testing.service;
+
+import com.tripplanner.service.AgentWorkScheduler;
+import com.tripplanner.service.AgentWorkScheduler.WorkClass;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for class priority, per-user fairness, deadlines and admission in the agent work scheduler.
+ */
+class AgentWorkSchedulerTest {
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private AgentWorkScheduler scheduler;
+
+    @AfterEach
+    void tearDown() {
+        if (scheduler != null) {
+            scheduler.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Benchmark: chat requests start promptly while generations fill the batch workers")
+    void shouldRunInteractiveWorkAheadOfBatchBacklog() throws Exception {
+        // Given - 4 workers, 1 reserved for interactive work, and a backlog of slow batch tasks
+        scheduler = new AgentWorkScheduler(4, 1, 4, 64, 8, 3);
+        Executor lane = scheduler.lane("test-batch", WorkClass.BATCH, 8, 60_000);
+        List<CompletableFuture<Void>> batch = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            batch.add(AgentWorkScheduler.supplyAs(new AgentWorkScheduler.WorkContext(WorkClass.BATCH, "user_batch", "it_batch"),
+                    () -> CompletableFuture.runAsync(() -> sleep(50), lane)));
+        }
+
+        // When
+        List<Long> latencies = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            long start = System.nanoTime();
+            String reply = scheduler.call(WorkClass.INTERACTIVE, "user_chat", "it_chat", 5_000, () -> {
+                sleep(5);
+                return "edited";
+            });
+            latencies.add((System.nanoTime() - start) / 1_000_000);
+            assertThat(reply).isEqualTo("edited");
+        }
+
+        // Then - every call ran before the batch backlog drained, none waited for it
+        Collections.sort(latencies);
+        assertThat(batch.stream().filter(CompletableFuture::isDone).count()).isLessThan(batch.size());
+        assertThat(latencies.get(latencies.size() - 1)).isLessThan(500L);
+        CompletableFuture.allOf(batch.toArray(new CompletableFuture[0])).get(30, TimeUnit.SECONDS);
+        awaitCompleted(WorkClass.INTERACTIVE, 20);
+        awaitCompleted(WorkClass.BATCH, 60);
+        AgentWorkScheduler.ClassStats interactive = scheduler.getStats().get(WorkClass.INTERACTIVE);
+        AgentWorkScheduler.ClassStats batchStats = scheduler.getStats().get(WorkClass.BATCH);
+        logger.info("Interactive call latency under batch load: p50={} ms, max={} ms; queue time {} / batch queue time {}",
+                   latencies.get(latencies.size() / 2), latencies.get(latencies.size() - 1), interactive, batchStats);
+    }
+
+    @Test
+    @DisplayName("Should interleave users' batch work instead of running one user's backlog first")
+    void shouldShareBatchWorkersFairlyAcrossUsers() throws Exception {
+        // Given - a single worker, busy while both users queue their work
+        scheduler = new AgentWorkScheduler(1, 0, 4, 64, 8, 3);
+        Executor lane = scheduler.lane("test-batch", WorkClass.BATCH, 1, 60_000);
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        List<CompletableFuture<Void>> tasks = new ArrayList<>();
+        tasks.add(submit(lane, "user_a", "it_a1", () -> await(release)));
+        for (int i = 0; i < 6; i++) {
+            tasks.add(submit(lane, "user_a", "it_a" + (i % 2 + 1), () -> order.add("a")));
+        }
+        tasks.add(submit(lane, "user_b", "it_b", () -> order.add("b")));
+        tasks.add(submit(lane, "user_b", "it_b", () -> order.add("b")));
+
+        // When
+        release.countDown();
+        CompletableFuture.allOf(tasks.toArray(new CompletableFuture[0])).get(10, TimeUnit.SECONDS);
+
+        // Then - user B's two tasks run within the first turns, not after A's six
+        assertThat(order).hasSize(8);
+        assertThat(order.subList(0, 4)).filteredOn("b"::equals).hasSize(2);
+
+        logger.info("Fair queuing test passed: {}", order);
+    }
+
+    @Test
+    @DisplayName("Should drop interactive work past its deadline and reject work over the admission bounds")
+    void shouldExpireAndRejectInteractiveWork() throws Exception {
+        // Given - one worker held by a chat request, at most one queued request per user
+        scheduler = new AgentWorkScheduler(1, 1, 4, 64, 1, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        CompletableFuture<String> holder = CompletableFuture.supplyAsync(() -> {
+            try {
+                return scheduler.call(WorkClass.INTERACTIVE, "user_1", "it_1", 5_000, () -> {
+                    started.countDown();
+                    await(release);
+                    return "held";
+                });
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // When / Then - a request that cannot start in time is dropped
+        assertThatThrownBy(() -> scheduler.call(WorkClass.INTERACTIVE, "user_2", "it_2", 50, () -> "late"))
+                .isInstanceOf(TimeoutException.class);
+
+        // When / Then - a user with a request already queued is turned away
+        CompletableFuture<String> queued = CompletableFuture.supplyAsync(() -> {
+            try {
+                return scheduler.call(WorkClass.INTERACTIVE, "user_3", "it_3", 5_000, () -> "queued");
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (scheduler.getStats().get(WorkClass.INTERACTIVE).getQueued() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThatThrownBy(() -> scheduler.call(WorkClass.INTERACTIVE, "user_3", "it_3", 5_000, () -> "extra"))
+                .isInstanceOf(RejectedExecutionException.class);
+
+        // When / Then - one generation per user
+        AgentWorkScheduler.Admission generation = scheduler.admitGeneration("user_1");
+        assertThatThrownBy(() -> scheduler.admitGeneration("user_1")).isInstanceOf(RejectedExecutionException.class);
+        generation.close();
+        scheduler.admitGeneration("user_1").close();
+
+        release.countDown();
+        assertThat(holder.get(5, TimeUnit.SECONDS)).isEqualTo("held");
+        assertThat(queued.get(5, TimeUnit.SECONDS)).isEqualTo("queued");
+        awaitCompleted(WorkClass.INTERACTIVE, 2);
+        AgentWorkScheduler.ClassStats stats = scheduler.getStats().get(WorkClass.INTERACTIVE);
+        assertThat(stats.getExpired()).isEqualTo(1);
+        assertThat(stats.getRejected()).isEqualTo(1);
+        assertThat(scheduler.getStats().get(WorkClass.BATCH).getRejected()).isEqualTo(1);
+
+        logger.info("Deadline and admission test passed");
+    }
+
+    private void awaitCompleted(WorkClass workClass, long count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+        while (scheduler.getStats().get(workClass).getCompleted() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(scheduler.getStats().get(workClass).getCompleted()).isEqualTo(count);
+    }
+
+    private static CompletableFuture<Void> submit(Executor lane, String userId, String itineraryId, Runnable work) {
+        return AgentWorkScheduler.supplyAs(new AgentWorkScheduler.WorkContext(WorkClass.BATCH, userId, itineraryId),
+                () -> CompletableFuture.runAsync(work, lane));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -3,15 +3,21 @@ package com.tripplanner.testing.service;
 import com.tripplanner.controller.BookingController;
 import com.tripplanner.data.entity.Booking;
 import com.tripplanner.data.repo.BookingRepository;
+import com.tripplanner.dto.BookingListPage;
+import com.tripplanner.dto.BookingSummary;
 import com.tripplanner.service.BookingService;
 import com.tripplanner.service.RazorpayService;
+import com.tripplanner.service.RazorpayWebhookQueue;
 import com.tripplanner.testing.BaseServiceTest;
 import jakarta.servlet.http.HttpServletRequest;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
@@ -34,6 +40,9 @@ class BookingServiceTest extends BaseServiceTest {
     @Mock
     private BookingRepository mockBookingRepository;
     
+    @Mock
+    private RazorpayWebhookQueue mockWebhookQueue;
+    
     @Mock
     private HttpServletRequest mockHttpRequest;
     
@@ -42,7 +51,7 @@ class BookingServiceTest extends BaseServiceTest {
     @BeforeEach
     protected void setUp() {
         super.setUp();
-        bookingService = new BookingService(mockRazorpayService, mockBookingRepository);
+        bookingService = new BookingService(mockRazorpayService, mockBookingRepository, mockWebhookQueue);
     }
     
     @Override
@@ -117,43 +126,38 @@ class BookingServiceTest extends BaseServiceTest {
         // Given
         String webhookBody = "{\"event\":\"payment.captured\",\"payload\":{\"payment\":{\"id\":\"pay_123\"}}}";
         
-        when(mockHttpRequest.getRequestURI()).thenReturn("/api/webhooks/razorpay");
-        when(mockHttpRequest.getContentType()).thenReturn("application/json");
-        when(mockHttpRequest.getContentLength()).thenReturn(webhookBody.length());
-        when(mockHttpRequest.getHeaderNames()).thenReturn(java.util.Collections.enumeration(Arrays.asList("X-Razorpay-Signature")));
+        when(mockHttpRequest.getHeader("X-Razorpay-Event-Id")).thenReturn("evt_123");
         when(mockHttpRequest.getHeader("X-Razorpay-Signature")).thenReturn("signature123");
-        
-        doNothing().when(mockRazorpayService).handleWebhook(mockHttpRequest, webhookBody);
+        when(mockWebhookQueue.submit("evt_123", "signature123", webhookBody))
+                .thenReturn(RazorpayWebhookQueue.Intake.ACCEPTED);
         
         // When
-        bookingService.handleRazorpayWebhook(mockHttpRequest, webhookBody);
+        RazorpayWebhookQueue.Intake intake = bookingService.handleRazorpayWebhook(mockHttpRequest, webhookBody);
         
         // Then
-        verify(mockRazorpayService).handleWebhook(mockHttpRequest, webhookBody);
+        assertThat(intake).isEqualTo(RazorpayWebhookQueue.Intake.ACCEPTED);
+        verify(mockWebhookQueue).submit("evt_123", "signature123", webhookBody);
+        verifyNoInteractions(mockBookingRepository);
         
         logger.info("Razorpay webhook handling test passed");
     }
     
     @Test
-    @DisplayName("Should handle webhook processing failure")
+    @DisplayName("Should propagate webhook journal failure")
     void shouldHandleWebhookProcessingFailure() {
         // Given
         String webhookBody = "invalid webhook body";
         
-        when(mockHttpRequest.getRequestURI()).thenReturn("/api/webhooks/razorpay");
-        when(mockHttpRequest.getContentType()).thenReturn("application/json");
-        when(mockHttpRequest.getContentLength()).thenReturn(webhookBody.length());
-        when(mockHttpRequest.getHeaderNames()).thenReturn(java.util.Collections.enumeration(Arrays.asList()));
-        
-        doThrow(new RuntimeException("Invalid webhook signature"))
-                .when(mockRazorpayService).handleWebhook(mockHttpRequest, webhookBody);
+        when(mockWebhookQueue.submit(isNull(), isNull(), eq(webhookBody)))
+                .thenThrow(new java.io.UncheckedIOException("Failed to journal Razorpay webhook",
+                        new java.io.IOException("Disk full")));
         
         // When/Then
         assertThatThrownBy(() -> bookingService.handleRazorpayWebhook(mockHttpRequest, webhookBody))
                 .isInstanceOf(RuntimeException.class)
-                .hasMessageContaining("Invalid webhook signature");
+                .hasMessageContaining("Failed to journal Razorpay webhook");
         
-        verify(mockRazorpayService).handleWebhook(mockHttpRequest, webhookBody);
+        verify(mockWebhookQueue).submit(null, null, webhookBody);
         
         logger.info("Webhook processing failure test passed");
     }
@@ -348,14 +352,11 @@ class BookingServiceTest extends BaseServiceTest {
         int page = 0;
         int size = 10;
         
-        Booking booking1 = createMockBookingWithProvider("user-123", "order_1");
-        Booking booking2 = createMockBookingWithProvider("user-456", "order_2");
-        booking1.setBookingId("BK_1234567890_TEST0001");
-        booking2.setBookingId("BK_1234567890_TEST0002");
+        List<BookingSummary> mockBookings = Arrays.asList(
+                summary(2L, "BK_1234567890_TEST0001", Instant.parse("2025-06-02T10:00:00Z")),
+                summary(1L, "BK_1234567890_TEST0002", Instant.parse("2025-06-01T10:00:00Z")));
         
-        List<Booking> mockBookings = Arrays.asList(booking1, booking2);
-        
-        when(mockBookingRepository.findAll()).thenReturn(mockBookings);
+        when(mockBookingRepository.findSummaries(any(Pageable.class))).thenReturn(mockBookings);
         
         // When
         List<BookingController.BookingRes> result = bookingService.getUserBookings(page, size);
@@ -368,11 +369,46 @@ class BookingServiceTest extends BaseServiceTest {
         assertThat(result.get(1).bookingId()).isEqualTo("BK_1234567890_TEST0002");
         assertThat(result.get(1).status()).isEqualTo("CONFIRMED");
         
-        verify(mockBookingRepository).findAll();
+        verify(mockBookingRepository).findSummaries(PageRequest.of(page, size));
+        verify(mockBookingRepository, never()).findAll();
         
         logger.info("Get user bookings test passed");
     }
     
+    @Test
+    @DisplayName("Should page user bookings by (createdAt, id) cursor")
+    void shouldPageUserBookingsByCursor() {
+        // Given
+        String userId = "user-123";
+        Instant createdAt = Instant.parse("2025-06-01T10:00:00.123456Z");
+        when(mockBookingRepository.findSummariesByUserId(eq(userId), any(Pageable.class)))
+                .thenReturn(Arrays.asList(
+                        summary(3L, "BK_3", createdAt.plusSeconds(2)),
+                        summary(2L, "BK_2", createdAt),
+                        summary(1L, "BK_1", createdAt)));
+        when(mockBookingRepository.findSummariesByUserIdBefore(eq(userId), eq(createdAt), eq(2L), any(Pageable.class)))
+                .thenReturn(List.of(summary(1L, "BK_1", createdAt)));
+        
+        // When
+        BookingListPage first = bookingService.getBookingPage(userId, 2, null);
+        BookingListPage second = bookingService.getBookingPage(userId, 2, first.getNextCursor());
+        
+        // Then
+        assertThat(first.getBookings()).extracting(BookingSummary::bookingId).containsExactly("BK_3", "BK_2");
+        assertThat(first.isHasMore()).isTrue();
+        assertThat(first.getNextCursor()).isEqualTo("2025-06-01T10:00:00.123456Z_2");
+        assertThat(second.getBookings()).extracting(BookingSummary::bookingId).containsExactly("BK_1");
+        assertThat(second.isHasMore()).isFalse();
+        assertThat(second.getNextCursor()).isNull();
+        verify(mockBookingRepository).findSummariesByUserId(userId, PageRequest.of(0, 3));
+        assertThatThrownBy(() -> bookingService.getBookingPage(userId, 2, "not-a-cursor"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> bookingService.getBookingPage(userId, 2, "yesterday_2"))
+                .isInstanceOf(IllegalArgumentException.class);
+        
+        logger.info("Booking cursor page test passed");
+    }
+    
     @Test
     @DisplayName("Should handle invalid booking ID format")
     void shouldHandleInvalidBookingIdFormat() {
@@ -394,6 +430,11 @@ class BookingServiceTest extends BaseServiceTest {
     
     // Helper methods to create mock objects
     
+    private BookingSummary summary(Long id, String bookingId, Instant createdAt) {
+        return new BookingSummary(id, bookingId, "user-123", "it_bali_luxury_001",
+                Booking.BookingStatus.CONFIRMED, "CONF-" + id, createdAt);
+    }
+    
     private Booking createMockBooking(String userId, String orderId) {
         Booking booking = new Booking();
         booking.setId(1L);
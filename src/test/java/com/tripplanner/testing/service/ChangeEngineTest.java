@@ -7,12 +7,17 @@ import com.tripplanner.testing.BaseServiceTest;
 import com.tripplanner.testing.TestDataFactory;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
+import org.springframework.core.task.TaskRejectedException;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -397,8 +402,220 @@ class ChangeEngineTest extends BaseServiceTest {
         logger.info("Idempotency result storage test passed");
     }
     
+    @Test
+    @DisplayName("Should plan the whole ChangeSet, rebuild edges once and log only applied operations")
+    void shouldApplyChangeSetAsOneBatch() {
+        // Given - day 1 is a -> b -> c
+        NormalizedItinerary itinerary = createBatchItinerary(3);
+        ChangeSet changeSet = createBatchChangeSet(
+            insertOp("x", "n0"),
+            moveOp("x"),          // targets a node inserted earlier in the same ChangeSet
+            deleteOp("n1"),
+            deleteOp("ghost"),    // unknown node, dropped during planning
+            unknownOp("n2"));     // unknown operation, dropped during planning
+        
+        // When
+        ChangeEngine.ApplyResult result = changeEngine.apply(itinerary, changeSet);
+        
+        // Then
+        assertThat(result.getToVersion()).isEqualTo(2);
+        assertThat(result.getDiff().getAdded()).extracting(DiffItem::getNodeId).containsExactly("x");
+        assertThat(result.getDiff().getRemoved()).extracting(DiffItem::getNodeId).containsExactly("n1");
+        assertThat(result.getDiff().getUpdated()).extracting(DiffItem::getNodeId).containsExactly("x");
+        
+        ArgumentCaptor<RevisionRecord> revision = ArgumentCaptor.forClass(RevisionRecord.class);
+        verify(mockRevisionService).saveRevision(eq("it_batch"), revision.capture());
+        assertThat(revision.getValue().getChanges()).extracting(ChangeDetail::getElementId)
+                .containsExactly(null, "x", "n1");
+        
+        ArgumentCaptor<NormalizedItinerary> saved = ArgumentCaptor.forClass(NormalizedItinerary.class);
+        verify(mockItineraryJsonService).updateItinerary(saved.capture());
+        NormalizedDay day = saved.getValue().getDays().get(0);
+        assertThat(day.getNodes()).extracting(NormalizedNode::getId).containsExactly("n0", "x", "n2");
+        assertThat(day.getEdges().stream().map(edge -> edge.getFrom() + "->" + edge.getTo())
+                .collect(Collectors.toList())).containsExactly("n0->x", "x->n2");
+        
+        logger.info("Batch apply test passed");
+    }
+
+    @Test
+    @DisplayName("Should not fail an applied change when auto-enrichment is rejected")
+    void shouldNotFailApplyWhenAutoEnrichmentIsRejected() {
+        // Given - the async executor behind enrichment is saturated
+        EnrichmentService mockEnrichmentService = mock(EnrichmentService.class);
+        doThrow(new TaskRejectedException("Executor saturated"))
+                .when(mockEnrichmentService).enrichNodesAsync(anyString(), anyList());
+        ChangeEngine enrichingChangeEngine = new ChangeEngine(
+            mockItineraryJsonService, mockUserDataService, objectMapper, mockRevisionService,
+            mockConflictResolver, mockLockManager, mockIdempotencyManager, mockTraceManager,
+            mockNodeIdGenerator, mockEnrichmentService);
+        NormalizedItinerary itinerary = createBatchItinerary(3);
+
+        // When
+        ChangeEngine.ApplyResult result = enrichingChangeEngine.apply(itinerary,
+                createBatchChangeSet(insertOp("x", "n0")));
+
+        // Then
+        assertThat(result.getDiff().getAdded()).extracting(DiffItem::getNodeId).containsExactly("x");
+        verify(mockItineraryJsonService).updateItinerary(any());
+        verify(mockEnrichmentService).enrichNodesAsync("it_batch", List.of("x"));
+
+        logger.info("Rejected auto-enrichment test passed");
+    }
+
+    @Test
+    @DisplayName("Should only let the route optimizer reorder around locked nodes that keep their position")
+    void shouldScopeLockedReorderToRouteOptimizer() {
+        // Given - n1 is locked and keeps its position in the new order
+        NormalizedItinerary userItinerary = createBatchItinerary(3);
+        userItinerary.getDays().get(0).getNodes().get(1).setLocked(true);
+        ChangeSet userChangeSet = createBatchChangeSet(reorderOp("n2", "n1", "n0"));
+
+        // Given - a client ChangeSet that claims to come from the optimizer
+        NormalizedItinerary spoofedItinerary = createBatchItinerary(3);
+        spoofedItinerary.getDays().get(0).getNodes().get(1).setLocked(true);
+        ChangeSet spoofedChangeSet = new ChangeSet("trip", null, List.of(reorderOp("n2", "n1", "n0")));
+        spoofedChangeSet.setAgent(RouteOptimizer.AGENT);
+
+        NormalizedItinerary optimizerItinerary = createBatchItinerary(3);
+        optimizerItinerary.getDays().get(0).getNodes().get(1).setLocked(true);
+        when(mockItineraryJsonService.getItinerary(optimizerItinerary.getItineraryId()))
+                .thenReturn(Optional.of(optimizerItinerary));
+        ChangeSet optimizerChangeSet = new ChangeSet("trip", null, List.of(reorderOp("n2", "n1", "n0")));
+
+        // When
+        ChangeEngine.ApplyResult userResult = changeEngine.apply(userItinerary, userChangeSet);
+        ChangeEngine.ApplyResult spoofedResult = changeEngine.apply(spoofedItinerary, spoofedChangeSet);
+        ChangeEngine.ApplyResult optimizerResult =
+                changeEngine.applyOptimizedRoutes(optimizerItinerary.getItineraryId(), optimizerChangeSet);
+
+        // Then - other callers still cannot reorder a day with a locked node, whatever agent they name
+        assertThat(userResult.getDiff().getUpdated()).isEmpty();
+        assertThat(spoofedResult.getDiff().getUpdated()).isEmpty();
+
+        // Then - the optimizer's trip-scoped reorder resolves its day from the nodes
+        assertThat(optimizerResult.getDiff().getUpdated()).extracting(DiffItem::getDay).containsOnly(1);
+        ArgumentCaptor<NormalizedItinerary> saved = ArgumentCaptor.forClass(NormalizedItinerary.class);
+        verify(mockItineraryJsonService).updateItinerary(saved.capture());
+        assertThat(saved.getValue().getDays().get(0).getNodes()).extracting(NormalizedNode::getId)
+                .containsExactly("n2", "n1", "n0");
+
+        logger.info("Locked reorder scope test passed");
+    }
+
+    @Test
+    @Tag("load")
+    @DisplayName("Benchmark: apply latency versus ChangeSet size")
+    void benchmarkApplyLatencyVersusOperationCount() {
+        int[] opCounts = {50, 100, 250, 500, 1000};
+        double[] microsPerOp = new double[opCounts.length];
+        for (int run = 0; run < 5; run++) {
+            for (int c = 0; c < opCounts.length; c++) {
+                int opCount = opCounts[c];
+                // Given - a day of as many nodes as operations, and a mix of inserts, moves and deletes
+                NormalizedItinerary itinerary = createBatchItinerary(opCount);
+                List<ChangeOperation> ops = new ArrayList<>();
+                for (int i = 0; i < opCount; i++) {
+                    if (i % 3 == 0) {
+                        ops.add(insertOp("bench_" + i, "n" + i));
+                    } else if (i % 3 == 1) {
+                        ops.add(moveOp("n" + i));
+                    } else {
+                        ops.add(deleteOp("n" + i));
+                    }
+                }
+                ChangeSet changeSet = createBatchChangeSet(ops.toArray(new ChangeOperation[0]));
+                
+                // When
+                long start = System.nanoTime();
+                ChangeEngine.ApplyResult result = changeEngine.apply(itinerary, changeSet);
+                double perOp = (System.nanoTime() - start) / 1000.0 / opCount;
+                
+                // Then
+                int applied = result.getDiff().getAdded().size() + result.getDiff().getRemoved().size()
+                        + result.getDiff().getUpdated().size();
+                assertThat(applied).isEqualTo(opCount);
+                // Best of the runs; the first ones warm up the JIT
+                microsPerOp[c] = run == 0 ? perOp : Math.min(microsPerOp[c], perOp);
+            }
+        }
+        
+        for (int c = 0; c < opCounts.length; c++) {
+            logger.info("ChangeEngine apply {} ops on a {}-node day: {} us/op",
+                       opCounts[c], opCounts[c], String.format("%.1f", microsPerOp[c]));
+        }
+        // Roughly linear: 20x the operations on a 20x larger day costs at most 3x as much per operation
+        assertThat(microsPerOp[opCounts.length - 1]).isLessThan(microsPerOp[0] * 3);
+    }
+    
     // Helper methods to create test data
     
+    private NormalizedItinerary createBatchItinerary(int nodeCount) {
+        NormalizedItinerary itinerary = new NormalizedItinerary("it_batch", 1);
+        NormalizedDay day = new NormalizedDay(1, "2025-06-01", "Paris");
+        List<NormalizedNode> nodes = new ArrayList<>();
+        for (int i = 0; i < nodeCount; i++) {
+            nodes.add(createTimedNode("n" + i, i));
+        }
+        day.setNodes(nodes);
+        itinerary.setDays(new ArrayList<>(List.of(day)));
+        return itinerary;
+    }
+    
+    private NormalizedNode createTimedNode(String id, int slot) {
+        NormalizedNode node = new NormalizedNode(id, "attraction", "Stop " + id);
+        long start = 1748768400000L + slot * 3_600_000L;
+        node.setTiming(new NodeTiming(start, start + 3_600_000L, 60));
+        return node;
+    }
+    
+    private ChangeSet createBatchChangeSet(ChangeOperation... ops) {
+        ChangeSet changeSet = new ChangeSet();
+        changeSet.setScope("day");
+        changeSet.setDay(1);
+        changeSet.setOps(Arrays.stream(ops).collect(Collectors.toList()));
+        return changeSet;
+    }
+    
+    private ChangeOperation insertOp(String nodeId, String after) {
+        ChangeOperation op = new ChangeOperation();
+        op.setOp("insert");
+        op.setAfter(after);
+        op.setNode(createTimedNode(nodeId, 0));
+        return op;
+    }
+    
+    private ChangeOperation moveOp(String nodeId) {
+        ChangeOperation op = new ChangeOperation();
+        op.setOp("move");
+        op.setId(nodeId);
+        op.setStartTime(1748772000000L);
+        op.setEndTime(1748775600000L);
+        return op;
+    }
+    
+    private ChangeOperation deleteOp(String nodeId) {
+        ChangeOperation op = new ChangeOperation();
+        op.setOp("delete");
+        op.setId(nodeId);
+        return op;
+    }
+    
+    private ChangeOperation reorderOp(String... nodeIds) {
+        ChangeOperation op = new ChangeOperation();
+        op.setOp("reorder");
+        op.setNodeIds(Arrays.asList(nodeIds));
+        return op;
+    }
+
+    private ChangeOperation unknownOp(String nodeId) {
+        ChangeOperation op = new ChangeOperation();
+        op.setOp("teleport");
+        op.setId(nodeId);
+        return op;
+    }
+    
+    
     private ChangeSet createInsertNodeChangeSet() {
         ChangeSet changeSet = new ChangeSet();
         changeSet.setScope("day");
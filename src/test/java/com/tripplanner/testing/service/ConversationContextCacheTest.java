@@ -0,0 +1,186 @@
+package com.tripplanner.testing.service;
+
+import com.tripplanner.dto.ChatHistoryPage;
+import com.tripplanner.dto.NormalizedDay;
+import com.tripplanner.dto.NormalizedItinerary;
+import com.tripplanner.dto.NormalizedNode;
+import com.tripplanner.service.ConversationContextCache;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for the per-itinerary chat context cache.
+ */
+class ConversationContextCacheTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConversationContextCacheTest.class);
+
+    private final ConversationContextCache cache = new ConversationContextCache(3, 300);
+
+    @Test
+    @DisplayName("Should load the itinerary summary once and refresh it on writes")
+    void shouldCacheSummaryUntilItineraryChanges() {
+        // Given
+        AtomicInteger loads = new AtomicInteger();
+        NormalizedItinerary itinerary = itinerary(1, 2);
+
+        // When
+        String first = cache.getItinerarySummary("it_chat", () -> {
+            loads.incrementAndGet();
+            return Optional.of(itinerary);
+        });
+        String second = cache.getItinerarySummary("it_chat", () -> {
+            loads.incrementAndGet();
+            return Optional.of(itinerary);
+        });
+
+        // Then
+        assertThat(loads.get()).isEqualTo(1);
+        assertThat(second).isEqualTo(first).contains("Days: 1").contains("2 activities");
+
+        // When - a new version is written
+        cache.onItineraryChanged(itinerary(2, 4));
+        String refreshed = cache.getItinerarySummary("it_chat", Optional::empty);
+
+        // Then
+        assertThat(refreshed).contains("Days: 2").contains("4 activities");
+
+        logger.info("Summary cache test passed");
+    }
+
+    @Test
+    @DisplayName("Should serve the latest page from the message tail with a cursor to older messages")
+    void shouldServeLatestPageFromTail() {
+        // Given - the newest three of a longer conversation
+        long generation = cache.beginTailLoad("it_chat");
+        cache.installTail("it_chat", generation, messages(6, 10), false);
+
+        // When
+        ChatHistoryPage page = cache.getLatestPage("it_chat", 2);
+
+        // Then
+        assertThat(page.getMessages()).extracting(m -> m.get("id")).containsExactly("m8", "m9");
+        assertThat(page.isHasMore()).isTrue();
+        assertThat(page.getNextCursor()).isEqualTo("m8");
+        assertThat(cache.getLatestPage("it_chat", 4)).isNull();
+        assertThat(cache.getLatestPage("it_other", 2)).isNull();
+
+        logger.info("Latest page test passed");
+    }
+
+    @Test
+    @DisplayName("Should keep the tail current as messages are saved and cleared")
+    void shouldMaintainTailOnSaves() {
+        // Given - a short conversation, held whole
+        long generation = cache.beginTailLoad("it_chat");
+        cache.installTail("it_chat", generation, messages(0, 2), true);
+        assertThat(cache.getLatestPage("it_chat", 3).isHasMore()).isFalse();
+
+        // When - saving past the tail size drops the oldest message
+        cache.onMessageSaved("it_chat", message(2));
+        cache.onMessageSaved("it_chat", message(3));
+
+        // Then
+        ChatHistoryPage afterSave = cache.getLatestPage("it_chat", 3);
+        assertThat(afterSave.getMessages()).extracting(m -> m.get("id")).containsExactly("m1", "m2", "m3");
+        assertThat(afterSave.isHasMore()).isTrue();
+
+        // When - the history is cleared
+        cache.onChatCleared("it_chat");
+
+        // Then
+        ChatHistoryPage cleared = cache.getLatestPage("it_chat", 3);
+        assertThat(cleared.getMessages()).isEmpty();
+        assertThat(cleared.isHasMore()).isFalse();
+
+        logger.info("Message tail test passed");
+    }
+
+    @Test
+    @DisplayName("Should discard a tail load that raced with a save")
+    void shouldDiscardStaleTailLoads() {
+        // Given
+        long generation = cache.beginTailLoad("it_chat");
+        cache.onMessageSaved("it_chat", message(9));
+
+        // When - the load started before the save completes afterwards
+        cache.installTail("it_chat", generation, messages(0, 3), true);
+
+        // Then
+        assertThat(cache.getLatestPage("it_chat", 2)).isNull();
+
+        logger.info("Stale load test passed");
+    }
+
+    @Test
+    @DisplayName("Should reload expired entries and ignore events for uncached itineraries")
+    void shouldReloadExpiredEntries() {
+        // Given - a zero TTL expires entries immediately
+        ConversationContextCache expiring = new ConversationContextCache(3, 0);
+        AtomicInteger loads = new AtomicInteger();
+
+        // When
+        expiring.onMessageSaved("it_other", message(0));
+        expiring.onItineraryChanged(itinerary(1, 1));
+        expiring.getItinerarySummary("it_chat", () -> {
+            loads.incrementAndGet();
+            return Optional.of(itinerary(1, 1));
+        });
+        expiring.getItinerarySummary("it_chat", () -> {
+            loads.incrementAndGet();
+            return Optional.of(itinerary(1, 1));
+        });
+
+        // Then
+        assertThat(loads.get()).isEqualTo(2);
+        assertThat(expiring.getItinerarySummary("it_missing", Optional::empty)).isNull();
+
+        logger.info("Expiry test passed");
+    }
+
+    private static NormalizedItinerary itinerary(int dayCount, int nodesPerDay) {
+        NormalizedItinerary itinerary = new NormalizedItinerary("it_chat", dayCount);
+        itinerary.setSummary("Lisbon getaway");
+        itinerary.setCurrency("EUR");
+        List<NormalizedDay> days = new ArrayList<>();
+        for (int dayNumber = 1; dayNumber <= dayCount; dayNumber++) {
+            NormalizedDay day = new NormalizedDay(dayNumber, "2025-06-0" + dayNumber, "Lisbon");
+            List<NormalizedNode> nodes = new ArrayList<>();
+            for (int i = 0; i < nodesPerDay; i++) {
+                nodes.add(new NormalizedNode("d" + dayNumber + "_n" + i, "attraction", "Stop " + i));
+            }
+            day.setNodes(nodes);
+            days.add(day);
+        }
+        itinerary.setDays(days);
+        return itinerary;
+    }
+
+    private static List<Map<String, Object>> messages(int from, int to) {
+        List<Map<String, Object>> messages = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            messages.add(message(i));
+        }
+        return messages;
+    }
+
+    private static Map<String, Object> message(int i) {
+        Map<String, Object> message = new HashMap<>();
+        message.put("id", "m" + i);
+        message.put("sender", "user");
+        message.put("message", "message " + i);
+        message.put("timestamp", 1_000L + i);
+        return message;
+    }
+}
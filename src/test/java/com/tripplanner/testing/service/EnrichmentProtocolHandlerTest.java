@@ -379,6 +379,49 @@ class EnrichmentProtocolHandlerTest extends BaseServiceTest {
         logger.info("Partial success test passed");
     }
     
+    @Test
+    @DisplayName("Should deduplicate batched place details lookups")
+    void shouldDeduplicateBatchedPlaceDetailsLookups() {
+        // Given - three nodes at the same place, one at another, plus a blank place ID
+        when(mockGooglePlacesService.getPlaceDetails("ChIJoQ8Q6NNB0i0RkOYkS7EPkSQ"))
+                .thenReturn(createMockPlaceDetails());
+        when(mockGooglePlacesService.getPlaceDetails("place-unknown")).thenReturn(null);
+        
+        // When
+        Map<String, PlaceDetails> results = enrichmentProtocolHandler.fetchPlaceDetails(Arrays.asList(
+                "ChIJoQ8Q6NNB0i0RkOYkS7EPkSQ", "ChIJoQ8Q6NNB0i0RkOYkS7EPkSQ", "place-unknown",
+                "ChIJoQ8Q6NNB0i0RkOYkS7EPkSQ", " ", null));
+        
+        // Then
+        assertThat(results).containsOnlyKeys("ChIJoQ8Q6NNB0i0RkOYkS7EPkSQ", "place-unknown");
+        assertThat(results.get("ChIJoQ8Q6NNB0i0RkOYkS7EPkSQ")).isNotNull();
+        assertThat(results.get("place-unknown")).isNull();
+        
+        verify(mockGooglePlacesService, times(1)).getPlaceDetails("ChIJoQ8Q6NNB0i0RkOYkS7EPkSQ");
+        verify(mockGooglePlacesService, times(2)).getPlaceDetails(anyString());
+        
+        logger.info("Batched lookup deduplication test passed");
+    }
+    
+    @Test
+    @DisplayName("Should skip failed lookups in a batch")
+    void shouldSkipFailedLookupsInBatch() {
+        // Given
+        when(mockGooglePlacesService.getPlaceDetails("ChIJoQ8Q6NNB0i0RkOYkS7EPkSQ"))
+                .thenReturn(createMockPlaceDetails());
+        when(mockGooglePlacesService.getPlaceDetails("place-failing"))
+                .thenThrow(new RuntimeException("Service unavailable"));
+        
+        // When
+        Map<String, PlaceDetails> results = enrichmentProtocolHandler.fetchPlaceDetails(
+                List.of("ChIJoQ8Q6NNB0i0RkOYkS7EPkSQ", "place-failing"));
+        
+        // Then
+        assertThat(results).containsOnlyKeys("ChIJoQ8Q6NNB0i0RkOYkS7EPkSQ");
+        
+        logger.info("Batched lookup failure test passed");
+    }
+    
     // Helper methods to create test data
     
     private EnrichmentRequest createPlaceDetailsRequest() {
@@ -0,0 +1,192 @@
+package com.tripplanner.testing.service;
+
+import com.tripplanner.dto.NormalizedDay;
+import com.tripplanner.dto.NormalizedItinerary;
+import com.tripplanner.dto.NormalizedNode;
+import com.tripplanner.service.ItineraryJsonService;
+import com.tripplanner.service.ItineraryMigrationService;
+import com.tripplanner.service.ItinerarySchema;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for schema-marker migration checks and the background migrator.
+ */
+class ItineraryMigrationServiceTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(ItineraryMigrationServiceTest.class);
+
+    private ItineraryJsonService itineraryJsonService;
+    private ItineraryMigrationService migrationService;
+
+    @BeforeEach
+    void setUp() {
+        itineraryJsonService = mock(ItineraryJsonService.class);
+        migrationService = new ItineraryMigrationService(itineraryJsonService);
+        ReflectionTestUtils.setField(migrationService, "batchSize", 2);
+        ReflectionTestUtils.setField(migrationService, "minIdleMs", 60_000L);
+    }
+
+    @Test
+    @DisplayName("Should stamp the schema version from node IDs and check it without scanning")
+    void shouldStampSchemaVersion() {
+        // Given
+        NormalizedItinerary legacy = itinerary("it_legacy", 0L, "node_abc", "day1_node2");
+        NormalizedItinerary standard = itinerary("it_standard", 0L, "day1_node1", "day1_node12");
+
+        // When
+        ItinerarySchema.stamp(legacy);
+        ItinerarySchema.stamp(standard);
+
+        // Then
+        assertThat(legacy.getSchemaVersion()).isEqualTo(ItinerarySchema.LEGACY);
+        assertThat(standard.getSchemaVersion()).isEqualTo(ItinerarySchema.CURRENT);
+        assertThat(migrationService.isStale(legacy)).isTrue();
+        assertThat(migrationService.isStale(standard)).isFalse();
+        assertThat(migrationService.isStale(itinerary("it_unmarked", 0L, "day1_node1"))).isTrue();
+        assertThat(ItinerarySchema.isStandardNodeId("day3_node4")).isTrue();
+        assertThat(ItinerarySchema.isStandardNodeId("day_node4")).isFalse();
+        assertThat(ItinerarySchema.isStandardNodeId("day3_node")).isFalse();
+        assertThat(ItinerarySchema.isStandardNodeId("day3_node4x")).isFalse();
+
+        logger.info("Schema stamp test passed");
+    }
+
+    @Test
+    @DisplayName("Should queue stale itineraries on load and migrate them in throttled batches")
+    void shouldMigrateQueuedItinerariesInBatches() {
+        // Given
+        NormalizedItinerary first = itinerary("it_1", 0L, "node_a", "node_b");
+        NormalizedItinerary second = itinerary("it_2", 0L, "day1_node1");
+        NormalizedItinerary third = itinerary("it_3", 0L, "n_x");
+        for (NormalizedItinerary itinerary : List.of(first, second, third)) {
+            when(itineraryJsonService.getItinerary(itinerary.getItineraryId())).thenReturn(Optional.of(itinerary));
+        }
+        when(itineraryJsonService.updateItineraryIfVersion(any(), eq(1))).thenReturn(true);
+
+        // When
+        migrationService.scheduleIfStale(first);
+        migrationService.scheduleIfStale(first);
+        migrationService.scheduleIfStale(second);
+        migrationService.scheduleIfStale(third);
+        verify(itineraryJsonService, never()).updateItineraryIfVersion(any(), any());
+        migrationService.migrateBatch();
+
+        // Then - first batch renumbers it_1 and only stamps it_2, both against the loaded version
+        ArgumentCaptor<NormalizedItinerary> saved = ArgumentCaptor.forClass(NormalizedItinerary.class);
+        verify(itineraryJsonService, times(2)).updateItineraryIfVersion(saved.capture(), eq(1));
+        assertThat(saved.getAllValues()).extracting(NormalizedItinerary::getItineraryId).containsExactly("it_1", "it_2");
+        assertThat(first.getDays().get(0).getNodes()).extracting(NormalizedNode::getId)
+                .containsExactly("day1_node1", "day1_node2");
+        assertThat(first.getVersion()).isEqualTo(2);
+        assertThat(second.getVersion()).isEqualTo(1);
+
+        migrationService.migrateBatch();
+        ItineraryMigrationService.MigrationProgress progress = migrationService.getProgress();
+        assertThat(progress.getMigrated()).isEqualTo(2);
+        assertThat(progress.getStamped()).isEqualTo(1);
+        assertThat(progress.getQueued()).isZero();
+
+        logger.info("Batch migration test passed");
+    }
+
+    @Test
+    @DisplayName("Should leave recently edited itineraries for a later batch and migrate edits in memory")
+    void shouldDeferActiveItineraries() {
+        // Given
+        NormalizedItinerary active = itinerary("it_active", System.currentTimeMillis(), "node_a");
+        when(itineraryJsonService.getItinerary("it_active")).thenReturn(Optional.of(active));
+        NormalizedItinerary edited = itinerary("it_edited", 0L, "node_b", "node_c");
+
+        // When
+        migrationService.scheduleIfStale(active);
+        migrationService.migrateBatch();
+        migrationService.migrateInMemory(edited);
+
+        // Then
+        verify(itineraryJsonService, never()).updateItineraryIfVersion(any(), any());
+        assertThat(migrationService.getProgress().getQueued()).isEqualTo(2);
+        assertThat(edited.getDays().get(0).getNodes()).extracting(NormalizedNode::getId)
+                .containsExactly("day1_node1", "day1_node2");
+        assertThat(edited.getVersion()).isEqualTo(1);
+        assertThat(migrationService.isStale(edited)).isFalse();
+
+        logger.info("Deferred migration test passed");
+    }
+
+    @Test
+    @DisplayName("Should retry a migration in a later batch when the itinerary changed since it was loaded")
+    void shouldRetryMigrationAfterConcurrentEdit() {
+        // Given
+        NormalizedItinerary edited = itinerary("it_edited", 0L, "node_a");
+        when(itineraryJsonService.getItinerary("it_edited")).thenReturn(Optional.of(edited));
+        when(itineraryJsonService.updateItineraryIfVersion(any(), eq(1))).thenReturn(false);
+
+        // When
+        migrationService.scheduleIfStale(edited);
+        migrationService.migrateBatch();
+
+        // Then
+        ItineraryMigrationService.MigrationProgress progress = migrationService.getProgress();
+        assertThat(progress.getMigrated()).isZero();
+        assertThat(progress.getFailed()).isZero();
+        assertThat(progress.getQueued()).isEqualTo(1);
+
+        logger.info("Concurrent edit migration test passed");
+    }
+
+    @Test
+    @DisplayName("Should sweep stored itineraries page by page and queue only stale ones")
+    void shouldSweepStoredItinerariesByPage() {
+        // Given
+        NormalizedItinerary current = itinerary("it_a", 0L, "day1_node1");
+        ItinerarySchema.stamp(current);
+        NormalizedItinerary unmarked = itinerary("it_b", 0L, "day1_node1");
+        NormalizedItinerary legacy = itinerary("it_c", 0L, "node_x");
+        when(itineraryJsonService.getItineraryPage(null, 2))
+                .thenReturn(new ItineraryJsonService.ItineraryPage(List.of(current, unmarked), "it_b"));
+        when(itineraryJsonService.getItineraryPage("it_b", 2))
+                .thenReturn(new ItineraryJsonService.ItineraryPage(List.of(legacy), null));
+
+        // When
+        migrationService.sweep();
+
+        // Then
+        ItineraryMigrationService.MigrationProgress progress = migrationService.getProgress();
+        assertThat(progress.getScanned()).isEqualTo(3);
+        assertThat(progress.getQueued()).isEqualTo(2);
+        assertThat(progress.isSweepComplete()).isTrue();
+        verify(itineraryJsonService, never()).getAllItineraries();
+
+        logger.info("Paged sweep test passed");
+    }
+
+    private static NormalizedItinerary itinerary(String id, long updatedAt, String... nodeIds) {
+        NormalizedItinerary itinerary = new NormalizedItinerary();
+        itinerary.setItineraryId(id);
+        itinerary.setVersion(1);
+        itinerary.setUpdatedAt(updatedAt);
+        NormalizedDay day = new NormalizedDay();
+        day.setDayNumber(1);
+        day.setNodes(new ArrayList<>());
+        for (String nodeId : nodeIds) {
+            day.getNodes().add(new NormalizedNode(nodeId, "attraction", "Test"));
+        }
+        itinerary.setDays(new ArrayList<>(List.of(day)));
+        return itinerary;
+    }
+}
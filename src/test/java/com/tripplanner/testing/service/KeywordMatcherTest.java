@@ -0,0 +1,109 @@
+package com.tripplanner.testing.service;
+
+import com.tripplanner.dto.IntentResult;
+import com.tripplanner.service.IntentClassificationService;
+import com.tripplanner.service.LocalIntentClassifier;
+import com.tripplanner.util.KeywordMatcher;
+import com.tripplanner.util.TextPatterns;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for the single-pass keyword matcher and the text patterns used alongside it.
+ */
+class KeywordMatcherTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(KeywordMatcherTest.class);
+
+    @Test
+    @DisplayName("Should find overlapping keywords in one pass, honouring whole-word keywords")
+    void shouldFindKeywordsInOnePass() {
+        // Given
+        KeywordMatcher<String> matcher = KeywordMatcher.<String>builder()
+                .word("undo", "back", "go back")
+                .word("insert", "go to")
+                .substring("meal", "eat")
+                .build();
+
+        // When
+        List<KeywordMatcher.Match<String>> matches = matcher.findAll("Go BACK to the great backpacker cafe");
+
+        // Then - "back" inside "backpacker" is not a whole word, "eat" inside "great" is a substring
+        assertThat(matches).extracting(KeywordMatcher.Match::toString)
+                .containsExactly("undo[0,7)", "undo[3,7)", "meal[17,20)");
+        assertThat(matcher.findFirst("Nothing here")).isNull();
+        assertThat(matcher.findFirst("let's go to lunch").getLabel()).isEqualTo("insert");
+
+        logger.info("Keyword matching test passed");
+    }
+
+    @Test
+    @DisplayName("Should match times exactly like the regexes they replace")
+    void shouldMatchTimesLikeRegex() {
+        // Given
+        Pattern time = Pattern.compile("\\b(\\d{1,2}):?(\\d{0,2})\\s*(am|pm|a\\.m\\.|p\\.m\\.)?\\b",
+                Pattern.CASE_INSENSITIVE);
+        Pattern clockNumber = Pattern.compile("\\b\\d{1,2}:?\\d{0,2}\\b");
+        String[] texts = {"at 5pm", "at 5 PM please", "3:00pm", "10:3", "day 2024", "12345", "5 a.m. sharp",
+                "5 a.m.", "x1 then 7am,", "1:", "_5 and 9  pm"};
+
+        for (String text : texts) {
+            // When
+            Matcher expected = time.matcher(text);
+            String expectedTime = expected.find() ? expected.group() : null;
+            String actualTime = null;
+            boolean actualClockNumber = false;
+            for (int i = 0; i < text.length(); i++) {
+                actualClockNumber |= TextPatterns.isClockNumberAt(text, i);
+                int end = TextPatterns.timeEndAt(text, i);
+                if (actualTime == null && end >= 0) {
+                    actualTime = text.substring(i, end);
+                }
+            }
+
+            // Then
+            assertThat(actualTime).as(text).isEqualTo(expectedTime);
+            assertThat(actualClockNumber).as(text).isEqualTo(clockNumber.matcher(text).find());
+        }
+        assertThat(TextPatterns.parseClockMinutes("09:30")).isEqualTo(570);
+        assertThat(TextPatterns.parseClockMinutes("23:59")).isEqualTo(1439);
+        assertThat(TextPatterns.parseClockMinutes("24:00")).isEqualTo(-1);
+        assertThat(TextPatterns.parseClockMinutes("9:30")).isEqualTo(-1);
+        assertThat(TextPatterns.parseClockMinutes("12:60")).isEqualTo(-1);
+
+        logger.info("Time pattern test passed");
+    }
+
+    @Test
+    @DisplayName("Should classify and extract entities in one scan of the message")
+    void shouldClassifyWithEntities() {
+        // Given
+        IntentClassificationService service = new IntentClassificationService(new LocalIntentClassifier(), 0.7);
+
+        // When
+        IntentResult move = service.classifyIntent("Move dinner near the Old Port, at 8:30 pm", "day1_node3", null);
+        IntentResult insert = service.classifyIntent("Add a museum visit close to  the station", null, 2);
+        IntentResult book = service.classifyIntent("Please book the hotel", null, null);
+
+        // Then
+        assertThat(move.getIntent()).isEqualTo("MOVE_TIME");
+        assertThat(move.getNodeIds()).containsExactly("day1_node3");
+        assertThat(move.getEntities()).containsEntry("time", "8:30 pm")
+                .containsEntry("location", "the Old Port")
+                .containsEntry("category", "meal");
+        assertThat(insert.getIntent()).isEqualTo("INSERT_PLACE");
+        assertThat(insert.getEntities()).containsEntry("location", "the station")
+                .containsEntry("category", "attraction");
+        assertThat(book.getIntent()).isEqualTo("BOOK_NODE");
+
+        logger.info("Single scan classification test passed");
+    }
+}
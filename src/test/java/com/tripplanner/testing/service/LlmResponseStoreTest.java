@@ -0,0 +1,170 @@
+package com.tripplanner.testing.service;
+
+import com.tripplanner.service.ai.LlmResponseStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for the content-addressed LLM response store against a temporary data directory.
+ */
+class LlmResponseStoreTest {
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    @TempDir
+    Path dataDir;
+
+    private LlmResponseStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new LlmResponseStore(dataDir.toString(), 1, true, 60, 1_000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        store.close();
+    }
+
+    @Test
+    @DisplayName("Should key requests by every part that determines the response")
+    void shouldKeyRequestsByAllParts() {
+        // When
+        String key = LlmResponseStore.key("gemini", "flash", "system", "user", null);
+
+        // Then
+        assertThat(key).hasSize(64).isEqualTo(LlmResponseStore.key("gemini", "flash", "system", "user", null));
+        assertThat(key).isNotEqualTo(LlmResponseStore.key("openrouter", "flash", "system", "user", null));
+        assertThat(key).isNotEqualTo(LlmResponseStore.key("gemini", "pro", "system", "user", null));
+        assertThat(key).isNotEqualTo(LlmResponseStore.key("gemini", "flash", "system", "user", "{}"));
+        assertThat(key).isNotEqualTo(LlmResponseStore.key("gemini", "flash", "", "user", null));
+        assertThat(LlmResponseStore.key("p", "m", "ab", "c", null))
+                .isNotEqualTo(LlmResponseStore.key("p", "m", "a", "bc", null));
+
+        logger.info("Request key test passed");
+    }
+
+    @Test
+    @DisplayName("Should serve responses before and after they are written, and after reopening")
+    void shouldServeResponsesAcrossRestarts() {
+        // Given
+        String first = LlmResponseStore.key("gemini", "flash", null, "Plan Lisbon", null);
+        String second = LlmResponseStore.key("gemini", "flash", null, "Plan Porto", null);
+
+        // When
+        store.put(first, "gemini", "flash", "{\"city\":\"Lisbon\"}");
+        String beforeWrite = store.get(first).orElse(null);
+        store.put(second, "gemini", "flash", "{\"city\":\"Porto\"}");
+        store.put(second, "gemini", "flash", "{\"city\":\"ignored\"}");
+        store.flush();
+
+        // Then
+        assertThat(beforeWrite).isEqualTo("{\"city\":\"Lisbon\"}");
+        assertThat(store.get(second)).contains("{\"city\":\"Porto\"}");
+        assertThat(store.latest()).contains("{\"city\":\"Porto\"}");
+        assertThat(store.get(LlmResponseStore.key("gemini", "flash", null, "Plan Faro", null))).isEmpty();
+
+        store.close();
+        store = new LlmResponseStore(dataDir.toString(), 1, true, 60, 1_000);
+        assertThat(store.size()).isEqualTo(2);
+        assertThat(store.get(first)).contains("{\"city\":\"Lisbon\"}");
+        assertThat(store.latest()).contains("{\"city\":\"Porto\"}");
+
+        logger.info("Restart test passed");
+    }
+
+    @Test
+    @DisplayName("Should roll segments and drop a torn record at the tail")
+    void shouldRollSegmentsAndRecoverTornTail() throws Exception {
+        // Given - responses large enough that a 1 MB segment holds two of them
+        String large = "x".repeat(400 * 1024);
+        for (int i = 0; i < 5; i++) {
+            store.put(LlmResponseStore.key("gemini", "flash", null, "request " + i, null), "gemini", "flash", large + i);
+        }
+        store.flush();
+        store.close();
+
+        Path lastSegment;
+        try (Stream<Path> segments = Files.list(dataDir)) {
+            lastSegment = segments.sorted().reduce((a, b) -> b).orElseThrow();
+        }
+        long validSize = Files.size(lastSegment);
+        Files.write(lastSegment, new byte[] {0, 0, 1, 0, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        // When
+        store = new LlmResponseStore(dataDir.toString(), 1, true, 60, 1_000);
+
+        // Then
+        try (Stream<Path> segments = Files.list(dataDir)) {
+            assertThat(segments.count()).isEqualTo(3);
+        }
+        assertThat(Files.size(lastSegment)).isEqualTo(validSize);
+        assertThat(store.size()).isEqualTo(5);
+        assertThat(store.get(LlmResponseStore.key("gemini", "flash", null, "request 3", null))).contains(large + 3);
+
+        logger.info("Segment recovery test passed");
+    }
+
+    @Test
+    @DisplayName("Should dedup only fresh, zero-temperature requests outside retries")
+    void shouldLimitDedupToFreshDeterministicRequests() throws Exception {
+        // Given
+        String key = LlmResponseStore.key("gemini", "flash", null, "Plan Braga", null);
+        store.put(key, "gemini", "flash", "{\"city\":\"Braga\"}");
+        store.flush();
+
+        // Then
+        assertThat(store.getForDedup(key, 0)).contains("{\"city\":\"Braga\"}");
+        assertThat(store.getForDedup(key, 0.7)).isEmpty();
+        assertThat(LlmResponseStore.withoutDedup(() -> store.getForDedup(key, 0))).isEmpty();
+        assertThat(store.getForDedup(key, 0)).isPresent();
+
+        store.close();
+        store = new LlmResponseStore(dataDir.toString(), 1, false, 60, 1_000);
+        assertThat(store.getForDedup(key, 0)).isEmpty();
+        assertThat(store.get(key)).isPresent();
+
+        store.close();
+        store = new LlmResponseStore(dataDir.toString(), 1, true, 0, 1_000);
+        Thread.sleep(5);
+        assertThat(store.getForDedup(key, 0)).isEmpty();
+        assertThat(store.get(key)).isPresent();
+
+        logger.info("Dedup policy test passed");
+    }
+
+    @Test
+    @DisplayName("Should bound the index and compact segments of evicted responses")
+    void shouldBoundIndexAndCompactSegments() {
+        // Given - two responses per 1 MB segment and room for two in the index
+        store.close();
+        store = new LlmResponseStore(dataDir.toString(), 1, true, 60, 2);
+        String large = "x".repeat(400 * 1024);
+
+        // When
+        for (int i = 0; i < 6; i++) {
+            store.put(LlmResponseStore.key("gemini", "flash", null, "request " + i, null), "gemini", "flash", large + i);
+            store.flush();
+        }
+
+        // Then - the first segment held only evicted responses and was removed when the third opened
+        assertThat(store.size()).isEqualTo(2);
+        assertThat(store.get(LlmResponseStore.key("gemini", "flash", null, "request 0", null))).isEmpty();
+        assertThat(store.get(LlmResponseStore.key("gemini", "flash", null, "request 5", null))).contains(large + 5);
+        assertThat(store.segmentCount()).isEqualTo(2);
+
+        logger.info("Bounded index test passed");
+    }
+}
@@ -0,0 +1,169 @@
+package com.tripplanner.testing.service;
+
+import com.tripplanner.data.entity.FirestoreItinerary;
+import com.tripplanner.service.LocalDatabaseService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for the embedded local storage backend against a temporary data directory.
+ */
+class LocalDatabaseServiceTest {
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    @TempDir
+    Path dataDir;
+
+    private LocalDatabaseService databaseService;
+
+    @BeforeEach
+    void setUp() {
+        databaseService = new LocalDatabaseService(dataDir.toString(), false);
+    }
+
+    @AfterEach
+    void tearDown() {
+        databaseService.close();
+    }
+
+    @Test
+    @DisplayName("Should save, find and delete itineraries")
+    void shouldSaveFindAndDeleteItineraries() {
+        // When
+        databaseService.save(new FirestoreItinerary("it_1", 1, "{\"v\":1}"));
+        databaseService.save(new FirestoreItinerary("it_1", 2, "{\"v\":2}"));
+
+        // Then
+        Optional<FirestoreItinerary> found = databaseService.findById("it_1");
+        assertThat(found).isPresent();
+        assertThat(found.get().getVersion()).isEqualTo(2);
+        assertThat(found.get().getJson()).isEqualTo("{\"v\":2}");
+        assertThat(databaseService.findAllOrderByUpdatedAtDesc()).hasSize(1);
+
+        databaseService.deleteById("it_1");
+        assertThat(databaseService.existsById("it_1")).isFalse();
+        assertThat(databaseService.findAllOrderByUpdatedAtDesc()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should page through itineraries newest first with an updatedAt and ID cursor")
+    void shouldPageThroughItinerariesByUpdatedAt() throws Exception {
+        // Given
+        for (String id : List.of("it_c", "it_a", "it_d", "it_b")) {
+            databaseService.save(new FirestoreItinerary(id, 1, "{}"));
+            Thread.sleep(2);
+        }
+
+        // When
+        List<FirestoreItinerary> first = databaseService.findPageOrderByUpdatedAtDesc(null, null, 3);
+        FirestoreItinerary last = first.get(first.size() - 1);
+        List<FirestoreItinerary> second = databaseService.findPageOrderByUpdatedAtDesc(last.getUpdatedAt(), last.getId(), 3);
+
+        // Then
+        assertThat(first).extracting(FirestoreItinerary::getId).containsExactly("it_b", "it_d", "it_a");
+        assertThat(second).extracting(FirestoreItinerary::getId).containsExactly("it_c");
+    }
+
+    @Test
+    @DisplayName("Should return itineraries ordered by updatedAt descending")
+    void shouldReturnItinerariesOrderedByUpdatedAt() throws Exception {
+        // Given
+        databaseService.save(new FirestoreItinerary("it_a", 1, "{}"));
+        Thread.sleep(2);
+        databaseService.save(new FirestoreItinerary("it_b", 1, "{}"));
+        Instant cutoff = Instant.now();
+        Thread.sleep(2);
+        databaseService.save(new FirestoreItinerary("it_a", 2, "{}"));
+
+        // When
+        List<FirestoreItinerary> all = databaseService.findAllOrderByUpdatedAtDesc();
+        List<FirestoreItinerary> recent = databaseService.findByUpdatedAtAfter(cutoff);
+
+        // Then
+        assertThat(all).extracting(FirestoreItinerary::getId).containsExactly("it_a", "it_b");
+        assertThat(recent).extracting(FirestoreItinerary::getId).containsExactly("it_a");
+    }
+
+    @Test
+    @DisplayName("Should store revisions and documents in subcollections")
+    void shouldStoreRevisionsAndDocumentsInSubcollections() {
+        // When
+        databaseService.save(new FirestoreItinerary("it_1", 2, "{\"v\":2}"));
+        databaseService.saveRevision("it_1", new FirestoreItinerary("it_1", 1, "{\"v\":1}"));
+        databaseService.saveDocument("itineraries/it_1/versions/master", "{\"master\":true}");
+
+        // Then
+        assertThat(databaseService.findRevisionByItineraryIdAndVersion("it_1", 1))
+                .map(FirestoreItinerary::getJson).contains("{\"v\":1}");
+        assertThat(databaseService.findRevisionByItineraryIdAndVersion("it_1", 5)).isEmpty();
+
+        Optional<Map<String, Object>> master = databaseService.getDocument("itineraries/it_1/versions/master");
+        assertThat(master).isPresent();
+        assertThat(master.get()).containsEntry("id", "master").containsEntry("json", "{\"master\":true}");
+        assertThat(databaseService.getDocuments("itineraries/it_1/versions")).hasSize(1);
+
+        // Subcollection documents are not part of the parent collection
+        assertThat(databaseService.findAllOrderByUpdatedAtDesc()).hasSize(1);
+
+        assertThatThrownBy(() -> databaseService.saveDocument("itineraries", "{}"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    @DisplayName("Should recover state from the log after reopening")
+    void shouldRecoverStateAfterReopening() {
+        // Given
+        databaseService.save(new FirestoreItinerary("it_1", 1, "{\"v\":1}"));
+        databaseService.save(new FirestoreItinerary("it_2", 1, "{\"v\":1}"));
+        databaseService.saveRevision("it_1", new FirestoreItinerary("it_1", 1, "{\"v\":1}"));
+        databaseService.deleteById("it_2");
+        databaseService.close();
+
+        // When
+        databaseService = new LocalDatabaseService(dataDir.toString(), false);
+
+        // Then
+        assertThat(databaseService.findById("it_1")).isPresent();
+        assertThat(databaseService.existsById("it_2")).isFalse();
+        assertThat(databaseService.findRevisionByItineraryIdAndVersion("it_1", 1)).isPresent();
+    }
+
+    @Test
+    @DisplayName("Should discard a torn record at the end of the log")
+    void shouldDiscardTornTailRecord() throws Exception {
+        // Given
+        databaseService.save(new FirestoreItinerary("it_1", 1, "{\"v\":1}"));
+        databaseService.close();
+        Path logFile = dataDir.resolve("documents.log");
+        long intactSize = Files.size(logFile);
+        Files.write(logFile, new byte[] {0, 0, 0, 42, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        // When
+        databaseService = new LocalDatabaseService(dataDir.toString(), false);
+        databaseService.save(new FirestoreItinerary("it_2", 1, "{\"v\":1}"));
+
+        // Then
+        assertThat(databaseService.findById("it_1")).isPresent();
+        assertThat(Files.size(logFile)).isGreaterThan(intactSize);
+        databaseService.close();
+        databaseService = new LocalDatabaseService(dataDir.toString(), false);
+        assertThat(databaseService.findAllOrderByUpdatedAtDesc()).hasSize(2);
+    }
+}
@@ -0,0 +1,221 @@
+package com.tripplanner.testing.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tripplanner.dto.IntentResult;
+import com.tripplanner.service.IntentClassificationService;
+import com.tripplanner.service.LLMProvider;
+import com.tripplanner.service.LLMService;
+import com.tripplanner.service.LocalIntentClassifier;
+import com.tripplanner.testing.load.LatencyModel;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.offset;
+
+/**
+ * Tests for the local intent model and its use by IntentClassificationService.
+ */
+class LocalIntentClassifierTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocalIntentClassifierTest.class);
+
+    // Phrasings that are not in the training examples
+    private static final List<Map.Entry<String, String>> HELD_OUT = List.of(
+            Map.entry("MOVE_TIME", "Can we do the cathedral at 4pm instead"),
+            Map.entry("MOVE_TIME", "Push lunch back by an hour"),
+            Map.entry("MOVE_TIME", "Start the walking tour earlier"),
+            Map.entry("INSERT_PLACE", "Squeeze in a coffee stop on day 3"),
+            Map.entry("INSERT_PLACE", "Include a sunset viewpoint this evening"),
+            Map.entry("DELETE_NODE", "Get rid of the shopping trip"),
+            Map.entry("DELETE_NODE", "I don't want the boat ride anymore"),
+            Map.entry("REPLACE_NODE", "Swap the zoo for an aquarium"),
+            Map.entry("REPLACE_NODE", "Use a different restaurant for dinner"),
+            Map.entry("REPLAN_TODAY", "It's raining, rework today's plan"),
+            Map.entry("REPLAN_TODAY", "We're running late, redo the rest of today"),
+            Map.entry("BOOK_NODE", "Reserve seats for the concert"),
+            Map.entry("BOOK_NODE", "Can you get me tickets for the museum"),
+            Map.entry("UNDO", "Put it back the way it was"),
+            Map.entry("UNDO", "Undo that last edit"),
+            Map.entry("EXPLAIN", "Why is the museum on the first day"),
+            Map.entry("EXPLAIN", "How far is the hotel from the beach"),
+            Map.entry("PLAN", "Plan a week in Portugal for two people"),
+            Map.entry("PLAN", "Create a new itinerary for Kyoto"),
+            Map.entry("ENRICH", "Show me photos of the castle"),
+            Map.entry("ENRICH", "Get opening hours for the gallery"),
+            Map.entry("CHAT", "Hey there"),
+            Map.entry("CHAT", "Thanks a lot, that's perfect"));
+
+    private final LocalIntentClassifier classifier = new LocalIntentClassifier();
+
+    @Test
+    @DisplayName("Should classify held-out phrasings accurately")
+    void shouldClassifyHeldOutPhrasings() {
+        // Given
+        int correct = 0;
+
+        // When
+        for (Map.Entry<String, String> example : HELD_OUT) {
+            LocalIntentClassifier.Prediction prediction = classifier.classify(example.getValue());
+            if (prediction.getIntent().equals(example.getKey())) {
+                correct++;
+            } else {
+                logger.info("Misclassified '{}' as {}, expected {}", example.getValue(), prediction, example.getKey());
+            }
+        }
+        double accuracy = (double) correct / HELD_OUT.size();
+
+        // Then
+        assertThat(accuracy).isGreaterThanOrEqualTo(0.8);
+
+        logger.info("Held-out accuracy test passed");
+    }
+
+    @Test
+    @Tag("load")
+    @DisplayName("Benchmark: local-first intent classification versus the LLM path")
+    void benchmarkAgainstLlmPath() {
+        // Given - an LLM that takes the load test's LLM latency and always answers with the label,
+        // so the LLM path is the accuracy ceiling and the local-first path is measured against it
+        Map<String, String> labels = HELD_OUT.stream()
+                .collect(Collectors.toMap(Map.Entry::getValue, Map.Entry::getKey));
+        LLMService llmService = new LLMService(List.of(new LabellingLlmProvider(labels,
+                LatencyModel.fromSystemProperties("load.llm", 300, 1500))), new ObjectMapper());
+        IntentClassificationService service = new IntentClassificationService(classifier, 0.7);
+
+        // When
+        int llmCorrect = 0;
+        long llmNanos = 0;
+        for (Map.Entry<String, String> example : HELD_OUT) {
+            long start = System.nanoTime();
+            IntentResult result = llmService.classifyIntent(example.getValue(), "");
+            llmNanos += System.nanoTime() - start;
+            if (example.getKey().equals(result.getIntent())) {
+                llmCorrect++;
+            }
+        }
+
+        int localFirstCorrect = 0;
+        int llmFallbacks = 0;
+        long localFirstNanos = 0;
+        for (Map.Entry<String, String> example : HELD_OUT) {
+            long start = System.nanoTime();
+            IntentResult result = service.classifyLocally(example.getValue(), null, null);
+            if (result == null) {
+                llmFallbacks++;
+                result = llmService.classifyIntent(example.getValue(), "");
+            }
+            localFirstNanos += System.nanoTime() - start;
+            if (example.getKey().equals(result.getIntent())) {
+                localFirstCorrect++;
+            }
+        }
+
+        int rounds = 200;
+        long start = System.nanoTime();
+        for (int round = 0; round < rounds; round++) {
+            for (Map.Entry<String, String> example : HELD_OUT) {
+                classifier.classify(example.getValue());
+            }
+        }
+        double localMicros = (System.nanoTime() - start) / 1_000.0 / (rounds * HELD_OUT.size());
+        double llmMillis = llmNanos / 1e6 / HELD_OUT.size();
+        double localFirstMillis = localFirstNanos / 1e6 / HELD_OUT.size();
+        logger.info("LLM path: {}/{} correct, {} ms per message", llmCorrect, HELD_OUT.size(),
+                   String.format("%.1f", llmMillis));
+        logger.info("Local-first path: {}/{} correct, {} ms per message, {} LLM fallbacks", localFirstCorrect,
+                   HELD_OUT.size(), String.format("%.1f", localFirstMillis), llmFallbacks);
+        logger.info("Local model alone: {} us per message", String.format("%.1f", localMicros));
+
+        // Then
+        assertThat(llmCorrect).isEqualTo(HELD_OUT.size());
+        assertThat((double) localFirstCorrect / HELD_OUT.size()).isGreaterThanOrEqualTo(0.9);
+        assertThat(llmFallbacks).isLessThan(HELD_OUT.size());
+        assertThat(localFirstMillis).isLessThan(llmMillis);
+        assertThat(localMicros / 1_000).isLessThan(llmMillis / 100);
+
+        logger.info("Intent classification benchmark passed");
+    }
+
+    @Test
+    @DisplayName("Should report low confidence for text unlike the training examples")
+    void shouldReportLowConfidenceForUnfamiliarText() {
+        // When
+        LocalIntentClassifier.Prediction familiar = classifier.classify("Delete the museum visit");
+        LocalIntentClassifier.Prediction unfamiliar = classifier.classify("purple elephant quantum");
+        Map<String, Double> distribution = classifier.distribution("purple elephant quantum");
+
+        // Then
+        assertThat(familiar.getIntent()).isEqualTo("DELETE_NODE");
+        assertThat(familiar.getConfidence()).isGreaterThan(0.7);
+        assertThat(unfamiliar.getConfidence()).isLessThan(0.7);
+        assertThat(distribution.values().stream().mapToDouble(Double::doubleValue).sum()).isCloseTo(1.0, offset(1e-6));
+
+        logger.info("Confidence test passed");
+    }
+
+    @Test
+    @DisplayName("Should route confident predictions to agent tasks and defer the rest")
+    void shouldRouteConfidentPredictions() {
+        // Given
+        IntentClassificationService service = new IntentClassificationService(classifier, 0.7);
+
+        // When
+        IntentResult book = service.classifyLocally("Book the museum tickets for me", "node_1", null);
+        IntentResult unsure = service.classifyLocally("purple elephant quantum", null, null);
+
+        // Then
+        assertThat(book).isNotNull();
+        assertThat(book.getIntent()).isEqualTo("BOOK_NODE");
+        assertThat(book.getTaskType()).isEqualTo("book");
+        assertThat(book.getNodeIds()).containsExactly("node_1");
+        assertThat(book.getConfidence()).isGreaterThanOrEqualTo(0.7);
+        assertThat(unsure).isNull();
+        assertThat(service.classifyLocally("Book the museum tickets for me", null, null))
+                .as("node references are left to the LLM when no node is selected").isNull();
+
+        logger.info("Local routing test passed");
+    }
+
+    /**
+     * LLM provider that answers intent prompts with the labelled intent after a sampled latency.
+     */
+    private static class LabellingLlmProvider implements LLMProvider {
+        private static final Pattern USER_REQUEST = Pattern.compile("User request: \"(.*)\"");
+
+        private final Map<String, String> labels;
+        private final LatencyModel latency;
+
+        private LabellingLlmProvider(Map<String, String> labels, LatencyModel latency) {
+            this.labels = labels;
+            this.latency = latency;
+        }
+
+        @Override
+        public String generate(String prompt, Map<String, Object> parameters) {
+            latency.pause();
+            Matcher request = USER_REQUEST.matcher(prompt);
+            String intent = request.find() ? labels.getOrDefault(request.group(1), "CHAT") : "CHAT";
+            return "{\"intent\": \"" + intent + "\", \"confidence\": 0.95}";
+        }
+
+        @Override
+        public boolean supportsModel(String modelName) {
+            return true;
+        }
+
+        @Override
+        public String getProviderName() {
+            return "gemini";
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.tripplanner.testing.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tripplanner.dto.ChatHistoryPage;
+import com.tripplanner.dto.RevisionRecord;
+import com.tripplanner.dto.TripMetadata;
+import com.tripplanner.service.ConversationContextCache;
+import com.tripplanner.service.IdempotencyManager;
+import com.tripplanner.service.LocalChatHistoryService;
+import com.tripplanner.service.LocalDatabaseService;
+import com.tripplanner.service.LocalDocumentStore;
+import com.tripplanner.service.LocalIdempotencyManager;
+import com.tripplanner.service.LocalLockManager;
+import com.tripplanner.service.LocalRevisionService;
+import com.tripplanner.service.LocalUserDataService;
+import com.tripplanner.service.LockManager;
+import com.tripplanner.service.TripListCache;
+import com.tripplanner.dto.NormalizedItinerary;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for the local implementations of the chat, revision, lock, idempotency and user data
+ * services, which let the application run with database.backend=local and no Firestore.
+ */
+class LocalStorageServicesTest {
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    @TempDir
+    Path dataDir;
+
+    private LocalDatabaseService databaseService;
+    private LocalDocumentStore documentStore;
+
+    @BeforeEach
+    void setUp() {
+        databaseService = new LocalDatabaseService(dataDir.toString(), false);
+        documentStore = new LocalDocumentStore(databaseService, new ObjectMapper().findAndRegisterModules());
+    }
+
+    @AfterEach
+    void tearDown() {
+        databaseService.close();
+    }
+
+    @Test
+    @DisplayName("Should page chat history newest first with a message cursor")
+    void shouldPageChatHistoryWithCursor() {
+        // Given
+        LocalChatHistoryService chatHistoryService =
+                new LocalChatHistoryService(documentStore, new ConversationContextCache(2, 300));
+        for (int i = 0; i < 5; i++) {
+            Map<String, Object> message = new HashMap<>();
+            message.put("text", "message " + i);
+            message.put("timestamp", 1_000L + i);
+            chatHistoryService.saveChatMessage("it_1", message, "user_1");
+        }
+
+        // When
+        ChatHistoryPage latest = chatHistoryService.getChatHistoryPage("it_1", 2, null);
+        ChatHistoryPage older = chatHistoryService.getChatHistoryPage("it_1", 2, latest.getNextCursor());
+
+        // Then
+        assertThat(latest.getMessages()).extracting(m -> m.get("text")).containsExactly("message 3", "message 4");
+        assertThat(latest.isHasMore()).isTrue();
+        assertThat(older.getMessages()).extracting(m -> m.get("text")).containsExactly("message 1", "message 2");
+        assertThat(chatHistoryService.getChatHistory("it_1")).hasSize(5)
+                .first().extracting(m -> m.get("userId")).isEqualTo("user_1");
+        assertThatThrownBy(() -> chatHistoryService.getChatHistoryPage("it_1", 2, "missing"))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        assertThat(chatHistoryService.clearChatHistory("it_1")).isEqualTo(5);
+        assertThat(chatHistoryService.getChatHistory("it_1")).isEmpty();
+
+        logger.info("Local chat history paging test passed");
+    }
+
+    @Test
+    @DisplayName("Should acquire, conflict on and release node locks")
+    void shouldManageNodeLocks() {
+        // Given
+        LocalLockManager lockManager = new LocalLockManager(documentStore);
+
+        // When
+        LockManager.LockResult first = lockManager.acquireLock("node_1", LockManager.LockType.WRITE, "agent_a", 60_000L);
+        LockManager.LockResult conflicting = lockManager.acquireLock("node_1", LockManager.LockType.READ, "agent_b", 60_000L);
+        lockManager.acquireLock("node_2", LockManager.LockType.READ, "agent_a", -1L);
+
+        // Then
+        assertThat(first.isSuccess()).isTrue();
+        assertThat(conflicting.isSuccess()).isFalse();
+        assertThat(lockManager.getLocksByOwner("agent_a")).extracting(LockManager.NodeLock::getNodeId).containsExactly("node_1");
+        assertThat(lockManager.getStatistics().getTotalLocks()).isEqualTo(2);
+
+        lockManager.cleanupExpiredLocks();
+        assertThat(lockManager.getStatistics().getTotalLocks()).isEqualTo(1);
+        assertThat(lockManager.releaseLock("node_1", "agent_a")).isTrue();
+        assertThat(lockManager.isLocked("node_1")).isFalse();
+
+        logger.info("Local lock manager test passed");
+    }
+
+    @Test
+    @DisplayName("Should store revisions and return history newest first")
+    void shouldStoreRevisions() {
+        // Given
+        LocalRevisionService revisionService = new LocalRevisionService(documentStore, new ObjectMapper());
+
+        // When
+        revisionService.saveRevision("it_1", new RevisionRecord("rev_1", 1_000L, "editor", List.of(), "first", "user_1"));
+        revisionService.saveRevision("it_1", new RevisionRecord("rev_2", 2_000L, "editor", List.of(), "second", "user_1"));
+
+        // Then
+        assertThat(revisionService.getRevisionHistory("it_1")).extracting(RevisionRecord::getRevisionId)
+                .containsExactly("rev_2", "rev_1");
+        assertThat(revisionService.getRevision("it_1", "rev_1")).map(RevisionRecord::getReason).contains("first");
+        assertThat(revisionService.getRevision("it_1", "rev_3")).isEmpty();
+
+        logger.info("Local revision service test passed");
+    }
+
+    @Test
+    @DisplayName("Should store trip metadata per user and apply trip list projections")
+    void shouldStoreTripMetadata() {
+        // Given
+        LocalUserDataService userDataService = new LocalUserDataService(documentStore, new TripListCache(300));
+        TripMetadata older = new TripMetadata();
+        older.setItineraryId("it_old");
+        older.setCreatedAt(1_000L);
+        TripMetadata newer = new TripMetadata();
+        newer.setItineraryId("it_new");
+        newer.setCreatedAt(2_000L);
+        userDataService.saveUserTripMetadata("user_1", older);
+        userDataService.saveUserTripMetadata("user_1", newer);
+
+        NormalizedItinerary projected = new NormalizedItinerary();
+        projected.setItineraryId("it_old");
+        projected.setUserId("user_1");
+        projected.setDestination("Lisbon");
+
+        // When
+        userDataService.syncTripProjection(projected).join();
+
+        // Then
+        assertThat(userDataService.getUserTripMetadataPage("user_1", null, 1)).extracting(TripMetadata::getItineraryId)
+                .containsExactly("it_new");
+        assertThat(userDataService.getUserTripMetadataPage("user_1", "it_new", 1)).extracting(TripMetadata::getItineraryId)
+                .containsExactly("it_old");
+        assertThatThrownBy(() -> userDataService.getUserTripMetadataPage("user_1", "it_unknown", 1))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(userDataService.getUserTripMetadata("user_1")).extracting(TripMetadata::getItineraryId)
+                .containsExactly("it_new", "it_old");
+        assertThat(userDataService.getUserTripMetadata("user_1", "it_old")).map(TripMetadata::getDestination).contains("Lisbon");
+        assertThat(userDataService.userOwnsTrip("user_1", "it_new")).isTrue();
+        assertThat(userDataService.userOwnsTrip("user_2", "it_new")).isFalse();
+
+        userDataService.deleteUserTripMetadata("user_1", "it_new");
+        assertThat(userDataService.userOwnsTrip("user_1", "it_new")).isFalse();
+
+        logger.info("Local user data service test passed");
+    }
+
+    @Test
+    @DisplayName("Should return stored idempotent results until they expire")
+    void shouldStoreIdempotencyRecords() {
+        // Given
+        IdempotencyManager idempotencyManager = new LocalIdempotencyManager(documentStore);
+
+        // When
+        idempotencyManager.storeOperationResult("apply_it_1", Map.of("toVersion", 3), "apply");
+        idempotencyManager.storeOperationResult("apply_it_2", Map.of("toVersion", 4), "apply", -1L);
+
+        // Then
+        assertThat(idempotencyManager.getExistingOperation("apply_it_1"))
+                .map(IdempotencyManager.IdempotencyRecord::getOperationType).contains("apply");
+        assertThat(idempotencyManager.getExistingOperation("apply_it_2")).isEmpty();
+        assertThat(idempotencyManager.getExistingOperation("unknown")).isEmpty();
+
+        logger.info("Local idempotency manager test passed");
+    }
+}
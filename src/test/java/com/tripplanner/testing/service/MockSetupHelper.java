@@ -90,8 +90,8 @@ public class MockSetupHelper {
             );
         });
         
-        // Mock handleWebhook
-        doNothing().when(mockService).handleWebhook(any(), anyString());
+        // Mock webhook signature verification
+        when(mockService.verifyWebhookSignature(anyString(), any())).thenReturn(true);
         
         logger.debug("RazorpayService mocks setup complete");
     }
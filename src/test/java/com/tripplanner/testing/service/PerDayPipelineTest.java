@@ -0,0 +1,287 @@
+package com.tripplanner.testing.service;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.tripplanner.agents.*;
+import com.tripplanner.dto.*;
+import com.tripplanner.service.AgentEventPublisher;
+import com.tripplanner.service.ItineraryJsonService;
+import com.tripplanner.service.PipelineCheckpointStore;
+import com.tripplanner.service.PipelineOrchestrator;
+import com.tripplanner.service.UserDataService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for the per-day pipeline: each day flows through skeleton, population, persistence and
+ * enrichment on its own, with stage timeouts that never leave an agent writing to a handed-on day.
+ */
+class PerDayPipelineTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(PerDayPipelineTest.class);
+
+    @TempDir
+    Path checkpointDir;
+
+    private ObjectMapper objectMapper;
+    private SkeletonPlannerAgent skeletonPlannerAgent;
+    private ActivityAgent activityAgent;
+    private MealAgent mealAgent;
+    private TransportAgent transportAgent;
+    private EnrichmentAgent enrichmentAgent;
+    private ItineraryJsonService itineraryJsonService;
+    private AgentEventPublisher agentEventPublisher;
+    private AtomicReference<String> storedItinerary;
+
+    @BeforeEach
+    void setUp() {
+        objectMapper = new ObjectMapper();
+        objectMapper.registerModule(new com.fasterxml.jackson.datatype.jsr310.JavaTimeModule());
+        objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        objectMapper.disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+        skeletonPlannerAgent = mock(SkeletonPlannerAgent.class);
+        activityAgent = mock(ActivityAgent.class);
+        mealAgent = mock(MealAgent.class);
+        transportAgent = mock(TransportAgent.class);
+        enrichmentAgent = mock(EnrichmentAgent.class);
+        itineraryJsonService = mock(ItineraryJsonService.class);
+        agentEventPublisher = mock(AgentEventPublisher.class);
+        when(agentEventPublisher.hasActiveConnections(anyString())).thenReturn(true);
+
+        NormalizedItinerary base = new NormalizedItinerary("it_day", 1);
+        base.setDestination("Lisbon, Portugal");
+        base.setDays(new ArrayList<>());
+        when(skeletonPlannerAgent.loadBaseItinerary(eq("it_day"), any())).thenReturn(base);
+        when(skeletonPlannerAgent.generateDay(any(), anyInt()))
+                .thenAnswer(invocation -> day(invocation.getArgument(1)));
+        when(enrichmentAgent.planDayEnrichment(any(), anyString()))
+                .thenAnswer(invocation -> new ChangeSet("day", invocation.<NormalizedDay>getArgument(0).getDayNumber(), new ArrayList<>()));
+
+        // The stored document is kept as JSON, so every read is a snapshot like the real store's
+        storedItinerary = new AtomicReference<>();
+        when(itineraryJsonService.updateItinerary(any())).thenAnswer(invocation -> {
+            storedItinerary.set(objectMapper.writeValueAsString(invocation.getArgument(0)));
+            return null;
+        });
+        when(itineraryJsonService.getItinerary("it_day")).thenAnswer(invocation -> Optional.ofNullable(stored()));
+    }
+
+    @Test
+    @DisplayName("Should pipeline every day through population, persistence and enrichment")
+    void shouldPipelineEveryDay() throws Throwable {
+        // Given
+        addsNode(activityAgent, "attraction");
+        addsNode(mealAgent, "meal");
+        addsNode(transportAgent, "transport");
+
+        // When
+        NormalizedItinerary result = generate(3, 10_000L, 10_000L);
+
+        // Then
+        assertThat(result.getDays()).extracting(NormalizedDay::getDayNumber).containsExactly(1, 2, 3);
+        for (NormalizedDay day : stored().getDays()) {
+            assertThat(nodeTypes(day)).containsExactlyInAnyOrder("placeholder", "attraction", "meal", "transport");
+        }
+        verify(enrichmentAgent, times(3)).planDayEnrichment(any(), eq("Lisbon, Portugal"));
+        verify(enrichmentAgent, times(3)).applyDayEnrichment(eq("it_day"), any());
+        verify(agentEventPublisher, times(3)).publishDayCompleted(eq("it_day"), anyString(), any());
+
+        logger.info("Per-day pipeline test passed");
+    }
+
+    @Test
+    @DisplayName("Should interrupt a timed-out population agent and hand on the untouched skeleton day")
+    void shouldHandOnSkeletonWhenPopulationTimesOut() throws Throwable {
+        // Given
+        addsNode(activityAgent, "attraction");
+        addsNode(transportAgent, "transport");
+        AtomicBoolean interrupted = new AtomicBoolean();
+        CountDownLatch lateWrite = new CountDownLatch(1);
+        when(mealAgent.populateDayMeals(any(), any())).thenAnswer(invocation -> {
+            try {
+                Thread.sleep(10_000);
+            } catch (InterruptedException e) {
+                interrupted.set(true);
+            }
+            invocation.<NormalizedDay>getArgument(1).getNodes().add(node("late", "meal"));
+            lateWrite.countDown();
+            return 1;
+        });
+
+        // When
+        NormalizedItinerary result = generate(1, 200L, 10_000L);
+        assertThat(lateWrite.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // Then - the agents' partial work is dropped with the copy they wrote to
+        assertThat(interrupted).isTrue();
+        assertThat(result.getDays()).hasSize(1);
+        assertThat(nodeTypes(stored().getDays().get(0))).containsExactly("placeholder");
+        verify(enrichmentAgent, times(1)).applyDayEnrichment(eq("it_day"), any());
+
+        logger.info("Population timeout test passed");
+    }
+
+    @Test
+    @DisplayName("Should fail a day whose write fails and persist it again on the retry")
+    void shouldRetryDayWhenPersistFails() throws Throwable {
+        // Given
+        AtomicInteger writes = new AtomicInteger();
+        doAnswer(invocation -> {
+            if (writes.incrementAndGet() == 1) {
+                throw new IllegalStateException("Firestore unavailable");
+            }
+            storedItinerary.set(objectMapper.writeValueAsString(invocation.getArgument(0)));
+            return null;
+        }).when(itineraryJsonService).updateItinerary(any());
+
+        // When
+        NormalizedItinerary result = generate(2, 10_000L, 10_000L);
+
+        // Then - the failed day was neither enriched nor reported on the first attempt
+        assertThat(result.getDays()).extracting(NormalizedDay::getDayNumber).containsExactly(1, 2);
+        verify(enrichmentAgent, times(2)).planDayEnrichment(any(), anyString());
+        verify(enrichmentAgent, times(3)).applyDayEnrichment(eq("it_day"), any());
+        verify(agentEventPublisher, times(3)).publishDayCompleted(eq("it_day"), anyString(), any());
+
+        logger.info("Persist failure retry test passed");
+    }
+
+    @Test
+    @DisplayName("Should interrupt enrichment that times out and continue with basic data")
+    void shouldContinueWhenEnrichmentTimesOut() throws Throwable {
+        // Given
+        AtomicBoolean interrupted = new AtomicBoolean();
+        CountDownLatch stopped = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            try {
+                Thread.sleep(10_000);
+            } catch (InterruptedException e) {
+                interrupted.set(true);
+            }
+            stopped.countDown();
+            return null;
+        }).when(enrichmentAgent).planDayEnrichment(any(), anyString());
+
+        // When
+        NormalizedItinerary result = generate(2, 10_000L, 200L);
+
+        // Then
+        assertThat(result.getDays()).hasSize(2);
+        assertThat(stopped.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(interrupted).isTrue();
+        verify(enrichmentAgent, never()).applyDayEnrichment(anyString(), any());
+        verify(agentEventPublisher, times(2)).publishDayCompleted(eq("it_day"), anyString(), any());
+
+        logger.info("Enrichment timeout test passed");
+    }
+
+    private NormalizedItinerary generate(int days, long populationTimeoutMs, long enrichmentTimeoutMs) throws Throwable {
+        PipelineCheckpointStore store = new PipelineCheckpointStore(objectMapper, true, checkpointDir.toString(), 24);
+        AtomicReference<NormalizedItinerary> result = new AtomicReference<>();
+        new ApplicationContextRunner()
+                .withPropertyValues(
+                        "itinerary.generation.pipeline.mode=per-day",
+                        "itinerary.generation.pipeline.skeleton.timeout-ms=10000",
+                        "itinerary.generation.pipeline.population.timeout-ms=" + populationTimeoutMs,
+                        "itinerary.generation.pipeline.enrichment.timeout-ms=" + enrichmentTimeoutMs,
+                        "itinerary.generation.pipeline.checkpoint.max-attempts=2",
+                        "itinerary.generation.pipeline.checkpoint.retry-delay-ms=0",
+                        "itinerary.generation.pipeline.checkpoint.resume-delay-ms=-1")
+                .withInitializer(context -> {
+                    // Registered as-is, so Spring does not autowire the mocks' own fields
+                    context.getBeanFactory().registerSingleton("skeletonPlannerAgent", skeletonPlannerAgent);
+                    context.getBeanFactory().registerSingleton("activityAgent", activityAgent);
+                    context.getBeanFactory().registerSingleton("mealAgent", mealAgent);
+                    context.getBeanFactory().registerSingleton("transportAgent", transportAgent);
+                    context.getBeanFactory().registerSingleton("costEstimatorAgent", mock(CostEstimatorAgent.class));
+                    context.getBeanFactory().registerSingleton("enrichmentAgent", enrichmentAgent);
+                    context.getBeanFactory().registerSingleton("itineraryJsonService", itineraryJsonService);
+                    context.getBeanFactory().registerSingleton("agentEventPublisher", agentEventPublisher);
+                    context.getBeanFactory().registerSingleton("userDataService", mock(UserDataService.class));
+                    context.getBeanFactory().registerSingleton("pipelineCheckpointStore", store);
+                    context.getBeanFactory().registerSingleton("objectMapper", objectMapper);
+                })
+                .withBean(PipelineOrchestrator.class)
+                .run(context -> result.set(context.getBean(PipelineOrchestrator.class)
+                        .generateItinerary("it_day", request(days), "user_1").get(30, TimeUnit.SECONDS)));
+        return result.get();
+    }
+
+    private NormalizedItinerary stored() throws Exception {
+        String json = storedItinerary.get();
+        return json != null ? objectMapper.readValue(json, NormalizedItinerary.class) : null;
+    }
+
+    private static void addsNode(Object agent, String type) {
+        if (agent instanceof ActivityAgent activity) {
+            when(activity.populateDayAttractions(any(), any())).thenAnswer(invocation -> addNode(invocation.getArgument(1), type));
+        } else if (agent instanceof MealAgent meal) {
+            when(meal.populateDayMeals(any(), any())).thenAnswer(invocation -> addNode(invocation.getArgument(1), type));
+        } else if (agent instanceof TransportAgent transport) {
+            when(transport.populateDayTransport(any(), any())).thenAnswer(invocation -> addNode(invocation.getArgument(1), type));
+        }
+    }
+
+    private static int addNode(NormalizedDay day, String type) {
+        day.getNodes().add(node("day" + day.getDayNumber() + "_" + type, type));
+        return 1;
+    }
+
+    private static List<String> nodeTypes(NormalizedDay day) {
+        return day.getNodes().stream().map(NormalizedNode::getType).collect(Collectors.toList());
+    }
+
+    private static CreateItineraryReq request(int days) {
+        return CreateItineraryReq.builder()
+                .destination("Lisbon, Portugal")
+                .startDate(LocalDate.of(2025, 6, 1))
+                .endDate(LocalDate.of(2025, 6, days))
+                .party(new PartyDto(2, 0, 0, 1))
+                .budgetTier("medium")
+                .interests(List.of("culture", "food"))
+                .build();
+    }
+
+    private static NormalizedDay day(int dayNumber) {
+        NormalizedDay day = new NormalizedDay();
+        day.setDayNumber(dayNumber);
+        day.setLocation("Lisbon");
+        List<NormalizedNode> nodes = new ArrayList<>();
+        nodes.add(node("day" + dayNumber + "_node1", "placeholder"));
+        day.setNodes(nodes);
+        return day;
+    }
+
+    private static NormalizedNode node(String id, String type) {
+        NormalizedNode node = new NormalizedNode();
+        node.setId(id);
+        node.setType(type);
+        node.setTitle(id);
+        return node;
+    }
+}
@@ -0,0 +1,217 @@
+package com.tripplanner.testing.service;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.tripplanner.agents.*;
+import com.tripplanner.dto.*;
+import com.tripplanner.service.AgentEventPublisher;
+import com.tripplanner.service.ItineraryJsonService;
+import com.tripplanner.service.PipelineCheckpointStore;
+import com.tripplanner.service.PipelineOrchestrator;
+import com.tripplanner.service.UserDataService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for pipeline checkpoint logs and resuming generations from them.
+ */
+class PipelineCheckpointStoreTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(PipelineCheckpointStoreTest.class);
+
+    @TempDir
+    Path checkpointDir;
+
+    private ObjectMapper objectMapper;
+    private PipelineCheckpointStore store;
+
+    @BeforeEach
+    void setUp() {
+        objectMapper = new ObjectMapper();
+        objectMapper.registerModule(new com.fasterxml.jackson.datatype.jsr310.JavaTimeModule());
+        objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        objectMapper.disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        store = new PipelineCheckpointStore(objectMapper, true, checkpointDir.toString(), 24);
+    }
+
+    @Test
+    @DisplayName("Should resume a log for the same request and start over for a different one")
+    void shouldResumeMatchingRequestOnly() throws Exception {
+        // Given
+        CreateItineraryReq request = request("Kyoto, Japan", 3);
+        PipelineCheckpointStore.Checkpoint first = store.open("pipeline", "it_1", request, "user_1");
+        first.put("day:1:skeleton", day(1, "Fushimi Inari"));
+        NormalizedDay mutated = day(2, "Arashiyama");
+        first.put("day:2:skeleton", mutated);
+        mutated.setLocation("Changed after checkpoint");
+
+        // When
+        PipelineCheckpointStore.Checkpoint resumed = store.open("pipeline", "it_1", request("Kyoto, Japan", 3), "user_1");
+        PipelineCheckpointStore.Checkpoint changed = store.open("pipeline", "it_1", request("Osaka, Japan", 3), "user_1");
+
+        // Then
+        assertThat(first.isResumed()).isFalse();
+        assertThat(resumed.isResumed()).isTrue();
+        assertThat(resumed.size()).isEqualTo(2);
+        assertThat(resumed.get("day:2:skeleton", NormalizedDay.class)).get()
+                .extracting(NormalizedDay::getLocation).isEqualTo("Arashiyama");
+        assertThat(resumed.get("day:1:skeleton", NormalizedDay.class).get().getNodes()).hasSize(1);
+        assertThat(resumed.get("day:3:skeleton", NormalizedDay.class)).isEmpty();
+        assertThat(changed.isResumed()).isFalse();
+        assertThat(changed.size()).isZero();
+
+        logger.info("Checkpoint resume test passed");
+    }
+
+    @Test
+    @DisplayName("Should drop a torn last line and list only interrupted generations")
+    void shouldRecoverTornLogAndFindInterruptedRuns() throws Exception {
+        // Given
+        PipelineCheckpointStore.Checkpoint interrupted = store.open("pipeline", "it_interrupted", request("Goa", 2), "user_1");
+        interrupted.put("day:1:skeleton", day(1, "Baga Beach"));
+        Path log = checkpointDir.resolve("pipeline-it_interrupted.log");
+        Files.writeString(log, "{\"type\":\"entry\",\"key\":\"day:2:ske", StandardOpenOption.APPEND);
+
+        store.open("pipeline", "it_failed", request("Goa", 2), "user_2").fail("Provider unavailable");
+        store.open("pipeline", "it_done", request("Goa", 2), "user_3").complete();
+        store.open("planner", "it_other", request("Goa", 2), null);
+        Path stalePlannerLog = checkpointDir.resolve("planner-it_stale.log");
+        Files.writeString(stalePlannerLog, "{\"type\":\"start\",\"itineraryId\":\"it_stale\",\"startedAt\":1}\n");
+
+        // When
+        List<PipelineCheckpointStore.InterruptedRun> runs = store.findInterrupted("pipeline", 2);
+        PipelineCheckpointStore.Checkpoint resumed = store.open("pipeline", "it_interrupted", request("Goa", 2), "user_1");
+        resumed.put("day:2:skeleton", day(2, "Fort Aguada"));
+
+        // Then
+        assertThat(runs).hasSize(1);
+        assertThat(runs.get(0).itineraryId()).isEqualTo("it_interrupted");
+        assertThat(runs.get(0).userId()).isEqualTo("user_1");
+        assertThat(runs.get(0).steps()).isEqualTo(1);
+        assertThat(runs.get(0).request().path("destination").asText()).isEqualTo("Goa");
+        assertThat(store.open("pipeline", "it_interrupted", request("Goa", 2), "user_1").size()).isEqualTo(2);
+        assertThat(store.findInterrupted("pipeline", 2)).isEmpty(); // resumed twice already
+        assertThat(Files.exists(checkpointDir.resolve("pipeline-it_done.log"))).isFalse();
+        assertThat(Files.exists(stalePlannerLog)).isFalse(); // expired logs of other pipelines are cleaned up too
+        assertThat(Files.exists(checkpointDir.resolve("planner-it_other.log"))).isTrue();
+
+        logger.info("Checkpoint recovery test passed");
+    }
+
+    @Test
+    @DisplayName("Should retry a failed per-day generation without regenerating checkpointed days")
+    void shouldResumePerDayPipelineFromCheckpoint() throws Exception {
+        // Given
+        SkeletonPlannerAgent skeletonPlannerAgent = mock(SkeletonPlannerAgent.class);
+        ActivityAgent activityAgent = mock(ActivityAgent.class);
+        MealAgent mealAgent = mock(MealAgent.class);
+        TransportAgent transportAgent = mock(TransportAgent.class);
+        EnrichmentAgent enrichmentAgent = mock(EnrichmentAgent.class);
+        ItineraryJsonService itineraryJsonService = mock(ItineraryJsonService.class);
+        ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+                .withPropertyValues(
+                        "itinerary.generation.pipeline.mode=per-day",
+                        "itinerary.generation.pipeline.skeleton.timeout-ms=10000",
+                        "itinerary.generation.pipeline.population.timeout-ms=10000",
+                        "itinerary.generation.pipeline.stage-concurrency.skeleton=1",
+                        "itinerary.generation.pipeline.stage-concurrency.population=3",
+                        "itinerary.generation.pipeline.stage-concurrency.enrichment=1",
+                        "itinerary.generation.pipeline.checkpoint.max-attempts=2",
+                        "itinerary.generation.pipeline.checkpoint.retry-delay-ms=0",
+                        "itinerary.generation.pipeline.checkpoint.resume-delay-ms=-1")
+                .withInitializer(context -> {
+                    // Registered as-is, so Spring does not autowire the mocks' own fields
+                    context.getBeanFactory().registerSingleton("skeletonPlannerAgent", skeletonPlannerAgent);
+                    context.getBeanFactory().registerSingleton("activityAgent", activityAgent);
+                    context.getBeanFactory().registerSingleton("mealAgent", mealAgent);
+                    context.getBeanFactory().registerSingleton("transportAgent", transportAgent);
+                    context.getBeanFactory().registerSingleton("costEstimatorAgent", mock(CostEstimatorAgent.class));
+                    context.getBeanFactory().registerSingleton("enrichmentAgent", enrichmentAgent);
+                    context.getBeanFactory().registerSingleton("itineraryJsonService", itineraryJsonService);
+                    context.getBeanFactory().registerSingleton("agentEventPublisher", mock(AgentEventPublisher.class));
+                    context.getBeanFactory().registerSingleton("userDataService", mock(UserDataService.class));
+                    context.getBeanFactory().registerSingleton("pipelineCheckpointStore", store);
+                    context.getBeanFactory().registerSingleton("objectMapper", objectMapper);
+                })
+                .withBean(PipelineOrchestrator.class);
+
+        CreateItineraryReq request = request("Lisbon, Portugal", 3);
+        NormalizedItinerary base = new NormalizedItinerary("it_resume", 1);
+        base.setDestination("Lisbon, Portugal");
+        base.setDays(new ArrayList<>());
+        when(skeletonPlannerAgent.loadBaseItinerary(eq("it_resume"), any())).thenReturn(base);
+        when(itineraryJsonService.getItinerary("it_resume")).thenReturn(Optional.of(base));
+        when(skeletonPlannerAgent.generateDay(any(), eq(1))).thenReturn(day(1, "Belem"));
+        when(skeletonPlannerAgent.generateDay(any(), eq(2))).thenReturn(day(2, "Alfama"));
+        when(skeletonPlannerAgent.generateDay(any(), eq(3)))
+                .thenThrow(new RuntimeException("Provider unavailable"))
+                .thenReturn(day(3, "Sintra"));
+        when(enrichmentAgent.planDayEnrichment(any(), anyString()))
+                .thenAnswer(invocation -> new ChangeSet("day", invocation.<NormalizedDay>getArgument(0).getDayNumber(), new ArrayList<>()));
+
+        // When
+        AtomicReference<NormalizedItinerary> result = new AtomicReference<>();
+        contextRunner.run(context -> result.set(context.getBean(PipelineOrchestrator.class)
+                .generateItinerary("it_resume", request, "user_1").get(30, TimeUnit.SECONDS)));
+
+        // Then - only the failed day was generated, populated and enriched again
+        assertThat(result.get()).isNotNull();
+        verify(skeletonPlannerAgent, times(1)).generateDay(any(), eq(1));
+        verify(skeletonPlannerAgent, times(1)).generateDay(any(), eq(2));
+        verify(skeletonPlannerAgent, times(2)).generateDay(any(), eq(3));
+        verify(mealAgent, times(3)).populateDayMeals(any(), any());
+        verify(enrichmentAgent, times(3)).planDayEnrichment(any(), anyString());
+        verify(enrichmentAgent, times(5)).applyDayEnrichment(eq("it_resume"), any());
+        assertThat(store.findInterrupted("pipeline", 2)).isEmpty();
+        assertThat(Files.exists(checkpointDir.resolve("pipeline-it_resume.log"))).isFalse();
+
+        logger.info("Per-day pipeline resume test passed");
+    }
+
+    private static CreateItineraryReq request(String destination, int days) {
+        return CreateItineraryReq.builder()
+                .destination(destination)
+                .startDate(LocalDate.of(2025, 6, 1))
+                .endDate(LocalDate.of(2025, 6, days))
+                .party(new PartyDto(2, 0, 0, 1))
+                .budgetTier("medium")
+                .interests(List.of("culture", "food"))
+                .build();
+    }
+
+    private static NormalizedDay day(int dayNumber, String location) {
+        NormalizedDay day = new NormalizedDay();
+        day.setDayNumber(dayNumber);
+        day.setLocation(location);
+        NormalizedNode node = new NormalizedNode();
+        node.setId("day" + dayNumber + "_node1");
+        node.setType("attraction");
+        node.setTitle(location);
+        List<NormalizedNode> nodes = new ArrayList<>();
+        nodes.add(node);
+        day.setNodes(nodes);
+        return day;
+    }
+}
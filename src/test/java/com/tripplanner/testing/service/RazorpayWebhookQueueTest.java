@@ -0,0 +1,232 @@
+package com.tripplanner.testing.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tripplanner.data.entity.Booking;
+import com.tripplanner.data.repo.BookingRepository;
+import com.tripplanner.service.RazorpayService;
+import com.tripplanner.service.RazorpayWebhookProcessor;
+import com.tripplanner.service.RazorpayWebhookQueue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for the durable Razorpay webhook queue against a temporary journal directory.
+ */
+class RazorpayWebhookQueueTest {
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    @TempDir
+    Path queueDir;
+
+    private RazorpayService razorpayService;
+    private BookingRepository bookingRepository;
+    private RazorpayWebhookQueue queue;
+
+    // Bodies applied per booking key, in the order the processor saw them
+    private final Map<String, List<String>> applied = new ConcurrentHashMap<>();
+
+    @BeforeEach
+    void setUp() {
+        razorpayService = mock(RazorpayService.class);
+        when(razorpayService.isWebhookSecretConfigured()).thenReturn(true);
+        when(razorpayService.verifyWebhookSignature(any(), any()))
+                .thenAnswer(invocation -> "valid".equals(invocation.getArgument(1)));
+        bookingRepository = mock(BookingRepository.class);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (queue != null) {
+            queue.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Should reject bad signatures, drop duplicates and apply each booking's events in order")
+    void shouldDeduplicateAndOrderPerBooking() throws Exception {
+        // Given
+        queue = open(recordingProcessor(null), 4);
+
+        // When
+        assertThat(queue.submit("evt_x", "forged", event("payment.captured", "order_1", "pay_1")))
+                .isEqualTo(RazorpayWebhookQueue.Intake.REJECTED);
+        assertThat(queue.submit("evt_y", "valid", "not json")).isEqualTo(RazorpayWebhookQueue.Intake.REJECTED);
+        for (int i = 0; i < 50; i++) {
+            String order = "order_" + (i % 5);
+            assertThat(queue.submit("evt_" + i, "valid", event("payment.captured", order, "pay_" + i)))
+                    .isEqualTo(RazorpayWebhookQueue.Intake.ACCEPTED);
+        }
+        assertThat(queue.submit("evt_7", "valid", event("payment.captured", "order_2", "pay_7")))
+                .isEqualTo(RazorpayWebhookQueue.Intake.DUPLICATE);
+        awaitProcessed(50);
+
+        // Then
+        for (int order = 0; order < 5; order++) {
+            List<String> payments = applied.get("order_" + order);
+            assertThat(payments).hasSize(10);
+            for (int i = 0; i < payments.size(); i++) {
+                assertThat(payments.get(i)).contains("\"pay_" + (order + i * 5) + "\"");
+            }
+        }
+        RazorpayWebhookQueue.QueueStats stats = queue.getStats();
+        assertThat(stats.getAccepted()).isEqualTo(50);
+        assertThat(stats.getDuplicates()).isEqualTo(1);
+        assertThat(stats.getRejected()).isEqualTo(2);
+
+        logger.info("Webhook dedup and ordering test passed");
+    }
+
+    @Test
+    @DisplayName("Should replay unprocessed events and remember seen IDs after a restart")
+    void shouldReplayPendingEventsAfterRestart() throws Exception {
+        // Given - a processor that never finishes, so nothing is completed before shutdown
+        CountDownLatch never = new CountDownLatch(1);
+        queue = open(recordingProcessor(never), 2);
+        queue.submit("evt_1", "valid", event("payment.captured", "order_1", "pay_1"));
+        queue.submit("evt_2", "valid", event("payment.failed", "order_2", "pay_2"));
+        queue.close();
+
+        // When
+        queue = open(recordingProcessor(null), 2);
+        awaitProcessed(2);
+
+        // Then
+        assertThat(applied.get("order_1")).hasSize(1);
+        assertThat(applied.get("order_2")).hasSize(1);
+        assertThat(queue.submit("evt_1", "valid", event("payment.captured", "order_1", "pay_1")))
+                .isEqualTo(RazorpayWebhookQueue.Intake.DUPLICATE);
+
+        queue.close();
+        queue = open(recordingProcessor(null), 2);
+        Thread.sleep(100);
+        assertThat(queue.getStats().getPending()).isZero();
+        assertThat(queue.submit("evt_2", "valid", event("payment.failed", "order_2", "pay_2")))
+                .isEqualTo(RazorpayWebhookQueue.Intake.DUPLICATE);
+
+        logger.info("Webhook replay test passed");
+    }
+
+    @Test
+    @DisplayName("Should move bookings forward only, however often an event is delivered")
+    void shouldApplyEventsIdempotently() throws Exception {
+        // Given
+        RazorpayWebhookProcessor processor = new RazorpayWebhookProcessor(bookingRepository, new ObjectMapper());
+        Booking booking = new Booking();
+        booking.setStatus(Booking.BookingStatus.PAYMENT_ORDERED);
+        when(bookingRepository.findByRazorpayOrderId("order_1")).thenReturn(Optional.of(booking));
+
+        // When
+        processor.process(event("payment.captured", "order_1", "pay_1"));
+        processor.process(event("payment.captured", "order_1", "pay_1"));
+        processor.process(event("payment.failed", "order_1", "pay_1"));
+
+        // Then
+        assertThat(booking.getStatus()).isEqualTo(Booking.BookingStatus.PAYMENT_CONFIRMED);
+        assertThat(booking.getRazorpay().getPaymentId()).isEqualTo("pay_1");
+        assertThat(booking.getRazorpay().getStatus()).isEqualTo("captured");
+        verify(bookingRepository, times(1)).save(booking);
+        assertThat(processor.bookingKey(event("payment.captured", "order_9", "pay_9"))).isEqualTo("order_9");
+
+        logger.info("Webhook idempotency test passed");
+    }
+
+    @Test
+    @DisplayName("Should keep events that fail every attempt in the dead-letter file")
+    void shouldDeadLetterEventsThatKeepFailing() throws Exception {
+        // Given
+        RazorpayWebhookProcessor failing = new RazorpayWebhookProcessor(bookingRepository, new ObjectMapper()) {
+            @Override
+            public void process(String body) throws java.io.IOException {
+                throw new java.io.IOException("Booking store unavailable");
+            }
+        };
+        queue = open(failing, 1);
+
+        // When
+        queue.submit("evt_1", "valid", event("payment.captured", "order_1", "pay_1"));
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+        while (queue.getStats().getPending() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+
+        // Then
+        assertThat(queue.getStats().getFailed()).isEqualTo(1);
+        assertThat(queue.getStats().getPending()).isZero();
+        List<String> deadLetters = Files.readAllLines(queueDir.resolve("dead-letters.log"));
+        assertThat(deadLetters).hasSize(1);
+        assertThat(deadLetters.get(0)).contains("\"evt_1\"", "pay_1", "Booking store unavailable");
+
+        logger.info("Webhook dead-letter test passed");
+    }
+
+    @Test
+    @DisplayName("Should refuse to start without a webhook secret")
+    void shouldRefuseToStartWithoutWebhookSecret() {
+        // Given
+        when(razorpayService.isWebhookSecretConfigured()).thenReturn(false);
+
+        // When / Then
+        assertThatThrownBy(() -> open(recordingProcessor(null), 1))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("razorpay.webhook-secret");
+
+        logger.info("Webhook secret requirement test passed");
+    }
+
+    private RazorpayWebhookQueue open(RazorpayWebhookProcessor processor, int workers) {
+        return new RazorpayWebhookQueue(razorpayService, processor, queueDir.toString(), workers, 1_000, true);
+    }
+
+    private RazorpayWebhookProcessor recordingProcessor(CountDownLatch block) {
+        return new RazorpayWebhookProcessor(bookingRepository, new ObjectMapper()) {
+            @Override
+            public void process(String body) throws java.io.IOException {
+                if (block != null) {
+                    try {
+                        block.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new java.io.InterruptedIOException("Stopped");
+                    }
+                }
+                applied.computeIfAbsent(bookingKey(body), key -> Collections.synchronizedList(new ArrayList<>())).add(body);
+            }
+        };
+    }
+
+    private void awaitProcessed(long count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(30);
+        while (queue.getStats().getProcessed() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(queue.getStats().getProcessed()).isEqualTo(count);
+    }
+
+    private static String event(String event, String orderId, String paymentId) {
+        String status = event.equals("payment.failed") ? "failed" : "captured";
+        return "{\"event\":\"" + event + "\",\"payload\":{\"payment\":{\"entity\":{\"id\":\"" + paymentId
+                + "\",\"order_id\":\"" + orderId + "\",\"status\":\"" + status + "\",\"method\":\"upi\"}}}}";
+    }
+}
@@ -0,0 +1,218 @@
+package com.tripplanner.testing.service;
+
+import com.tripplanner.dto.ChangeOperation;
+import com.tripplanner.dto.ChangeSet;
+import com.tripplanner.dto.Coordinates;
+import com.tripplanner.dto.NodeLocation;
+import com.tripplanner.dto.NodeTiming;
+import com.tripplanner.dto.NormalizedDay;
+import com.tripplanner.dto.NormalizedItinerary;
+import com.tripplanner.dto.NormalizedNode;
+import com.tripplanner.service.RouteOptimizer;
+import com.tripplanner.service.TravelTimeService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for the day-route optimizer.
+ */
+class RouteOptimizerTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(RouteOptimizerTest.class);
+
+    private static final long MINUTE = 60_000L;
+    private static final LocalDate DATE = LocalDate.of(2025, 6, 2);
+    private static final long DAY_START = DATE.atTime(9, 0).toInstant(ZoneOffset.UTC).toEpochMilli();
+
+    private final RouteOptimizer routeOptimizer = new RouteOptimizer(new TravelTimeService());
+
+    @Test
+    @DisplayName("Should cut travel time on a scrambled day")
+    void shouldReduceTravelOnScrambledDay() {
+        // Given - stops along a line, visited out of order
+        NormalizedItinerary itinerary = itinerary("it_scrambled", day(1,
+                stop("s3", 3, 0), stop("s0", 0, 1), stop("s4", 4, 2), stop("s1", 1, 3), stop("s2", 2, 4)));
+
+        // When
+        RouteOptimizer.OptimizationResult result = routeOptimizer.optimize(itinerary, 1000);
+
+        // Then
+        RouteOptimizer.DayRoute route = result.getDays().get(0);
+        assertThat(route.isImproved()).isTrue();
+        assertThat(route.getTravelMinutesAfter()).isLessThan(route.getTravelMinutesBefore());
+        assertThat(route.getCostAfter()).isLessThan(route.getCostBefore());
+        assertThat(route.getOrder()).containsExactlyInAnyOrder("s0", "s1", "s2", "s3", "s4");
+
+        ChangeSet changeSet = result.toChangeSet();
+        assertThat(changeSet.getScope()).isEqualTo("trip");
+        assertThat(changeSet.getAgent()).isEqualTo(RouteOptimizer.AGENT);
+        assertThat(changeSet.getOps().get(0).getOp()).isEqualTo("reorder");
+        assertThat(changeSet.getOps().get(0).getNodeIds()).isEqualTo(route.getOrder());
+
+        logger.info("Scrambled day test passed: {} -> {} travel minutes",
+                   route.getTravelMinutesBefore(), route.getTravelMinutesAfter());
+    }
+
+    @Test
+    @DisplayName("Should keep locked nodes and meals in place")
+    void shouldKeepFixedNodesInPlace() {
+        // Given
+        NormalizedNode locked = stop("locked", 4, 1);
+        locked.setLocked(true);
+        NormalizedNode lunch = stop("lunch", 0, 3);
+        lunch.setType("meal");
+        NormalizedItinerary itinerary = itinerary("it_locked", day(1,
+                stop("s2", 2, 0), locked, stop("s0", 0, 2), lunch, stop("s3", 3, 4), stop("s1", 1, 5)));
+
+        // When
+        RouteOptimizer.OptimizationResult result = routeOptimizer.optimize(itinerary, 1000);
+
+        // Then
+        RouteOptimizer.DayRoute route = result.getDays().get(0);
+        assertThat(route.isImproved()).isTrue();
+        assertThat(route.getOrder().get(1)).isEqualTo("locked");
+        assertThat(route.getOrder().get(3)).isEqualTo("lunch");
+        assertThat(moveIds(result.toChangeSet())).doesNotContain("locked", "lunch");
+
+        logger.info("Fixed node test passed: {}", route.getOrder());
+    }
+
+    @Test
+    @DisplayName("Should schedule nodes inside their opening hours")
+    void shouldRespectOpeningHours() {
+        // Given - the closest stop only opens in the afternoon
+        NormalizedNode lateOpening = stop("late", 0, 0);
+        lateOpening.getLocation().setOpeningHours("13:00");
+        lateOpening.getLocation().setClosingHours("18:00");
+        NormalizedItinerary itinerary = itinerary("it_window", day(1,
+                lateOpening, stop("s1", 1, 1), stop("s2", 2, 2), stop("s3", 3, 3)));
+
+        // When
+        RouteOptimizer.OptimizationResult result = routeOptimizer.optimize(itinerary, 1000);
+
+        // Then
+        RouteOptimizer.DayRoute route = result.getDays().get(0);
+        assertThat(route.getOrder()).last().isEqualTo("late");
+        ChangeOperation move = result.toChangeSet().getOps().stream()
+                .filter(op -> "move".equals(op.getOp()) && "late".equals(op.getId()))
+                .findFirst().orElseThrow();
+        assertThat(move.getStartTime()).isGreaterThanOrEqualTo(DATE.atTime(13, 0).toInstant(ZoneOffset.UTC).toEpochMilli());
+        assertThat(move.getEndTime() - move.getStartTime()).isEqualTo(60 * MINUTE);
+
+        logger.info("Opening hours test passed: {}", route.getOrder());
+    }
+
+    @Test
+    @DisplayName("Should leave an already optimal day untouched")
+    void shouldNotChangeOptimalDay() {
+        // Given
+        NormalizedItinerary itinerary = itinerary("it_optimal", day(1,
+                stop("s0", 0, 0), stop("s1", 1, 1), stop("s2", 2, 2), stop("s3", 3, 3)));
+
+        // When
+        RouteOptimizer.OptimizationResult result = routeOptimizer.optimize(itinerary, 1000);
+
+        // Then
+        assertThat(result.getDays().get(0).isImproved()).isFalse();
+        assertThat(result.toChangeSet()).isNull();
+
+        logger.info("Optimal day test passed");
+    }
+
+    @Test
+    @Tag("load")
+    @DisplayName("Benchmark: route quality versus time budget")
+    void benchmarkQualityVersusTimeBudget() {
+        // Given - three days of 14 randomly placed stops each
+        Random random = new Random(7);
+        List<NormalizedDay> days = new ArrayList<>();
+        for (int dayNumber = 1; dayNumber <= 3; dayNumber++) {
+            List<NormalizedNode> nodes = new ArrayList<>();
+            for (int i = 0; i < 14; i++) {
+                NormalizedNode node = stop("d" + dayNumber + "_" + i, 0, i);
+                node.getLocation().setCoordinates(new Coordinates(
+                        41.37 + random.nextDouble() * 0.06, 2.12 + random.nextDouble() * 0.08));
+                nodes.add(node);
+            }
+            days.add(day(dayNumber, nodes.toArray(new NormalizedNode[0])));
+        }
+        NormalizedItinerary itinerary = itinerary("it_benchmark", days.toArray(new NormalizedDay[0]));
+
+        // When
+        double initialCost = 0;
+        double previousCost = Double.MAX_VALUE;
+        for (long budgetMs : new long[] {1, 5, 20, 100, 500}) {
+            RouteOptimizer.OptimizationResult result = routeOptimizer.optimize(itinerary, budgetMs);
+            double before = result.getDays().stream().mapToDouble(RouteOptimizer.DayRoute::getCostBefore).sum();
+            double after = result.getDays().stream().mapToDouble(RouteOptimizer.DayRoute::getCostAfter).sum();
+            int evaluations = result.getDays().stream().mapToInt(RouteOptimizer.DayRoute::getEvaluations).sum();
+
+            logger.info("Route optimizer budget {} ms: cost {} -> {} ({} travel minutes saved, {} evaluations, {} ms)",
+                       budgetMs, String.format("%.0f", before), String.format("%.0f", after),
+                       result.getTravelMinutesSaved(), evaluations, result.getElapsedMs());
+
+            // Then - never worse than the input, more time never hurts, and the budget is honored
+            assertThat(after).isLessThanOrEqualTo(before);
+            assertThat(after).isLessThanOrEqualTo(previousCost);
+            assertThat(result.getElapsedMs()).isLessThanOrEqualTo(budgetMs + 250);
+            initialCost = before;
+            previousCost = after;
+        }
+
+        // Then - random days leave room, so the largest budget cuts the cost by at least a tenth
+        assertThat(previousCost).isLessThan(initialCost * 0.9);
+
+        logger.info("Route optimizer benchmark passed: cost {} -> {}",
+                   String.format("%.0f", initialCost), String.format("%.0f", previousCost));
+    }
+
+    private static List<String> moveIds(ChangeSet changeSet) {
+        return changeSet.getOps().stream()
+                .filter(op -> "move".equals(op.getOp()))
+                .map(ChangeOperation::getId)
+                .collect(Collectors.toList());
+    }
+
+    private static NormalizedItinerary itinerary(String id, NormalizedDay... days) {
+        NormalizedItinerary itinerary = new NormalizedItinerary();
+        itinerary.setItineraryId(id);
+        itinerary.setVersion(1);
+        itinerary.setDays(new ArrayList<>(List.of(days)));
+        return itinerary;
+    }
+
+    private static NormalizedDay day(int dayNumber, NormalizedNode... nodes) {
+        NormalizedDay day = new NormalizedDay(dayNumber, DATE.plusDays(dayNumber - 1).toString(), "Barcelona");
+        day.setNodes(new ArrayList<>(List.of(nodes)));
+        return day;
+    }
+
+    /**
+     * A one-hour stop {@code km} kilometers east of a fixed point, in the given 90-minute slot.
+     */
+    private static NormalizedNode stop(String id, double km, int slot) {
+        NormalizedNode node = new NormalizedNode();
+        node.setId(id);
+        node.setType("attraction");
+        node.setTitle(id);
+        NodeLocation location = new NodeLocation();
+        location.setName(id);
+        location.setCoordinates(new Coordinates(41.3851, 2.1734 + km / 83.5));
+        node.setLocation(location);
+        long start = DAY_START + slot * 90 * MINUTE;
+        node.setTiming(new NodeTiming(start, start + 60 * MINUTE, 60));
+        return node;
+    }
+}
@@ -0,0 +1,122 @@
+package com.tripplanner.testing.service;
+
+import com.tripplanner.dto.Coordinates;
+import com.tripplanner.dto.NodeLocation;
+import com.tripplanner.dto.NormalizedDay;
+import com.tripplanner.dto.NormalizedItinerary;
+import com.tripplanner.dto.NormalizedNode;
+import com.tripplanner.service.TravelTimeService;
+import com.tripplanner.service.TravelTimeService.TravelMode;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Tests for the local travel-time engine.
+ */
+class TravelTimeServiceTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(TravelTimeServiceTest.class);
+
+    private final TravelTimeService travelTimeService = new TravelTimeService();
+
+    @Test
+    @DisplayName("Should compute great-circle distances and mode-specific durations")
+    void shouldComputeDistancesAndDurations() {
+        // Given - Eiffel Tower to Louvre, roughly 3.2 km apart
+        Coordinates eiffel = new Coordinates(48.8584, 2.2945);
+        Coordinates louvre = new Coordinates(48.8606, 2.3376);
+
+        // When
+        double distance = TravelTimeService.distanceKm(eiffel, louvre);
+
+        // Then
+        assertThat(distance).isCloseTo(3.17, within(0.05));
+        assertThat(TravelMode.WALK.minutesFor(distance)).isGreaterThan(TravelMode.TRANSIT.minutesFor(distance));
+        assertThat(TravelMode.TRANSIT.minutesFor(distance)).isGreaterThan(TravelMode.DRIVE.minutesFor(distance));
+        assertThat(travelTimeService.estimateMinutes(eiffel, louvre, null))
+                .isEqualTo(TravelMode.TRANSIT.minutesFor(distance));
+        assertThat(TravelMode.recommendedFor(0.5)).isEqualTo(TravelMode.WALK);
+        assertThat(TravelMode.fromTransportMode("rideshare")).isEqualTo(TravelMode.DRIVE);
+        assertThat(TravelMode.fromTransportMode("flight")).isNull();
+
+        logger.info("Distance and duration test passed: {} km", String.format("%.2f", distance));
+    }
+
+    @Test
+    @DisplayName("Should build a symmetric matrix over located nodes only")
+    void shouldBuildDayMatrix() {
+        // Given
+        NormalizedDay day = day(1,
+                node("n1", 48.8584, 2.2945),
+                node("n2", 48.8606, 2.3376),
+                node("n3", null, null));
+
+        // When
+        TravelTimeService.DayMatrix matrix = travelTimeService.getDayMatrix(day);
+
+        // Then
+        assertThat(matrix.size()).isEqualTo(2);
+        assertThat(matrix.distanceKm("n1", "n2")).isEqualTo(matrix.distanceKm("n2", "n1"));
+        assertThat(matrix.distanceKm("n1", "n1")).isEqualTo(0.0);
+        assertThat(matrix.distanceKm("n1", "n3")).isNull();
+        assertThat(matrix.minutes("n1", "n2", TravelMode.DRIVE))
+                .isEqualTo(TravelMode.DRIVE.minutesFor(matrix.distanceKm("n1", "n2")));
+
+        logger.info("Day matrix test passed");
+    }
+
+    @Test
+    @DisplayName("Should reuse cached matrices for unchanged days")
+    void shouldReuseMatricesForUnchangedDays() {
+        // Given
+        NormalizedItinerary itinerary = new NormalizedItinerary();
+        itinerary.setItineraryId("it_travel");
+        itinerary.setVersion(1);
+        itinerary.setDays(new ArrayList<>(List.of(
+                day(1, node("a1", 41.3851, 2.1734), node("a2", 41.4036, 2.1744)),
+                day(2, node("b1", 41.3809, 2.1228), node("b2", 41.4145, 2.1527)))));
+
+        Map<Integer, TravelTimeService.DayMatrix> first = travelTimeService.getMatrices(itinerary);
+
+        // When - only day 2 changes
+        itinerary.setVersion(2);
+        itinerary.getDays().get(1).getNodes().get(1).getLocation().setCoordinates(new Coordinates(41.3900, 2.1600));
+        Map<Integer, TravelTimeService.DayMatrix> second = travelTimeService.getMatrices(itinerary);
+
+        // Then
+        assertThat(second.get(1)).isSameAs(first.get(1));
+        assertThat(second.get(2)).isNotSameAs(first.get(2));
+        assertThat(second.get(2).distanceKm("b1", "b2")).isLessThan(first.get(2).distanceKm("b1", "b2"));
+
+        logger.info("Matrix cache test passed");
+    }
+
+    private static NormalizedDay day(int dayNumber, NormalizedNode... nodes) {
+        NormalizedDay day = new NormalizedDay(dayNumber, "2025-06-0" + dayNumber, "Barcelona");
+        day.setNodes(new ArrayList<>(List.of(nodes)));
+        return day;
+    }
+
+    private static NormalizedNode node(String id, Double lat, Double lng) {
+        NormalizedNode node = new NormalizedNode();
+        node.setId(id);
+        node.setType("attraction");
+        node.setTitle(id);
+        NodeLocation location = new NodeLocation();
+        location.setName(id);
+        if (lat != null) {
+            location.setCoordinates(new Coordinates(lat, lng));
+        }
+        node.setLocation(location);
+        return node;
+    }
+}
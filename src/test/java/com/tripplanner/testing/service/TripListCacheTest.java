@@ -0,0 +1,108 @@
+package com.tripplanner.testing.service;
+
+import com.tripplanner.dto.TripMetadata;
+import com.tripplanner.service.TripListCache;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for the per-user trip list cache.
+ */
+class TripListCacheTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(TripListCacheTest.class);
+
+    private final TripListCache cache = new TripListCache(300);
+
+    @Test
+    @DisplayName("Should keep a cached trip list ordered as metadata is saved and deleted")
+    void shouldMaintainTripListIncrementally() {
+        // Given
+        long generation = cache.beginLoad("user_1");
+        cache.install("user_1", generation, List.of(trip("it_3", 3_000L), trip("it_1", 1_000L)));
+
+        // When
+        cache.put("user_1", trip("it_2", 2_000L));
+        cache.put("user_1", trip("it_4", 4_000L));
+        cache.remove("user_1", "it_1");
+
+        // Then
+        assertThat(cache.get("user_1")).extracting(TripMetadata::getItineraryId)
+                .containsExactly("it_4", "it_3", "it_2");
+        assertThat(cache.get("user_other")).isNull();
+
+        logger.info("Incremental trip list test passed");
+    }
+
+    @Test
+    @DisplayName("Should skip unchanged projections and apply changed ones to the cached list")
+    void shouldTrackProjectedFields() {
+        // Given
+        long generation = cache.beginLoad("user_1");
+        TripMetadata metadata = trip("it_1", 1_000L);
+        metadata.setStatus("generating");
+        cache.install("user_1", generation, List.of(metadata));
+
+        Map<String, Object> unchanged = new HashMap<>();
+        unchanged.put("destination", "Lisbon");
+        unchanged.put("status", "generating");
+        Map<String, Object> completed = new HashMap<>();
+        completed.put("status", "completed");
+
+        // When
+        boolean unchangedProjected = cache.isProjected("it_1", unchanged);
+        boolean completedProjected = cache.isProjected("it_1", completed);
+        cache.applyProjection("user_1", "it_1", completed);
+
+        // Then
+        assertThat(unchangedProjected).isTrue();
+        assertThat(completedProjected).isFalse();
+        assertThat(cache.isProjected("it_1", completed)).isTrue();
+        assertThat(cache.isProjected("it_unknown", completed)).isFalse();
+        assertThat(cache.get("user_1").get(0).getStatus()).isEqualTo("completed");
+
+        logger.info("Projection tracking test passed");
+    }
+
+    @Test
+    @DisplayName("Should discard a load that raced with a write and return copies")
+    void shouldDiscardStaleLoads() {
+        // Given
+        long generation = cache.beginLoad("user_1");
+        cache.put("user_1", trip("it_2", 2_000L));
+
+        // When - the load started before the save completes afterwards
+        cache.install("user_1", generation, List.of(trip("it_1", 1_000L)));
+
+        // Then
+        assertThat(cache.get("user_1")).isNull();
+
+        // When
+        long retry = cache.beginLoad("user_1");
+        cache.install("user_1", retry, List.of(trip("it_2", 2_000L), trip("it_1", 1_000L)));
+        cache.get("user_1").get(0).setSummary("changed by caller");
+
+        // Then
+        assertThat(cache.get("user_1").get(0).getSummary()).isEqualTo("Trip it_2");
+
+        logger.info("Stale load test passed");
+    }
+
+    private static TripMetadata trip(String itineraryId, long createdAt) {
+        TripMetadata metadata = new TripMetadata();
+        metadata.setItineraryId(itineraryId);
+        metadata.setUserId("user_1");
+        metadata.setDestination("Lisbon");
+        metadata.setSummary("Trip " + itineraryId);
+        metadata.setCreatedAt(createdAt);
+        return metadata;
+    }
+}